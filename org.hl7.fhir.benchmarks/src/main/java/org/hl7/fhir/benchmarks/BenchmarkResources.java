@@ -0,0 +1,66 @@
+package org.hl7.fhir.benchmarks;
+
+import java.io.IOException;
+
+import org.hl7.fhir.r4.formats.XmlParser;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Bundle.BundleType;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r5.context.IWorkerContext;
+import org.hl7.fhir.r5.test.utils.TestingUtilities;
+
+/**
+ * The content the benchmarks run on. Everything comes from the fhir-test-cases resources, and
+ * the R4 core package in the local package cache, so that the benchmarks can be run offline
+ */
+public class BenchmarkResources {
+
+  public static final String CORE_VERSION = "4.0.1";
+
+  /**
+   * @return the same (R4) context the validator tests use. It's only loaded once
+   */
+  public static IWorkerContext context() {
+    return TestingUtilities.context(CORE_VERSION);
+  }
+
+  public static byte[] load(String... path) throws IOException {
+    return TestingUtilities.loadTestResourceBytes(path);
+  }
+
+  /**
+   * @return an R4 patient, with a bit of everything in it
+   */
+  public static Patient r4Patient() throws IOException {
+    return (Patient) new XmlParser().parse(load("validator", "patient-example.xml"));
+  }
+
+  /**
+   * @return an R4 collection bundle with count patients in it, each with its own id
+   */
+  public static Bundle r4Bundle(int count) throws IOException {
+    Patient patient = r4Patient();
+    Bundle bundle = new Bundle();
+    bundle.setId("benchmark");
+    bundle.setType(BundleType.COLLECTION);
+    for (int i = 0; i < count; i++) {
+      Patient p = patient.copy();
+      p.setId("p"+i);
+      bundle.addEntry().setFullUrl("http://example.org/fhir/Patient/p"+i).setResource(p);
+    }
+    return bundle;
+  }
+
+  /**
+   * @param name - "patient", or "bundle-N" for a bundle of N patients
+   */
+  public static org.hl7.fhir.r4.model.Resource r4Resource(String name) throws IOException {
+    if (name.startsWith("bundle-")) {
+      return r4Bundle(Integer.parseInt(name.substring(7)));
+    } else if ("patient".equals(name)) {
+      return r4Patient();
+    } else {
+      throw new IllegalArgumentException("Unknown benchmark resource "+name);
+    }
+  }
+}
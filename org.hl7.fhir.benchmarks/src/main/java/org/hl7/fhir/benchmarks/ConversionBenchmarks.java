@@ -0,0 +1,52 @@
+package org.hl7.fhir.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.hl7.fhir.convertors.VersionConvertor_40_50;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Converting resources between R4 and R5
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConversionBenchmarks {
+
+  @Param({"patient", "bundle-100"})
+  public String resource;
+
+  private org.hl7.fhir.r4.model.Resource r4resource;
+  private org.hl7.fhir.r5.model.Resource r5resource;
+
+  @Setup
+  public void setup() throws IOException {
+    r4resource = BenchmarkResources.r4Resource(resource);
+    r5resource = VersionConvertor_40_50.convertResource(r4resource);
+  }
+
+  @Benchmark
+  public org.hl7.fhir.r5.model.Resource convert40to50() {
+    return VersionConvertor_40_50.convertResource(r4resource);
+  }
+
+  @Benchmark
+  public org.hl7.fhir.r4.model.Resource convert50to40() {
+    return VersionConvertor_40_50.convertResource(r5resource);
+  }
+
+}
@@ -0,0 +1,60 @@
+package org.hl7.fhir.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.hl7.fhir.r4.formats.IParser;
+import org.hl7.fhir.r4.formats.JsonParser;
+import org.hl7.fhir.r4.formats.XmlParser;
+import org.hl7.fhir.r5.context.IWorkerContext;
+import org.hl7.fhir.r5.elementmodel.Element;
+import org.hl7.fhir.r5.elementmodel.Manager;
+import org.hl7.fhir.r5.elementmodel.Manager.FhirFormat;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing into the element model (what the validator does before it starts)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ElementModelBenchmarks {
+
+  @Param({"json", "xml"})
+  public String format;
+
+  @Param({"patient", "bundle-100"})
+  public String resource;
+
+  private IWorkerContext context;
+  private FhirFormat fmt;
+  private byte[] source;
+
+  @Setup
+  public void setup() throws IOException {
+    context = BenchmarkResources.context();
+    IParser parser = "json".equals(format) ? new JsonParser() : new XmlParser();
+    fmt = "json".equals(format) ? FhirFormat.JSON : FhirFormat.XML;
+    source = parser.composeBytes(BenchmarkResources.r4Resource(resource));
+  }
+
+  @Benchmark
+  public Element parse() throws IOException {
+    return Manager.parse(context, new ByteArrayInputStream(source), fmt);
+  }
+
+}
@@ -0,0 +1,123 @@
+package org.hl7.fhir.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hl7.fhir.r4.formats.JsonParser;
+import org.hl7.fhir.r5.context.IWorkerContext;
+import org.hl7.fhir.r5.elementmodel.Element;
+import org.hl7.fhir.r5.elementmodel.Manager;
+import org.hl7.fhir.r5.elementmodel.Manager.FhirFormat;
+import org.hl7.fhir.r5.model.Base;
+import org.hl7.fhir.r5.model.ElementDefinition;
+import org.hl7.fhir.r5.model.ElementDefinition.ElementDefinitionConstraintComponent;
+import org.hl7.fhir.r5.model.ExpressionNode;
+import org.hl7.fhir.r5.model.StructureDefinition;
+import org.hl7.fhir.r5.utils.FHIRPathEngine;
+import org.hl7.fhir.r5.utils.FHIRPathExecutionPlan;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Evaluating the invariants in the core definitions against every element they apply to in a
+ * resource - interpreted, as parsed, and as compiled execution plans.
+ *
+ * Each invocation evaluates all of them once
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FHIRPathBenchmarks {
+
+  private static class Invariant {
+    private Element resource;
+    private Base focus;
+    private ExpressionNode node;
+    private FHIRPathExecutionPlan plan;
+  }
+
+  @Param({"patient", "bundle-10"})
+  public String resource;
+
+  private FHIRPathEngine fpe;
+  private Element root;
+  private List<Invariant> invariants = new ArrayList<>();
+
+  @Setup
+  public void setup() throws IOException {
+    IWorkerContext context = BenchmarkResources.context();
+    fpe = new FHIRPathEngine(context);
+    byte[] source = new JsonParser().composeBytes(BenchmarkResources.r4Resource(resource));
+    root = Manager.parse(context, new ByteArrayInputStream(source), FhirFormat.JSON);
+    List<Element> resources = new ArrayList<>();
+    findResources(root, resources);
+    for (Element r : resources) {
+      StructureDefinition sd = context.fetchTypeDefinition(r.fhirType());
+      for (ElementDefinition ed : sd.getSnapshot().getElement()) {
+        // choice elements aren't FHIRPath, but their invariants are only about the value anyway 
+        if (ed.getPath().endsWith("[x]")) {
+          continue;
+        }
+        for (ElementDefinitionConstraintComponent inv : ed.getConstraint()) {
+          if (inv.hasExpression()) {
+            for (Base focus : fpe.evaluate(r, ed.getPath())) {
+              Invariant i = new Invariant();
+              i.resource = r;
+              i.focus = focus;
+              i.node = fpe.parse(inv.getExpression());
+              i.plan = fpe.compile(inv.getExpression());
+              invariants.add(i);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  private void findResources(Element e, List<Element> resources) {
+    if (e.isResource()) {
+      resources.add(e);
+    }
+    for (Element c : e.getChildren()) {
+      findResources(c, resources);
+    }
+  }
+
+  @Benchmark
+  public int interpreted() {
+    int ok = 0;
+    for (Invariant i : invariants) {
+      if (fpe.evaluateToBoolean(null, i.resource, root, i.focus, i.node)) {
+        ok++;
+      }
+    }
+    return ok;
+  }
+
+  @Benchmark
+  public int compiled() {
+    int ok = 0;
+    for (Invariant i : invariants) {
+      if (fpe.evaluateToBoolean(null, i.resource, root, i.focus, i.plan)) {
+        ok++;
+      }
+    }
+    return ok;
+  }
+
+}
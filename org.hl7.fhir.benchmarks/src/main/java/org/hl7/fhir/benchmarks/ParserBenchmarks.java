@@ -0,0 +1,73 @@
+package org.hl7.fhir.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.hl7.fhir.convertors.VersionConvertor_40_50;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing and composing resources with the R4 and R5 Json and Xml parsers
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ParserBenchmarks {
+
+  @Param({"json", "xml"})
+  public String format;
+
+  @Param({"patient", "bundle-100"})
+  public String resource;
+
+  private org.hl7.fhir.r4.formats.IParser r4parser;
+  private org.hl7.fhir.r5.formats.IParser r5parser;
+  private org.hl7.fhir.r4.model.Resource r4resource;
+  private org.hl7.fhir.r5.model.Resource r5resource;
+  private byte[] r4source;
+  private byte[] r5source;
+
+  @Setup
+  public void setup() throws IOException {
+    r4parser = "json".equals(format) ? new org.hl7.fhir.r4.formats.JsonParser() : new org.hl7.fhir.r4.formats.XmlParser();
+    r5parser = "json".equals(format) ? new org.hl7.fhir.r5.formats.JsonParser() : new org.hl7.fhir.r5.formats.XmlParser();
+    r4resource = BenchmarkResources.r4Resource(resource);
+    r5resource = VersionConvertor_40_50.convertResource(r4resource);
+    r4source = r4parser.composeBytes(r4resource);
+    r5source = r5parser.composeBytes(r5resource);
+  }
+
+  @Benchmark
+  public org.hl7.fhir.r4.model.Resource parseR4() throws IOException {
+    return r4parser.parse(r4source);
+  }
+
+  @Benchmark
+  public byte[] composeR4() throws IOException {
+    return r4parser.composeBytes(r4resource);
+  }
+
+  @Benchmark
+  public org.hl7.fhir.r5.model.Resource parseR5() throws IOException {
+    return r5parser.parse(r5source);
+  }
+
+  @Benchmark
+  public byte[] composeR5() throws IOException {
+    return r5parser.composeBytes(r5resource);
+  }
+
+}
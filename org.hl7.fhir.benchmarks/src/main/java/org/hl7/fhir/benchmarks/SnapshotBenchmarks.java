@@ -0,0 +1,64 @@
+package org.hl7.fhir.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hl7.fhir.r5.conformance.ProfileUtilities;
+import org.hl7.fhir.r5.context.IWorkerContext;
+import org.hl7.fhir.r5.model.StructureDefinition;
+import org.hl7.fhir.utilities.validation.ValidationMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Generating snapshots for the profiles in the core package. The vital signs profiles are
+ * about the size of the US Core profiles: slices, fixed values and bindings on a base
+ * resource, and a profile on a profile (bp is based on vitalsigns)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SnapshotBenchmarks {
+
+  @Param({"vitalsigns", "bp", "bodyweight", "lipidprofile"})
+  public String profile;
+
+  private IWorkerContext context;
+  private StructureDefinition base;
+  private StructureDefinition derived;
+
+  @Setup
+  public void setup() {
+    context = BenchmarkResources.context();
+    derived = context.fetchResource(StructureDefinition.class, "http://hl7.org/fhir/StructureDefinition/"+profile);
+    if (derived == null) {
+      throw new IllegalArgumentException("Unknown profile "+profile);
+    }
+    base = context.fetchResource(StructureDefinition.class, derived.getBaseDefinition());
+  }
+
+  @Benchmark
+  public StructureDefinition generateSnapshot() {
+    StructureDefinition sd = derived.copy();
+    sd.setSnapshot(null);
+    List<ValidationMessage> messages = new ArrayList<>();
+    ProfileUtilities pu = new ProfileUtilities(context, messages, null);
+    pu.setThrowException(false);
+    pu.generateSnapshot(base, sd, sd.getUrl(), null, sd.getName());
+    return sd;
+  }
+
+}
@@ -0,0 +1,65 @@
+package org.hl7.fhir.benchmarks;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.hl7.fhir.r4.formats.JsonParser;
+import org.hl7.fhir.r4.formats.XmlParser;
+import org.hl7.fhir.r5.elementmodel.Manager.FhirFormat;
+import org.hl7.fhir.utilities.validation.ValidationMessage;
+import org.hl7.fhir.validation.instance.InstanceValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Validating resources against the base R4 definitions.
+ *
+ * There's no terminology server, so the terminology checks are off: these are the costs of
+ * the validator itself
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ValidatorBenchmarks {
+
+  @Param({"json", "xml"})
+  public String format;
+
+  @Param({"patient", "bundle-10", "bundle-100", "bundle-1000"})
+  public String resource;
+
+  private InstanceValidator validator;
+  private FhirFormat fmt;
+  private byte[] source;
+
+  @Setup
+  public void setup() throws IOException {
+    validator = new InstanceValidator(BenchmarkResources.context(), null, null);
+    validator.setNoTerminologyChecks(true);
+    fmt = "json".equals(format) ? FhirFormat.JSON : FhirFormat.XML;
+    source = "json".equals(format) ? new JsonParser().composeBytes(BenchmarkResources.r4Resource(resource)) : new XmlParser().composeBytes(BenchmarkResources.r4Resource(resource));
+  }
+
+  @Benchmark
+  public List<ValidationMessage> validate() {
+    List<ValidationMessage> messages = new ArrayList<>();
+    validator.validate(null, messages, new ByteArrayInputStream(source), fmt);
+    return messages;
+  }
+
+}
@@ -0,0 +1,66 @@
+package org.hl7.fhir.convertors;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Picks the conversion to use for an object by its class.
+ *
+ * The convertors used to do this with a chain of instanceof checks, so converting an object meant
+ * checking it against each type in turn until one matched (about 125 checks for the last resource in
+ * the list). Instead, the conversions are added in the same order as the chain, and the first one
+ * added for the class of the object - or a class it extends - is found once for each class, and then
+ * kept, so the conversion is the same as the chain would have picked.
+ *
+ * Conversions must all be added before the dispatcher is used (the convertors build them in static
+ * initialisers). After that, it can be used by any number of threads.
+ *
+ * @param <F> - the kind of conversion (e.g. a Function from the source type to the target type)
+ */
+public class ConversionDispatcher<F> {
+
+  private final List<Class<?>> types = new ArrayList<>();
+  private final List<F> conversions = new ArrayList<>();
+  private final Map<Class<?>, Integer> byClass = new ConcurrentHashMap<>();
+
+  public ConversionDispatcher<F> add(Class<?> type, F conversion) {
+    types.add(type);
+    conversions.add(conversion);
+    return this;
+  }
+
+  /**
+   * @return the conversion for an object of the class, or null if there isn't one
+   */
+  public F get(Class<?> type) {
+    Integer index = byClass.get(type);
+    if (index == null) {
+      index = -1;
+      for (int i = 0; i < types.size(); i++) {
+        if (types.get(i).isAssignableFrom(type)) {
+          index = i;
+          break;
+        }
+      }
+      byClass.put(type, index);
+    }
+    return index == -1 ? null : conversions.get(index);
+  }
+
+  /**
+   * Convert a batch of objects, e.g. convertAll(resources, VersionConvertor_40_50::convertResource).
+   * The result has the converted objects in the same order as the source
+   */
+  public static <S, T> List<T> convertAll(Collection<? extends S> src, Function<S, T> conversion) {
+    List<T> res = new ArrayList<>(src.size());
+    for (S s : src) {
+      res.add(conversion.apply(s));
+    }
+    return res;
+  }
+
+}
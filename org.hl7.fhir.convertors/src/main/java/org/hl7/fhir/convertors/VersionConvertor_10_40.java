@@ -25,6 +25,8 @@ import org.hl7.fhir.utilities.Utilities;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.BiFunction;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /*
@@ -2129,149 +2131,191 @@ public class VersionConvertor_10_40 {
     return tgt;
   }
 
+  private static final ConversionDispatcher<Function<org.hl7.fhir.dstu2.model.Type, org.hl7.fhir.r4.model.Type>> TYPES_10_40 = new ConversionDispatcher<Function<org.hl7.fhir.dstu2.model.Type, org.hl7.fhir.r4.model.Type>>()
+    .add(org.hl7.fhir.dstu2.model.Base64BinaryType.class,
+      src -> convertBase64Binary((org.hl7.fhir.dstu2.model.Base64BinaryType) src))
+    .add(org.hl7.fhir.dstu2.model.BooleanType.class,
+      src -> convertBoolean((org.hl7.fhir.dstu2.model.BooleanType) src))
+    .add(org.hl7.fhir.dstu2.model.CodeType.class,
+      src -> convertCode((org.hl7.fhir.dstu2.model.CodeType) src))
+    .add(org.hl7.fhir.dstu2.model.DateType.class,
+      src -> convertDate((org.hl7.fhir.dstu2.model.DateType) src))
+    .add(org.hl7.fhir.dstu2.model.DateTimeType.class,
+      src -> convertDateTime((org.hl7.fhir.dstu2.model.DateTimeType) src))
+    .add(org.hl7.fhir.dstu2.model.DecimalType.class,
+      src -> convertDecimal((org.hl7.fhir.dstu2.model.DecimalType) src))
+    .add(org.hl7.fhir.dstu2.model.IdType.class,
+      src -> convertId((org.hl7.fhir.dstu2.model.IdType) src))
+    .add(org.hl7.fhir.dstu2.model.InstantType.class,
+      src -> convertInstant((org.hl7.fhir.dstu2.model.InstantType) src))
+    .add(org.hl7.fhir.dstu2.model.MarkdownType.class,
+      src -> convertMarkdown((org.hl7.fhir.dstu2.model.MarkdownType) src))
+    .add(org.hl7.fhir.dstu2.model.OidType.class,
+      src -> convertOid((org.hl7.fhir.dstu2.model.OidType) src))
+    .add(org.hl7.fhir.dstu2.model.PositiveIntType.class,
+      src -> convertPositiveInt((org.hl7.fhir.dstu2.model.PositiveIntType) src))
+    .add(org.hl7.fhir.dstu2.model.StringType.class,
+      src -> convertString((org.hl7.fhir.dstu2.model.StringType) src))
+    .add(org.hl7.fhir.dstu2.model.TimeType.class,
+      src -> convertTime((org.hl7.fhir.dstu2.model.TimeType) src))
+    .add(org.hl7.fhir.dstu2.model.UnsignedIntType.class,
+      src -> convertUnsignedInt((org.hl7.fhir.dstu2.model.UnsignedIntType) src))
+    .add(org.hl7.fhir.dstu2.model.IntegerType.class,
+      src -> convertInteger((org.hl7.fhir.dstu2.model.IntegerType) src))
+    .add(org.hl7.fhir.dstu2.model.UriType.class,
+      src -> convertUri((org.hl7.fhir.dstu2.model.UriType) src))
+    .add(org.hl7.fhir.dstu2.model.UuidType.class,
+      src -> convertUuid((org.hl7.fhir.dstu2.model.UuidType) src))
+    .add(org.hl7.fhir.dstu2.model.Extension.class,
+      src -> convertExtension((org.hl7.fhir.dstu2.model.Extension) src))
+    .add(org.hl7.fhir.dstu2.model.Narrative.class,
+      src -> convertNarrative((org.hl7.fhir.dstu2.model.Narrative) src))
+    .add(org.hl7.fhir.dstu2.model.Annotation.class,
+      src -> convertAnnotation((org.hl7.fhir.dstu2.model.Annotation) src))
+    .add(org.hl7.fhir.dstu2.model.Attachment.class,
+      src -> convertAttachment((org.hl7.fhir.dstu2.model.Attachment) src))
+    .add(org.hl7.fhir.dstu2.model.CodeableConcept.class,
+      src -> convertCodeableConcept((org.hl7.fhir.dstu2.model.CodeableConcept) src))
+    .add(org.hl7.fhir.dstu2.model.Coding.class,
+      src -> convertCoding((org.hl7.fhir.dstu2.model.Coding) src))
+    .add(org.hl7.fhir.dstu2.model.Identifier.class,
+      src -> convertIdentifier((org.hl7.fhir.dstu2.model.Identifier) src))
+    .add(org.hl7.fhir.dstu2.model.Period.class,
+      src -> convertPeriod((org.hl7.fhir.dstu2.model.Period) src))
+    .add(org.hl7.fhir.dstu2.model.Quantity.class,
+      src -> convertQuantity((org.hl7.fhir.dstu2.model.Quantity) src))
+    .add(org.hl7.fhir.dstu2.model.Range.class,
+      src -> convertRange((org.hl7.fhir.dstu2.model.Range) src))
+    .add(org.hl7.fhir.dstu2.model.Ratio.class,
+      src -> convertRatio((org.hl7.fhir.dstu2.model.Ratio) src))
+    .add(org.hl7.fhir.dstu2.model.Reference.class,
+      src -> convertReference((org.hl7.fhir.dstu2.model.Reference) src))
+    .add(org.hl7.fhir.dstu2.model.SampledData.class,
+      src -> convertSampledData((org.hl7.fhir.dstu2.model.SampledData) src))
+    .add(org.hl7.fhir.dstu2.model.Signature.class,
+      src -> convertSignature((org.hl7.fhir.dstu2.model.Signature) src))
+    .add(org.hl7.fhir.dstu2.model.Address.class,
+      src -> convertAddress((org.hl7.fhir.dstu2.model.Address) src))
+    .add(org.hl7.fhir.dstu2.model.ContactPoint.class,
+      src -> convertContactPoint((org.hl7.fhir.dstu2.model.ContactPoint) src))
+    .add(org.hl7.fhir.dstu2.model.HumanName.class,
+      src -> convertHumanName((org.hl7.fhir.dstu2.model.HumanName) src))
+    .add(org.hl7.fhir.dstu2.model.Meta.class,
+      src -> convertMeta((org.hl7.fhir.dstu2.model.Meta) src))
+    .add(org.hl7.fhir.dstu2.model.Timing.class,
+      src -> convertTiming((org.hl7.fhir.dstu2.model.Timing) src))
+    .add(org.hl7.fhir.dstu2.model.Age.class,
+      src -> convertAge((org.hl7.fhir.dstu2.model.Age) src))
+    .add(org.hl7.fhir.dstu2.model.Count.class,
+      src -> convertCount((org.hl7.fhir.dstu2.model.Count) src))
+    .add(org.hl7.fhir.dstu2.model.Distance.class,
+      src -> convertDistance((org.hl7.fhir.dstu2.model.Distance) src))
+    .add(org.hl7.fhir.dstu2.model.Duration.class,
+      src -> convertDuration((org.hl7.fhir.dstu2.model.Duration) src))
+    .add(org.hl7.fhir.dstu2.model.Money.class,
+      src -> convertMoney((org.hl7.fhir.dstu2.model.Money) src))
+    .add(org.hl7.fhir.dstu2.model.SimpleQuantity.class,
+      src -> convertSimpleQuantity((org.hl7.fhir.dstu2.model.SimpleQuantity) src));
+
   public static org.hl7.fhir.r4.model.Type convertType(org.hl7.fhir.dstu2.model.Type src) throws FHIRException {
     if (src == null || src.isEmpty()) return null;
-    if (src instanceof org.hl7.fhir.dstu2.model.Base64BinaryType)
-      return convertBase64Binary((org.hl7.fhir.dstu2.model.Base64BinaryType) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.BooleanType)
-      return convertBoolean((org.hl7.fhir.dstu2.model.BooleanType) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.CodeType)
-      return convertCode((org.hl7.fhir.dstu2.model.CodeType) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.DateType)
-      return convertDate((org.hl7.fhir.dstu2.model.DateType) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.DateTimeType)
-      return convertDateTime((org.hl7.fhir.dstu2.model.DateTimeType) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.DecimalType)
-      return convertDecimal((org.hl7.fhir.dstu2.model.DecimalType) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.IdType) return convertId((org.hl7.fhir.dstu2.model.IdType) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.InstantType)
-      return convertInstant((org.hl7.fhir.dstu2.model.InstantType) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.MarkdownType)
-      return convertMarkdown((org.hl7.fhir.dstu2.model.MarkdownType) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.OidType) return convertOid((org.hl7.fhir.dstu2.model.OidType) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.PositiveIntType)
-      return convertPositiveInt((org.hl7.fhir.dstu2.model.PositiveIntType) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.StringType)
-      return convertString((org.hl7.fhir.dstu2.model.StringType) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.TimeType)
-      return convertTime((org.hl7.fhir.dstu2.model.TimeType) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.UnsignedIntType)
-      return convertUnsignedInt((org.hl7.fhir.dstu2.model.UnsignedIntType) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.IntegerType)
-      return convertInteger((org.hl7.fhir.dstu2.model.IntegerType) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.UriType) return convertUri((org.hl7.fhir.dstu2.model.UriType) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.UuidType)
-      return convertUuid((org.hl7.fhir.dstu2.model.UuidType) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Extension)
-      return convertExtension((org.hl7.fhir.dstu2.model.Extension) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Narrative)
-      return convertNarrative((org.hl7.fhir.dstu2.model.Narrative) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Annotation)
-      return convertAnnotation((org.hl7.fhir.dstu2.model.Annotation) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Attachment)
-      return convertAttachment((org.hl7.fhir.dstu2.model.Attachment) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.CodeableConcept)
-      return convertCodeableConcept((org.hl7.fhir.dstu2.model.CodeableConcept) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Coding) return convertCoding((org.hl7.fhir.dstu2.model.Coding) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Identifier)
-      return convertIdentifier((org.hl7.fhir.dstu2.model.Identifier) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Period) return convertPeriod((org.hl7.fhir.dstu2.model.Period) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Quantity)
-      return convertQuantity((org.hl7.fhir.dstu2.model.Quantity) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Range) return convertRange((org.hl7.fhir.dstu2.model.Range) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Ratio) return convertRatio((org.hl7.fhir.dstu2.model.Ratio) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Reference)
-      return convertReference((org.hl7.fhir.dstu2.model.Reference) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.SampledData)
-      return convertSampledData((org.hl7.fhir.dstu2.model.SampledData) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Signature)
-      return convertSignature((org.hl7.fhir.dstu2.model.Signature) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Address)
-      return convertAddress((org.hl7.fhir.dstu2.model.Address) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.ContactPoint)
-      return convertContactPoint((org.hl7.fhir.dstu2.model.ContactPoint) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.HumanName)
-      return convertHumanName((org.hl7.fhir.dstu2.model.HumanName) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Meta) return convertMeta((org.hl7.fhir.dstu2.model.Meta) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Timing) return convertTiming((org.hl7.fhir.dstu2.model.Timing) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Age) return convertAge((org.hl7.fhir.dstu2.model.Age) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Count) return convertCount((org.hl7.fhir.dstu2.model.Count) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Distance)
-      return convertDistance((org.hl7.fhir.dstu2.model.Distance) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Duration)
-      return convertDuration((org.hl7.fhir.dstu2.model.Duration) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Money) return convertMoney((org.hl7.fhir.dstu2.model.Money) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.SimpleQuantity)
-      return convertSimpleQuantity((org.hl7.fhir.dstu2.model.SimpleQuantity) src);
+    Function<org.hl7.fhir.dstu2.model.Type, org.hl7.fhir.r4.model.Type> conversion = TYPES_10_40.get(src.getClass());
+    if (conversion != null)
+      return conversion.apply(src);
     throw new FHIRException("Unknown type " + src.fhirType());
   }
 
+  private static final ConversionDispatcher<Function<org.hl7.fhir.r4.model.Type, org.hl7.fhir.dstu2.model.Type>> TYPES_40_10 = new ConversionDispatcher<Function<org.hl7.fhir.r4.model.Type, org.hl7.fhir.dstu2.model.Type>>()
+    .add(org.hl7.fhir.r4.model.Base64BinaryType.class,
+      src -> convertBase64Binary((org.hl7.fhir.r4.model.Base64BinaryType) src))
+    .add(org.hl7.fhir.r4.model.BooleanType.class,
+      src -> convertBoolean((org.hl7.fhir.r4.model.BooleanType) src))
+    .add(org.hl7.fhir.r4.model.CodeType.class,
+      src -> convertCode((org.hl7.fhir.r4.model.CodeType) src))
+    .add(org.hl7.fhir.r4.model.DateType.class,
+      src -> convertDate((org.hl7.fhir.r4.model.DateType) src))
+    .add(org.hl7.fhir.r4.model.DateTimeType.class,
+      src -> convertDateTime((org.hl7.fhir.r4.model.DateTimeType) src))
+    .add(org.hl7.fhir.r4.model.DecimalType.class,
+      src -> convertDecimal((org.hl7.fhir.r4.model.DecimalType) src))
+    .add(org.hl7.fhir.r4.model.IdType.class,
+      src -> convertId((org.hl7.fhir.r4.model.IdType) src))
+    .add(org.hl7.fhir.r4.model.InstantType.class,
+      src -> convertInstant((org.hl7.fhir.r4.model.InstantType) src))
+    .add(org.hl7.fhir.r4.model.MarkdownType.class,
+      src -> convertMarkdown((org.hl7.fhir.r4.model.MarkdownType) src))
+    .add(org.hl7.fhir.r4.model.OidType.class,
+      src -> convertOid((org.hl7.fhir.r4.model.OidType) src))
+    .add(org.hl7.fhir.r4.model.PositiveIntType.class,
+      src -> convertPositiveInt((org.hl7.fhir.r4.model.PositiveIntType) src))
+    .add(org.hl7.fhir.r4.model.StringType.class,
+      src -> convertString((org.hl7.fhir.r4.model.StringType) src))
+    .add(org.hl7.fhir.r4.model.TimeType.class,
+      src -> convertTime((org.hl7.fhir.r4.model.TimeType) src))
+    .add(org.hl7.fhir.r4.model.UnsignedIntType.class,
+      src -> convertUnsignedInt((org.hl7.fhir.r4.model.UnsignedIntType) src))
+    .add(org.hl7.fhir.r4.model.IntegerType.class,
+      src -> convertInteger((org.hl7.fhir.r4.model.IntegerType) src))
+    .add(org.hl7.fhir.r4.model.UriType.class,
+      src -> convertUri((org.hl7.fhir.r4.model.UriType) src))
+    .add(org.hl7.fhir.r4.model.UuidType.class,
+      src -> convertUuid((org.hl7.fhir.r4.model.UuidType) src))
+    .add(org.hl7.fhir.r4.model.Extension.class,
+      src -> convertExtension((org.hl7.fhir.r4.model.Extension) src))
+    .add(org.hl7.fhir.r4.model.Narrative.class,
+      src -> convertNarrative((org.hl7.fhir.r4.model.Narrative) src))
+    .add(org.hl7.fhir.r4.model.Annotation.class,
+      src -> convertAnnotation((org.hl7.fhir.r4.model.Annotation) src))
+    .add(org.hl7.fhir.r4.model.Attachment.class,
+      src -> convertAttachment((org.hl7.fhir.r4.model.Attachment) src))
+    .add(org.hl7.fhir.r4.model.CodeableConcept.class,
+      src -> convertCodeableConcept((org.hl7.fhir.r4.model.CodeableConcept) src))
+    .add(org.hl7.fhir.r4.model.Coding.class,
+      src -> convertCoding((org.hl7.fhir.r4.model.Coding) src))
+    .add(org.hl7.fhir.r4.model.Identifier.class,
+      src -> convertIdentifier((org.hl7.fhir.r4.model.Identifier) src))
+    .add(org.hl7.fhir.r4.model.Period.class,
+      src -> convertPeriod((org.hl7.fhir.r4.model.Period) src))
+    .add(org.hl7.fhir.r4.model.Quantity.class,
+      src -> convertQuantity((org.hl7.fhir.r4.model.Quantity) src))
+    .add(org.hl7.fhir.r4.model.Range.class,
+      src -> convertRange((org.hl7.fhir.r4.model.Range) src))
+    .add(org.hl7.fhir.r4.model.Ratio.class,
+      src -> convertRatio((org.hl7.fhir.r4.model.Ratio) src))
+    .add(org.hl7.fhir.r4.model.Reference.class,
+      src -> convertReference((org.hl7.fhir.r4.model.Reference) src))
+    .add(org.hl7.fhir.r4.model.SampledData.class,
+      src -> convertSampledData((org.hl7.fhir.r4.model.SampledData) src))
+    .add(org.hl7.fhir.r4.model.Signature.class,
+      src -> convertSignature((org.hl7.fhir.r4.model.Signature) src))
+    .add(org.hl7.fhir.r4.model.Address.class,
+      src -> convertAddress((org.hl7.fhir.r4.model.Address) src))
+    .add(org.hl7.fhir.r4.model.ContactPoint.class,
+      src -> convertContactPoint((org.hl7.fhir.r4.model.ContactPoint) src))
+    .add(org.hl7.fhir.r4.model.HumanName.class,
+      src -> convertHumanName((org.hl7.fhir.r4.model.HumanName) src))
+    .add(org.hl7.fhir.r4.model.Meta.class,
+      src -> convertMeta((org.hl7.fhir.r4.model.Meta) src))
+    .add(org.hl7.fhir.r4.model.Timing.class,
+      src -> convertTiming((org.hl7.fhir.r4.model.Timing) src))
+    .add(org.hl7.fhir.r4.model.Age.class,
+      src -> convertAge((org.hl7.fhir.r4.model.Age) src))
+    .add(org.hl7.fhir.r4.model.Count.class,
+      src -> convertCount((org.hl7.fhir.r4.model.Count) src))
+    .add(org.hl7.fhir.r4.model.Distance.class,
+      src -> convertDistance((org.hl7.fhir.r4.model.Distance) src))
+    .add(org.hl7.fhir.r4.model.Duration.class,
+      src -> convertDuration((org.hl7.fhir.r4.model.Duration) src))
+    .add(org.hl7.fhir.r4.model.Money.class,
+      src -> convertMoney((org.hl7.fhir.r4.model.Money) src))
+    .add(org.hl7.fhir.r4.model.SimpleQuantity.class,
+      src -> convertSimpleQuantity((org.hl7.fhir.r4.model.SimpleQuantity) src));
+
   public static org.hl7.fhir.dstu2.model.Type convertType(org.hl7.fhir.r4.model.Type src) throws FHIRException {
     if (src == null || src.isEmpty()) return null;
-    if (src instanceof org.hl7.fhir.r4.model.Base64BinaryType)
-      return convertBase64Binary((org.hl7.fhir.r4.model.Base64BinaryType) src);
-    if (src instanceof org.hl7.fhir.r4.model.BooleanType)
-      return convertBoolean((org.hl7.fhir.r4.model.BooleanType) src);
-    if (src instanceof org.hl7.fhir.r4.model.CodeType) return convertCode((org.hl7.fhir.r4.model.CodeType) src);
-    if (src instanceof org.hl7.fhir.r4.model.DateType) return convertDate((org.hl7.fhir.r4.model.DateType) src);
-    if (src instanceof org.hl7.fhir.r4.model.DateTimeType)
-      return convertDateTime((org.hl7.fhir.r4.model.DateTimeType) src);
-    if (src instanceof org.hl7.fhir.r4.model.DecimalType)
-      return convertDecimal((org.hl7.fhir.r4.model.DecimalType) src);
-    if (src instanceof org.hl7.fhir.r4.model.IdType) return convertId((org.hl7.fhir.r4.model.IdType) src);
-    if (src instanceof org.hl7.fhir.r4.model.InstantType)
-      return convertInstant((org.hl7.fhir.r4.model.InstantType) src);
-    if (src instanceof org.hl7.fhir.r4.model.MarkdownType)
-      return convertMarkdown((org.hl7.fhir.r4.model.MarkdownType) src);
-    if (src instanceof org.hl7.fhir.r4.model.OidType) return convertOid((org.hl7.fhir.r4.model.OidType) src);
-    if (src instanceof org.hl7.fhir.r4.model.PositiveIntType)
-      return convertPositiveInt((org.hl7.fhir.r4.model.PositiveIntType) src);
-    if (src instanceof org.hl7.fhir.r4.model.StringType)
-      return convertString((org.hl7.fhir.r4.model.StringType) src);
-    if (src instanceof org.hl7.fhir.r4.model.TimeType) return convertTime((org.hl7.fhir.r4.model.TimeType) src);
-    if (src instanceof org.hl7.fhir.r4.model.UnsignedIntType)
-      return convertUnsignedInt((org.hl7.fhir.r4.model.UnsignedIntType) src);
-    if (src instanceof org.hl7.fhir.r4.model.IntegerType)
-      return convertInteger((org.hl7.fhir.r4.model.IntegerType) src);
-    if (src instanceof org.hl7.fhir.r4.model.UriType) return convertUri((org.hl7.fhir.r4.model.UriType) src);
-    if (src instanceof org.hl7.fhir.r4.model.UuidType) return convertUuid((org.hl7.fhir.r4.model.UuidType) src);
-    if (src instanceof org.hl7.fhir.r4.model.Extension)
-      return convertExtension((org.hl7.fhir.r4.model.Extension) src);
-    if (src instanceof org.hl7.fhir.r4.model.Narrative)
-      return convertNarrative((org.hl7.fhir.r4.model.Narrative) src);
-    if (src instanceof org.hl7.fhir.r4.model.Annotation)
-      return convertAnnotation((org.hl7.fhir.r4.model.Annotation) src);
-    if (src instanceof org.hl7.fhir.r4.model.Attachment)
-      return convertAttachment((org.hl7.fhir.r4.model.Attachment) src);
-    if (src instanceof org.hl7.fhir.r4.model.CodeableConcept)
-      return convertCodeableConcept((org.hl7.fhir.r4.model.CodeableConcept) src);
-    if (src instanceof org.hl7.fhir.r4.model.Coding) return convertCoding((org.hl7.fhir.r4.model.Coding) src);
-    if (src instanceof org.hl7.fhir.r4.model.Identifier)
-      return convertIdentifier((org.hl7.fhir.r4.model.Identifier) src);
-    if (src instanceof org.hl7.fhir.r4.model.Period) return convertPeriod((org.hl7.fhir.r4.model.Period) src);
-    if (src instanceof org.hl7.fhir.r4.model.Quantity) return convertQuantity((org.hl7.fhir.r4.model.Quantity) src);
-    if (src instanceof org.hl7.fhir.r4.model.Range) return convertRange((org.hl7.fhir.r4.model.Range) src);
-    if (src instanceof org.hl7.fhir.r4.model.Ratio) return convertRatio((org.hl7.fhir.r4.model.Ratio) src);
-    if (src instanceof org.hl7.fhir.r4.model.Reference)
-      return convertReference((org.hl7.fhir.r4.model.Reference) src);
-    if (src instanceof org.hl7.fhir.r4.model.SampledData)
-      return convertSampledData((org.hl7.fhir.r4.model.SampledData) src);
-    if (src instanceof org.hl7.fhir.r4.model.Signature)
-      return convertSignature((org.hl7.fhir.r4.model.Signature) src);
-    if (src instanceof org.hl7.fhir.r4.model.Address) return convertAddress((org.hl7.fhir.r4.model.Address) src);
-    if (src instanceof org.hl7.fhir.r4.model.ContactPoint)
-      return convertContactPoint((org.hl7.fhir.r4.model.ContactPoint) src);
-    if (src instanceof org.hl7.fhir.r4.model.HumanName)
-      return convertHumanName((org.hl7.fhir.r4.model.HumanName) src);
-    if (src instanceof org.hl7.fhir.r4.model.Meta) return convertMeta((org.hl7.fhir.r4.model.Meta) src);
-    if (src instanceof org.hl7.fhir.r4.model.Timing) return convertTiming((org.hl7.fhir.r4.model.Timing) src);
-    if (src instanceof org.hl7.fhir.r4.model.Age) return convertAge((org.hl7.fhir.r4.model.Age) src);
-    if (src instanceof org.hl7.fhir.r4.model.Count) return convertCount((org.hl7.fhir.r4.model.Count) src);
-    if (src instanceof org.hl7.fhir.r4.model.Distance) return convertDistance((org.hl7.fhir.r4.model.Distance) src);
-    if (src instanceof org.hl7.fhir.r4.model.Duration) return convertDuration((org.hl7.fhir.r4.model.Duration) src);
-    if (src instanceof org.hl7.fhir.r4.model.Money) return convertMoney((org.hl7.fhir.r4.model.Money) src);
-    if (src instanceof org.hl7.fhir.r4.model.SimpleQuantity)
-      return convertSimpleQuantity((org.hl7.fhir.r4.model.SimpleQuantity) src);
+    Function<org.hl7.fhir.r4.model.Type, org.hl7.fhir.dstu2.model.Type> conversion = TYPES_40_10.get(src.getClass());
+    if (conversion != null)
+      return conversion.apply(src);
     throw new FHIRException("Unknown type " + src.fhirType());
   }
 
@@ -2807,237 +2851,249 @@ public class VersionConvertor_10_40 {
     return t.hasCoding() && ("http://unstats.un.org/unsd/methods/m49/m49.htm".equals(t.getCoding().get(0).getSystem()) || "urn:iso:std:iso:3166".equals(t.getCoding().get(0).getSystem()) || "https://www.usps.com/".equals(t.getCoding().get(0).getSystem()));
   }
 
+  private static final ConversionDispatcher<BiFunction<org.hl7.fhir.dstu2.model.Resource, VersionConvertorAdvisor40, org.hl7.fhir.r4.model.Resource>> RESOURCES_10_40 = new ConversionDispatcher<BiFunction<org.hl7.fhir.dstu2.model.Resource, VersionConvertorAdvisor40, org.hl7.fhir.r4.model.Resource>>()
+    .add(org.hl7.fhir.dstu2.model.Parameters.class,
+      (src, advisor) -> Parameters10_40.convertParameters((org.hl7.fhir.dstu2.model.Parameters) src))
+    .add(org.hl7.fhir.dstu2.model.Appointment.class,
+      (src, advisor) -> Appointment10_40.convertAppointment((org.hl7.fhir.dstu2.model.Appointment) src))
+    .add(org.hl7.fhir.dstu2.model.AllergyIntolerance.class,
+      (src, advisor) -> AllergyIntolerance10_40.convertAllergyIntolerance((org.hl7.fhir.dstu2.model.AllergyIntolerance) src))
+    .add(org.hl7.fhir.dstu2.model.AppointmentResponse.class,
+      (src, advisor) -> AppointmentResponse10_40.convertAppointmentResponse((org.hl7.fhir.dstu2.model.AppointmentResponse) src))
+    .add(org.hl7.fhir.dstu2.model.AuditEvent.class,
+      (src, advisor) -> AuditEvent10_40.convertAuditEvent((org.hl7.fhir.dstu2.model.AuditEvent) src))
+    .add(org.hl7.fhir.dstu2.model.Basic.class,
+      (src, advisor) -> Basic10_40.convertBasic((org.hl7.fhir.dstu2.model.Basic) src))
+    .add(org.hl7.fhir.dstu2.model.Binary.class,
+      (src, advisor) -> Binary10_40.convertBinary((org.hl7.fhir.dstu2.model.Binary) src))
+    .add(org.hl7.fhir.dstu2.model.Bundle.class,
+      (src, advisor) -> Bundle10_40.convertBundle((org.hl7.fhir.dstu2.model.Bundle) src))
+    .add(org.hl7.fhir.dstu2.model.CarePlan.class,
+      (src, advisor) -> CarePlan10_40.convertCarePlan((org.hl7.fhir.dstu2.model.CarePlan) src))
+    .add(org.hl7.fhir.dstu2.model.Communication.class,
+      (src, advisor) -> Communication10_40.convertCommunication((org.hl7.fhir.dstu2.model.Communication) src))
+    .add(org.hl7.fhir.dstu2.model.CommunicationRequest.class,
+      (src, advisor) -> CommunicationRequest10_40.convertCommunicationRequest((org.hl7.fhir.dstu2.model.CommunicationRequest) src))
+    .add(org.hl7.fhir.dstu2.model.Composition.class,
+      (src, advisor) -> Composition10_40.convertComposition((org.hl7.fhir.dstu2.model.Composition) src))
+    .add(org.hl7.fhir.dstu2.model.ConceptMap.class,
+      (src, advisor) -> ConceptMap10_40.convertConceptMap((org.hl7.fhir.dstu2.model.ConceptMap) src))
+    .add(org.hl7.fhir.dstu2.model.Condition.class,
+      (src, advisor) -> Condition10_40.convertCondition((org.hl7.fhir.dstu2.model.Condition) src))
+    .add(org.hl7.fhir.dstu2.model.Conformance.class,
+      (src, advisor) -> Conformance10_40.convertConformance((org.hl7.fhir.dstu2.model.Conformance) src))
+    .add(org.hl7.fhir.dstu2.model.DataElement.class,
+      (src, advisor) -> DataElement10_40.convertDataElement((org.hl7.fhir.dstu2.model.DataElement) src))
+    .add(org.hl7.fhir.dstu2.model.DetectedIssue.class,
+      (src, advisor) -> DetectedIssue10_40.convertDetectedIssue((org.hl7.fhir.dstu2.model.DetectedIssue) src))
+    .add(org.hl7.fhir.dstu2.model.DeviceMetric.class,
+      (src, advisor) -> DeviceMetric10_40.convertDeviceMetric((org.hl7.fhir.dstu2.model.DeviceMetric) src))
+    .add(org.hl7.fhir.dstu2.model.DeviceUseStatement.class,
+      (src, advisor) -> DeviceUseStatement10_40.convertDeviceUseStatement((org.hl7.fhir.dstu2.model.DeviceUseStatement) src))
+    .add(org.hl7.fhir.dstu2.model.DiagnosticReport.class,
+      (src, advisor) -> DiagnosticReport10_40.convertDiagnosticReport((org.hl7.fhir.dstu2.model.DiagnosticReport) src))
+    .add(org.hl7.fhir.dstu2.model.DocumentReference.class,
+      (src, advisor) -> DocumentReference10_40.convertDocumentReference((org.hl7.fhir.dstu2.model.DocumentReference) src))
+    .add(org.hl7.fhir.dstu2.model.Encounter.class,
+      (src, advisor) -> Encounter10_40.convertEncounter((org.hl7.fhir.dstu2.model.Encounter) src))
+    .add(org.hl7.fhir.dstu2.model.EnrollmentRequest.class,
+      (src, advisor) -> EnrollmentRequest10_40.convertEnrollmentRequest((org.hl7.fhir.dstu2.model.EnrollmentRequest) src))
+    .add(org.hl7.fhir.dstu2.model.EnrollmentResponse.class,
+      (src, advisor) -> EnrollmentResponse10_40.convertEnrollmentResponse((org.hl7.fhir.dstu2.model.EnrollmentResponse) src))
+    .add(org.hl7.fhir.dstu2.model.EpisodeOfCare.class,
+      (src, advisor) -> EpisodeOfCare10_40.convertEpisodeOfCare((org.hl7.fhir.dstu2.model.EpisodeOfCare) src))
+    .add(org.hl7.fhir.dstu2.model.FamilyMemberHistory.class,
+      (src, advisor) -> FamilyMemberHistory10_40.convertFamilyMemberHistory((org.hl7.fhir.dstu2.model.FamilyMemberHistory) src))
+    .add(org.hl7.fhir.dstu2.model.Flag.class,
+      (src, advisor) -> Flag10_40.convertFlag((org.hl7.fhir.dstu2.model.Flag) src))
+    .add(org.hl7.fhir.dstu2.model.Group.class,
+      (src, advisor) -> Group10_40.convertGroup((org.hl7.fhir.dstu2.model.Group) src))
+    .add(org.hl7.fhir.dstu2.model.HealthcareService.class,
+      (src, advisor) -> HealthcareService10_40.convertHealthcareService((org.hl7.fhir.dstu2.model.HealthcareService) src))
+    .add(org.hl7.fhir.dstu2.model.ImplementationGuide.class,
+      (src, advisor) -> ImplementationGuide10_40.convertImplementationGuide((org.hl7.fhir.dstu2.model.ImplementationGuide) src))
+    .add(org.hl7.fhir.dstu2.model.List_.class,
+      (src, advisor) -> List10_40.convertList((org.hl7.fhir.dstu2.model.List_) src))
+    .add(org.hl7.fhir.dstu2.model.Location.class,
+      (src, advisor) -> Location10_40.convertLocation((org.hl7.fhir.dstu2.model.Location) src))
+    .add(org.hl7.fhir.dstu2.model.MedicationDispense.class,
+      (src, advisor) -> MedicationDispense10_40.convertMedicationDispense((org.hl7.fhir.dstu2.model.MedicationDispense) src))
+    .add(org.hl7.fhir.dstu2.model.MedicationStatement.class,
+      (src, advisor) -> MedicationStatement10_40.convertMedicationStatement((org.hl7.fhir.dstu2.model.MedicationStatement) src))
+    .add(org.hl7.fhir.dstu2.model.MedicationOrder.class,
+      (src, advisor) -> MedicationRequest10_40.convertMedicationRequest((org.hl7.fhir.dstu2.model.MedicationOrder) src))
+    .add(org.hl7.fhir.dstu2.model.MessageHeader.class,
+      (src, advisor) -> MessageHeader10_40.convertMessageHeader((org.hl7.fhir.dstu2.model.MessageHeader) src))
+    .add(org.hl7.fhir.dstu2.model.NamingSystem.class,
+      (src, advisor) -> NamingSystem10_40.convertNamingSystem((org.hl7.fhir.dstu2.model.NamingSystem) src))
+    .add(org.hl7.fhir.dstu2.model.Observation.class,
+      (src, advisor) -> Observation10_40.convertObservation((org.hl7.fhir.dstu2.model.Observation) src))
+    .add(org.hl7.fhir.dstu2.model.OperationDefinition.class,
+      (src, advisor) -> OperationDefinition10_40.convertOperationDefinition((org.hl7.fhir.dstu2.model.OperationDefinition) src))
+    .add(org.hl7.fhir.dstu2.model.OperationOutcome.class,
+      (src, advisor) -> OperationOutcome10_40.convertOperationOutcome((org.hl7.fhir.dstu2.model.OperationOutcome) src))
+    .add(org.hl7.fhir.dstu2.model.Organization.class,
+      (src, advisor) -> Organization10_40.convertOrganization((org.hl7.fhir.dstu2.model.Organization) src))
+    .add(org.hl7.fhir.dstu2.model.Patient.class,
+      (src, advisor) -> Patient10_40.convertPatient((org.hl7.fhir.dstu2.model.Patient) src))
+    .add(org.hl7.fhir.dstu2.model.Person.class,
+      (src, advisor) -> Person10_40.convertPerson((org.hl7.fhir.dstu2.model.Person) src))
+    .add(org.hl7.fhir.dstu2.model.Practitioner.class,
+      (src, advisor) -> Practitioner10_40.convertPractitioner((org.hl7.fhir.dstu2.model.Practitioner) src))
+    .add(org.hl7.fhir.dstu2.model.Questionnaire.class,
+      (src, advisor) -> Questionnaire10_40.convertQuestionnaire((org.hl7.fhir.dstu2.model.Questionnaire) src))
+    .add(org.hl7.fhir.dstu2.model.QuestionnaireResponse.class,
+      (src, advisor) -> QuestionnaireResponse10_40.convertQuestionnaireResponse((org.hl7.fhir.dstu2.model.QuestionnaireResponse) src))
+    .add(org.hl7.fhir.dstu2.model.RiskAssessment.class,
+      (src, advisor) -> RiskAssessment10_40.convertRiskAssessment((org.hl7.fhir.dstu2.model.RiskAssessment) src))
+    .add(org.hl7.fhir.dstu2.model.Schedule.class,
+      (src, advisor) -> Schedule10_40.convertSchedule((org.hl7.fhir.dstu2.model.Schedule) src))
+    .add(org.hl7.fhir.dstu2.model.SearchParameter.class,
+      (src, advisor) -> SearchParameter10_40.convertSearchParameter((org.hl7.fhir.dstu2.model.SearchParameter) src))
+    .add(org.hl7.fhir.dstu2.model.Slot.class,
+      (src, advisor) -> Slot10_40.convertSlot((org.hl7.fhir.dstu2.model.Slot) src))
+    .add(org.hl7.fhir.dstu2.model.StructureDefinition.class,
+      (src, advisor) -> StructureDefinition10_40.convertStructureDefinition((org.hl7.fhir.dstu2.model.StructureDefinition) src))
+    .add(org.hl7.fhir.dstu2.model.Subscription.class,
+      (src, advisor) -> Subscription10_40.convertSubscription((org.hl7.fhir.dstu2.model.Subscription) src))
+    .add(org.hl7.fhir.dstu2.model.Substance.class,
+      (src, advisor) -> Substance10_40.convertSubstance((org.hl7.fhir.dstu2.model.Substance) src))
+    .add(org.hl7.fhir.dstu2.model.SupplyDelivery.class,
+      (src, advisor) -> SupplyDelivery10_40.convertSupplyDelivery((org.hl7.fhir.dstu2.model.SupplyDelivery) src))
+    .add(org.hl7.fhir.dstu2.model.SupplyRequest.class,
+      (src, advisor) -> SupplyRequest10_40.convertSupplyRequest((org.hl7.fhir.dstu2.model.SupplyRequest) src))
+    .add(org.hl7.fhir.dstu2.model.TestScript.class,
+      (src, advisor) -> TestScript10_40.convertTestScript((org.hl7.fhir.dstu2.model.TestScript) src))
+    .add(org.hl7.fhir.dstu2.model.ValueSet.class,
+      (src, advisor) -> ValueSet10_40.convertValueSet((org.hl7.fhir.dstu2.model.ValueSet) src, advisor))
+    .add(org.hl7.fhir.dstu2.model.Procedure.class,
+      (src, advisor) -> Procedure10_40.convertProcedure((org.hl7.fhir.dstu2.model.Procedure) src))
+    .add(org.hl7.fhir.dstu2.model.Medication.class,
+      (src, advisor) -> Medication10_40.convertMedication((org.hl7.fhir.dstu2.model.Medication) src));
+
   public static org.hl7.fhir.r4.model.Resource convertResource(org.hl7.fhir.dstu2.model.Resource src, VersionConvertorAdvisor40 advisor) throws FHIRException {
     if (src == null || src.isEmpty()) return null;
-    if (src instanceof org.hl7.fhir.dstu2.model.Parameters)
-      return Parameters10_40.convertParameters((org.hl7.fhir.dstu2.model.Parameters) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Appointment)
-      return Appointment10_40.convertAppointment((org.hl7.fhir.dstu2.model.Appointment) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.AllergyIntolerance)
-      return AllergyIntolerance10_40.convertAllergyIntolerance((org.hl7.fhir.dstu2.model.AllergyIntolerance) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.AppointmentResponse)
-      return AppointmentResponse10_40.convertAppointmentResponse((org.hl7.fhir.dstu2.model.AppointmentResponse) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.AuditEvent)
-      return AuditEvent10_40.convertAuditEvent((org.hl7.fhir.dstu2.model.AuditEvent) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Basic)
-      return Basic10_40.convertBasic((org.hl7.fhir.dstu2.model.Basic) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Binary)
-      return Binary10_40.convertBinary((org.hl7.fhir.dstu2.model.Binary) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Bundle)
-      return Bundle10_40.convertBundle((org.hl7.fhir.dstu2.model.Bundle) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.CarePlan)
-      return CarePlan10_40.convertCarePlan((org.hl7.fhir.dstu2.model.CarePlan) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Communication)
-      return Communication10_40.convertCommunication((org.hl7.fhir.dstu2.model.Communication) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.CommunicationRequest)
-      return CommunicationRequest10_40.convertCommunicationRequest((org.hl7.fhir.dstu2.model.CommunicationRequest) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Composition)
-      return Composition10_40.convertComposition((org.hl7.fhir.dstu2.model.Composition) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.ConceptMap)
-      return ConceptMap10_40.convertConceptMap((org.hl7.fhir.dstu2.model.ConceptMap) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Condition)
-      return Condition10_40.convertCondition((org.hl7.fhir.dstu2.model.Condition) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Conformance)
-      return Conformance10_40.convertConformance((org.hl7.fhir.dstu2.model.Conformance) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.DataElement)
-      return DataElement10_40.convertDataElement((org.hl7.fhir.dstu2.model.DataElement) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.DetectedIssue)
-      return DetectedIssue10_40.convertDetectedIssue((org.hl7.fhir.dstu2.model.DetectedIssue) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.DeviceMetric)
-      return DeviceMetric10_40.convertDeviceMetric((org.hl7.fhir.dstu2.model.DeviceMetric) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.DeviceUseStatement)
-      return DeviceUseStatement10_40.convertDeviceUseStatement((org.hl7.fhir.dstu2.model.DeviceUseStatement) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.DiagnosticReport)
-      return DiagnosticReport10_40.convertDiagnosticReport((org.hl7.fhir.dstu2.model.DiagnosticReport) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.DocumentReference)
-      return DocumentReference10_40.convertDocumentReference((org.hl7.fhir.dstu2.model.DocumentReference) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Encounter)
-      return Encounter10_40.convertEncounter((org.hl7.fhir.dstu2.model.Encounter) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.EnrollmentRequest)
-      return EnrollmentRequest10_40.convertEnrollmentRequest((org.hl7.fhir.dstu2.model.EnrollmentRequest) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.EnrollmentResponse)
-      return EnrollmentResponse10_40.convertEnrollmentResponse((org.hl7.fhir.dstu2.model.EnrollmentResponse) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.EpisodeOfCare)
-      return EpisodeOfCare10_40.convertEpisodeOfCare((org.hl7.fhir.dstu2.model.EpisodeOfCare) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.FamilyMemberHistory)
-      return FamilyMemberHistory10_40.convertFamilyMemberHistory((org.hl7.fhir.dstu2.model.FamilyMemberHistory) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Flag)
-      return Flag10_40.convertFlag((org.hl7.fhir.dstu2.model.Flag) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Group)
-      return Group10_40.convertGroup((org.hl7.fhir.dstu2.model.Group) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.HealthcareService)
-      return HealthcareService10_40.convertHealthcareService((org.hl7.fhir.dstu2.model.HealthcareService) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.ImplementationGuide)
-      return ImplementationGuide10_40.convertImplementationGuide((org.hl7.fhir.dstu2.model.ImplementationGuide) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.List_)
-      return List10_40.convertList((org.hl7.fhir.dstu2.model.List_) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Location)
-      return Location10_40.convertLocation((org.hl7.fhir.dstu2.model.Location) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.MedicationDispense)
-      return MedicationDispense10_40.convertMedicationDispense((org.hl7.fhir.dstu2.model.MedicationDispense) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.MedicationStatement)
-      return MedicationStatement10_40.convertMedicationStatement((org.hl7.fhir.dstu2.model.MedicationStatement) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.MedicationOrder)
-      return MedicationRequest10_40.convertMedicationRequest((org.hl7.fhir.dstu2.model.MedicationOrder) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.MessageHeader)
-      return MessageHeader10_40.convertMessageHeader((org.hl7.fhir.dstu2.model.MessageHeader) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.NamingSystem)
-      return NamingSystem10_40.convertNamingSystem((org.hl7.fhir.dstu2.model.NamingSystem) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Observation)
-      return Observation10_40.convertObservation((org.hl7.fhir.dstu2.model.Observation) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.OperationDefinition)
-      return OperationDefinition10_40.convertOperationDefinition((org.hl7.fhir.dstu2.model.OperationDefinition) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.OperationOutcome)
-      return OperationOutcome10_40.convertOperationOutcome((org.hl7.fhir.dstu2.model.OperationOutcome) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Organization)
-      return Organization10_40.convertOrganization((org.hl7.fhir.dstu2.model.Organization) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Patient)
-      return Patient10_40.convertPatient((org.hl7.fhir.dstu2.model.Patient) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Person)
-      return Person10_40.convertPerson((org.hl7.fhir.dstu2.model.Person) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Practitioner)
-      return Practitioner10_40.convertPractitioner((org.hl7.fhir.dstu2.model.Practitioner) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Questionnaire)
-      return Questionnaire10_40.convertQuestionnaire((org.hl7.fhir.dstu2.model.Questionnaire) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.QuestionnaireResponse)
-      return QuestionnaireResponse10_40.convertQuestionnaireResponse((org.hl7.fhir.dstu2.model.QuestionnaireResponse) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.RiskAssessment)
-      return RiskAssessment10_40.convertRiskAssessment((org.hl7.fhir.dstu2.model.RiskAssessment) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Schedule)
-      return Schedule10_40.convertSchedule((org.hl7.fhir.dstu2.model.Schedule) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.SearchParameter)
-      return SearchParameter10_40.convertSearchParameter((org.hl7.fhir.dstu2.model.SearchParameter) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Slot)
-      return Slot10_40.convertSlot((org.hl7.fhir.dstu2.model.Slot) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.StructureDefinition)
-      return StructureDefinition10_40.convertStructureDefinition((org.hl7.fhir.dstu2.model.StructureDefinition) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Subscription)
-      return Subscription10_40.convertSubscription((org.hl7.fhir.dstu2.model.Subscription) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Substance)
-      return Substance10_40.convertSubstance((org.hl7.fhir.dstu2.model.Substance) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.SupplyDelivery)
-      return SupplyDelivery10_40.convertSupplyDelivery((org.hl7.fhir.dstu2.model.SupplyDelivery) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.SupplyRequest)
-      return SupplyRequest10_40.convertSupplyRequest((org.hl7.fhir.dstu2.model.SupplyRequest) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.TestScript)
-      return TestScript10_40.convertTestScript((org.hl7.fhir.dstu2.model.TestScript) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.ValueSet)
-      return ValueSet10_40.convertValueSet((org.hl7.fhir.dstu2.model.ValueSet) src, advisor);
-    if (src instanceof org.hl7.fhir.dstu2.model.Procedure)
-      return Procedure10_40.convertProcedure((org.hl7.fhir.dstu2.model.Procedure) src);
-    if (src instanceof org.hl7.fhir.dstu2.model.Medication)
-      return Medication10_40.convertMedication((org.hl7.fhir.dstu2.model.Medication) src);
+    BiFunction<org.hl7.fhir.dstu2.model.Resource, VersionConvertorAdvisor40, org.hl7.fhir.r4.model.Resource> conversion = RESOURCES_10_40.get(src.getClass());
+    if (conversion != null)
+      return conversion.apply(src, advisor);
     throw new FHIRException("Unknown resource " + src.fhirType());
   }
 
+  private static final ConversionDispatcher<BiFunction<org.hl7.fhir.r4.model.Resource, VersionConvertorAdvisor40, org.hl7.fhir.dstu2.model.Resource>> RESOURCES_40_10 = new ConversionDispatcher<BiFunction<org.hl7.fhir.r4.model.Resource, VersionConvertorAdvisor40, org.hl7.fhir.dstu2.model.Resource>>()
+    .add(org.hl7.fhir.r4.model.Parameters.class,
+      (src, advisor) -> Parameters10_40.convertParameters((org.hl7.fhir.r4.model.Parameters) src))
+    .add(org.hl7.fhir.r4.model.Appointment.class,
+      (src, advisor) -> Appointment10_40.convertAppointment((org.hl7.fhir.r4.model.Appointment) src))
+    .add(org.hl7.fhir.r4.model.AppointmentResponse.class,
+      (src, advisor) -> AppointmentResponse10_40.convertAppointmentResponse((org.hl7.fhir.r4.model.AppointmentResponse) src))
+    .add(org.hl7.fhir.r4.model.AuditEvent.class,
+      (src, advisor) -> AuditEvent10_40.convertAuditEvent((org.hl7.fhir.r4.model.AuditEvent) src))
+    .add(org.hl7.fhir.r4.model.Basic.class,
+      (src, advisor) -> Basic10_40.convertBasic((org.hl7.fhir.r4.model.Basic) src))
+    .add(org.hl7.fhir.r4.model.Binary.class,
+      (src, advisor) -> Binary10_40.convertBinary((org.hl7.fhir.r4.model.Binary) src))
+    .add(org.hl7.fhir.r4.model.Bundle.class,
+      (src, advisor) -> Bundle10_40.convertBundle((org.hl7.fhir.r4.model.Bundle) src, advisor))
+    .add(org.hl7.fhir.r4.model.CarePlan.class,
+      (src, advisor) -> CarePlan10_40.convertCarePlan((org.hl7.fhir.r4.model.CarePlan) src))
+    .add(org.hl7.fhir.r4.model.Communication.class,
+      (src, advisor) -> Communication10_40.convertCommunication((org.hl7.fhir.r4.model.Communication) src))
+    .add(org.hl7.fhir.r4.model.CommunicationRequest.class,
+      (src, advisor) -> CommunicationRequest10_40.convertCommunicationRequest((org.hl7.fhir.r4.model.CommunicationRequest) src))
+    .add(org.hl7.fhir.r4.model.Composition.class,
+      (src, advisor) -> Composition10_40.convertComposition((org.hl7.fhir.r4.model.Composition) src))
+    .add(org.hl7.fhir.r4.model.ConceptMap.class,
+      (src, advisor) -> ConceptMap10_40.convertConceptMap((org.hl7.fhir.r4.model.ConceptMap) src))
+    .add(org.hl7.fhir.r4.model.Condition.class,
+      (src, advisor) -> Condition10_40.convertCondition((org.hl7.fhir.r4.model.Condition) src))
+    .add(org.hl7.fhir.r4.model.CapabilityStatement.class,
+      (src, advisor) -> Conformance10_40.convertConformance((org.hl7.fhir.r4.model.CapabilityStatement) src))
+    .add(org.hl7.fhir.r4.model.DetectedIssue.class,
+      (src, advisor) -> DetectedIssue10_40.convertDetectedIssue((org.hl7.fhir.r4.model.DetectedIssue) src))
+    .add(org.hl7.fhir.r4.model.DeviceMetric.class,
+      (src, advisor) -> DeviceMetric10_40.convertDeviceMetric((org.hl7.fhir.r4.model.DeviceMetric) src))
+    .add(org.hl7.fhir.r4.model.DeviceUseStatement.class,
+      (src, advisor) -> DeviceUseStatement10_40.convertDeviceUseStatement((org.hl7.fhir.r4.model.DeviceUseStatement) src))
+    .add(org.hl7.fhir.r4.model.DiagnosticReport.class,
+      (src, advisor) -> DiagnosticReport10_40.convertDiagnosticReport((org.hl7.fhir.r4.model.DiagnosticReport) src))
+    .add(org.hl7.fhir.r4.model.DocumentReference.class,
+      (src, advisor) -> DocumentReference10_40.convertDocumentReference((org.hl7.fhir.r4.model.DocumentReference) src))
+    .add(org.hl7.fhir.r4.model.Encounter.class,
+      (src, advisor) -> Encounter10_40.convertEncounter((org.hl7.fhir.r4.model.Encounter) src))
+    .add(org.hl7.fhir.r4.model.EnrollmentRequest.class,
+      (src, advisor) -> EnrollmentRequest10_40.convertEnrollmentRequest((org.hl7.fhir.r4.model.EnrollmentRequest) src))
+    .add(org.hl7.fhir.r4.model.EnrollmentResponse.class,
+      (src, advisor) -> EnrollmentResponse10_40.convertEnrollmentResponse((org.hl7.fhir.r4.model.EnrollmentResponse) src))
+    .add(org.hl7.fhir.r4.model.EpisodeOfCare.class,
+      (src, advisor) -> EpisodeOfCare10_40.convertEpisodeOfCare((org.hl7.fhir.r4.model.EpisodeOfCare) src))
+    .add(org.hl7.fhir.r4.model.FamilyMemberHistory.class,
+      (src, advisor) -> FamilyMemberHistory10_40.convertFamilyMemberHistory((org.hl7.fhir.r4.model.FamilyMemberHistory) src))
+    .add(org.hl7.fhir.r4.model.Flag.class,
+      (src, advisor) -> Flag10_40.convertFlag((org.hl7.fhir.r4.model.Flag) src))
+    .add(org.hl7.fhir.r4.model.Group.class,
+      (src, advisor) -> Group10_40.convertGroup((org.hl7.fhir.r4.model.Group) src))
+    .add(org.hl7.fhir.r4.model.HealthcareService.class,
+      (src, advisor) -> HealthcareService10_40.convertHealthcareService((org.hl7.fhir.r4.model.HealthcareService) src))
+    .add(org.hl7.fhir.r4.model.ImplementationGuide.class,
+      (src, advisor) -> ImplementationGuide10_40.convertImplementationGuide((org.hl7.fhir.r4.model.ImplementationGuide) src))
+    .add(org.hl7.fhir.r4.model.ListResource.class,
+      (src, advisor) -> List10_40.convertList((org.hl7.fhir.r4.model.ListResource) src))
+    .add(org.hl7.fhir.r4.model.Location.class,
+      (src, advisor) -> Location10_40.convertLocation((org.hl7.fhir.r4.model.Location) src))
+    .add(org.hl7.fhir.r4.model.MedicationDispense.class,
+      (src, advisor) -> MedicationDispense10_40.convertMedicationDispense((org.hl7.fhir.r4.model.MedicationDispense) src))
+    .add(org.hl7.fhir.r4.model.MedicationStatement.class,
+      (src, advisor) -> MedicationStatement10_40.convertMedicationStatement((org.hl7.fhir.r4.model.MedicationStatement) src))
+    .add(org.hl7.fhir.r4.model.MessageHeader.class,
+      (src, advisor) -> MessageHeader10_40.convertMessageHeader((org.hl7.fhir.r4.model.MessageHeader) src))
+    .add(org.hl7.fhir.r4.model.NamingSystem.class,
+      (src, advisor) -> NamingSystem10_40.convertNamingSystem((org.hl7.fhir.r4.model.NamingSystem) src))
+    .add(org.hl7.fhir.r4.model.Observation.class,
+      (src, advisor) -> Observation10_40.convertObservation((org.hl7.fhir.r4.model.Observation) src))
+    .add(org.hl7.fhir.r4.model.OperationDefinition.class,
+      (src, advisor) -> OperationDefinition10_40.convertOperationDefinition((org.hl7.fhir.r4.model.OperationDefinition) src))
+    .add(org.hl7.fhir.r4.model.OperationOutcome.class,
+      (src, advisor) -> OperationOutcome10_40.convertOperationOutcome((org.hl7.fhir.r4.model.OperationOutcome) src))
+    .add(org.hl7.fhir.r4.model.Organization.class,
+      (src, advisor) -> Organization10_40.convertOrganization((org.hl7.fhir.r4.model.Organization) src))
+    .add(org.hl7.fhir.r4.model.Patient.class,
+      (src, advisor) -> Patient10_40.convertPatient((org.hl7.fhir.r4.model.Patient) src))
+    .add(org.hl7.fhir.r4.model.Person.class,
+      (src, advisor) -> Person10_40.convertPerson((org.hl7.fhir.r4.model.Person) src))
+    .add(org.hl7.fhir.r4.model.Practitioner.class,
+      (src, advisor) -> Practitioner10_40.convertPractitioner((org.hl7.fhir.r4.model.Practitioner) src))
+    .add(org.hl7.fhir.r4.model.Questionnaire.class,
+      (src, advisor) -> Questionnaire10_40.convertQuestionnaire((org.hl7.fhir.r4.model.Questionnaire) src))
+    .add(org.hl7.fhir.r4.model.QuestionnaireResponse.class,
+      (src, advisor) -> QuestionnaireResponse10_40.convertQuestionnaireResponse((org.hl7.fhir.r4.model.QuestionnaireResponse) src))
+    .add(org.hl7.fhir.r4.model.RiskAssessment.class,
+      (src, advisor) -> RiskAssessment10_40.convertRiskAssessment((org.hl7.fhir.r4.model.RiskAssessment) src))
+    .add(org.hl7.fhir.r4.model.Schedule.class,
+      (src, advisor) -> Schedule10_40.convertSchedule((org.hl7.fhir.r4.model.Schedule) src))
+    .add(org.hl7.fhir.r4.model.SearchParameter.class,
+      (src, advisor) -> SearchParameter10_40.convertSearchParameter((org.hl7.fhir.r4.model.SearchParameter) src))
+    .add(org.hl7.fhir.r4.model.Slot.class,
+      (src, advisor) -> Slot10_40.convertSlot((org.hl7.fhir.r4.model.Slot) src))
+    .add(org.hl7.fhir.r4.model.StructureDefinition.class,
+      (src, advisor) -> StructureDefinition10_40.convertStructureDefinition((org.hl7.fhir.r4.model.StructureDefinition) src))
+    .add(org.hl7.fhir.r4.model.Subscription.class,
+      (src, advisor) -> Subscription10_40.convertSubscription((org.hl7.fhir.r4.model.Subscription) src))
+    .add(org.hl7.fhir.r4.model.Substance.class,
+      (src, advisor) -> Substance10_40.convertSubstance((org.hl7.fhir.r4.model.Substance) src))
+    .add(org.hl7.fhir.r4.model.SupplyDelivery.class,
+      (src, advisor) -> SupplyDelivery10_40.convertSupplyDelivery((org.hl7.fhir.r4.model.SupplyDelivery) src))
+    .add(org.hl7.fhir.r4.model.SupplyRequest.class,
+      (src, advisor) -> SupplyRequest10_40.convertSupplyRequest((org.hl7.fhir.r4.model.SupplyRequest) src))
+    .add(org.hl7.fhir.r4.model.TestScript.class,
+      (src, advisor) -> TestScript10_40.convertTestScript((org.hl7.fhir.r4.model.TestScript) src))
+    .add(org.hl7.fhir.r4.model.ValueSet.class,
+      (src, advisor) -> ValueSet10_40.convertValueSet((org.hl7.fhir.r4.model.ValueSet) src, advisor));
+
   public static org.hl7.fhir.dstu2.model.Resource convertResource(org.hl7.fhir.r4.model.Resource src, VersionConvertorAdvisor40 advisor) throws FHIRException {
     if (src == null || src.isEmpty()) return null;
-    if (src instanceof org.hl7.fhir.r4.model.Parameters)
-      return Parameters10_40.convertParameters((org.hl7.fhir.r4.model.Parameters) src);
-    if (src instanceof org.hl7.fhir.r4.model.Appointment)
-      return Appointment10_40.convertAppointment((org.hl7.fhir.r4.model.Appointment) src);
-    if (src instanceof org.hl7.fhir.r4.model.AppointmentResponse)
-      return AppointmentResponse10_40.convertAppointmentResponse((org.hl7.fhir.r4.model.AppointmentResponse) src);
-    if (src instanceof org.hl7.fhir.r4.model.AuditEvent)
-      return AuditEvent10_40.convertAuditEvent((org.hl7.fhir.r4.model.AuditEvent) src);
-    if (src instanceof org.hl7.fhir.r4.model.Basic)
-      return Basic10_40.convertBasic((org.hl7.fhir.r4.model.Basic) src);
-    if (src instanceof org.hl7.fhir.r4.model.Binary)
-      return Binary10_40.convertBinary((org.hl7.fhir.r4.model.Binary) src);
-    if (src instanceof org.hl7.fhir.r4.model.Bundle)
-      return Bundle10_40.convertBundle((org.hl7.fhir.r4.model.Bundle) src, advisor);
-    if (src instanceof org.hl7.fhir.r4.model.CarePlan)
-      return CarePlan10_40.convertCarePlan((org.hl7.fhir.r4.model.CarePlan) src);
-    if (src instanceof org.hl7.fhir.r4.model.Communication)
-      return Communication10_40.convertCommunication((org.hl7.fhir.r4.model.Communication) src);
-    if (src instanceof org.hl7.fhir.r4.model.CommunicationRequest)
-      return CommunicationRequest10_40.convertCommunicationRequest((org.hl7.fhir.r4.model.CommunicationRequest) src);
-    if (src instanceof org.hl7.fhir.r4.model.Composition)
-      return Composition10_40.convertComposition((org.hl7.fhir.r4.model.Composition) src);
-    if (src instanceof org.hl7.fhir.r4.model.ConceptMap)
-      return ConceptMap10_40.convertConceptMap((org.hl7.fhir.r4.model.ConceptMap) src);
-    if (src instanceof org.hl7.fhir.r4.model.Condition)
-      return Condition10_40.convertCondition((org.hl7.fhir.r4.model.Condition) src);
-    if (src instanceof org.hl7.fhir.r4.model.CapabilityStatement)
-      return Conformance10_40.convertConformance((org.hl7.fhir.r4.model.CapabilityStatement) src);
-    if (src instanceof org.hl7.fhir.r4.model.DetectedIssue)
-      return DetectedIssue10_40.convertDetectedIssue((org.hl7.fhir.r4.model.DetectedIssue) src);
-    if (src instanceof org.hl7.fhir.r4.model.DeviceMetric)
-      return DeviceMetric10_40.convertDeviceMetric((org.hl7.fhir.r4.model.DeviceMetric) src);
-    if (src instanceof org.hl7.fhir.r4.model.DeviceUseStatement)
-      return DeviceUseStatement10_40.convertDeviceUseStatement((org.hl7.fhir.r4.model.DeviceUseStatement) src);
-    if (src instanceof org.hl7.fhir.r4.model.DiagnosticReport)
-      return DiagnosticReport10_40.convertDiagnosticReport((org.hl7.fhir.r4.model.DiagnosticReport) src);
-    if (src instanceof org.hl7.fhir.r4.model.DocumentReference)
-      return DocumentReference10_40.convertDocumentReference((org.hl7.fhir.r4.model.DocumentReference) src);
-    if (src instanceof org.hl7.fhir.r4.model.Encounter)
-      return Encounter10_40.convertEncounter((org.hl7.fhir.r4.model.Encounter) src);
-    if (src instanceof org.hl7.fhir.r4.model.EnrollmentRequest)
-      return EnrollmentRequest10_40.convertEnrollmentRequest((org.hl7.fhir.r4.model.EnrollmentRequest) src);
-    if (src instanceof org.hl7.fhir.r4.model.EnrollmentResponse)
-      return EnrollmentResponse10_40.convertEnrollmentResponse((org.hl7.fhir.r4.model.EnrollmentResponse) src);
-    if (src instanceof org.hl7.fhir.r4.model.EpisodeOfCare)
-      return EpisodeOfCare10_40.convertEpisodeOfCare((org.hl7.fhir.r4.model.EpisodeOfCare) src);
-    if (src instanceof org.hl7.fhir.r4.model.FamilyMemberHistory)
-      return FamilyMemberHistory10_40.convertFamilyMemberHistory((org.hl7.fhir.r4.model.FamilyMemberHistory) src);
-    if (src instanceof org.hl7.fhir.r4.model.Flag) return Flag10_40.convertFlag((org.hl7.fhir.r4.model.Flag) src);
-    if (src instanceof org.hl7.fhir.r4.model.Group)
-      return Group10_40.convertGroup((org.hl7.fhir.r4.model.Group) src);
-    if (src instanceof org.hl7.fhir.r4.model.HealthcareService)
-      return HealthcareService10_40.convertHealthcareService((org.hl7.fhir.r4.model.HealthcareService) src);
-    if (src instanceof org.hl7.fhir.r4.model.ImplementationGuide)
-      return ImplementationGuide10_40.convertImplementationGuide((org.hl7.fhir.r4.model.ImplementationGuide) src);
-    if (src instanceof org.hl7.fhir.r4.model.ListResource)
-      return List10_40.convertList((org.hl7.fhir.r4.model.ListResource) src);
-    if (src instanceof org.hl7.fhir.r4.model.Location)
-      return Location10_40.convertLocation((org.hl7.fhir.r4.model.Location) src);
-    if (src instanceof org.hl7.fhir.r4.model.MedicationDispense)
-      return MedicationDispense10_40.convertMedicationDispense((org.hl7.fhir.r4.model.MedicationDispense) src);
-    if (src instanceof org.hl7.fhir.r4.model.MedicationStatement)
-      return MedicationStatement10_40.convertMedicationStatement((org.hl7.fhir.r4.model.MedicationStatement) src);
-    if (src instanceof org.hl7.fhir.r4.model.MessageHeader)
-      return MessageHeader10_40.convertMessageHeader((org.hl7.fhir.r4.model.MessageHeader) src);
-    if (src instanceof org.hl7.fhir.r4.model.NamingSystem)
-      return NamingSystem10_40.convertNamingSystem((org.hl7.fhir.r4.model.NamingSystem) src);
-    if (src instanceof org.hl7.fhir.r4.model.Observation)
-      return Observation10_40.convertObservation((org.hl7.fhir.r4.model.Observation) src);
-    if (src instanceof org.hl7.fhir.r4.model.OperationDefinition)
-      return OperationDefinition10_40.convertOperationDefinition((org.hl7.fhir.r4.model.OperationDefinition) src);
-    if (src instanceof org.hl7.fhir.r4.model.OperationOutcome)
-      return OperationOutcome10_40.convertOperationOutcome((org.hl7.fhir.r4.model.OperationOutcome) src);
-    if (src instanceof org.hl7.fhir.r4.model.Organization)
-      return Organization10_40.convertOrganization((org.hl7.fhir.r4.model.Organization) src);
-    if (src instanceof org.hl7.fhir.r4.model.Patient)
-      return Patient10_40.convertPatient((org.hl7.fhir.r4.model.Patient) src);
-    if (src instanceof org.hl7.fhir.r4.model.Person)
-      return Person10_40.convertPerson((org.hl7.fhir.r4.model.Person) src);
-    if (src instanceof org.hl7.fhir.r4.model.Practitioner)
-      return Practitioner10_40.convertPractitioner((org.hl7.fhir.r4.model.Practitioner) src);
-    if (src instanceof org.hl7.fhir.r4.model.Questionnaire)
-      return Questionnaire10_40.convertQuestionnaire((org.hl7.fhir.r4.model.Questionnaire) src);
-    if (src instanceof org.hl7.fhir.r4.model.QuestionnaireResponse)
-      return QuestionnaireResponse10_40.convertQuestionnaireResponse((org.hl7.fhir.r4.model.QuestionnaireResponse) src);
-    if (src instanceof org.hl7.fhir.r4.model.RiskAssessment)
-      return RiskAssessment10_40.convertRiskAssessment((org.hl7.fhir.r4.model.RiskAssessment) src);
-    if (src instanceof org.hl7.fhir.r4.model.Schedule)
-      return Schedule10_40.convertSchedule((org.hl7.fhir.r4.model.Schedule) src);
-    if (src instanceof org.hl7.fhir.r4.model.SearchParameter)
-      return SearchParameter10_40.convertSearchParameter((org.hl7.fhir.r4.model.SearchParameter) src);
-    if (src instanceof org.hl7.fhir.r4.model.Slot) return Slot10_40.convertSlot((org.hl7.fhir.r4.model.Slot) src);
-    if (src instanceof org.hl7.fhir.r4.model.StructureDefinition)
-      return StructureDefinition10_40.convertStructureDefinition((org.hl7.fhir.r4.model.StructureDefinition) src);
-    if (src instanceof org.hl7.fhir.r4.model.Subscription)
-      return Subscription10_40.convertSubscription((org.hl7.fhir.r4.model.Subscription) src);
-    if (src instanceof org.hl7.fhir.r4.model.Substance)
-      return Substance10_40.convertSubstance((org.hl7.fhir.r4.model.Substance) src);
-    if (src instanceof org.hl7.fhir.r4.model.SupplyDelivery)
-      return SupplyDelivery10_40.convertSupplyDelivery((org.hl7.fhir.r4.model.SupplyDelivery) src);
-    if (src instanceof org.hl7.fhir.r4.model.SupplyRequest)
-      return SupplyRequest10_40.convertSupplyRequest((org.hl7.fhir.r4.model.SupplyRequest) src);
-    if (src instanceof org.hl7.fhir.r4.model.TestScript)
-      return TestScript10_40.convertTestScript((org.hl7.fhir.r4.model.TestScript) src);
-    if (src instanceof org.hl7.fhir.r4.model.ValueSet)
-      return ValueSet10_40.convertValueSet((org.hl7.fhir.r4.model.ValueSet) src, advisor);
+    BiFunction<org.hl7.fhir.r4.model.Resource, VersionConvertorAdvisor40, org.hl7.fhir.dstu2.model.Resource> conversion = RESOURCES_40_10.get(src.getClass());
+    if (conversion != null)
+      return conversion.apply(src, advisor);
     throw new FHIRException("Unknown resource " + src.fhirType());
   }
 
@@ -13,6 +13,7 @@ import org.hl7.fhir.utilities.Utilities;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /*
@@ -2264,150 +2265,187 @@ public class VersionConvertor_14_50 {
     return tgt;
   }
 
+  private static final ConversionDispatcher<Function<org.hl7.fhir.dstu2016may.model.Type, org.hl7.fhir.r5.model.DataType>> TYPES_14_50 = new ConversionDispatcher<Function<org.hl7.fhir.dstu2016may.model.Type, org.hl7.fhir.r5.model.DataType>>()
+    .add(org.hl7.fhir.dstu2016may.model.Base64BinaryType.class,
+      src -> convertBase64Binary((org.hl7.fhir.dstu2016may.model.Base64BinaryType) src))
+    .add(org.hl7.fhir.dstu2016may.model.BooleanType.class,
+      src -> convertBoolean((org.hl7.fhir.dstu2016may.model.BooleanType) src))
+    .add(org.hl7.fhir.dstu2016may.model.CodeType.class,
+      src -> convertCode((org.hl7.fhir.dstu2016may.model.CodeType) src))
+    .add(org.hl7.fhir.dstu2016may.model.DateType.class,
+      src -> convertDate((org.hl7.fhir.dstu2016may.model.DateType) src))
+    .add(org.hl7.fhir.dstu2016may.model.DateTimeType.class,
+      src -> convertDateTime((org.hl7.fhir.dstu2016may.model.DateTimeType) src))
+    .add(org.hl7.fhir.dstu2016may.model.DecimalType.class,
+      src -> convertDecimal((org.hl7.fhir.dstu2016may.model.DecimalType) src))
+    .add(org.hl7.fhir.dstu2016may.model.IdType.class,
+      src -> convertId((org.hl7.fhir.dstu2016may.model.IdType) src))
+    .add(org.hl7.fhir.dstu2016may.model.InstantType.class,
+      src -> convertInstant((org.hl7.fhir.dstu2016may.model.InstantType) src))
+    .add(org.hl7.fhir.dstu2016may.model.MarkdownType.class,
+      src -> convertMarkdown((org.hl7.fhir.dstu2016may.model.MarkdownType) src))
+    .add(org.hl7.fhir.dstu2016may.model.OidType.class,
+      src -> convertOid((org.hl7.fhir.dstu2016may.model.OidType) src))
+    .add(org.hl7.fhir.dstu2016may.model.PositiveIntType.class,
+      src -> convertPositiveInt((org.hl7.fhir.dstu2016may.model.PositiveIntType) src))
+    .add(org.hl7.fhir.dstu2016may.model.StringType.class,
+      src -> convertString((org.hl7.fhir.dstu2016may.model.StringType) src))
+    .add(org.hl7.fhir.dstu2016may.model.TimeType.class,
+      src -> convertTime((org.hl7.fhir.dstu2016may.model.TimeType) src))
+    .add(org.hl7.fhir.dstu2016may.model.UnsignedIntType.class,
+      src -> convertUnsignedInt((org.hl7.fhir.dstu2016may.model.UnsignedIntType) src))
+    .add(org.hl7.fhir.dstu2016may.model.IntegerType.class,
+      src -> convertInteger((org.hl7.fhir.dstu2016may.model.IntegerType) src))
+    .add(org.hl7.fhir.dstu2016may.model.UriType.class,
+      src -> convertUri((org.hl7.fhir.dstu2016may.model.UriType) src))
+    .add(org.hl7.fhir.dstu2016may.model.UuidType.class,
+      src -> convertUuid((org.hl7.fhir.dstu2016may.model.UuidType) src))
+    .add(org.hl7.fhir.dstu2016may.model.Extension.class,
+      src -> convertExtension((org.hl7.fhir.dstu2016may.model.Extension) src))
+    .add(org.hl7.fhir.dstu2016may.model.Narrative.class,
+      src -> convertNarrative((org.hl7.fhir.dstu2016may.model.Narrative) src))
+    .add(org.hl7.fhir.dstu2016may.model.Age.class,
+      src -> convertAge((org.hl7.fhir.dstu2016may.model.Age) src))
+    .add(org.hl7.fhir.dstu2016may.model.Annotation.class,
+      src -> convertAnnotation((org.hl7.fhir.dstu2016may.model.Annotation) src))
+    .add(org.hl7.fhir.dstu2016may.model.Attachment.class,
+      src -> convertAttachment((org.hl7.fhir.dstu2016may.model.Attachment) src))
+    .add(org.hl7.fhir.dstu2016may.model.CodeableConcept.class,
+      src -> convertCodeableConcept((org.hl7.fhir.dstu2016may.model.CodeableConcept) src))
+    .add(org.hl7.fhir.dstu2016may.model.Coding.class,
+      src -> convertCoding((org.hl7.fhir.dstu2016may.model.Coding) src))
+    .add(org.hl7.fhir.dstu2016may.model.Count.class,
+      src -> convertCount((org.hl7.fhir.dstu2016may.model.Count) src))
+    .add(org.hl7.fhir.dstu2016may.model.Distance.class,
+      src -> convertDistance((org.hl7.fhir.dstu2016may.model.Distance) src))
+    .add(org.hl7.fhir.dstu2016may.model.Duration.class,
+      src -> convertDuration((org.hl7.fhir.dstu2016may.model.Duration) src))
+    .add(org.hl7.fhir.dstu2016may.model.Identifier.class,
+      src -> convertIdentifier((org.hl7.fhir.dstu2016may.model.Identifier) src))
+    .add(org.hl7.fhir.dstu2016may.model.Money.class,
+      src -> convertMoney((org.hl7.fhir.dstu2016may.model.Money) src))
+    .add(org.hl7.fhir.dstu2016may.model.Period.class,
+      src -> convertPeriod((org.hl7.fhir.dstu2016may.model.Period) src))
+    .add(org.hl7.fhir.dstu2016may.model.Quantity.class,
+      src -> convertQuantity((org.hl7.fhir.dstu2016may.model.Quantity) src))
+    .add(org.hl7.fhir.dstu2016may.model.Range.class,
+      src -> convertRange((org.hl7.fhir.dstu2016may.model.Range) src))
+    .add(org.hl7.fhir.dstu2016may.model.Ratio.class,
+      src -> convertRatio((org.hl7.fhir.dstu2016may.model.Ratio) src))
+    .add(org.hl7.fhir.dstu2016may.model.Reference.class,
+      src -> convertReference((org.hl7.fhir.dstu2016may.model.Reference) src))
+    .add(org.hl7.fhir.dstu2016may.model.SampledData.class,
+      src -> convertSampledData((org.hl7.fhir.dstu2016may.model.SampledData) src))
+    .add(org.hl7.fhir.dstu2016may.model.Signature.class,
+      src -> convertSignature((org.hl7.fhir.dstu2016may.model.Signature) src))
+    .add(org.hl7.fhir.dstu2016may.model.Address.class,
+      src -> convertAddress((org.hl7.fhir.dstu2016may.model.Address) src))
+    .add(org.hl7.fhir.dstu2016may.model.ContactPoint.class,
+      src -> convertContactPoint((org.hl7.fhir.dstu2016may.model.ContactPoint) src))
+    .add(org.hl7.fhir.dstu2016may.model.HumanName.class,
+      src -> convertHumanName((org.hl7.fhir.dstu2016may.model.HumanName) src))
+    .add(org.hl7.fhir.dstu2016may.model.Meta.class,
+      src -> convertMeta((org.hl7.fhir.dstu2016may.model.Meta) src))
+    .add(org.hl7.fhir.dstu2016may.model.Timing.class,
+      src -> convertTiming((org.hl7.fhir.dstu2016may.model.Timing) src));
+
   public static org.hl7.fhir.r5.model.DataType convertType(org.hl7.fhir.dstu2016may.model.Type src) throws FHIRException {
     if (src == null || src.isEmpty()) return null;
-    if (src instanceof org.hl7.fhir.dstu2016may.model.Base64BinaryType)
-      return convertBase64Binary((org.hl7.fhir.dstu2016may.model.Base64BinaryType) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.BooleanType)
-      return convertBoolean((org.hl7.fhir.dstu2016may.model.BooleanType) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.CodeType)
-      return convertCode((org.hl7.fhir.dstu2016may.model.CodeType) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.DateType)
-      return convertDate((org.hl7.fhir.dstu2016may.model.DateType) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.DateTimeType)
-      return convertDateTime((org.hl7.fhir.dstu2016may.model.DateTimeType) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.DecimalType)
-      return convertDecimal((org.hl7.fhir.dstu2016may.model.DecimalType) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.IdType)
-      return convertId((org.hl7.fhir.dstu2016may.model.IdType) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.InstantType)
-      return convertInstant((org.hl7.fhir.dstu2016may.model.InstantType) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.MarkdownType)
-      return convertMarkdown((org.hl7.fhir.dstu2016may.model.MarkdownType) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.OidType)
-      return convertOid((org.hl7.fhir.dstu2016may.model.OidType) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.PositiveIntType)
-      return convertPositiveInt((org.hl7.fhir.dstu2016may.model.PositiveIntType) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.StringType)
-      return convertString((org.hl7.fhir.dstu2016may.model.StringType) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.TimeType)
-      return convertTime((org.hl7.fhir.dstu2016may.model.TimeType) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.UnsignedIntType)
-      return convertUnsignedInt((org.hl7.fhir.dstu2016may.model.UnsignedIntType) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.IntegerType)
-      return convertInteger((org.hl7.fhir.dstu2016may.model.IntegerType) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.UriType)
-      return convertUri((org.hl7.fhir.dstu2016may.model.UriType) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.UuidType)
-      return convertUuid((org.hl7.fhir.dstu2016may.model.UuidType) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.Extension)
-      return convertExtension((org.hl7.fhir.dstu2016may.model.Extension) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.Narrative)
-      return convertNarrative((org.hl7.fhir.dstu2016may.model.Narrative) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.Age) return convertAge((org.hl7.fhir.dstu2016may.model.Age) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.Annotation)
-      return convertAnnotation((org.hl7.fhir.dstu2016may.model.Annotation) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.Attachment)
-      return convertAttachment((org.hl7.fhir.dstu2016may.model.Attachment) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.CodeableConcept)
-      return convertCodeableConcept((org.hl7.fhir.dstu2016may.model.CodeableConcept) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.Coding)
-      return convertCoding((org.hl7.fhir.dstu2016may.model.Coding) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.Count)
-      return convertCount((org.hl7.fhir.dstu2016may.model.Count) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.Distance)
-      return convertDistance((org.hl7.fhir.dstu2016may.model.Distance) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.Duration)
-      return convertDuration((org.hl7.fhir.dstu2016may.model.Duration) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.Identifier)
-      return convertIdentifier((org.hl7.fhir.dstu2016may.model.Identifier) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.Money)
-      return convertMoney((org.hl7.fhir.dstu2016may.model.Money) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.Period)
-      return convertPeriod((org.hl7.fhir.dstu2016may.model.Period) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.Quantity)
-      return convertQuantity((org.hl7.fhir.dstu2016may.model.Quantity) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.Range)
-      return convertRange((org.hl7.fhir.dstu2016may.model.Range) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.Ratio)
-      return convertRatio((org.hl7.fhir.dstu2016may.model.Ratio) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.Reference)
-      return convertReference((org.hl7.fhir.dstu2016may.model.Reference) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.SampledData)
-      return convertSampledData((org.hl7.fhir.dstu2016may.model.SampledData) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.Signature)
-      return convertSignature((org.hl7.fhir.dstu2016may.model.Signature) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.Address)
-      return convertAddress((org.hl7.fhir.dstu2016may.model.Address) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.ContactPoint)
-      return convertContactPoint((org.hl7.fhir.dstu2016may.model.ContactPoint) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.HumanName)
-      return convertHumanName((org.hl7.fhir.dstu2016may.model.HumanName) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.Meta)
-      return convertMeta((org.hl7.fhir.dstu2016may.model.Meta) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.Timing)
-      return convertTiming((org.hl7.fhir.dstu2016may.model.Timing) src);
+    Function<org.hl7.fhir.dstu2016may.model.Type, org.hl7.fhir.r5.model.DataType> conversion = TYPES_14_50.get(src.getClass());
+    if (conversion != null)
+      return conversion.apply(src);
     throw new FHIRException("Unknown type " + src.fhirType());
   }
 
+  private static final ConversionDispatcher<Function<org.hl7.fhir.r5.model.DataType, org.hl7.fhir.dstu2016may.model.Type>> TYPES_50_14 = new ConversionDispatcher<Function<org.hl7.fhir.r5.model.DataType, org.hl7.fhir.dstu2016may.model.Type>>()
+    .add(org.hl7.fhir.r5.model.Base64BinaryType.class,
+      src -> convertBase64Binary((org.hl7.fhir.r5.model.Base64BinaryType) src))
+    .add(org.hl7.fhir.r5.model.BooleanType.class,
+      src -> convertBoolean((org.hl7.fhir.r5.model.BooleanType) src))
+    .add(org.hl7.fhir.r5.model.CodeType.class,
+      src -> convertCode((org.hl7.fhir.r5.model.CodeType) src))
+    .add(org.hl7.fhir.r5.model.DateType.class,
+      src -> convertDate((org.hl7.fhir.r5.model.DateType) src))
+    .add(org.hl7.fhir.r5.model.DateTimeType.class,
+      src -> convertDateTime((org.hl7.fhir.r5.model.DateTimeType) src))
+    .add(org.hl7.fhir.r5.model.DecimalType.class,
+      src -> convertDecimal((org.hl7.fhir.r5.model.DecimalType) src))
+    .add(org.hl7.fhir.r5.model.IdType.class,
+      src -> convertId((org.hl7.fhir.r5.model.IdType) src))
+    .add(org.hl7.fhir.r5.model.InstantType.class,
+      src -> convertInstant((org.hl7.fhir.r5.model.InstantType) src))
+    .add(org.hl7.fhir.r5.model.MarkdownType.class,
+      src -> convertMarkdown((org.hl7.fhir.r5.model.MarkdownType) src))
+    .add(org.hl7.fhir.r5.model.OidType.class,
+      src -> convertOid((org.hl7.fhir.r5.model.OidType) src))
+    .add(org.hl7.fhir.r5.model.PositiveIntType.class,
+      src -> convertPositiveInt((org.hl7.fhir.r5.model.PositiveIntType) src))
+    .add(org.hl7.fhir.r5.model.StringType.class,
+      src -> convertString((org.hl7.fhir.r5.model.StringType) src))
+    .add(org.hl7.fhir.r5.model.TimeType.class,
+      src -> convertTime((org.hl7.fhir.r5.model.TimeType) src))
+    .add(org.hl7.fhir.r5.model.UnsignedIntType.class,
+      src -> convertUnsignedInt((org.hl7.fhir.r5.model.UnsignedIntType) src))
+    .add(org.hl7.fhir.r5.model.IntegerType.class,
+      src -> convertInteger((org.hl7.fhir.r5.model.IntegerType) src))
+    .add(org.hl7.fhir.r5.model.UriType.class,
+      src -> convertUri((org.hl7.fhir.r5.model.UriType) src))
+    .add(org.hl7.fhir.r5.model.UuidType.class,
+      src -> convertUuid((org.hl7.fhir.r5.model.UuidType) src))
+    .add(org.hl7.fhir.r5.model.Extension.class,
+      src -> convertExtension((org.hl7.fhir.r5.model.Extension) src))
+    .add(org.hl7.fhir.r5.model.Narrative.class,
+      src -> convertNarrative((org.hl7.fhir.r5.model.Narrative) src))
+    .add(org.hl7.fhir.r5.model.Age.class,
+      src -> convertAge((org.hl7.fhir.r5.model.Age) src))
+    .add(org.hl7.fhir.r5.model.Annotation.class,
+      src -> convertAnnotation((org.hl7.fhir.r5.model.Annotation) src))
+    .add(org.hl7.fhir.r5.model.Attachment.class,
+      src -> convertAttachment((org.hl7.fhir.r5.model.Attachment) src))
+    .add(org.hl7.fhir.r5.model.CodeableConcept.class,
+      src -> convertCodeableConcept((org.hl7.fhir.r5.model.CodeableConcept) src))
+    .add(org.hl7.fhir.r5.model.Coding.class,
+      src -> convertCoding((org.hl7.fhir.r5.model.Coding) src))
+    .add(org.hl7.fhir.r5.model.Count.class,
+      src -> convertCount((org.hl7.fhir.r5.model.Count) src))
+    .add(org.hl7.fhir.r5.model.Distance.class,
+      src -> convertDistance((org.hl7.fhir.r5.model.Distance) src))
+    .add(org.hl7.fhir.r5.model.Duration.class,
+      src -> convertDuration((org.hl7.fhir.r5.model.Duration) src))
+    .add(org.hl7.fhir.r5.model.Identifier.class,
+      src -> convertIdentifier((org.hl7.fhir.r5.model.Identifier) src))
+    .add(org.hl7.fhir.r5.model.Money.class,
+      src -> convertMoney((org.hl7.fhir.r5.model.Money) src))
+    .add(org.hl7.fhir.r5.model.Period.class,
+      src -> convertPeriod((org.hl7.fhir.r5.model.Period) src))
+    .add(org.hl7.fhir.r5.model.Quantity.class,
+      src -> convertQuantity((org.hl7.fhir.r5.model.Quantity) src))
+    .add(org.hl7.fhir.r5.model.Range.class,
+      src -> convertRange((org.hl7.fhir.r5.model.Range) src))
+    .add(org.hl7.fhir.r5.model.Ratio.class,
+      src -> convertRatio((org.hl7.fhir.r5.model.Ratio) src))
+    .add(org.hl7.fhir.r5.model.Reference.class,
+      src -> convertReference((org.hl7.fhir.r5.model.Reference) src))
+    .add(org.hl7.fhir.r5.model.SampledData.class,
+      src -> convertSampledData((org.hl7.fhir.r5.model.SampledData) src))
+    .add(org.hl7.fhir.r5.model.Signature.class,
+      src -> convertSignature((org.hl7.fhir.r5.model.Signature) src))
+    .add(org.hl7.fhir.r5.model.Address.class,
+      src -> convertAddress((org.hl7.fhir.r5.model.Address) src))
+    .add(org.hl7.fhir.r5.model.ContactPoint.class,
+      src -> convertContactPoint((org.hl7.fhir.r5.model.ContactPoint) src))
+    .add(org.hl7.fhir.r5.model.HumanName.class,
+      src -> convertHumanName((org.hl7.fhir.r5.model.HumanName) src))
+    .add(org.hl7.fhir.r5.model.Meta.class,
+      src -> convertMeta((org.hl7.fhir.r5.model.Meta) src))
+    .add(org.hl7.fhir.r5.model.Timing.class,
+      src -> convertTiming((org.hl7.fhir.r5.model.Timing) src));
+
   public static org.hl7.fhir.dstu2016may.model.Type convertType(org.hl7.fhir.r5.model.DataType src) throws FHIRException {
     if (src == null || src.isEmpty()) return null;
-    if (src instanceof org.hl7.fhir.r5.model.Base64BinaryType)
-      return convertBase64Binary((org.hl7.fhir.r5.model.Base64BinaryType) src);
-    if (src instanceof org.hl7.fhir.r5.model.BooleanType)
-      return convertBoolean((org.hl7.fhir.r5.model.BooleanType) src);
-    if (src instanceof org.hl7.fhir.r5.model.CodeType) return convertCode((org.hl7.fhir.r5.model.CodeType) src);
-    if (src instanceof org.hl7.fhir.r5.model.DateType) return convertDate((org.hl7.fhir.r5.model.DateType) src);
-    if (src instanceof org.hl7.fhir.r5.model.DateTimeType)
-      return convertDateTime((org.hl7.fhir.r5.model.DateTimeType) src);
-    if (src instanceof org.hl7.fhir.r5.model.DecimalType)
-      return convertDecimal((org.hl7.fhir.r5.model.DecimalType) src);
-    if (src instanceof org.hl7.fhir.r5.model.IdType) return convertId((org.hl7.fhir.r5.model.IdType) src);
-    if (src instanceof org.hl7.fhir.r5.model.InstantType)
-      return convertInstant((org.hl7.fhir.r5.model.InstantType) src);
-    if (src instanceof org.hl7.fhir.r5.model.MarkdownType)
-      return convertMarkdown((org.hl7.fhir.r5.model.MarkdownType) src);
-    if (src instanceof org.hl7.fhir.r5.model.OidType) return convertOid((org.hl7.fhir.r5.model.OidType) src);
-    if (src instanceof org.hl7.fhir.r5.model.PositiveIntType)
-      return convertPositiveInt((org.hl7.fhir.r5.model.PositiveIntType) src);
-    if (src instanceof org.hl7.fhir.r5.model.StringType) return convertString((org.hl7.fhir.r5.model.StringType) src);
-    if (src instanceof org.hl7.fhir.r5.model.TimeType) return convertTime((org.hl7.fhir.r5.model.TimeType) src);
-    if (src instanceof org.hl7.fhir.r5.model.UnsignedIntType)
-      return convertUnsignedInt((org.hl7.fhir.r5.model.UnsignedIntType) src);
-    if (src instanceof org.hl7.fhir.r5.model.IntegerType)
-      return convertInteger((org.hl7.fhir.r5.model.IntegerType) src);
-    if (src instanceof org.hl7.fhir.r5.model.UriType) return convertUri((org.hl7.fhir.r5.model.UriType) src);
-    if (src instanceof org.hl7.fhir.r5.model.UuidType) return convertUuid((org.hl7.fhir.r5.model.UuidType) src);
-    if (src instanceof org.hl7.fhir.r5.model.Extension) return convertExtension((org.hl7.fhir.r5.model.Extension) src);
-    if (src instanceof org.hl7.fhir.r5.model.Narrative) return convertNarrative((org.hl7.fhir.r5.model.Narrative) src);
-    if (src instanceof org.hl7.fhir.r5.model.Age) return convertAge((org.hl7.fhir.r5.model.Age) src);
-    if (src instanceof org.hl7.fhir.r5.model.Annotation)
-      return convertAnnotation((org.hl7.fhir.r5.model.Annotation) src);
-    if (src instanceof org.hl7.fhir.r5.model.Attachment)
-      return convertAttachment((org.hl7.fhir.r5.model.Attachment) src);
-    if (src instanceof org.hl7.fhir.r5.model.CodeableConcept)
-      return convertCodeableConcept((org.hl7.fhir.r5.model.CodeableConcept) src);
-    if (src instanceof org.hl7.fhir.r5.model.Coding) return convertCoding((org.hl7.fhir.r5.model.Coding) src);
-    if (src instanceof org.hl7.fhir.r5.model.Count) return convertCount((org.hl7.fhir.r5.model.Count) src);
-    if (src instanceof org.hl7.fhir.r5.model.Distance) return convertDistance((org.hl7.fhir.r5.model.Distance) src);
-    if (src instanceof org.hl7.fhir.r5.model.Duration) return convertDuration((org.hl7.fhir.r5.model.Duration) src);
-    if (src instanceof org.hl7.fhir.r5.model.Identifier)
-      return convertIdentifier((org.hl7.fhir.r5.model.Identifier) src);
-    if (src instanceof org.hl7.fhir.r5.model.Money) return convertMoney((org.hl7.fhir.r5.model.Money) src);
-    if (src instanceof org.hl7.fhir.r5.model.Period) return convertPeriod((org.hl7.fhir.r5.model.Period) src);
-    if (src instanceof org.hl7.fhir.r5.model.Quantity) return convertQuantity((org.hl7.fhir.r5.model.Quantity) src);
-    if (src instanceof org.hl7.fhir.r5.model.Range) return convertRange((org.hl7.fhir.r5.model.Range) src);
-    if (src instanceof org.hl7.fhir.r5.model.Ratio) return convertRatio((org.hl7.fhir.r5.model.Ratio) src);
-    if (src instanceof org.hl7.fhir.r5.model.Reference) return convertReference((org.hl7.fhir.r5.model.Reference) src);
-    if (src instanceof org.hl7.fhir.r5.model.SampledData)
-      return convertSampledData((org.hl7.fhir.r5.model.SampledData) src);
-    if (src instanceof org.hl7.fhir.r5.model.Signature) return convertSignature((org.hl7.fhir.r5.model.Signature) src);
-    if (src instanceof org.hl7.fhir.r5.model.Address) return convertAddress((org.hl7.fhir.r5.model.Address) src);
-    if (src instanceof org.hl7.fhir.r5.model.ContactPoint)
-      return convertContactPoint((org.hl7.fhir.r5.model.ContactPoint) src);
-    if (src instanceof org.hl7.fhir.r5.model.HumanName) return convertHumanName((org.hl7.fhir.r5.model.HumanName) src);
-    if (src instanceof org.hl7.fhir.r5.model.Meta) return convertMeta((org.hl7.fhir.r5.model.Meta) src);
-    if (src instanceof org.hl7.fhir.r5.model.Timing) return convertTiming((org.hl7.fhir.r5.model.Timing) src);
+    Function<org.hl7.fhir.r5.model.DataType, org.hl7.fhir.dstu2016may.model.Type> conversion = TYPES_50_14.get(src.getClass());
+    if (conversion != null)
+      return conversion.apply(src);
     throw new FHIRException("Unknown type " + src.fhirType());
   }
 
@@ -2678,79 +2716,89 @@ public class VersionConvertor_14_50 {
     return tgt;
   }
 
+  private static final ConversionDispatcher<Function<org.hl7.fhir.dstu2016may.model.Resource, org.hl7.fhir.r5.model.Resource>> RESOURCES_14_50 = new ConversionDispatcher<Function<org.hl7.fhir.dstu2016may.model.Resource, org.hl7.fhir.r5.model.Resource>>()
+    .add(org.hl7.fhir.dstu2016may.model.Parameters.class,
+      src -> Parameters14_50.convertParameters((org.hl7.fhir.dstu2016may.model.Parameters) src))
+    .add(org.hl7.fhir.dstu2016may.model.Bundle.class,
+      src -> Bundle14_50.convertBundle((org.hl7.fhir.dstu2016may.model.Bundle) src))
+    .add(org.hl7.fhir.dstu2016may.model.CodeSystem.class,
+      src -> CodeSystem14_50.convertCodeSystem((org.hl7.fhir.dstu2016may.model.CodeSystem) src))
+    .add(org.hl7.fhir.dstu2016may.model.CompartmentDefinition.class,
+      src -> CompartmentDefinition14_50.convertCompartmentDefinition((org.hl7.fhir.dstu2016may.model.CompartmentDefinition) src))
+    .add(org.hl7.fhir.dstu2016may.model.ConceptMap.class,
+      src -> ConceptMap14_50.convertConceptMap((org.hl7.fhir.dstu2016may.model.ConceptMap) src))
+    .add(org.hl7.fhir.dstu2016may.model.Conformance.class,
+      src -> Conformance14_50.convertConformance((org.hl7.fhir.dstu2016may.model.Conformance) src))
+    .add(org.hl7.fhir.dstu2016may.model.DataElement.class,
+      src -> DataElement14_50.convertDataElement((org.hl7.fhir.dstu2016may.model.DataElement) src))
+    .add(org.hl7.fhir.dstu2016may.model.ImplementationGuide.class,
+      src -> ImplementationGuide14_50.convertImplementationGuide((org.hl7.fhir.dstu2016may.model.ImplementationGuide) src))
+    .add(org.hl7.fhir.dstu2016may.model.NamingSystem.class,
+      src -> NamingSystem14_50.convertNamingSystem((org.hl7.fhir.dstu2016may.model.NamingSystem) src))
+    .add(org.hl7.fhir.dstu2016may.model.OperationDefinition.class,
+      src -> OperationDefinition14_50.convertOperationDefinition((org.hl7.fhir.dstu2016may.model.OperationDefinition) src))
+    .add(org.hl7.fhir.dstu2016may.model.OperationOutcome.class,
+      src -> OperationOutcome14_50.convertOperationOutcome((org.hl7.fhir.dstu2016may.model.OperationOutcome) src))
+    .add(org.hl7.fhir.dstu2016may.model.Questionnaire.class,
+      src -> Questionnaire14_50.convertQuestionnaire((org.hl7.fhir.dstu2016may.model.Questionnaire) src))
+    .add(org.hl7.fhir.dstu2016may.model.QuestionnaireResponse.class,
+      src -> QuestionnaireResponse14_50.convertQuestionnaireResponse((org.hl7.fhir.dstu2016may.model.QuestionnaireResponse) src))
+    .add(org.hl7.fhir.dstu2016may.model.SearchParameter.class,
+      src -> SearchParameter14_50.convertSearchParameter((org.hl7.fhir.dstu2016may.model.SearchParameter) src))
+    .add(org.hl7.fhir.dstu2016may.model.StructureDefinition.class,
+      src -> StructureDefinition14_50.convertStructureDefinition((org.hl7.fhir.dstu2016may.model.StructureDefinition) src))
+    .add(org.hl7.fhir.dstu2016may.model.StructureMap.class,
+      src -> StructureMap14_50.convertStructureMap((org.hl7.fhir.dstu2016may.model.StructureMap) src))
+    .add(org.hl7.fhir.dstu2016may.model.ValueSet.class,
+      src -> ValueSet14_50.convertValueSet((org.hl7.fhir.dstu2016may.model.ValueSet) src));
+
   public static org.hl7.fhir.r5.model.Resource convertResource(org.hl7.fhir.dstu2016may.model.Resource src) throws FHIRException {
     if (src == null || src.isEmpty()) return null;
-    if (src instanceof org.hl7.fhir.dstu2016may.model.Parameters)
-      return Parameters14_50.convertParameters((org.hl7.fhir.dstu2016may.model.Parameters) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.Bundle)
-      return Bundle14_50.convertBundle((org.hl7.fhir.dstu2016may.model.Bundle) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.CodeSystem)
-      return CodeSystem14_50.convertCodeSystem((org.hl7.fhir.dstu2016may.model.CodeSystem) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.CompartmentDefinition)
-      return CompartmentDefinition14_50.convertCompartmentDefinition((org.hl7.fhir.dstu2016may.model.CompartmentDefinition) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.ConceptMap)
-      return ConceptMap14_50.convertConceptMap((org.hl7.fhir.dstu2016may.model.ConceptMap) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.Conformance)
-      return Conformance14_50.convertConformance((org.hl7.fhir.dstu2016may.model.Conformance) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.DataElement)
-      return DataElement14_50.convertDataElement((org.hl7.fhir.dstu2016may.model.DataElement) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.ImplementationGuide)
-      return ImplementationGuide14_50.convertImplementationGuide((org.hl7.fhir.dstu2016may.model.ImplementationGuide) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.NamingSystem)
-      return NamingSystem14_50.convertNamingSystem((org.hl7.fhir.dstu2016may.model.NamingSystem) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.OperationDefinition)
-      return OperationDefinition14_50.convertOperationDefinition((org.hl7.fhir.dstu2016may.model.OperationDefinition) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.OperationOutcome)
-      return OperationOutcome14_50.convertOperationOutcome((org.hl7.fhir.dstu2016may.model.OperationOutcome) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.Questionnaire)
-      return Questionnaire14_50.convertQuestionnaire((org.hl7.fhir.dstu2016may.model.Questionnaire) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.QuestionnaireResponse)
-      return QuestionnaireResponse14_50.convertQuestionnaireResponse((org.hl7.fhir.dstu2016may.model.QuestionnaireResponse) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.SearchParameter)
-      return SearchParameter14_50.convertSearchParameter((org.hl7.fhir.dstu2016may.model.SearchParameter) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.StructureDefinition)
-      return StructureDefinition14_50.convertStructureDefinition((org.hl7.fhir.dstu2016may.model.StructureDefinition) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.StructureMap)
-      return StructureMap14_50.convertStructureMap((org.hl7.fhir.dstu2016may.model.StructureMap) src);
-    if (src instanceof org.hl7.fhir.dstu2016may.model.ValueSet)
-      return ValueSet14_50.convertValueSet((org.hl7.fhir.dstu2016may.model.ValueSet) src);
+    Function<org.hl7.fhir.dstu2016may.model.Resource, org.hl7.fhir.r5.model.Resource> conversion = RESOURCES_14_50.get(src.getClass());
+    if (conversion != null)
+      return conversion.apply(src);
     throw new FHIRException("Unknown resource " + src.fhirType());
   }
 
+  private static final ConversionDispatcher<Function<org.hl7.fhir.r5.model.Resource, org.hl7.fhir.dstu2016may.model.Resource>> RESOURCES_50_14 = new ConversionDispatcher<Function<org.hl7.fhir.r5.model.Resource, org.hl7.fhir.dstu2016may.model.Resource>>()
+    .add(org.hl7.fhir.r5.model.Parameters.class,
+      src -> Parameters14_50.convertParameters((org.hl7.fhir.r5.model.Parameters) src))
+    .add(org.hl7.fhir.r5.model.Bundle.class,
+      src -> Bundle14_50.convertBundle((org.hl7.fhir.r5.model.Bundle) src))
+    .add(org.hl7.fhir.r5.model.CodeSystem.class,
+      src -> CodeSystem14_50.convertCodeSystem((org.hl7.fhir.r5.model.CodeSystem) src))
+    .add(org.hl7.fhir.r5.model.CompartmentDefinition.class,
+      src -> CompartmentDefinition14_50.convertCompartmentDefinition((org.hl7.fhir.r5.model.CompartmentDefinition) src))
+    .add(org.hl7.fhir.r5.model.ConceptMap.class,
+      src -> ConceptMap14_50.convertConceptMap((org.hl7.fhir.r5.model.ConceptMap) src))
+    .add(org.hl7.fhir.r5.model.CapabilityStatement.class,
+      src -> Conformance14_50.convertConformance((org.hl7.fhir.r5.model.CapabilityStatement) src))
+    .add(org.hl7.fhir.r5.model.ImplementationGuide.class,
+      src -> ImplementationGuide14_50.convertImplementationGuide((org.hl7.fhir.r5.model.ImplementationGuide) src))
+    .add(org.hl7.fhir.r5.model.NamingSystem.class,
+      src -> NamingSystem14_50.convertNamingSystem((org.hl7.fhir.r5.model.NamingSystem) src))
+    .add(org.hl7.fhir.r5.model.OperationDefinition.class,
+      src -> OperationDefinition14_50.convertOperationDefinition((org.hl7.fhir.r5.model.OperationDefinition) src))
+    .add(org.hl7.fhir.r5.model.OperationOutcome.class,
+      src -> OperationOutcome14_50.convertOperationOutcome((org.hl7.fhir.r5.model.OperationOutcome) src))
+    .add(org.hl7.fhir.r5.model.Questionnaire.class,
+      src -> Questionnaire14_50.convertQuestionnaire((org.hl7.fhir.r5.model.Questionnaire) src))
+    .add(org.hl7.fhir.r5.model.QuestionnaireResponse.class,
+      src -> QuestionnaireResponse14_50.convertQuestionnaireResponse((org.hl7.fhir.r5.model.QuestionnaireResponse) src))
+    .add(org.hl7.fhir.r5.model.SearchParameter.class,
+      src -> SearchParameter14_50.convertSearchParameter((org.hl7.fhir.r5.model.SearchParameter) src))
+    .add(org.hl7.fhir.r5.model.StructureDefinition.class,
+      src -> StructureDefinition14_50.convertStructureDefinition((org.hl7.fhir.r5.model.StructureDefinition) src))
+    .add(org.hl7.fhir.r5.model.StructureMap.class,
+      src -> StructureMap14_50.convertStructureMap((org.hl7.fhir.r5.model.StructureMap) src))
+    .add(org.hl7.fhir.r5.model.ValueSet.class,
+      src -> ValueSet14_50.convertValueSet((org.hl7.fhir.r5.model.ValueSet) src));
+
   public static org.hl7.fhir.dstu2016may.model.Resource convertResource(org.hl7.fhir.r5.model.Resource src) throws FHIRException {
     if (src == null || src.isEmpty()) return null;
-    if (src instanceof org.hl7.fhir.r5.model.Parameters)
-      return Parameters14_50.convertParameters((org.hl7.fhir.r5.model.Parameters) src);
-    if (src instanceof org.hl7.fhir.r5.model.Bundle)
-      return Bundle14_50.convertBundle((org.hl7.fhir.r5.model.Bundle) src);
-    if (src instanceof org.hl7.fhir.r5.model.CodeSystem)
-      return CodeSystem14_50.convertCodeSystem((org.hl7.fhir.r5.model.CodeSystem) src);
-    if (src instanceof org.hl7.fhir.r5.model.CompartmentDefinition)
-      return CompartmentDefinition14_50.convertCompartmentDefinition((org.hl7.fhir.r5.model.CompartmentDefinition) src);
-    if (src instanceof org.hl7.fhir.r5.model.ConceptMap)
-      return ConceptMap14_50.convertConceptMap((org.hl7.fhir.r5.model.ConceptMap) src);
-    if (src instanceof org.hl7.fhir.r5.model.CapabilityStatement)
-      return Conformance14_50.convertConformance((org.hl7.fhir.r5.model.CapabilityStatement) src);
-    if (src instanceof org.hl7.fhir.r5.model.ImplementationGuide)
-      return ImplementationGuide14_50.convertImplementationGuide((org.hl7.fhir.r5.model.ImplementationGuide) src);
-    if (src instanceof org.hl7.fhir.r5.model.NamingSystem)
-      return NamingSystem14_50.convertNamingSystem((org.hl7.fhir.r5.model.NamingSystem) src);
-    if (src instanceof org.hl7.fhir.r5.model.OperationDefinition)
-      return OperationDefinition14_50.convertOperationDefinition((org.hl7.fhir.r5.model.OperationDefinition) src);
-    if (src instanceof org.hl7.fhir.r5.model.OperationOutcome)
-      return OperationOutcome14_50.convertOperationOutcome((org.hl7.fhir.r5.model.OperationOutcome) src);
-    if (src instanceof org.hl7.fhir.r5.model.Questionnaire)
-      return Questionnaire14_50.convertQuestionnaire((org.hl7.fhir.r5.model.Questionnaire) src);
-    if (src instanceof org.hl7.fhir.r5.model.QuestionnaireResponse)
-      return QuestionnaireResponse14_50.convertQuestionnaireResponse((org.hl7.fhir.r5.model.QuestionnaireResponse) src);
-    if (src instanceof org.hl7.fhir.r5.model.SearchParameter)
-      return SearchParameter14_50.convertSearchParameter((org.hl7.fhir.r5.model.SearchParameter) src);
-    if (src instanceof org.hl7.fhir.r5.model.StructureDefinition)
-      return StructureDefinition14_50.convertStructureDefinition((org.hl7.fhir.r5.model.StructureDefinition) src);
-    if (src instanceof org.hl7.fhir.r5.model.StructureMap)
-      return StructureMap14_50.convertStructureMap((org.hl7.fhir.r5.model.StructureMap) src);
-    if (src instanceof org.hl7.fhir.r5.model.ValueSet)
-      return ValueSet14_50.convertValueSet((org.hl7.fhir.r5.model.ValueSet) src);
+    Function<org.hl7.fhir.r5.model.Resource, org.hl7.fhir.dstu2016may.model.Resource> conversion = RESOURCES_50_14.get(src.getClass());
+    if (conversion != null)
+      return conversion.apply(src);
     throw new FHIRException("Unknown resource " + src.fhirType());
   }
 
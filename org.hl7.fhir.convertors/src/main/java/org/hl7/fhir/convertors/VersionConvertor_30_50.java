@@ -9,6 +9,7 @@ import org.hl7.fhir.utilities.Utilities;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /*
@@ -3041,170 +3042,225 @@ public class VersionConvertor_30_50 {
     return tgt;
   }
 
+  private static final ConversionDispatcher<Function<org.hl7.fhir.dstu3.model.Type, org.hl7.fhir.r5.model.DataType>> TYPES_30_50 = new ConversionDispatcher<Function<org.hl7.fhir.dstu3.model.Type, org.hl7.fhir.r5.model.DataType>>()
+    .add(org.hl7.fhir.dstu3.model.Base64BinaryType.class,
+      src -> convertBase64Binary((org.hl7.fhir.dstu3.model.Base64BinaryType) src))
+    .add(org.hl7.fhir.dstu3.model.BooleanType.class,
+      src -> convertBoolean((org.hl7.fhir.dstu3.model.BooleanType) src))
+    .add(org.hl7.fhir.dstu3.model.CodeType.class,
+      src -> convertCode((org.hl7.fhir.dstu3.model.CodeType) src))
+    .add(org.hl7.fhir.dstu3.model.DateType.class,
+      src -> convertDate((org.hl7.fhir.dstu3.model.DateType) src))
+    .add(org.hl7.fhir.dstu3.model.DateTimeType.class,
+      src -> convertDateTime((org.hl7.fhir.dstu3.model.DateTimeType) src))
+    .add(org.hl7.fhir.dstu3.model.DecimalType.class,
+      src -> convertDecimal((org.hl7.fhir.dstu3.model.DecimalType) src))
+    .add(org.hl7.fhir.dstu3.model.IdType.class,
+      src -> convertId((org.hl7.fhir.dstu3.model.IdType) src))
+    .add(org.hl7.fhir.dstu3.model.InstantType.class,
+      src -> convertInstant((org.hl7.fhir.dstu3.model.InstantType) src))
+    .add(org.hl7.fhir.dstu3.model.PositiveIntType.class,
+      src -> convertPositiveInt((org.hl7.fhir.dstu3.model.PositiveIntType) src))
+    .add(org.hl7.fhir.dstu3.model.UnsignedIntType.class,
+      src -> convertUnsignedInt((org.hl7.fhir.dstu3.model.UnsignedIntType) src))
+    .add(org.hl7.fhir.dstu3.model.IntegerType.class,
+      src -> convertInteger((org.hl7.fhir.dstu3.model.IntegerType) src))
+    .add(org.hl7.fhir.dstu3.model.MarkdownType.class,
+      src -> convertMarkdown((org.hl7.fhir.dstu3.model.MarkdownType) src))
+    .add(org.hl7.fhir.dstu3.model.OidType.class,
+      src -> convertOid((org.hl7.fhir.dstu3.model.OidType) src))
+    .add(org.hl7.fhir.dstu3.model.StringType.class,
+      src -> convertString((org.hl7.fhir.dstu3.model.StringType) src))
+    .add(org.hl7.fhir.dstu3.model.TimeType.class,
+      src -> convertTime((org.hl7.fhir.dstu3.model.TimeType) src))
+    .add(org.hl7.fhir.dstu3.model.UriType.class,
+      src -> convertUri((org.hl7.fhir.dstu3.model.UriType) src))
+    .add(org.hl7.fhir.dstu3.model.UuidType.class,
+      src -> convertUuid((org.hl7.fhir.dstu3.model.UuidType) src))
+    .add(org.hl7.fhir.dstu3.model.Extension.class,
+      src -> convertExtension((org.hl7.fhir.dstu3.model.Extension) src))
+    .add(org.hl7.fhir.dstu3.model.Narrative.class,
+      src -> convertNarrative((org.hl7.fhir.dstu3.model.Narrative) src))
+    .add(org.hl7.fhir.dstu3.model.Age.class,
+      src -> convertAge((org.hl7.fhir.dstu3.model.Age) src))
+    .add(org.hl7.fhir.dstu3.model.Annotation.class,
+      src -> convertAnnotation((org.hl7.fhir.dstu3.model.Annotation) src))
+    .add(org.hl7.fhir.dstu3.model.Attachment.class,
+      src -> convertAttachment((org.hl7.fhir.dstu3.model.Attachment) src))
+    .add(org.hl7.fhir.dstu3.model.CodeableConcept.class,
+      src -> convertCodeableConcept((org.hl7.fhir.dstu3.model.CodeableConcept) src))
+    .add(org.hl7.fhir.dstu3.model.Coding.class,
+      src -> convertCoding((org.hl7.fhir.dstu3.model.Coding) src))
+    .add(org.hl7.fhir.dstu3.model.Count.class,
+      src -> convertCount((org.hl7.fhir.dstu3.model.Count) src))
+    .add(org.hl7.fhir.dstu3.model.Distance.class,
+      src -> convertDistance((org.hl7.fhir.dstu3.model.Distance) src))
+    .add(org.hl7.fhir.dstu3.model.Duration.class,
+      src -> convertDuration((org.hl7.fhir.dstu3.model.Duration) src))
+    .add(org.hl7.fhir.dstu3.model.Identifier.class,
+      src -> convertIdentifier((org.hl7.fhir.dstu3.model.Identifier) src))
+    .add(org.hl7.fhir.dstu3.model.Money.class,
+      src -> convertMoney((org.hl7.fhir.dstu3.model.Money) src))
+    .add(org.hl7.fhir.dstu3.model.Period.class,
+      src -> convertPeriod((org.hl7.fhir.dstu3.model.Period) src))
+    .add(org.hl7.fhir.dstu3.model.Quantity.class,
+      src -> convertQuantity((org.hl7.fhir.dstu3.model.Quantity) src))
+    .add(org.hl7.fhir.dstu3.model.Range.class,
+      src -> convertRange((org.hl7.fhir.dstu3.model.Range) src))
+    .add(org.hl7.fhir.dstu3.model.Ratio.class,
+      src -> convertRatio((org.hl7.fhir.dstu3.model.Ratio) src))
+    .add(org.hl7.fhir.dstu3.model.Reference.class,
+      src -> convertReference((org.hl7.fhir.dstu3.model.Reference) src))
+    .add(org.hl7.fhir.dstu3.model.SampledData.class,
+      src -> convertSampledData((org.hl7.fhir.dstu3.model.SampledData) src))
+    .add(org.hl7.fhir.dstu3.model.Signature.class,
+      src -> convertSignature((org.hl7.fhir.dstu3.model.Signature) src))
+    .add(org.hl7.fhir.dstu3.model.Address.class,
+      src -> convertAddress((org.hl7.fhir.dstu3.model.Address) src))
+    .add(org.hl7.fhir.dstu3.model.ContactDetail.class,
+      src -> convertContactDetail((org.hl7.fhir.dstu3.model.ContactDetail) src))
+    .add(org.hl7.fhir.dstu3.model.ContactPoint.class,
+      src -> convertContactPoint((org.hl7.fhir.dstu3.model.ContactPoint) src))
+    .add(org.hl7.fhir.dstu3.model.Contributor.class,
+      src -> convertContributor((org.hl7.fhir.dstu3.model.Contributor) src))
+    .add(org.hl7.fhir.dstu3.model.Dosage.class,
+      src -> convertDosage((org.hl7.fhir.dstu3.model.Dosage) src))
+    .add(org.hl7.fhir.dstu3.model.HumanName.class,
+      src -> convertHumanName((org.hl7.fhir.dstu3.model.HumanName) src))
+    .add(org.hl7.fhir.dstu3.model.Meta.class,
+      src -> convertMeta((org.hl7.fhir.dstu3.model.Meta) src))
+    .add(org.hl7.fhir.dstu3.model.ParameterDefinition.class,
+      src -> convertParameterDefinition((org.hl7.fhir.dstu3.model.ParameterDefinition) src))
+    .add(org.hl7.fhir.dstu3.model.RelatedArtifact.class,
+      src -> convertRelatedArtifact((org.hl7.fhir.dstu3.model.RelatedArtifact) src))
+    .add(org.hl7.fhir.dstu3.model.Timing.class,
+      src -> convertTiming((org.hl7.fhir.dstu3.model.Timing) src))
+    .add(org.hl7.fhir.dstu3.model.UsageContext.class,
+      src -> convertUsageContext((org.hl7.fhir.dstu3.model.UsageContext) src))
+    .add(org.hl7.fhir.dstu3.model.ElementDefinition.class,
+      src -> convertElementDefinition((org.hl7.fhir.dstu3.model.ElementDefinition) src))
+    .add(org.hl7.fhir.dstu3.model.DataRequirement.class,
+      src -> convertDataRequirement((org.hl7.fhir.dstu3.model.DataRequirement) src))
+    .add(org.hl7.fhir.dstu3.model.TriggerDefinition.class,
+      src -> convertTriggerDefinition((org.hl7.fhir.dstu3.model.TriggerDefinition) src));
+
   public static org.hl7.fhir.r5.model.DataType convertType(org.hl7.fhir.dstu3.model.Type src) throws FHIRException {
     if (src == null) return null;
-    if (src instanceof org.hl7.fhir.dstu3.model.Base64BinaryType)
-      return convertBase64Binary((org.hl7.fhir.dstu3.model.Base64BinaryType) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.BooleanType)
-      return convertBoolean((org.hl7.fhir.dstu3.model.BooleanType) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.CodeType) return convertCode((org.hl7.fhir.dstu3.model.CodeType) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.DateType) return convertDate((org.hl7.fhir.dstu3.model.DateType) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.DateTimeType)
-      return convertDateTime((org.hl7.fhir.dstu3.model.DateTimeType) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.DecimalType)
-      return convertDecimal((org.hl7.fhir.dstu3.model.DecimalType) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.IdType) return convertId((org.hl7.fhir.dstu3.model.IdType) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.InstantType)
-      return convertInstant((org.hl7.fhir.dstu3.model.InstantType) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.PositiveIntType)
-      return convertPositiveInt((org.hl7.fhir.dstu3.model.PositiveIntType) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.UnsignedIntType)
-      return convertUnsignedInt((org.hl7.fhir.dstu3.model.UnsignedIntType) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.IntegerType)
-      return convertInteger((org.hl7.fhir.dstu3.model.IntegerType) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.MarkdownType)
-      return convertMarkdown((org.hl7.fhir.dstu3.model.MarkdownType) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.OidType) return convertOid((org.hl7.fhir.dstu3.model.OidType) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.StringType)
-      return convertString((org.hl7.fhir.dstu3.model.StringType) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.TimeType) return convertTime((org.hl7.fhir.dstu3.model.TimeType) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.UriType) return convertUri((org.hl7.fhir.dstu3.model.UriType) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.UuidType) return convertUuid((org.hl7.fhir.dstu3.model.UuidType) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Extension)
-      return convertExtension((org.hl7.fhir.dstu3.model.Extension) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Narrative)
-      return convertNarrative((org.hl7.fhir.dstu3.model.Narrative) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Age) return convertAge((org.hl7.fhir.dstu3.model.Age) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Annotation)
-      return convertAnnotation((org.hl7.fhir.dstu3.model.Annotation) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Attachment)
-      return convertAttachment((org.hl7.fhir.dstu3.model.Attachment) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.CodeableConcept)
-      return convertCodeableConcept((org.hl7.fhir.dstu3.model.CodeableConcept) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Coding) return convertCoding((org.hl7.fhir.dstu3.model.Coding) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Count) return convertCount((org.hl7.fhir.dstu3.model.Count) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Distance)
-      return convertDistance((org.hl7.fhir.dstu3.model.Distance) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Duration)
-      return convertDuration((org.hl7.fhir.dstu3.model.Duration) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Identifier)
-      return convertIdentifier((org.hl7.fhir.dstu3.model.Identifier) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Money) return convertMoney((org.hl7.fhir.dstu3.model.Money) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Period) return convertPeriod((org.hl7.fhir.dstu3.model.Period) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Quantity)
-      return convertQuantity((org.hl7.fhir.dstu3.model.Quantity) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Range) return convertRange((org.hl7.fhir.dstu3.model.Range) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Ratio) return convertRatio((org.hl7.fhir.dstu3.model.Ratio) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Reference)
-      return convertReference((org.hl7.fhir.dstu3.model.Reference) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.SampledData)
-      return convertSampledData((org.hl7.fhir.dstu3.model.SampledData) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Signature)
-      return convertSignature((org.hl7.fhir.dstu3.model.Signature) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Address) return convertAddress((org.hl7.fhir.dstu3.model.Address) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.ContactDetail)
-      return convertContactDetail((org.hl7.fhir.dstu3.model.ContactDetail) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.ContactPoint)
-      return convertContactPoint((org.hl7.fhir.dstu3.model.ContactPoint) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Contributor)
-      return convertContributor((org.hl7.fhir.dstu3.model.Contributor) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Dosage) return convertDosage((org.hl7.fhir.dstu3.model.Dosage) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.HumanName)
-      return convertHumanName((org.hl7.fhir.dstu3.model.HumanName) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Meta) return convertMeta((org.hl7.fhir.dstu3.model.Meta) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.ParameterDefinition)
-      return convertParameterDefinition((org.hl7.fhir.dstu3.model.ParameterDefinition) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.RelatedArtifact)
-      return convertRelatedArtifact((org.hl7.fhir.dstu3.model.RelatedArtifact) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Timing) return convertTiming((org.hl7.fhir.dstu3.model.Timing) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.UsageContext)
-      return convertUsageContext((org.hl7.fhir.dstu3.model.UsageContext) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.ElementDefinition)
-      return convertElementDefinition((org.hl7.fhir.dstu3.model.ElementDefinition) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.DataRequirement)
-      return convertDataRequirement((org.hl7.fhir.dstu3.model.DataRequirement) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.TriggerDefinition)
-      return convertTriggerDefinition((org.hl7.fhir.dstu3.model.TriggerDefinition) src);
+    Function<org.hl7.fhir.dstu3.model.Type, org.hl7.fhir.r5.model.DataType> conversion = TYPES_30_50.get(src.getClass());
+    if (conversion != null)
+      return conversion.apply(src);
     throw new FHIRException("Unknown type " + src.fhirType());
   }
 
+  private static final ConversionDispatcher<Function<org.hl7.fhir.r5.model.DataType, org.hl7.fhir.dstu3.model.Type>> TYPES_50_30 = new ConversionDispatcher<Function<org.hl7.fhir.r5.model.DataType, org.hl7.fhir.dstu3.model.Type>>()
+    .add(org.hl7.fhir.r5.model.Base64BinaryType.class,
+      src -> convertBase64Binary((org.hl7.fhir.r5.model.Base64BinaryType) src))
+    .add(org.hl7.fhir.r5.model.BooleanType.class,
+      src -> convertBoolean((org.hl7.fhir.r5.model.BooleanType) src))
+    .add(org.hl7.fhir.r5.model.CodeType.class,
+      src -> convertCode((org.hl7.fhir.r5.model.CodeType) src))
+    .add(org.hl7.fhir.r5.model.DateType.class,
+      src -> convertDate((org.hl7.fhir.r5.model.DateType) src))
+    .add(org.hl7.fhir.r5.model.DateTimeType.class,
+      src -> convertDateTime((org.hl7.fhir.r5.model.DateTimeType) src))
+    .add(org.hl7.fhir.r5.model.DecimalType.class,
+      src -> convertDecimal((org.hl7.fhir.r5.model.DecimalType) src))
+    .add(org.hl7.fhir.r5.model.IdType.class,
+      src -> convertId((org.hl7.fhir.r5.model.IdType) src))
+    .add(org.hl7.fhir.r5.model.InstantType.class,
+      src -> convertInstant((org.hl7.fhir.r5.model.InstantType) src))
+    .add(org.hl7.fhir.r5.model.PositiveIntType.class,
+      src -> convertPositiveInt((org.hl7.fhir.r5.model.PositiveIntType) src))
+    .add(org.hl7.fhir.r5.model.UnsignedIntType.class,
+      src -> convertUnsignedInt((org.hl7.fhir.r5.model.UnsignedIntType) src))
+    .add(org.hl7.fhir.r5.model.Integer64Type.class,
+      src -> convertInteger64((org.hl7.fhir.r5.model.Integer64Type) src))
+    .add(org.hl7.fhir.r5.model.IntegerType.class,
+      src -> convertInteger((org.hl7.fhir.r5.model.IntegerType) src))
+    .add(org.hl7.fhir.r5.model.MarkdownType.class,
+      src -> convertMarkdown((org.hl7.fhir.r5.model.MarkdownType) src))
+    .add(org.hl7.fhir.r5.model.OidType.class,
+      src -> convertOid((org.hl7.fhir.r5.model.OidType) src))
+    .add(org.hl7.fhir.r5.model.StringType.class,
+      src -> convertString((org.hl7.fhir.r5.model.StringType) src))
+    .add(org.hl7.fhir.r5.model.TimeType.class,
+      src -> convertTime((org.hl7.fhir.r5.model.TimeType) src))
+    .add(org.hl7.fhir.r5.model.UriType.class,
+      src -> convertUri((org.hl7.fhir.r5.model.UriType) src))
+    .add(org.hl7.fhir.r5.model.UuidType.class,
+      src -> convertUuid((org.hl7.fhir.r5.model.UuidType) src))
+    .add(org.hl7.fhir.r5.model.Extension.class,
+      src -> convertExtension((org.hl7.fhir.r5.model.Extension) src))
+    .add(org.hl7.fhir.r5.model.Narrative.class,
+      src -> convertNarrative((org.hl7.fhir.r5.model.Narrative) src))
+    .add(org.hl7.fhir.r5.model.Age.class,
+      src -> convertAge((org.hl7.fhir.r5.model.Age) src))
+    .add(org.hl7.fhir.r5.model.Annotation.class,
+      src -> convertAnnotation((org.hl7.fhir.r5.model.Annotation) src))
+    .add(org.hl7.fhir.r5.model.Attachment.class,
+      src -> convertAttachment((org.hl7.fhir.r5.model.Attachment) src))
+    .add(org.hl7.fhir.r5.model.CodeableConcept.class,
+      src -> convertCodeableConcept((org.hl7.fhir.r5.model.CodeableConcept) src))
+    .add(org.hl7.fhir.r5.model.Coding.class,
+      src -> convertCoding((org.hl7.fhir.r5.model.Coding) src))
+    .add(org.hl7.fhir.r5.model.Count.class,
+      src -> convertCount((org.hl7.fhir.r5.model.Count) src))
+    .add(org.hl7.fhir.r5.model.Distance.class,
+      src -> convertDistance((org.hl7.fhir.r5.model.Distance) src))
+    .add(org.hl7.fhir.r5.model.Duration.class,
+      src -> convertDuration((org.hl7.fhir.r5.model.Duration) src))
+    .add(org.hl7.fhir.r5.model.Identifier.class,
+      src -> convertIdentifier((org.hl7.fhir.r5.model.Identifier) src))
+    .add(org.hl7.fhir.r5.model.Money.class,
+      src -> convertMoney((org.hl7.fhir.r5.model.Money) src))
+    .add(org.hl7.fhir.r5.model.Period.class,
+      src -> convertPeriod((org.hl7.fhir.r5.model.Period) src))
+    .add(org.hl7.fhir.r5.model.Quantity.class,
+      src -> convertQuantity((org.hl7.fhir.r5.model.Quantity) src))
+    .add(org.hl7.fhir.r5.model.Range.class,
+      src -> convertRange((org.hl7.fhir.r5.model.Range) src))
+    .add(org.hl7.fhir.r5.model.Ratio.class,
+      src -> convertRatio((org.hl7.fhir.r5.model.Ratio) src))
+    .add(org.hl7.fhir.r5.model.Reference.class,
+      src -> convertReference((org.hl7.fhir.r5.model.Reference) src))
+    .add(org.hl7.fhir.r5.model.SampledData.class,
+      src -> convertSampledData((org.hl7.fhir.r5.model.SampledData) src))
+    .add(org.hl7.fhir.r5.model.Signature.class,
+      src -> convertSignature((org.hl7.fhir.r5.model.Signature) src))
+    .add(org.hl7.fhir.r5.model.Address.class,
+      src -> convertAddress((org.hl7.fhir.r5.model.Address) src))
+    .add(org.hl7.fhir.r5.model.ContactDetail.class,
+      src -> convertContactDetail((org.hl7.fhir.r5.model.ContactDetail) src))
+    .add(org.hl7.fhir.r5.model.ContactPoint.class,
+      src -> convertContactPoint((org.hl7.fhir.r5.model.ContactPoint) src))
+    .add(org.hl7.fhir.r5.model.Contributor.class,
+      src -> convertContributor((org.hl7.fhir.r5.model.Contributor) src))
+    .add(org.hl7.fhir.r5.model.Dosage.class,
+      src -> convertDosage((org.hl7.fhir.r5.model.Dosage) src))
+    .add(org.hl7.fhir.r5.model.HumanName.class,
+      src -> convertHumanName((org.hl7.fhir.r5.model.HumanName) src))
+    .add(org.hl7.fhir.r5.model.Meta.class,
+      src -> convertMeta((org.hl7.fhir.r5.model.Meta) src))
+    .add(org.hl7.fhir.r5.model.ParameterDefinition.class,
+      src -> convertParameterDefinition((org.hl7.fhir.r5.model.ParameterDefinition) src))
+    .add(org.hl7.fhir.r5.model.RelatedArtifact.class,
+      src -> convertRelatedArtifact((org.hl7.fhir.r5.model.RelatedArtifact) src))
+    .add(org.hl7.fhir.r5.model.Timing.class,
+      src -> convertTiming((org.hl7.fhir.r5.model.Timing) src))
+    .add(org.hl7.fhir.r5.model.UsageContext.class,
+      src -> convertUsageContext((org.hl7.fhir.r5.model.UsageContext) src))
+    .add(org.hl7.fhir.r5.model.ElementDefinition.class,
+      src -> convertElementDefinition((org.hl7.fhir.r5.model.ElementDefinition) src))
+    .add(org.hl7.fhir.r5.model.DataRequirement.class,
+      src -> convertDataRequirement((org.hl7.fhir.r5.model.DataRequirement) src))
+    .add(org.hl7.fhir.r5.model.TriggerDefinition.class,
+      src -> convertTriggerDefinition((org.hl7.fhir.r5.model.TriggerDefinition) src));
+
   public static org.hl7.fhir.dstu3.model.Type convertType(org.hl7.fhir.r5.model.DataType src) throws FHIRException {
     if (src == null) return null;
-    if (src instanceof org.hl7.fhir.r5.model.Base64BinaryType)
-      return convertBase64Binary((org.hl7.fhir.r5.model.Base64BinaryType) src);
-    if (src instanceof org.hl7.fhir.r5.model.BooleanType)
-      return convertBoolean((org.hl7.fhir.r5.model.BooleanType) src);
-    if (src instanceof org.hl7.fhir.r5.model.CodeType) return convertCode((org.hl7.fhir.r5.model.CodeType) src);
-    if (src instanceof org.hl7.fhir.r5.model.DateType) return convertDate((org.hl7.fhir.r5.model.DateType) src);
-    if (src instanceof org.hl7.fhir.r5.model.DateTimeType)
-      return convertDateTime((org.hl7.fhir.r5.model.DateTimeType) src);
-    if (src instanceof org.hl7.fhir.r5.model.DecimalType)
-      return convertDecimal((org.hl7.fhir.r5.model.DecimalType) src);
-    if (src instanceof org.hl7.fhir.r5.model.IdType) return convertId((org.hl7.fhir.r5.model.IdType) src);
-    if (src instanceof org.hl7.fhir.r5.model.InstantType)
-      return convertInstant((org.hl7.fhir.r5.model.InstantType) src);
-    if (src instanceof org.hl7.fhir.r5.model.PositiveIntType)
-      return convertPositiveInt((org.hl7.fhir.r5.model.PositiveIntType) src);
-    if (src instanceof org.hl7.fhir.r5.model.UnsignedIntType)
-      return convertUnsignedInt((org.hl7.fhir.r5.model.UnsignedIntType) src);
-    if (src instanceof org.hl7.fhir.r5.model.Integer64Type)
-      return convertInteger64((org.hl7.fhir.r5.model.Integer64Type) src);
-    if (src instanceof org.hl7.fhir.r5.model.IntegerType)
-      return convertInteger((org.hl7.fhir.r5.model.IntegerType) src);
-    if (src instanceof org.hl7.fhir.r5.model.MarkdownType)
-      return convertMarkdown((org.hl7.fhir.r5.model.MarkdownType) src);
-    if (src instanceof org.hl7.fhir.r5.model.OidType) return convertOid((org.hl7.fhir.r5.model.OidType) src);
-    if (src instanceof org.hl7.fhir.r5.model.StringType) return convertString((org.hl7.fhir.r5.model.StringType) src);
-    if (src instanceof org.hl7.fhir.r5.model.TimeType) return convertTime((org.hl7.fhir.r5.model.TimeType) src);
-    if (src instanceof org.hl7.fhir.r5.model.UriType) return convertUri((org.hl7.fhir.r5.model.UriType) src);
-    if (src instanceof org.hl7.fhir.r5.model.UuidType) return convertUuid((org.hl7.fhir.r5.model.UuidType) src);
-    if (src instanceof org.hl7.fhir.r5.model.Extension) return convertExtension((org.hl7.fhir.r5.model.Extension) src);
-    if (src instanceof org.hl7.fhir.r5.model.Narrative) return convertNarrative((org.hl7.fhir.r5.model.Narrative) src);
-    if (src instanceof org.hl7.fhir.r5.model.Age) return convertAge((org.hl7.fhir.r5.model.Age) src);
-    if (src instanceof org.hl7.fhir.r5.model.Annotation)
-      return convertAnnotation((org.hl7.fhir.r5.model.Annotation) src);
-    if (src instanceof org.hl7.fhir.r5.model.Attachment)
-      return convertAttachment((org.hl7.fhir.r5.model.Attachment) src);
-    if (src instanceof org.hl7.fhir.r5.model.CodeableConcept)
-      return convertCodeableConcept((org.hl7.fhir.r5.model.CodeableConcept) src);
-    if (src instanceof org.hl7.fhir.r5.model.Coding) return convertCoding((org.hl7.fhir.r5.model.Coding) src);
-    if (src instanceof org.hl7.fhir.r5.model.Count) return convertCount((org.hl7.fhir.r5.model.Count) src);
-    if (src instanceof org.hl7.fhir.r5.model.Distance) return convertDistance((org.hl7.fhir.r5.model.Distance) src);
-    if (src instanceof org.hl7.fhir.r5.model.Duration) return convertDuration((org.hl7.fhir.r5.model.Duration) src);
-    if (src instanceof org.hl7.fhir.r5.model.Identifier)
-      return convertIdentifier((org.hl7.fhir.r5.model.Identifier) src);
-    if (src instanceof org.hl7.fhir.r5.model.Money) return convertMoney((org.hl7.fhir.r5.model.Money) src);
-    if (src instanceof org.hl7.fhir.r5.model.Period) return convertPeriod((org.hl7.fhir.r5.model.Period) src);
-    if (src instanceof org.hl7.fhir.r5.model.Quantity) return convertQuantity((org.hl7.fhir.r5.model.Quantity) src);
-    if (src instanceof org.hl7.fhir.r5.model.Range) return convertRange((org.hl7.fhir.r5.model.Range) src);
-    if (src instanceof org.hl7.fhir.r5.model.Ratio) return convertRatio((org.hl7.fhir.r5.model.Ratio) src);
-    if (src instanceof org.hl7.fhir.r5.model.Reference) return convertReference((org.hl7.fhir.r5.model.Reference) src);
-    if (src instanceof org.hl7.fhir.r5.model.SampledData)
-      return convertSampledData((org.hl7.fhir.r5.model.SampledData) src);
-    if (src instanceof org.hl7.fhir.r5.model.Signature) return convertSignature((org.hl7.fhir.r5.model.Signature) src);
-    if (src instanceof org.hl7.fhir.r5.model.Address) return convertAddress((org.hl7.fhir.r5.model.Address) src);
-    if (src instanceof org.hl7.fhir.r5.model.ContactDetail)
-      return convertContactDetail((org.hl7.fhir.r5.model.ContactDetail) src);
-    if (src instanceof org.hl7.fhir.r5.model.ContactPoint)
-      return convertContactPoint((org.hl7.fhir.r5.model.ContactPoint) src);
-    if (src instanceof org.hl7.fhir.r5.model.Contributor)
-      return convertContributor((org.hl7.fhir.r5.model.Contributor) src);
-    if (src instanceof org.hl7.fhir.r5.model.Dosage) return convertDosage((org.hl7.fhir.r5.model.Dosage) src);
-    if (src instanceof org.hl7.fhir.r5.model.HumanName) return convertHumanName((org.hl7.fhir.r5.model.HumanName) src);
-    if (src instanceof org.hl7.fhir.r5.model.Meta) return convertMeta((org.hl7.fhir.r5.model.Meta) src);
-    if (src instanceof org.hl7.fhir.r5.model.ParameterDefinition)
-      return convertParameterDefinition((org.hl7.fhir.r5.model.ParameterDefinition) src);
-    if (src instanceof org.hl7.fhir.r5.model.RelatedArtifact)
-      return convertRelatedArtifact((org.hl7.fhir.r5.model.RelatedArtifact) src);
-    if (src instanceof org.hl7.fhir.r5.model.Timing) return convertTiming((org.hl7.fhir.r5.model.Timing) src);
-    if (src instanceof org.hl7.fhir.r5.model.UsageContext)
-      return convertUsageContext((org.hl7.fhir.r5.model.UsageContext) src);
-    if (src instanceof org.hl7.fhir.r5.model.ElementDefinition)
-      return convertElementDefinition((org.hl7.fhir.r5.model.ElementDefinition) src);
-    if (src instanceof org.hl7.fhir.r5.model.DataRequirement)
-      return convertDataRequirement((org.hl7.fhir.r5.model.DataRequirement) src);
-    if (src instanceof org.hl7.fhir.r5.model.TriggerDefinition)
-      return convertTriggerDefinition((org.hl7.fhir.r5.model.TriggerDefinition) src);
+    Function<org.hl7.fhir.r5.model.DataType, org.hl7.fhir.dstu3.model.Type> conversion = TYPES_50_30.get(src.getClass());
+    if (conversion != null)
+      return conversion.apply(src);
     throw new FHIRException("Unknown type " + src.fhirType());
   }
 
@@ -4594,325 +4650,343 @@ public class VersionConvertor_30_50 {
     return tgt;
   }
 
+  private static final ConversionDispatcher<Function<org.hl7.fhir.dstu3.model.Resource, org.hl7.fhir.r5.model.Resource>> RESOURCES_30_50 = new ConversionDispatcher<Function<org.hl7.fhir.dstu3.model.Resource, org.hl7.fhir.r5.model.Resource>>()
+    .add(org.hl7.fhir.dstu3.model.Parameters.class,
+      src -> Parameters30_50.convertParameters((org.hl7.fhir.dstu3.model.Parameters) src))
+    .add(org.hl7.fhir.dstu3.model.ActivityDefinition.class,
+      src -> ActivityDefinition30_50.convertActivityDefinition((org.hl7.fhir.dstu3.model.ActivityDefinition) src))
+    .add(org.hl7.fhir.dstu3.model.AllergyIntolerance.class,
+      src -> AllergyIntolerance30_50.convertAllergyIntolerance((org.hl7.fhir.dstu3.model.AllergyIntolerance) src))
+    .add(org.hl7.fhir.dstu3.model.Appointment.class,
+      src -> Appointment30_50.convertAppointment((org.hl7.fhir.dstu3.model.Appointment) src))
+    .add(org.hl7.fhir.dstu3.model.AppointmentResponse.class,
+      src -> AppointmentResponse30_50.convertAppointmentResponse((org.hl7.fhir.dstu3.model.AppointmentResponse) src))
+    .add(org.hl7.fhir.dstu3.model.AuditEvent.class,
+      src -> AuditEvent30_50.convertAuditEvent((org.hl7.fhir.dstu3.model.AuditEvent) src))
+    .add(org.hl7.fhir.dstu3.model.Basic.class,
+      src -> Basic30_50.convertBasic((org.hl7.fhir.dstu3.model.Basic) src))
+    .add(org.hl7.fhir.dstu3.model.Binary.class,
+      src -> Binary30_50.convertBinary((org.hl7.fhir.dstu3.model.Binary) src))
+    .add(org.hl7.fhir.dstu3.model.BodySite.class,
+      src -> BodySite30_50.convertBodySite((org.hl7.fhir.dstu3.model.BodySite) src))
+    .add(org.hl7.fhir.dstu3.model.Bundle.class,
+      src -> Bundle30_50.convertBundle((org.hl7.fhir.dstu3.model.Bundle) src))
+    .add(org.hl7.fhir.dstu3.model.CapabilityStatement.class,
+      src -> CapabilityStatement30_50.convertCapabilityStatement((org.hl7.fhir.dstu3.model.CapabilityStatement) src))
+    .add(org.hl7.fhir.dstu3.model.CarePlan.class,
+      src -> CarePlan30_50.convertCarePlan((org.hl7.fhir.dstu3.model.CarePlan) src))
+    .add(org.hl7.fhir.dstu3.model.CareTeam.class,
+      src -> CareTeam30_50.convertCareTeam((org.hl7.fhir.dstu3.model.CareTeam) src))
+    .add(org.hl7.fhir.dstu3.model.ClinicalImpression.class,
+      src -> ClinicalImpression30_50.convertClinicalImpression((org.hl7.fhir.dstu3.model.ClinicalImpression) src))
+    .add(org.hl7.fhir.dstu3.model.CodeSystem.class,
+      src -> CodeSystem30_50.convertCodeSystem((org.hl7.fhir.dstu3.model.CodeSystem) src))
+    .add(org.hl7.fhir.dstu3.model.Communication.class,
+      src -> Communication30_50.convertCommunication((org.hl7.fhir.dstu3.model.Communication) src))
+    .add(org.hl7.fhir.dstu3.model.CompartmentDefinition.class,
+      src -> CompartmentDefinition30_50.convertCompartmentDefinition((org.hl7.fhir.dstu3.model.CompartmentDefinition) src))
+    .add(org.hl7.fhir.dstu3.model.Composition.class,
+      src -> Composition30_50.convertComposition((org.hl7.fhir.dstu3.model.Composition) src))
+    .add(org.hl7.fhir.dstu3.model.ConceptMap.class,
+      src -> ConceptMap30_50.convertConceptMap((org.hl7.fhir.dstu3.model.ConceptMap) src))
+    .add(org.hl7.fhir.dstu3.model.Condition.class,
+      src -> Condition30_50.convertCondition((org.hl7.fhir.dstu3.model.Condition) src))
+    .add(org.hl7.fhir.dstu3.model.Consent.class,
+      src -> Consent30_50.convertConsent((org.hl7.fhir.dstu3.model.Consent) src))
+    .add(org.hl7.fhir.dstu3.model.DataElement.class,
+      src -> DataElement30_50.convertDataElement((org.hl7.fhir.dstu3.model.DataElement) src))
+    .add(org.hl7.fhir.dstu3.model.DetectedIssue.class,
+      src -> DetectedIssue30_50.convertDetectedIssue((org.hl7.fhir.dstu3.model.DetectedIssue) src))
+    .add(org.hl7.fhir.dstu3.model.DeviceUseStatement.class,
+      src -> DeviceUseStatement30_50.convertDeviceUseStatement((org.hl7.fhir.dstu3.model.DeviceUseStatement) src))
+    .add(org.hl7.fhir.dstu3.model.DiagnosticReport.class,
+      src -> DiagnosticReport30_50.convertDiagnosticReport((org.hl7.fhir.dstu3.model.DiagnosticReport) src))
+    .add(org.hl7.fhir.dstu3.model.DocumentReference.class,
+      src -> DocumentReference30_50.convertDocumentReference((org.hl7.fhir.dstu3.model.DocumentReference) src))
+    .add(org.hl7.fhir.dstu3.model.Encounter.class,
+      src -> Encounter30_50.convertEncounter((org.hl7.fhir.dstu3.model.Encounter) src))
+    .add(org.hl7.fhir.dstu3.model.Endpoint.class,
+      src -> Endpoint30_50.convertEndpoint((org.hl7.fhir.dstu3.model.Endpoint) src))
+    .add(org.hl7.fhir.dstu3.model.EpisodeOfCare.class,
+      src -> EpisodeOfCare30_50.convertEpisodeOfCare((org.hl7.fhir.dstu3.model.EpisodeOfCare) src))
+    .add(org.hl7.fhir.dstu3.model.ExpansionProfile.class,
+      src -> ExpansionProfile30_50.convertExpansionProfile((org.hl7.fhir.dstu3.model.ExpansionProfile) src))
+    .add(org.hl7.fhir.dstu3.model.FamilyMemberHistory.class,
+      src -> FamilyMemberHistory30_50.convertFamilyMemberHistory((org.hl7.fhir.dstu3.model.FamilyMemberHistory) src))
+    .add(org.hl7.fhir.dstu3.model.Flag.class,
+      src -> Flag30_50.convertFlag((org.hl7.fhir.dstu3.model.Flag) src))
+    .add(org.hl7.fhir.dstu3.model.Goal.class,
+      src -> Goal30_50.convertGoal((org.hl7.fhir.dstu3.model.Goal) src))
+    .add(org.hl7.fhir.dstu3.model.GraphDefinition.class,
+      src -> GraphDefinition30_50.convertGraphDefinition((org.hl7.fhir.dstu3.model.GraphDefinition) src))
+    .add(org.hl7.fhir.dstu3.model.Group.class,
+      src -> Group30_50.convertGroup((org.hl7.fhir.dstu3.model.Group) src))
+    .add(org.hl7.fhir.dstu3.model.HealthcareService.class,
+      src -> HealthcareService30_50.convertHealthcareService((org.hl7.fhir.dstu3.model.HealthcareService) src))
+    .add(org.hl7.fhir.dstu3.model.ImagingStudy.class,
+      src -> ImagingStudy30_50.convertImagingStudy((org.hl7.fhir.dstu3.model.ImagingStudy) src))
+    .add(org.hl7.fhir.dstu3.model.Immunization.class,
+      src -> Immunization30_50.convertImmunization((org.hl7.fhir.dstu3.model.Immunization) src))
+    .add(org.hl7.fhir.dstu3.model.ImplementationGuide.class,
+      src -> ImplementationGuide30_50.convertImplementationGuide((org.hl7.fhir.dstu3.model.ImplementationGuide) src))
+    .add(org.hl7.fhir.dstu3.model.Library.class,
+      src -> Library30_50.convertLibrary((org.hl7.fhir.dstu3.model.Library) src))
+    .add(org.hl7.fhir.dstu3.model.Linkage.class,
+      src -> Linkage30_50.convertLinkage((org.hl7.fhir.dstu3.model.Linkage) src))
+    .add(org.hl7.fhir.dstu3.model.ListResource.class,
+      src -> List30_50.convertList((org.hl7.fhir.dstu3.model.ListResource) src))
+    .add(org.hl7.fhir.dstu3.model.Location.class,
+      src -> Location30_50.convertLocation((org.hl7.fhir.dstu3.model.Location) src))
+    .add(org.hl7.fhir.dstu3.model.Measure.class,
+      src -> Measure30_50.convertMeasure((org.hl7.fhir.dstu3.model.Measure) src))
+    .add(org.hl7.fhir.dstu3.model.Media.class,
+      src -> Media30_50.convertMedia((org.hl7.fhir.dstu3.model.Media) src))
+    .add(org.hl7.fhir.dstu3.model.Medication.class,
+      src -> Medication30_50.convertMedication((org.hl7.fhir.dstu3.model.Medication) src))
+    .add(org.hl7.fhir.dstu3.model.MedicationAdministration.class,
+      src -> MedicationAdministration30_50.convertMedicationAdministration((org.hl7.fhir.dstu3.model.MedicationAdministration) src))
+    .add(org.hl7.fhir.dstu3.model.MedicationDispense.class,
+      src -> MedicationDispense30_50.convertMedicationDispense((org.hl7.fhir.dstu3.model.MedicationDispense) src))
+    .add(org.hl7.fhir.dstu3.model.MedicationRequest.class,
+      src -> MedicationRequest30_50.convertMedicationRequest((org.hl7.fhir.dstu3.model.MedicationRequest) src))
+    .add(org.hl7.fhir.dstu3.model.MedicationStatement.class,
+      src -> MedicationStatement30_50.convertMedicationStatement((org.hl7.fhir.dstu3.model.MedicationStatement) src))
+    .add(org.hl7.fhir.dstu3.model.MessageDefinition.class,
+      src -> MessageDefinition30_50.convertMessageDefinition((org.hl7.fhir.dstu3.model.MessageDefinition) src))
+    .add(org.hl7.fhir.dstu3.model.MessageHeader.class,
+      src -> MessageHeader30_50.convertMessageHeader((org.hl7.fhir.dstu3.model.MessageHeader) src))
+    .add(org.hl7.fhir.dstu3.model.NamingSystem.class,
+      src -> NamingSystem30_50.convertNamingSystem((org.hl7.fhir.dstu3.model.NamingSystem) src))
+    .add(org.hl7.fhir.dstu3.model.Observation.class,
+      src -> Observation30_50.convertObservation((org.hl7.fhir.dstu3.model.Observation) src))
+    .add(org.hl7.fhir.dstu3.model.OperationDefinition.class,
+      src -> OperationDefinition30_50.convertOperationDefinition((org.hl7.fhir.dstu3.model.OperationDefinition) src))
+    .add(org.hl7.fhir.dstu3.model.OperationOutcome.class,
+      src -> OperationOutcome30_50.convertOperationOutcome((org.hl7.fhir.dstu3.model.OperationOutcome) src))
+    .add(org.hl7.fhir.dstu3.model.Organization.class,
+      src -> Organization30_50.convertOrganization((org.hl7.fhir.dstu3.model.Organization) src))
+    .add(org.hl7.fhir.dstu3.model.Patient.class,
+      src -> Patient30_50.convertPatient((org.hl7.fhir.dstu3.model.Patient) src))
+    .add(org.hl7.fhir.dstu3.model.PaymentNotice.class,
+      src -> PaymentNotice30_50.convertPaymentNotice((org.hl7.fhir.dstu3.model.PaymentNotice) src))
+    .add(org.hl7.fhir.dstu3.model.Person.class,
+      src -> Person30_50.convertPerson((org.hl7.fhir.dstu3.model.Person) src))
+    .add(org.hl7.fhir.dstu3.model.PlanDefinition.class,
+      src -> PlanDefinition30_50.convertPlanDefinition((org.hl7.fhir.dstu3.model.PlanDefinition) src))
+    .add(org.hl7.fhir.dstu3.model.Practitioner.class,
+      src -> Practitioner30_50.convertPractitioner((org.hl7.fhir.dstu3.model.Practitioner) src))
+    .add(org.hl7.fhir.dstu3.model.PractitionerRole.class,
+      src -> PractitionerRole30_50.convertPractitionerRole((org.hl7.fhir.dstu3.model.PractitionerRole) src))
+    .add(org.hl7.fhir.dstu3.model.Provenance.class,
+      src -> Provenance30_50.convertProvenance((org.hl7.fhir.dstu3.model.Provenance) src))
+    .add(org.hl7.fhir.dstu3.model.Questionnaire.class,
+      src -> Questionnaire30_50.convertQuestionnaire((org.hl7.fhir.dstu3.model.Questionnaire) src))
+    .add(org.hl7.fhir.dstu3.model.QuestionnaireResponse.class,
+      src -> QuestionnaireResponse30_50.convertQuestionnaireResponse((org.hl7.fhir.dstu3.model.QuestionnaireResponse) src))
+    .add(org.hl7.fhir.dstu3.model.RelatedPerson.class,
+      src -> RelatedPerson30_50.convertRelatedPerson((org.hl7.fhir.dstu3.model.RelatedPerson) src))
+    .add(org.hl7.fhir.dstu3.model.RiskAssessment.class,
+      src -> RiskAssessment30_50.convertRiskAssessment((org.hl7.fhir.dstu3.model.RiskAssessment) src))
+    .add(org.hl7.fhir.dstu3.model.Schedule.class,
+      src -> Schedule30_50.convertSchedule((org.hl7.fhir.dstu3.model.Schedule) src))
+    .add(org.hl7.fhir.dstu3.model.SearchParameter.class,
+      src -> SearchParameter30_50.convertSearchParameter((org.hl7.fhir.dstu3.model.SearchParameter) src))
+    .add(org.hl7.fhir.dstu3.model.Sequence.class,
+      src -> Sequence30_50.convertSequence((org.hl7.fhir.dstu3.model.Sequence) src))
+    .add(org.hl7.fhir.dstu3.model.Slot.class,
+      src -> Slot30_50.convertSlot((org.hl7.fhir.dstu3.model.Slot) src))
+    .add(org.hl7.fhir.dstu3.model.Specimen.class,
+      src -> Specimen30_50.convertSpecimen((org.hl7.fhir.dstu3.model.Specimen) src))
+    .add(org.hl7.fhir.dstu3.model.StructureDefinition.class,
+      src -> StructureDefinition30_50.convertStructureDefinition((org.hl7.fhir.dstu3.model.StructureDefinition) src))
+    .add(org.hl7.fhir.dstu3.model.StructureMap.class,
+      src -> StructureMap30_50.convertStructureMap((org.hl7.fhir.dstu3.model.StructureMap) src))
+    .add(org.hl7.fhir.dstu3.model.Substance.class,
+      src -> Substance30_50.convertSubstance((org.hl7.fhir.dstu3.model.Substance) src))
+    .add(org.hl7.fhir.dstu3.model.SupplyDelivery.class,
+      src -> SupplyDelivery30_50.convertSupplyDelivery((org.hl7.fhir.dstu3.model.SupplyDelivery) src))
+    .add(org.hl7.fhir.dstu3.model.TestReport.class,
+      src -> TestReport30_50.convertTestReport((org.hl7.fhir.dstu3.model.TestReport) src))
+    .add(org.hl7.fhir.dstu3.model.TestScript.class,
+      src -> TestScript30_50.convertTestScript((org.hl7.fhir.dstu3.model.TestScript) src))
+    .add(org.hl7.fhir.dstu3.model.ValueSet.class,
+      src -> ValueSet30_50.convertValueSet((org.hl7.fhir.dstu3.model.ValueSet) src));
+
   public static org.hl7.fhir.r5.model.Resource convertResource(org.hl7.fhir.dstu3.model.Resource src, boolean nullOk) throws FHIRException {
     if (src == null) return null;
-    if (src instanceof org.hl7.fhir.dstu3.model.Parameters)
-      return Parameters30_50.convertParameters((org.hl7.fhir.dstu3.model.Parameters) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.ActivityDefinition)
-      return ActivityDefinition30_50.convertActivityDefinition((org.hl7.fhir.dstu3.model.ActivityDefinition) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.AllergyIntolerance)
-      return AllergyIntolerance30_50.convertAllergyIntolerance((org.hl7.fhir.dstu3.model.AllergyIntolerance) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Appointment)
-      return Appointment30_50.convertAppointment((org.hl7.fhir.dstu3.model.Appointment) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.AppointmentResponse)
-      return AppointmentResponse30_50.convertAppointmentResponse((org.hl7.fhir.dstu3.model.AppointmentResponse) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.AuditEvent)
-      return AuditEvent30_50.convertAuditEvent((org.hl7.fhir.dstu3.model.AuditEvent) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Basic)
-      return Basic30_50.convertBasic((org.hl7.fhir.dstu3.model.Basic) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Binary)
-      return Binary30_50.convertBinary((org.hl7.fhir.dstu3.model.Binary) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.BodySite)
-      return BodySite30_50.convertBodySite((org.hl7.fhir.dstu3.model.BodySite) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Bundle)
-      return Bundle30_50.convertBundle((org.hl7.fhir.dstu3.model.Bundle) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.CapabilityStatement)
-      return CapabilityStatement30_50.convertCapabilityStatement((org.hl7.fhir.dstu3.model.CapabilityStatement) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.CarePlan)
-      return CarePlan30_50.convertCarePlan((org.hl7.fhir.dstu3.model.CarePlan) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.CareTeam)
-      return CareTeam30_50.convertCareTeam((org.hl7.fhir.dstu3.model.CareTeam) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.ClinicalImpression)
-      return ClinicalImpression30_50.convertClinicalImpression((org.hl7.fhir.dstu3.model.ClinicalImpression) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.CodeSystem)
-      return CodeSystem30_50.convertCodeSystem((org.hl7.fhir.dstu3.model.CodeSystem) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Communication)
-      return Communication30_50.convertCommunication((org.hl7.fhir.dstu3.model.Communication) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.CompartmentDefinition)
-      return CompartmentDefinition30_50.convertCompartmentDefinition((org.hl7.fhir.dstu3.model.CompartmentDefinition) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Composition)
-      return Composition30_50.convertComposition((org.hl7.fhir.dstu3.model.Composition) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.ConceptMap)
-      return ConceptMap30_50.convertConceptMap((org.hl7.fhir.dstu3.model.ConceptMap) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Condition)
-      return Condition30_50.convertCondition((org.hl7.fhir.dstu3.model.Condition) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Consent)
-      return Consent30_50.convertConsent((org.hl7.fhir.dstu3.model.Consent) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.DataElement)
-      return DataElement30_50.convertDataElement((org.hl7.fhir.dstu3.model.DataElement) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.DetectedIssue)
-      return DetectedIssue30_50.convertDetectedIssue((org.hl7.fhir.dstu3.model.DetectedIssue) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.DeviceUseStatement)
-      return DeviceUseStatement30_50.convertDeviceUseStatement((org.hl7.fhir.dstu3.model.DeviceUseStatement) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.DiagnosticReport)
-      return DiagnosticReport30_50.convertDiagnosticReport((org.hl7.fhir.dstu3.model.DiagnosticReport) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.DocumentReference)
-      return DocumentReference30_50.convertDocumentReference((org.hl7.fhir.dstu3.model.DocumentReference) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Encounter)
-      return Encounter30_50.convertEncounter((org.hl7.fhir.dstu3.model.Encounter) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Endpoint)
-      return Endpoint30_50.convertEndpoint((org.hl7.fhir.dstu3.model.Endpoint) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.EpisodeOfCare)
-      return EpisodeOfCare30_50.convertEpisodeOfCare((org.hl7.fhir.dstu3.model.EpisodeOfCare) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.ExpansionProfile)
-      return ExpansionProfile30_50.convertExpansionProfile((org.hl7.fhir.dstu3.model.ExpansionProfile) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.FamilyMemberHistory)
-      return FamilyMemberHistory30_50.convertFamilyMemberHistory((org.hl7.fhir.dstu3.model.FamilyMemberHistory) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Flag) return Flag30_50.convertFlag((org.hl7.fhir.dstu3.model.Flag) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Goal) return Goal30_50.convertGoal((org.hl7.fhir.dstu3.model.Goal) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.GraphDefinition)
-      return GraphDefinition30_50.convertGraphDefinition((org.hl7.fhir.dstu3.model.GraphDefinition) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Group)
-      return Group30_50.convertGroup((org.hl7.fhir.dstu3.model.Group) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.HealthcareService)
-      return HealthcareService30_50.convertHealthcareService((org.hl7.fhir.dstu3.model.HealthcareService) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.ImagingStudy)
-      return ImagingStudy30_50.convertImagingStudy((org.hl7.fhir.dstu3.model.ImagingStudy) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Immunization)
-      return Immunization30_50.convertImmunization((org.hl7.fhir.dstu3.model.Immunization) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.ImplementationGuide)
-      return ImplementationGuide30_50.convertImplementationGuide((org.hl7.fhir.dstu3.model.ImplementationGuide) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Library)
-      return Library30_50.convertLibrary((org.hl7.fhir.dstu3.model.Library) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Linkage)
-      return Linkage30_50.convertLinkage((org.hl7.fhir.dstu3.model.Linkage) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.ListResource)
-      return List30_50.convertList((org.hl7.fhir.dstu3.model.ListResource) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Location)
-      return Location30_50.convertLocation((org.hl7.fhir.dstu3.model.Location) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Measure)
-      return Measure30_50.convertMeasure((org.hl7.fhir.dstu3.model.Measure) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Media)
-      return Media30_50.convertMedia((org.hl7.fhir.dstu3.model.Media) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Medication)
-      return Medication30_50.convertMedication((org.hl7.fhir.dstu3.model.Medication) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.MedicationAdministration)
-      return MedicationAdministration30_50.convertMedicationAdministration((org.hl7.fhir.dstu3.model.MedicationAdministration) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.MedicationDispense)
-      return MedicationDispense30_50.convertMedicationDispense((org.hl7.fhir.dstu3.model.MedicationDispense) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.MedicationRequest)
-      return MedicationRequest30_50.convertMedicationRequest((org.hl7.fhir.dstu3.model.MedicationRequest) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.MedicationStatement)
-      return MedicationStatement30_50.convertMedicationStatement((org.hl7.fhir.dstu3.model.MedicationStatement) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.MessageDefinition)
-      return MessageDefinition30_50.convertMessageDefinition((org.hl7.fhir.dstu3.model.MessageDefinition) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.MessageHeader)
-      return MessageHeader30_50.convertMessageHeader((org.hl7.fhir.dstu3.model.MessageHeader) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.NamingSystem)
-      return NamingSystem30_50.convertNamingSystem((org.hl7.fhir.dstu3.model.NamingSystem) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Observation)
-      return Observation30_50.convertObservation((org.hl7.fhir.dstu3.model.Observation) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.OperationDefinition)
-      return OperationDefinition30_50.convertOperationDefinition((org.hl7.fhir.dstu3.model.OperationDefinition) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.OperationOutcome)
-      return OperationOutcome30_50.convertOperationOutcome((org.hl7.fhir.dstu3.model.OperationOutcome) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Organization)
-      return Organization30_50.convertOrganization((org.hl7.fhir.dstu3.model.Organization) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Patient)
-      return Patient30_50.convertPatient((org.hl7.fhir.dstu3.model.Patient) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.PaymentNotice)
-      return PaymentNotice30_50.convertPaymentNotice((org.hl7.fhir.dstu3.model.PaymentNotice) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Person)
-      return Person30_50.convertPerson((org.hl7.fhir.dstu3.model.Person) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.PlanDefinition)
-      return PlanDefinition30_50.convertPlanDefinition((org.hl7.fhir.dstu3.model.PlanDefinition) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Practitioner)
-      return Practitioner30_50.convertPractitioner((org.hl7.fhir.dstu3.model.Practitioner) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.PractitionerRole)
-      return PractitionerRole30_50.convertPractitionerRole((org.hl7.fhir.dstu3.model.PractitionerRole) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Provenance)
-      return Provenance30_50.convertProvenance((org.hl7.fhir.dstu3.model.Provenance) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Questionnaire)
-      return Questionnaire30_50.convertQuestionnaire((org.hl7.fhir.dstu3.model.Questionnaire) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.QuestionnaireResponse)
-      return QuestionnaireResponse30_50.convertQuestionnaireResponse((org.hl7.fhir.dstu3.model.QuestionnaireResponse) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.RelatedPerson)
-      return RelatedPerson30_50.convertRelatedPerson((org.hl7.fhir.dstu3.model.RelatedPerson) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.RiskAssessment)
-      return RiskAssessment30_50.convertRiskAssessment((org.hl7.fhir.dstu3.model.RiskAssessment) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Schedule)
-      return Schedule30_50.convertSchedule((org.hl7.fhir.dstu3.model.Schedule) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.SearchParameter)
-      return SearchParameter30_50.convertSearchParameter((org.hl7.fhir.dstu3.model.SearchParameter) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Sequence)
-      return Sequence30_50.convertSequence((org.hl7.fhir.dstu3.model.Sequence) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Slot) return Slot30_50.convertSlot((org.hl7.fhir.dstu3.model.Slot) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Specimen)
-      return Specimen30_50.convertSpecimen((org.hl7.fhir.dstu3.model.Specimen) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.StructureDefinition)
-      return StructureDefinition30_50.convertStructureDefinition((org.hl7.fhir.dstu3.model.StructureDefinition) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.StructureMap)
-      return StructureMap30_50.convertStructureMap((org.hl7.fhir.dstu3.model.StructureMap) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.Substance)
-      return Substance30_50.convertSubstance((org.hl7.fhir.dstu3.model.Substance) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.SupplyDelivery)
-      return SupplyDelivery30_50.convertSupplyDelivery((org.hl7.fhir.dstu3.model.SupplyDelivery) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.TestReport)
-      return TestReport30_50.convertTestReport((org.hl7.fhir.dstu3.model.TestReport) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.TestScript)
-      return TestScript30_50.convertTestScript((org.hl7.fhir.dstu3.model.TestScript) src);
-    if (src instanceof org.hl7.fhir.dstu3.model.ValueSet)
-      return ValueSet30_50.convertValueSet((org.hl7.fhir.dstu3.model.ValueSet) src);
+    Function<org.hl7.fhir.dstu3.model.Resource, org.hl7.fhir.r5.model.Resource> conversion = RESOURCES_30_50.get(src.getClass());
+    if (conversion != null)
+      return conversion.apply(src);
     if (!nullOk) throw new FHIRException("Unknown resource " + src.fhirType());
     else return null;
   }
 
-  public static org.hl7.fhir.dstu3.model.Resource convertResource(org.hl7.fhir.r5.model.Resource src, boolean nullOk) throws FHIRException {
-    if (src == null) return null;
-    if (src instanceof org.hl7.fhir.r5.model.Parameters) {
+  private static final ConversionDispatcher<Function<org.hl7.fhir.r5.model.Resource, org.hl7.fhir.dstu3.model.Resource>> RESOURCES_50_30 = new ConversionDispatcher<Function<org.hl7.fhir.r5.model.Resource, org.hl7.fhir.dstu3.model.Resource>>()
+    .add(org.hl7.fhir.r5.model.Parameters.class, src -> {
       if (((org.hl7.fhir.r5.model.Parameters) src).hasParameter("profile-url"))
         return ExpansionProfile30_50.convertExpansionProfile((org.hl7.fhir.r5.model.Parameters) src);
       else return Parameters30_50.convertParameters((org.hl7.fhir.r5.model.Parameters) src);
-    }
-    if (src instanceof org.hl7.fhir.r5.model.ActivityDefinition)
-      return ActivityDefinition30_50.convertActivityDefinition((org.hl7.fhir.r5.model.ActivityDefinition) src);
-    if (src instanceof org.hl7.fhir.r5.model.AllergyIntolerance)
-      return AllergyIntolerance30_50.convertAllergyIntolerance((org.hl7.fhir.r5.model.AllergyIntolerance) src);
-    if (src instanceof org.hl7.fhir.r5.model.Appointment)
-      return Appointment30_50.convertAppointment((org.hl7.fhir.r5.model.Appointment) src);
-    if (src instanceof org.hl7.fhir.r5.model.AppointmentResponse)
-      return AppointmentResponse30_50.convertAppointmentResponse((org.hl7.fhir.r5.model.AppointmentResponse) src);
-    if (src instanceof org.hl7.fhir.r5.model.AuditEvent)
-      return AuditEvent30_50.convertAuditEvent((org.hl7.fhir.r5.model.AuditEvent) src);
-    if (src instanceof org.hl7.fhir.r5.model.Basic) return Basic30_50.convertBasic((org.hl7.fhir.r5.model.Basic) src);
-    if (src instanceof org.hl7.fhir.r5.model.Binary)
-      return Binary30_50.convertBinary((org.hl7.fhir.r5.model.Binary) src);
-    if (src instanceof org.hl7.fhir.r5.model.BodyStructure)
-      return BodySite30_50.convertBodySite((org.hl7.fhir.r5.model.BodyStructure) src);
-    if (src instanceof org.hl7.fhir.r5.model.Bundle)
-      return Bundle30_50.convertBundle((org.hl7.fhir.r5.model.Bundle) src);
-    if (src instanceof org.hl7.fhir.r5.model.CapabilityStatement)
-      return CapabilityStatement30_50.convertCapabilityStatement((org.hl7.fhir.r5.model.CapabilityStatement) src);
-    if (src instanceof org.hl7.fhir.r5.model.CarePlan)
-      return CarePlan30_50.convertCarePlan((org.hl7.fhir.r5.model.CarePlan) src);
-    if (src instanceof org.hl7.fhir.r5.model.CareTeam)
-      return CareTeam30_50.convertCareTeam((org.hl7.fhir.r5.model.CareTeam) src);
-    if (src instanceof org.hl7.fhir.r5.model.ClinicalImpression)
-      return ClinicalImpression30_50.convertClinicalImpression((org.hl7.fhir.r5.model.ClinicalImpression) src);
-    if (src instanceof org.hl7.fhir.r5.model.CodeSystem)
-      return CodeSystem30_50.convertCodeSystem((org.hl7.fhir.r5.model.CodeSystem) src);
-    if (src instanceof org.hl7.fhir.r5.model.Communication)
-      return Communication30_50.convertCommunication((org.hl7.fhir.r5.model.Communication) src);
-    if (src instanceof org.hl7.fhir.r5.model.CompartmentDefinition)
-      return CompartmentDefinition30_50.convertCompartmentDefinition((org.hl7.fhir.r5.model.CompartmentDefinition) src);
-    if (src instanceof org.hl7.fhir.r5.model.Composition)
-      return Composition30_50.convertComposition((org.hl7.fhir.r5.model.Composition) src);
-    if (src instanceof org.hl7.fhir.r5.model.ConceptMap)
-      return ConceptMap30_50.convertConceptMap((org.hl7.fhir.r5.model.ConceptMap) src);
-    if (src instanceof org.hl7.fhir.r5.model.Condition)
-      return Condition30_50.convertCondition((org.hl7.fhir.r5.model.Condition) src);
-    if (src instanceof org.hl7.fhir.r5.model.Consent)
-      return Consent30_50.convertConsent((org.hl7.fhir.r5.model.Consent) src);
-    if (src instanceof org.hl7.fhir.r5.model.DetectedIssue)
-      return DetectedIssue30_50.convertDetectedIssue((org.hl7.fhir.r5.model.DetectedIssue) src);
-    if (src instanceof org.hl7.fhir.r5.model.DeviceUseStatement)
-      return DeviceUseStatement30_50.convertDeviceUseStatement((org.hl7.fhir.r5.model.DeviceUseStatement) src);
-    if (src instanceof org.hl7.fhir.r5.model.DiagnosticReport)
-      return DiagnosticReport30_50.convertDiagnosticReport((org.hl7.fhir.r5.model.DiagnosticReport) src);
-    if (src instanceof org.hl7.fhir.r5.model.DocumentReference)
-      return DocumentReference30_50.convertDocumentReference((org.hl7.fhir.r5.model.DocumentReference) src);
-    if (src instanceof org.hl7.fhir.r5.model.Encounter)
-      return Encounter30_50.convertEncounter((org.hl7.fhir.r5.model.Encounter) src);
-    if (src instanceof org.hl7.fhir.r5.model.Endpoint)
-      return Endpoint30_50.convertEndpoint((org.hl7.fhir.r5.model.Endpoint) src);
-    if (src instanceof org.hl7.fhir.r5.model.EpisodeOfCare)
-      return EpisodeOfCare30_50.convertEpisodeOfCare((org.hl7.fhir.r5.model.EpisodeOfCare) src);
-    if (src instanceof org.hl7.fhir.r5.model.FamilyMemberHistory)
-      return FamilyMemberHistory30_50.convertFamilyMemberHistory((org.hl7.fhir.r5.model.FamilyMemberHistory) src);
-    if (src instanceof org.hl7.fhir.r5.model.Flag) return Flag30_50.convertFlag((org.hl7.fhir.r5.model.Flag) src);
-    if (src instanceof org.hl7.fhir.r5.model.Goal) return Goal30_50.convertGoal((org.hl7.fhir.r5.model.Goal) src);
-    if (src instanceof org.hl7.fhir.r5.model.GraphDefinition)
-      return GraphDefinition30_50.convertGraphDefinition((org.hl7.fhir.r5.model.GraphDefinition) src);
-    if (src instanceof org.hl7.fhir.r5.model.Group) return Group30_50.convertGroup((org.hl7.fhir.r5.model.Group) src);
-    if (src instanceof org.hl7.fhir.r5.model.HealthcareService)
-      return HealthcareService30_50.convertHealthcareService((org.hl7.fhir.r5.model.HealthcareService) src);
-    if (src instanceof org.hl7.fhir.r5.model.ImagingStudy)
-      return ImagingStudy30_50.convertImagingStudy((org.hl7.fhir.r5.model.ImagingStudy) src);
-    if (src instanceof org.hl7.fhir.r5.model.Immunization)
-      return Immunization30_50.convertImmunization((org.hl7.fhir.r5.model.Immunization) src);
-    if (src instanceof org.hl7.fhir.r5.model.ImplementationGuide)
-      return ImplementationGuide30_50.convertImplementationGuide((org.hl7.fhir.r5.model.ImplementationGuide) src);
-    if (src instanceof org.hl7.fhir.r5.model.Library)
-      return Library30_50.convertLibrary((org.hl7.fhir.r5.model.Library) src);
-    if (src instanceof org.hl7.fhir.r5.model.Linkage)
-      return Linkage30_50.convertLinkage((org.hl7.fhir.r5.model.Linkage) src);
-    if (src instanceof org.hl7.fhir.r5.model.ListResource)
-      return List30_50.convertList((org.hl7.fhir.r5.model.ListResource) src);
-    if (src instanceof org.hl7.fhir.r5.model.Location)
-      return Location30_50.convertLocation((org.hl7.fhir.r5.model.Location) src);
-    if (src instanceof org.hl7.fhir.r5.model.Measure)
-      return Measure30_50.convertMeasure((org.hl7.fhir.r5.model.Measure) src);
-    if (src instanceof org.hl7.fhir.r5.model.DocumentReference)
-      return Media30_50.convertMedia((org.hl7.fhir.r5.model.DocumentReference) src);
-    if (src instanceof org.hl7.fhir.r5.model.Medication)
-      return Medication30_50.convertMedication((org.hl7.fhir.r5.model.Medication) src);
-    if (src instanceof org.hl7.fhir.r5.model.MedicationAdministration)
-      return MedicationAdministration30_50.convertMedicationAdministration((org.hl7.fhir.r5.model.MedicationAdministration) src);
-    if (src instanceof org.hl7.fhir.r5.model.MedicationDispense)
-      return MedicationDispense30_50.convertMedicationDispense((org.hl7.fhir.r5.model.MedicationDispense) src);
-    if (src instanceof org.hl7.fhir.r5.model.MedicationRequest)
-      return MedicationRequest30_50.convertMedicationRequest((org.hl7.fhir.r5.model.MedicationRequest) src);
-    if (src instanceof org.hl7.fhir.r5.model.MedicationUsage)
-      return MedicationStatement30_50.convertMedicationStatement((org.hl7.fhir.r5.model.MedicationUsage) src);
-    if (src instanceof org.hl7.fhir.r5.model.MessageDefinition)
-      return MessageDefinition30_50.convertMessageDefinition((org.hl7.fhir.r5.model.MessageDefinition) src);
-    if (src instanceof org.hl7.fhir.r5.model.MessageHeader)
-      return MessageHeader30_50.convertMessageHeader((org.hl7.fhir.r5.model.MessageHeader) src);
-    if (src instanceof org.hl7.fhir.r5.model.NamingSystem)
-      return NamingSystem30_50.convertNamingSystem((org.hl7.fhir.r5.model.NamingSystem) src);
-    if (src instanceof org.hl7.fhir.r5.model.Observation)
-      return Observation30_50.convertObservation((org.hl7.fhir.r5.model.Observation) src);
-    if (src instanceof org.hl7.fhir.r5.model.OperationDefinition)
-      return OperationDefinition30_50.convertOperationDefinition((org.hl7.fhir.r5.model.OperationDefinition) src);
-    if (src instanceof org.hl7.fhir.r5.model.OperationOutcome)
-      return OperationOutcome30_50.convertOperationOutcome((org.hl7.fhir.r5.model.OperationOutcome) src);
-    if (src instanceof org.hl7.fhir.r5.model.Organization)
-      return Organization30_50.convertOrganization((org.hl7.fhir.r5.model.Organization) src);
-    if (src instanceof org.hl7.fhir.r5.model.Patient)
-      return Patient30_50.convertPatient((org.hl7.fhir.r5.model.Patient) src);
-    if (src instanceof org.hl7.fhir.r5.model.PaymentNotice)
-      return PaymentNotice30_50.convertPaymentNotice((org.hl7.fhir.r5.model.PaymentNotice) src);
-    if (src instanceof org.hl7.fhir.r5.model.Person)
-      return Person30_50.convertPerson((org.hl7.fhir.r5.model.Person) src);
-    if (src instanceof org.hl7.fhir.r5.model.PlanDefinition)
-      return PlanDefinition30_50.convertPlanDefinition((org.hl7.fhir.r5.model.PlanDefinition) src);
-    if (src instanceof org.hl7.fhir.r5.model.Practitioner)
-      return Practitioner30_50.convertPractitioner((org.hl7.fhir.r5.model.Practitioner) src);
-    if (src instanceof org.hl7.fhir.r5.model.PractitionerRole)
-      return PractitionerRole30_50.convertPractitionerRole((org.hl7.fhir.r5.model.PractitionerRole) src);
-    if (src instanceof org.hl7.fhir.r5.model.Provenance)
-      return Provenance30_50.convertProvenance((org.hl7.fhir.r5.model.Provenance) src);
-    if (src instanceof org.hl7.fhir.r5.model.Questionnaire)
-      return Questionnaire30_50.convertQuestionnaire((org.hl7.fhir.r5.model.Questionnaire) src);
-    if (src instanceof org.hl7.fhir.r5.model.QuestionnaireResponse)
-      return QuestionnaireResponse30_50.convertQuestionnaireResponse((org.hl7.fhir.r5.model.QuestionnaireResponse) src);
-    if (src instanceof org.hl7.fhir.r5.model.RelatedPerson)
-      return RelatedPerson30_50.convertRelatedPerson((org.hl7.fhir.r5.model.RelatedPerson) src);
-    if (src instanceof org.hl7.fhir.r5.model.RiskAssessment)
-      return RiskAssessment30_50.convertRiskAssessment((org.hl7.fhir.r5.model.RiskAssessment) src);
-    if (src instanceof org.hl7.fhir.r5.model.Schedule)
-      return Schedule30_50.convertSchedule((org.hl7.fhir.r5.model.Schedule) src);
-    if (src instanceof org.hl7.fhir.r5.model.SearchParameter)
-      return SearchParameter30_50.convertSearchParameter((org.hl7.fhir.r5.model.SearchParameter) src);
-    if (src instanceof org.hl7.fhir.r5.model.MolecularSequence)
-      return Sequence30_50.convertSequence((org.hl7.fhir.r5.model.MolecularSequence) src);
-    if (src instanceof org.hl7.fhir.r5.model.Slot) return Slot30_50.convertSlot((org.hl7.fhir.r5.model.Slot) src);
-    if (src instanceof org.hl7.fhir.r5.model.Specimen)
-      return Specimen30_50.convertSpecimen((org.hl7.fhir.r5.model.Specimen) src);
-    if (src instanceof org.hl7.fhir.r5.model.StructureDefinition)
-      return StructureDefinition30_50.convertStructureDefinition((org.hl7.fhir.r5.model.StructureDefinition) src);
-    if (src instanceof org.hl7.fhir.r5.model.StructureMap)
-      return StructureMap30_50.convertStructureMap((org.hl7.fhir.r5.model.StructureMap) src);
-    if (src instanceof org.hl7.fhir.r5.model.Substance)
-      return Substance30_50.convertSubstance((org.hl7.fhir.r5.model.Substance) src);
-    if (src instanceof org.hl7.fhir.r5.model.SupplyDelivery)
-      return SupplyDelivery30_50.convertSupplyDelivery((org.hl7.fhir.r5.model.SupplyDelivery) src);
-    if (src instanceof org.hl7.fhir.r5.model.TestReport)
-      return TestReport30_50.convertTestReport((org.hl7.fhir.r5.model.TestReport) src);
-    if (src instanceof org.hl7.fhir.r5.model.TestScript)
-      return TestScript30_50.convertTestScript((org.hl7.fhir.r5.model.TestScript) src);
-    if (src instanceof org.hl7.fhir.r5.model.ValueSet)
-      return ValueSet30_50.convertValueSet((org.hl7.fhir.r5.model.ValueSet) src);
+    })
+    .add(org.hl7.fhir.r5.model.ActivityDefinition.class,
+      src -> ActivityDefinition30_50.convertActivityDefinition((org.hl7.fhir.r5.model.ActivityDefinition) src))
+    .add(org.hl7.fhir.r5.model.AllergyIntolerance.class,
+      src -> AllergyIntolerance30_50.convertAllergyIntolerance((org.hl7.fhir.r5.model.AllergyIntolerance) src))
+    .add(org.hl7.fhir.r5.model.Appointment.class,
+      src -> Appointment30_50.convertAppointment((org.hl7.fhir.r5.model.Appointment) src))
+    .add(org.hl7.fhir.r5.model.AppointmentResponse.class,
+      src -> AppointmentResponse30_50.convertAppointmentResponse((org.hl7.fhir.r5.model.AppointmentResponse) src))
+    .add(org.hl7.fhir.r5.model.AuditEvent.class,
+      src -> AuditEvent30_50.convertAuditEvent((org.hl7.fhir.r5.model.AuditEvent) src))
+    .add(org.hl7.fhir.r5.model.Basic.class,
+      src -> Basic30_50.convertBasic((org.hl7.fhir.r5.model.Basic) src))
+    .add(org.hl7.fhir.r5.model.Binary.class,
+      src -> Binary30_50.convertBinary((org.hl7.fhir.r5.model.Binary) src))
+    .add(org.hl7.fhir.r5.model.BodyStructure.class,
+      src -> BodySite30_50.convertBodySite((org.hl7.fhir.r5.model.BodyStructure) src))
+    .add(org.hl7.fhir.r5.model.Bundle.class,
+      src -> Bundle30_50.convertBundle((org.hl7.fhir.r5.model.Bundle) src))
+    .add(org.hl7.fhir.r5.model.CapabilityStatement.class,
+      src -> CapabilityStatement30_50.convertCapabilityStatement((org.hl7.fhir.r5.model.CapabilityStatement) src))
+    .add(org.hl7.fhir.r5.model.CarePlan.class,
+      src -> CarePlan30_50.convertCarePlan((org.hl7.fhir.r5.model.CarePlan) src))
+    .add(org.hl7.fhir.r5.model.CareTeam.class,
+      src -> CareTeam30_50.convertCareTeam((org.hl7.fhir.r5.model.CareTeam) src))
+    .add(org.hl7.fhir.r5.model.ClinicalImpression.class,
+      src -> ClinicalImpression30_50.convertClinicalImpression((org.hl7.fhir.r5.model.ClinicalImpression) src))
+    .add(org.hl7.fhir.r5.model.CodeSystem.class,
+      src -> CodeSystem30_50.convertCodeSystem((org.hl7.fhir.r5.model.CodeSystem) src))
+    .add(org.hl7.fhir.r5.model.Communication.class,
+      src -> Communication30_50.convertCommunication((org.hl7.fhir.r5.model.Communication) src))
+    .add(org.hl7.fhir.r5.model.CompartmentDefinition.class,
+      src -> CompartmentDefinition30_50.convertCompartmentDefinition((org.hl7.fhir.r5.model.CompartmentDefinition) src))
+    .add(org.hl7.fhir.r5.model.Composition.class,
+      src -> Composition30_50.convertComposition((org.hl7.fhir.r5.model.Composition) src))
+    .add(org.hl7.fhir.r5.model.ConceptMap.class,
+      src -> ConceptMap30_50.convertConceptMap((org.hl7.fhir.r5.model.ConceptMap) src))
+    .add(org.hl7.fhir.r5.model.Condition.class,
+      src -> Condition30_50.convertCondition((org.hl7.fhir.r5.model.Condition) src))
+    .add(org.hl7.fhir.r5.model.Consent.class,
+      src -> Consent30_50.convertConsent((org.hl7.fhir.r5.model.Consent) src))
+    .add(org.hl7.fhir.r5.model.DetectedIssue.class,
+      src -> DetectedIssue30_50.convertDetectedIssue((org.hl7.fhir.r5.model.DetectedIssue) src))
+    .add(org.hl7.fhir.r5.model.DeviceUseStatement.class,
+      src -> DeviceUseStatement30_50.convertDeviceUseStatement((org.hl7.fhir.r5.model.DeviceUseStatement) src))
+    .add(org.hl7.fhir.r5.model.DiagnosticReport.class,
+      src -> DiagnosticReport30_50.convertDiagnosticReport((org.hl7.fhir.r5.model.DiagnosticReport) src))
+    .add(org.hl7.fhir.r5.model.DocumentReference.class,
+      src -> DocumentReference30_50.convertDocumentReference((org.hl7.fhir.r5.model.DocumentReference) src))
+    .add(org.hl7.fhir.r5.model.Encounter.class,
+      src -> Encounter30_50.convertEncounter((org.hl7.fhir.r5.model.Encounter) src))
+    .add(org.hl7.fhir.r5.model.Endpoint.class,
+      src -> Endpoint30_50.convertEndpoint((org.hl7.fhir.r5.model.Endpoint) src))
+    .add(org.hl7.fhir.r5.model.EpisodeOfCare.class,
+      src -> EpisodeOfCare30_50.convertEpisodeOfCare((org.hl7.fhir.r5.model.EpisodeOfCare) src))
+    .add(org.hl7.fhir.r5.model.FamilyMemberHistory.class,
+      src -> FamilyMemberHistory30_50.convertFamilyMemberHistory((org.hl7.fhir.r5.model.FamilyMemberHistory) src))
+    .add(org.hl7.fhir.r5.model.Flag.class,
+      src -> Flag30_50.convertFlag((org.hl7.fhir.r5.model.Flag) src))
+    .add(org.hl7.fhir.r5.model.Goal.class,
+      src -> Goal30_50.convertGoal((org.hl7.fhir.r5.model.Goal) src))
+    .add(org.hl7.fhir.r5.model.GraphDefinition.class,
+      src -> GraphDefinition30_50.convertGraphDefinition((org.hl7.fhir.r5.model.GraphDefinition) src))
+    .add(org.hl7.fhir.r5.model.Group.class,
+      src -> Group30_50.convertGroup((org.hl7.fhir.r5.model.Group) src))
+    .add(org.hl7.fhir.r5.model.HealthcareService.class,
+      src -> HealthcareService30_50.convertHealthcareService((org.hl7.fhir.r5.model.HealthcareService) src))
+    .add(org.hl7.fhir.r5.model.ImagingStudy.class,
+      src -> ImagingStudy30_50.convertImagingStudy((org.hl7.fhir.r5.model.ImagingStudy) src))
+    .add(org.hl7.fhir.r5.model.Immunization.class,
+      src -> Immunization30_50.convertImmunization((org.hl7.fhir.r5.model.Immunization) src))
+    .add(org.hl7.fhir.r5.model.ImplementationGuide.class,
+      src -> ImplementationGuide30_50.convertImplementationGuide((org.hl7.fhir.r5.model.ImplementationGuide) src))
+    .add(org.hl7.fhir.r5.model.Library.class,
+      src -> Library30_50.convertLibrary((org.hl7.fhir.r5.model.Library) src))
+    .add(org.hl7.fhir.r5.model.Linkage.class,
+      src -> Linkage30_50.convertLinkage((org.hl7.fhir.r5.model.Linkage) src))
+    .add(org.hl7.fhir.r5.model.ListResource.class,
+      src -> List30_50.convertList((org.hl7.fhir.r5.model.ListResource) src))
+    .add(org.hl7.fhir.r5.model.Location.class,
+      src -> Location30_50.convertLocation((org.hl7.fhir.r5.model.Location) src))
+    .add(org.hl7.fhir.r5.model.Measure.class,
+      src -> Measure30_50.convertMeasure((org.hl7.fhir.r5.model.Measure) src))
+    .add(org.hl7.fhir.r5.model.DocumentReference.class,
+      src -> Media30_50.convertMedia((org.hl7.fhir.r5.model.DocumentReference) src))
+    .add(org.hl7.fhir.r5.model.Medication.class,
+      src -> Medication30_50.convertMedication((org.hl7.fhir.r5.model.Medication) src))
+    .add(org.hl7.fhir.r5.model.MedicationAdministration.class,
+      src -> MedicationAdministration30_50.convertMedicationAdministration((org.hl7.fhir.r5.model.MedicationAdministration) src))
+    .add(org.hl7.fhir.r5.model.MedicationDispense.class,
+      src -> MedicationDispense30_50.convertMedicationDispense((org.hl7.fhir.r5.model.MedicationDispense) src))
+    .add(org.hl7.fhir.r5.model.MedicationRequest.class,
+      src -> MedicationRequest30_50.convertMedicationRequest((org.hl7.fhir.r5.model.MedicationRequest) src))
+    .add(org.hl7.fhir.r5.model.MedicationUsage.class,
+      src -> MedicationStatement30_50.convertMedicationStatement((org.hl7.fhir.r5.model.MedicationUsage) src))
+    .add(org.hl7.fhir.r5.model.MessageDefinition.class,
+      src -> MessageDefinition30_50.convertMessageDefinition((org.hl7.fhir.r5.model.MessageDefinition) src))
+    .add(org.hl7.fhir.r5.model.MessageHeader.class,
+      src -> MessageHeader30_50.convertMessageHeader((org.hl7.fhir.r5.model.MessageHeader) src))
+    .add(org.hl7.fhir.r5.model.NamingSystem.class,
+      src -> NamingSystem30_50.convertNamingSystem((org.hl7.fhir.r5.model.NamingSystem) src))
+    .add(org.hl7.fhir.r5.model.Observation.class,
+      src -> Observation30_50.convertObservation((org.hl7.fhir.r5.model.Observation) src))
+    .add(org.hl7.fhir.r5.model.OperationDefinition.class,
+      src -> OperationDefinition30_50.convertOperationDefinition((org.hl7.fhir.r5.model.OperationDefinition) src))
+    .add(org.hl7.fhir.r5.model.OperationOutcome.class,
+      src -> OperationOutcome30_50.convertOperationOutcome((org.hl7.fhir.r5.model.OperationOutcome) src))
+    .add(org.hl7.fhir.r5.model.Organization.class,
+      src -> Organization30_50.convertOrganization((org.hl7.fhir.r5.model.Organization) src))
+    .add(org.hl7.fhir.r5.model.Patient.class,
+      src -> Patient30_50.convertPatient((org.hl7.fhir.r5.model.Patient) src))
+    .add(org.hl7.fhir.r5.model.PaymentNotice.class,
+      src -> PaymentNotice30_50.convertPaymentNotice((org.hl7.fhir.r5.model.PaymentNotice) src))
+    .add(org.hl7.fhir.r5.model.Person.class,
+      src -> Person30_50.convertPerson((org.hl7.fhir.r5.model.Person) src))
+    .add(org.hl7.fhir.r5.model.PlanDefinition.class,
+      src -> PlanDefinition30_50.convertPlanDefinition((org.hl7.fhir.r5.model.PlanDefinition) src))
+    .add(org.hl7.fhir.r5.model.Practitioner.class,
+      src -> Practitioner30_50.convertPractitioner((org.hl7.fhir.r5.model.Practitioner) src))
+    .add(org.hl7.fhir.r5.model.PractitionerRole.class,
+      src -> PractitionerRole30_50.convertPractitionerRole((org.hl7.fhir.r5.model.PractitionerRole) src))
+    .add(org.hl7.fhir.r5.model.Provenance.class,
+      src -> Provenance30_50.convertProvenance((org.hl7.fhir.r5.model.Provenance) src))
+    .add(org.hl7.fhir.r5.model.Questionnaire.class,
+      src -> Questionnaire30_50.convertQuestionnaire((org.hl7.fhir.r5.model.Questionnaire) src))
+    .add(org.hl7.fhir.r5.model.QuestionnaireResponse.class,
+      src -> QuestionnaireResponse30_50.convertQuestionnaireResponse((org.hl7.fhir.r5.model.QuestionnaireResponse) src))
+    .add(org.hl7.fhir.r5.model.RelatedPerson.class,
+      src -> RelatedPerson30_50.convertRelatedPerson((org.hl7.fhir.r5.model.RelatedPerson) src))
+    .add(org.hl7.fhir.r5.model.RiskAssessment.class,
+      src -> RiskAssessment30_50.convertRiskAssessment((org.hl7.fhir.r5.model.RiskAssessment) src))
+    .add(org.hl7.fhir.r5.model.Schedule.class,
+      src -> Schedule30_50.convertSchedule((org.hl7.fhir.r5.model.Schedule) src))
+    .add(org.hl7.fhir.r5.model.SearchParameter.class,
+      src -> SearchParameter30_50.convertSearchParameter((org.hl7.fhir.r5.model.SearchParameter) src))
+    .add(org.hl7.fhir.r5.model.MolecularSequence.class,
+      src -> Sequence30_50.convertSequence((org.hl7.fhir.r5.model.MolecularSequence) src))
+    .add(org.hl7.fhir.r5.model.Slot.class,
+      src -> Slot30_50.convertSlot((org.hl7.fhir.r5.model.Slot) src))
+    .add(org.hl7.fhir.r5.model.Specimen.class,
+      src -> Specimen30_50.convertSpecimen((org.hl7.fhir.r5.model.Specimen) src))
+    .add(org.hl7.fhir.r5.model.StructureDefinition.class,
+      src -> StructureDefinition30_50.convertStructureDefinition((org.hl7.fhir.r5.model.StructureDefinition) src))
+    .add(org.hl7.fhir.r5.model.StructureMap.class,
+      src -> StructureMap30_50.convertStructureMap((org.hl7.fhir.r5.model.StructureMap) src))
+    .add(org.hl7.fhir.r5.model.Substance.class,
+      src -> Substance30_50.convertSubstance((org.hl7.fhir.r5.model.Substance) src))
+    .add(org.hl7.fhir.r5.model.SupplyDelivery.class,
+      src -> SupplyDelivery30_50.convertSupplyDelivery((org.hl7.fhir.r5.model.SupplyDelivery) src))
+    .add(org.hl7.fhir.r5.model.TestReport.class,
+      src -> TestReport30_50.convertTestReport((org.hl7.fhir.r5.model.TestReport) src))
+    .add(org.hl7.fhir.r5.model.TestScript.class,
+      src -> TestScript30_50.convertTestScript((org.hl7.fhir.r5.model.TestScript) src))
+    .add(org.hl7.fhir.r5.model.ValueSet.class,
+      src -> ValueSet30_50.convertValueSet((org.hl7.fhir.r5.model.ValueSet) src));
+
+  public static org.hl7.fhir.dstu3.model.Resource convertResource(org.hl7.fhir.r5.model.Resource src, boolean nullOk) throws FHIRException {
+    if (src == null) return null;
+    Function<org.hl7.fhir.r5.model.Resource, org.hl7.fhir.dstu3.model.Resource> conversion = RESOURCES_50_30.get(src.getClass());
+    if (conversion != null)
+      return conversion.apply(src);
     if (!nullOk) throw new FHIRException("Unknown resource " + src.fhirType());
     else return null;
   }
@@ -4,6 +4,7 @@ import org.hl7.fhir.convertors.conv40_50.*;
 import org.hl7.fhir.exceptions.FHIRException;
 import org.hl7.fhir.r5.model.CodeableReference;
 
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /*
@@ -3192,197 +3193,263 @@ public class VersionConvertor_40_50 {
     return tgt;
   }
 
+  private static final ConversionDispatcher<Function<org.hl7.fhir.r4.model.Type, org.hl7.fhir.r5.model.DataType>> TYPES_40_50 = new ConversionDispatcher<Function<org.hl7.fhir.r4.model.Type, org.hl7.fhir.r5.model.DataType>>()
+    .add(org.hl7.fhir.r4.model.Base64BinaryType.class,
+      src -> convertBase64Binary((org.hl7.fhir.r4.model.Base64BinaryType) src))
+    .add(org.hl7.fhir.r4.model.BooleanType.class,
+      src -> convertBoolean((org.hl7.fhir.r4.model.BooleanType) src))
+    .add(org.hl7.fhir.r4.model.CanonicalType.class,
+      src -> convertCanonical((org.hl7.fhir.r4.model.CanonicalType) src))
+    .add(org.hl7.fhir.r4.model.CodeType.class,
+      src -> convertCode((org.hl7.fhir.r4.model.CodeType) src))
+    .add(org.hl7.fhir.r4.model.DateType.class,
+      src -> convertDate((org.hl7.fhir.r4.model.DateType) src))
+    .add(org.hl7.fhir.r4.model.DateTimeType.class,
+      src -> convertDateTime((org.hl7.fhir.r4.model.DateTimeType) src))
+    .add(org.hl7.fhir.r4.model.DecimalType.class,
+      src -> convertDecimal((org.hl7.fhir.r4.model.DecimalType) src))
+    .add(org.hl7.fhir.r4.model.IdType.class,
+      src -> convertId((org.hl7.fhir.r4.model.IdType) src))
+    .add(org.hl7.fhir.r4.model.InstantType.class,
+      src -> convertInstant((org.hl7.fhir.r4.model.InstantType) src))
+    .add(org.hl7.fhir.r4.model.UnsignedIntType.class,
+      src -> convertUnsignedInt((org.hl7.fhir.r4.model.UnsignedIntType) src))
+    .add(org.hl7.fhir.r4.model.PositiveIntType.class,
+      src -> convertPositiveInt((org.hl7.fhir.r4.model.PositiveIntType) src))
+    .add(org.hl7.fhir.r4.model.IntegerType.class,
+      src -> convertInteger((org.hl7.fhir.r4.model.IntegerType) src))
+    .add(org.hl7.fhir.r4.model.MarkdownType.class,
+      src -> convertMarkdown((org.hl7.fhir.r4.model.MarkdownType) src))
+    .add(org.hl7.fhir.r4.model.OidType.class,
+      src -> convertOid((org.hl7.fhir.r4.model.OidType) src))
+    .add(org.hl7.fhir.r4.model.StringType.class,
+      src -> convertString((org.hl7.fhir.r4.model.StringType) src))
+    .add(org.hl7.fhir.r4.model.TimeType.class,
+      src -> convertTime((org.hl7.fhir.r4.model.TimeType) src))
+    .add(org.hl7.fhir.r4.model.UrlType.class,
+      src -> convertUrl((org.hl7.fhir.r4.model.UrlType) src))
+    .add(org.hl7.fhir.r4.model.UuidType.class,
+      src -> convertUuid((org.hl7.fhir.r4.model.UuidType) src))
+    .add(org.hl7.fhir.r4.model.UriType.class,
+      src -> convertUri((org.hl7.fhir.r4.model.UriType) src))
+    .add(org.hl7.fhir.r4.model.Extension.class,
+      src -> convertExtension((org.hl7.fhir.r4.model.Extension) src))
+    .add(org.hl7.fhir.r4.model.Narrative.class,
+      src -> convertNarrative((org.hl7.fhir.r4.model.Narrative) src))
+    .add(org.hl7.fhir.r4.model.Address.class,
+      src -> convertAddress((org.hl7.fhir.r4.model.Address) src))
+    .add(org.hl7.fhir.r4.model.Age.class,
+      src -> convertAge((org.hl7.fhir.r4.model.Age) src))
+    .add(org.hl7.fhir.r4.model.Annotation.class,
+      src -> convertAnnotation((org.hl7.fhir.r4.model.Annotation) src))
+    .add(org.hl7.fhir.r4.model.Attachment.class,
+      src -> convertAttachment((org.hl7.fhir.r4.model.Attachment) src))
+    .add(org.hl7.fhir.r4.model.CodeableConcept.class,
+      src -> convertCodeableConcept((org.hl7.fhir.r4.model.CodeableConcept) src))
+    .add(org.hl7.fhir.r4.model.Coding.class,
+      src -> convertCoding((org.hl7.fhir.r4.model.Coding) src))
+    .add(org.hl7.fhir.r4.model.ContactDetail.class,
+      src -> convertContactDetail((org.hl7.fhir.r4.model.ContactDetail) src))
+    .add(org.hl7.fhir.r4.model.ContactPoint.class,
+      src -> convertContactPoint((org.hl7.fhir.r4.model.ContactPoint) src))
+    .add(org.hl7.fhir.r4.model.Contributor.class,
+      src -> convertContributor((org.hl7.fhir.r4.model.Contributor) src))
+    .add(org.hl7.fhir.r4.model.Count.class,
+      src -> convertCount((org.hl7.fhir.r4.model.Count) src))
+    .add(org.hl7.fhir.r4.model.DataRequirement.class,
+      src -> convertDataRequirement((org.hl7.fhir.r4.model.DataRequirement) src))
+    .add(org.hl7.fhir.r4.model.Distance.class,
+      src -> convertDistance((org.hl7.fhir.r4.model.Distance) src))
+    .add(org.hl7.fhir.r4.model.Dosage.class,
+      src -> convertDosage((org.hl7.fhir.r4.model.Dosage) src))
+    .add(org.hl7.fhir.r4.model.Duration.class,
+      src -> convertDuration((org.hl7.fhir.r4.model.Duration) src))
+    .add(org.hl7.fhir.r4.model.Expression.class,
+      src -> convertExpression((org.hl7.fhir.r4.model.Expression) src))
+    .add(org.hl7.fhir.r4.model.HumanName.class,
+      src -> convertHumanName((org.hl7.fhir.r4.model.HumanName) src))
+    .add(org.hl7.fhir.r4.model.Identifier.class,
+      src -> convertIdentifier((org.hl7.fhir.r4.model.Identifier) src))
+    .add(org.hl7.fhir.r4.model.MarketingStatus.class,
+      src -> convertMarketingStatus((org.hl7.fhir.r4.model.MarketingStatus) src))
+    .add(org.hl7.fhir.r4.model.Meta.class,
+      src -> convertMeta((org.hl7.fhir.r4.model.Meta) src))
+    .add(org.hl7.fhir.r4.model.Money.class,
+      src -> convertMoney((org.hl7.fhir.r4.model.Money) src))
+    .add(org.hl7.fhir.r4.model.ParameterDefinition.class,
+      src -> convertParameterDefinition((org.hl7.fhir.r4.model.ParameterDefinition) src))
+    .add(org.hl7.fhir.r4.model.Period.class,
+      src -> convertPeriod((org.hl7.fhir.r4.model.Period) src))
+    .add(org.hl7.fhir.r4.model.Population.class,
+      src -> convertPopulation((org.hl7.fhir.r4.model.Population) src))
+    .add(org.hl7.fhir.r4.model.ProdCharacteristic.class,
+      src -> convertProdCharacteristic((org.hl7.fhir.r4.model.ProdCharacteristic) src))
+    .add(org.hl7.fhir.r4.model.ProductShelfLife.class,
+      src -> convertProductShelfLife((org.hl7.fhir.r4.model.ProductShelfLife) src))
+    .add(org.hl7.fhir.r4.model.MoneyQuantity.class,
+      src -> convertMoneyQuantity((org.hl7.fhir.r4.model.MoneyQuantity) src))
+    .add(org.hl7.fhir.r4.model.SimpleQuantity.class,
+      src -> convertSimpleQuantity((org.hl7.fhir.r4.model.SimpleQuantity) src))
+    .add(org.hl7.fhir.r4.model.Quantity.class,
+      src -> convertQuantity((org.hl7.fhir.r4.model.Quantity) src))
+    .add(org.hl7.fhir.r4.model.Range.class,
+      src -> convertRange((org.hl7.fhir.r4.model.Range) src))
+    .add(org.hl7.fhir.r4.model.Ratio.class,
+      src -> convertRatio((org.hl7.fhir.r4.model.Ratio) src))
+    .add(org.hl7.fhir.r4.model.Reference.class,
+      src -> convertReference((org.hl7.fhir.r4.model.Reference) src))
+    .add(org.hl7.fhir.r4.model.RelatedArtifact.class,
+      src -> convertRelatedArtifact((org.hl7.fhir.r4.model.RelatedArtifact) src))
+    .add(org.hl7.fhir.r4.model.SampledData.class,
+      src -> convertSampledData((org.hl7.fhir.r4.model.SampledData) src))
+    .add(org.hl7.fhir.r4.model.Signature.class,
+      src -> convertSignature((org.hl7.fhir.r4.model.Signature) src))
+    .add(org.hl7.fhir.r4.model.SubstanceAmount.class,
+      src -> convertSubstanceAmount((org.hl7.fhir.r4.model.SubstanceAmount) src))
+    .add(org.hl7.fhir.r4.model.Timing.class,
+      src -> convertTiming((org.hl7.fhir.r4.model.Timing) src))
+    .add(org.hl7.fhir.r4.model.TriggerDefinition.class,
+      src -> convertTriggerDefinition((org.hl7.fhir.r4.model.TriggerDefinition) src))
+    .add(org.hl7.fhir.r4.model.UsageContext.class,
+      src -> convertUsageContext((org.hl7.fhir.r4.model.UsageContext) src))
+    .add(org.hl7.fhir.r4.model.ElementDefinition.class,
+      src -> convertElementDefinition((org.hl7.fhir.r4.model.ElementDefinition) src));
+
   public static org.hl7.fhir.r5.model.DataType convertType(org.hl7.fhir.r4.model.Type src) throws FHIRException {
     if (src == null) return null;
-    if (src instanceof org.hl7.fhir.r4.model.Base64BinaryType)
-      return convertBase64Binary((org.hl7.fhir.r4.model.Base64BinaryType) src);
-    if (src instanceof org.hl7.fhir.r4.model.BooleanType)
-      return convertBoolean((org.hl7.fhir.r4.model.BooleanType) src);
-    if (src instanceof org.hl7.fhir.r4.model.CanonicalType)
-      return convertCanonical((org.hl7.fhir.r4.model.CanonicalType) src);
-    if (src instanceof org.hl7.fhir.r4.model.CodeType) return convertCode((org.hl7.fhir.r4.model.CodeType) src);
-    if (src instanceof org.hl7.fhir.r4.model.DateType) return convertDate((org.hl7.fhir.r4.model.DateType) src);
-    if (src instanceof org.hl7.fhir.r4.model.DateTimeType)
-      return convertDateTime((org.hl7.fhir.r4.model.DateTimeType) src);
-    if (src instanceof org.hl7.fhir.r4.model.DecimalType)
-      return convertDecimal((org.hl7.fhir.r4.model.DecimalType) src);
-    if (src instanceof org.hl7.fhir.r4.model.IdType) return convertId((org.hl7.fhir.r4.model.IdType) src);
-    if (src instanceof org.hl7.fhir.r4.model.InstantType)
-      return convertInstant((org.hl7.fhir.r4.model.InstantType) src);
-    if (src instanceof org.hl7.fhir.r4.model.UnsignedIntType)
-      return convertUnsignedInt((org.hl7.fhir.r4.model.UnsignedIntType) src);
-    if (src instanceof org.hl7.fhir.r4.model.PositiveIntType)
-      return convertPositiveInt((org.hl7.fhir.r4.model.PositiveIntType) src);
-    if (src instanceof org.hl7.fhir.r4.model.IntegerType)
-      return convertInteger((org.hl7.fhir.r4.model.IntegerType) src);
-    if (src instanceof org.hl7.fhir.r4.model.MarkdownType)
-      return convertMarkdown((org.hl7.fhir.r4.model.MarkdownType) src);
-    if (src instanceof org.hl7.fhir.r4.model.OidType) return convertOid((org.hl7.fhir.r4.model.OidType) src);
-    if (src instanceof org.hl7.fhir.r4.model.StringType) return convertString((org.hl7.fhir.r4.model.StringType) src);
-    if (src instanceof org.hl7.fhir.r4.model.TimeType) return convertTime((org.hl7.fhir.r4.model.TimeType) src);
-    if (src instanceof org.hl7.fhir.r4.model.UrlType) return convertUrl((org.hl7.fhir.r4.model.UrlType) src);
-    if (src instanceof org.hl7.fhir.r4.model.UuidType) return convertUuid((org.hl7.fhir.r4.model.UuidType) src);
-    if (src instanceof org.hl7.fhir.r4.model.UriType) return convertUri((org.hl7.fhir.r4.model.UriType) src);
-    if (src instanceof org.hl7.fhir.r4.model.Extension) return convertExtension((org.hl7.fhir.r4.model.Extension) src);
-    if (src instanceof org.hl7.fhir.r4.model.Narrative) return convertNarrative((org.hl7.fhir.r4.model.Narrative) src);
-    if (src instanceof org.hl7.fhir.r4.model.Address) return convertAddress((org.hl7.fhir.r4.model.Address) src);
-    if (src instanceof org.hl7.fhir.r4.model.Age) return convertAge((org.hl7.fhir.r4.model.Age) src);
-    if (src instanceof org.hl7.fhir.r4.model.Annotation)
-      return convertAnnotation((org.hl7.fhir.r4.model.Annotation) src);
-    if (src instanceof org.hl7.fhir.r4.model.Attachment)
-      return convertAttachment((org.hl7.fhir.r4.model.Attachment) src);
-    if (src instanceof org.hl7.fhir.r4.model.CodeableConcept)
-      return convertCodeableConcept((org.hl7.fhir.r4.model.CodeableConcept) src);
-    if (src instanceof org.hl7.fhir.r4.model.Coding) return convertCoding((org.hl7.fhir.r4.model.Coding) src);
-    if (src instanceof org.hl7.fhir.r4.model.ContactDetail)
-      return convertContactDetail((org.hl7.fhir.r4.model.ContactDetail) src);
-    if (src instanceof org.hl7.fhir.r4.model.ContactPoint)
-      return convertContactPoint((org.hl7.fhir.r4.model.ContactPoint) src);
-    if (src instanceof org.hl7.fhir.r4.model.Contributor)
-      return convertContributor((org.hl7.fhir.r4.model.Contributor) src);
-    if (src instanceof org.hl7.fhir.r4.model.Count) return convertCount((org.hl7.fhir.r4.model.Count) src);
-    if (src instanceof org.hl7.fhir.r4.model.DataRequirement)
-      return convertDataRequirement((org.hl7.fhir.r4.model.DataRequirement) src);
-    if (src instanceof org.hl7.fhir.r4.model.Distance) return convertDistance((org.hl7.fhir.r4.model.Distance) src);
-    if (src instanceof org.hl7.fhir.r4.model.Dosage) return convertDosage((org.hl7.fhir.r4.model.Dosage) src);
-    if (src instanceof org.hl7.fhir.r4.model.Duration) return convertDuration((org.hl7.fhir.r4.model.Duration) src);
-    if (src instanceof org.hl7.fhir.r4.model.Expression)
-      return convertExpression((org.hl7.fhir.r4.model.Expression) src);
-    if (src instanceof org.hl7.fhir.r4.model.HumanName) return convertHumanName((org.hl7.fhir.r4.model.HumanName) src);
-    if (src instanceof org.hl7.fhir.r4.model.Identifier)
-      return convertIdentifier((org.hl7.fhir.r4.model.Identifier) src);
-    if (src instanceof org.hl7.fhir.r4.model.MarketingStatus)
-      return convertMarketingStatus((org.hl7.fhir.r4.model.MarketingStatus) src);
-    if (src instanceof org.hl7.fhir.r4.model.Meta) return convertMeta((org.hl7.fhir.r4.model.Meta) src);
-    if (src instanceof org.hl7.fhir.r4.model.Money) return convertMoney((org.hl7.fhir.r4.model.Money) src);
-    if (src instanceof org.hl7.fhir.r4.model.ParameterDefinition)
-      return convertParameterDefinition((org.hl7.fhir.r4.model.ParameterDefinition) src);
-    if (src instanceof org.hl7.fhir.r4.model.Period) return convertPeriod((org.hl7.fhir.r4.model.Period) src);
-    if (src instanceof org.hl7.fhir.r4.model.Population)
-      return convertPopulation((org.hl7.fhir.r4.model.Population) src);
-    if (src instanceof org.hl7.fhir.r4.model.ProdCharacteristic)
-      return convertProdCharacteristic((org.hl7.fhir.r4.model.ProdCharacteristic) src);
-    if (src instanceof org.hl7.fhir.r4.model.ProductShelfLife)
-      return convertProductShelfLife((org.hl7.fhir.r4.model.ProductShelfLife) src);
-    if (src instanceof org.hl7.fhir.r4.model.MoneyQuantity)
-      return convertMoneyQuantity((org.hl7.fhir.r4.model.MoneyQuantity) src);
-    if (src instanceof org.hl7.fhir.r4.model.SimpleQuantity)
-      return convertSimpleQuantity((org.hl7.fhir.r4.model.SimpleQuantity) src);
-    if (src instanceof org.hl7.fhir.r4.model.Quantity) return convertQuantity((org.hl7.fhir.r4.model.Quantity) src);
-    if (src instanceof org.hl7.fhir.r4.model.Range) return convertRange((org.hl7.fhir.r4.model.Range) src);
-    if (src instanceof org.hl7.fhir.r4.model.Ratio) return convertRatio((org.hl7.fhir.r4.model.Ratio) src);
-    if (src instanceof org.hl7.fhir.r4.model.Reference) return convertReference((org.hl7.fhir.r4.model.Reference) src);
-    if (src instanceof org.hl7.fhir.r4.model.RelatedArtifact)
-      return convertRelatedArtifact((org.hl7.fhir.r4.model.RelatedArtifact) src);
-    if (src instanceof org.hl7.fhir.r4.model.SampledData)
-      return convertSampledData((org.hl7.fhir.r4.model.SampledData) src);
-    if (src instanceof org.hl7.fhir.r4.model.Signature) return convertSignature((org.hl7.fhir.r4.model.Signature) src);
-    if (src instanceof org.hl7.fhir.r4.model.SubstanceAmount)
-      return convertSubstanceAmount((org.hl7.fhir.r4.model.SubstanceAmount) src);
-    if (src instanceof org.hl7.fhir.r4.model.Timing) return convertTiming((org.hl7.fhir.r4.model.Timing) src);
-    if (src instanceof org.hl7.fhir.r4.model.TriggerDefinition)
-      return convertTriggerDefinition((org.hl7.fhir.r4.model.TriggerDefinition) src);
-    if (src instanceof org.hl7.fhir.r4.model.UsageContext)
-      return convertUsageContext((org.hl7.fhir.r4.model.UsageContext) src);
-    if (src instanceof org.hl7.fhir.r4.model.ElementDefinition)
-      return convertElementDefinition((org.hl7.fhir.r4.model.ElementDefinition) src);
+    Function<org.hl7.fhir.r4.model.Type, org.hl7.fhir.r5.model.DataType> conversion = TYPES_40_50.get(src.getClass());
+    if (conversion != null)
+      return conversion.apply(src);
     throw new FHIRException("Unknown type " + src.fhirType());
   }
 
+  private static final ConversionDispatcher<Function<org.hl7.fhir.r5.model.DataType, org.hl7.fhir.r4.model.Type>> TYPES_50_40 = new ConversionDispatcher<Function<org.hl7.fhir.r5.model.DataType, org.hl7.fhir.r4.model.Type>>()
+    .add(org.hl7.fhir.r5.model.Base64BinaryType.class,
+      src -> convertBase64Binary((org.hl7.fhir.r5.model.Base64BinaryType) src))
+    .add(org.hl7.fhir.r5.model.BooleanType.class,
+      src -> convertBoolean((org.hl7.fhir.r5.model.BooleanType) src))
+    .add(org.hl7.fhir.r5.model.CanonicalType.class,
+      src -> convertCanonical((org.hl7.fhir.r5.model.CanonicalType) src))
+    .add(org.hl7.fhir.r5.model.CodeType.class,
+      src -> convertCode((org.hl7.fhir.r5.model.CodeType) src))
+    .add(org.hl7.fhir.r5.model.DateType.class,
+      src -> convertDate((org.hl7.fhir.r5.model.DateType) src))
+    .add(org.hl7.fhir.r5.model.DateTimeType.class,
+      src -> convertDateTime((org.hl7.fhir.r5.model.DateTimeType) src))
+    .add(org.hl7.fhir.r5.model.DecimalType.class,
+      src -> convertDecimal((org.hl7.fhir.r5.model.DecimalType) src))
+    .add(org.hl7.fhir.r5.model.IdType.class,
+      src -> convertId((org.hl7.fhir.r5.model.IdType) src))
+    .add(org.hl7.fhir.r5.model.InstantType.class,
+      src -> convertInstant((org.hl7.fhir.r5.model.InstantType) src))
+    .add(org.hl7.fhir.r5.model.MarkdownType.class,
+      src -> convertMarkdown((org.hl7.fhir.r5.model.MarkdownType) src))
+    .add(org.hl7.fhir.r5.model.OidType.class,
+      src -> convertOid((org.hl7.fhir.r5.model.OidType) src))
+    .add(org.hl7.fhir.r5.model.PositiveIntType.class,
+      src -> convertPositiveInt((org.hl7.fhir.r5.model.PositiveIntType) src))
+    .add(org.hl7.fhir.r5.model.StringType.class,
+      src -> convertString((org.hl7.fhir.r5.model.StringType) src))
+    .add(org.hl7.fhir.r5.model.TimeType.class,
+      src -> convertTime((org.hl7.fhir.r5.model.TimeType) src))
+    .add(org.hl7.fhir.r5.model.UnsignedIntType.class,
+      src -> convertUnsignedInt((org.hl7.fhir.r5.model.UnsignedIntType) src))
+    .add(org.hl7.fhir.r5.model.IntegerType.class,
+      src -> convertInteger((org.hl7.fhir.r5.model.IntegerType) src))
+    .add(org.hl7.fhir.r5.model.UrlType.class,
+      src -> convertUrl((org.hl7.fhir.r5.model.UrlType) src))
+    .add(org.hl7.fhir.r5.model.UuidType.class,
+      src -> convertUuid((org.hl7.fhir.r5.model.UuidType) src))
+    .add(org.hl7.fhir.r5.model.UriType.class,
+      src -> convertUri((org.hl7.fhir.r5.model.UriType) src))
+    .add(org.hl7.fhir.r5.model.Extension.class,
+      src -> convertExtension((org.hl7.fhir.r5.model.Extension) src))
+    .add(org.hl7.fhir.r5.model.Narrative.class,
+      src -> convertNarrative((org.hl7.fhir.r5.model.Narrative) src))
+    .add(org.hl7.fhir.r5.model.Address.class,
+      src -> convertAddress((org.hl7.fhir.r5.model.Address) src))
+    .add(org.hl7.fhir.r5.model.Age.class,
+      src -> convertAge((org.hl7.fhir.r5.model.Age) src))
+    .add(org.hl7.fhir.r5.model.Annotation.class,
+      src -> convertAnnotation((org.hl7.fhir.r5.model.Annotation) src))
+    .add(org.hl7.fhir.r5.model.Attachment.class,
+      src -> convertAttachment((org.hl7.fhir.r5.model.Attachment) src))
+    .add(org.hl7.fhir.r5.model.CodeableConcept.class,
+      src -> convertCodeableConcept((org.hl7.fhir.r5.model.CodeableConcept) src))
+    .add(org.hl7.fhir.r5.model.Coding.class,
+      src -> convertCoding((org.hl7.fhir.r5.model.Coding) src))
+    .add(org.hl7.fhir.r5.model.ContactDetail.class,
+      src -> convertContactDetail((org.hl7.fhir.r5.model.ContactDetail) src))
+    .add(org.hl7.fhir.r5.model.ContactPoint.class,
+      src -> convertContactPoint((org.hl7.fhir.r5.model.ContactPoint) src))
+    .add(org.hl7.fhir.r5.model.Contributor.class,
+      src -> convertContributor((org.hl7.fhir.r5.model.Contributor) src))
+    .add(org.hl7.fhir.r5.model.Count.class,
+      src -> convertCount((org.hl7.fhir.r5.model.Count) src))
+    .add(org.hl7.fhir.r5.model.DataRequirement.class,
+      src -> convertDataRequirement((org.hl7.fhir.r5.model.DataRequirement) src))
+    .add(org.hl7.fhir.r5.model.Distance.class,
+      src -> convertDistance((org.hl7.fhir.r5.model.Distance) src))
+    .add(org.hl7.fhir.r5.model.Dosage.class,
+      src -> convertDosage((org.hl7.fhir.r5.model.Dosage) src))
+    .add(org.hl7.fhir.r5.model.Duration.class,
+      src -> convertDuration((org.hl7.fhir.r5.model.Duration) src))
+    .add(org.hl7.fhir.r5.model.Expression.class,
+      src -> convertExpression((org.hl7.fhir.r5.model.Expression) src))
+    .add(org.hl7.fhir.r5.model.HumanName.class,
+      src -> convertHumanName((org.hl7.fhir.r5.model.HumanName) src))
+    .add(org.hl7.fhir.r5.model.Identifier.class,
+      src -> convertIdentifier((org.hl7.fhir.r5.model.Identifier) src))
+    .add(org.hl7.fhir.r5.model.MarketingStatus.class,
+      src -> convertMarketingStatus((org.hl7.fhir.r5.model.MarketingStatus) src))
+    .add(org.hl7.fhir.r5.model.Meta.class,
+      src -> convertMeta((org.hl7.fhir.r5.model.Meta) src))
+    .add(org.hl7.fhir.r5.model.Money.class,
+      src -> convertMoney((org.hl7.fhir.r5.model.Money) src))
+    .add(org.hl7.fhir.r5.model.ParameterDefinition.class,
+      src -> convertParameterDefinition((org.hl7.fhir.r5.model.ParameterDefinition) src))
+    .add(org.hl7.fhir.r5.model.Period.class,
+      src -> convertPeriod((org.hl7.fhir.r5.model.Period) src))
+    .add(org.hl7.fhir.r5.model.Population.class,
+      src -> convertPopulation((org.hl7.fhir.r5.model.Population) src))
+    .add(org.hl7.fhir.r5.model.ProdCharacteristic.class,
+      src -> convertProdCharacteristic((org.hl7.fhir.r5.model.ProdCharacteristic) src))
+    .add(org.hl7.fhir.r5.model.ProductShelfLife.class,
+      src -> convertProductShelfLife((org.hl7.fhir.r5.model.ProductShelfLife) src))
+    .add(org.hl7.fhir.r5.model.MoneyQuantity.class,
+      src -> convertMoneyQuantity((org.hl7.fhir.r5.model.MoneyQuantity) src))
+    .add(org.hl7.fhir.r5.model.SimpleQuantity.class,
+      src -> convertSimpleQuantity((org.hl7.fhir.r5.model.SimpleQuantity) src))
+    .add(org.hl7.fhir.r5.model.Quantity.class,
+      src -> convertQuantity((org.hl7.fhir.r5.model.Quantity) src))
+    .add(org.hl7.fhir.r5.model.Range.class,
+      src -> convertRange((org.hl7.fhir.r5.model.Range) src))
+    .add(org.hl7.fhir.r5.model.Ratio.class,
+      src -> convertRatio((org.hl7.fhir.r5.model.Ratio) src))
+    .add(org.hl7.fhir.r5.model.Reference.class,
+      src -> convertReference((org.hl7.fhir.r5.model.Reference) src))
+    .add(org.hl7.fhir.r5.model.RelatedArtifact.class,
+      src -> convertRelatedArtifact((org.hl7.fhir.r5.model.RelatedArtifact) src))
+    .add(org.hl7.fhir.r5.model.SampledData.class,
+      src -> convertSampledData((org.hl7.fhir.r5.model.SampledData) src))
+    .add(org.hl7.fhir.r5.model.Signature.class,
+      src -> convertSignature((org.hl7.fhir.r5.model.Signature) src))
+    .add(org.hl7.fhir.r5.model.SubstanceAmount.class,
+      src -> convertSubstanceAmount((org.hl7.fhir.r5.model.SubstanceAmount) src))
+    .add(org.hl7.fhir.r5.model.Timing.class,
+      src -> convertTiming((org.hl7.fhir.r5.model.Timing) src))
+    .add(org.hl7.fhir.r5.model.TriggerDefinition.class,
+      src -> convertTriggerDefinition((org.hl7.fhir.r5.model.TriggerDefinition) src))
+    .add(org.hl7.fhir.r5.model.UsageContext.class,
+      src -> convertUsageContext((org.hl7.fhir.r5.model.UsageContext) src))
+    .add(org.hl7.fhir.r5.model.ElementDefinition.class,
+      src -> convertElementDefinition((org.hl7.fhir.r5.model.ElementDefinition) src));
+
   public static org.hl7.fhir.r4.model.Type convertType(org.hl7.fhir.r5.model.DataType src) throws FHIRException {
     if (src == null) return null;
-    if (src instanceof org.hl7.fhir.r5.model.Base64BinaryType)
-      return convertBase64Binary((org.hl7.fhir.r5.model.Base64BinaryType) src);
-    if (src instanceof org.hl7.fhir.r5.model.BooleanType)
-      return convertBoolean((org.hl7.fhir.r5.model.BooleanType) src);
-    if (src instanceof org.hl7.fhir.r5.model.CanonicalType)
-      return convertCanonical((org.hl7.fhir.r5.model.CanonicalType) src);
-    if (src instanceof org.hl7.fhir.r5.model.CodeType) return convertCode((org.hl7.fhir.r5.model.CodeType) src);
-    if (src instanceof org.hl7.fhir.r5.model.DateType) return convertDate((org.hl7.fhir.r5.model.DateType) src);
-    if (src instanceof org.hl7.fhir.r5.model.DateTimeType)
-      return convertDateTime((org.hl7.fhir.r5.model.DateTimeType) src);
-    if (src instanceof org.hl7.fhir.r5.model.DecimalType)
-      return convertDecimal((org.hl7.fhir.r5.model.DecimalType) src);
-    if (src instanceof org.hl7.fhir.r5.model.IdType) return convertId((org.hl7.fhir.r5.model.IdType) src);
-    if (src instanceof org.hl7.fhir.r5.model.InstantType)
-      return convertInstant((org.hl7.fhir.r5.model.InstantType) src);
-    if (src instanceof org.hl7.fhir.r5.model.MarkdownType)
-      return convertMarkdown((org.hl7.fhir.r5.model.MarkdownType) src);
-    if (src instanceof org.hl7.fhir.r5.model.OidType) return convertOid((org.hl7.fhir.r5.model.OidType) src);
-    if (src instanceof org.hl7.fhir.r5.model.PositiveIntType)
-      return convertPositiveInt((org.hl7.fhir.r5.model.PositiveIntType) src);
-    if (src instanceof org.hl7.fhir.r5.model.StringType) return convertString((org.hl7.fhir.r5.model.StringType) src);
-    if (src instanceof org.hl7.fhir.r5.model.TimeType) return convertTime((org.hl7.fhir.r5.model.TimeType) src);
-    if (src instanceof org.hl7.fhir.r5.model.UnsignedIntType)
-      return convertUnsignedInt((org.hl7.fhir.r5.model.UnsignedIntType) src);
-    if (src instanceof org.hl7.fhir.r5.model.IntegerType)
-      return convertInteger((org.hl7.fhir.r5.model.IntegerType) src);
-    if (src instanceof org.hl7.fhir.r5.model.UrlType) return convertUrl((org.hl7.fhir.r5.model.UrlType) src);
-    if (src instanceof org.hl7.fhir.r5.model.UuidType) return convertUuid((org.hl7.fhir.r5.model.UuidType) src);
-    if (src instanceof org.hl7.fhir.r5.model.UriType) return convertUri((org.hl7.fhir.r5.model.UriType) src);
-    if (src instanceof org.hl7.fhir.r5.model.Extension) return convertExtension((org.hl7.fhir.r5.model.Extension) src);
-    if (src instanceof org.hl7.fhir.r5.model.Narrative) return convertNarrative((org.hl7.fhir.r5.model.Narrative) src);
-    if (src instanceof org.hl7.fhir.r5.model.Address) return convertAddress((org.hl7.fhir.r5.model.Address) src);
-    if (src instanceof org.hl7.fhir.r5.model.Age) return convertAge((org.hl7.fhir.r5.model.Age) src);
-    if (src instanceof org.hl7.fhir.r5.model.Annotation)
-      return convertAnnotation((org.hl7.fhir.r5.model.Annotation) src);
-    if (src instanceof org.hl7.fhir.r5.model.Attachment)
-      return convertAttachment((org.hl7.fhir.r5.model.Attachment) src);
-    if (src instanceof org.hl7.fhir.r5.model.CodeableConcept)
-      return convertCodeableConcept((org.hl7.fhir.r5.model.CodeableConcept) src);
-    if (src instanceof org.hl7.fhir.r5.model.Coding) return convertCoding((org.hl7.fhir.r5.model.Coding) src);
-    if (src instanceof org.hl7.fhir.r5.model.ContactDetail)
-      return convertContactDetail((org.hl7.fhir.r5.model.ContactDetail) src);
-    if (src instanceof org.hl7.fhir.r5.model.ContactPoint)
-      return convertContactPoint((org.hl7.fhir.r5.model.ContactPoint) src);
-    if (src instanceof org.hl7.fhir.r5.model.Contributor)
-      return convertContributor((org.hl7.fhir.r5.model.Contributor) src);
-    if (src instanceof org.hl7.fhir.r5.model.Count) return convertCount((org.hl7.fhir.r5.model.Count) src);
-    if (src instanceof org.hl7.fhir.r5.model.DataRequirement)
-      return convertDataRequirement((org.hl7.fhir.r5.model.DataRequirement) src);
-    if (src instanceof org.hl7.fhir.r5.model.Distance) return convertDistance((org.hl7.fhir.r5.model.Distance) src);
-    if (src instanceof org.hl7.fhir.r5.model.Dosage) return convertDosage((org.hl7.fhir.r5.model.Dosage) src);
-    if (src instanceof org.hl7.fhir.r5.model.Duration) return convertDuration((org.hl7.fhir.r5.model.Duration) src);
-    if (src instanceof org.hl7.fhir.r5.model.Expression)
-      return convertExpression((org.hl7.fhir.r5.model.Expression) src);
-    if (src instanceof org.hl7.fhir.r5.model.HumanName) return convertHumanName((org.hl7.fhir.r5.model.HumanName) src);
-    if (src instanceof org.hl7.fhir.r5.model.Identifier)
-      return convertIdentifier((org.hl7.fhir.r5.model.Identifier) src);
-    if (src instanceof org.hl7.fhir.r5.model.MarketingStatus)
-      return convertMarketingStatus((org.hl7.fhir.r5.model.MarketingStatus) src);
-    if (src instanceof org.hl7.fhir.r5.model.Meta) return convertMeta((org.hl7.fhir.r5.model.Meta) src);
-    if (src instanceof org.hl7.fhir.r5.model.Money) return convertMoney((org.hl7.fhir.r5.model.Money) src);
-    if (src instanceof org.hl7.fhir.r5.model.ParameterDefinition)
-      return convertParameterDefinition((org.hl7.fhir.r5.model.ParameterDefinition) src);
-    if (src instanceof org.hl7.fhir.r5.model.Period) return convertPeriod((org.hl7.fhir.r5.model.Period) src);
-    if (src instanceof org.hl7.fhir.r5.model.Population)
-      return convertPopulation((org.hl7.fhir.r5.model.Population) src);
-    if (src instanceof org.hl7.fhir.r5.model.ProdCharacteristic)
-      return convertProdCharacteristic((org.hl7.fhir.r5.model.ProdCharacteristic) src);
-    if (src instanceof org.hl7.fhir.r5.model.ProductShelfLife)
-      return convertProductShelfLife((org.hl7.fhir.r5.model.ProductShelfLife) src);
-    if (src instanceof org.hl7.fhir.r5.model.MoneyQuantity)
-      return convertMoneyQuantity((org.hl7.fhir.r5.model.MoneyQuantity) src);
-    if (src instanceof org.hl7.fhir.r5.model.SimpleQuantity)
-      return convertSimpleQuantity((org.hl7.fhir.r5.model.SimpleQuantity) src);
-    if (src instanceof org.hl7.fhir.r5.model.Quantity) return convertQuantity((org.hl7.fhir.r5.model.Quantity) src);
-    if (src instanceof org.hl7.fhir.r5.model.Range) return convertRange((org.hl7.fhir.r5.model.Range) src);
-    if (src instanceof org.hl7.fhir.r5.model.Ratio) return convertRatio((org.hl7.fhir.r5.model.Ratio) src);
-    if (src instanceof org.hl7.fhir.r5.model.Reference) return convertReference((org.hl7.fhir.r5.model.Reference) src);
-    if (src instanceof org.hl7.fhir.r5.model.RelatedArtifact)
-      return convertRelatedArtifact((org.hl7.fhir.r5.model.RelatedArtifact) src);
-    if (src instanceof org.hl7.fhir.r5.model.SampledData)
-      return convertSampledData((org.hl7.fhir.r5.model.SampledData) src);
-    if (src instanceof org.hl7.fhir.r5.model.Signature) return convertSignature((org.hl7.fhir.r5.model.Signature) src);
-    if (src instanceof org.hl7.fhir.r5.model.SubstanceAmount)
-      return convertSubstanceAmount((org.hl7.fhir.r5.model.SubstanceAmount) src);
-    if (src instanceof org.hl7.fhir.r5.model.Timing) return convertTiming((org.hl7.fhir.r5.model.Timing) src);
-    if (src instanceof org.hl7.fhir.r5.model.TriggerDefinition)
-      return convertTriggerDefinition((org.hl7.fhir.r5.model.TriggerDefinition) src);
-    if (src instanceof org.hl7.fhir.r5.model.UsageContext)
-      return convertUsageContext((org.hl7.fhir.r5.model.UsageContext) src);
-    if (src instanceof org.hl7.fhir.r5.model.ElementDefinition)
-      return convertElementDefinition((org.hl7.fhir.r5.model.ElementDefinition) src);
+    Function<org.hl7.fhir.r5.model.DataType, org.hl7.fhir.r4.model.Type> conversion = TYPES_50_40.get(src.getClass());
+    if (conversion != null)
+      return conversion.apply(src);
     throw new FHIRException("Unknown type " + src.fhirType());
   }
 
@@ -3416,506 +3483,531 @@ public class VersionConvertor_40_50 {
     if (src.hasLanguage()) tgt.setLanguageElement(convertCode(src.getLanguageElement()));
   }
 
+  private static final ConversionDispatcher<Function<org.hl7.fhir.r4.model.Resource, org.hl7.fhir.r5.model.Resource>> RESOURCES_40_50 = new ConversionDispatcher<Function<org.hl7.fhir.r4.model.Resource, org.hl7.fhir.r5.model.Resource>>()
+    .add(org.hl7.fhir.r4.model.Parameters.class,
+      src -> Parameters40_50.convertParameters((org.hl7.fhir.r4.model.Parameters) src))
+    .add(org.hl7.fhir.r4.model.Account.class,
+      src -> Account40_50.convertAccount((org.hl7.fhir.r4.model.Account) src))
+    .add(org.hl7.fhir.r4.model.ActivityDefinition.class,
+      src -> ActivityDefinition40_50.convertActivityDefinition((org.hl7.fhir.r4.model.ActivityDefinition) src))
+    .add(org.hl7.fhir.r4.model.AllergyIntolerance.class,
+      src -> AllergyIntolerance40_50.convertAllergyIntolerance((org.hl7.fhir.r4.model.AllergyIntolerance) src))
+    .add(org.hl7.fhir.r4.model.Appointment.class,
+      src -> Appointment40_50.convertAppointment((org.hl7.fhir.r4.model.Appointment) src))
+    .add(org.hl7.fhir.r4.model.AppointmentResponse.class,
+      src -> AppointmentResponse40_50.convertAppointmentResponse((org.hl7.fhir.r4.model.AppointmentResponse) src))
+    .add(org.hl7.fhir.r4.model.AuditEvent.class,
+      src -> AuditEvent40_50.convertAuditEvent((org.hl7.fhir.r4.model.AuditEvent) src))
+    .add(org.hl7.fhir.r4.model.Basic.class,
+      src -> Basic40_50.convertBasic((org.hl7.fhir.r4.model.Basic) src))
+    .add(org.hl7.fhir.r4.model.Binary.class,
+      src -> Binary40_50.convertBinary((org.hl7.fhir.r4.model.Binary) src))
+    .add(org.hl7.fhir.r4.model.BiologicallyDerivedProduct.class,
+      src -> BiologicallyDerivedProduct40_50.convertBiologicallyDerivedProduct((org.hl7.fhir.r4.model.BiologicallyDerivedProduct) src))
+    .add(org.hl7.fhir.r4.model.BodyStructure.class,
+      src -> BodyStructure40_50.convertBodyStructure((org.hl7.fhir.r4.model.BodyStructure) src))
+    .add(org.hl7.fhir.r4.model.Bundle.class,
+      src -> Bundle40_50.convertBundle((org.hl7.fhir.r4.model.Bundle) src))
+    .add(org.hl7.fhir.r4.model.CapabilityStatement.class,
+      src -> CapabilityStatement40_50.convertCapabilityStatement((org.hl7.fhir.r4.model.CapabilityStatement) src))
+    .add(org.hl7.fhir.r4.model.CarePlan.class,
+      src -> CarePlan40_50.convertCarePlan((org.hl7.fhir.r4.model.CarePlan) src))
+    .add(org.hl7.fhir.r4.model.CareTeam.class,
+      src -> CareTeam40_50.convertCareTeam((org.hl7.fhir.r4.model.CareTeam) src))
+    .add(org.hl7.fhir.r4.model.ChargeItem.class,
+      src -> ChargeItem40_50.convertChargeItem((org.hl7.fhir.r4.model.ChargeItem) src))
+    .add(org.hl7.fhir.r4.model.ChargeItemDefinition.class,
+      src -> ChargeItemDefinition40_50.convertChargeItemDefinition((org.hl7.fhir.r4.model.ChargeItemDefinition) src))
+    .add(org.hl7.fhir.r4.model.Claim.class,
+      src -> Claim40_50.convertClaim((org.hl7.fhir.r4.model.Claim) src))
+    .add(org.hl7.fhir.r4.model.ClaimResponse.class,
+      src -> ClaimResponse40_50.convertClaimResponse((org.hl7.fhir.r4.model.ClaimResponse) src))
+    .add(org.hl7.fhir.r4.model.ClinicalImpression.class,
+      src -> ClinicalImpression40_50.convertClinicalImpression((org.hl7.fhir.r4.model.ClinicalImpression) src))
+    .add(org.hl7.fhir.r4.model.CodeSystem.class,
+      src -> CodeSystem40_50.convertCodeSystem((org.hl7.fhir.r4.model.CodeSystem) src))
+    .add(org.hl7.fhir.r4.model.Communication.class,
+      src -> Communication40_50.convertCommunication((org.hl7.fhir.r4.model.Communication) src))
+    .add(org.hl7.fhir.r4.model.CommunicationRequest.class,
+      src -> CommunicationRequest40_50.convertCommunicationRequest((org.hl7.fhir.r4.model.CommunicationRequest) src))
+    .add(org.hl7.fhir.r4.model.CompartmentDefinition.class,
+      src -> CompartmentDefinition40_50.convertCompartmentDefinition((org.hl7.fhir.r4.model.CompartmentDefinition) src))
+    .add(org.hl7.fhir.r4.model.Composition.class,
+      src -> Composition40_50.convertComposition((org.hl7.fhir.r4.model.Composition) src))
+    .add(org.hl7.fhir.r4.model.ConceptMap.class,
+      src -> ConceptMap40_50.convertConceptMap((org.hl7.fhir.r4.model.ConceptMap) src))
+    .add(org.hl7.fhir.r4.model.Condition.class,
+      src -> Condition40_50.convertCondition((org.hl7.fhir.r4.model.Condition) src))
+    .add(org.hl7.fhir.r4.model.Consent.class,
+      src -> Consent40_50.convertConsent((org.hl7.fhir.r4.model.Consent) src))
+    .add(org.hl7.fhir.r4.model.Contract.class,
+      src -> Contract40_50.convertContract((org.hl7.fhir.r4.model.Contract) src))
+    .add(org.hl7.fhir.r4.model.Coverage.class,
+      src -> Coverage40_50.convertCoverage((org.hl7.fhir.r4.model.Coverage) src))
+    .add(org.hl7.fhir.r4.model.CoverageEligibilityRequest.class,
+      src -> CoverageEligibilityRequest40_50.convertCoverageEligibilityRequest((org.hl7.fhir.r4.model.CoverageEligibilityRequest) src))
+    .add(org.hl7.fhir.r4.model.CoverageEligibilityResponse.class,
+      src -> CoverageEligibilityResponse40_50.convertCoverageEligibilityResponse((org.hl7.fhir.r4.model.CoverageEligibilityResponse) src))
+    .add(org.hl7.fhir.r4.model.DetectedIssue.class,
+      src -> DetectedIssue40_50.convertDetectedIssue((org.hl7.fhir.r4.model.DetectedIssue) src))
+    .add(org.hl7.fhir.r4.model.Device.class,
+      src -> Device40_50.convertDevice((org.hl7.fhir.r4.model.Device) src))
+    .add(org.hl7.fhir.r4.model.DeviceDefinition.class,
+      src -> DeviceDefinition40_50.convertDeviceDefinition((org.hl7.fhir.r4.model.DeviceDefinition) src))
+    .add(org.hl7.fhir.r4.model.DeviceMetric.class,
+      src -> DeviceMetric40_50.convertDeviceMetric((org.hl7.fhir.r4.model.DeviceMetric) src))
+    .add(org.hl7.fhir.r4.model.DeviceRequest.class,
+      src -> DeviceRequest40_50.convertDeviceRequest((org.hl7.fhir.r4.model.DeviceRequest) src))
+    .add(org.hl7.fhir.r4.model.DeviceUseStatement.class,
+      src -> DeviceUseStatement40_50.convertDeviceUseStatement((org.hl7.fhir.r4.model.DeviceUseStatement) src))
+    .add(org.hl7.fhir.r4.model.DiagnosticReport.class,
+      src -> DiagnosticReport40_50.convertDiagnosticReport((org.hl7.fhir.r4.model.DiagnosticReport) src))
+    .add(org.hl7.fhir.r4.model.DocumentManifest.class,
+      src -> DocumentManifest40_50.convertDocumentManifest((org.hl7.fhir.r4.model.DocumentManifest) src))
+    .add(org.hl7.fhir.r4.model.DocumentReference.class,
+      src -> DocumentReference40_50.convertDocumentReference((org.hl7.fhir.r4.model.DocumentReference) src))
+    .add(org.hl7.fhir.r4.model.Encounter.class,
+      src -> Encounter40_50.convertEncounter((org.hl7.fhir.r4.model.Encounter) src))
+    .add(org.hl7.fhir.r4.model.Endpoint.class,
+      src -> Endpoint40_50.convertEndpoint((org.hl7.fhir.r4.model.Endpoint) src))
+    .add(org.hl7.fhir.r4.model.EnrollmentRequest.class,
+      src -> EnrollmentRequest40_50.convertEnrollmentRequest((org.hl7.fhir.r4.model.EnrollmentRequest) src))
+    .add(org.hl7.fhir.r4.model.EnrollmentResponse.class,
+      src -> EnrollmentResponse40_50.convertEnrollmentResponse((org.hl7.fhir.r4.model.EnrollmentResponse) src))
+    .add(org.hl7.fhir.r4.model.EpisodeOfCare.class,
+      src -> EpisodeOfCare40_50.convertEpisodeOfCare((org.hl7.fhir.r4.model.EpisodeOfCare) src))
+    .add(org.hl7.fhir.r4.model.EventDefinition.class,
+      src -> EventDefinition40_50.convertEventDefinition((org.hl7.fhir.r4.model.EventDefinition) src))
+    .add(org.hl7.fhir.r4.model.ExampleScenario.class,
+      src -> ExampleScenario40_50.convertExampleScenario((org.hl7.fhir.r4.model.ExampleScenario) src))
+    .add(org.hl7.fhir.r4.model.ExplanationOfBenefit.class,
+      src -> ExplanationOfBenefit40_50.convertExplanationOfBenefit((org.hl7.fhir.r4.model.ExplanationOfBenefit) src))
+    .add(org.hl7.fhir.r4.model.FamilyMemberHistory.class,
+      src -> FamilyMemberHistory40_50.convertFamilyMemberHistory((org.hl7.fhir.r4.model.FamilyMemberHistory) src))
+    .add(org.hl7.fhir.r4.model.Flag.class,
+      src -> Flag40_50.convertFlag((org.hl7.fhir.r4.model.Flag) src))
+    .add(org.hl7.fhir.r4.model.Goal.class,
+      src -> Goal40_50.convertGoal((org.hl7.fhir.r4.model.Goal) src))
+    .add(org.hl7.fhir.r4.model.GraphDefinition.class,
+      src -> GraphDefinition40_50.convertGraphDefinition((org.hl7.fhir.r4.model.GraphDefinition) src))
+    .add(org.hl7.fhir.r4.model.Group.class,
+      src -> Group40_50.convertGroup((org.hl7.fhir.r4.model.Group) src))
+    .add(org.hl7.fhir.r4.model.GuidanceResponse.class,
+      src -> GuidanceResponse40_50.convertGuidanceResponse((org.hl7.fhir.r4.model.GuidanceResponse) src))
+    .add(org.hl7.fhir.r4.model.HealthcareService.class,
+      src -> HealthcareService40_50.convertHealthcareService((org.hl7.fhir.r4.model.HealthcareService) src))
+    .add(org.hl7.fhir.r4.model.ImagingStudy.class,
+      src -> ImagingStudy40_50.convertImagingStudy((org.hl7.fhir.r4.model.ImagingStudy) src))
+    .add(org.hl7.fhir.r4.model.Immunization.class,
+      src -> Immunization40_50.convertImmunization((org.hl7.fhir.r4.model.Immunization) src))
+    .add(org.hl7.fhir.r4.model.ImmunizationEvaluation.class,
+      src -> ImmunizationEvaluation40_50.convertImmunizationEvaluation((org.hl7.fhir.r4.model.ImmunizationEvaluation) src))
+    .add(org.hl7.fhir.r4.model.ImmunizationRecommendation.class,
+      src -> ImmunizationRecommendation40_50.convertImmunizationRecommendation((org.hl7.fhir.r4.model.ImmunizationRecommendation) src))
+    .add(org.hl7.fhir.r4.model.ImplementationGuide.class,
+      src -> ImplementationGuide40_50.convertImplementationGuide((org.hl7.fhir.r4.model.ImplementationGuide) src))
+    .add(org.hl7.fhir.r4.model.InsurancePlan.class,
+      src -> InsurancePlan40_50.convertInsurancePlan((org.hl7.fhir.r4.model.InsurancePlan) src))
+    .add(org.hl7.fhir.r4.model.Invoice.class,
+      src -> Invoice40_50.convertInvoice((org.hl7.fhir.r4.model.Invoice) src))
+    .add(org.hl7.fhir.r4.model.Library.class,
+      src -> Library40_50.convertLibrary((org.hl7.fhir.r4.model.Library) src))
+    .add(org.hl7.fhir.r4.model.Linkage.class,
+      src -> Linkage40_50.convertLinkage((org.hl7.fhir.r4.model.Linkage) src))
+    .add(org.hl7.fhir.r4.model.ListResource.class,
+      src -> ListResource40_50.convertListResource((org.hl7.fhir.r4.model.ListResource) src))
+    .add(org.hl7.fhir.r4.model.Location.class,
+      src -> Location40_50.convertLocation((org.hl7.fhir.r4.model.Location) src))
+    .add(org.hl7.fhir.r4.model.Measure.class,
+      src -> Measure40_50.convertMeasure((org.hl7.fhir.r4.model.Measure) src))
+    .add(org.hl7.fhir.r4.model.MeasureReport.class,
+      src -> MeasureReport40_50.convertMeasureReport((org.hl7.fhir.r4.model.MeasureReport) src))
+    .add(org.hl7.fhir.r4.model.Media.class,
+      src -> Media40_50.convertMedia((org.hl7.fhir.r4.model.Media) src))
+    .add(org.hl7.fhir.r4.model.Medication.class,
+      src -> Medication40_50.convertMedication((org.hl7.fhir.r4.model.Medication) src))
+    .add(org.hl7.fhir.r4.model.MedicationAdministration.class,
+      src -> MedicationAdministration40_50.convertMedicationAdministration((org.hl7.fhir.r4.model.MedicationAdministration) src))
+    .add(org.hl7.fhir.r4.model.MedicationDispense.class,
+      src -> MedicationDispense40_50.convertMedicationDispense((org.hl7.fhir.r4.model.MedicationDispense) src))
+    .add(org.hl7.fhir.r4.model.MedicationKnowledge.class,
+      src -> MedicationKnowledge40_50.convertMedicationKnowledge((org.hl7.fhir.r4.model.MedicationKnowledge) src))
+    .add(org.hl7.fhir.r4.model.MedicationRequest.class,
+      src -> MedicationRequest40_50.convertMedicationRequest((org.hl7.fhir.r4.model.MedicationRequest) src))
+    .add(org.hl7.fhir.r4.model.MedicationStatement.class,
+      src -> MedicationStatement40_50.convertMedicationStatement((org.hl7.fhir.r4.model.MedicationStatement) src))
+    .add(org.hl7.fhir.r4.model.MedicinalProduct.class,
+      src -> MedicinalProductDefinition40_50.convertMedicinalProduct((org.hl7.fhir.r4.model.MedicinalProduct) src))
+    .add(org.hl7.fhir.r4.model.MessageDefinition.class,
+      src -> MessageDefinition40_50.convertMessageDefinition((org.hl7.fhir.r4.model.MessageDefinition) src))
+    .add(org.hl7.fhir.r4.model.MessageHeader.class,
+      src -> MessageHeader40_50.convertMessageHeader((org.hl7.fhir.r4.model.MessageHeader) src))
+    .add(org.hl7.fhir.r4.model.MolecularSequence.class,
+      src -> MolecularSequence40_50.convertMolecularSequence((org.hl7.fhir.r4.model.MolecularSequence) src))
+    .add(org.hl7.fhir.r4.model.NamingSystem.class,
+      src -> NamingSystem40_50.convertNamingSystem((org.hl7.fhir.r4.model.NamingSystem) src))
+    .add(org.hl7.fhir.r4.model.NutritionOrder.class,
+      src -> NutritionOrder40_50.convertNutritionOrder((org.hl7.fhir.r4.model.NutritionOrder) src))
+    .add(org.hl7.fhir.r4.model.Observation.class,
+      src -> Observation40_50.convertObservation((org.hl7.fhir.r4.model.Observation) src))
+    .add(org.hl7.fhir.r4.model.ObservationDefinition.class,
+      src -> ObservationDefinition40_50.convertObservationDefinition((org.hl7.fhir.r4.model.ObservationDefinition) src))
+    .add(org.hl7.fhir.r4.model.OperationDefinition.class,
+      src -> OperationDefinition40_50.convertOperationDefinition((org.hl7.fhir.r4.model.OperationDefinition) src))
+    .add(org.hl7.fhir.r4.model.OperationOutcome.class,
+      src -> OperationOutcome40_50.convertOperationOutcome((org.hl7.fhir.r4.model.OperationOutcome) src))
+    .add(org.hl7.fhir.r4.model.Organization.class,
+      src -> Organization40_50.convertOrganization((org.hl7.fhir.r4.model.Organization) src))
+    .add(org.hl7.fhir.r4.model.OrganizationAffiliation.class,
+      src -> OrganizationAffiliation40_50.convertOrganizationAffiliation((org.hl7.fhir.r4.model.OrganizationAffiliation) src))
+    .add(org.hl7.fhir.r4.model.Patient.class,
+      src -> Patient40_50.convertPatient((org.hl7.fhir.r4.model.Patient) src))
+    .add(org.hl7.fhir.r4.model.PaymentNotice.class,
+      src -> PaymentNotice40_50.convertPaymentNotice((org.hl7.fhir.r4.model.PaymentNotice) src))
+    .add(org.hl7.fhir.r4.model.PaymentReconciliation.class,
+      src -> PaymentReconciliation40_50.convertPaymentReconciliation((org.hl7.fhir.r4.model.PaymentReconciliation) src))
+    .add(org.hl7.fhir.r4.model.Person.class,
+      src -> Person40_50.convertPerson((org.hl7.fhir.r4.model.Person) src))
+    .add(org.hl7.fhir.r4.model.PlanDefinition.class,
+      src -> PlanDefinition40_50.convertPlanDefinition((org.hl7.fhir.r4.model.PlanDefinition) src))
+    .add(org.hl7.fhir.r4.model.Practitioner.class,
+      src -> Practitioner40_50.convertPractitioner((org.hl7.fhir.r4.model.Practitioner) src))
+    .add(org.hl7.fhir.r4.model.PractitionerRole.class,
+      src -> PractitionerRole40_50.convertPractitionerRole((org.hl7.fhir.r4.model.PractitionerRole) src))
+    .add(org.hl7.fhir.r4.model.Procedure.class,
+      src -> Procedure40_50.convertProcedure((org.hl7.fhir.r4.model.Procedure) src))
+    .add(org.hl7.fhir.r4.model.Provenance.class,
+      src -> Provenance40_50.convertProvenance((org.hl7.fhir.r4.model.Provenance) src))
+    .add(org.hl7.fhir.r4.model.Questionnaire.class,
+      src -> Questionnaire40_50.convertQuestionnaire((org.hl7.fhir.r4.model.Questionnaire) src))
+    .add(org.hl7.fhir.r4.model.QuestionnaireResponse.class,
+      src -> QuestionnaireResponse40_50.convertQuestionnaireResponse((org.hl7.fhir.r4.model.QuestionnaireResponse) src))
+    .add(org.hl7.fhir.r4.model.RelatedPerson.class,
+      src -> RelatedPerson40_50.convertRelatedPerson((org.hl7.fhir.r4.model.RelatedPerson) src))
+    .add(org.hl7.fhir.r4.model.RequestGroup.class,
+      src -> RequestGroup40_50.convertRequestGroup((org.hl7.fhir.r4.model.RequestGroup) src))
+    .add(org.hl7.fhir.r4.model.ResearchStudy.class,
+      src -> ResearchStudy40_50.convertResearchStudy((org.hl7.fhir.r4.model.ResearchStudy) src))
+    .add(org.hl7.fhir.r4.model.ResearchSubject.class,
+      src -> ResearchSubject40_50.convertResearchSubject((org.hl7.fhir.r4.model.ResearchSubject) src))
+    .add(org.hl7.fhir.r4.model.RiskAssessment.class,
+      src -> RiskAssessment40_50.convertRiskAssessment((org.hl7.fhir.r4.model.RiskAssessment) src))
+    .add(org.hl7.fhir.r4.model.Schedule.class,
+      src -> Schedule40_50.convertSchedule((org.hl7.fhir.r4.model.Schedule) src))
+    .add(org.hl7.fhir.r4.model.SearchParameter.class,
+      src -> SearchParameter40_50.convertSearchParameter((org.hl7.fhir.r4.model.SearchParameter) src))
+    .add(org.hl7.fhir.r4.model.ServiceRequest.class,
+      src -> ServiceRequest40_50.convertServiceRequest((org.hl7.fhir.r4.model.ServiceRequest) src))
+    .add(org.hl7.fhir.r4.model.Slot.class,
+      src -> Slot40_50.convertSlot((org.hl7.fhir.r4.model.Slot) src))
+    .add(org.hl7.fhir.r4.model.Specimen.class,
+      src -> Specimen40_50.convertSpecimen((org.hl7.fhir.r4.model.Specimen) src))
+    .add(org.hl7.fhir.r4.model.SpecimenDefinition.class,
+      src -> SpecimenDefinition40_50.convertSpecimenDefinition((org.hl7.fhir.r4.model.SpecimenDefinition) src))
+    .add(org.hl7.fhir.r4.model.StructureDefinition.class,
+      src -> StructureDefinition40_50.convertStructureDefinition((org.hl7.fhir.r4.model.StructureDefinition) src))
+    .add(org.hl7.fhir.r4.model.StructureMap.class,
+      src -> StructureMap40_50.convertStructureMap((org.hl7.fhir.r4.model.StructureMap) src))
+    .add(org.hl7.fhir.r4.model.Substance.class,
+      src -> Substance40_50.convertSubstance((org.hl7.fhir.r4.model.Substance) src))
+    .add(org.hl7.fhir.r4.model.SubstanceNucleicAcid.class,
+      src -> SubstanceNucleicAcid40_50.convertSubstanceNucleicAcid((org.hl7.fhir.r4.model.SubstanceNucleicAcid) src))
+    .add(org.hl7.fhir.r4.model.SubstancePolymer.class,
+      src -> SubstancePolymer40_50.convertSubstancePolymer((org.hl7.fhir.r4.model.SubstancePolymer) src))
+    .add(org.hl7.fhir.r4.model.SubstanceProtein.class,
+      src -> SubstanceProtein40_50.convertSubstanceProtein((org.hl7.fhir.r4.model.SubstanceProtein) src))
+    .add(org.hl7.fhir.r4.model.SubstanceReferenceInformation.class,
+      src -> SubstanceReferenceInformation40_50.convertSubstanceReferenceInformation((org.hl7.fhir.r4.model.SubstanceReferenceInformation) src))
+    .add(org.hl7.fhir.r4.model.SubstanceSourceMaterial.class,
+      src -> SubstanceSourceMaterial40_50.convertSubstanceSourceMaterial((org.hl7.fhir.r4.model.SubstanceSourceMaterial) src))
+    .add(org.hl7.fhir.r4.model.SupplyDelivery.class,
+      src -> SupplyDelivery40_50.convertSupplyDelivery((org.hl7.fhir.r4.model.SupplyDelivery) src))
+    .add(org.hl7.fhir.r4.model.SupplyRequest.class,
+      src -> SupplyRequest40_50.convertSupplyRequest((org.hl7.fhir.r4.model.SupplyRequest) src))
+    .add(org.hl7.fhir.r4.model.Task.class,
+      src -> Task40_50.convertTask((org.hl7.fhir.r4.model.Task) src))
+    .add(org.hl7.fhir.r4.model.TerminologyCapabilities.class,
+      src -> TerminologyCapabilities40_50.convertTerminologyCapabilities((org.hl7.fhir.r4.model.TerminologyCapabilities) src))
+    .add(org.hl7.fhir.r4.model.TestReport.class,
+      src -> TestReport40_50.convertTestReport((org.hl7.fhir.r4.model.TestReport) src))
+    .add(org.hl7.fhir.r4.model.TestScript.class,
+      src -> TestScript40_50.convertTestScript((org.hl7.fhir.r4.model.TestScript) src))
+    .add(org.hl7.fhir.r4.model.ValueSet.class,
+      src -> ValueSet40_50.convertValueSet((org.hl7.fhir.r4.model.ValueSet) src))
+    .add(org.hl7.fhir.r4.model.VerificationResult.class,
+      src -> VerificationResult40_50.convertVerificationResult((org.hl7.fhir.r4.model.VerificationResult) src))
+    .add(org.hl7.fhir.r4.model.VisionPrescription.class,
+      src -> VisionPrescription40_50.convertVisionPrescription((org.hl7.fhir.r4.model.VisionPrescription) src));
+
   public static org.hl7.fhir.r5.model.Resource convertResource(org.hl7.fhir.r4.model.Resource src) throws FHIRException {
     if (src == null) return null;
-    if (src instanceof org.hl7.fhir.r4.model.Parameters)
-      return Parameters40_50.convertParameters((org.hl7.fhir.r4.model.Parameters) src);
-    if (src instanceof org.hl7.fhir.r4.model.Account)
-      return Account40_50.convertAccount((org.hl7.fhir.r4.model.Account) src);
-    if (src instanceof org.hl7.fhir.r4.model.ActivityDefinition)
-      return ActivityDefinition40_50.convertActivityDefinition((org.hl7.fhir.r4.model.ActivityDefinition) src);
-    if (src instanceof org.hl7.fhir.r4.model.AllergyIntolerance)
-      return AllergyIntolerance40_50.convertAllergyIntolerance((org.hl7.fhir.r4.model.AllergyIntolerance) src);
-    if (src instanceof org.hl7.fhir.r4.model.Appointment)
-      return Appointment40_50.convertAppointment((org.hl7.fhir.r4.model.Appointment) src);
-    if (src instanceof org.hl7.fhir.r4.model.AppointmentResponse)
-      return AppointmentResponse40_50.convertAppointmentResponse((org.hl7.fhir.r4.model.AppointmentResponse) src);
-    if (src instanceof org.hl7.fhir.r4.model.AuditEvent)
-      return AuditEvent40_50.convertAuditEvent((org.hl7.fhir.r4.model.AuditEvent) src);
-    if (src instanceof org.hl7.fhir.r4.model.Basic) return Basic40_50.convertBasic((org.hl7.fhir.r4.model.Basic) src);
-    if (src instanceof org.hl7.fhir.r4.model.Binary)
-      return Binary40_50.convertBinary((org.hl7.fhir.r4.model.Binary) src);
-    if (src instanceof org.hl7.fhir.r4.model.BiologicallyDerivedProduct)
-      return BiologicallyDerivedProduct40_50.convertBiologicallyDerivedProduct((org.hl7.fhir.r4.model.BiologicallyDerivedProduct) src);
-    if (src instanceof org.hl7.fhir.r4.model.BodyStructure)
-      return BodyStructure40_50.convertBodyStructure((org.hl7.fhir.r4.model.BodyStructure) src);
-    if (src instanceof org.hl7.fhir.r4.model.Bundle)
-      return Bundle40_50.convertBundle((org.hl7.fhir.r4.model.Bundle) src);
-    if (src instanceof org.hl7.fhir.r4.model.CapabilityStatement)
-      return CapabilityStatement40_50.convertCapabilityStatement((org.hl7.fhir.r4.model.CapabilityStatement) src);
-    if (src instanceof org.hl7.fhir.r4.model.CarePlan)
-      return CarePlan40_50.convertCarePlan((org.hl7.fhir.r4.model.CarePlan) src);
-    if (src instanceof org.hl7.fhir.r4.model.CareTeam)
-      return CareTeam40_50.convertCareTeam((org.hl7.fhir.r4.model.CareTeam) src);
-    if (src instanceof org.hl7.fhir.r4.model.ChargeItem)
-      return ChargeItem40_50.convertChargeItem((org.hl7.fhir.r4.model.ChargeItem) src);
-    if (src instanceof org.hl7.fhir.r4.model.ChargeItemDefinition)
-      return ChargeItemDefinition40_50.convertChargeItemDefinition((org.hl7.fhir.r4.model.ChargeItemDefinition) src);
-    if (src instanceof org.hl7.fhir.r4.model.Claim) return Claim40_50.convertClaim((org.hl7.fhir.r4.model.Claim) src);
-    if (src instanceof org.hl7.fhir.r4.model.ClaimResponse)
-      return ClaimResponse40_50.convertClaimResponse((org.hl7.fhir.r4.model.ClaimResponse) src);
-    if (src instanceof org.hl7.fhir.r4.model.ClinicalImpression)
-      return ClinicalImpression40_50.convertClinicalImpression((org.hl7.fhir.r4.model.ClinicalImpression) src);
-    if (src instanceof org.hl7.fhir.r4.model.CodeSystem)
-      return CodeSystem40_50.convertCodeSystem((org.hl7.fhir.r4.model.CodeSystem) src);
-    if (src instanceof org.hl7.fhir.r4.model.Communication)
-      return Communication40_50.convertCommunication((org.hl7.fhir.r4.model.Communication) src);
-    if (src instanceof org.hl7.fhir.r4.model.CommunicationRequest)
-      return CommunicationRequest40_50.convertCommunicationRequest((org.hl7.fhir.r4.model.CommunicationRequest) src);
-    if (src instanceof org.hl7.fhir.r4.model.CompartmentDefinition)
-      return CompartmentDefinition40_50.convertCompartmentDefinition((org.hl7.fhir.r4.model.CompartmentDefinition) src);
-    if (src instanceof org.hl7.fhir.r4.model.Composition)
-      return Composition40_50.convertComposition((org.hl7.fhir.r4.model.Composition) src);
-    if (src instanceof org.hl7.fhir.r4.model.ConceptMap)
-      return ConceptMap40_50.convertConceptMap((org.hl7.fhir.r4.model.ConceptMap) src);
-    if (src instanceof org.hl7.fhir.r4.model.Condition)
-      return Condition40_50.convertCondition((org.hl7.fhir.r4.model.Condition) src);
-    if (src instanceof org.hl7.fhir.r4.model.Consent)
-      return Consent40_50.convertConsent((org.hl7.fhir.r4.model.Consent) src);
-    if (src instanceof org.hl7.fhir.r4.model.Contract)
-      return Contract40_50.convertContract((org.hl7.fhir.r4.model.Contract) src);
-    if (src instanceof org.hl7.fhir.r4.model.Coverage)
-      return Coverage40_50.convertCoverage((org.hl7.fhir.r4.model.Coverage) src);
-    if (src instanceof org.hl7.fhir.r4.model.CoverageEligibilityRequest)
-      return CoverageEligibilityRequest40_50.convertCoverageEligibilityRequest((org.hl7.fhir.r4.model.CoverageEligibilityRequest) src);
-    if (src instanceof org.hl7.fhir.r4.model.CoverageEligibilityResponse)
-      return CoverageEligibilityResponse40_50.convertCoverageEligibilityResponse((org.hl7.fhir.r4.model.CoverageEligibilityResponse) src);
-    if (src instanceof org.hl7.fhir.r4.model.DetectedIssue)
-      return DetectedIssue40_50.convertDetectedIssue((org.hl7.fhir.r4.model.DetectedIssue) src);
-    if (src instanceof org.hl7.fhir.r4.model.Device)
-      return Device40_50.convertDevice((org.hl7.fhir.r4.model.Device) src);
-    if (src instanceof org.hl7.fhir.r4.model.DeviceDefinition)
-      return DeviceDefinition40_50.convertDeviceDefinition((org.hl7.fhir.r4.model.DeviceDefinition) src);
-    if (src instanceof org.hl7.fhir.r4.model.DeviceMetric)
-      return DeviceMetric40_50.convertDeviceMetric((org.hl7.fhir.r4.model.DeviceMetric) src);
-    if (src instanceof org.hl7.fhir.r4.model.DeviceRequest)
-      return DeviceRequest40_50.convertDeviceRequest((org.hl7.fhir.r4.model.DeviceRequest) src);
-    if (src instanceof org.hl7.fhir.r4.model.DeviceUseStatement)
-      return DeviceUseStatement40_50.convertDeviceUseStatement((org.hl7.fhir.r4.model.DeviceUseStatement) src);
-    if (src instanceof org.hl7.fhir.r4.model.DiagnosticReport)
-      return DiagnosticReport40_50.convertDiagnosticReport((org.hl7.fhir.r4.model.DiagnosticReport) src);
-    if (src instanceof org.hl7.fhir.r4.model.DocumentManifest)
-      return DocumentManifest40_50.convertDocumentManifest((org.hl7.fhir.r4.model.DocumentManifest) src);
-    if (src instanceof org.hl7.fhir.r4.model.DocumentReference)
-      return DocumentReference40_50.convertDocumentReference((org.hl7.fhir.r4.model.DocumentReference) src);
-    if (src instanceof org.hl7.fhir.r4.model.Encounter)
-      return Encounter40_50.convertEncounter((org.hl7.fhir.r4.model.Encounter) src);
-    if (src instanceof org.hl7.fhir.r4.model.Endpoint)
-      return Endpoint40_50.convertEndpoint((org.hl7.fhir.r4.model.Endpoint) src);
-    if (src instanceof org.hl7.fhir.r4.model.EnrollmentRequest)
-      return EnrollmentRequest40_50.convertEnrollmentRequest((org.hl7.fhir.r4.model.EnrollmentRequest) src);
-    if (src instanceof org.hl7.fhir.r4.model.EnrollmentResponse)
-      return EnrollmentResponse40_50.convertEnrollmentResponse((org.hl7.fhir.r4.model.EnrollmentResponse) src);
-    if (src instanceof org.hl7.fhir.r4.model.EpisodeOfCare)
-      return EpisodeOfCare40_50.convertEpisodeOfCare((org.hl7.fhir.r4.model.EpisodeOfCare) src);
-    if (src instanceof org.hl7.fhir.r4.model.EventDefinition)
-      return EventDefinition40_50.convertEventDefinition((org.hl7.fhir.r4.model.EventDefinition) src);
-    if (src instanceof org.hl7.fhir.r4.model.ExampleScenario)
-      return ExampleScenario40_50.convertExampleScenario((org.hl7.fhir.r4.model.ExampleScenario) src);
-    if (src instanceof org.hl7.fhir.r4.model.ExplanationOfBenefit)
-      return ExplanationOfBenefit40_50.convertExplanationOfBenefit((org.hl7.fhir.r4.model.ExplanationOfBenefit) src);
-    if (src instanceof org.hl7.fhir.r4.model.FamilyMemberHistory)
-      return FamilyMemberHistory40_50.convertFamilyMemberHistory((org.hl7.fhir.r4.model.FamilyMemberHistory) src);
-    if (src instanceof org.hl7.fhir.r4.model.Flag) return Flag40_50.convertFlag((org.hl7.fhir.r4.model.Flag) src);
-    if (src instanceof org.hl7.fhir.r4.model.Goal) return Goal40_50.convertGoal((org.hl7.fhir.r4.model.Goal) src);
-    if (src instanceof org.hl7.fhir.r4.model.GraphDefinition)
-      return GraphDefinition40_50.convertGraphDefinition((org.hl7.fhir.r4.model.GraphDefinition) src);
-    if (src instanceof org.hl7.fhir.r4.model.Group) return Group40_50.convertGroup((org.hl7.fhir.r4.model.Group) src);
-    if (src instanceof org.hl7.fhir.r4.model.GuidanceResponse)
-      return GuidanceResponse40_50.convertGuidanceResponse((org.hl7.fhir.r4.model.GuidanceResponse) src);
-    if (src instanceof org.hl7.fhir.r4.model.HealthcareService)
-      return HealthcareService40_50.convertHealthcareService((org.hl7.fhir.r4.model.HealthcareService) src);
-    if (src instanceof org.hl7.fhir.r4.model.ImagingStudy)
-      return ImagingStudy40_50.convertImagingStudy((org.hl7.fhir.r4.model.ImagingStudy) src);
-    if (src instanceof org.hl7.fhir.r4.model.Immunization)
-      return Immunization40_50.convertImmunization((org.hl7.fhir.r4.model.Immunization) src);
-    if (src instanceof org.hl7.fhir.r4.model.ImmunizationEvaluation)
-      return ImmunizationEvaluation40_50.convertImmunizationEvaluation((org.hl7.fhir.r4.model.ImmunizationEvaluation) src);
-    if (src instanceof org.hl7.fhir.r4.model.ImmunizationRecommendation)
-      return ImmunizationRecommendation40_50.convertImmunizationRecommendation((org.hl7.fhir.r4.model.ImmunizationRecommendation) src);
-    if (src instanceof org.hl7.fhir.r4.model.ImplementationGuide)
-      return ImplementationGuide40_50.convertImplementationGuide((org.hl7.fhir.r4.model.ImplementationGuide) src);
-    if (src instanceof org.hl7.fhir.r4.model.InsurancePlan)
-      return InsurancePlan40_50.convertInsurancePlan((org.hl7.fhir.r4.model.InsurancePlan) src);
-    if (src instanceof org.hl7.fhir.r4.model.Invoice)
-      return Invoice40_50.convertInvoice((org.hl7.fhir.r4.model.Invoice) src);
-    if (src instanceof org.hl7.fhir.r4.model.Library)
-      return Library40_50.convertLibrary((org.hl7.fhir.r4.model.Library) src);
-    if (src instanceof org.hl7.fhir.r4.model.Linkage)
-      return Linkage40_50.convertLinkage((org.hl7.fhir.r4.model.Linkage) src);
-    if (src instanceof org.hl7.fhir.r4.model.ListResource)
-      return ListResource40_50.convertListResource((org.hl7.fhir.r4.model.ListResource) src);
-    if (src instanceof org.hl7.fhir.r4.model.Location)
-      return Location40_50.convertLocation((org.hl7.fhir.r4.model.Location) src);
-    if (src instanceof org.hl7.fhir.r4.model.Measure)
-      return Measure40_50.convertMeasure((org.hl7.fhir.r4.model.Measure) src);
-    if (src instanceof org.hl7.fhir.r4.model.MeasureReport)
-      return MeasureReport40_50.convertMeasureReport((org.hl7.fhir.r4.model.MeasureReport) src);
-    if (src instanceof org.hl7.fhir.r4.model.Media) return Media40_50.convertMedia((org.hl7.fhir.r4.model.Media) src);
-    if (src instanceof org.hl7.fhir.r4.model.Medication)
-      return Medication40_50.convertMedication((org.hl7.fhir.r4.model.Medication) src);
-    if (src instanceof org.hl7.fhir.r4.model.MedicationAdministration)
-      return MedicationAdministration40_50.convertMedicationAdministration((org.hl7.fhir.r4.model.MedicationAdministration) src);
-    if (src instanceof org.hl7.fhir.r4.model.MedicationDispense)
-      return MedicationDispense40_50.convertMedicationDispense((org.hl7.fhir.r4.model.MedicationDispense) src);
-    if (src instanceof org.hl7.fhir.r4.model.MedicationKnowledge)
-      return MedicationKnowledge40_50.convertMedicationKnowledge((org.hl7.fhir.r4.model.MedicationKnowledge) src);
-    if (src instanceof org.hl7.fhir.r4.model.MedicationRequest)
-      return MedicationRequest40_50.convertMedicationRequest((org.hl7.fhir.r4.model.MedicationRequest) src);
-    if (src instanceof org.hl7.fhir.r4.model.MedicationStatement)
-      return MedicationStatement40_50.convertMedicationStatement((org.hl7.fhir.r4.model.MedicationStatement) src);
-    if (src instanceof org.hl7.fhir.r4.model.MedicinalProduct)
-      return MedicinalProductDefinition40_50.convertMedicinalProduct((org.hl7.fhir.r4.model.MedicinalProduct) src);
-    if (src instanceof org.hl7.fhir.r4.model.MessageDefinition)
-      return MessageDefinition40_50.convertMessageDefinition((org.hl7.fhir.r4.model.MessageDefinition) src);
-    if (src instanceof org.hl7.fhir.r4.model.MessageHeader)
-      return MessageHeader40_50.convertMessageHeader((org.hl7.fhir.r4.model.MessageHeader) src);
-    if (src instanceof org.hl7.fhir.r4.model.MolecularSequence)
-      return MolecularSequence40_50.convertMolecularSequence((org.hl7.fhir.r4.model.MolecularSequence) src);
-    if (src instanceof org.hl7.fhir.r4.model.NamingSystem)
-      return NamingSystem40_50.convertNamingSystem((org.hl7.fhir.r4.model.NamingSystem) src);
-    if (src instanceof org.hl7.fhir.r4.model.NutritionOrder)
-      return NutritionOrder40_50.convertNutritionOrder((org.hl7.fhir.r4.model.NutritionOrder) src);
-    if (src instanceof org.hl7.fhir.r4.model.Observation)
-      return Observation40_50.convertObservation((org.hl7.fhir.r4.model.Observation) src);
-    if (src instanceof org.hl7.fhir.r4.model.ObservationDefinition)
-      return ObservationDefinition40_50.convertObservationDefinition((org.hl7.fhir.r4.model.ObservationDefinition) src);
-    if (src instanceof org.hl7.fhir.r4.model.OperationDefinition)
-      return OperationDefinition40_50.convertOperationDefinition((org.hl7.fhir.r4.model.OperationDefinition) src);
-    if (src instanceof org.hl7.fhir.r4.model.OperationOutcome)
-      return OperationOutcome40_50.convertOperationOutcome((org.hl7.fhir.r4.model.OperationOutcome) src);
-    if (src instanceof org.hl7.fhir.r4.model.Organization)
-      return Organization40_50.convertOrganization((org.hl7.fhir.r4.model.Organization) src);
-    if (src instanceof org.hl7.fhir.r4.model.OrganizationAffiliation)
-      return OrganizationAffiliation40_50.convertOrganizationAffiliation((org.hl7.fhir.r4.model.OrganizationAffiliation) src);
-    if (src instanceof org.hl7.fhir.r4.model.Patient)
-      return Patient40_50.convertPatient((org.hl7.fhir.r4.model.Patient) src);
-    if (src instanceof org.hl7.fhir.r4.model.PaymentNotice)
-      return PaymentNotice40_50.convertPaymentNotice((org.hl7.fhir.r4.model.PaymentNotice) src);
-    if (src instanceof org.hl7.fhir.r4.model.PaymentReconciliation)
-      return PaymentReconciliation40_50.convertPaymentReconciliation((org.hl7.fhir.r4.model.PaymentReconciliation) src);
-    if (src instanceof org.hl7.fhir.r4.model.Person)
-      return Person40_50.convertPerson((org.hl7.fhir.r4.model.Person) src);
-    if (src instanceof org.hl7.fhir.r4.model.PlanDefinition)
-      return PlanDefinition40_50.convertPlanDefinition((org.hl7.fhir.r4.model.PlanDefinition) src);
-    if (src instanceof org.hl7.fhir.r4.model.Practitioner)
-      return Practitioner40_50.convertPractitioner((org.hl7.fhir.r4.model.Practitioner) src);
-    if (src instanceof org.hl7.fhir.r4.model.PractitionerRole)
-      return PractitionerRole40_50.convertPractitionerRole((org.hl7.fhir.r4.model.PractitionerRole) src);
-    if (src instanceof org.hl7.fhir.r4.model.Procedure)
-      return Procedure40_50.convertProcedure((org.hl7.fhir.r4.model.Procedure) src);
-    if (src instanceof org.hl7.fhir.r4.model.Provenance)
-      return Provenance40_50.convertProvenance((org.hl7.fhir.r4.model.Provenance) src);
-    if (src instanceof org.hl7.fhir.r4.model.Questionnaire)
-      return Questionnaire40_50.convertQuestionnaire((org.hl7.fhir.r4.model.Questionnaire) src);
-    if (src instanceof org.hl7.fhir.r4.model.QuestionnaireResponse)
-      return QuestionnaireResponse40_50.convertQuestionnaireResponse((org.hl7.fhir.r4.model.QuestionnaireResponse) src);
-    if (src instanceof org.hl7.fhir.r4.model.RelatedPerson)
-      return RelatedPerson40_50.convertRelatedPerson((org.hl7.fhir.r4.model.RelatedPerson) src);
-    if (src instanceof org.hl7.fhir.r4.model.RequestGroup)
-      return RequestGroup40_50.convertRequestGroup((org.hl7.fhir.r4.model.RequestGroup) src);
-    if (src instanceof org.hl7.fhir.r4.model.ResearchStudy)
-      return ResearchStudy40_50.convertResearchStudy((org.hl7.fhir.r4.model.ResearchStudy) src);
-    if (src instanceof org.hl7.fhir.r4.model.ResearchSubject)
-      return ResearchSubject40_50.convertResearchSubject((org.hl7.fhir.r4.model.ResearchSubject) src);
-    if (src instanceof org.hl7.fhir.r4.model.RiskAssessment)
-      return RiskAssessment40_50.convertRiskAssessment((org.hl7.fhir.r4.model.RiskAssessment) src);
-    if (src instanceof org.hl7.fhir.r4.model.Schedule)
-      return Schedule40_50.convertSchedule((org.hl7.fhir.r4.model.Schedule) src);
-    if (src instanceof org.hl7.fhir.r4.model.SearchParameter)
-      return SearchParameter40_50.convertSearchParameter((org.hl7.fhir.r4.model.SearchParameter) src);
-    if (src instanceof org.hl7.fhir.r4.model.ServiceRequest)
-      return ServiceRequest40_50.convertServiceRequest((org.hl7.fhir.r4.model.ServiceRequest) src);
-    if (src instanceof org.hl7.fhir.r4.model.Slot) return Slot40_50.convertSlot((org.hl7.fhir.r4.model.Slot) src);
-    if (src instanceof org.hl7.fhir.r4.model.Specimen)
-      return Specimen40_50.convertSpecimen((org.hl7.fhir.r4.model.Specimen) src);
-    if (src instanceof org.hl7.fhir.r4.model.SpecimenDefinition)
-      return SpecimenDefinition40_50.convertSpecimenDefinition((org.hl7.fhir.r4.model.SpecimenDefinition) src);
-    if (src instanceof org.hl7.fhir.r4.model.StructureDefinition)
-      return StructureDefinition40_50.convertStructureDefinition((org.hl7.fhir.r4.model.StructureDefinition) src);
-    if (src instanceof org.hl7.fhir.r4.model.StructureMap)
-      return StructureMap40_50.convertStructureMap((org.hl7.fhir.r4.model.StructureMap) src);
-    if (src instanceof org.hl7.fhir.r4.model.Substance)
-      return Substance40_50.convertSubstance((org.hl7.fhir.r4.model.Substance) src);
-    if (src instanceof org.hl7.fhir.r4.model.SubstanceNucleicAcid)
-      return SubstanceNucleicAcid40_50.convertSubstanceNucleicAcid((org.hl7.fhir.r4.model.SubstanceNucleicAcid) src);
-    if (src instanceof org.hl7.fhir.r4.model.SubstancePolymer)
-      return SubstancePolymer40_50.convertSubstancePolymer((org.hl7.fhir.r4.model.SubstancePolymer) src);
-    if (src instanceof org.hl7.fhir.r4.model.SubstanceProtein)
-      return SubstanceProtein40_50.convertSubstanceProtein((org.hl7.fhir.r4.model.SubstanceProtein) src);
-    if (src instanceof org.hl7.fhir.r4.model.SubstanceReferenceInformation)
-      return SubstanceReferenceInformation40_50.convertSubstanceReferenceInformation((org.hl7.fhir.r4.model.SubstanceReferenceInformation) src);
-    if (src instanceof org.hl7.fhir.r4.model.SubstanceSourceMaterial)
-      return SubstanceSourceMaterial40_50.convertSubstanceSourceMaterial((org.hl7.fhir.r4.model.SubstanceSourceMaterial) src);
-    if (src instanceof org.hl7.fhir.r4.model.SupplyDelivery)
-      return SupplyDelivery40_50.convertSupplyDelivery((org.hl7.fhir.r4.model.SupplyDelivery) src);
-    if (src instanceof org.hl7.fhir.r4.model.SupplyRequest)
-      return SupplyRequest40_50.convertSupplyRequest((org.hl7.fhir.r4.model.SupplyRequest) src);
-    if (src instanceof org.hl7.fhir.r4.model.Task) return Task40_50.convertTask((org.hl7.fhir.r4.model.Task) src);
-    if (src instanceof org.hl7.fhir.r4.model.TerminologyCapabilities)
-      return TerminologyCapabilities40_50.convertTerminologyCapabilities((org.hl7.fhir.r4.model.TerminologyCapabilities) src);
-    if (src instanceof org.hl7.fhir.r4.model.TestReport)
-      return TestReport40_50.convertTestReport((org.hl7.fhir.r4.model.TestReport) src);
-    if (src instanceof org.hl7.fhir.r4.model.TestScript)
-      return TestScript40_50.convertTestScript((org.hl7.fhir.r4.model.TestScript) src);
-    if (src instanceof org.hl7.fhir.r4.model.ValueSet)
-      return ValueSet40_50.convertValueSet((org.hl7.fhir.r4.model.ValueSet) src);
-    if (src instanceof org.hl7.fhir.r4.model.VerificationResult)
-      return VerificationResult40_50.convertVerificationResult((org.hl7.fhir.r4.model.VerificationResult) src);
-    if (src instanceof org.hl7.fhir.r4.model.VisionPrescription)
-      return VisionPrescription40_50.convertVisionPrescription((org.hl7.fhir.r4.model.VisionPrescription) src);
+    Function<org.hl7.fhir.r4.model.Resource, org.hl7.fhir.r5.model.Resource> conversion = RESOURCES_40_50.get(src.getClass());
+    if (conversion != null)
+      return conversion.apply(src);
     throw new FHIRException("Unknown resource " + src.fhirType());
   }
 
+  private static final ConversionDispatcher<Function<org.hl7.fhir.r5.model.Resource, org.hl7.fhir.r4.model.Resource>> RESOURCES_50_40 = new ConversionDispatcher<Function<org.hl7.fhir.r5.model.Resource, org.hl7.fhir.r4.model.Resource>>()
+    .add(org.hl7.fhir.r5.model.Parameters.class,
+      src -> Parameters40_50.convertParameters((org.hl7.fhir.r5.model.Parameters) src))
+    .add(org.hl7.fhir.r5.model.Account.class,
+      src -> Account40_50.convertAccount((org.hl7.fhir.r5.model.Account) src))
+    .add(org.hl7.fhir.r5.model.ActivityDefinition.class,
+      src -> ActivityDefinition40_50.convertActivityDefinition((org.hl7.fhir.r5.model.ActivityDefinition) src))
+    .add(org.hl7.fhir.r5.model.AllergyIntolerance.class,
+      src -> AllergyIntolerance40_50.convertAllergyIntolerance((org.hl7.fhir.r5.model.AllergyIntolerance) src))
+    .add(org.hl7.fhir.r5.model.Appointment.class,
+      src -> Appointment40_50.convertAppointment((org.hl7.fhir.r5.model.Appointment) src))
+    .add(org.hl7.fhir.r5.model.AppointmentResponse.class,
+      src -> AppointmentResponse40_50.convertAppointmentResponse((org.hl7.fhir.r5.model.AppointmentResponse) src))
+    .add(org.hl7.fhir.r5.model.AuditEvent.class,
+      src -> AuditEvent40_50.convertAuditEvent((org.hl7.fhir.r5.model.AuditEvent) src))
+    .add(org.hl7.fhir.r5.model.Basic.class,
+      src -> Basic40_50.convertBasic((org.hl7.fhir.r5.model.Basic) src))
+    .add(org.hl7.fhir.r5.model.Binary.class,
+      src -> Binary40_50.convertBinary((org.hl7.fhir.r5.model.Binary) src))
+    .add(org.hl7.fhir.r5.model.BiologicallyDerivedProduct.class,
+      src -> BiologicallyDerivedProduct40_50.convertBiologicallyDerivedProduct((org.hl7.fhir.r5.model.BiologicallyDerivedProduct) src))
+    .add(org.hl7.fhir.r5.model.BodyStructure.class,
+      src -> BodyStructure40_50.convertBodyStructure((org.hl7.fhir.r5.model.BodyStructure) src))
+    .add(org.hl7.fhir.r5.model.Bundle.class,
+      src -> Bundle40_50.convertBundle((org.hl7.fhir.r5.model.Bundle) src))
+    .add(org.hl7.fhir.r5.model.CapabilityStatement.class,
+      src -> CapabilityStatement40_50.convertCapabilityStatement((org.hl7.fhir.r5.model.CapabilityStatement) src))
+    .add(org.hl7.fhir.r5.model.CarePlan.class,
+      src -> CarePlan40_50.convertCarePlan((org.hl7.fhir.r5.model.CarePlan) src))
+    .add(org.hl7.fhir.r5.model.CareTeam.class,
+      src -> CareTeam40_50.convertCareTeam((org.hl7.fhir.r5.model.CareTeam) src))
+    .add(org.hl7.fhir.r5.model.ChargeItem.class,
+      src -> ChargeItem40_50.convertChargeItem((org.hl7.fhir.r5.model.ChargeItem) src))
+    .add(org.hl7.fhir.r5.model.ChargeItemDefinition.class,
+      src -> ChargeItemDefinition40_50.convertChargeItemDefinition((org.hl7.fhir.r5.model.ChargeItemDefinition) src))
+    .add(org.hl7.fhir.r5.model.Claim.class,
+      src -> Claim40_50.convertClaim((org.hl7.fhir.r5.model.Claim) src))
+    .add(org.hl7.fhir.r5.model.ClaimResponse.class,
+      src -> ClaimResponse40_50.convertClaimResponse((org.hl7.fhir.r5.model.ClaimResponse) src))
+    .add(org.hl7.fhir.r5.model.ClinicalImpression.class,
+      src -> ClinicalImpression40_50.convertClinicalImpression((org.hl7.fhir.r5.model.ClinicalImpression) src))
+    .add(org.hl7.fhir.r5.model.CodeSystem.class,
+      src -> CodeSystem40_50.convertCodeSystem((org.hl7.fhir.r5.model.CodeSystem) src))
+    .add(org.hl7.fhir.r5.model.Communication.class,
+      src -> Communication40_50.convertCommunication((org.hl7.fhir.r5.model.Communication) src))
+    .add(org.hl7.fhir.r5.model.CommunicationRequest.class,
+      src -> CommunicationRequest40_50.convertCommunicationRequest((org.hl7.fhir.r5.model.CommunicationRequest) src))
+    .add(org.hl7.fhir.r5.model.CompartmentDefinition.class,
+      src -> CompartmentDefinition40_50.convertCompartmentDefinition((org.hl7.fhir.r5.model.CompartmentDefinition) src))
+    .add(org.hl7.fhir.r5.model.Composition.class,
+      src -> Composition40_50.convertComposition((org.hl7.fhir.r5.model.Composition) src))
+    .add(org.hl7.fhir.r5.model.ConceptMap.class,
+      src -> ConceptMap40_50.convertConceptMap((org.hl7.fhir.r5.model.ConceptMap) src))
+    .add(org.hl7.fhir.r5.model.Condition.class,
+      src -> Condition40_50.convertCondition((org.hl7.fhir.r5.model.Condition) src))
+    .add(org.hl7.fhir.r5.model.Consent.class,
+      src -> Consent40_50.convertConsent((org.hl7.fhir.r5.model.Consent) src))
+    .add(org.hl7.fhir.r5.model.Contract.class,
+      src -> Contract40_50.convertContract((org.hl7.fhir.r5.model.Contract) src))
+    .add(org.hl7.fhir.r5.model.Coverage.class,
+      src -> Coverage40_50.convertCoverage((org.hl7.fhir.r5.model.Coverage) src))
+    .add(org.hl7.fhir.r5.model.CoverageEligibilityRequest.class,
+      src -> CoverageEligibilityRequest40_50.convertCoverageEligibilityRequest((org.hl7.fhir.r5.model.CoverageEligibilityRequest) src))
+    .add(org.hl7.fhir.r5.model.CoverageEligibilityResponse.class,
+      src -> CoverageEligibilityResponse40_50.convertCoverageEligibilityResponse((org.hl7.fhir.r5.model.CoverageEligibilityResponse) src))
+    .add(org.hl7.fhir.r5.model.DetectedIssue.class,
+      src -> DetectedIssue40_50.convertDetectedIssue((org.hl7.fhir.r5.model.DetectedIssue) src))
+    .add(org.hl7.fhir.r5.model.Device.class,
+      src -> Device40_50.convertDevice((org.hl7.fhir.r5.model.Device) src))
+    .add(org.hl7.fhir.r5.model.DeviceDefinition.class,
+      src -> DeviceDefinition40_50.convertDeviceDefinition((org.hl7.fhir.r5.model.DeviceDefinition) src))
+    .add(org.hl7.fhir.r5.model.DeviceMetric.class,
+      src -> DeviceMetric40_50.convertDeviceMetric((org.hl7.fhir.r5.model.DeviceMetric) src))
+    .add(org.hl7.fhir.r5.model.DeviceRequest.class,
+      src -> DeviceRequest40_50.convertDeviceRequest((org.hl7.fhir.r5.model.DeviceRequest) src))
+    .add(org.hl7.fhir.r5.model.DeviceUseStatement.class,
+      src -> DeviceUseStatement40_50.convertDeviceUseStatement((org.hl7.fhir.r5.model.DeviceUseStatement) src))
+    .add(org.hl7.fhir.r5.model.DiagnosticReport.class,
+      src -> DiagnosticReport40_50.convertDiagnosticReport((org.hl7.fhir.r5.model.DiagnosticReport) src))
+    .add(org.hl7.fhir.r5.model.DocumentManifest.class,
+      src -> DocumentManifest40_50.convertDocumentManifest((org.hl7.fhir.r5.model.DocumentManifest) src))
+    .add(org.hl7.fhir.r5.model.DocumentReference.class,
+      src -> DocumentReference40_50.convertDocumentReference((org.hl7.fhir.r5.model.DocumentReference) src))
+    .add(org.hl7.fhir.r5.model.Encounter.class,
+      src -> Encounter40_50.convertEncounter((org.hl7.fhir.r5.model.Encounter) src))
+    .add(org.hl7.fhir.r5.model.Endpoint.class,
+      src -> Endpoint40_50.convertEndpoint((org.hl7.fhir.r5.model.Endpoint) src))
+    .add(org.hl7.fhir.r5.model.EnrollmentRequest.class,
+      src -> EnrollmentRequest40_50.convertEnrollmentRequest((org.hl7.fhir.r5.model.EnrollmentRequest) src))
+    .add(org.hl7.fhir.r5.model.EnrollmentResponse.class,
+      src -> EnrollmentResponse40_50.convertEnrollmentResponse((org.hl7.fhir.r5.model.EnrollmentResponse) src))
+    .add(org.hl7.fhir.r5.model.EpisodeOfCare.class,
+      src -> EpisodeOfCare40_50.convertEpisodeOfCare((org.hl7.fhir.r5.model.EpisodeOfCare) src))
+    .add(org.hl7.fhir.r5.model.EventDefinition.class,
+      src -> EventDefinition40_50.convertEventDefinition((org.hl7.fhir.r5.model.EventDefinition) src))
+    .add(org.hl7.fhir.r5.model.ExampleScenario.class,
+      src -> ExampleScenario40_50.convertExampleScenario((org.hl7.fhir.r5.model.ExampleScenario) src))
+    .add(org.hl7.fhir.r5.model.ExplanationOfBenefit.class,
+      src -> ExplanationOfBenefit40_50.convertExplanationOfBenefit((org.hl7.fhir.r5.model.ExplanationOfBenefit) src))
+    .add(org.hl7.fhir.r5.model.FamilyMemberHistory.class,
+      src -> FamilyMemberHistory40_50.convertFamilyMemberHistory((org.hl7.fhir.r5.model.FamilyMemberHistory) src))
+    .add(org.hl7.fhir.r5.model.Flag.class,
+      src -> Flag40_50.convertFlag((org.hl7.fhir.r5.model.Flag) src))
+    .add(org.hl7.fhir.r5.model.Goal.class,
+      src -> Goal40_50.convertGoal((org.hl7.fhir.r5.model.Goal) src))
+    .add(org.hl7.fhir.r5.model.GraphDefinition.class,
+      src -> GraphDefinition40_50.convertGraphDefinition((org.hl7.fhir.r5.model.GraphDefinition) src))
+    .add(org.hl7.fhir.r5.model.Group.class,
+      src -> Group40_50.convertGroup((org.hl7.fhir.r5.model.Group) src))
+    .add(org.hl7.fhir.r5.model.GuidanceResponse.class,
+      src -> GuidanceResponse40_50.convertGuidanceResponse((org.hl7.fhir.r5.model.GuidanceResponse) src))
+    .add(org.hl7.fhir.r5.model.HealthcareService.class,
+      src -> HealthcareService40_50.convertHealthcareService((org.hl7.fhir.r5.model.HealthcareService) src))
+    .add(org.hl7.fhir.r5.model.ImagingStudy.class,
+      src -> ImagingStudy40_50.convertImagingStudy((org.hl7.fhir.r5.model.ImagingStudy) src))
+    .add(org.hl7.fhir.r5.model.Immunization.class,
+      src -> Immunization40_50.convertImmunization((org.hl7.fhir.r5.model.Immunization) src))
+    .add(org.hl7.fhir.r5.model.ImmunizationEvaluation.class,
+      src -> ImmunizationEvaluation40_50.convertImmunizationEvaluation((org.hl7.fhir.r5.model.ImmunizationEvaluation) src))
+    .add(org.hl7.fhir.r5.model.ImmunizationRecommendation.class,
+      src -> ImmunizationRecommendation40_50.convertImmunizationRecommendation((org.hl7.fhir.r5.model.ImmunizationRecommendation) src))
+    .add(org.hl7.fhir.r5.model.ImplementationGuide.class,
+      src -> ImplementationGuide40_50.convertImplementationGuide((org.hl7.fhir.r5.model.ImplementationGuide) src))
+    .add(org.hl7.fhir.r5.model.InsurancePlan.class,
+      src -> InsurancePlan40_50.convertInsurancePlan((org.hl7.fhir.r5.model.InsurancePlan) src))
+    .add(org.hl7.fhir.r5.model.Invoice.class,
+      src -> Invoice40_50.convertInvoice((org.hl7.fhir.r5.model.Invoice) src))
+    .add(org.hl7.fhir.r5.model.Library.class,
+      src -> Library40_50.convertLibrary((org.hl7.fhir.r5.model.Library) src))
+    .add(org.hl7.fhir.r5.model.Linkage.class,
+      src -> Linkage40_50.convertLinkage((org.hl7.fhir.r5.model.Linkage) src))
+    .add(org.hl7.fhir.r5.model.ListResource.class,
+      src -> ListResource40_50.convertListResource((org.hl7.fhir.r5.model.ListResource) src))
+    .add(org.hl7.fhir.r5.model.Location.class,
+      src -> Location40_50.convertLocation((org.hl7.fhir.r5.model.Location) src))
+    .add(org.hl7.fhir.r5.model.Measure.class,
+      src -> Measure40_50.convertMeasure((org.hl7.fhir.r5.model.Measure) src))
+    .add(org.hl7.fhir.r5.model.MeasureReport.class,
+      src -> MeasureReport40_50.convertMeasureReport((org.hl7.fhir.r5.model.MeasureReport) src))
+    .add(org.hl7.fhir.r5.model.DocumentReference.class,
+      src -> Media40_50.convertMedia((org.hl7.fhir.r5.model.DocumentReference) src))
+    .add(org.hl7.fhir.r5.model.Medication.class,
+      src -> Medication40_50.convertMedication((org.hl7.fhir.r5.model.Medication) src))
+    .add(org.hl7.fhir.r5.model.MedicationAdministration.class,
+      src -> MedicationAdministration40_50.convertMedicationAdministration((org.hl7.fhir.r5.model.MedicationAdministration) src))
+    .add(org.hl7.fhir.r5.model.MedicationDispense.class,
+      src -> MedicationDispense40_50.convertMedicationDispense((org.hl7.fhir.r5.model.MedicationDispense) src))
+    .add(org.hl7.fhir.r5.model.MedicationKnowledge.class,
+      src -> MedicationKnowledge40_50.convertMedicationKnowledge((org.hl7.fhir.r5.model.MedicationKnowledge) src))
+    .add(org.hl7.fhir.r5.model.MedicationRequest.class,
+      src -> MedicationRequest40_50.convertMedicationRequest((org.hl7.fhir.r5.model.MedicationRequest) src))
+    .add(org.hl7.fhir.r5.model.MedicationUsage.class,
+      src -> MedicationStatement40_50.convertMedicationStatement((org.hl7.fhir.r5.model.MedicationUsage) src))
+    .add(org.hl7.fhir.r5.model.MedicinalProductDefinition.class,
+      src -> MedicinalProductDefinition40_50.convertMedicinalProductDefinition((org.hl7.fhir.r5.model.MedicinalProductDefinition) src))
+    .add(org.hl7.fhir.r5.model.MessageDefinition.class,
+      src -> MessageDefinition40_50.convertMessageDefinition((org.hl7.fhir.r5.model.MessageDefinition) src))
+    .add(org.hl7.fhir.r5.model.MessageHeader.class,
+      src -> MessageHeader40_50.convertMessageHeader((org.hl7.fhir.r5.model.MessageHeader) src))
+    .add(org.hl7.fhir.r5.model.MolecularSequence.class,
+      src -> MolecularSequence40_50.convertMolecularSequence((org.hl7.fhir.r5.model.MolecularSequence) src))
+    .add(org.hl7.fhir.r5.model.NamingSystem.class,
+      src -> NamingSystem40_50.convertNamingSystem((org.hl7.fhir.r5.model.NamingSystem) src))
+    .add(org.hl7.fhir.r5.model.NutritionOrder.class,
+      src -> NutritionOrder40_50.convertNutritionOrder((org.hl7.fhir.r5.model.NutritionOrder) src))
+    .add(org.hl7.fhir.r5.model.Observation.class,
+      src -> Observation40_50.convertObservation((org.hl7.fhir.r5.model.Observation) src))
+    .add(org.hl7.fhir.r5.model.ObservationDefinition.class,
+      src -> ObservationDefinition40_50.convertObservationDefinition((org.hl7.fhir.r5.model.ObservationDefinition) src))
+    .add(org.hl7.fhir.r5.model.OperationDefinition.class,
+      src -> OperationDefinition40_50.convertOperationDefinition((org.hl7.fhir.r5.model.OperationDefinition) src))
+    .add(org.hl7.fhir.r5.model.OperationOutcome.class,
+      src -> OperationOutcome40_50.convertOperationOutcome((org.hl7.fhir.r5.model.OperationOutcome) src))
+    .add(org.hl7.fhir.r5.model.Organization.class,
+      src -> Organization40_50.convertOrganization((org.hl7.fhir.r5.model.Organization) src))
+    .add(org.hl7.fhir.r5.model.OrganizationAffiliation.class,
+      src -> OrganizationAffiliation40_50.convertOrganizationAffiliation((org.hl7.fhir.r5.model.OrganizationAffiliation) src))
+    .add(org.hl7.fhir.r5.model.Patient.class,
+      src -> Patient40_50.convertPatient((org.hl7.fhir.r5.model.Patient) src))
+    .add(org.hl7.fhir.r5.model.PaymentNotice.class,
+      src -> PaymentNotice40_50.convertPaymentNotice((org.hl7.fhir.r5.model.PaymentNotice) src))
+    .add(org.hl7.fhir.r5.model.PaymentReconciliation.class,
+      src -> PaymentReconciliation40_50.convertPaymentReconciliation((org.hl7.fhir.r5.model.PaymentReconciliation) src))
+    .add(org.hl7.fhir.r5.model.Person.class,
+      src -> Person40_50.convertPerson((org.hl7.fhir.r5.model.Person) src))
+    .add(org.hl7.fhir.r5.model.PlanDefinition.class,
+      src -> PlanDefinition40_50.convertPlanDefinition((org.hl7.fhir.r5.model.PlanDefinition) src))
+    .add(org.hl7.fhir.r5.model.Practitioner.class,
+      src -> Practitioner40_50.convertPractitioner((org.hl7.fhir.r5.model.Practitioner) src))
+    .add(org.hl7.fhir.r5.model.PractitionerRole.class,
+      src -> PractitionerRole40_50.convertPractitionerRole((org.hl7.fhir.r5.model.PractitionerRole) src))
+    .add(org.hl7.fhir.r5.model.Procedure.class,
+      src -> Procedure40_50.convertProcedure((org.hl7.fhir.r5.model.Procedure) src))
+    .add(org.hl7.fhir.r5.model.Provenance.class,
+      src -> Provenance40_50.convertProvenance((org.hl7.fhir.r5.model.Provenance) src))
+    .add(org.hl7.fhir.r5.model.Questionnaire.class,
+      src -> Questionnaire40_50.convertQuestionnaire((org.hl7.fhir.r5.model.Questionnaire) src))
+    .add(org.hl7.fhir.r5.model.QuestionnaireResponse.class,
+      src -> QuestionnaireResponse40_50.convertQuestionnaireResponse((org.hl7.fhir.r5.model.QuestionnaireResponse) src))
+    .add(org.hl7.fhir.r5.model.RelatedPerson.class,
+      src -> RelatedPerson40_50.convertRelatedPerson((org.hl7.fhir.r5.model.RelatedPerson) src))
+    .add(org.hl7.fhir.r5.model.RequestGroup.class,
+      src -> RequestGroup40_50.convertRequestGroup((org.hl7.fhir.r5.model.RequestGroup) src))
+    .add(org.hl7.fhir.r5.model.ResearchStudy.class,
+      src -> ResearchStudy40_50.convertResearchStudy((org.hl7.fhir.r5.model.ResearchStudy) src))
+    .add(org.hl7.fhir.r5.model.ResearchSubject.class,
+      src -> ResearchSubject40_50.convertResearchSubject((org.hl7.fhir.r5.model.ResearchSubject) src))
+    .add(org.hl7.fhir.r5.model.RiskAssessment.class,
+      src -> RiskAssessment40_50.convertRiskAssessment((org.hl7.fhir.r5.model.RiskAssessment) src))
+    .add(org.hl7.fhir.r5.model.Schedule.class,
+      src -> Schedule40_50.convertSchedule((org.hl7.fhir.r5.model.Schedule) src))
+    .add(org.hl7.fhir.r5.model.SearchParameter.class,
+      src -> SearchParameter40_50.convertSearchParameter((org.hl7.fhir.r5.model.SearchParameter) src))
+    .add(org.hl7.fhir.r5.model.ServiceRequest.class,
+      src -> ServiceRequest40_50.convertServiceRequest((org.hl7.fhir.r5.model.ServiceRequest) src))
+    .add(org.hl7.fhir.r5.model.Slot.class,
+      src -> Slot40_50.convertSlot((org.hl7.fhir.r5.model.Slot) src))
+    .add(org.hl7.fhir.r5.model.Specimen.class,
+      src -> Specimen40_50.convertSpecimen((org.hl7.fhir.r5.model.Specimen) src))
+    .add(org.hl7.fhir.r5.model.SpecimenDefinition.class,
+      src -> SpecimenDefinition40_50.convertSpecimenDefinition((org.hl7.fhir.r5.model.SpecimenDefinition) src))
+    .add(org.hl7.fhir.r5.model.StructureDefinition.class,
+      src -> StructureDefinition40_50.convertStructureDefinition((org.hl7.fhir.r5.model.StructureDefinition) src))
+    .add(org.hl7.fhir.r5.model.StructureMap.class,
+      src -> StructureMap40_50.convertStructureMap((org.hl7.fhir.r5.model.StructureMap) src))
+    .add(org.hl7.fhir.r5.model.Substance.class,
+      src -> Substance40_50.convertSubstance((org.hl7.fhir.r5.model.Substance) src))
+    .add(org.hl7.fhir.r5.model.SubstanceNucleicAcid.class,
+      src -> SubstanceNucleicAcid40_50.convertSubstanceNucleicAcid((org.hl7.fhir.r5.model.SubstanceNucleicAcid) src))
+    .add(org.hl7.fhir.r5.model.SubstancePolymer.class,
+      src -> SubstancePolymer40_50.convertSubstancePolymer((org.hl7.fhir.r5.model.SubstancePolymer) src))
+    .add(org.hl7.fhir.r5.model.SubstanceProtein.class,
+      src -> SubstanceProtein40_50.convertSubstanceProtein((org.hl7.fhir.r5.model.SubstanceProtein) src))
+    .add(org.hl7.fhir.r5.model.SubstanceReferenceInformation.class,
+      src -> SubstanceReferenceInformation40_50.convertSubstanceReferenceInformation((org.hl7.fhir.r5.model.SubstanceReferenceInformation) src))
+    .add(org.hl7.fhir.r5.model.SubstanceSourceMaterial.class,
+      src -> SubstanceSourceMaterial40_50.convertSubstanceSourceMaterial((org.hl7.fhir.r5.model.SubstanceSourceMaterial) src))
+    .add(org.hl7.fhir.r5.model.SupplyDelivery.class,
+      src -> SupplyDelivery40_50.convertSupplyDelivery((org.hl7.fhir.r5.model.SupplyDelivery) src))
+    .add(org.hl7.fhir.r5.model.SupplyRequest.class,
+      src -> SupplyRequest40_50.convertSupplyRequest((org.hl7.fhir.r5.model.SupplyRequest) src))
+    .add(org.hl7.fhir.r5.model.Task.class,
+      src -> Task40_50.convertTask((org.hl7.fhir.r5.model.Task) src))
+    .add(org.hl7.fhir.r5.model.TerminologyCapabilities.class,
+      src -> TerminologyCapabilities40_50.convertTerminologyCapabilities((org.hl7.fhir.r5.model.TerminologyCapabilities) src))
+    .add(org.hl7.fhir.r5.model.TestReport.class,
+      src -> TestReport40_50.convertTestReport((org.hl7.fhir.r5.model.TestReport) src))
+    .add(org.hl7.fhir.r5.model.TestScript.class,
+      src -> TestScript40_50.convertTestScript((org.hl7.fhir.r5.model.TestScript) src))
+    .add(org.hl7.fhir.r5.model.ValueSet.class,
+      src -> ValueSet40_50.convertValueSet((org.hl7.fhir.r5.model.ValueSet) src))
+    .add(org.hl7.fhir.r5.model.VerificationResult.class,
+      src -> VerificationResult40_50.convertVerificationResult((org.hl7.fhir.r5.model.VerificationResult) src))
+    .add(org.hl7.fhir.r5.model.VisionPrescription.class,
+      src -> VisionPrescription40_50.convertVisionPrescription((org.hl7.fhir.r5.model.VisionPrescription) src));
+
   public static org.hl7.fhir.r4.model.Resource convertResource(org.hl7.fhir.r5.model.Resource src) throws FHIRException {
     if (src == null) return null;
-    if (src instanceof org.hl7.fhir.r5.model.Parameters)
-      return Parameters40_50.convertParameters((org.hl7.fhir.r5.model.Parameters) src);
-    if (src instanceof org.hl7.fhir.r5.model.Account)
-      return Account40_50.convertAccount((org.hl7.fhir.r5.model.Account) src);
-    if (src instanceof org.hl7.fhir.r5.model.ActivityDefinition)
-      return ActivityDefinition40_50.convertActivityDefinition((org.hl7.fhir.r5.model.ActivityDefinition) src);
-    if (src instanceof org.hl7.fhir.r5.model.AllergyIntolerance)
-      return AllergyIntolerance40_50.convertAllergyIntolerance((org.hl7.fhir.r5.model.AllergyIntolerance) src);
-    if (src instanceof org.hl7.fhir.r5.model.Appointment)
-      return Appointment40_50.convertAppointment((org.hl7.fhir.r5.model.Appointment) src);
-    if (src instanceof org.hl7.fhir.r5.model.AppointmentResponse)
-      return AppointmentResponse40_50.convertAppointmentResponse((org.hl7.fhir.r5.model.AppointmentResponse) src);
-    if (src instanceof org.hl7.fhir.r5.model.AuditEvent)
-      return AuditEvent40_50.convertAuditEvent((org.hl7.fhir.r5.model.AuditEvent) src);
-    if (src instanceof org.hl7.fhir.r5.model.Basic) return Basic40_50.convertBasic((org.hl7.fhir.r5.model.Basic) src);
-    if (src instanceof org.hl7.fhir.r5.model.Binary)
-      return Binary40_50.convertBinary((org.hl7.fhir.r5.model.Binary) src);
-    if (src instanceof org.hl7.fhir.r5.model.BiologicallyDerivedProduct)
-      return BiologicallyDerivedProduct40_50.convertBiologicallyDerivedProduct((org.hl7.fhir.r5.model.BiologicallyDerivedProduct) src);
-    if (src instanceof org.hl7.fhir.r5.model.BodyStructure)
-      return BodyStructure40_50.convertBodyStructure((org.hl7.fhir.r5.model.BodyStructure) src);
-    if (src instanceof org.hl7.fhir.r5.model.Bundle)
-      return Bundle40_50.convertBundle((org.hl7.fhir.r5.model.Bundle) src);
-    if (src instanceof org.hl7.fhir.r5.model.CapabilityStatement)
-      return CapabilityStatement40_50.convertCapabilityStatement((org.hl7.fhir.r5.model.CapabilityStatement) src);
-    if (src instanceof org.hl7.fhir.r5.model.CarePlan)
-      return CarePlan40_50.convertCarePlan((org.hl7.fhir.r5.model.CarePlan) src);
-    if (src instanceof org.hl7.fhir.r5.model.CareTeam)
-      return CareTeam40_50.convertCareTeam((org.hl7.fhir.r5.model.CareTeam) src);
-    if (src instanceof org.hl7.fhir.r5.model.ChargeItem)
-      return ChargeItem40_50.convertChargeItem((org.hl7.fhir.r5.model.ChargeItem) src);
-    if (src instanceof org.hl7.fhir.r5.model.ChargeItemDefinition)
-      return ChargeItemDefinition40_50.convertChargeItemDefinition((org.hl7.fhir.r5.model.ChargeItemDefinition) src);
-    if (src instanceof org.hl7.fhir.r5.model.Claim) return Claim40_50.convertClaim((org.hl7.fhir.r5.model.Claim) src);
-    if (src instanceof org.hl7.fhir.r5.model.ClaimResponse)
-      return ClaimResponse40_50.convertClaimResponse((org.hl7.fhir.r5.model.ClaimResponse) src);
-    if (src instanceof org.hl7.fhir.r5.model.ClinicalImpression)
-      return ClinicalImpression40_50.convertClinicalImpression((org.hl7.fhir.r5.model.ClinicalImpression) src);
-    if (src instanceof org.hl7.fhir.r5.model.CodeSystem)
-      return CodeSystem40_50.convertCodeSystem((org.hl7.fhir.r5.model.CodeSystem) src);
-    if (src instanceof org.hl7.fhir.r5.model.Communication)
-      return Communication40_50.convertCommunication((org.hl7.fhir.r5.model.Communication) src);
-    if (src instanceof org.hl7.fhir.r5.model.CommunicationRequest)
-      return CommunicationRequest40_50.convertCommunicationRequest((org.hl7.fhir.r5.model.CommunicationRequest) src);
-    if (src instanceof org.hl7.fhir.r5.model.CompartmentDefinition)
-      return CompartmentDefinition40_50.convertCompartmentDefinition((org.hl7.fhir.r5.model.CompartmentDefinition) src);
-    if (src instanceof org.hl7.fhir.r5.model.Composition)
-      return Composition40_50.convertComposition((org.hl7.fhir.r5.model.Composition) src);
-    if (src instanceof org.hl7.fhir.r5.model.ConceptMap)
-      return ConceptMap40_50.convertConceptMap((org.hl7.fhir.r5.model.ConceptMap) src);
-    if (src instanceof org.hl7.fhir.r5.model.Condition)
-      return Condition40_50.convertCondition((org.hl7.fhir.r5.model.Condition) src);
-    if (src instanceof org.hl7.fhir.r5.model.Consent)
-      return Consent40_50.convertConsent((org.hl7.fhir.r5.model.Consent) src);
-    if (src instanceof org.hl7.fhir.r5.model.Contract)
-      return Contract40_50.convertContract((org.hl7.fhir.r5.model.Contract) src);
-    if (src instanceof org.hl7.fhir.r5.model.Coverage)
-      return Coverage40_50.convertCoverage((org.hl7.fhir.r5.model.Coverage) src);
-    if (src instanceof org.hl7.fhir.r5.model.CoverageEligibilityRequest)
-      return CoverageEligibilityRequest40_50.convertCoverageEligibilityRequest((org.hl7.fhir.r5.model.CoverageEligibilityRequest) src);
-    if (src instanceof org.hl7.fhir.r5.model.CoverageEligibilityResponse)
-      return CoverageEligibilityResponse40_50.convertCoverageEligibilityResponse((org.hl7.fhir.r5.model.CoverageEligibilityResponse) src);
-    if (src instanceof org.hl7.fhir.r5.model.DetectedIssue)
-      return DetectedIssue40_50.convertDetectedIssue((org.hl7.fhir.r5.model.DetectedIssue) src);
-    if (src instanceof org.hl7.fhir.r5.model.Device)
-      return Device40_50.convertDevice((org.hl7.fhir.r5.model.Device) src);
-    if (src instanceof org.hl7.fhir.r5.model.DeviceDefinition)
-      return DeviceDefinition40_50.convertDeviceDefinition((org.hl7.fhir.r5.model.DeviceDefinition) src);
-    if (src instanceof org.hl7.fhir.r5.model.DeviceMetric)
-      return DeviceMetric40_50.convertDeviceMetric((org.hl7.fhir.r5.model.DeviceMetric) src);
-    if (src instanceof org.hl7.fhir.r5.model.DeviceRequest)
-      return DeviceRequest40_50.convertDeviceRequest((org.hl7.fhir.r5.model.DeviceRequest) src);
-    if (src instanceof org.hl7.fhir.r5.model.DeviceUseStatement)
-      return DeviceUseStatement40_50.convertDeviceUseStatement((org.hl7.fhir.r5.model.DeviceUseStatement) src);
-    if (src instanceof org.hl7.fhir.r5.model.DiagnosticReport)
-      return DiagnosticReport40_50.convertDiagnosticReport((org.hl7.fhir.r5.model.DiagnosticReport) src);
-    if (src instanceof org.hl7.fhir.r5.model.DocumentManifest)
-      return DocumentManifest40_50.convertDocumentManifest((org.hl7.fhir.r5.model.DocumentManifest) src);
-    if (src instanceof org.hl7.fhir.r5.model.DocumentReference)
-      return DocumentReference40_50.convertDocumentReference((org.hl7.fhir.r5.model.DocumentReference) src);
-    if (src instanceof org.hl7.fhir.r5.model.Encounter)
-      return Encounter40_50.convertEncounter((org.hl7.fhir.r5.model.Encounter) src);
-    if (src instanceof org.hl7.fhir.r5.model.Endpoint)
-      return Endpoint40_50.convertEndpoint((org.hl7.fhir.r5.model.Endpoint) src);
-    if (src instanceof org.hl7.fhir.r5.model.EnrollmentRequest)
-      return EnrollmentRequest40_50.convertEnrollmentRequest((org.hl7.fhir.r5.model.EnrollmentRequest) src);
-    if (src instanceof org.hl7.fhir.r5.model.EnrollmentResponse)
-      return EnrollmentResponse40_50.convertEnrollmentResponse((org.hl7.fhir.r5.model.EnrollmentResponse) src);
-    if (src instanceof org.hl7.fhir.r5.model.EpisodeOfCare)
-      return EpisodeOfCare40_50.convertEpisodeOfCare((org.hl7.fhir.r5.model.EpisodeOfCare) src);
-    if (src instanceof org.hl7.fhir.r5.model.EventDefinition)
-      return EventDefinition40_50.convertEventDefinition((org.hl7.fhir.r5.model.EventDefinition) src);
-    if (src instanceof org.hl7.fhir.r5.model.ExampleScenario)
-      return ExampleScenario40_50.convertExampleScenario((org.hl7.fhir.r5.model.ExampleScenario) src);
-    if (src instanceof org.hl7.fhir.r5.model.ExplanationOfBenefit)
-      return ExplanationOfBenefit40_50.convertExplanationOfBenefit((org.hl7.fhir.r5.model.ExplanationOfBenefit) src);
-    if (src instanceof org.hl7.fhir.r5.model.FamilyMemberHistory)
-      return FamilyMemberHistory40_50.convertFamilyMemberHistory((org.hl7.fhir.r5.model.FamilyMemberHistory) src);
-    if (src instanceof org.hl7.fhir.r5.model.Flag) return Flag40_50.convertFlag((org.hl7.fhir.r5.model.Flag) src);
-    if (src instanceof org.hl7.fhir.r5.model.Goal) return Goal40_50.convertGoal((org.hl7.fhir.r5.model.Goal) src);
-    if (src instanceof org.hl7.fhir.r5.model.GraphDefinition)
-      return GraphDefinition40_50.convertGraphDefinition((org.hl7.fhir.r5.model.GraphDefinition) src);
-    if (src instanceof org.hl7.fhir.r5.model.Group) return Group40_50.convertGroup((org.hl7.fhir.r5.model.Group) src);
-    if (src instanceof org.hl7.fhir.r5.model.GuidanceResponse)
-      return GuidanceResponse40_50.convertGuidanceResponse((org.hl7.fhir.r5.model.GuidanceResponse) src);
-    if (src instanceof org.hl7.fhir.r5.model.HealthcareService)
-      return HealthcareService40_50.convertHealthcareService((org.hl7.fhir.r5.model.HealthcareService) src);
-    if (src instanceof org.hl7.fhir.r5.model.ImagingStudy)
-      return ImagingStudy40_50.convertImagingStudy((org.hl7.fhir.r5.model.ImagingStudy) src);
-    if (src instanceof org.hl7.fhir.r5.model.Immunization)
-      return Immunization40_50.convertImmunization((org.hl7.fhir.r5.model.Immunization) src);
-    if (src instanceof org.hl7.fhir.r5.model.ImmunizationEvaluation)
-      return ImmunizationEvaluation40_50.convertImmunizationEvaluation((org.hl7.fhir.r5.model.ImmunizationEvaluation) src);
-    if (src instanceof org.hl7.fhir.r5.model.ImmunizationRecommendation)
-      return ImmunizationRecommendation40_50.convertImmunizationRecommendation((org.hl7.fhir.r5.model.ImmunizationRecommendation) src);
-    if (src instanceof org.hl7.fhir.r5.model.ImplementationGuide)
-      return ImplementationGuide40_50.convertImplementationGuide((org.hl7.fhir.r5.model.ImplementationGuide) src);
-    if (src instanceof org.hl7.fhir.r5.model.InsurancePlan)
-      return InsurancePlan40_50.convertInsurancePlan((org.hl7.fhir.r5.model.InsurancePlan) src);
-    if (src instanceof org.hl7.fhir.r5.model.Invoice)
-      return Invoice40_50.convertInvoice((org.hl7.fhir.r5.model.Invoice) src);
-    if (src instanceof org.hl7.fhir.r5.model.Library)
-      return Library40_50.convertLibrary((org.hl7.fhir.r5.model.Library) src);
-    if (src instanceof org.hl7.fhir.r5.model.Linkage)
-      return Linkage40_50.convertLinkage((org.hl7.fhir.r5.model.Linkage) src);
-    if (src instanceof org.hl7.fhir.r5.model.ListResource)
-      return ListResource40_50.convertListResource((org.hl7.fhir.r5.model.ListResource) src);
-    if (src instanceof org.hl7.fhir.r5.model.Location)
-      return Location40_50.convertLocation((org.hl7.fhir.r5.model.Location) src);
-    if (src instanceof org.hl7.fhir.r5.model.Measure)
-      return Measure40_50.convertMeasure((org.hl7.fhir.r5.model.Measure) src);
-    if (src instanceof org.hl7.fhir.r5.model.MeasureReport)
-      return MeasureReport40_50.convertMeasureReport((org.hl7.fhir.r5.model.MeasureReport) src);
-    if (src instanceof org.hl7.fhir.r5.model.DocumentReference)
-      return Media40_50.convertMedia((org.hl7.fhir.r5.model.DocumentReference) src);
-    if (src instanceof org.hl7.fhir.r5.model.Medication)
-      return Medication40_50.convertMedication((org.hl7.fhir.r5.model.Medication) src);
-    if (src instanceof org.hl7.fhir.r5.model.MedicationAdministration)
-      return MedicationAdministration40_50.convertMedicationAdministration((org.hl7.fhir.r5.model.MedicationAdministration) src);
-    if (src instanceof org.hl7.fhir.r5.model.MedicationDispense)
-      return MedicationDispense40_50.convertMedicationDispense((org.hl7.fhir.r5.model.MedicationDispense) src);
-    if (src instanceof org.hl7.fhir.r5.model.MedicationKnowledge)
-      return MedicationKnowledge40_50.convertMedicationKnowledge((org.hl7.fhir.r5.model.MedicationKnowledge) src);
-    if (src instanceof org.hl7.fhir.r5.model.MedicationRequest)
-      return MedicationRequest40_50.convertMedicationRequest((org.hl7.fhir.r5.model.MedicationRequest) src);
-    if (src instanceof org.hl7.fhir.r5.model.MedicationUsage)
-      return MedicationStatement40_50.convertMedicationStatement((org.hl7.fhir.r5.model.MedicationUsage) src);
-    if (src instanceof org.hl7.fhir.r5.model.MedicinalProductDefinition)
-      return MedicinalProductDefinition40_50.convertMedicinalProductDefinition((org.hl7.fhir.r5.model.MedicinalProductDefinition) src);
-    if (src instanceof org.hl7.fhir.r5.model.MessageDefinition)
-      return MessageDefinition40_50.convertMessageDefinition((org.hl7.fhir.r5.model.MessageDefinition) src);
-    if (src instanceof org.hl7.fhir.r5.model.MessageHeader)
-      return MessageHeader40_50.convertMessageHeader((org.hl7.fhir.r5.model.MessageHeader) src);
-    if (src instanceof org.hl7.fhir.r5.model.MolecularSequence)
-      return MolecularSequence40_50.convertMolecularSequence((org.hl7.fhir.r5.model.MolecularSequence) src);
-    if (src instanceof org.hl7.fhir.r5.model.NamingSystem)
-      return NamingSystem40_50.convertNamingSystem((org.hl7.fhir.r5.model.NamingSystem) src);
-    if (src instanceof org.hl7.fhir.r5.model.NutritionOrder)
-      return NutritionOrder40_50.convertNutritionOrder((org.hl7.fhir.r5.model.NutritionOrder) src);
-    if (src instanceof org.hl7.fhir.r5.model.Observation)
-      return Observation40_50.convertObservation((org.hl7.fhir.r5.model.Observation) src);
-    if (src instanceof org.hl7.fhir.r5.model.ObservationDefinition)
-      return ObservationDefinition40_50.convertObservationDefinition((org.hl7.fhir.r5.model.ObservationDefinition) src);
-    if (src instanceof org.hl7.fhir.r5.model.OperationDefinition)
-      return OperationDefinition40_50.convertOperationDefinition((org.hl7.fhir.r5.model.OperationDefinition) src);
-    if (src instanceof org.hl7.fhir.r5.model.OperationOutcome)
-      return OperationOutcome40_50.convertOperationOutcome((org.hl7.fhir.r5.model.OperationOutcome) src);
-    if (src instanceof org.hl7.fhir.r5.model.Organization)
-      return Organization40_50.convertOrganization((org.hl7.fhir.r5.model.Organization) src);
-    if (src instanceof org.hl7.fhir.r5.model.OrganizationAffiliation)
-      return OrganizationAffiliation40_50.convertOrganizationAffiliation((org.hl7.fhir.r5.model.OrganizationAffiliation) src);
-    if (src instanceof org.hl7.fhir.r5.model.Patient)
-      return Patient40_50.convertPatient((org.hl7.fhir.r5.model.Patient) src);
-    if (src instanceof org.hl7.fhir.r5.model.PaymentNotice)
-      return PaymentNotice40_50.convertPaymentNotice((org.hl7.fhir.r5.model.PaymentNotice) src);
-    if (src instanceof org.hl7.fhir.r5.model.PaymentReconciliation)
-      return PaymentReconciliation40_50.convertPaymentReconciliation((org.hl7.fhir.r5.model.PaymentReconciliation) src);
-    if (src instanceof org.hl7.fhir.r5.model.Person)
-      return Person40_50.convertPerson((org.hl7.fhir.r5.model.Person) src);
-    if (src instanceof org.hl7.fhir.r5.model.PlanDefinition)
-      return PlanDefinition40_50.convertPlanDefinition((org.hl7.fhir.r5.model.PlanDefinition) src);
-    if (src instanceof org.hl7.fhir.r5.model.Practitioner)
-      return Practitioner40_50.convertPractitioner((org.hl7.fhir.r5.model.Practitioner) src);
-    if (src instanceof org.hl7.fhir.r5.model.PractitionerRole)
-      return PractitionerRole40_50.convertPractitionerRole((org.hl7.fhir.r5.model.PractitionerRole) src);
-    if (src instanceof org.hl7.fhir.r5.model.Procedure)
-      return Procedure40_50.convertProcedure((org.hl7.fhir.r5.model.Procedure) src);
-    if (src instanceof org.hl7.fhir.r5.model.Provenance)
-      return Provenance40_50.convertProvenance((org.hl7.fhir.r5.model.Provenance) src);
-    if (src instanceof org.hl7.fhir.r5.model.Questionnaire)
-      return Questionnaire40_50.convertQuestionnaire((org.hl7.fhir.r5.model.Questionnaire) src);
-    if (src instanceof org.hl7.fhir.r5.model.QuestionnaireResponse)
-      return QuestionnaireResponse40_50.convertQuestionnaireResponse((org.hl7.fhir.r5.model.QuestionnaireResponse) src);
-    if (src instanceof org.hl7.fhir.r5.model.RelatedPerson)
-      return RelatedPerson40_50.convertRelatedPerson((org.hl7.fhir.r5.model.RelatedPerson) src);
-    if (src instanceof org.hl7.fhir.r5.model.RequestGroup)
-      return RequestGroup40_50.convertRequestGroup((org.hl7.fhir.r5.model.RequestGroup) src);
-    if (src instanceof org.hl7.fhir.r5.model.ResearchStudy)
-      return ResearchStudy40_50.convertResearchStudy((org.hl7.fhir.r5.model.ResearchStudy) src);
-    if (src instanceof org.hl7.fhir.r5.model.ResearchSubject)
-      return ResearchSubject40_50.convertResearchSubject((org.hl7.fhir.r5.model.ResearchSubject) src);
-    if (src instanceof org.hl7.fhir.r5.model.RiskAssessment)
-      return RiskAssessment40_50.convertRiskAssessment((org.hl7.fhir.r5.model.RiskAssessment) src);
-    if (src instanceof org.hl7.fhir.r5.model.Schedule)
-      return Schedule40_50.convertSchedule((org.hl7.fhir.r5.model.Schedule) src);
-    if (src instanceof org.hl7.fhir.r5.model.SearchParameter)
-      return SearchParameter40_50.convertSearchParameter((org.hl7.fhir.r5.model.SearchParameter) src);
-    if (src instanceof org.hl7.fhir.r5.model.ServiceRequest)
-      return ServiceRequest40_50.convertServiceRequest((org.hl7.fhir.r5.model.ServiceRequest) src);
-    if (src instanceof org.hl7.fhir.r5.model.Slot) return Slot40_50.convertSlot((org.hl7.fhir.r5.model.Slot) src);
-    if (src instanceof org.hl7.fhir.r5.model.Specimen)
-      return Specimen40_50.convertSpecimen((org.hl7.fhir.r5.model.Specimen) src);
-    if (src instanceof org.hl7.fhir.r5.model.SpecimenDefinition)
-      return SpecimenDefinition40_50.convertSpecimenDefinition((org.hl7.fhir.r5.model.SpecimenDefinition) src);
-    if (src instanceof org.hl7.fhir.r5.model.StructureDefinition)
-      return StructureDefinition40_50.convertStructureDefinition((org.hl7.fhir.r5.model.StructureDefinition) src);
-    if (src instanceof org.hl7.fhir.r5.model.StructureMap)
-      return StructureMap40_50.convertStructureMap((org.hl7.fhir.r5.model.StructureMap) src);
-    if (src instanceof org.hl7.fhir.r5.model.Substance)
-      return Substance40_50.convertSubstance((org.hl7.fhir.r5.model.Substance) src);
-    if (src instanceof org.hl7.fhir.r5.model.SubstanceNucleicAcid)
-      return SubstanceNucleicAcid40_50.convertSubstanceNucleicAcid((org.hl7.fhir.r5.model.SubstanceNucleicAcid) src);
-    if (src instanceof org.hl7.fhir.r5.model.SubstancePolymer)
-      return SubstancePolymer40_50.convertSubstancePolymer((org.hl7.fhir.r5.model.SubstancePolymer) src);
-    if (src instanceof org.hl7.fhir.r5.model.SubstanceProtein)
-      return SubstanceProtein40_50.convertSubstanceProtein((org.hl7.fhir.r5.model.SubstanceProtein) src);
-    if (src instanceof org.hl7.fhir.r5.model.SubstanceReferenceInformation)
-      return SubstanceReferenceInformation40_50.convertSubstanceReferenceInformation((org.hl7.fhir.r5.model.SubstanceReferenceInformation) src);
-    if (src instanceof org.hl7.fhir.r5.model.SubstanceSourceMaterial)
-      return SubstanceSourceMaterial40_50.convertSubstanceSourceMaterial((org.hl7.fhir.r5.model.SubstanceSourceMaterial) src);
-    if (src instanceof org.hl7.fhir.r5.model.SupplyDelivery)
-      return SupplyDelivery40_50.convertSupplyDelivery((org.hl7.fhir.r5.model.SupplyDelivery) src);
-    if (src instanceof org.hl7.fhir.r5.model.SupplyRequest)
-      return SupplyRequest40_50.convertSupplyRequest((org.hl7.fhir.r5.model.SupplyRequest) src);
-    if (src instanceof org.hl7.fhir.r5.model.Task) return Task40_50.convertTask((org.hl7.fhir.r5.model.Task) src);
-    if (src instanceof org.hl7.fhir.r5.model.TerminologyCapabilities)
-      return TerminologyCapabilities40_50.convertTerminologyCapabilities((org.hl7.fhir.r5.model.TerminologyCapabilities) src);
-    if (src instanceof org.hl7.fhir.r5.model.TestReport)
-      return TestReport40_50.convertTestReport((org.hl7.fhir.r5.model.TestReport) src);
-    if (src instanceof org.hl7.fhir.r5.model.TestScript)
-      return TestScript40_50.convertTestScript((org.hl7.fhir.r5.model.TestScript) src);
-    if (src instanceof org.hl7.fhir.r5.model.ValueSet)
-      return ValueSet40_50.convertValueSet((org.hl7.fhir.r5.model.ValueSet) src);
-    if (src instanceof org.hl7.fhir.r5.model.VerificationResult)
-      return VerificationResult40_50.convertVerificationResult((org.hl7.fhir.r5.model.VerificationResult) src);
-    if (src instanceof org.hl7.fhir.r5.model.VisionPrescription)
-      return VisionPrescription40_50.convertVisionPrescription((org.hl7.fhir.r5.model.VisionPrescription) src);
+    Function<org.hl7.fhir.r5.model.Resource, org.hl7.fhir.r4.model.Resource> conversion = RESOURCES_50_40.get(src.getClass());
+    if (conversion != null)
+      return conversion.apply(src);
     throw new FHIRException("Unknown resource " + src.fhirType());
   }
 
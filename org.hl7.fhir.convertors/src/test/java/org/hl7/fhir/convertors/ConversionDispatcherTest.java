@@ -0,0 +1,55 @@
+package org.hl7.fhir.convertors;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hl7.fhir.exceptions.FHIRException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ConversionDispatcherTest {
+
+  @Test
+  public void testSameOrderAsInstanceOf() {
+    // UnsignedIntType and PositiveIntType extend IntegerType, and must not be converted as integers
+    Assertions.assertTrue(VersionConvertor_40_50.convertType(new org.hl7.fhir.r4.model.UnsignedIntType(1)) instanceof org.hl7.fhir.r5.model.UnsignedIntType);
+    Assertions.assertTrue(VersionConvertor_40_50.convertType(new org.hl7.fhir.r4.model.PositiveIntType(1)) instanceof org.hl7.fhir.r5.model.PositiveIntType);
+    Assertions.assertTrue(VersionConvertor_40_50.convertType(new org.hl7.fhir.r4.model.IntegerType(1)) instanceof org.hl7.fhir.r5.model.IntegerType);
+    Assertions.assertTrue(VersionConvertor_40_50.convertType(new org.hl7.fhir.r5.model.UnsignedIntType(1)) instanceof org.hl7.fhir.r4.model.UnsignedIntType);
+  }
+
+  @Test
+  public void testSubclasses() {
+    // a class that isn't in the table is converted as the first class it extends
+    org.hl7.fhir.r4.model.StringType src = new org.hl7.fhir.r4.model.StringType("test") {
+      private static final long serialVersionUID = 1L;
+    };
+    org.hl7.fhir.r5.model.DataType tgt = VersionConvertor_40_50.convertType(src);
+    Assertions.assertEquals(org.hl7.fhir.r5.model.StringType.class, tgt.getClass());
+    Assertions.assertEquals("test", tgt.primitiveValue());
+  }
+
+  @Test
+  public void testUnknown() {
+    ConversionDispatcher<String> dispatcher = new ConversionDispatcher<String>().add(Number.class, "number");
+    Assertions.assertEquals("number", dispatcher.get(Integer.class));
+    Assertions.assertNull(dispatcher.get(String.class));
+    // an r4 type with no r3 equivalent
+    Assertions.assertThrows(FHIRException.class, () -> VersionConvertor_30_40.convertType(new org.hl7.fhir.r4.model.Expression()));
+  }
+
+  @Test
+  public void testConvertAll() {
+    List<org.hl7.fhir.r4.model.Resource> src = new ArrayList<>();
+    src.add(new org.hl7.fhir.r4.model.Patient().setActive(true).setId("p1"));
+    src.add(new org.hl7.fhir.r4.model.Observation().setStatus(org.hl7.fhir.r4.model.Observation.ObservationStatus.FINAL).setId("o1"));
+    src.add(new org.hl7.fhir.r4.model.Patient().setActive(false).setId("p2"));
+
+    List<org.hl7.fhir.r5.model.Resource> tgt = ConversionDispatcher.convertAll(src, VersionConvertor_40_50::convertResource);
+    Assertions.assertEquals(3, tgt.size());
+    Assertions.assertTrue(((org.hl7.fhir.r5.model.Patient) tgt.get(0)).getActive());
+    Assertions.assertEquals("o1", tgt.get(1).getId());
+    Assertions.assertEquals("p2", tgt.get(2).getId());
+  }
+
+}
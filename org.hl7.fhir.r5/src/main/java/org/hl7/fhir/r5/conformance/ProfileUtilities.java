@@ -35,9 +35,12 @@ import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.ArrayDeque;
 import java.util.Date;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -309,6 +312,7 @@ public class ProfileUtilities extends TranslatingUtilities {
   public static final String IS_DERIVED = "derived.fact";
   public static final String UD_ERROR_STATUS = "error-status";
   private static final String GENERATED_IN_SNAPSHOT = "profileutilities.snapshot.processed";
+  private static final String SNAPSHOT_INDEX = "profileutilities.snapshot.index";
   private static final boolean COPY_BINDING_EXTENSIONS = false;
   private static final boolean DONT_DO_THIS = false;
   private final boolean ADD_REFERENCE_TO_TABLE = true;
@@ -394,34 +398,143 @@ public class ProfileUtilities extends TranslatingUtilities {
 
 
 
+  /**
+   * The direct children and the slices of each element in a snapshot. getChildMap and getSliceList are called 
+   * for every element that is parsed or validated, so this is worked out once per snapshot, and kept in the 
+   * user data of the snapshot. It's immutable once built, and replaced if the snapshot element list is replaced
+   * or changes size. Code that replaces or reorders elements in place (e.g. with set or sort) must call 
+   * clearSnapshotIndex afterwards, as generateSnapshot does
+   */
+  private static class SnapshotIndex {
+    private final List<ElementDefinition> elements;
+    private final int size;
+    private final Map<ElementDefinition, List<ElementDefinition>> children = new IdentityHashMap<>();
+    private final Map<ElementDefinition, List<ElementDefinition>> slices = new IdentityHashMap<>();
+    private final Map<String, ElementDefinition> byId = new HashMap<>();
+    private final Map<ElementDefinition, Integer> positions = new IdentityHashMap<>();
+
+    private SnapshotIndex(List<ElementDefinition> elements) {
+      this.elements = elements;
+      this.size = elements.size();
+      // the stack holds the elements whose descendants we are in (each one's path is a prefix of the next one's)
+      Deque<ElementDefinition> stack = new ArrayDeque<>();
+      int position = 0;
+      for (ElementDefinition e : elements) {
+        String path = e.getPath();
+        while (!stack.isEmpty() && !isDescendant(path, stack.peek().getPath())) {
+          stack.pop();
+        }
+        if (!stack.isEmpty() && path.indexOf('.', stack.peek().getPath().length()+1) == -1) {
+          children.get(stack.peek()).add(e);
+        }
+        stack.push(e);
+        children.put(e, new ArrayList<>());
+        positions.putIfAbsent(e, position++);
+        if (e.hasId() && !byId.containsKey(e.getId())) {
+          byId.put(e.getId(), e);
+        }
+      }
+      for (int i = 0; i < size; i++) {
+        ElementDefinition e = elements.get(i);
+        if (e.hasSlicing()) {
+          List<ElementDefinition> list = new ArrayList<>();
+          for (int j = i + 1; j < size; j++) {
+            String path = elements.get(j).getPath();
+            if (path.equals(e.getPath())) {
+              list.add(elements.get(j));
+            } else if (!isDescendant(path, e.getPath())) {
+              break;
+            }
+          }
+          slices.put(e, list);
+        }
+      }
+    }
+
+    private static boolean isDescendant(String path, String ancestor) {
+      return path.length() > ancestor.length() && path.charAt(ancestor.length()) == '.' && path.startsWith(ancestor);
+    }
+
+    private boolean isCurrent(List<ElementDefinition> list) {
+      return list == elements && list.size() == size;
+    }
+  }
+
+  /**
+   * Drops the index of the children and slices of the snapshot, so that it's built again when it's next used. 
+   * This must be called after elements in the snapshot are replaced or reordered in place
+   */
+  public static void clearSnapshotIndex(StructureDefinition profile) {
+    if (profile.hasSnapshot()) {
+      synchronized (profile.getSnapshot()) {
+        profile.getSnapshot().clearUserData(SNAPSHOT_INDEX);
+      }
+    }
+  }
+
+  private SnapshotIndex getSnapshotIndex(StructureDefinition profile) {
+    StructureDefinitionSnapshotComponent snapshot = profile.getSnapshot();
+    SnapshotIndex index = (SnapshotIndex) snapshot.getUserData(SNAPSHOT_INDEX);
+    if (index == null || !index.isCurrent(snapshot.getElement())) {
+      synchronized (snapshot) {
+        index = (SnapshotIndex) snapshot.getUserData(SNAPSHOT_INDEX);
+        if (index == null || !index.isCurrent(snapshot.getElement())) {
+          index = new SnapshotIndex(snapshot.getElement());
+          snapshot.setUserData(SNAPSHOT_INDEX, index);
+        }
+      }
+    }
+    return index;
+  }
+
+  /**
+   * @return the position of the element in the snapshot of the profile, or -1 if it's not in the snapshot
+   */
+  public int indexOfElement(StructureDefinition profile, ElementDefinition element) {
+    Integer index = getSnapshotIndex(profile).positions.get(element);
+    return index == null ? -1 : index;
+  }
+
+  /**
+   * @return the first element in the snapshot of the profile with the given id, or null if there isn't one
+   */
+  public ElementDefinition getElementById(StructureDefinition profile, String id) {
+    return getSnapshotIndex(profile).byId.get(id);
+  }
+
   public List<ElementDefinition> getChildMap(StructureDefinition profile, ElementDefinition element) throws DefinitionException {
     if (element.getContentReference() != null) {
-      List<ElementDefinition> list = null;
+      StructureDefinition sd = null;
       String id = null;
       if (element.getContentReference().startsWith("#")) {
         // internal reference
         id = element.getContentReference().substring(1);
-        list = profile.getSnapshot().getElement();
+        sd = profile;
       } else if (element.getContentReference().contains("#")) {
         // external reference
         String ref = element.getContentReference();
-        StructureDefinition sd = context.fetchResource(StructureDefinition.class, ref.substring(0, ref.indexOf("#")));
+        sd = context.fetchResource(StructureDefinition.class, ref.substring(0, ref.indexOf("#")));
         if (sd == null) {
           throw new DefinitionException("unable to process contentReference '"+element.getContentReference()+"' on element '"+element.getId()+"'");
         }
-        list = sd.getSnapshot().getElement();
         id = ref.substring(ref.indexOf("#")+1);        
       } else {
         throw new DefinitionException("unable to process contentReference '"+element.getContentReference()+"' on element '"+element.getId()+"'");
       }
         
-      for (ElementDefinition e : list) {
-        if (id.equals(e.getId()))
-          return getChildMap(profile, e);
+      ElementDefinition e = getSnapshotIndex(sd).byId.get(id);
+      if (e != null) {
+        return getChildMap(sd, e);
       }
       throw new DefinitionException(context.formatMessage(I18nConstants.UNABLE_TO_RESOLVE_NAME_REFERENCE__AT_PATH_, element.getContentReference(), element.getPath()));
 
     } else {
+      List<ElementDefinition> children = getSnapshotIndex(profile).children.get(element);
+      if (children != null) {
+        // callers are allowed to change the list
+        return new ArrayList<>(children);
+      }
+      // not in the snapshot, so work it out the long way  
       List<ElementDefinition> res = new ArrayList<ElementDefinition>();
       List<ElementDefinition> elements = profile.getSnapshot().getElement();
       String path = element.getPath();
@@ -443,6 +556,10 @@ public class ProfileUtilities extends TranslatingUtilities {
     if (!element.hasSlicing())
       throw new Error(context.formatMessage(I18nConstants.GETSLICELIST_SHOULD_ONLY_BE_CALLED_WHEN_THE_ELEMENT_HAS_SLICING));
 
+    List<ElementDefinition> slices = getSnapshotIndex(profile).slices.get(element);
+    if (slices != null) {
+      return new ArrayList<>(slices);
+    }
     List<ElementDefinition> res = new ArrayList<ElementDefinition>();
     List<ElementDefinition> elements = profile.getSnapshot().getElement();
     String path = element.getPath();
@@ -768,6 +885,8 @@ public class ProfileUtilities extends TranslatingUtilities {
       derived.clearUserData("profileutils.snapshot.generating");
       throw e;
     }
+    // elements may have been replaced while the snapshot was being generated
+    clearSnapshotIndex(derived);
     derived.clearUserData("profileutils.snapshot.generating");
   }
 
@@ -780,6 +899,7 @@ public class ProfileUtilities extends TranslatingUtilities {
       }
     }
     derived.getSnapshot().getElement().removeAll(toRemove);
+    clearSnapshotIndex(derived);
   }
 
   public void checkForChildrenInGroup(StructureDefinition derived, List<ElementDefinition> toRemove, ElementDefinition element) throws Error {
@@ -6313,6 +6433,7 @@ public class ProfileUtilities extends TranslatingUtilities {
       ext.getSnapshot().getElement().get(3).setFixed(new UriType(url));
       ext.getSnapshot().getElement().set(4, ed.copy());
       ext.getSnapshot().getElement().get(4).setPath("Extension.value"+Utilities.capitalize(ed.typeSummary()));
+      clearSnapshotIndex(ext);
       return ext;      
     }
 
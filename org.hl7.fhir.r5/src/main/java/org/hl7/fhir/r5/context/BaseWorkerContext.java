@@ -44,6 +44,12 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
 
 import org.apache.commons.lang3.StringUtils;
 import org.fhir.ucum.UcumService;
@@ -55,6 +61,7 @@ import org.hl7.fhir.r5.conformance.ProfileUtilities;
 import org.hl7.fhir.r5.context.CanonicalResourceManager.CanonicalResourceProxy;
 import org.hl7.fhir.r5.context.IWorkerContext.ILoggingService.LogCategory;
 import org.hl7.fhir.r5.context.TerminologyCache.CacheToken;
+import org.hl7.fhir.r5.elementmodel.PropertyCache;
 import org.hl7.fhir.r5.model.BooleanType;
 import org.hl7.fhir.r5.model.Bundle;
 import org.hl7.fhir.r5.model.CanonicalResource;
@@ -111,6 +118,8 @@ import org.hl7.fhir.r5.terminologies.ValueSetExpanderSimple;
 import org.hl7.fhir.r5.utils.ToolingExtensions;
 import org.hl7.fhir.utilities.OIDUtils;
 import org.hl7.fhir.utilities.TimeTracker;
+import org.hl7.fhir.utilities.metrics.IMetrics;
+import org.hl7.fhir.utilities.metrics.NoOpMetrics;
 import org.hl7.fhir.utilities.ToolingClientLogger;
 import org.hl7.fhir.utilities.TranslationServices;
 import org.hl7.fhir.utilities.Utilities;
@@ -164,11 +173,12 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
   private boolean isTxCaching;
   private Set<String> cached = new HashSet<>();
   
-  private Map<String, Map<String, Resource>> allResourcesById = new HashMap<String, Map<String, Resource>>();
+  // the resource maps are read without holding the lock, so they must be concurrent. Changes are still made holding the lock
+  private Map<String, Map<String, Resource>> allResourcesById = new ConcurrentHashMap<String, Map<String, Resource>>();
   // all maps are to the full URI
   private CanonicalResourceManager<CodeSystem> codeSystems = new CanonicalResourceManager<CodeSystem>(false);
-  private Set<String> supportedCodeSystems = new HashSet<String>();
-  private Set<String> unsupportedCodeSystems = new HashSet<String>(); // know that the terminology server doesn't support them
+  private Set<String> supportedCodeSystems = ConcurrentHashMap.newKeySet();
+  private Set<String> unsupportedCodeSystems = ConcurrentHashMap.newKeySet(); // know that the terminology server doesn't support them
   private CanonicalResourceManager<ValueSet> valueSets = new CanonicalResourceManager<ValueSet>(false);
   private CanonicalResourceManager<ConceptMap> maps = new CanonicalResourceManager<ConceptMap>(false);
   protected CanonicalResourceManager<StructureMap> transforms = new CanonicalResourceManager<StructureMap>(false);
@@ -182,10 +192,20 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
   private CanonicalResourceManager<OperationDefinition> operations = new CanonicalResourceManager<OperationDefinition>(false);
   private CanonicalResourceManager<PlanDefinition> plans = new CanonicalResourceManager<PlanDefinition>(false);
   private CanonicalResourceManager<NamingSystem> systems = new CanonicalResourceManager<NamingSystem>(false);
+  // for fetching a canonical resource when the type isn't known: url (or id) -> the manager that resolves it
+  private Map<String, CanonicalResourceManager<?>> untypedIndex = new ConcurrentHashMap<>();
+  // and canonical resources that are not kept in any of the managers above, by url
+  private Map<String, CanonicalResource> otherCanonicals = new ConcurrentHashMap<>();
+  // element model child properties, which depend on the structures
+  private PropertyCache propertyCache = new PropertyCache();
+  // changed (under the lock) whenever a resource is added or dropped
+  private volatile int resourceGeneration;
+  // see getDefinitionCache; emptied whenever the resource generation changes
+  private Map<String, Map<Object, Object>> definitionCaches = new ConcurrentHashMap<>();
   
   private UcumService ucumService;
   protected Map<String, byte[]> binaries = new HashMap<String, byte[]>();
-  protected Map<String, String> oidCache = new HashMap<>();
+  protected Map<String, String> oidCache = new ConcurrentHashMap<>();
 
   protected Map<String, Map<String, ValidationResult>> validationCache = new HashMap<String, Map<String,ValidationResult>>();
   protected String tsServer;
@@ -193,17 +213,20 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
   private boolean allowLoadingDuplicates;
 
   protected TerminologyClient txClient;
-  private Set<String> codeSystemsUsed = new HashSet<>();
+  private Set<String> codeSystemsUsed = ConcurrentHashMap.newKeySet();
   protected ToolingClientLogger txLog;
-  private TerminologyCapabilities txcaps;
+  private volatile TerminologyCapabilities txcaps;
   private boolean canRunWithoutTerminology;
-  protected boolean noTerminologyServer;
+  protected volatile boolean noTerminologyServer;
   private int expandCodesLimit = 1000;
+  private int txBatchSize = 100;
+  private int txBatchThreads = 4;
   protected ILoggingService logger;
   protected Parameters expParameters;
   private TranslationServices translator = new NullTranslator();
   protected TerminologyCache txCache;
   protected TimeTracker clock;
+  protected IMetrics metrics = NoOpMetrics.INSTANCE;
   private boolean tlogging = true;
   
   public BaseWorkerContext() throws FileNotFoundException, IOException, FHIRException {
@@ -226,6 +249,7 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
     this.maps = maps;
     this.structures = profiles;
     this.guides = guides;
+    rebuildUntypedIndex();
     clock = new TimeTracker();
   }
 
@@ -248,6 +272,8 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
       capstmts.copy(other.capstmts);
       measures.copy(other.measures);
       libraries.copy(libraries);
+      rebuildUntypedIndex();
+      otherCanonicals.putAll(other.otherCanonicals);
 
       allowLoadingDuplicates = other.allowLoadingDuplicates;
       tsServer = other.tsServer;
@@ -260,8 +286,11 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
       if (other.txCache != null)
         txCache = other.txCache.copy();
       expandCodesLimit = other.expandCodesLimit;
+      txBatchSize = other.txBatchSize;
+      txBatchThreads = other.txBatchThreads;
       logger = other.logger;
       expParameters = other.expParameters;
+      setMetrics(other.metrics);
     }
   }
   
@@ -276,6 +305,7 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
 
   public void registerResourceFromPackage(CanonicalResourceProxy r, PackageVersion packageInfo) throws FHIRException {
     synchronized (lock) {
+        resourcesChanged();
 
         String url = r.getUrl();
         if (!allowLoadingDuplicates && hasResource(r.getType(), url)) {
@@ -292,6 +322,7 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
               fixOldSD(sd);
             }
             structures.register(r, packageInfo);
+            propertyCache.clear();
             break;
           case "ValueSet":
             valueSets.register(r, packageInfo);
@@ -333,17 +364,22 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
             systems.register(r, packageInfo);
             break;
         }
+        indexUntyped(r.getUrl());
+        indexUntyped(r.getId());
     }
   }
 
   public void cacheResourceFromPackage(Resource r, PackageVersion packageInfo) throws FHIRException {
     synchronized (lock) {
+      resourcesChanged();
       Map<String, Resource> map = allResourcesById.get(r.fhirType());
       if (map == null) {
-        map = new HashMap<String, Resource>();
+        map = new ConcurrentHashMap<String, Resource>();
         allResourcesById.put(r.fhirType(), map);
       }
-      map.put(r.getId(), r);
+      if (r.getId() != null) {
+        map.put(r.getId(), r);
+      }
 
       if (r instanceof CodeSystem || r instanceof NamingSystem) {
         oidCache.clear();
@@ -365,6 +401,7 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
             fixOldSD(sd);
           }
           structures.see(sd, packageInfo);
+          propertyCache.clear();
         } else if (r instanceof ValueSet) {
           valueSets.see((ValueSet) m, packageInfo);
         } else if (r instanceof CodeSystem) {
@@ -393,6 +430,11 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
         } else if (r instanceof NamingSystem) {
           systems.see((NamingSystem) m, packageInfo);
         }
+        indexUntyped(m.getUrl());
+        indexUntyped(m.getId());
+        if (m.hasUrl() && !untypedIndex.containsKey(m.getUrl())) {
+          otherCanonicals.put(m.getUrl(), m);
+        }
       }
     }
   }
@@ -498,20 +540,25 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
 
   @Override
   public CodeSystem fetchCodeSystem(String system) {
-    synchronized (lock) {
-      return codeSystems.get(system);
-    }
+    return codeSystems.get(system);
   } 
 
   @Override
   public boolean supportsSystem(String system) throws TerminologyServiceException {
+    CodeSystem cs = codeSystems.get(system);
+    if (cs != null && cs.getContent() != CodeSystemContentMode.NOTPRESENT) {
+      return true;
+    } else if (supportedCodeSystems.contains(system)) {
+      return true;
+    } else if (system.startsWith("http://example.org") || system.startsWith("http://acme.com") || system.startsWith("http://hl7.org/fhir/valueset-") || system.startsWith("urn:oid:")) {
+      return false;
+    } else if (noTerminologyServer || txcaps != null) {
+      return false;
+    }
+    // only the first enquiry needs to go to the terminology server  
     synchronized (lock) {
-      if (codeSystems.has(system) && codeSystems.get(system).getContent() != CodeSystemContentMode.NOTPRESENT) {
-        return true;
-      } else if (supportedCodeSystems.contains(system)) {
+      if (supportedCodeSystems.contains(system)) {
         return true;
-      } else if (system.startsWith("http://example.org") || system.startsWith("http://acme.com") || system.startsWith("http://hl7.org/fhir/valueset-") || system.startsWith("urn:oid:")) {
-        return false;
       } else {
         if (noTerminologyServer) {
           return false;
@@ -573,6 +620,28 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
     this.expandCodesLimit = expandCodesLimit;
   }
 
+  public int getTxBatchSize() {
+    return txBatchSize;
+  }
+
+  /**
+   * @param txBatchSize the most codes that validateCodeBatch puts in a single $batch request to the terminology server
+   */
+  public void setTxBatchSize(int txBatchSize) {
+    this.txBatchSize = txBatchSize;
+  }
+
+  public int getTxBatchThreads() {
+    return txBatchThreads;
+  }
+
+  /**
+   * @param txBatchThreads how many $batch requests validateCodeBatch sends to the terminology server at the same time
+   */
+  public void setTxBatchThreads(int txBatchThreads) {
+    this.txBatchThreads = txBatchThreads;
+  }
+
   @Override
   public ValueSetExpansionOutcome expandVS(ElementDefinitionBindingComponent binding, boolean cacheOk, boolean heirarchical) throws FHIRException {
     ValueSet vs = null;
@@ -618,7 +687,7 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
     params.put("_incomplete", "true");
     tlog("$expand on "+txCache.summary(vs));
     try {
-      ValueSet result = txClient.expandValueset(vs, p, params);
+      ValueSet result = expandOnServer(vs, p, params);
       res = new ValueSetExpansionOutcome(result).setTxLink(txLog.getLastId());  
     } catch (Exception e) {
       res = new ValueSetExpansionOutcome(e.getMessage() == null ? e.getClass().getName() : e.getMessage(), TerminologyServiceErrorClass.UNKNOWN);
@@ -698,7 +767,7 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
     params.put("_incomplete", "true");
     tlog("$expand on "+txCache.summary(vs));
     try {
-      ValueSet result = txClient.expandValueset(vs, p, params);
+      ValueSet result = expandOnServer(vs, p, params);
       if (!result.hasUrl()) {
         result.setUrl(vs.getUrl());
       }
@@ -713,6 +782,18 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
     return res;
   }
 
+  private ValueSet expandOnServer(ValueSet vs, Parameters p, Map<String, String> params) {
+    if (!metrics.isEnabled()) {
+      return txClient.expandValueset(vs, p, params);
+    }
+    long t = System.nanoTime();
+    try {
+      return txClient.expandValueset(vs, p, params);
+    } finally {
+      metrics.time(IMetrics.TX_CALL, "$expand", System.nanoTime() - t);
+    }
+  }
+
   private boolean hasTooCostlyExpansion(ValueSet valueset) {
     return valueset != null && valueset.hasExpansion() && ToolingExtensions.hasExtension(valueset.getExpansion(), ToolingExtensions.EXT_EXP_TOOCOSTLY);
   }
@@ -745,37 +826,47 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
     if (options == null) {
       options = ValidationOptions.defaults();
     }
-    // 1st pass: what is in the cache? 
+    // 1st pass: what is in the cache? requests that are the same are only looked at once
     // 2nd pass: What can we do internally 
     // 3rd pass: hit the server
+    Map<String, List<CodingValidationRequest>> groups = new HashMap<>();
+    List<CodingValidationRequest> todo = new ArrayList<>();
     for (CodingValidationRequest t : codes) {
-      t.setCacheToken(txCache != null ? txCache.generateValidationToken(options, t.getCoding(), vs) : null);
+      t.setCacheToken(txCache != null ? txCache.generateValidationToken(optionsFor(t, options), t.getCoding(), valueSetFor(t, vs)) : null);
       if (t.getCoding().hasSystem()) {
         codeSystemsUsed.add(t.getCoding().getSystem());
       }
       if (txCache != null) { 
         t.setResult(txCache.getValidation(t.getCacheToken()));
       }
+      if (!t.hasResult()) {
+        String key = batchKey(t);
+        List<CodingValidationRequest> group = groups.get(key);
+        if (group == null) {
+          groups.put(key, new ArrayList<>());
+          todo.add(t);
+        } else {
+          group.add(t);
+        }
+      }
     }
-    if (options.isUseClient()) {
-      for (CodingValidationRequest t : codes) {
-        if (!t.hasResult()) {
-          try {
-            ValueSetCheckerSimple vsc = new ValueSetCheckerSimple(options, vs, this); 
-            ValidationResult res = vsc.validateCode(t.getCoding());
-            if (txCache != null) {
-              txCache.cacheValidation(t.getCacheToken(), res, TerminologyCache.TRANSIENT);
-            }
-            t.setResult(res);
-          } catch (Exception e) {
+    for (CodingValidationRequest t : todo) {
+      if (optionsFor(t, options).isUseClient()) {
+        try {
+          ValueSetCheckerSimple vsc = new ValueSetCheckerSimple(optionsFor(t, options), valueSetFor(t, vs), this);
+          ValidationResult res = vsc.validateCode(t.getCoding());
+          if (txCache != null) {
+            txCache.cacheValidation(t.getCacheToken(), res, TerminologyCache.TRANSIENT);
           }
+          t.setResult(res);
+        } catch (Exception e) {
         }
       }      
     }  
 
-    for (CodingValidationRequest t : codes) {
+    for (CodingValidationRequest t : todo) {
       if (!t.hasResult()) {
-        if (!options.isUseServer()) {
+        if (!optionsFor(t, options).isUseServer()) {
          t.setResult(new ValidationResult(IssueSeverity.WARNING,formatMessage(I18nConstants.UNABLE_TO_VALIDATE_CODE_WITHOUT_USING_SERVER), TerminologyServiceErrorClass.BLOCKED_BY_OPTIONS));
         } else if (unsupportedCodeSystems.contains(t.getCoding().getSystem())) {
           t.setResult(new ValidationResult(IssueSeverity.ERROR,formatMessage(I18nConstants.TERMINOLOGY_TX_SYSTEM_NOTKNOWN, t.getCoding().getSystem()), TerminologyServiceErrorClass.CODESYSTEM_UNSUPPORTED));      
@@ -787,52 +878,136 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
     
     if (expParameters == null)
       throw new Error(formatMessage(I18nConstants.NO_EXPANSIONPROFILE_PROVIDED));
-    // for those that that failed, we try to validate on the server
-    Bundle batch = new Bundle();
-    batch.setType(BundleType.BATCH);
+    // for those that that failed, we try to validate on the server, txBatchSize codes at a time
+    List<Bundle> batches = new ArrayList<>();
     Set<String> systems = new HashSet<>();
-    for (CodingValidationRequest t : codes) {
+    int count = 0;
+    for (CodingValidationRequest t : todo) {
       if (!t.hasResult()) {
+        if (batches.isEmpty() || batches.get(batches.size()-1).getEntry().size() >= txBatchSize) {
+          Bundle batch = new Bundle();
+          batch.setType(BundleType.BATCH);
+          batches.add(batch);
+        }
+        ValidationOptions tOptions = optionsFor(t, options);
+        ValueSet tvs = valueSetFor(t, vs);
         Parameters pIn = new Parameters();
         pIn.addParameter().setName("coding").setValue(t.getCoding());
-        if (options.isGuessSystem()) {
+        if (tOptions.isGuessSystem()) {
           pIn.addParameter().setName("implySystem").setValue(new BooleanType(true));
         }
-        if (vs != null) {
-          pIn.addParameter().setName("valueSet").setResource(vs);
+        if (tvs != null) {
+          pIn.addParameter().setName("valueSet").setResource(tvs);
         }
         pIn.addParameter().setName("profile").setResource(expParameters);
-        setTerminologyOptions(options, pIn);
-        BundleEntryComponent be = batch.addEntry();
+        setTerminologyOptions(tOptions, pIn);
+        BundleEntryComponent be = batches.get(batches.size()-1).addEntry();
         be.setResource(pIn);
         be.getRequest().setMethod(HTTPVerb.POST);
         be.getRequest().setUrl("ValueSet/$validate-code");
         be.setUserData("source", t);
         systems.add(t.getCoding().getSystem());
+        count++;
       }
     }
-    if (batch.getEntry().size() > 0) {
-      tlog("$batch validate for "+batch.getEntry().size()+" codes on systems "+systems.toString());
+    if (count > 0) {
+      tlog("$batch validate for "+count+" codes on systems "+systems.toString()+(batches.size() > 1 ? " in "+batches.size()+" batches" : ""));
       if (txClient == null) {
         throw new FHIRException(formatMessage(I18nConstants.ATTEMPT_TO_USE_TERMINOLOGY_SERVER_WHEN_NO_TERMINOLOGY_SERVER_IS_AVAILABLE));
       }
       if (txLog != null) {
         txLog.clearLastId();
       }
-      Bundle resp = txClient.validateBatch(batch);
-      for (int i = 0; i < batch.getEntry().size(); i++) {
-        CodingValidationRequest t = (CodingValidationRequest) batch.getEntry().get(i).getUserData("source");
-        BundleEntryComponent r = resp.getEntry().get(i);
-        if (r.getResource() instanceof Parameters) {
-          t.setResult(processValidationResult((Parameters) r.getResource()));
-          if (txCache != null) {
-            txCache.cacheValidation(t.getCacheToken(), t.getResult(), TerminologyCache.PERMANENT);
+      for (Bundle batch : batches) {
+        Bundle resp = sendBatch(batches, batch);
+        for (int i = 0; i < batch.getEntry().size(); i++) {
+          CodingValidationRequest t = (CodingValidationRequest) batch.getEntry().get(i).getUserData("source");
+          BundleEntryComponent r = resp.getEntry().get(i);
+          if (r.getResource() instanceof Parameters) {
+            t.setResult(processValidationResult((Parameters) r.getResource()));
+            if (txCache != null) {
+              txCache.cacheValidation(t.getCacheToken(), t.getResult(), TerminologyCache.PERMANENT);
+            }
+          } else {
+            t.setResult(new ValidationResult(IssueSeverity.ERROR, getResponseText(r.getResource())).setTxLink(txLog == null ? null : txLog.getLastId()));          
           }
-        } else {
-          t.setResult(new ValidationResult(IssueSeverity.ERROR, getResponseText(r.getResource())).setTxLink(txLog == null ? null : txLog.getLastId()));          
         }
       }
-    }    
+    }
+    for (CodingValidationRequest t : todo) {
+      for (CodingValidationRequest other : groups.get(batchKey(t))) {
+        other.setResult(t.getResult());
+      }
+    }
+  }
+
+  private ValidationOptions optionsFor(CodingValidationRequest t, ValidationOptions options) {
+    return t.getOptions() != null ? t.getOptions() : options;
+  }
+
+  private ValueSet valueSetFor(CodingValidationRequest t, ValueSet vs) {
+    return t.getOptions() != null ? t.getValueSet() : vs;
+  }
+
+  private String batchKey(CodingValidationRequest t) {
+    if (t.getCacheToken() != null) {
+      return t.getCacheToken().getKey();
+    }
+    Coding c = t.getCoding();
+    String key = c.getSystem()+"|"+c.getVersion()+"#"+c.getCode()+"|"+c.getDisplay();
+    if (t.getOptions() != null) {
+      key = t.getOptions().toJson()+"|"+(t.getValueSet() == null ? "" : t.getValueSet().getUrl())+"|"+key;
+    }
+    return key;
+  }
+
+  /**
+   * The first time this is called for a set of batches, all of them are sent to the server, up to
+   * txBatchThreads at a time. The response for each batch is kept on the batch until it's asked for.
+   * When the transactions are being logged, the batches are sent one at a time so that the log
+   * links are right
+   */
+  private Bundle sendBatch(List<Bundle> batches, Bundle batch) {
+    int threads = Math.min(txBatchThreads, batches.size());
+    if (threads > 1 && txLog == null && !batch.hasUserData("tx.batch.response")) {
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+      try {
+        List<Future<Bundle>> futures = new ArrayList<>();
+        for (Bundle b : batches) {
+          futures.add(executor.submit(() -> validateBatchOnServer(b)));
+        }
+        for (int i = 0; i < batches.size(); i++) {
+          batches.get(i).setUserData("tx.batch.response", futures.get(i).get());
+        }
+      } catch (ExecutionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw new FHIRException(e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new FHIRException(e);
+      } finally {
+        executor.shutdownNow();
+      }
+    }
+    if (batch.hasUserData("tx.batch.response")) {
+      return (Bundle) batch.getUserData("tx.batch.response");
+    }
+    return validateBatchOnServer(batch);
+  }
+
+  private Bundle validateBatchOnServer(Bundle batch) {
+    if (!metrics.isEnabled()) {
+      return txClient.validateBatch(batch);
+    }
+    metrics.record(IMetrics.TX_BATCH_SIZE, "$batch", batch.getEntry().size());
+    long t = System.nanoTime();
+    try {
+      return txClient.validateBatch(batch);
+    } finally {
+      metrics.time(IMetrics.TX_CALL, "$batch", System.nanoTime() - t);
+    }
   }
   
   private String getResponseText(Resource resource) {
@@ -1005,10 +1180,15 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
       throw new FHIRException(formatMessage(I18nConstants.ATTEMPT_TO_USE_TERMINOLOGY_SERVER_WHEN_NO_TERMINOLOGY_SERVER_IS_AVAILABLE));
     }
     Parameters pOut;
-    if (vs == null) {
-      pOut = txClient.validateCS(pin);
-    } else {
-      pOut = txClient.validateVS(pin);
+    long t = System.nanoTime();
+    try {
+      if (vs == null) {
+        pOut = txClient.validateCS(pin);
+      } else {
+        pOut = txClient.validateVS(pin);
+      }
+    } finally {
+      metrics.time(IMetrics.TX_CALL, vs == null ? "CodeSystem/$validate-code" : "ValueSet/$validate-code", System.nanoTime() - t);
     }
     return processValidationResult(pOut);
   }
@@ -1095,6 +1275,7 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
       Utilities.createDirectory(cachePath);
     }
     txCache = new TerminologyCache(lock, cachePath);
+    txCache.setMetrics(metrics);
   }
 
   public void clearTSCache(String url) throws Exception {
@@ -1104,15 +1285,13 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
   
   @Override
   public List<ConceptMap> findMapsForSource(String url) throws FHIRException {
-    synchronized (lock) {
-      List<ConceptMap> res = new ArrayList<ConceptMap>();
-      for (ConceptMap map : maps.getList()) {
-        if (((Reference) map.getSource()).getReference().equals(url)) { 
-          res.add(map);
-        } 
+    List<ConceptMap> res = new ArrayList<ConceptMap>();
+    for (ConceptMap map : maps.getList()) {
+      if (((Reference) map.getSource()).getReference().equals(url)) { 
+        res.add(map);
       } 
-      return res;
-    }
+    } 
+    return res;
   }
 
   public boolean isCanRunWithoutTerminology() {
@@ -1185,125 +1364,78 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
     if (class_ == StructureDefinition.class) {
       uri = ProfileUtilities.sdNs(uri, getOverrideVersionNs());
     }
-    synchronized (lock) {
 
-      String version = null;
-      if (uri.contains("|")) {
-        version = uri.substring(uri.lastIndexOf("|")+1);
-        uri = uri.substring(0, uri.lastIndexOf("|"));
-      }
-      if (uri.contains("#")) {
-        uri = uri.substring(0, uri.indexOf("#"));
+    String version = null;
+    if (uri.contains("|")) {
+      version = uri.substring(uri.lastIndexOf("|")+1);
+      uri = uri.substring(0, uri.lastIndexOf("|"));
+    }
+    if (uri.contains("#")) {
+      uri = uri.substring(0, uri.indexOf("#"));
+    } 
+    if (class_ == Resource.class || class_ == null) {
+      CanonicalResourceManager<?> m = findManagerForUntyped(uri);
+      if (m != null) {
+        return (T) m.get(uri, version);
       } 
-      if (class_ == Resource.class || class_ == null) {
-        if (structures.has(uri)) {
-          return (T) structures.get(uri, version);
-        } 
-        if (guides.has(uri)) {
-          return (T) guides.get(uri, version);
-        } 
-        if (capstmts.has(uri)) {
-          return (T) capstmts.get(uri, version);
-        } 
-        if (measures.has(uri)) {
-          return (T) measures.get(uri, version);
-        } 
-        if (libraries.has(uri)) {
-          return (T) libraries.get(uri, version);
-        } 
-        if (valueSets.has(uri)) {
-          return (T) valueSets.get(uri, version);
-        } 
-        if (codeSystems.has(uri)) {
-          return (T) codeSystems.get(uri, version);
-        } 
-        if (operations.has(uri)) {
-          return (T) operations.get(uri, version);
-        } 
-        if (searchParameters.has(uri)) {
-          return (T) searchParameters.get(uri, version);
-        } 
-        if (plans.has(uri)) {
-          return (T) plans.get(uri, version);
-        } 
-        if (maps.has(uri)) {
-          return (T) maps.get(uri, version);
-        } 
-        if (transforms.has(uri)) {
-          return (T) transforms.get(uri, version);
-        } 
-        if (questionnaires.has(uri)) {
-          return (T) questionnaires.get(uri, version);
-        } 
-        for (Map<String, Resource> rt : allResourcesById.values()) {
-          for (Resource r : rt.values()) {
-            if (r instanceof CanonicalResource) {
-              CanonicalResource mr = (CanonicalResource) r;
-              if (uri.equals(mr.getUrl())) {
-                return (T) mr;
-              } 
-            }
-          }            
-        }
-        return null;      
-      } else if (class_ == ImplementationGuide.class) {
-        return (T) guides.get(uri, version);
-      } else if (class_ == CapabilityStatement.class) {
-        return (T) capstmts.get(uri, version);
-      } else if (class_ == Measure.class) {
-        return (T) measures.get(uri, version);
-      } else if (class_ == Library.class) {
-        return (T) libraries.get(uri, version);
-      } else if (class_ == StructureDefinition.class) {
-        return (T) structures.get(uri, version);
-      } else if (class_ == StructureMap.class) {
-        return (T) transforms.get(uri, version);
-      } else if (class_ == ValueSet.class) {
-        return (T) valueSets.get(uri, version);
-      } else if (class_ == CodeSystem.class) {
-        return (T) codeSystems.get(uri, version);
-      } else if (class_ == ConceptMap.class) {
-        return (T) maps.get(uri, version);
-      } else if (class_ == PlanDefinition.class) {
-        return (T) plans.get(uri, version);
-      } else if (class_ == OperationDefinition.class) {
-        OperationDefinition od = operations.get(uri, version);
-        return (T) od;
-      } else if (class_ == Questionnaire.class) {
-        return (T) questionnaires.get(uri, version);
-      } else if (class_ == SearchParameter.class) {
-        SearchParameter res = searchParameters.get(uri, version);
-        return (T) res;
-      }
-      if (class_ == CodeSystem.class && codeSystems.has(uri)) { 
-        return (T) codeSystems.get(uri, version);
+      return (T) otherCanonicals.get(uri);
+    } else if (class_ == ImplementationGuide.class) {
+      return (T) guides.get(uri, version);
+    } else if (class_ == CapabilityStatement.class) {
+      return (T) capstmts.get(uri, version);
+    } else if (class_ == Measure.class) {
+      return (T) measures.get(uri, version);
+    } else if (class_ == Library.class) {
+      return (T) libraries.get(uri, version);
+    } else if (class_ == StructureDefinition.class) {
+      return (T) structures.get(uri, version);
+    } else if (class_ == StructureMap.class) {
+      return (T) transforms.get(uri, version);
+    } else if (class_ == ValueSet.class) {
+      return (T) valueSets.get(uri, version);
+    } else if (class_ == CodeSystem.class) {
+      return (T) codeSystems.get(uri, version);
+    } else if (class_ == ConceptMap.class) {
+      return (T) maps.get(uri, version);
+    } else if (class_ == PlanDefinition.class) {
+      return (T) plans.get(uri, version);
+    } else if (class_ == OperationDefinition.class) {
+      OperationDefinition od = operations.get(uri, version);
+      return (T) od;
+    } else if (class_ == Questionnaire.class) {
+      return (T) questionnaires.get(uri, version);
+    } else if (class_ == SearchParameter.class) {
+      SearchParameter res = searchParameters.get(uri, version);
+      return (T) res;
+    }
+    if (class_ == CodeSystem.class && codeSystems.has(uri)) { 
+      return (T) codeSystems.get(uri, version);
+    }
+    if (class_ == ValueSet.class && valueSets.has(uri)) {
+      return (T) valueSets.get(uri, version);
+    } 
+    
+    if (class_ == Questionnaire.class) {
+      return (T) questionnaires.get(uri, version);
+    } 
+    if (class_ == null) {
+      if (uri.matches(Constants.URI_REGEX) && !uri.contains("ValueSet")) {
+        return null;
       }
-      if (class_ == ValueSet.class && valueSets.has(uri)) {
-        return (T) valueSets.get(uri, version);
-      } 
-      
-      if (class_ == Questionnaire.class) {
-        return (T) questionnaires.get(uri, version);
-      } 
-      if (class_ == null) {
-        if (uri.matches(Constants.URI_REGEX) && !uri.contains("ValueSet")) {
-          return null;
-        }
 
-        // it might be a special URL.
-        if (Utilities.isAbsoluteUrl(uri) || uri.startsWith("ValueSet/")) {
-          Resource res = null; // findTxValueSet(uri);
-          if (res != null) {
-            return (T) res;
-          }
+      // it might be a special URL.
+      if (Utilities.isAbsoluteUrl(uri) || uri.startsWith("ValueSet/")) {
+        Resource res = null; // findTxValueSet(uri);
+        if (res != null) {
+          return (T) res;
         }
-        return null;
       }
-      if (supportedCodeSystems.contains(uri)) {
-        return null;
-      } 
-      throw new FHIRException(formatMessage(I18nConstants.NOT_DONE_YET_CANT_FETCH_, uri));
+      return null;
     }
+    if (supportedCodeSystems.contains(uri)) {
+      return null;
+    } 
+    throw new FHIRException(formatMessage(I18nConstants.NOT_DONE_YET_CANT_FETCH_, uri));
   }
 
   @SuppressWarnings("unchecked")
@@ -1315,151 +1447,158 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
     if ("StructureDefinition".equals(cls)) {
       uri = ProfileUtilities.sdNs(uri, getOverrideVersionNs());
     }
-    synchronized (lock) {
 
-      String version = null;
-      if (uri.contains("|")) {
-        version = uri.substring(uri.lastIndexOf("|")+1);
-        uri = uri.substring(0, uri.lastIndexOf("|"));
-      }
-      if (uri.contains("#")) {
-        uri = uri.substring(0, uri.indexOf("#"));
+    String version = null;
+    if (uri.contains("|")) {
+      version = uri.substring(uri.lastIndexOf("|")+1);
+      uri = uri.substring(0, uri.lastIndexOf("|"));
+    }
+    if (uri.contains("#")) {
+      uri = uri.substring(0, uri.indexOf("#"));
+    } 
+    if (cls == null || "Resource".equals(cls)) {
+      CanonicalResourceManager<?> m = findManagerForUntyped(uri);
+      if (m != null) {
+        return (T) m.get(uri, version);
       } 
-      if (cls == null || "Resource".equals(cls)) {
-        if (structures.has(uri)) {
-          return (T) structures.get(uri, version);
-        } 
-        if (guides.has(uri)) {
-          return (T) guides.get(uri, version);
-        } 
-        if (capstmts.has(uri)) {
-          return (T) capstmts.get(uri, version);
-        } 
-        if (measures.has(uri)) {
-          return (T) measures.get(uri, version);
-        } 
-        if (libraries.has(uri)) {
-          return (T) libraries.get(uri, version);
-        } 
-        if (valueSets.has(uri)) {
-          return (T) valueSets.get(uri, version);
-        } 
-        if (codeSystems.has(uri)) {
-          return (T) codeSystems.get(uri, version);
-        } 
-        if (operations.has(uri)) {
-          return (T) operations.get(uri, version);
-        } 
-        if (searchParameters.has(uri)) {
-          return (T) searchParameters.get(uri, version);
-        } 
-        if (plans.has(uri)) {
-          return (T) plans.get(uri, version);
-        } 
-        if (maps.has(uri)) {
-          return (T) maps.get(uri, version);
-        } 
-        if (transforms.has(uri)) {
-          return (T) transforms.get(uri, version);
-        } 
-        if (questionnaires.has(uri)) {
-          return (T) questionnaires.get(uri, version);
-        } 
-        for (Map<String, Resource> rt : allResourcesById.values()) {
-          for (Resource r : rt.values()) {
-            if (r instanceof CanonicalResource) {
-              CanonicalResource mr = (CanonicalResource) r;
-              if (uri.equals(mr.getUrl())) {
-                return (T) mr;
-              } 
-            }
-          }            
-        }
-      } else if ("ImplementationGuide".equals(cls)) {
-        return (T) guides.get(uri, version);
-      } else if ("CapabilityStatement".equals(cls)) {
-        return (T) capstmts.get(uri, version);
-      } else if ("Measure".equals(cls)) {
-        return (T) measures.get(uri, version);
-      } else if ("Library".equals(cls)) {
-        return (T) libraries.get(uri, version);
-      } else if ("StructureDefinition".equals(cls)) {
-        return (T) structures.get(uri, version);
-      } else if ("StructureMap".equals(cls)) {
-        return (T) transforms.get(uri, version);
-      } else if ("ValueSet".equals(cls)) {
-        return (T) valueSets.get(uri, version);
-      } else if ("CodeSystem".equals(cls)) {
-        return (T) codeSystems.get(uri, version);
-      } else if ("ConceptMap".equals(cls)) {
-        return (T) maps.get(uri, version);
-      } else if ("PlanDefinition".equals(cls)) {
-        return (T) plans.get(uri, version);
-      } else if ("OperationDefinition".equals(cls)) {
-        OperationDefinition od = operations.get(uri, version);
-        return (T) od;
-      } else if ("Questionnaire.class".equals(cls)) {
-        return (T) questionnaires.get(uri, version);
-      } else if ("SearchParameter.class".equals(cls)) {
-        SearchParameter res = searchParameters.get(uri, version);
+      CanonicalResource res = otherCanonicals.get(uri);
+      if (res != null) {
         return (T) res;
       }
-      if ("CodeSystem".equals(cls) && codeSystems.has(uri)) {
-        return (T) codeSystems.get(uri, version);
-      } 
-      if ("ValueSet".equals(cls) && valueSets.has(uri)) {
-        return (T) valueSets.get(uri, version);
-      } 
-      
-      if ("Questionnaire".equals(cls)) {
-        return (T) questionnaires.get(uri, version);
+    } else if ("ImplementationGuide".equals(cls)) {
+      return (T) guides.get(uri, version);
+    } else if ("CapabilityStatement".equals(cls)) {
+      return (T) capstmts.get(uri, version);
+    } else if ("Measure".equals(cls)) {
+      return (T) measures.get(uri, version);
+    } else if ("Library".equals(cls)) {
+      return (T) libraries.get(uri, version);
+    } else if ("StructureDefinition".equals(cls)) {
+      return (T) structures.get(uri, version);
+    } else if ("StructureMap".equals(cls)) {
+      return (T) transforms.get(uri, version);
+    } else if ("ValueSet".equals(cls)) {
+      return (T) valueSets.get(uri, version);
+    } else if ("CodeSystem".equals(cls)) {
+      return (T) codeSystems.get(uri, version);
+    } else if ("ConceptMap".equals(cls)) {
+      return (T) maps.get(uri, version);
+    } else if ("PlanDefinition".equals(cls)) {
+      return (T) plans.get(uri, version);
+    } else if ("OperationDefinition".equals(cls)) {
+      OperationDefinition od = operations.get(uri, version);
+      return (T) od;
+    } else if ("Questionnaire.class".equals(cls)) {
+      return (T) questionnaires.get(uri, version);
+    } else if ("SearchParameter.class".equals(cls)) {
+      SearchParameter res = searchParameters.get(uri, version);
+      return (T) res;
+    }
+    if ("CodeSystem".equals(cls) && codeSystems.has(uri)) {
+      return (T) codeSystems.get(uri, version);
+    } 
+    if ("ValueSet".equals(cls) && valueSets.has(uri)) {
+      return (T) valueSets.get(uri, version);
+    } 
+    
+    if ("Questionnaire".equals(cls)) {
+      return (T) questionnaires.get(uri, version);
+    } 
+    if (cls == null) {
+      if (uri.matches(Constants.URI_REGEX) && !uri.contains("ValueSet")) {
+        return null;
       } 
-      if (cls == null) {
-        if (uri.matches(Constants.URI_REGEX) && !uri.contains("ValueSet")) {
-          return null;
+
+      // it might be a special URL.
+      if (Utilities.isAbsoluteUrl(uri) || uri.startsWith("ValueSet/")) {
+        Resource res = null; // findTxValueSet(uri);
+        if (res != null) {
+          return (T) res;
         } 
+      }
+      return null;      
+    }    
+    if (supportedCodeSystems.contains(uri)) {
+      return null;
+    } 
+    throw new FHIRException(formatMessage(I18nConstants.NOT_DONE_YET_CANT_FETCH_, uri));
+  }
+
+  /**
+   * The order in which the managers are searched when fetching a canonical resource without knowing its type. 
+   * If more than one manager has the url, the first one wins
+   */
+  private CanonicalResourceManager<?>[] untypedSearchOrder() {
+    return new CanonicalResourceManager<?>[] { structures, guides, capstmts, measures, libraries, valueSets, codeSystems, operations, searchParameters, plans, maps, transforms, questionnaires };
+  }
 
-        // it might be a special URL.
-        if (Utilities.isAbsoluteUrl(uri) || uri.startsWith("ValueSet/")) {
-          Resource res = null; // findTxValueSet(uri);
-          if (res != null) {
-            return (T) res;
-          } 
+  private CanonicalResourceManager<?> probeManagers(String url) {
+    if (url != null) {
+      for (CanonicalResourceManager<?> m : untypedSearchOrder()) {
+        if (m.has(url)) {
+          return m;
         }
-        return null;      
-      }    
-      if (supportedCodeSystems.contains(uri)) {
-        return null;
-      } 
-      throw new FHIRException(formatMessage(I18nConstants.NOT_DONE_YET_CANT_FETCH_, uri));
+      }
+    }
+    return null;
+  }
+
+  // called whenever something with this url/id is registered, so the index always points at the first manager in search order
+  private void indexUntyped(String key) {
+    CanonicalResourceManager<?> m = probeManagers(key);
+    if (m != null) {
+      untypedIndex.put(key, m);
     }
   }
 
+  private void rebuildUntypedIndex() {
+    untypedIndex.clear();
+    for (CanonicalResourceManager<?> m : untypedSearchOrder()) {
+      for (String key : m.keys()) {
+        if (!key.contains("|")) {
+          indexUntyped(key);
+        }
+      }
+    }
+  }
+
+  private CanonicalResourceManager<?> findManagerForUntyped(String url) {
+    CanonicalResourceManager<?> m = untypedIndex.get(url);
+    if (m != null && !m.has(url)) {
+      // dropped since it was indexed - there might be another one further down the search order
+      m = probeManagers(url);
+      if (m == null) {
+        untypedIndex.remove(url);
+      } else {
+        untypedIndex.put(url, m);
+      }
+    }
+    return m;
+  }
+
   private Set<String> notCanonical = new HashSet<String>();
 
   private String overrideVersionNs;
 
   @Override
   public Resource fetchResourceById(String type, String uri) {
-    synchronized (lock) {
-      String[] parts = uri.split("\\/");
-      if (!Utilities.noString(type) && parts.length == 1) {
-        if (allResourcesById.containsKey(type)) {
-          return allResourcesById.get(type).get(parts[0]);
-        } else {
-          return null;
-        }
+    String[] parts = uri.split("\\/");
+    if (!Utilities.noString(type) && parts.length == 1) {
+      if (allResourcesById.containsKey(type)) {
+        return allResourcesById.get(type).get(parts[0]);
+      } else {
+        return null;
       }
-      if (parts.length >= 2) {
-        if (!Utilities.noString(type)) {
-          if (!type.equals(parts[parts.length-2])) { 
-            throw new Error(formatMessage(I18nConstants.RESOURCE_TYPE_MISMATCH_FOR___, type, uri));
-          }
+    }
+    if (parts.length >= 2) {
+      if (!Utilities.noString(type)) {
+        if (!type.equals(parts[parts.length-2])) { 
+          throw new Error(formatMessage(I18nConstants.RESOURCE_TYPE_MISMATCH_FOR___, type, uri));
         }
-        return allResourcesById.get(parts[parts.length-2]).get(parts[parts.length-1]);
-      } else {
-        throw new Error(formatMessage(I18nConstants.UNABLE_TO_PROCESS_REQUEST_FOR_RESOURCE_FOR___, type, uri));
       }
+      return allResourcesById.get(parts[parts.length-2]).get(parts[parts.length-1]);
+    } else {
+      throw new Error(formatMessage(I18nConstants.UNABLE_TO_PROCESS_REQUEST_FOR_RESOURCE_FOR___, type, uri));
     }
   }
 
@@ -1547,17 +1686,15 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
   }
   
   public void reportStatus(JsonObject json) {
-    synchronized (lock) {
-      json.addProperty("codeystem-count", codeSystems.size());
-      json.addProperty("valueset-count", valueSets.size());
-      json.addProperty("conceptmap-count", maps.size());
-      json.addProperty("transforms-count", transforms.size());
-      json.addProperty("structures-count", structures.size());
-      json.addProperty("guides-count", guides.size());
-      json.addProperty("statements-count", capstmts.size());
-      json.addProperty("measures-count", measures.size());
-      json.addProperty("libraries-count", libraries.size());
-    }
+    json.addProperty("codeystem-count", codeSystems.size());
+    json.addProperty("valueset-count", valueSets.size());
+    json.addProperty("conceptmap-count", maps.size());
+    json.addProperty("transforms-count", transforms.size());
+    json.addProperty("structures-count", structures.size());
+    json.addProperty("guides-count", guides.size());
+    json.addProperty("statements-count", capstmts.size());
+    json.addProperty("measures-count", measures.size());
+    json.addProperty("libraries-count", libraries.size());
   }
 
 
@@ -1567,18 +1704,19 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
 
   public void dropResource(String fhirType, String id) {
     synchronized (lock) {
+      resourcesChanged();
 
       Map<String, Resource> map = allResourcesById.get(fhirType);
-      if (map == null) {
-        map = new HashMap<String, Resource>();
-        allResourcesById.put(fhirType, map);
-      }
-      if (map.containsKey(id)) {
-        map.remove(id);
+      if (map != null && id != null) {
+        Resource r = map.remove(id);
+        if (r instanceof CanonicalResource && ((CanonicalResource) r).hasUrl()) {
+          otherCanonicals.remove(((CanonicalResource) r).getUrl(), r);
+        }
       }
 
       if (fhirType.equals("StructureDefinition")) {
         structures.drop(id);
+        propertyCache.clear();
       } else if (fhirType.equals("ImplementationGuide")) {
         guides.drop(id);
       } else if (fhirType.equals("CapabilityStatement")) {
@@ -1622,129 +1760,111 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
 
   @Override
   public List<CanonicalResource> allConformanceResources() {
-    synchronized (lock) {
-      List<CanonicalResource> result = new ArrayList<CanonicalResource>();
-      structures.listAllM(result);
-      guides.listAllM(result);
-      capstmts.listAllM(result);
-      measures.listAllM(result);
-      libraries.listAllM(result);
-      codeSystems.listAllM(result);
-      valueSets.listAllM(result);
-      maps.listAllM(result);
-      transforms.listAllM(result);
-      plans.listAllM(result);
-      questionnaires.listAllM(result);
-      return result;
-    }
+    List<CanonicalResource> result = new ArrayList<CanonicalResource>();
+    structures.listAllM(result);
+    guides.listAllM(result);
+    capstmts.listAllM(result);
+    measures.listAllM(result);
+    libraries.listAllM(result);
+    codeSystems.listAllM(result);
+    valueSets.listAllM(result);
+    maps.listAllM(result);
+    transforms.listAllM(result);
+    plans.listAllM(result);
+    questionnaires.listAllM(result);
+    return result;
   }
   
   public String listSupportedSystems() {
-    synchronized (lock) {
-      String sl = null;
-      for (String s : supportedCodeSystems) {
-        sl = sl == null ? s : sl + "\r\n" + s;
-      }
-      return sl;
+    String sl = null;
+    for (String s : supportedCodeSystems) {
+      sl = sl == null ? s : sl + "\r\n" + s;
     }
+    return sl;
   }
 
 
   public int totalCount() {
-    synchronized (lock) {
-      return valueSets.size() +  maps.size() + structures.size() + transforms.size();
-    }
+    return valueSets.size() +  maps.size() + structures.size() + transforms.size();
   }
   
   public List<ConceptMap> listMaps() {
     List<ConceptMap> m = new ArrayList<ConceptMap>();
-    synchronized (lock) {
-      maps.listAll(m);
-    }
+    maps.listAll(m);
     return m;
   }
   
   public List<StructureMap> listTransforms() {
     List<StructureMap> m = new ArrayList<StructureMap>();
-    synchronized (lock) {
-      transforms.listAll(m);    
-    }
+    transforms.listAll(m);    
     return m;
   }
   
   public StructureMap getTransform(String code) {
-    synchronized (lock) {
-      return transforms.get(code);
-    }
+    return transforms.get(code);
   }
 
   public List<StructureDefinition> listStructures() {
     List<StructureDefinition> m = new ArrayList<StructureDefinition>();
-    synchronized (lock) {
-      structures.listAll(m);    
-    }
+    structures.listAll(m);    
     return m;
   }
 
   public StructureDefinition getStructure(String code) {
-    synchronized (lock) {
-      return structures.get(code);
-    }
+    return structures.get(code);
   }
 
   @Override
   public String oid2Uri(String oid) {
-    synchronized (lock) {
-      if (oid != null && oid.startsWith("urn:oid:")) {
-        oid = oid.substring(8);
-      }
-      if (oidCache.containsKey(oid)) {
-        return oidCache.get(oid);
+    if (oid != null && oid.startsWith("urn:oid:")) {
+      oid = oid.substring(8);
+    }
+    if (oid == null) {
+      return null;
+    }
+    String uri = oidCache.get(oid);
+    if (uri == null) {
+      synchronized (lock) {
+        uri = oidCache.get(oid);
+        if (uri == null) {
+          uri = findUriForOid(oid);
+          // misses are cached as "", since the cache doesn't hold nulls  
+          oidCache.put(oid, uri == null ? "" : uri);
+        }
       }
+    }
+    return "".equals(uri) ? null : uri;
+  }
 
-      String uri = OIDUtils.getUriForOid(oid);
-      if (uri != null) {
-        oidCache.put(oid, uri);
-        return uri;
-      }
-      CodeSystem cs = fetchCodeSystem("http://terminology.hl7.org/CodeSystem/v2-tables");
-      if (cs != null) {
-        for (ConceptDefinitionComponent cc : cs.getConcept()) {
-          for (ConceptPropertyComponent cp : cc.getProperty()) {
-            if (Utilities.existsInList(cp.getCode(), "v2-table-oid", "v2-cs-oid") && oid.equals(cp.getValue().primitiveValue())) {
-              for (ConceptPropertyComponent cp2 : cc.getProperty()) {
-                if ("v2-cs-uri".equals(cp2.getCode())) {
-                  oidCache.put(oid, cp2.getValue().primitiveValue());
-                  return cp2.getValue().primitiveValue();                  
-                }
-              }              
-            }
+  private String findUriForOid(String oid) {
+    String uri = OIDUtils.getUriForOid(oid);
+    if (uri != null) {
+      return uri;
+    }
+    CodeSystem cs = fetchCodeSystem("http://terminology.hl7.org/CodeSystem/v2-tables");
+    if (cs != null) {
+      for (ConceptDefinitionComponent cc : cs.getConcept()) {
+        for (ConceptPropertyComponent cp : cc.getProperty()) {
+          if (Utilities.existsInList(cp.getCode(), "v2-table-oid", "v2-cs-oid") && oid.equals(cp.getValue().primitiveValue())) {
+            for (ConceptPropertyComponent cp2 : cc.getProperty()) {
+              if ("v2-cs-uri".equals(cp2.getCode())) {
+                return cp2.getValue().primitiveValue();                  
+              }
+            }              
           }
         }
       }
-      for (CodeSystem css : codeSystems.getList()) {
-        if (("urn:oid:"+oid).equals(css.getUrl())) {
-          oidCache.put(oid, css.getUrl());
-          return css.getUrl();
-        }
-        for (Identifier id : css.getIdentifier()) {
-          if ("urn:ietf:rfc:3986".equals(id.getSystem()) && ("urn:oid:"+oid).equals(id.getValue())) {
-            oidCache.put(oid, css.getUrl());
-            return css.getUrl();
-          }
-        }
+    }
+    for (CodeSystem css : codeSystems.getList()) {
+      if (("urn:oid:"+oid).equals(css.getUrl())) {
+        return css.getUrl();
       }
-      for (NamingSystem ns : systems.getList()) {
-        if (hasOid(ns, oid)) {
-          uri = getUri(ns);
-          if (uri != null) {
-            oidCache.put(oid, null);
-            return null;
-          }
+      for (Identifier id : css.getIdentifier()) {
+        if ("urn:ietf:rfc:3986".equals(id.getSystem()) && ("urn:oid:"+oid).equals(id.getValue())) {
+          return css.getUrl();
         }
       }
     }
-    oidCache.put(oid, null);
     return null;
   }
   
@@ -1774,9 +1894,7 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
   }
 
   public SearchParameter getSearchParameter(String code) {
-    synchronized (lock) {
-      return searchParameters.get(code);
-    }
+    return searchParameters.get(code);
   }
 
   @Override
@@ -1822,9 +1940,7 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
   @Override
   public List<StructureDefinition> getStructures() {
     List<StructureDefinition> res = new ArrayList<>();
-    synchronized (lock) { // tricky, because you need to lock this as well, but it's really not in use yet
-      structures.listAll(res);
-    }
+    structures.listAll(res);
     return res;
   }
   
@@ -1903,7 +2019,44 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
   public Map<String, byte[]> getBinaries() {
     return binaries;
   }
+
+  @Override
+  public PropertyCache getPropertyCache() {
+    return propertyCache;
+  }
+
+  @Override
+  public int getResourceGeneration() {
+    // never -1 (which means the context doesn't keep track) 
+    return resourceGeneration & Integer.MAX_VALUE;
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public <K, V> Map<K, V> getDefinitionCache(String name) {
+    // the model classes don't override equals, so these are keyed by identity
+    return (Map<K, V>) definitionCaches.computeIfAbsent(name, n -> new ConcurrentHashMap<>());
+  }
+
+  // called under the lock
+  private void resourcesChanged() {
+    resourceGeneration++;
+    for (Map<Object, Object> cache : definitionCaches.values()) {
+      cache.clear();
+    }
+  }
   
+  /**
+   * calls the action for each canonical resource held in the context, with the package it came from
+   * (loading any resources that haven't been loaded yet). The resources of each type are in the order
+   * they were loaded
+   */
+  public void forEachResource(BiConsumer<CanonicalResource, PackageVersion> action) {
+    for (CanonicalResourceManager<?> m : new CanonicalResourceManager<?>[] { structures, valueSets, codeSystems, guides, capstmts, measures, libraries, searchParameters, plans, operations, questionnaires, maps, transforms, systems }) {
+      m.forEach(action);
+    }
+  }
+
   public void finishLoading() {
     for (StructureDefinition sd : listStructures()) {
       try {
@@ -1942,6 +2095,10 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
     return txCache.getFolder();
   }
 
+  public TerminologyCache getTerminologyCache() {
+    return txCache;
+  }
+
   public TerminologyClient getTxClient() {
     return txClient;
   }
@@ -1959,22 +2116,36 @@ public abstract class BaseWorkerContext extends I18nBase implements IWorkerConte
   }
 
   public void setTxCaps(TerminologyCapabilities txCaps) {
-    this.txcaps = txCaps;
     if (txCaps != null) {
-      for (TerminologyCapabilitiesExpansionParameterComponent t : txcaps.getExpansion().getParameter()) {
+      for (TerminologyCapabilitiesExpansionParameterComponent t : txCaps.getExpansion().getParameter()) {
         if ("cache-id".equals(t.getName())) {
           isTxCaching = true;
         }
       }
-      for (TerminologyCapabilitiesCodeSystemComponent tccs : txcaps.getCodeSystem()) {
+      for (TerminologyCapabilitiesCodeSystemComponent tccs : txCaps.getCodeSystem()) {
         supportedCodeSystems.add(tccs.getUri());
       }
     }
+    // set last: supportsSystem reads it without the lock, and relies on the supported systems being known by then
+    this.txcaps = txCaps;
   }
 
   public TimeTracker clock() {
     return clock;
   }
+
+  @Override
+  public IMetrics getMetrics() {
+    return metrics;
+  }
+
+  @Override
+  public void setMetrics(IMetrics metrics) {
+    this.metrics = metrics == null ? NoOpMetrics.INSTANCE : metrics;
+    if (txCache != null) {
+      txCache.setMetrics(this.metrics);
+    }
+  }
  
 
   public int countAllCaches() {
@@ -8,6 +8,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 
 import org.hl7.fhir.exceptions.FHIRException;
 import org.hl7.fhir.r5.context.CanonicalResourceManager.CanonicalResourceProxy;
@@ -22,6 +24,10 @@ import org.hl7.fhir.utilities.VersionUtilities;
  * This manages a cached list of resources, and provides high speed access by URL / URL+version, and assumes that patch version doesn't matter for access
  * note, though, that not all resources have semver versions
  * 
+ * Threading: lookups by url/id (get, has) do not lock, so many validator threads can share one context. 
+ * Changes (see, register, drop, copy, clear) are serialised on the manager, and the list based 
+ * operations take a snapshot of the list under the same lock
+ * 
  * @author graha
  *
  */
@@ -33,7 +39,7 @@ public class CanonicalResourceManager<T extends CanonicalResource> {
     private String id;
     private String url;
     private String version;
-    private CanonicalResource resource;
+    private volatile CanonicalResource resource;
     
     public CanonicalResourceProxy(String type, String id, String url, String version) {
       super();
@@ -72,13 +78,21 @@ public class CanonicalResourceManager<T extends CanonicalResource> {
     }
     
     public CanonicalResource getResource() throws FHIRException {
-      if (resource == null) {
-        resource = loadResource();
-        if (resource instanceof CodeSystem) {
-          CodeSystemUtilities.crossLinkCodeSystem((CodeSystem) resource);
+      CanonicalResource res = resource;
+      if (res == null) {
+        synchronized (this) {
+          // only one thread gets to parse a deferred resource
+          res = resource;
+          if (res == null) {
+            res = loadResource();
+            if (res instanceof CodeSystem) {
+              CodeSystemUtilities.crossLinkCodeSystem((CodeSystem) res);
+            }
+            resource = res;
+          }
         }
       }
-      return resource;
+      return res;
     }
 
     public void setResource(CanonicalResource resource) {
@@ -104,13 +118,14 @@ public class CanonicalResourceManager<T extends CanonicalResource> {
   }
 
   private class CachedCanonicalResource<T1 extends CanonicalResource> {
-    private T1 resource;
-    private CanonicalResourceProxy proxy;
+    private volatile T1 resource;
+    private final CanonicalResourceProxy proxy; // kept after loading, so the metadata can be read without locking
     private PackageVersion packageInfo;
     
     public CachedCanonicalResource(T1 resource, PackageVersion packageInfo) {
       super();
       this.resource = resource;
+      this.proxy = null;
       this.packageInfo = packageInfo;
     }
     
@@ -121,36 +136,45 @@ public class CanonicalResourceManager<T extends CanonicalResource> {
     }
     
     public T1 getResource() {
-      if (resource == null) {
-        @SuppressWarnings("unchecked")
-        T1 res = (T1) proxy.getResource();
+      T1 res = resource;
+      if (res == null) {
         synchronized (this) {
-          resource = res;
+          res = resource;
+          if (res == null) {
+            @SuppressWarnings("unchecked")
+            T1 loaded = (T1) proxy.getResource();
+            res = loaded;
+            resource = res;
+          }
         }
-        proxy = null;
       }
-      return resource;
+      return res;
     }
     
     public PackageVersion getPackageInfo() {
       return packageInfo;
     }
     public String getUrl() {
-      return resource != null ? resource.getUrl() : proxy.getUrl();
+      T1 res = resource;
+      return res != null ? res.getUrl() : proxy.getUrl();
     }
     public String getId() {
-      return resource != null ? resource.getId() : proxy.getId();
+      T1 res = resource;
+      return res != null ? res.getId() : proxy.getId();
     }
     public String getVersion() {
-      return resource != null ? resource.getVersion() : proxy.getVersion();
+      T1 res = resource;
+      return res != null ? res.getVersion() : proxy.getVersion();
     }
     public boolean hasVersion() {
-      return resource != null ? resource.hasVersion() : proxy.getVersion() != null;
+      T1 res = resource;
+      return res != null ? res.hasVersion() : proxy.getVersion() != null;
     }
     
     @Override
     public String toString() {
-      return resource != null ? resource.fhirType()+"/"+resource.getId()+": "+resource.getUrl()+"|"+resource.getVersion() : proxy.toString();
+      T1 res = resource;
+      return res != null ? res.fhirType()+"/"+res.getId()+": "+res.getUrl()+"|"+res.getVersion() : proxy.toString();
     }  
 
   }
@@ -179,8 +203,8 @@ public class CanonicalResourceManager<T extends CanonicalResource> {
   }
 
   private boolean enforceUniqueId; 
-  private List<CachedCanonicalResource<T>> list = new ArrayList<>();
-  private Map<String, CachedCanonicalResource<T>> map = new HashMap<>();
+  private List<CachedCanonicalResource<T>> list = new ArrayList<>(); // only accessed while holding the lock on this
+  private Map<String, CachedCanonicalResource<T>> map = new ConcurrentHashMap<>(); // read without locking
   
   
   public CanonicalResourceManager(boolean enforceUniqueId) {
@@ -189,10 +213,18 @@ public class CanonicalResourceManager<T extends CanonicalResource> {
   }
 
   public void copy(CanonicalResourceManager<T> source) {
-    list.clear();
-    map.clear();
-    list.addAll(source.list);
-    map.putAll(source.map);
+    List<CachedCanonicalResource<T>> srcList;
+    Map<String, CachedCanonicalResource<T>> srcMap;
+    synchronized (source) {
+      srcList = new ArrayList<>(source.list);
+      srcMap = new HashMap<>(source.map);
+    }
+    synchronized (this) {
+      list.clear();
+      map.clear();
+      list.addAll(srcList);
+      map.putAll(srcMap);
+    }
   }
   
   public void register(CanonicalResourceProxy r, PackageVersion packgeInfo) {
@@ -211,7 +243,7 @@ public class CanonicalResourceManager<T extends CanonicalResource> {
     see(cr);
   }
 
-  public void see(CachedCanonicalResource<T> cr) {
+  public synchronized void see(CachedCanonicalResource<T> cr) {
     // ignore UTG NUCC erroneous code system
     if (cr.getPackageInfo() != null && cr.getPackageInfo().getId() != null && cr.getPackageInfo().getId().startsWith("hl7.terminology") && "http://nucc.org/provider-taxonomy".equals(cr.getUrl())) {
       return;
@@ -287,28 +319,39 @@ public class CanonicalResourceManager<T extends CanonicalResource> {
  
 
   public T get(String url) {
-    return map.containsKey(url) ? map.get(url).getResource() : null;
+    if (url == null) {
+      return null;
+    }
+    CachedCanonicalResource<T> cr = map.get(url);
+    return cr != null ? cr.getResource() : null;
   }
   
   public boolean has(String url) {
-    return map.containsKey(url);
+    return url != null && map.containsKey(url);
   }
   
   public T get(String system, String version) {
     if (version == null) {
       return get(system);
+    } else if (system == null) {
+      return null;
     } else {
-      if (map.containsKey(system+"|"+version))
-        return map.get(system+"|"+version).getResource();
+      CachedCanonicalResource<T> cr = map.get(system+"|"+version);
+      if (cr != null)
+        return cr.getResource();
       String mm = VersionUtilities.getMajMin(version);
-      if (mm != null && map.containsKey(system+"|"+mm))
-        return map.get(system+"|"+mm).getResource();
+      cr = mm == null ? null : map.get(system+"|"+mm);
+      if (cr != null)
+        return cr.getResource();
       else
         return null;
     }
   }
   
   public boolean has(String system, String version) {
+    if (system == null) {
+      return false;
+    }
     if (map.containsKey(system+"|"+version))
       return true;
     String mm = VersionUtilities.getMajMin(version);
@@ -318,11 +361,11 @@ public class CanonicalResourceManager<T extends CanonicalResource> {
       return false;
   }
   
-  public int size() {
+  public synchronized int size() {
     return list.size();
   }
   
-  public void drop(String id) {
+  public synchronized void drop(String id) {
     CachedCanonicalResource<T> res = null;
     do {
       res = null;
@@ -334,41 +377,60 @@ public class CanonicalResourceManager<T extends CanonicalResource> {
       if (res != null) {
         list.remove(res);
         map.remove(id);
-        map.remove(res.getUrl());
-        if (res.hasVersion()) {
-          map.remove(res.getUrl()+"|"+res.getVersion());
-          String mm = VersionUtilities.getMajMin(res.getVersion());
-          if (mm != null) {
-            map.remove(res.getUrl()+"|"+mm);
+        if (res.getUrl() != null) {
+          map.remove(res.getUrl());
+          if (res.hasVersion()) {
+            map.remove(res.getUrl()+"|"+res.getVersion());
+            String mm = VersionUtilities.getMajMin(res.getVersion());
+            if (mm != null) {
+              map.remove(res.getUrl()+"|"+mm);
+            }
           }
+          updateList(res.getUrl(), res.getVersion());
         }
-        updateList(res.getUrl(), res.getVersion()); 
       }
     } while (res != null);
   }
   
   
   public void listAll(List<T> result) {
-    for (CachedCanonicalResource<T>  t : list) {
+    for (CachedCanonicalResource<T>  t : snapshot()) {
       result.add(t.getResource()); 
     }
   }
 
+  /**
+   * calls the action for each resource, with the package it came from, in the order they were seen
+   */
+  public void forEach(BiConsumer<? super T, PackageVersion> action) {
+    for (CachedCanonicalResource<T>  t : snapshot()) {
+      action.accept(t.getResource(), t.getPackageInfo()); 
+    }
+  }
+
   public void listAllM(List<CanonicalResource> result) {
-    for (CachedCanonicalResource<T>  t : list) {
+    for (CachedCanonicalResource<T>  t : snapshot()) {
       result.add(t.getResource()); 
     }
   }
 
-  public void clear() {
+  public synchronized void clear() {
     list.clear();
     map.clear();
     
   }
 
+  /**
+   * the resources are loaded outside the lock (loading a deferred resource may parse it), 
+   * so the list operations work from a copy of the list
+   */
+  private synchronized List<CachedCanonicalResource<T>> snapshot() {
+    return new ArrayList<>(list);
+  }
+
   public List<T> getList() {
     List<T> res = new ArrayList<>();
-    for (CachedCanonicalResource<T> t : list) {
+    for (CachedCanonicalResource<T> t : snapshot()) {
       if (!res.contains(t.getResource())) {
         res.add(t.getResource());
       }
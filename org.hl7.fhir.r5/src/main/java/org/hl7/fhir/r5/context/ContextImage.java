@@ -0,0 +1,298 @@
+package org.hl7.fhir.r5.context;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.hl7.fhir.exceptions.FHIRException;
+import org.hl7.fhir.r5.context.CanonicalResourceManager.CanonicalResourceProxy;
+import org.hl7.fhir.r5.context.IWorkerContext.PackageVersion;
+import org.hl7.fhir.r5.formats.JsonParser;
+import org.hl7.fhir.r5.model.CanonicalResource;
+import org.hl7.fhir.utilities.npm.ToolsVersion;
+
+/**
+ * A SimpleWorkerContext saved to a single file, so that it can be loaded again without reading and
+ * indexing the packages it was loaded from, or generating the snapshots of its profiles.
+ *
+ * The file has the resources (as JSON, in R5, after any snapshots were generated), followed by an
+ * index that has, for each resource, the details that the context indexes it by, the package it came
+ * from, and where it is in the file. It also has the packages that were loaded and the binaries.
+ *
+ * When the image is loaded, the file is memory mapped, and the resources are registered with the
+ * context from the index. Each resource is only parsed when it is first used.
+ *
+ * The image only has the canonical resources, binaries and packages. Any other state (terminology
+ * server, expansion parameters, settings, and the user data of the resources other than their path)
+ * has to be set up again after the image is loaded. Images are specific to the format version and
+ * the build of the tools that made them (see ToolsVersion.getBuildVersion); if either has changed, 
+ * load fails, and the image should be built again. 
+ * 
+ * The image also records a description of the sources it was loaded from (e.g. the packages and IG 
+ * folders, with their timestamps), as worked out by whoever makes it. When the sources are given to 
+ * load, it fails if they aren't the same, since the image would then have the wrong content.
+ */
+public class ContextImage {
+
+  private static final byte[] MAGIC = "FHIRCTXI".getBytes();
+  public static final int FORMAT_VERSION = 2;
+
+  private static class ImageEntry {
+    private String type;
+    private String id;
+    private String url;
+    private String version;
+    private PackageVersion packageInfo;
+    private String path;
+    private int offset;
+    private int length;
+  }
+
+  private static class ImageResourceProxy extends CanonicalResourceProxy {
+    private ByteBuffer image;
+    private ImageEntry entry;
+
+    public ImageResourceProxy(ByteBuffer image, ImageEntry entry) {
+      super(entry.type, entry.id, entry.url, entry.version);
+      this.image = image;
+      this.entry = entry;
+    }
+
+    @Override
+    public CanonicalResource loadResource() throws FHIRException {
+      byte[] content = new byte[entry.length];
+      ByteBuffer b = image.duplicate();
+      // through Buffer, so that this still runs on Java 8 when compiled with a later JDK
+      ((Buffer) b).position(entry.offset);
+      b.get(content);
+      try {
+        CanonicalResource res = (CanonicalResource) new JsonParser().parse(content);
+        if (entry.path != null) {
+          res.setUserData("path", entry.path);
+        }
+        return res;
+      } catch (IOException e) {
+        throw new FHIRException("Error loading "+entry.type+"/"+entry.id+" from context image: "+e.getMessage(), e);
+      }
+    }
+  }
+
+  /**
+   * Saves the context to the file. All the resources in the context are loaded, so any missing snapshots
+   * should be generated first (e.g. with finishLoading), or they'll be generated again each time the image
+   * is loaded
+   */
+  public static void save(SimpleWorkerContext context, String filename) throws IOException {
+    save(context, filename, new ArrayList<>());
+  }
+
+  /**
+   * Saves the context to the file, as for save(context, filename), with the sources the context was loaded from
+   * 
+   * @param sources - a description of each source, that will change if the source does. The order doesn't matter
+   */
+  public static void save(SimpleWorkerContext context, String filename, List<String> sources) throws IOException {
+    File file = new File(filename);
+    // written under another name and then moved, so processes loading the image never see part of one
+    File tmp = File.createTempFile("context", ".tmp", file.getAbsoluteFile().getParentFile());
+    try {
+      List<ImageEntry> entries = new ArrayList<>();
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+      try {
+        out.write(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        ByteArrayOutputStream header = new ByteArrayOutputStream();
+        DataOutputStream hout = new DataOutputStream(header);
+        hout.writeUTF(ToolsVersion.getBuildVersion());
+        List<String> sorted = new ArrayList<>(sources);
+        Collections.sort(sorted);
+        hout.writeInt(sorted.size());
+        for (String s : sorted) {
+          hout.writeUTF(s);
+        }
+        hout.close();
+        out.writeInt(header.size());
+        out.write(header.toByteArray());
+        JsonParser json = new JsonParser();
+        IOException[] error = new IOException[1];
+        context.forEachResource((r, pi) -> {
+          if (error[0] == null) {
+            try {
+              byte[] content = json.composeBytes(r);
+              ImageEntry e = new ImageEntry();
+              e.type = r.fhirType();
+              e.id = r.getId();
+              e.url = r.getUrl();
+              e.version = r.getVersion();
+              e.packageInfo = pi;
+              e.path = r.getUserString("path");
+              e.offset = out.size();
+              e.length = content.length;
+              out.write(content);
+              entries.add(e);
+            } catch (IOException ex) {
+              error[0] = ex;
+            }
+          }
+        });
+        if (error[0] != null) {
+          throw error[0];
+        }
+        int index = out.size();
+        if (index == Integer.MAX_VALUE) {
+          throw new IOException("The context is too large to save as an image");
+        }
+        writeString(out, context.getVersion());
+        out.writeInt(context.getLoadedPackages().size());
+        for (String s : context.getLoadedPackages()) {
+          out.writeUTF(s);
+        }
+        Map<String, byte[]> binaries = context.getBinaries();
+        out.writeInt(binaries.size());
+        for (String s : binaries.keySet()) {
+          out.writeUTF(s);
+          out.writeInt(binaries.get(s).length);
+          out.write(binaries.get(s));
+        }
+        out.writeInt(entries.size());
+        for (ImageEntry e : entries) {
+          out.writeUTF(e.type);
+          out.writeUTF(e.id);
+          writeString(out, e.url);
+          writeString(out, e.version);
+          writeString(out, e.packageInfo == null ? null : e.packageInfo.getId());
+          writeString(out, e.packageInfo == null ? null : e.packageInfo.getVersion());
+          writeString(out, e.path);
+          out.writeInt(e.offset);
+          out.writeInt(e.length);
+        }
+        out.writeInt(index);
+      } finally {
+        out.close();
+      }
+      Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      tmp.delete();
+    }
+  }
+
+  /**
+   * Loads a context from an image made by save. The file must not be changed while the context is in use
+   */
+  public static SimpleWorkerContext load(String filename) throws IOException, FHIRException {
+    return load(filename, null);
+  }
+
+  /**
+   * Loads a context from an image made by save, as for load(filename), if it was made from the same sources
+   * 
+   * @param sources - the sources the context should be loaded from (as passed to save), or null to load it whatever it was made from
+   * @throws IOException if the image can't be loaded, including if it was made from different sources 
+   */
+  public static SimpleWorkerContext load(String filename, List<String> sources) throws IOException, FHIRException {
+    MappedByteBuffer image;
+    RandomAccessFile f = new RandomAccessFile(filename, "r");
+    try {
+      image = f.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, f.length());
+    } finally {
+      f.close();
+    }
+    byte[] magic = new byte[MAGIC.length];
+    if (image.capacity() < MAGIC.length + 12) {
+      throw new IOException(filename+" is not a context image");
+    }
+    image.get(magic);
+    if (!Arrays.equals(magic, MAGIC)) {
+      throw new IOException(filename+" is not a context image");
+    }
+    int format = image.getInt();
+    int length = image.getInt();
+    if (format != FORMAT_VERSION || length < 0 || length > image.remaining()) {
+      throw new IOException("The context image "+filename+" was made by a different version of the tools, and must be made again");
+    }
+    byte[] header = new byte[length];
+    image.get(header);
+    DataInputStream hin = new DataInputStream(new ByteArrayInputStream(header));
+    if (!ToolsVersion.getBuildVersion().equals(hin.readUTF())) {
+      throw new IOException("The context image "+filename+" was made by a different version of the tools, and must be made again");
+    }
+    List<String> imageSources = new ArrayList<>();
+    int sc = hin.readInt();
+    for (int i = 0; i < sc; i++) {
+      imageSources.add(hin.readUTF());
+    }
+    if (sources != null) {
+      List<String> sorted = new ArrayList<>(sources);
+      Collections.sort(sorted);
+      if (!sorted.equals(imageSources)) {
+        throw new IOException("The context image "+filename+" was made from different sources, and must be made again");
+      }
+    }
+    ByteBuffer b = image.duplicate();
+    ((Buffer) b).position(image.capacity() - 4);
+    ((Buffer) b).position(b.getInt());
+    byte[] index = new byte[b.remaining() - 4];
+    b.get(index);
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(index));
+
+    SimpleWorkerContext context = new SimpleWorkerContext();
+    context.setAllowLoadingDuplicates(true);
+    context.version = readString(in);
+    int c = in.readInt();
+    for (int i = 0; i < c; i++) {
+      context.getLoadedPackages().add(in.readUTF());
+    }
+    c = in.readInt();
+    for (int i = 0; i < c; i++) {
+      String name = in.readUTF();
+      byte[] content = new byte[in.readInt()];
+      in.readFully(content);
+      context.binaries.put(name, content);
+    }
+    c = in.readInt();
+    for (int i = 0; i < c; i++) {
+      ImageEntry e = new ImageEntry();
+      e.type = in.readUTF();
+      e.id = in.readUTF();
+      e.url = readString(in);
+      e.version = readString(in);
+      String pid = readString(in);
+      String pver = readString(in);
+      e.packageInfo = pid == null ? null : new PackageVersion(pid, pver);
+      e.path = readString(in);
+      e.offset = in.readInt();
+      e.length = in.readInt();
+      context.registerResourceFromPackage(new ImageResourceProxy(image, e), e.packageInfo);
+    }
+    return context;
+  }
+
+  private static void writeString(DataOutputStream out, String s) throws IOException {
+    out.writeBoolean(s != null);
+    if (s != null) {
+      out.writeUTF(s);
+    }
+  }
+
+  private static String readString(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+
+}
@@ -46,6 +46,7 @@ import org.hl7.fhir.exceptions.FHIRException;
 import org.hl7.fhir.exceptions.TerminologyServiceException;
 import org.hl7.fhir.r5.context.IWorkerContext.CodingValidationRequest;
 import org.hl7.fhir.r5.context.TerminologyCache.CacheToken;
+import org.hl7.fhir.r5.elementmodel.PropertyCache;
 import org.hl7.fhir.r5.formats.IParser;
 import org.hl7.fhir.r5.formats.ParserType;
 import org.hl7.fhir.r5.model.Bundle;
@@ -66,6 +67,8 @@ import org.hl7.fhir.r5.terminologies.ValueSetExpander.TerminologyServiceErrorCla
 import org.hl7.fhir.r5.terminologies.ValueSetExpander.ValueSetExpansionOutcome;
 import org.hl7.fhir.r5.utils.IResourceValidator;
 import org.hl7.fhir.utilities.TimeTracker;
+import org.hl7.fhir.utilities.metrics.IMetrics;
+import org.hl7.fhir.utilities.metrics.NoOpMetrics;
 import org.hl7.fhir.utilities.TranslationServices;
 import org.hl7.fhir.utilities.npm.BasePackageCacheManager;
 import org.hl7.fhir.utilities.npm.NpmPackage;
@@ -98,6 +101,8 @@ public interface IWorkerContext {
 
   public class CodingValidationRequest {
     private Coding coding;
+    private ValidationOptions options;
+    private ValueSet valueSet;
     private ValidationResult result;
     private CacheToken cacheToken;
     
@@ -106,6 +111,19 @@ public interface IWorkerContext {
       this.coding = coding;
     }
 
+    /**
+     * a request that is validated with its own options and value set, rather than those passed to validateCodeBatch,
+     * so that codes that are validated in different ways can still be sent to the server in the same batch
+     * 
+     * @param vs the applicable valueset (optional)
+     */
+    public CodingValidationRequest(Coding coding, ValidationOptions options, ValueSet vs) {
+      super();
+      this.coding = coding;
+      this.options = options;
+      this.valueSet = vs;
+    }
+
     public ValidationResult getResult() {
       return result;
     }
@@ -118,6 +136,17 @@ public interface IWorkerContext {
       return coding;
     }
 
+    /**
+     * @return the options for this request, or null if it uses the ones passed to validateCodeBatch
+     */
+    public ValidationOptions getOptions() {
+      return options;
+    }
+
+    public ValueSet getValueSet() {
+      return valueSet;
+    }
+
     public boolean hasResult() {
       return result != null;
     }
@@ -735,6 +764,38 @@ public interface IWorkerContext {
   public String getLinkForUrl(String corePath, String s);
   public Map<String, byte[]> getBinaries();
 
+  /**
+   * The child properties worked out by the element model as it parses, shared by all the parsers that use this context
+   * 
+   * @return the cache, or null if the context doesn't keep one (the default, for contexts outside this library)
+   */
+  public default PropertyCache getPropertyCache() {
+    return null;
+  }
+
+  /**
+   * A number that changes each time a resource is added to or dropped from the context, so that things worked
+   * out from the resources in it (e.g. which value set a binding resolves to) can be kept until it changes
+   * 
+   * @return the number, or -1 if the context doesn't keep track (the default, for contexts outside this library), in which case nothing should be kept
+   */
+  public default int getResourceGeneration() {
+    return -1;
+  }
+
+  /**
+   * A cache for things that are worked out from the definitions in the context (e.g. the validator's plan for each 
+   * element definition), so that they're shared by everything that uses the context. The caches are safe to use 
+   * from any number of threads. They are keyed by the definitions themselves, which are compared by identity, and 
+   * they are emptied whenever a resource is added to or dropped from the context
+   * 
+   * @param name - which cache (each user of the context has its own)
+   * @return the cache, or null if the context doesn't keep them (the default, for contexts outside this library)
+   */
+  public default <K, V> Map<K, V> getDefinitionCache(String name) {
+    return null;
+  }
+
   /**
    * Load relevant resources of the appropriate types (as specified by the loader) from the nominated package
    * 
@@ -781,4 +842,17 @@ public interface IWorkerContext {
   public IWorkerContext setClientRetryCount(int value);
   
   public TimeTracker clock();
+
+  /**
+   * @return where the context (and the FHIRPath engines and validators that use it) report what they are spending their time on 
+   */
+  public default IMetrics getMetrics() {
+    return NoOpMetrics.INSTANCE;
+  }
+
+  /**
+   * @param metrics - null to go back to not collecting anything. Contexts that don't collect metrics ignore this
+   */
+  public default void setMetrics(IMetrics metrics) {
+  }
 }
\ No newline at end of file
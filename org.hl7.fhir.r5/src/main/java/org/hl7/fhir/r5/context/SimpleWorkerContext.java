@@ -44,6 +44,8 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -63,8 +65,11 @@ import org.hl7.fhir.r5.formats.XmlParser;
 import org.hl7.fhir.r5.model.Bundle;
 import org.hl7.fhir.r5.model.Bundle.BundleEntryComponent;
 import org.hl7.fhir.r5.model.CanonicalResource;
+import org.hl7.fhir.r5.model.CanonicalType;
 import org.hl7.fhir.r5.model.CapabilityStatement;
+import org.hl7.fhir.r5.model.ElementDefinition;
 import org.hl7.fhir.r5.model.ElementDefinition.ElementDefinitionBindingComponent;
+import org.hl7.fhir.r5.model.ElementDefinition.TypeRefComponent;
 import org.hl7.fhir.r5.model.Questionnaire;
 import org.hl7.fhir.r5.model.Resource;
 import org.hl7.fhir.r5.model.ResourceType;
@@ -83,6 +88,7 @@ import org.hl7.fhir.utilities.TimeTracker;
 import org.hl7.fhir.utilities.Utilities;
 import org.hl7.fhir.utilities.VersionUtilities;
 import org.hl7.fhir.utilities.i18n.I18nConstants;
+import org.hl7.fhir.utilities.metrics.IMetrics;
 import org.hl7.fhir.utilities.npm.BasePackageCacheManager;
 import org.hl7.fhir.utilities.npm.FilesystemPackageCacheManager;
 import org.hl7.fhir.utilities.npm.NpmPackage;
@@ -107,6 +113,7 @@ public class SimpleWorkerContext extends BaseWorkerContext implements IWorkerCon
 
     private String filename;
     private IContextResourceLoader loader;
+    private String packageFolder;
 
     public PackageResourceLoader(PackageResourceInformation pri, IContextResourceLoader loader) {
       super(pri.getType(), pri.getId(), pri.getUrl(),pri.getVersion());
@@ -114,16 +121,26 @@ public class SimpleWorkerContext extends BaseWorkerContext implements IWorkerCon
       this.loader = loader;
     }
 
+    public PackageResourceLoader(PackageResourceInformation pri, IContextResourceLoader loader, String packageFolder) {
+      this(pri, loader);
+      this.packageFolder = packageFolder;
+    }
+
     @Override
     public CanonicalResource loadResource() {
       try {
         FileInputStream f = new FileInputStream(filename);
         try  {
+          CanonicalResource res;
           if (loader != null) {
-            return (CanonicalResource) loader.loadResource(f, true);
+            res = (CanonicalResource) loader.loadResource(f, true);
           } else {
-            return (CanonicalResource) new JsonParser().parse(f);
+            res = (CanonicalResource) new JsonParser().parse(f);
+          }
+          if (packageFolder != null && res instanceof StructureDefinition) {
+            res.setUserData(SnapshotCache.UD_PACKAGE_FOLDER, packageFolder);
           }
+          return res;
         } finally {
           f.close();
         }
@@ -152,6 +169,11 @@ public class SimpleWorkerContext extends BaseWorkerContext implements IWorkerCon
   private List<String> loadedPackages = new ArrayList<String>();
   private boolean canNoTS;
   private XVerExtensionManager xverManager;
+  private SnapshotCache snapshotCache;
+  // the profiles each thread is generating snapshots for
+  private ThreadLocal<List<String>> snapshotStack = ThreadLocal.withInitial(ArrayList::new);
+  // the profiles whose snapshots are complete (by identity). A profile's snapshot is set before it is filled in, so hasSnapshot() doesn't say this 
+  private Set<StructureDefinition> completeSnapshots = ConcurrentHashMap.newKeySet();
 
   public SimpleWorkerContext() throws FileNotFoundException, IOException, FHIRException {
     super();
@@ -179,6 +201,7 @@ public class SimpleWorkerContext extends BaseWorkerContext implements IWorkerCon
     revision = other.revision;
     date = other.date;
     validatorFactory = other.validatorFactory;
+    snapshotCache = other.snapshotCache;
   }
 
 
@@ -226,6 +249,20 @@ public class SimpleWorkerContext extends BaseWorkerContext implements IWorkerCon
     return res;
   }
 
+  /**
+   * Loads a context saved by ContextImage.save
+   */
+  public static SimpleWorkerContext fromImage(String filename) throws IOException, FHIRException {
+    return ContextImage.load(filename);
+  }
+
+  /**
+   * Loads a context saved by ContextImage.save, if it was saved with the same sources
+   */
+  public static SimpleWorkerContext fromImage(String filename, List<String> sources) throws IOException, FHIRException {
+    return ContextImage.load(filename, sources);
+  }
+
   public static SimpleWorkerContext fromPack(String path, boolean allowDuplicates) throws FileNotFoundException, IOException, FHIRException {
     SimpleWorkerContext res = new SimpleWorkerContext();
     res.setAllowLoadingDuplicates(allowDuplicates);
@@ -452,7 +489,7 @@ public class SimpleWorkerContext extends BaseWorkerContext implements IWorkerCon
       }
       for (PackageResourceInformation pri : pi.listIndexedResources(types)) {
         try {
-          registerResourceFromPackage(new PackageResourceLoader(pri, loader), new PackageVersion(pi.id(), pi.version()));
+          registerResourceFromPackage(new PackageResourceLoader(pri, loader, pi.getPath()), new PackageVersion(pi.id(), pi.version()));
           t++;
         } catch (FHIRException e) {
           throw new FHIRException(formatMessage(I18nConstants.ERROR_READING__FROM_PACKAGE__, pri.getFilename(), pi.name(), pi.version(), e.getMessage()), e);
@@ -754,40 +791,120 @@ public class SimpleWorkerContext extends BaseWorkerContext implements IWorkerCon
   
   @Override
   public void generateSnapshot(StructureDefinition p, boolean logical) throws DefinitionException, FHIRException {
-    if (!p.hasSnapshot() && (logical || p.getKind() != StructureDefinitionKind.LOGICAL)) {
-      if (!p.hasBaseDefinition())
-        throw new DefinitionException(formatMessage(I18nConstants.PROFILE___HAS_NO_BASE_AND_NO_SNAPSHOT, p.getName(), p.getUrl()));
-      StructureDefinition sd = fetchResource(StructureDefinition.class, p.getBaseDefinition());
-      if (sd == null && "http://hl7.org/fhir/StructureDefinition/Base".equals(p.getBaseDefinition())) {
-        sd = ProfileUtilities.makeBaseDefinition(p.getFhirVersion());
-      }
-      if (sd == null) {
-        throw new DefinitionException(formatMessage(I18nConstants.PROFILE___BASE__COULD_NOT_BE_RESOLVED, p.getName(), p.getUrl(), p.getBaseDefinition()));
+    if (!completeSnapshots.contains(p) && (logical || p.getKind() != StructureDefinitionKind.LOGICAL)) {
+      synchronized (p) {
+        // fetchResource is not locked, so several threads can find the same profile without a snapshot. Once 
+        // this thread has the lock, no other thread is generating it, so it's complete if it has one, unless 
+        // this thread is part way through it (and has come back here because it refers to itself)
+        List<String> stack = snapshotStack.get();
+        if (!p.hasSnapshot()) {
+          // the lock is reentrant, so if the profiles' bases go round in a circle, this thread comes back here
+          if (stack.contains(p.getUrl())) {
+            throw new DefinitionException(formatMessage(I18nConstants.CIRCULAR_SNAPSHOT_REFERENCES_DETECTED_CANNOT_GENERATE_SNAPSHOT_STACK__, stack.toString()));
+          }
+          stack.add(p.getUrl());
+          long t = System.nanoTime();
+          try {
+            generateSnapshotInt(p);
+          } finally {
+            stack.remove(stack.size() - 1);
+            metrics.time(IMetrics.SNAPSHOT_GENERATION, p.getUrl(), System.nanoTime() - t);
+          }
+        }
+        if (p.hasSnapshot() && !stack.contains(p.getUrl())) {
+          completeSnapshots.add(p);
+        }
       }
-      List<ValidationMessage> msgs = new ArrayList<ValidationMessage>();
-      List<String> errors = new ArrayList<String>();
-      ProfileUtilities pu = new ProfileUtilities(this, msgs, this);
-      pu.setAutoFixSliceNames(true);
-      pu.setThrowException(false);
-      if (xverManager == null) {
-        xverManager = new XVerExtensionManager(this);
+    }
+  }
+
+  private void generateSnapshotInt(StructureDefinition p) throws DefinitionException, FHIRException {
+    if (!p.hasBaseDefinition())
+      throw new DefinitionException(formatMessage(I18nConstants.PROFILE___HAS_NO_BASE_AND_NO_SNAPSHOT, p.getName(), p.getUrl()));
+    StructureDefinition sd = fetchResource(StructureDefinition.class, p.getBaseDefinition());
+    if (sd == null && "http://hl7.org/fhir/StructureDefinition/Base".equals(p.getBaseDefinition())) {
+      sd = ProfileUtilities.makeBaseDefinition(p.getFhirVersion());
+    }
+    if (sd == null) {
+      throw new DefinitionException(formatMessage(I18nConstants.PROFILE___BASE__COULD_NOT_BE_RESOLVED, p.getName(), p.getUrl(), p.getBaseDefinition()));
+    }
+    String key = null;
+    if (snapshotCache != null) {
+      try {
+        key = snapshotCache.key(p, sd, snapshotDependencies(p), ignoreProfileErrors);
+      } catch (IOException e) {
+        throw new FHIRException(e);
       }
-      pu.setXver(xverManager);
-      if (sd.getDerivation() == TypeDerivationRule.CONSTRAINT) {
-        pu.sortDifferential(sd, p, p.getUrl(), errors, true);
+      if (snapshotCache.load(p, key)) {
+        return;
       }
-      pu.setDebug(false);
-      for (String err : errors)
-        msgs.add(new ValidationMessage(Source.ProfileValidator, IssueType.EXCEPTION, p.getUserString("path"), "Error sorting Differential: "+err, ValidationMessage.IssueSeverity.ERROR));
-      pu.generateSnapshot(sd, p, p.getUrl(), Utilities.extractBaseUrl(sd.getUserString("path")), p.getName());
-      for (ValidationMessage msg : msgs) {
-        if ((!ignoreProfileErrors && msg.getLevel() == ValidationMessage.IssueSeverity.ERROR) || msg.getLevel() == ValidationMessage.IssueSeverity.FATAL)
-          throw new DefinitionException(formatMessage(I18nConstants.PROFILE___ELEMENT__ERROR_GENERATING_SNAPSHOT_, p.getName(), p.getUrl(), msg.getLocation(), msg.getMessage()));
+    }
+    List<ValidationMessage> msgs = new ArrayList<ValidationMessage>();
+    List<String> errors = new ArrayList<String>();
+    ProfileUtilities pu = new ProfileUtilities(this, msgs, this);
+    pu.setAutoFixSliceNames(true);
+    pu.setThrowException(false);
+    if (xverManager == null) {
+      xverManager = new XVerExtensionManager(this);
+    }
+    pu.setXver(xverManager);
+    if (sd.getDerivation() == TypeDerivationRule.CONSTRAINT) {
+      pu.sortDifferential(sd, p, p.getUrl(), errors, true);
+    }
+    pu.setDebug(false);
+    for (String err : errors)
+      msgs.add(new ValidationMessage(Source.ProfileValidator, IssueType.EXCEPTION, p.getUserString("path"), "Error sorting Differential: "+err, ValidationMessage.IssueSeverity.ERROR));
+    pu.generateSnapshot(sd, p, p.getUrl(), Utilities.extractBaseUrl(sd.getUserString("path")), p.getName());
+    for (ValidationMessage msg : msgs) {
+      if ((!ignoreProfileErrors && msg.getLevel() == ValidationMessage.IssueSeverity.ERROR) || msg.getLevel() == ValidationMessage.IssueSeverity.FATAL)
+        throw new DefinitionException(formatMessage(I18nConstants.PROFILE___ELEMENT__ERROR_GENERATING_SNAPSHOT_, p.getName(), p.getUrl(), msg.getLocation(), msg.getMessage()));
+    }
+    if (!p.hasSnapshot())
+      throw new FHIRException(formatMessage(I18nConstants.PROFILE___ERROR_GENERATING_SNAPSHOT, p.getName(), p.getUrl()));
+    pu = null;
+    if (snapshotCache != null) {
+      snapshotCache.save(p, key);
+    }
+  }
+
+  /**
+   * the definitions of the types and profiles that the differential of the profile refers to, which are 
+   * used when its snapshot is generated. These aren't fetched with fetchResource, so their snapshots aren't 
+   * generated here
+   */
+  private List<StructureDefinition> snapshotDependencies(StructureDefinition p) {
+    Map<String, StructureDefinition> res = new TreeMap<>();
+    for (ElementDefinition ed : p.getDifferential().getElement()) {
+      for (TypeRefComponent tr : ed.getType()) {
+        addSnapshotDependency(res, tr.getWorkingCode());
+        for (CanonicalType ct : tr.getProfile()) {
+          addSnapshotDependency(res, ct.getValue());
+        }
       }
-      if (!p.hasSnapshot())
-        throw new FHIRException(formatMessage(I18nConstants.PROFILE___ERROR_GENERATING_SNAPSHOT, p.getName(), p.getUrl()));
-      pu = null;
     }
+    return new ArrayList<>(res.values());
+  }
+
+  private void addSnapshotDependency(Map<String, StructureDefinition> res, String url) {
+    if (url == null || res.containsKey(url)) {
+      return;
+    }
+    StructureDefinition sd = fetchRawProfile(Utilities.isAbsoluteUrl(url) ? url : "http://hl7.org/fhir/StructureDefinition/"+url);
+    if (sd != null) {
+      res.put(url, sd);
+    }
+  }
+
+  public SnapshotCache getSnapshotCache() {
+    return snapshotCache;
+  }
+
+  /**
+   * If set, the snapshots generated for profiles from packages in the package cache are kept, and loaded
+   * instead of being generated again the next time the package is used
+   */
+  public void setSnapshotCache(SnapshotCache snapshotCache) {
+    this.snapshotCache = snapshotCache;
   }
 
   public boolean isIgnoreProfileErrors() {
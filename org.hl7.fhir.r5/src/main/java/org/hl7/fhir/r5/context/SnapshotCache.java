@@ -0,0 +1,183 @@
+package org.hl7.fhir.r5.context;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+
+import org.apache.commons.codec.digest.DigestUtils;
+import org.hl7.fhir.r5.formats.JsonParser;
+import org.hl7.fhir.r5.model.StructureDefinition;
+import org.hl7.fhir.utilities.TextFile;
+import org.hl7.fhir.utilities.Utilities;
+import org.hl7.fhir.utilities.npm.ToolsVersion;
+
+/**
+ * Keeps the snapshots that SimpleWorkerContext generates for profiles that come from packages in the
+ * package cache, so that they don't have to be generated again each time the package is loaded.
+ *
+ * The profiles are kept in a .snapshots folder in the folder of the package (which is named for the
+ * package id#version), in a folder for the version of the tools that generated them, one file per profile. 
+ * Each file is named for a hash of the profile as it is in the package, of its base (which includes the 
+ * hash of the base's base, and so on), of the types and profiles its differential uses, and of the settings 
+ * that change the outcome. Packages in the cache don't change, but if a profile or anything it depends 
+ * on is different (e.g. it's loaded with a different version of a base package), the hash is different, 
+ * so the snapshot is generated again, and kept in another file. A new version of the tools doesn't use 
+ * the snapshots made by an earlier one.
+ *
+ * Only the differential (as sorted) and the snapshot are taken from the file, so the user data that
+ * ProfileUtilities adds to the elements while generating the snapshot (which is only used when rendering)
+ * isn't there when the snapshot is loaded from the cache.
+ */
+public class SnapshotCache {
+
+  public static final String FOLDER = ".snapshots";
+
+  /**
+   * set on profiles loaded from a package folder: the folder of the package
+   */
+  public static final String UD_PACKAGE_FOLDER = "package.folder";
+  private static final String UD_KEY = "snapshot.key";
+  private static final String UD_SOURCE_KEY = "snapshot.source.key";
+
+  private String cacheFolder;
+  private String version;
+
+  /**
+   * @param cacheFolder - the folder of the package cache. Snapshots are only kept for packages in this folder
+   */
+  public SnapshotCache(String cacheFolder) {
+    this(cacheFolder, ToolsVersion.getBuildVersion());
+  }
+
+  /**
+   * @param cacheFolder - the folder of the package cache. Snapshots are only kept for packages in this folder
+   * @param version - the version of the code that generates the snapshots. Snapshots made by other versions aren't used
+   */
+  public SnapshotCache(String cacheFolder, String version) {
+    super();
+    this.cacheFolder = new File(cacheFolder).getAbsolutePath();
+    this.version = version.replaceAll("[^A-Za-z0-9.\\-]", "_");
+  }
+
+  /**
+   * Works out the key for the snapshot of a profile, from its content, the key of its base, the keys of the 
+   * types and profiles that its differential uses, and the settings that change how it's generated. This 
+   * must be called before the snapshot is generated (and the differential sorted), and after the base has a 
+   * snapshot
+   *
+   * @param dependencies - the definitions of the types and profiles used in the differential
+   * @param ignoreProfileErrors - whether the snapshot is kept even if there were errors generating it 
+   * @return the key, which is also kept in the user data of the profile
+   */
+  public String key(StructureDefinition profile, StructureDefinition base, List<StructureDefinition> dependencies, boolean ignoreProfileErrors) throws IOException {
+    StringBuilder b = new StringBuilder();
+    b.append(sourceKeyOf(profile));
+    b.append(keyOf(base));
+    for (StructureDefinition sd : dependencies) {
+      if (sd != profile) {
+        b.append(sourceKeyOf(sd));
+      }
+    }
+    b.append(ignoreProfileErrors);
+    String key = DigestUtils.sha256Hex(b.toString());
+    profile.setUserData(UD_KEY, key);
+    return key;
+  }
+
+  /**
+   * the key of a base, which covers its own base, and so on
+   */
+  private String keyOf(StructureDefinition sd) throws IOException {
+    synchronized (sd) {
+      String key = sd.getUserString(UD_KEY);
+      if (key == null) {
+        // a profile that came with a snapshot, or that was generated before the cache was in use
+        key = sourceKeyOf(sd);
+        sd.setUserData(UD_KEY, key);
+      }
+      return key;
+    }
+  }
+
+  /**
+   * the hash of a definition as it was loaded. Dependencies are known by this, rather than by their 
+   * key, so that the key of a profile is the same whether or not a dependency's snapshot has been 
+   * generated yet (snapshots are generated as they are needed, so not always in the same order)
+   */
+  private String sourceKeyOf(StructureDefinition sd) throws IOException {
+    synchronized (sd) {
+      String key = sd.getUserString(UD_SOURCE_KEY);
+      if (key == null) {
+        key = DigestUtils.sha256Hex(new JsonParser().composeBytes(sd));
+        sd.setUserData(UD_SOURCE_KEY, key);
+      }
+      return key;
+    }
+  }
+
+  /**
+   * Sets the differential and snapshot of the profile from the cache, if they are there
+   *
+   * @return true if the snapshot was loaded
+   */
+  public boolean load(StructureDefinition profile, String key) {
+    File f = file(profile, key);
+    if (f == null || !f.exists()) {
+      return false;
+    }
+    try {
+      InputStream stream = new FileInputStream(f);
+      try {
+        StructureDefinition cached = (StructureDefinition) new JsonParser().parse(stream);
+        profile.setDifferential(cached.getDifferential());
+        profile.setSnapshot(cached.getSnapshot());
+        return profile.hasSnapshot();
+      } finally {
+        stream.close();
+      }
+    } catch (Exception e) {
+      // if the file can't be read, the snapshot is just generated again (and the file replaced)
+      return false;
+    }
+  }
+
+  /**
+   * Keeps the generated snapshot of the profile, if it came from a package in the cache
+   */
+  public void save(StructureDefinition profile, String key) {
+    File f = file(profile, key);
+    if (f == null) {
+      return;
+    }
+    try {
+      Utilities.createDirectory(f.getParent());
+      // other processes may be using the same package, so the file is written under another name and then moved into place
+      File tmp = File.createTempFile(key, ".tmp", f.getParentFile());
+      try {
+        TextFile.bytesToFile(new JsonParser().composeBytes(profile), tmp);
+        Files.move(tmp.toPath(), f.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        tmp.delete();
+      }
+    } catch (Exception e) {
+      // the cache is only an optimisation; the snapshot will be generated again next time
+    }
+  }
+
+  private File file(StructureDefinition profile, String key) {
+    String folder = profile.getUserString(UD_PACKAGE_FOLDER);
+    if (folder == null || key == null) {
+      return null;
+    }
+    File f = new File(folder).getAbsoluteFile();
+    if (!f.getPath().startsWith(cacheFolder + File.separator)) {
+      return null;
+    }
+    return new File(new File(new File(f, FOLDER), version), key + ".json");
+  }
+
+}
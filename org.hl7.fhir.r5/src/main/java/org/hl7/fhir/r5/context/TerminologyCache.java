@@ -37,9 +37,10 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.hl7.fhir.exceptions.FHIRException;
 import org.hl7.fhir.r5.context.IWorkerContext.ValidationResult;
@@ -58,6 +59,8 @@ import org.hl7.fhir.r5.terminologies.ValueSetExpander.ValueSetExpansionOutcome;
 import org.hl7.fhir.utilities.CommaSeparatedStringBuilder;
 import org.hl7.fhir.utilities.TextFile;
 import org.hl7.fhir.utilities.Utilities;
+import org.hl7.fhir.utilities.metrics.IMetrics;
+import org.hl7.fhir.utilities.metrics.NoOpMetrics;
 import org.hl7.fhir.utilities.validation.ValidationMessage.IssueSeverity;
 import org.hl7.fhir.utilities.validation.ValidationOptions;
 
@@ -73,6 +76,9 @@ import com.google.gson.JsonPrimitive;
  *  
  * the cache is a series of pairs: a map, and a list. the map is the loaded cache, the list is the persiistent cache, carefully maintained in order for version control consistency
  * 
+ * each named cache is only read from disk when it's first used, and the responses in it are only parsed when they're asked for.
+ * New persistent entries are appended to the cache file; the file is rewritten in order once enough entries have been replaced
+ * 
  * @author graha
  *
  */
@@ -93,6 +99,62 @@ public class TerminologyCache {
       else if (!n.equals(name))
         name = NAME_FOR_NO_SYSTEM;
     }
+    public String getKey() {
+      return key;
+    }
+  }
+
+  public static class CacheStatistics {
+    private String name;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private int size;
+    private long weight;
+
+    public CacheStatistics(String name, long hits, long misses, long evictions, int size, long weight) {
+      this.name = name;
+      this.hits = hits;
+      this.misses = misses;
+      this.evictions = evictions;
+      this.size = size;
+      this.weight = weight;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public long getHits() {
+      return hits;
+    }
+
+    public long getMisses() {
+      return misses;
+    }
+
+    /**
+     * @return the number of entries that have been dropped because they expired, or to keep the cache under its weight limit
+     */
+    public long getEvictions() {
+      return evictions;
+    }
+
+    public int getSize() {
+      return size;
+    }
+
+    /**
+     * @return the weight of the transient entries in the cache
+     */
+    public long getWeight() {
+      return weight;
+    }
+
+    @Override
+    public String toString() {
+      return name+": "+size+" entries (weight "+weight+"), "+hits+" hits, "+misses+" misses, "+evictions+" evictions";
+    }
   }
 
   private class CacheEntry {
@@ -100,19 +162,39 @@ public class TerminologyCache {
     private boolean persistent;
     private ValidationResult v;
     private ValueSetExpansionOutcome e;
+    private volatile String payload; // the response as read from the cache file, until it's parsed
+    private String key;
+    private NamedCache owner;
+    private long created;
+    private long weight; // only transient entries have a weight 
+    private volatile long lastUsed;
   }
   
   private class NamedCache {
     private String name; 
     private List<CacheEntry> list = new ArrayList<CacheEntry>(); // persistent entries
-    private Map<String, CacheEntry> map = new HashMap<String, CacheEntry>();
+    private Map<String, CacheEntry> map = new ConcurrentHashMap<String, CacheEntry>();
+    private volatile boolean loaded; // whether the cache file has been read
+    private int superseded; // entries in the cache file that have been replaced by later ones
+    private boolean rewrite; // the cache file has entries that are no longer wanted 
+    private AtomicLong hits = new AtomicLong();
+    private AtomicLong misses = new AtomicLong();
+    private AtomicLong evictions = new AtomicLong();
+    private AtomicLong weight = new AtomicLong();
   }
   
+  public static final long DEFAULT_MAX_TRANSIENT_WEIGHT = 1000000;
 
   private Object lock;
   private String folder;
-  private Map<String, NamedCache> caches = new HashMap<String, NamedCache>();
+  private Map<String, NamedCache> caches = new ConcurrentHashMap<String, NamedCache>();
   private static boolean noCaching;
+  private AtomicLong ticks = new AtomicLong(); // for finding the least recently used entries
+  private AtomicLong transientWeight = new AtomicLong();
+  private long maxTransientWeight = DEFAULT_MAX_TRANSIENT_WEIGHT;
+  private long transientTimeToLive;
+  private long persistentTimeToLive;
+  private IMetrics metrics = NoOpMetrics.INSTANCE;
   
   // use lock from the context
   public TerminologyCache(Object lock, String folder) throws FileNotFoundException, IOException, FHIRException {
@@ -233,24 +315,25 @@ public class TerminologyCache {
   }
 
   public NamedCache getNamedCache(CacheToken cacheToken) {
-    NamedCache nc = caches.get(cacheToken.name);
-    if (nc == null) {
-      nc = new NamedCache();
-      nc.name = cacheToken.name;
-      caches.put(nc.name, nc);
+    NamedCache nc = caches.computeIfAbsent(cacheToken.name, n -> {
+      NamedCache c = new NamedCache();
+      c.name = n;
+      c.loaded = true;
+      return c;
+    });
+    if (!nc.loaded) {
+      synchronized (lock) {
+        if (!nc.loaded) {
+          load(nc);
+        }
+      }
     }
     return nc;
   }
   
   public ValueSetExpansionOutcome getExpansion(CacheToken cacheToken) {
-    synchronized (lock) {
-      NamedCache nc = getNamedCache(cacheToken);
-      CacheEntry e = nc.map.get(cacheToken.key);
-      if (e == null)
-        return null;
-      else
-        return e.e;
-    }
+    CacheEntry e = lookup(cacheToken);
+    return e == null ? null : e.e;
   }
 
   public void cacheExpansion(CacheToken cacheToken, ValueSetExpansionOutcome res, boolean persistent) {
@@ -264,34 +347,136 @@ public class TerminologyCache {
     }    
   }
 
+  /**
+   * find the entry for the token, if there is one and it hasn't expired. This doesn't
+   * need the lock - only changes to the persistent entries do (including dropping an expired one)
+   */
+  private CacheEntry lookup(CacheToken cacheToken) {
+    NamedCache nc = getNamedCache(cacheToken);
+    CacheEntry e = nc.map.get(cacheToken.key);
+    if (e != null && isExpired(e)) {
+      if (e.persistent) {
+        synchronized (lock) {
+          if (nc.map.remove(cacheToken.key, e)) {
+            // it's still in the cache file until the file is next compacted
+            nc.list.remove(e);
+            nc.superseded++;
+            nc.evictions.incrementAndGet();
+          }
+        }
+      } else if (nc.map.remove(cacheToken.key, e)) {
+        release(e);
+        nc.evictions.incrementAndGet();
+      }
+      e = null;
+    }
+    if (e == null) {
+      nc.misses.incrementAndGet();
+      metrics.count(IMetrics.TX_CACHE_MISS, nc.name);
+      return null;
+    }
+    nc.hits.incrementAndGet();
+    metrics.count(IMetrics.TX_CACHE_HIT, nc.name);
+    e.lastUsed = ticks.incrementAndGet();
+    if (e.payload != null) {
+      synchronized (e) {
+        if (e.payload != null)
+          parse(nc, e);
+      }
+    }
+    return e;
+  }
+
+  private boolean isExpired(CacheEntry e) {
+    long ttl = e.persistent ? persistentTimeToLive : transientTimeToLive;
+    return ttl > 0 && System.currentTimeMillis() - e.created > ttl;
+  }
+
   public void store(CacheToken cacheToken, boolean persistent, NamedCache nc, CacheEntry e) {
     if (noCaching) {
       return;
     }
-    boolean n = nc.map.containsKey(cacheToken.key);
-    nc.map.put(cacheToken.key, e);
+    e.key = cacheToken.key;
+    e.owner = nc;
+    e.created = System.currentTimeMillis();
+    e.lastUsed = ticks.incrementAndGet();
+    e.weight = persistent ? 0 : weigh(e);
+    nc.weight.addAndGet(e.weight);
+    transientWeight.addAndGet(e.weight);
+    CacheEntry old = nc.map.put(cacheToken.key, e);
+    if (old != null) {
+      release(old);
+    }
     if (persistent) {
-      if (n) {
-        for (int i = nc.list.size()- 1; i>= 0; i--) {
-          if (nc.list.get(i).request.equals(e.request)) {
-            nc.list.remove(i);
-          }
-        }
+      if (old != null) {
+        removeFromList(nc, e.request);
       }
       nc.list.add(e);
-      save(nc);  
+      // the replaced entries stay in the file until there's enough of them to be worth compacting
+      if (nc.rewrite || nc.superseded * 4 > nc.list.size()) {
+        save(nc);
+      } else {
+        append(nc, e);
+      }
+    } else if (maxTransientWeight > 0 && transientWeight.get() > maxTransientWeight) {
+      evict();
     }
   }
 
-  public ValidationResult getValidation(CacheToken cacheToken) {
-    synchronized (lock) {
-      NamedCache nc = getNamedCache(cacheToken);
-      CacheEntry e = nc.map.get(cacheToken.key);
-      if (e == null)
-        return null;
-      else
-        return e.v;
+  /**
+   * a validation counts for 1; an expansion for 1 + the number of codes in it
+   */
+  private long weigh(CacheEntry e) {
+    if (e.e != null && e.e.getValueset() != null && e.e.getValueset().hasExpansion()) {
+      return 1 + countContains(e.e.getValueset().getExpansion().getContains());
     }
+    return 1;
+  }
+
+  private long countContains(List<ValueSetExpansionContainsComponent> list) {
+    long res = list.size();
+    for (ValueSetExpansionContainsComponent cc : list) {
+      if (cc.hasContains()) {
+        res = res + countContains(cc.getContains());
+      }
+    }
+    return res;
+  }
+
+  private void release(CacheEntry e) {
+    e.owner.weight.addAndGet(-e.weight);
+    transientWeight.addAndGet(-e.weight);
+  }
+
+  /**
+   * drop the least recently used transient entries until the total weight is back to 90% of the limit.
+   * Persistent entries are never evicted this way, since they are what's in the cache files
+   */
+  private void evict() {
+    List<CacheEntry> candidates = new ArrayList<>();
+    for (NamedCache nc : caches.values()) {
+      for (CacheEntry e : nc.map.values()) {
+        if (!e.persistent) {
+          candidates.add(e);
+        }
+      }
+    }
+    candidates.sort((e1, e2) -> Long.compare(e1.lastUsed, e2.lastUsed));
+    long target = maxTransientWeight / 10 * 9;
+    for (CacheEntry e : candidates) {
+      if (transientWeight.get() <= target) {
+        break;
+      }
+      if (e.owner.map.remove(e.key, e)) {
+        release(e);
+        e.owner.evictions.incrementAndGet();
+      }
+    }
+  }
+
+  public ValidationResult getValidation(CacheToken cacheToken) {
+    CacheEntry e = lookup(cacheToken);
+    return e == null ? null : e.v;
   }
 
   public void cacheValidation(CacheToken cacheToken, ValidationResult res, boolean persistent) {
@@ -305,11 +490,78 @@ public class TerminologyCache {
     }    
   }
 
+  /**
+   * @return the hit, miss and eviction counts for each of the named caches (by code system) that have been used
+   */
+  public List<CacheStatistics> getStatistics() {
+    List<CacheStatistics> res = new ArrayList<>();
+    for (NamedCache nc : caches.values()) {
+      if (nc.loaded) {
+        res.add(new CacheStatistics(nc.name, nc.hits.get(), nc.misses.get(), nc.evictions.get(), nc.map.size(), nc.weight.get()));
+      }
+    }
+    res.sort((s1, s2) -> s1.getName().compareTo(s2.getName()));
+    return res;
+  }
+
+  public IMetrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * @param metrics where the hits and misses are counted (by named cache), as well as in the statistics
+   */
+  public void setMetrics(IMetrics metrics) {
+    this.metrics = metrics == null ? NoOpMetrics.INSTANCE : metrics;
+  }
+
+  public long getMaxTransientWeight() {
+    return maxTransientWeight;
+  }
+
+  /**
+   * @param maxTransientWeight the total weight of transient entries to keep, across all the named caches. 0 for no limit
+   */
+  public void setMaxTransientWeight(long maxTransientWeight) {
+    this.maxTransientWeight = maxTransientWeight;
+  }
+
+  public long getTransientTimeToLive() {
+    return transientTimeToLive;
+  }
+
+  /**
+   * @param transientTimeToLive how long (in milliseconds) transient entries are used for. 0 for no limit
+   */
+  public void setTransientTimeToLive(long transientTimeToLive) {
+    this.transientTimeToLive = transientTimeToLive;
+  }
+
+  public long getPersistentTimeToLive() {
+    return persistentTimeToLive;
+  }
+
+  /**
+   * @param persistentTimeToLive how long (in milliseconds) persistent entries are used for, after they are loaded or stored. 0 for no limit
+   */
+  public void setPersistentTimeToLive(long persistentTimeToLive) {
+    this.persistentTimeToLive = persistentTimeToLive;
+  }
+
   
   // persistence
   
+  /**
+   * rewrite any cache files that have accumulated superseded entries
+   */
   public void save() {
-    
+    synchronized (lock) {
+      for (NamedCache nc : caches.values()) {
+        if (nc.loaded && nc.superseded > 0) {
+          save(nc);
+        }
+      }
+    }
   }
   
   private void save(NamedCache nc) {
@@ -322,74 +574,144 @@ public class TerminologyCache {
       JsonParser json = new JsonParser();
       json.setOutputStyle(OutputStyle.PRETTY);
       for (CacheEntry ce : nc.list) {
-        sw.write(ce.request.trim());
-        sw.write(BREAK+"\r\n");
-        if (ce.e != null) {
-          sw.write("e: {\r\n");
-          if (ce.e.getValueset() != null)
-            sw.write("  \"valueSet\" : "+json.composeString(ce.e.getValueset()).trim()+",\r\n");
-          sw.write("  \"error\" : \""+Utilities.escapeJson(ce.e.getError()).trim()+"\"\r\n}\r\n");
-        } else {
-          sw.write("v: {\r\n");
-          sw.write("  \"display\" : \""+Utilities.escapeJson(ce.v.getDisplay()).trim()+"\",\r\n");
-          sw.write("  \"severity\" : "+(ce.v.getSeverity() == null ? "null" : "\""+ce.v.getSeverity().toCode().trim()+"\"")+",\r\n");
-          sw.write("  \"error\" : \""+Utilities.escapeJson(ce.v.getMessage()).trim()+"\"\r\n}\r\n");
-        }
-        sw.write(ENTRY_MARKER+"\r\n");
+        writeEntry(sw, json, ce);
       }      
       sw.close();
+      nc.superseded = 0;
+      nc.rewrite = false;
+    } catch (Exception e) {
+      System.out.println("error saving "+nc.name+": "+e.getMessage());
+    }
+  }
+
+  /**
+   * add a new entry to the end of the cache file, instead of writing the whole file again
+   */
+  private void append(NamedCache nc, CacheEntry ce) {
+    if (folder == null)
+      return;
+    
+    try {
+      File f = new File(Utilities.path(folder, nc.name+".cache"));
+      boolean exists = f.exists() && f.length() > 0;
+      OutputStreamWriter sw = new OutputStreamWriter(new FileOutputStream(f, true), "UTF-8");
+      if (!exists)
+        sw.write(ENTRY_MARKER+"\r\n");
+      JsonParser json = new JsonParser();
+      json.setOutputStyle(OutputStyle.PRETTY);
+      writeEntry(sw, json, ce);
+      sw.close();
     } catch (Exception e) {
       System.out.println("error saving "+nc.name+": "+e.getMessage());
     }
   }
 
+  private void writeEntry(OutputStreamWriter sw, JsonParser json, CacheEntry ce) throws IOException {
+    sw.write(ce.request.trim());
+    sw.write(BREAK+"\r\n");
+    if (ce.payload != null) {
+      // never been used since it was loaded, so write it back as it was read
+      sw.write(ce.payload+"\r\n");
+    } else if (ce.e != null) {
+      sw.write("e: {\r\n");
+      if (ce.e.getValueset() != null)
+        sw.write("  \"valueSet\" : "+json.composeString(ce.e.getValueset()).trim()+",\r\n");
+      sw.write("  \"error\" : \""+Utilities.escapeJson(ce.e.getError()).trim()+"\"\r\n}\r\n");
+    } else {
+      sw.write("v: {\r\n");
+      sw.write("  \"display\" : \""+Utilities.escapeJson(ce.v.getDisplay()).trim()+"\",\r\n");
+      sw.write("  \"severity\" : "+(ce.v.getSeverity() == null ? "null" : "\""+ce.v.getSeverity().toCode().trim()+"\"")+",\r\n");
+      sw.write("  \"error\" : \""+Utilities.escapeJson(ce.v.getMessage()).trim()+"\"\r\n}\r\n");
+    }
+    sw.write(ENTRY_MARKER+"\r\n");
+  }
+
+  /**
+   * just note which caches exist. Each one is read the first time it's used
+   */
   private void load() throws FHIRException {
     for (String fn : new File(folder).list()) {
       if (fn.endsWith(".cache") && !fn.equals("validation.cache")) {
-        try {
-          String title = fn.substring(0, fn.lastIndexOf("."));
-          NamedCache nc = new NamedCache();
-          nc.name = title;
-          caches.put(title, nc);
-          String src = TextFile.fileToString(Utilities.path(folder, fn));
-          if (src.startsWith("?"))
-            src = src.substring(1);
-          int i = src.indexOf(ENTRY_MARKER); 
-          while (i > -1) {
-            String s = src.substring(0, i);
-            src = src.substring(i+ENTRY_MARKER.length()+1);
-            i = src.indexOf(ENTRY_MARKER);
-            if (!Utilities.noString(s)) {
-              int j = s.indexOf(BREAK);
-              String q = s.substring(0, j);
-              String p = s.substring(j+BREAK.length()+1).trim();
-              CacheEntry ce = new CacheEntry();
-              ce.persistent = true;
-              ce.request = q;
-              boolean e = p.charAt(0) == 'e';
-              p = p.substring(3);
-              JsonObject o = (JsonObject) new com.google.gson.JsonParser().parse(p);
-              String error = loadJS(o.get("error"));
-              if (e) {
-                if (o.has("valueSet"))
-                  ce.e = new ValueSetExpansionOutcome((ValueSet) new JsonParser().parse(o.getAsJsonObject("valueSet")), error, TerminologyServiceErrorClass.UNKNOWN);
-                else
-                  ce.e = new ValueSetExpansionOutcome(error, TerminologyServiceErrorClass.UNKNOWN);
-              } else {
-                IssueSeverity severity = o.get("severity") instanceof JsonNull ? null :  IssueSeverity.fromCode(o.get("severity").getAsString());
-                String display = loadJS(o.get("display"));
-                ce.v = new ValidationResult(severity, error, new ConceptDefinitionComponent().setDisplay(display));
-              }
-              nc.map.put(String.valueOf(hashNWS(ce.request)), ce);
-              nc.list.add(ce);
-            }
-          }        
-        } catch (Exception e) {
-          throw new FHIRException("Error loading "+fn+": "+e.getMessage(), e);
+        String title = fn.substring(0, fn.lastIndexOf("."));
+        NamedCache nc = new NamedCache();
+        nc.name = title;
+        caches.put(title, nc);
+      }
+    }
+  }
+
+  /**
+   * read the entries in the cache file. Only the requests are looked at here; the responses
+   * are parsed when they are first asked for
+   */
+  private void load(NamedCache nc) throws FHIRException {
+    String fn = nc.name+".cache";
+    try {
+      String src = TextFile.fileToString(Utilities.path(folder, fn));
+      int start = src.startsWith("?") ? 1 : 0;
+      int i = src.indexOf(ENTRY_MARKER, start); 
+      while (i > -1) {
+        String s = src.substring(start, i);
+        start = i+ENTRY_MARKER.length()+1;
+        i = src.indexOf(ENTRY_MARKER, start);
+        if (!Utilities.noString(s)) {
+          int j = s.indexOf(BREAK);
+          CacheEntry ce = new CacheEntry();
+          ce.persistent = true;
+          ce.request = s.substring(0, j);
+          ce.payload = s.substring(j+BREAK.length()+1).trim();
+          String key = String.valueOf(hashNWS(ce.request));
+          ce.key = key;
+          ce.owner = nc;
+          ce.created = System.currentTimeMillis();
+          if (nc.map.containsKey(key)) {
+            // appended later to replace an earlier entry
+            removeFromList(nc, ce.request);
+          }
+          nc.map.put(key, ce);
+          nc.list.add(ce);
         }
+      }        
+    } catch (Exception e) {
+      throw new FHIRException("Error loading "+fn+": "+e.getMessage(), e);
+    } finally {
+      nc.loaded = true;
+    }
+  }
+
+  private void removeFromList(NamedCache nc, String request) {
+    // requests read back from the file don't keep the same surrounding whitespace
+    request = request.trim();
+    for (int i = nc.list.size()- 1; i>= 0; i--) {
+      if (nc.list.get(i).request.trim().equals(request)) {
+        nc.list.remove(i);
+        nc.superseded++;
       }
     }
   }
+
+  private void parse(NamedCache nc, CacheEntry ce) throws FHIRException {
+    String p = ce.payload;
+    try {
+      boolean e = p.charAt(0) == 'e';
+      p = p.substring(3);
+      JsonObject o = (JsonObject) new com.google.gson.JsonParser().parse(p);
+      String error = loadJS(o.get("error"));
+      if (e) {
+        if (o.has("valueSet"))
+          ce.e = new ValueSetExpansionOutcome((ValueSet) new JsonParser().parse(o.getAsJsonObject("valueSet")), error, TerminologyServiceErrorClass.UNKNOWN);
+        else
+          ce.e = new ValueSetExpansionOutcome(error, TerminologyServiceErrorClass.UNKNOWN);
+      } else {
+        IssueSeverity severity = o.get("severity") instanceof JsonNull ? null :  IssueSeverity.fromCode(o.get("severity").getAsString());
+        String display = loadJS(o.get("display"));
+        ce.v = new ValidationResult(severity, error, new ConceptDefinitionComponent().setDisplay(display));
+      }
+      ce.payload = null;
+    } catch (Exception e) {
+      throw new FHIRException("Error loading "+nc.name+".cache: "+e.getMessage(), e);
+    }
+  }
   
   private String loadJS(JsonElement e) {
     if (e == null)
@@ -475,7 +797,15 @@ public class TerminologyCache {
     synchronized (lock) {
       String name = getNameForSystem(url);
       if (caches.containsKey(name)) {
-        caches.remove(name);
+        // start again, and replace the cache file when something new is stored
+        NamedCache nc = new NamedCache();
+        nc.name = name;
+        nc.loaded = true;
+        nc.rewrite = true;
+        NamedCache old = caches.put(name, nc);
+        for (CacheEntry e : old.map.values()) {
+          release(e);
+        }
       }
     }   
   }
@@ -31,11 +31,14 @@ package org.hl7.fhir.r5.elementmodel;
 
 
 
+import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.util.HashSet;
 import java.util.IdentityHashMap;
 import java.util.List;
@@ -128,6 +131,71 @@ public class JsonParser extends ParserBase {
 		}
 	}
 
+  /**
+   * Parse a Bundle without holding all of it in memory: each entry is passed to the handler as soon as it 
+   * has been read, and then dropped. Note that the other properties of the bundle may not have been read 
+   * when the entries are handled
+   * 
+   * @return the bundle, without its entries
+   */
+  public Element parseBundle(InputStream stream, IStreamedResourceHandler handler) throws IOException, FHIRException {
+    StructureDefinition sd = getDefinition(-1, -1, "Bundle");
+    if (sd == null)
+      return null;
+    Property entryProperty = new Property(context, sd.getSnapshot().getElement().get(0), sd, this.profileUtilities).getChild("Bundle", "entry");
+    Map<JsonElement, LocationData> rootMap = policy == ValidationPolicy.EVERYTHING ? new IdentityHashMap<JsonElement, LocationData>() : null;
+    JsonObject obj = null;
+    try {
+      obj = JsonTrackingParser.parseStreaming(new InputStreamReader(stream, StandardCharsets.UTF_8), "entry", (item, itemMap, index) -> {
+        map = itemMap;
+        String path = "Bundle.entry["+index+"]";
+        Element entry = new Element("entry", entryProperty).markLocation(line(item), col(item));
+        checkObject(item, path);
+        parseChildren(path, item, entry, false);
+        entry.numberChildren();
+        handler.handleResource(index, entry, entry.getNamedChild("resource"));
+      }, rootMap, false, allowComments);
+    } catch (IOException e) {
+      if (policy != ValidationPolicy.EVERYTHING)
+        throw e;
+      logError(-1, -1,context.formatMessage(I18nConstants.DOCUMENT), IssueType.INVALID, context.formatMessage(I18nConstants.ERROR_PARSING_JSON_, e.getMessage()), IssueSeverity.FATAL);
+      return null;
+    }
+    map = rootMap;
+    Element result = parse(obj);
+    if (result != null && !"Bundle".equals(result.fhirType())) {
+      logError(line(obj), col(obj), result.fhirType(), IssueType.INVALID, "The resource is a "+result.fhirType()+", not a Bundle", IssueSeverity.FATAL);
+      return null;
+    }
+    return result;
+  }
+
+  /**
+   * Parse NDJSON (one resource on each line), passing each resource to the handler as soon as it has been read
+   */
+  public void parseNDJson(InputStream stream, IStreamedResourceHandler handler) throws IOException, FHIRException {
+    BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8));
+    int line = 0;
+    int index = 0;
+    String source;
+    while ((source = reader.readLine()) != null) {
+      line++;
+      if (!Utilities.noString(source.trim())) {
+        map = policy == ValidationPolicy.EVERYTHING ? new IdentityHashMap<JsonElement, LocationData>() : null;
+        Element resource = null;
+        try {
+          resource = parse(JsonTrackingParser.parse(source, map, false, allowComments, line));
+        } catch (IOException e) {
+          if (policy != ValidationPolicy.EVERYTHING)
+            throw e;
+          logError(line, 1, context.formatMessage(I18nConstants.DOCUMENT), IssueType.INVALID, context.formatMessage(I18nConstants.ERROR_PARSING_JSON_, e.getMessage()), IssueSeverity.FATAL);
+        }
+        handler.handleResource(index, null, resource);
+        index++;
+      }
+    }
+  }
+
 	public Element parse(JsonObject object, Map<JsonElement, LocationData> map) throws FHIRException {
 		this.map = map;
 		return parse(object);
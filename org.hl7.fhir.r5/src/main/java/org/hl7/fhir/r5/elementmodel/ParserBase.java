@@ -62,6 +62,18 @@ public abstract class ParserBase {
   
   public enum ValidationPolicy { NONE, QUICK, EVERYTHING }
 
+  /**
+   * Receives the resources from a streaming parse, one at a time, as soon as each has been read
+   */
+  public interface IStreamedResourceHandler {
+    /**
+     * @param index - the position of the entry in the bundle, or of the resource in the NDJSON
+     * @param entry - the Bundle.entry that contains the resource (null for NDJSON)
+     * @param resource - the resource (null if the entry doesn't have one, or it couldn't be parsed)
+     */
+    void handleResource(int index, Element entry, Element resource) throws FHIRException;
+  }
+
   public boolean isPrimitive(String code) {
     return Utilities.existsInList(code, "boolean", "integer", "integer64", "string", "decimal", "uri", "base64Binary", "instant", "date", "dateTime", "time", "code", "oid", "id", "markdown", "unsignedInt", "positiveInt", "xhtml", "url", "canonical");
     
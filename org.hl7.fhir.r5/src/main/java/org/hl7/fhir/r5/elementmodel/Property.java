@@ -32,7 +32,9 @@ package org.hl7.fhir.r5.elementmodel;
 
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.function.Supplier;
 
 import org.hl7.fhir.exceptions.DefinitionException;
 import org.hl7.fhir.exceptions.FHIRException;
@@ -287,6 +289,29 @@ public class Property {
 
 
   protected List<Property> getChildProperties(String elementName, String statedType) throws FHIRException {
+    // the element name only matters for choice elements, but it's the same for every other use of the definition anyway
+    return getCachedChildProperties("name:"+elementName+"|"+statedType, () -> buildChildProperties(elementName, statedType));
+  }
+
+  protected List<Property> getChildProperties(TypeDetails type) throws DefinitionException {
+    return getCachedChildProperties("type:"+(type == null ? null : type.getType()), () -> buildChildProperties(type));
+  }
+
+  private List<Property> getCachedChildProperties(String key, Supplier<List<Property>> builder) {
+    PropertyCache cache = context.getPropertyCache();
+    if (cache == null) {
+      return builder.get();
+    }
+    List<Property> properties = cache.get(structure, definition, key);
+    if (properties == null) {
+      int generation = cache.getGeneration();
+      properties = Collections.unmodifiableList(builder.get());
+      cache.put(structure, definition, key, properties, generation);
+    }
+    return properties;
+  }
+
+  private List<Property> buildChildProperties(String elementName, String statedType) throws FHIRException {
     ElementDefinition ed = definition;
     StructureDefinition sd = structure;
     List<ElementDefinition> children = profileUtilities.getChildMap(sd, ed);
@@ -364,7 +389,7 @@ public class Property {
     return properties;
   }
 
-  protected List<Property> getChildProperties(TypeDetails type) throws DefinitionException {
+  private List<Property> buildChildProperties(TypeDetails type) throws DefinitionException {
     ElementDefinition ed = definition;
     StructureDefinition sd = structure;
     List<ElementDefinition> children = profileUtilities.getChildMap(sd, ed);
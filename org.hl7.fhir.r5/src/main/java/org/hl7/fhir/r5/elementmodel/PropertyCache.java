@@ -0,0 +1,111 @@
+package org.hl7.fhir.r5.elementmodel;
+
+/*
+  Copyright (c) 2011+, HL7, Inc.
+  All rights reserved.
+  
+  Redistribution and use in source and binary forms, with or without modification, 
+  are permitted provided that the following conditions are met:
+    
+   * Redistributions of source code must retain the above copyright notice, this 
+     list of conditions and the following disclaimer.
+   * Redistributions in binary form must reproduce the above copyright notice, 
+     this list of conditions and the following disclaimer in the documentation 
+     and/or other materials provided with the distribution.
+   * Neither the name of HL7 nor the names of its contributors may be used to 
+     endorse or promote products derived from this software without specific 
+     prior written permission.
+  
+  THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS" AND 
+  ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE IMPLIED 
+  WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE ARE DISCLAIMED. 
+  IN NO EVENT SHALL THE COPYRIGHT HOLDER OR CONTRIBUTORS BE LIABLE FOR ANY DIRECT, 
+  INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR CONSEQUENTIAL DAMAGES (INCLUDING, BUT 
+  NOT LIMITED TO, PROCUREMENT OF SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR 
+  PROFITS; OR BUSINESS INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, 
+  WHETHER IN CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE) 
+  ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE 
+  POSSIBILITY OF SUCH DAMAGE.
+  
+ */
+
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.hl7.fhir.r5.model.ElementDefinition;
+import org.hl7.fhir.r5.model.StructureDefinition;
+
+/**
+ * The child properties that Property.getChildProperties works out for each element definition (and 
+ * type, where the element has a choice of types). Each worker context keeps one of these, so the lists 
+ * are shared by all the parsers that use the context, and the context clears it whenever a 
+ * StructureDefinition is added or dropped
+ * 
+ * The lists are unmodifiable, since they are handed out to everyone
+ */
+public class PropertyCache {
+
+  private static class Key {
+    private final StructureDefinition structure;
+    private final ElementDefinition definition;
+    private final String type;
+
+    private Key(StructureDefinition structure, ElementDefinition definition, String type) {
+      this.structure = structure;
+      this.definition = definition;
+      this.type = type;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof Key)) {
+        return false;
+      }
+      Key other = (Key) obj;
+      return structure == other.structure && definition == other.definition && Objects.equals(type, other.type);
+    }
+
+    @Override
+    public int hashCode() {
+      return System.identityHashCode(definition) * 31 + (type == null ? 0 : type.hashCode());
+    }
+  }
+
+  private final Map<Key, List<Property>> cache = new ConcurrentHashMap<>();
+  private volatile int generation;
+
+  public List<Property> get(StructureDefinition structure, ElementDefinition definition, String type) {
+    return cache.get(new Key(structure, definition, type));
+  }
+
+  /**
+   * @return a token to pass to put, so that a list worked out before the cache was cleared isn't kept
+   */
+  public int getGeneration() {
+    return generation;
+  }
+
+  public void put(StructureDefinition structure, ElementDefinition definition, String type, List<Property> properties, int generation) {
+    if (generation == this.generation) {
+      Key key = new Key(structure, definition, type);
+      cache.put(key, properties);
+      if (generation != this.generation) {
+        // cleared while we were adding it
+        cache.remove(key, properties);
+      }
+    }
+  }
+
+  public synchronized void clear() {
+    generation++;
+    cache.clear();
+  }
+
+  public int size() {
+    return cache.size();
+  }
+
+}
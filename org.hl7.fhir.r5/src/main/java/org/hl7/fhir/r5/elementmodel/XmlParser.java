@@ -40,8 +40,14 @@ import java.util.List;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
+import javax.xml.stream.Location;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMResult;
@@ -153,6 +159,139 @@ public class XmlParser extends ParserBase {
       return parse(doc);
   }
 
+  /**
+   * Parse a Bundle without holding all of it in memory: each entry is read into a DOM of its own, passed to the 
+   * handler as soon as it has been read, and then dropped. Note that the other children of the bundle may not 
+   * have been read when the entries are handled
+   * 
+   * @return the bundle, without its entries
+   */
+  public Element parseBundle(InputStream stream, IStreamedResourceHandler handler) throws IOException, FHIRException {
+    StructureDefinition sd = getDefinition(0, 0, FormatUtilities.FHIR_NS, "Bundle");
+    if (sd == null)
+      return null;
+    Property entryProperty = new Property(context, sd.getSnapshot().getElement().get(0), sd).getChild("Bundle", "entry");
+    org.w3c.dom.Element bundle = null;
+    try {
+      XMLInputFactory factory = XMLInputFactory.newInstance();
+      // xxe protection
+      factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+      factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+      factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+      XMLStreamReader reader = factory.createXMLStreamReader(stream);
+      try {
+        if (policy == ValidationPolicy.EVERYTHING) {
+          version = reader.getVersion();
+        }
+        DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+        dbf.setNamespaceAware(true);
+        Document doc = dbf.newDocumentBuilder().newDocument();
+      
+        boolean hasPI = false;
+        while (reader.hasNext() && reader.next() != XMLStreamConstants.START_ELEMENT) {
+          hasPI = hasPI || reader.getEventType() == XMLStreamConstants.PROCESSING_INSTRUCTION;
+        }
+        if (reader.getEventType() != XMLStreamConstants.START_ELEMENT) {
+          throw new XMLStreamException("No content found");
+        }
+        bundle = startElement(reader, doc);
+        doc.appendChild(bundle);
+        if (!"Bundle".equals(bundle.getLocalName()) || !FormatUtilities.FHIR_NS.equals(bundle.getNamespaceURI())) {
+          logError(line(bundle), col(bundle), "/"+pathPrefix(bundle.getNamespaceURI())+bundle.getLocalName(), IssueType.INVALID, "The resource is a "+bundle.getLocalName()+", not a Bundle", IssueSeverity.FATAL);
+          return null;
+        }
+        if (hasPI && policy == ValidationPolicy.EVERYTHING) {
+          logError(line(bundle), col(bundle), "(document)", IssueType.INVALID, context.formatMessage(I18nConstants.NO_PROCESSING_INSTRUCTIONS_ALLOWED_IN_RESOURCES), IssueSeverity.ERROR);
+        }
+      
+        int index = 0;
+        while (reader.next() != XMLStreamConstants.END_ELEMENT) {
+          if (reader.getEventType() == XMLStreamConstants.START_ELEMENT) {
+            org.w3c.dom.Element child = readElement(reader, doc);
+            bundle.appendChild(child);
+            if ("entry".equals(child.getLocalName()) && FormatUtilities.FHIR_NS.equals(child.getNamespaceURI())) {
+              String path = "/f:Bundle/f:entry";
+              Element entry = new Element("entry", entryProperty).markLocation(line(child), col(child));
+              checkElement(child, path, entryProperty);
+              parseChildren(path, child, entry);
+              entry.numberChildren();
+              // the comments before the entry stay, but are small
+              bundle.removeChild(child);
+              handler.handleResource(index, entry, entry.getNamedChild("resource"));
+              index++;
+            }
+          } else {
+            readNode(reader, doc, bundle);
+          }
+        }
+        endElement(reader, bundle);
+      } finally {
+        reader.close();
+      }
+    } catch (XMLStreamException | ParserConfigurationException e) {
+      logError(0, 0, "(syntax)", IssueType.INVALID, e.getMessage(), IssueSeverity.FATAL);
+      return null;
+    }
+    return parse(bundle);
+  }
+
+  private org.w3c.dom.Element readElement(XMLStreamReader reader, Document doc) throws XMLStreamException {
+    org.w3c.dom.Element element = startElement(reader, doc);
+    while (reader.next() != XMLStreamConstants.END_ELEMENT) {
+      if (reader.getEventType() == XMLStreamConstants.START_ELEMENT) {
+        element.appendChild(readElement(reader, doc));
+      } else {
+        readNode(reader, doc, element);
+      }
+    }
+    endElement(reader, element);
+    return element;
+  }
+
+  private org.w3c.dom.Element startElement(XMLStreamReader reader, Document doc) {
+    org.w3c.dom.Element element = doc.createElementNS(reader.getNamespaceURI(), qName(reader.getPrefix(), reader.getLocalName()));
+    for (int i = 0; i < reader.getNamespaceCount(); i++) {
+      String prefix = reader.getNamespacePrefix(i);
+      element.setAttributeNS("http://www.w3.org/2000/xmlns/", Utilities.noString(prefix) ? "xmlns" : "xmlns:"+prefix, reader.getNamespaceURI(i));
+    }
+    for (int i = 0; i < reader.getAttributeCount(); i++) {
+      String ns = reader.getAttributeNamespace(i);
+      element.setAttributeNS(Utilities.noString(ns) ? null : ns, qName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)), reader.getAttributeValue(i));
+    }
+    Location loc = reader.getLocation();
+    element.setUserData(XmlLocationData.LOCATION_DATA_KEY, new XmlLocationData(loc.getSystemId(), loc.getLineNumber(), loc.getColumnNumber(), loc.getLineNumber(), loc.getColumnNumber()), null);
+    return element;
+  }
+
+  private void endElement(XMLStreamReader reader, org.w3c.dom.Element element) {
+    XmlLocationData start = (XmlLocationData) element.getUserData(XmlLocationData.LOCATION_DATA_KEY);
+    Location loc = reader.getLocation();
+    element.setUserData(XmlLocationData.LOCATION_DATA_KEY, new XmlLocationData(start.getSystemId(), start.getStartLine(), start.getStartColumn(), loc.getLineNumber(), loc.getColumnNumber()), null);
+  }
+
+  private void readNode(XMLStreamReader reader, Document doc, org.w3c.dom.Element parent) {
+    switch (reader.getEventType()) {
+    case XMLStreamConstants.CHARACTERS:
+    case XMLStreamConstants.SPACE:
+      parent.appendChild(doc.createTextNode(reader.getText()));
+      break;
+    case XMLStreamConstants.CDATA:
+      parent.appendChild(doc.createCDATASection(reader.getText()));
+      break;
+    case XMLStreamConstants.COMMENT:
+      parent.appendChild(doc.createComment(reader.getText()));
+      break;
+    case XMLStreamConstants.PROCESSING_INSTRUCTION:
+      parent.appendChild(doc.createProcessingInstruction(reader.getPITarget(), reader.getPIData()));
+      break;
+    default:
+      // nothing else can appear inside an element
+    }
+  }
+
+  private String qName(String prefix, String localName) {
+    return Utilities.noString(prefix) ? localName : prefix+":"+localName;
+  }
 
   private void checkForProcessingInstruction(Document document) throws FHIRFormatError {
     if (policy == ValidationPolicy.EVERYTHING && FormatUtilities.FHIR_NS.equals(document.getDocumentElement().getNamespaceURI())) {
@@ -39,6 +39,7 @@ import java.util.Map;
 import org.hl7.fhir.exceptions.FHIRException;
 import org.hl7.fhir.exceptions.NoTerminologyServiceException;
 import org.hl7.fhir.r5.context.IWorkerContext;
+import org.hl7.fhir.r5.context.IWorkerContext.CodingValidationRequest;
 import org.hl7.fhir.r5.context.IWorkerContext.ValidationResult;
 import org.hl7.fhir.r5.model.CanonicalType;
 import org.hl7.fhir.r5.model.CodeSystem;
@@ -490,6 +491,40 @@ public class ValueSetCheckerSimple implements ValueSetChecker {
     return result;
   }
 
+  /**
+   * The checks that codeInValueSet asks the terminology server about, one at a time, for the code: one for each 
+   * include or exclude of the code system, if it isn't available here. These can be validated beforehand with
+   * validateCodeBatch, so that the results are already in the cache when the value set is checked
+   */
+  public List<CodingValidationRequest> getServerMembershipChecks(String system, String code) {
+    List<CodingValidationRequest> res = new ArrayList<>();
+    if (valueset == null || valueset.hasExpansion() || system == null) {
+      return res;
+    }
+    CodeSystem cs = context.fetchCodeSystem(system);
+    if (cs == null || (cs.getContent() != CodeSystemContentMode.COMPLETE && cs.getContent() != CodeSystemContentMode.FRAGMENT)) {
+      List<ConceptSetComponent> list = new ArrayList<>(valueset.getCompose().getInclude());
+      list.addAll(valueset.getCompose().getExclude());
+      for (ConceptSetComponent vsi : list) {
+        if (system.equals(vsi.getSystem())) {
+          res.add(new CodingValidationRequest(new Coding(system, code, null), options.noClient(), transientValueSet(vsi)));
+        }
+      }
+    }
+    return res;
+  }
+
+  /**
+   * a value set with just the include, so the server can be asked about it 
+   */
+  private ValueSet transientValueSet(ConceptSetComponent vsi) {
+    ValueSet vs = new ValueSet();
+    vs.setStatus(PublicationStatus.ACTIVE);
+    vs.setUrl(Utilities.makeUuidUrn());
+    vs.getCompose().addInclude(vsi);
+    return vs;
+  }
+
   private Boolean inComponent(ConceptSetComponent vsi, String system, String code, boolean only) throws FHIRException {
     for (UriType uri : vsi.getValueSet()) {
       if (inImport(uri.getValue(), system, code)) {
@@ -514,12 +549,7 @@ public class ValueSetCheckerSimple implements ValueSetChecker {
     // ok, we need the code system
     CodeSystem cs = context.fetchCodeSystem(system);
     if (cs == null || (cs.getContent() != CodeSystemContentMode.COMPLETE && cs.getContent() != CodeSystemContentMode.FRAGMENT)) {
-      // make up a transient value set with
-      ValueSet vs = new ValueSet();
-      vs.setStatus(PublicationStatus.ACTIVE);
-      vs.setUrl(Utilities.makeUuidUrn());
-      vs.getCompose().addInclude(vsi);
-      ValidationResult res = context.validateCode(options.noClient(), new Coding(system, code, null), vs);
+      ValidationResult res = context.validateCode(options.noClient(), new Coding(system, code, null), transientValueSet(vsi));
       if (res.getErrorClass() == TerminologyServiceErrorClass.UNKNOWN || res.getErrorClass() == TerminologyServiceErrorClass.CODESYSTEM_UNSUPPORTED || res.getErrorClass() == TerminologyServiceErrorClass.VALUESET_UNSUPPORTED) {
         return null;
       }
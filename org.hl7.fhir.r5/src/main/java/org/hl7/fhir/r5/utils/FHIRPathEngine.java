@@ -58,9 +58,11 @@ import org.hl7.fhir.r5.utils.FHIRPathEngine.IEvaluationContext.FunctionDetails;
 import org.hl7.fhir.utilities.CommaSeparatedStringBuilder;
 import org.hl7.fhir.utilities.MergedList;
 import org.hl7.fhir.utilities.MergedList.MergeNode;
+import org.hl7.fhir.utilities.PatternCache;
 import org.hl7.fhir.utilities.SourceLocation;
 import org.hl7.fhir.utilities.Utilities;
 import org.hl7.fhir.utilities.i18n.I18nConstants;
+import org.hl7.fhir.utilities.metrics.IMetrics;
 import org.hl7.fhir.utilities.validation.ValidationMessage;
 import org.hl7.fhir.utilities.validation.ValidationOptions;
 import org.hl7.fhir.utilities.validation.ValidationMessage.IssueType;
@@ -214,6 +216,7 @@ public class FHIRPathEngine {
   private ProfileUtilities profileUtilities;
   private String location; // for error messages
   private boolean allowPolymorphicNames;
+  private FHIRPathExpressionCache expressionCache = FHIRPathExpressionCache.getShared();
 
   // if the fhir path expressions are allowed to use constants beyond those defined in the specification
   // the application can implement them by providing a constant resolver 
@@ -425,6 +428,43 @@ public class FHIRPathEngine {
     return result;    
   }
 
+  /**
+   * Parse a path, or get it from the expression cache if it has been parsed already (by this 
+   * engine, or any other engine that uses the same cache). 
+   * 
+   * The node that is returned is shared, so it must not be modified. Use parse(path) 
+   * if you need a node of your own (e.g. to check() it)
+   * 
+   * @param path
+   * @return
+   * @throws FHIRLexerException
+   */
+  public ExpressionNode parseCached(String path) throws FHIRLexerException {
+    if (expressionCache == null) {
+      return parse(path);
+    }
+    // the host services can define functions, so they change the way the expression is parsed 
+    String key = hostServices == null ? path : hostServices.getClass().getName()+"|"+path;
+    ExpressionNode result = expressionCache.get(key);
+    if (result == null) {
+      result = parse(path);
+      expressionCache.put(key, result);
+    }
+    return result;
+  }
+
+  public FHIRPathExpressionCache getExpressionCache() {
+    return expressionCache;
+  }
+
+  /**
+   * @param expressionCache the cache used by parseCached and the evaluate methods that take a path. By default, 
+   * this is a cache that is shared by all the engines. Set it to null to parse the expressions each time
+   */
+  public void setExpressionCache(FHIRPathExpressionCache expressionCache) {
+    this.expressionCache = expressionCache;
+  }
+
   public static class ExpressionNodeWithOffset {
     private int offset;
     private ExpressionNode node;
@@ -635,7 +675,7 @@ public class FHIRPathEngine {
       list.add(base);
     }
     log = new StringBuilder();
-    return execute(new ExecutionContext(null, base != null && base.isResource() ? base : null, base != null && base.isResource() ? base : null, base, null, base), list, ExpressionNode, true);
+    return evaluateTop(new ExecutionContext(null, base != null && base.isResource() ? base : null, base != null && base.isResource() ? base : null, base, null, base), list, ExpressionNode, null);
   }
 
   /**
@@ -648,13 +688,13 @@ public class FHIRPathEngine {
    * @
    */
 	public List<Base> evaluate(Base base, String path) throws FHIRException {
-    ExpressionNode exp = parse(path);
+    ExpressionNode exp = parseCached(path);
     List<Base> list = new ArrayList<Base>();
     if (base != null) {
       list.add(base);
     }
     log = new StringBuilder();
-    return execute(new ExecutionContext(null, base.isResource() ? base : null, base.isResource() ? base : null, base, null, base), list, exp, true);
+    return evaluateTop(new ExecutionContext(null, base.isResource() ? base : null, base.isResource() ? base : null, base, null, base), list, exp, path);
   }
 
   /**
@@ -672,7 +712,7 @@ public class FHIRPathEngine {
       list.add(base);
     }
     log = new StringBuilder();
-    return execute(new ExecutionContext(appContext, focusResource, rootResource, base, null, base), list, ExpressionNode, true);
+    return evaluateTop(new ExecutionContext(appContext, focusResource, rootResource, base, null, base), list, ExpressionNode, null);
   }
 
   /**
@@ -690,7 +730,7 @@ public class FHIRPathEngine {
       list.add(base);
     }
     log = new StringBuilder();
-    return execute(new ExecutionContext(appContext, focusResource, rootResource, base, null, base), list, expressionNode, true);
+    return evaluateTop(new ExecutionContext(appContext, focusResource, rootResource, base, null, base), list, expressionNode, null);
   }
 
   /**
@@ -703,13 +743,13 @@ public class FHIRPathEngine {
    * @
    */
 	public List<Base> evaluate(Object appContext, Resource focusResource, Resource rootResource, Base base, String path) throws FHIRException {
-    ExpressionNode exp = parse(path);
+    ExpressionNode exp = parseCached(path);
     List<Base> list = new ArrayList<Base>();
     if (base != null) {
       list.add(base);
     }
     log = new StringBuilder();
-    return execute(new ExecutionContext(appContext, focusResource, rootResource, base, null, base), list, exp, true);
+    return evaluateTop(new ExecutionContext(appContext, focusResource, rootResource, base, null, base), list, exp, path);
   }
 
   /**
@@ -779,6 +819,104 @@ public class FHIRPathEngine {
     return convertToString(evaluate(appInfo, focusResource, rootResource, base, node));
   }
 
+  /**
+   * compile an expression to an execution plan
+   * 
+   * @param node - the parsed expression. This may be a shared node (e.g. from parseCached); the plan doesn't change it
+   * @return
+   */
+  public FHIRPathExecutionPlan compile(ExpressionNode node) {
+    return FHIRPathExecutionPlan.build(node);
+  }
+
+  /**
+   * compile an expression to an execution plan. The plan doesn't depend on where the expression is used, 
+   * so the plans are kept in the expression cache (if there is one) by expression, and shared by all the 
+   * resources and elements that use it (e.g. ele-1)
+   * 
+   * @param expression - the FHIR Path statement to use
+   * @return
+   * @throws FHIRLexerException if the expression can't be parsed
+   */
+  public FHIRPathExecutionPlan compile(String expression) throws FHIRLexerException {
+    String key = null;
+    if (expressionCache != null) {
+      // the host services can define functions, so they change the way the expression is parsed 
+      key = "plan|"+(hostServices == null ? "" : hostServices.getClass().getName())+"|"+expression;
+      FHIRPathExecutionPlan plan = expressionCache.getPlan(key);
+      if (plan != null) {
+        return plan;
+      }
+    }
+    FHIRPathExecutionPlan plan = FHIRPathExecutionPlan.build(parseCached(expression));
+    if (key != null) {
+      expressionCache.putPlan(key, plan);
+    }
+    return plan;
+  }
+
+  /**
+   * evaluate a compiled expression and return the matching elements
+   * 
+   * @param base - the object against which the path is being evaluated
+   * @param plan - the compiled expression to use
+   * @return
+   * @throws FHIRException 
+   */
+  public List<Base> evaluate(Object appContext, Base focusResource, Base rootResource, Base base, FHIRPathExecutionPlan plan) throws FHIRException {
+    List<Base> list = new ArrayList<Base>();
+    if (base != null) {
+      list.add(base);
+    }
+    log = new StringBuilder();
+    IMetrics metrics = worker.getMetrics();
+    if (!metrics.isEnabled()) {
+      return plan.execute(this, new ExecutionContext(appContext, focusResource, rootResource, base, null, base), list);
+    }
+    long t = System.nanoTime();
+    try {
+      return plan.execute(this, new ExecutionContext(appContext, focusResource, rootResource, base, null, base), list);
+    } finally {
+      metrics.time(IMetrics.FHIRPATH_EVALUATION, plan.toString(), System.nanoTime() - t);
+    }
+  }
+
+  // the evaluate methods come through here, so the evaluations can be measured if the context is collecting metrics.
+  // expression is the source of the expression if it's known - otherwise it's only worked out if it's needed
+  private List<Base> evaluateTop(ExecutionContext context, List<Base> focus, ExpressionNode exp, String expression) throws FHIRException {
+    IMetrics metrics = worker.getMetrics();
+    if (!metrics.isEnabled()) {
+      return execute(context, focus, exp, true);
+    }
+    long t = System.nanoTime();
+    try {
+      return execute(context, focus, exp, true);
+    } finally {
+      metrics.time(IMetrics.FHIRPATH_EVALUATION, expression == null ? exp.toString() : expression, System.nanoTime() - t);
+    }
+  }
+
+  /**
+   * evaluate a compiled expression and return true or false (e.g. for an invariant)
+   * 
+   * @param base - the object against which the path is being evaluated
+   * @return
+   * @throws FHIRException 
+   */
+  public boolean evaluateToBoolean(Object appInfo, Base focusResource, Base rootResource, Base base, FHIRPathExecutionPlan plan) throws FHIRException {
+    return convertToBoolean(evaluate(appInfo, focusResource, rootResource, base, plan));
+  }
+
+  // plans can go straight to the properties, unless the names need special handling
+  boolean usesPropertyHashes() {
+    return !allowPolymorphicNames && getClass() == FHIRPathEngine.class;
+  }
+
+  // if the first name in a path might be a constant from the host services
+  boolean hasHostConstants(ExecutionContext context) {
+    return context.appInfo != null && hostServices != null;
+  }
+
   /**
    * worker routine for converting a set of objects to a string representation
    * 
@@ -865,7 +1003,7 @@ public class FHIRPathEngine {
     }
   }
 
-  private class ExecutionContext {
+  class ExecutionContext {
     private Object appInfo;
     private Base focusResource;
     private Base rootResource;
@@ -1045,6 +1183,9 @@ public class FHIRPathEngine {
         result.setEnd(lexer.getCurrentLocation());
         lexer.next();
         checkParameters(lexer, c, result, details);
+        if (result.getFunction() == Function.Matches || result.getFunction() == Function.ReplaceMatches) {
+          precompileRegex(result);
+        }
       } else {
         result.setKind(Kind.Name);
       }
@@ -1223,6 +1364,28 @@ public class FHIRPathEngine {
     return true;
   }
 
+  // if the regex is a literal, there's no need to wait till the expression is executed to compile it.
+  // Any error in the regex is left for execution to report, as it always has been
+  private void precompileRegex(ExpressionNode exp) {
+    String regex = literalString(exp.getParameters().get(0));
+    if (!Utilities.noString(regex)) {
+      try {
+        PatternCache.get(regex);
+      } catch (Exception e) {
+        // nothing
+      }
+    }
+  }
+
+  // the value of a parameter that is just a string literal, or null 
+  private String literalString(ExpressionNode param) {
+    if (param.getKind() == Kind.Constant && param.getInner() == null && param.getOperation() == null && param.getConstant() instanceof StringType) {
+      return ((StringType) param.getConstant()).getValue();
+    } else {
+      return null;
+    }
+  }
+
   private boolean checkParameters(FHIRLexer lexer, SourceLocation location, ExpressionNode exp, FunctionDetails details) throws FHIRLexerException {
     switch (exp.getFunction()) {
     case Empty: return checkParamCount(lexer, location, exp, 0);
@@ -1322,7 +1485,7 @@ public class FHIRPathEngine {
     return false;
   }
 
-	private List<Base> execute(ExecutionContext context, List<Base> focus, ExpressionNode exp, boolean atEntry) throws FHIRException {
+	List<Base> execute(ExecutionContext context, List<Base> focus, ExpressionNode exp, boolean atEntry) throws FHIRException {
 //    System.out.println("Evaluate {'"+exp.toString()+"'} on "+focus.toString());
     List<Base> work = new ArrayList<Base>();
     switch (exp.getKind()) {
@@ -1399,7 +1562,7 @@ public class FHIRPathEngine {
   }
 
 
-  private List<Base> preOperate(List<Base> left, Operation operation, ExpressionNode expr) throws PathEngineException {
+  List<Base> preOperate(List<Base> left, Operation operation, ExpressionNode expr) throws PathEngineException {
     if (left.size() == 0) {
       return null;
     }
@@ -1489,7 +1652,7 @@ public class FHIRPathEngine {
     return result;
   }
 
-  private Base resolveConstant(ExecutionContext context, Base constant, boolean beforeContext, ExpressionNode expr) throws PathEngineException {
+  Base resolveConstant(ExecutionContext context, Base constant, boolean beforeContext, ExpressionNode expr) throws PathEngineException {
     if (!(constant instanceof FHIRConstant)) {
       return constant;
     }
@@ -1656,7 +1819,7 @@ public class FHIRPathEngine {
   }
 
 
-  private List<Base> operate(ExecutionContext context, List<Base> left, Operation operation, List<Base> right, ExpressionNode holder) throws FHIRException {
+  List<Base> operate(ExecutionContext context, List<Base> left, Operation operation, List<Base> right, ExpressionNode holder) throws FHIRException {
     switch (operation) {
     case Equals: return opEquals(left, right, holder);
     case Equivalent: return opEquivalent(left, right, holder);
@@ -2864,7 +3027,7 @@ public class FHIRPathEngine {
     }
   }
 
-	private List<Base> execute(ExecutionContext context, Base item, ExpressionNode exp, boolean atEntry) throws FHIRException {
+	List<Base> execute(ExecutionContext context, Base item, ExpressionNode exp, boolean atEntry) throws FHIRException {
     List<Base> result = new ArrayList<Base>(); 
     if (atEntry && context.appInfo != null && hostServices != null) {
       // we'll see if the name matches a constant known by the context.
@@ -3352,7 +3515,7 @@ public class FHIRPathEngine {
   //		return s.equals("boolean") || s.equals("integer") || s.equals("decimal") || s.equals("base64Binary") || s.equals("instant") || s.equals("string") || s.equals("uri") || s.equals("date") || s.equals("dateTime") || s.equals("time") || s.equals("code") || s.equals("oid") || s.equals("id") || s.equals("unsignedInt") || s.equals("positiveInt") || s.equals("markdown");
   //	}
 
-	private List<Base> evaluateFunction(ExecutionContext context, List<Base> focus, ExpressionNode exp) throws FHIRException {
+	List<Base> evaluateFunction(ExecutionContext context, List<Base> focus, ExpressionNode exp) throws FHIRException {
     switch (exp.getFunction()) {
     case Empty : return funcEmpty(context, focus, exp);
     case Not : return funcNot(context, focus, exp);
@@ -3930,7 +4093,7 @@ public class FHIRPathEngine {
   }
 
 
-  private ExecutionContext changeThis(ExecutionContext context, Base newThis) {
+  ExecutionContext changeThis(ExecutionContext context, Base newThis) {
     return new ExecutionContext(context.appInfo, context.focusResource, context.rootResource, context.context, context.aliases, newThis);
   }
 
@@ -4029,11 +4192,14 @@ public class FHIRPathEngine {
 
   private List<Base> funcReplaceMatches(ExecutionContext context, List<Base> focus, ExpressionNode exp) throws FHIRException {
     List<Base> result = new ArrayList<Base>();
-    String regex = convertToString(execute(context, focus, exp.getParameters().get(0), true));
+    String regex = literalString(exp.getParameters().get(0));
+    if (regex == null) {
+      regex = convertToString(execute(context, focus, exp.getParameters().get(0), true));
+    }
     String repl = convertToString(execute(context, focus, exp.getParameters().get(1), true));
 
     if (focus.size() == 1 && !Utilities.noString(regex)) {
-      result.add(new StringType(convertToString(focus.get(0)).replaceAll(regex, repl)).noExtensions());
+      result.add(new StringType(PatternCache.replaceAll(convertToString(focus.get(0)), regex, repl)).noExtensions());
     } else {
       result.add(new StringType(convertToString(focus.get(0))).noExtensions());
     }
@@ -4704,14 +4870,17 @@ public class FHIRPathEngine {
 
 	private List<Base> funcMatches(ExecutionContext context, List<Base> focus, ExpressionNode exp) throws FHIRException {
     List<Base> result = new ArrayList<Base>();
-    String sw = convertToString(execute(context, focus, exp.getParameters().get(0), true));
+    String sw = literalString(exp.getParameters().get(0));
+    if (sw == null) {
+      sw = convertToString(execute(context, focus, exp.getParameters().get(0), true));
+    }
 
     if (focus.size() == 1 && !Utilities.noString(sw)) {
       String st = convertToString(focus.get(0));
       if (Utilities.noString(st)) {
         result.add(new BooleanType(false).noExtensions());
       } else {
-        boolean ok = st.matches(sw);
+        boolean ok = PatternCache.matches(st, sw);
         result.add(new BooleanType(ok).noExtensions());
       }
     } else {
@@ -5574,6 +5743,10 @@ public class FHIRPathEngine {
     return path.substring(path.lastIndexOf(".") + 1);
   }
 
+  boolean isTrue(List<Base> items, ExpressionNode expr) throws PathEngineException {
+    return asBool(items, expr) == Equality.True;
+  }
+
   private Equality asBool(List<Base> items, ExpressionNode expr) throws PathEngineException {
     if (items.size() == 0) {
       return Equality.Null;
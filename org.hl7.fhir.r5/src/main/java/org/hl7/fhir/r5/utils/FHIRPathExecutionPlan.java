@@ -0,0 +1,507 @@
+package org.hl7.fhir.r5.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hl7.fhir.exceptions.FHIRException;
+import org.hl7.fhir.r5.model.Base;
+import org.hl7.fhir.r5.model.BooleanType;
+import org.hl7.fhir.r5.model.ExpressionNode;
+import org.hl7.fhir.r5.model.ExpressionNode.Kind;
+import org.hl7.fhir.r5.model.ExpressionNode.Operation;
+import org.hl7.fhir.r5.model.IntegerType;
+import org.hl7.fhir.r5.utils.FHIRPathEngine.ExecutionContext;
+
+import ca.uhn.fhir.util.ElementUtil;
+
+/**
+ * A FHIRPath expression that has been compiled (see FHIRPathEngine.compile) into a series of steps
+ * that can be executed without walking the expression tree each time:
+ *
+ *  - a run of names (a.b.c) is a single step that goes straight to the properties, using property hashes worked out once
+ *  - the common functions with criteria (where, exists, all, select) and the simple ones (empty, exists, count, first) are done directly
+ *  - anything else (other functions, is/as, $this in odd places etc) is handed back to the engine's interpreter
+ *
+ * The plan doesn't depend on the types the expression is evaluated against, so one plan does for every
+ * place an expression is used.
+ *
+ * Plans don't change once they are built, so they can be shared between threads and engines, though they
+ * must be executed by an engine with the same host services as the one that compiled them
+ */
+public class FHIRPathExecutionPlan {
+
+  interface Step {
+    List<Base> execute(FHIRPathEngine engine, ExecutionContext context, List<Base> focus) throws FHIRException;
+  }
+
+  private ExpressionNode expression;
+  private Step root;
+  private int interpretedSteps;
+
+  private FHIRPathExecutionPlan(ExpressionNode expression) {
+    this.expression = expression;
+  }
+
+  static FHIRPathExecutionPlan build(ExpressionNode expression) {
+    FHIRPathExecutionPlan plan = new FHIRPathExecutionPlan(expression);
+    plan.root = plan.compile(expression, true);
+    return plan;
+  }
+
+  public ExpressionNode getExpression() {
+    return expression;
+  }
+
+  /**
+   * @return how many parts of the expression are handed back to the interpreter when the plan is executed
+   */
+  public int getInterpretedSteps() {
+    return interpretedSteps;
+  }
+
+  List<Base> execute(FHIRPathEngine engine, ExecutionContext context, List<Base> focus) throws FHIRException {
+    return root.execute(engine, context, focus);
+  }
+
+  @Override
+  public String toString() {
+    return expression.toString();
+  }
+
+  // --- compiling ------------------------------------------------------------------
+
+  private Step compile(ExpressionNode exp, boolean atEntry) {
+    Step res = null;
+    if (exp.isProximal() && exp.getOperation() != null) {
+      res = compileOperations(exp, atEntry);
+    } else if (exp.getOperation() == null) {
+      res = compileTerm(exp, atEntry);
+    }
+    return res != null ? res : interpreted(exp, atEntry);
+  }
+
+  private Step interpreted(ExpressionNode exp, boolean atEntry) {
+    interpretedSteps++;
+    return new InterpretedStep(exp, atEntry);
+  }
+
+  // a term and the operations that follow it. Returns null if it can't be compiled
+  private Step compileOperations(ExpressionNode exp, boolean atEntry) {
+    Step first = compileTerm(exp, atEntry);
+    if (first == null) {
+      return null;
+    }
+    List<Operation> operations = new ArrayList<>();
+    List<ExpressionNode> holders = new ArrayList<>();
+    List<Step> operands = new ArrayList<>();
+    ExpressionNode last = exp;
+    ExpressionNode next = exp.getOpNext();
+    while (next != null) {
+      if (last.getOperation() == Operation.Is || last.getOperation() == Operation.As || next.isProximal()) {
+        return null;
+      }
+      operations.add(last.getOperation());
+      holders.add(last);
+      Step operand = compileTerm(next, true);
+      operands.add(operand == null ? interpreted(next, true) : operand);
+      last = next;
+      next = next.getOpNext();
+    }
+    return new OperationStep(exp, first, operations, holders, operands);
+  }
+
+  // a node and its inner nodes, without any operations. Returns null if it can't be compiled
+  private Step compileTerm(ExpressionNode exp, boolean atEntry) {
+    List<Step> steps = new ArrayList<>();
+    ExpressionNode node = exp;
+    boolean entry = atEntry;
+    while (node != null) {
+      if (node != exp && node.getOperation() != null) {
+        return null;
+      }
+      Step step = compileNode(node, entry);
+      if (step == null) {
+        return null;
+      }
+      Step prev = steps.isEmpty() ? null : steps.get(steps.size()-1);
+      if (prev instanceof PathStep && step instanceof PathStep) {
+        steps.set(steps.size()-1, ((PathStep) prev).join((PathStep) step));
+      } else {
+        steps.add(step);
+      }
+      node = node.getInner();
+      entry = false;
+    }
+    return steps.size() == 1 ? steps.get(0) : new ChainStep(steps);
+  }
+
+  private Step compileNode(ExpressionNode exp, boolean atEntry) {
+    switch (exp.getKind()) {
+    case Name:
+      if (atEntry && exp.getName().equals("$this")) {
+        return new ThisStep();
+      } else if (atEntry && exp.getName().equals("$total")) {
+        return null;
+      } else {
+        return new PathStep(exp, atEntry);
+      }
+    case Function:
+      return compileFunction(exp);
+    case Constant:
+    case Unary:
+      return new ConstantStep(exp);
+    case Group:
+      return new GroupStep(compile(exp.getGroup(), atEntry));
+    default:
+      return null;
+    }
+  }
+
+  private Step compileFunction(ExpressionNode exp) {
+    int pc = exp.getParameters().size();
+    switch (exp.getFunction()) {
+    case Empty:
+      return pc == 0 ? new EmptyStep() : new FunctionStep(exp);
+    case Exists:
+      return pc == 0 ? new ExistsStep(null, exp) : new ExistsStep(compile(exp.getParameters().get(0), true), exp);
+    case Count:
+      return pc == 0 ? new CountStep() : new FunctionStep(exp);
+    case First:
+      return pc == 0 ? new FirstStep() : new FunctionStep(exp);
+    case Where:
+      return new WhereStep(compile(exp.getParameters().get(0), true), exp);
+    case All:
+      return pc == 1 ? new AllStep(compile(exp.getParameters().get(0), true), exp) : new FunctionStep(exp);
+    case Select:
+      return new SelectStep(compile(exp.getParameters().get(0), true));
+    default:
+      return new FunctionStep(exp);
+    }
+  }
+
+  // --- steps ----------------------------------------------------------------------
+
+  private static class InterpretedStep implements Step {
+    private ExpressionNode exp;
+    private boolean atEntry;
+
+    private InterpretedStep(ExpressionNode exp, boolean atEntry) {
+      this.exp = exp;
+      this.atEntry = atEntry;
+    }
+
+    @Override
+    public List<Base> execute(FHIRPathEngine engine, ExecutionContext context, List<Base> focus) throws FHIRException {
+      return engine.execute(context, focus, exp, atEntry);
+    }
+  }
+
+  private static class ChainStep implements Step {
+    private Step[] steps;
+
+    private ChainStep(List<Step> steps) {
+      this.steps = steps.toArray(new Step[steps.size()]);
+    }
+
+    @Override
+    public List<Base> execute(FHIRPathEngine engine, ExecutionContext context, List<Base> focus) throws FHIRException {
+      List<Base> work = focus;
+      for (Step step : steps) {
+        work = step.execute(engine, context, work);
+      }
+      return work;
+    }
+  }
+
+  /**
+   * a run of names, e.g. name.given. The first name is treated specially if it is at the start
+   * of the expression, because it might be a type name or a constant from the host services
+   */
+  private static class PathStep implements Step {
+    private ExpressionNode[] nodes;
+    private String[] names;
+    private int[] hashes;
+    private boolean atEntry;
+    private boolean typeName;
+
+    private PathStep(ExpressionNode exp, boolean atEntry) {
+      this(new ExpressionNode[] { exp }, atEntry);
+    }
+
+    private PathStep(ExpressionNode[] nodes, boolean atEntry) {
+      this.nodes = nodes;
+      this.atEntry = atEntry;
+      names = new String[nodes.length];
+      hashes = new int[nodes.length];
+      for (int i = 0; i < nodes.length; i++) {
+        names[i] = nodes[i].getName();
+        hashes[i] = names[i].hashCode();
+      }
+      typeName = atEntry && Character.isUpperCase(names[0].charAt(0));
+    }
+
+    private PathStep join(PathStep next) {
+      ExpressionNode[] all = new ExpressionNode[nodes.length + next.nodes.length];
+      System.arraycopy(nodes, 0, all, 0, nodes.length);
+      System.arraycopy(next.nodes, 0, all, nodes.length, next.nodes.length);
+      return new PathStep(all, atEntry);
+    }
+
+    @Override
+    public List<Base> execute(FHIRPathEngine engine, ExecutionContext context, List<Base> focus) throws FHIRException {
+      boolean direct = engine.usesPropertyHashes();
+      List<Base> work = focus;
+      for (int i = 0; i < names.length; i++) {
+        List<Base> next = new ArrayList<>(work.size());
+        if (i == 0 && (typeName || (atEntry && engine.hasHostConstants(context)))) {
+          for (Base item : work) {
+            for (Base b : engine.execute(context, item, nodes[0], true)) {
+              if (b != null) {
+                next.add(b);
+              }
+            }
+          }
+        } else if (direct && hashes[i] != STAR) {
+          for (Base item : work) {
+            Base[] list = item.getProperty(hashes[i], names[i], false);
+            if (list != null) {
+              for (Base b : list) {
+                if (b != null) {
+                  next.add(b);
+                }
+              }
+            }
+          }
+        } else {
+          for (Base item : work) {
+            engine.getChildrenByName(item, names[i], next);
+          }
+        }
+        work = next;
+      }
+      return work;
+    }
+
+    private static final int STAR = "*".hashCode();
+  }
+
+  private static class ThisStep implements Step {
+    @Override
+    public List<Base> execute(FHIRPathEngine engine, ExecutionContext context, List<Base> focus) throws FHIRException {
+      List<Base> res = new ArrayList<>(1);
+      res.add(context.getThisItem());
+      return res;
+    }
+  }
+
+  private static class ConstantStep implements Step {
+    private ExpressionNode exp;
+
+    private ConstantStep(ExpressionNode exp) {
+      this.exp = exp;
+    }
+
+    @Override
+    public List<Base> execute(FHIRPathEngine engine, ExecutionContext context, List<Base> focus) throws FHIRException {
+      List<Base> res = new ArrayList<>(1);
+      if (exp.getKind() == Kind.Unary) {
+        res.add(new IntegerType(0));
+      } else {
+        Base b = engine.resolveConstant(context, exp.getConstant(), false, exp);
+        if (b != null) {
+          res.add(b);
+        }
+      }
+      return res;
+    }
+  }
+
+  private static class GroupStep implements Step {
+    private Step group;
+
+    private GroupStep(Step group) {
+      this.group = group;
+    }
+
+    @Override
+    public List<Base> execute(FHIRPathEngine engine, ExecutionContext context, List<Base> focus) throws FHIRException {
+      return group.execute(engine, context, focus);
+    }
+  }
+
+  private static class OperationStep implements Step {
+    private ExpressionNode exp;
+    private Step first;
+    private Operation[] operations;
+    private ExpressionNode[] holders;
+    private Step[] operands;
+
+    private OperationStep(ExpressionNode exp, Step first, List<Operation> operations, List<ExpressionNode> holders, List<Step> operands) {
+      this.exp = exp;
+      this.first = first;
+      this.operations = operations.toArray(new Operation[operations.size()]);
+      this.holders = holders.toArray(new ExpressionNode[holders.size()]);
+      this.operands = operands.toArray(new Step[operands.size()]);
+    }
+
+    @Override
+    public List<Base> execute(FHIRPathEngine engine, ExecutionContext context, List<Base> focus) throws FHIRException {
+      List<Base> work = first.execute(engine, context, focus);
+      for (int i = 0; i < operations.length; i++) {
+        List<Base> work2 = engine.preOperate(work, operations[i], exp);
+        if (work2 != null) {
+          work = work2;
+        } else {
+          work2 = operands[i].execute(engine, context, focus);
+          work = engine.operate(context, work, operations[i], work2, holders[i]);
+        }
+      }
+      return work;
+    }
+  }
+
+  private static class FunctionStep implements Step {
+    private ExpressionNode exp;
+
+    private FunctionStep(ExpressionNode exp) {
+      this.exp = exp;
+    }
+
+    @Override
+    public List<Base> execute(FHIRPathEngine engine, ExecutionContext context, List<Base> focus) throws FHIRException {
+      return engine.evaluateFunction(context, focus, exp);
+    }
+  }
+
+  private static List<Base> makeBoolean(boolean b) {
+    List<Base> res = new ArrayList<>(1);
+    res.add(new BooleanType(b).noExtensions());
+    return res;
+  }
+
+  private static class EmptyStep implements Step {
+    @Override
+    public List<Base> execute(FHIRPathEngine engine, ExecutionContext context, List<Base> focus) throws FHIRException {
+      return makeBoolean(ElementUtil.isEmpty(focus));
+    }
+  }
+
+  private static class CountStep implements Step {
+    @Override
+    public List<Base> execute(FHIRPathEngine engine, ExecutionContext context, List<Base> focus) throws FHIRException {
+      List<Base> res = new ArrayList<>(1);
+      res.add(new IntegerType(focus.size()).noExtensions());
+      return res;
+    }
+  }
+
+  private static class FirstStep implements Step {
+    @Override
+    public List<Base> execute(FHIRPathEngine engine, ExecutionContext context, List<Base> focus) throws FHIRException {
+      List<Base> res = new ArrayList<>(1);
+      if (focus.size() > 0) {
+        res.add(focus.get(0));
+      }
+      return res;
+    }
+  }
+
+  private static class ExistsStep implements Step {
+    private Step criteria;
+    private ExpressionNode exp;
+
+    private ExistsStep(Step criteria, ExpressionNode exp) {
+      this.criteria = criteria;
+      this.exp = exp;
+    }
+
+    @Override
+    public List<Base> execute(FHIRPathEngine engine, ExecutionContext context, List<Base> focus) throws FHIRException {
+      boolean exists = false;
+      List<Base> pc = new ArrayList<>(1);
+      for (Base item : focus) {
+        if (criteria == null) {
+          if (!item.isEmpty()) {
+            // nothing else to look at
+            return makeBoolean(true);
+          }
+        } else {
+          // the criteria are evaluated for every item, as the interpreter does, so that the same errors are found 
+          pc.clear();
+          pc.add(item);
+          if (engine.isTrue(criteria.execute(engine, engine.changeThis(context, item), pc), exp)) {
+            exists = true;
+          }
+        }
+      }
+      return makeBoolean(exists);
+    }
+  }
+
+  private static class WhereStep implements Step {
+    private Step criteria;
+    private ExpressionNode exp;
+
+    private WhereStep(Step criteria, ExpressionNode exp) {
+      this.criteria = criteria;
+      this.exp = exp;
+    }
+
+    @Override
+    public List<Base> execute(FHIRPathEngine engine, ExecutionContext context, List<Base> focus) throws FHIRException {
+      List<Base> res = new ArrayList<>();
+      List<Base> pc = new ArrayList<>(1);
+      for (Base item : focus) {
+        pc.clear();
+        pc.add(item);
+        if (engine.isTrue(criteria.execute(engine, engine.changeThis(context, item), pc), exp)) {
+          res.add(item);
+        }
+      }
+      return res;
+    }
+  }
+
+  private static class AllStep implements Step {
+    private Step criteria;
+    private ExpressionNode exp;
+
+    private AllStep(Step criteria, ExpressionNode exp) {
+      this.criteria = criteria;
+      this.exp = exp;
+    }
+
+    @Override
+    public List<Base> execute(FHIRPathEngine engine, ExecutionContext context, List<Base> focus) throws FHIRException {
+      List<Base> pc = new ArrayList<>(1);
+      for (Base item : focus) {
+        pc.clear();
+        pc.add(item);
+        if (!engine.isTrue(criteria.execute(engine, engine.changeThis(context, item), pc), exp)) {
+          return makeBoolean(false);
+        }
+      }
+      return makeBoolean(true);
+    }
+  }
+
+  private static class SelectStep implements Step {
+    private Step projection;
+
+    private SelectStep(Step projection) {
+      this.projection = projection;
+    }
+
+    @Override
+    public List<Base> execute(FHIRPathEngine engine, ExecutionContext context, List<Base> focus) throws FHIRException {
+      List<Base> res = new ArrayList<>();
+      List<Base> pc = new ArrayList<>(1);
+      for (Base item : focus) {
+        pc.clear();
+        pc.add(item);
+        res.addAll(projection.execute(engine, engine.changeThis(context, item), pc));
+      }
+      return res;
+    }
+  }
+}
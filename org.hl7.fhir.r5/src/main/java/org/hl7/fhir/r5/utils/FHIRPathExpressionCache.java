@@ -0,0 +1,155 @@
+package org.hl7.fhir.r5.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.hl7.fhir.r5.model.ExpressionNode;
+
+/**
+ * A bounded cache of parsed FHIRPath expressions (and the execution plans compiled from them), 
+ * which can be shared by any number of FHIRPathEngines on any number of threads.
+ *
+ * The parsed expressions are shared by everyone that asks for the same expression, so they
+ * must not be modified once they are in the cache (FHIRPathEngine.check records types on the
+ * nodes, so don't use it on nodes from here).
+ *
+ * When the cache gets bigger than maxSize, the least recently used expressions are dropped.
+ */
+public class FHIRPathExpressionCache {
+
+  public static final int DEFAULT_MAX_SIZE = 10000;
+
+  private static final FHIRPathExpressionCache SHARED = new FHIRPathExpressionCache(DEFAULT_MAX_SIZE);
+
+  private class CachedExpression {
+    private Object value;
+    private volatile long lastUsed;
+
+    private CachedExpression(Object value) {
+      this.value = value;
+      this.lastUsed = ticks.incrementAndGet();
+    }
+  }
+
+  private final Map<String, CachedExpression> expressions = new ConcurrentHashMap<>();
+  private final AtomicLong ticks = new AtomicLong();
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong misses = new AtomicLong();
+  private final AtomicLong evictions = new AtomicLong();
+  private volatile int maxSize;
+
+  public FHIRPathExpressionCache(int maxSize) {
+    this.maxSize = maxSize;
+  }
+
+  /**
+   * @return the cache the FHIRPathEngines use unless they are given another one
+   */
+  public static FHIRPathExpressionCache getShared() {
+    return SHARED;
+  }
+
+  /**
+   * @param key the expression, and anything else that changes the way it is parsed
+   * @return the parsed expression, or null if it isn't in the cache
+   */
+  public ExpressionNode get(String key) {
+    Object value = fetch(key);
+    return value instanceof ExpressionNode ? (ExpressionNode) value : null;
+  }
+
+  public void put(String key, ExpressionNode node) {
+    store(key, node);
+  }
+
+  /**
+   * @param key the expression, and the context it was compiled for
+   * @return the compiled expression, or null if it isn't in the cache
+   */
+  public FHIRPathExecutionPlan getPlan(String key) {
+    Object value = fetch(key);
+    return value instanceof FHIRPathExecutionPlan ? (FHIRPathExecutionPlan) value : null;
+  }
+
+  public void putPlan(String key, FHIRPathExecutionPlan plan) {
+    store(key, plan);
+  }
+
+  private Object fetch(String key) {
+    CachedExpression ce = expressions.get(key);
+    if (ce == null) {
+      misses.incrementAndGet();
+      return null;
+    }
+    hits.incrementAndGet();
+    ce.lastUsed = ticks.incrementAndGet();
+    return ce.value;
+  }
+
+  private void store(String key, Object value) {
+    expressions.put(key, new CachedExpression(value));
+    if (expressions.size() > maxSize) {
+      evict();
+    }
+  }
+
+  // drops the least recently used 10% or so. If two threads get here at once, only one of them does the work
+  private synchronized void evict() {
+    int target = maxSize - maxSize / 10;
+    if (expressions.size() <= maxSize) {
+      return;
+    }
+    List<Long> used = new ArrayList<>(expressions.size());
+    for (CachedExpression ce : expressions.values()) {
+      used.add(ce.lastUsed);
+    }
+    Collections.sort(used);
+    long limit = used.get(Math.max(0, used.size() - target - 1));
+    expressions.values().removeIf(ce -> {
+      if (ce.lastUsed <= limit) {
+        evictions.incrementAndGet();
+        return true;
+      }
+      return false;
+    });
+  }
+
+  public void clear() {
+    expressions.clear();
+  }
+
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  public void setMaxSize(int maxSize) {
+    this.maxSize = maxSize;
+    if (expressions.size() > maxSize) {
+      evict();
+    }
+  }
+
+  public int size() {
+    return expressions.size();
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  /**
+   * @return the number of expressions that have been dropped to keep the cache under maxSize
+   */
+  public long getEvictions() {
+    return evictions.get();
+  }
+
+}
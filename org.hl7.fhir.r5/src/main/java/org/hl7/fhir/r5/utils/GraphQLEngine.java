@@ -393,7 +393,7 @@ public class GraphQLEngine implements IGraphQLEngine {
           }
           i++;
         } else {
-          ExpressionNode node = fpe.parse(fp.toString().substring(5));
+          ExpressionNode node = fpe.parseCached(fp.toString().substring(5));
           for (Base v : values) {
             if ((i >= offset) && passesExtensionMode(v, extensionMode) && fpe.evaluateToBoolean(null, context, v, node)) {
               result.add(v);
@@ -416,7 +416,7 @@ public class GraphQLEngine implements IGraphQLEngine {
           result.add(be.getResource());
       else {
         FHIRPathEngine fpe = new FHIRPathEngine(context);
-        ExpressionNode node = fpe.parse(getSingleValue(fhirpath));
+        ExpressionNode node = fpe.parseCached(getSingleValue(fhirpath));
         for (BundleEntryComponent be : bnd.getEntry())
           if (fpe.evaluateToBoolean(null, be.getResource(), be.getResource(), node))
             result.add(be.getResource());
@@ -433,7 +433,7 @@ public class GraphQLEngine implements IGraphQLEngine {
           result.add((Resource) v);
       else {
         FHIRPathEngine fpe = new FHIRPathEngine(context);
-        ExpressionNode node = fpe.parse(getSingleValue(fhirpath));
+        ExpressionNode node = fpe.parseCached(getSingleValue(fhirpath));
         for (IBaseResource v : list)
           if (fpe.evaluateToBoolean(null, (Resource)v, (Base) v, node))
             result.add((Resource) v);
@@ -459,7 +459,7 @@ public class GraphQLEngine implements IGraphQLEngine {
       if (s.equals("$index"))
         expression = magicExpression;
       else
-        expression = fpe.parse(s);
+        expression = fpe.parseCached(s);
     }
     if (sel.getField().hasDirective("flatten")) // special: instruction to drop this node...
       il = prop.isList() && !sel.getField().hasDirective("first");
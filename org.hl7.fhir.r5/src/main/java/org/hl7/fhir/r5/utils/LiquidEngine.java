@@ -138,7 +138,7 @@ public class LiquidEngine implements IEvaluationContext {
     @Override
     public void evaluate(StringBuilder b, Base resource, LiquidEngineContext ctxt) throws FHIRException {
       if (compiled == null)
-        compiled = engine.parse(statement);
+        compiled = engine.parseCached(statement);
       b.append(engine.evaluateToString(ctxt, resource, resource, resource, compiled));
     }
   }
@@ -166,7 +166,7 @@ public class LiquidEngine implements IEvaluationContext {
     @Override
     public void evaluate(StringBuilder b, Base resource, LiquidEngineContext ctxt) throws FHIRException {
       if (compiled == null)
-        compiled = engine.parse(condition);
+        compiled = engine.parseCached(condition);
       boolean ok = engine.evaluateToBoolean(ctxt, resource, resource, resource, compiled);
       List<LiquidNode> list = null;
       if (ok) {
@@ -176,7 +176,7 @@ public class LiquidEngine implements IEvaluationContext {
         list = elseBody;
         for (LiquidElsIf i : elseIf) {
           if (i.compiled == null)
-            i.compiled = engine.parse(i.condition);
+            i.compiled = engine.parseCached(i.condition);
           ok = engine.evaluateToBoolean(ctxt, resource, resource, resource, i.compiled);
           if (ok) {
             list = i.body;
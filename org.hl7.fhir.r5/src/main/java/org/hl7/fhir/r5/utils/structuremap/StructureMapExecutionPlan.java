@@ -0,0 +1,168 @@
+package org.hl7.fhir.r5.utils.structuremap;
+
+import java.util.List;
+import java.util.Map;
+
+import org.hl7.fhir.r5.model.StructureMap;
+import org.hl7.fhir.r5.model.StructureMap.StructureMapGroupComponent;
+import org.hl7.fhir.r5.model.StructureMap.StructureMapGroupRuleSourceComponent;
+import org.hl7.fhir.r5.model.StructureMap.StructureMapGroupRuleTargetComponent;
+import org.hl7.fhir.r5.utils.FHIRPathExecutionPlan;
+
+/**
+ * A structure map that has been compiled (see StructureMapUtilities.compile) so that it can be
+ * executed without working anything out from the map resources while transforming:
+ *
+ *  - the maps it imports are found, and the groups that each group extends or depends on are resolved
+ *  - the FHIRPath expressions (searches, conditions, checks, log messages and evaluations) are compiled
+ *  - the types that create() makes are resolved against the aliases in the map
+ *
+ * The groups to use for inferred rules depend on the types in the instance, so those are resolved as
+ * they are first needed, and kept in the plan, rather than in the user data of the map.
+ *
+ * The plan doesn't change the map resources, and doesn't change once it is built (other than
+ * remembering the groups for types), so a single plan can be used to run any number of transforms
+ * at once. The StructureMapUtilities that runs it is not thread safe, so each thread should use
+ * its own. The maps must not be changed while the plan is in use.
+ */
+public class StructureMapExecutionPlan {
+
+  /**
+   * the compiled expressions of a rule source
+   */
+  public static class SourcePlan {
+    private final FHIRPathExecutionPlan search;
+    private final FHIRPathExecutionPlan condition;
+    private final FHIRPathExecutionPlan check;
+    private final FHIRPathExecutionPlan logMessage;
+
+    public SourcePlan(FHIRPathExecutionPlan search, FHIRPathExecutionPlan condition, FHIRPathExecutionPlan check, FHIRPathExecutionPlan logMessage) {
+      this.search = search;
+      this.condition = condition;
+      this.check = check;
+      this.logMessage = logMessage;
+    }
+
+    public FHIRPathExecutionPlan getSearch() {
+      return search;
+    }
+
+    public FHIRPathExecutionPlan getCondition() {
+      return condition;
+    }
+
+    public FHIRPathExecutionPlan getCheck() {
+      return check;
+    }
+
+    public FHIRPathExecutionPlan getLogMessage() {
+      return logMessage;
+    }
+  }
+
+  /**
+   * what is known about a rule target before it's executed
+   */
+  public static class TargetPlan {
+    private final FHIRPathExecutionPlan expression;
+    private final String type;
+
+    public TargetPlan(FHIRPathExecutionPlan expression, String type) {
+      this.expression = expression;
+      this.type = type;
+    }
+
+    /**
+     * @return the compiled expression, for evaluate(), if the expression is fixed in the map
+     */
+    public FHIRPathExecutionPlan getExpression() {
+      return expression;
+    }
+
+    /**
+     * @return the type to create, for create(), if the type is fixed in the map (with any alias resolved)
+     */
+    public String getType() {
+      return type;
+    }
+  }
+
+  private final StructureMap map;
+  private final Map<StructureMap, List<StructureMap>> imports;
+  private final Map<StructureMapGroupComponent, Map<String, ResolvedGroup>> references;
+  private final Map<StructureMapGroupComponent, Map<String, ResolvedGroup>> groupsForTypes;
+  private final Map<StructureMapGroupComponent, Map<String, String>> targetTypes;
+  private final Map<StructureMapGroupRuleSourceComponent, SourcePlan> sources;
+  private final Map<StructureMapGroupRuleTargetComponent, TargetPlan> targets;
+
+  /**
+   * The maps are keyed by identity, and are built by StructureMapUtilities.compile. groupsForTypes and targetTypes
+   * must have a thread safe map for every group, since they are filled in as transforms run
+   */
+  StructureMapExecutionPlan(StructureMap map, Map<StructureMap, List<StructureMap>> imports,
+      Map<StructureMapGroupComponent, Map<String, ResolvedGroup>> references,
+      Map<StructureMapGroupComponent, Map<String, ResolvedGroup>> groupsForTypes,
+      Map<StructureMapGroupComponent, Map<String, String>> targetTypes,
+      Map<StructureMapGroupRuleSourceComponent, SourcePlan> sources,
+      Map<StructureMapGroupRuleTargetComponent, TargetPlan> targets) {
+    this.map = map;
+    this.imports = imports;
+    this.references = references;
+    this.groupsForTypes = groupsForTypes;
+    this.targetTypes = targetTypes;
+    this.sources = sources;
+    this.targets = targets;
+  }
+
+  /**
+   * @return the map that was compiled
+   */
+  public StructureMap getMap() {
+    return map;
+  }
+
+  /**
+   * @return all the maps the plan uses (the map, and the maps it imports, directly or indirectly)
+   */
+  public Iterable<StructureMap> getMaps() {
+    return imports.keySet();
+  }
+
+  /**
+   * @return the maps that a map imports (not including itself), or null if the map isn't part of the plan
+   */
+  public List<StructureMap> getImports(StructureMap map) {
+    return imports.get(map);
+  }
+
+  /**
+   * @return the group that the group refers to by name (in extends, or a dependent rule)
+   */
+  public ResolvedGroup getReference(StructureMapGroupComponent group, String name) {
+    Map<String, ResolvedGroup> map = references.get(group);
+    return map == null ? null : map.get(name);
+  }
+
+  /**
+   * @return the groups already resolved for types in rules in the group (keyed by source type:target type)
+   */
+  public Map<String, ResolvedGroup> getGroupsForTypes(StructureMapGroupComponent group) {
+    return groupsForTypes.get(group);
+  }
+
+  /**
+   * @return the types already worked out for targets created from a source type in the group
+   */
+  public Map<String, String> getTargetTypes(StructureMapGroupComponent group) {
+    return targetTypes.get(group);
+  }
+
+  public SourcePlan getSource(StructureMapGroupRuleSourceComponent source) {
+    return sources.get(source);
+  }
+
+  public TargetPlan getTarget(StructureMapGroupRuleTargetComponent target) {
+    return targets.get(target);
+  }
+
+}
@@ -65,6 +65,9 @@ import org.hl7.fhir.r5.terminologies.ValueSetExpander.ValueSetExpansionOutcome;
 import org.hl7.fhir.r5.utils.FHIRLexer;
 import org.hl7.fhir.r5.utils.FHIRLexer.FHIRLexerException;
 import org.hl7.fhir.r5.utils.FHIRPathEngine;
+import org.hl7.fhir.r5.utils.FHIRPathExecutionPlan;
+import org.hl7.fhir.r5.utils.structuremap.StructureMapExecutionPlan.SourcePlan;
+import org.hl7.fhir.r5.utils.structuremap.StructureMapExecutionPlan.TargetPlan;
 import org.hl7.fhir.r5.utils.ToolingExtensions;
 import org.hl7.fhir.utilities.CommaSeparatedStringBuilder;
 import org.hl7.fhir.utilities.Utilities;
@@ -74,6 +77,7 @@ import org.hl7.fhir.utilities.xhtml.XhtmlNode;
 
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Services in this class:
@@ -1142,7 +1146,108 @@ public class StructureMapUtilities {
   }
 
   public void transform(Object appInfo, Base source, StructureMap map, Base target) throws FHIRException {
-    TransformContext context = new TransformContext(appInfo);
+    transform(new TransformContext(appInfo), source, map, target);
+  }
+
+  /**
+   * transform from source to target following a compiled map (see compile). This does not change the maps, so
+   * any number of transforms can use the same plan at once (each with their own StructureMapUtilities)
+   */
+  public void transform(Object appInfo, Base source, StructureMapExecutionPlan plan, Base target) throws FHIRException {
+    transform(new TransformContext(appInfo, plan), source, plan.getMap(), target);
+  }
+
+  /**
+   * compile a map, and the maps it imports, so that it can be executed without resolving anything from the
+   * maps as it runs, and without changing them (see StructureMapExecutionPlan).
+   *
+   * Problems that would otherwise only be found when a rule is executed - a group or an import that can't
+   * be found, or an expression that doesn't parse - are found here
+   *
+   * @param map - the map to compile
+   * @return the plan to pass to transform
+   * @throws FHIRException
+   */
+  public StructureMapExecutionPlan compile(StructureMap map) throws FHIRException {
+    Map<StructureMap, List<StructureMap>> imports = new IdentityHashMap<>();
+    Map<StructureMapGroupComponent, Map<String, ResolvedGroup>> references = new IdentityHashMap<>();
+    Map<StructureMapGroupComponent, Map<String, ResolvedGroup>> groupsForTypes = new IdentityHashMap<>();
+    Map<StructureMapGroupComponent, Map<String, String>> targetTypes = new IdentityHashMap<>();
+    Map<StructureMapGroupRuleSourceComponent, SourcePlan> sources = new IdentityHashMap<>();
+    Map<StructureMapGroupRuleTargetComponent, TargetPlan> targets = new IdentityHashMap<>();
+
+    List<StructureMap> queue = new ArrayList<>();
+    queue.add(map);
+    while (!queue.isEmpty()) {
+      StructureMap sm = queue.remove(0);
+      if (!imports.containsKey(sm)) {
+        List<StructureMap> list = findImports(sm);
+        imports.put(sm, list);
+        queue.addAll(list);
+      }
+    }
+    for (StructureMap sm : imports.keySet()) {
+      for (StructureMapGroupComponent group : sm.getGroup()) {
+        Map<String, ResolvedGroup> refs = new HashMap<>();
+        if (group.hasExtends())
+          refs.put(group.getExtends(), findGroupReference(null, sm, group.getExtends()));
+        compileRules(sm, group.getRule(), refs, sources, targets);
+        references.put(group, refs);
+        groupsForTypes.put(group, new ConcurrentHashMap<>());
+        targetTypes.put(group, new ConcurrentHashMap<>());
+      }
+    }
+    return new StructureMapExecutionPlan(map, imports, references, groupsForTypes, targetTypes, sources, targets);
+  }
+
+  private void compileRules(StructureMap map, List<StructureMapGroupRuleComponent> rules, Map<String, ResolvedGroup> refs, Map<StructureMapGroupRuleSourceComponent, SourcePlan> sources, Map<StructureMapGroupRuleTargetComponent, TargetPlan> targets) throws FHIRException {
+    for (StructureMapGroupRuleComponent rule : rules) {
+      for (StructureMapGroupRuleSourceComponent src : rule.getSource()) {
+        sources.put(src, new SourcePlan(
+          "@search".equals(src.getContext()) ? compileExpression(src.getElement()) : null,
+          src.hasCondition() ? compileExpression(src.getCondition()) : null,
+          src.hasCheck() ? compileExpression(src.getCheck()) : null,
+          src.hasLogMessage() ? compileExpression(src.getLogMessage()) : null));
+      }
+      for (StructureMapGroupRuleTargetComponent tgt : rule.getTarget()) {
+        targets.put(tgt, compileTarget(map, tgt));
+      }
+      for (StructureMapGroupRuleDependentComponent dependent : rule.getDependent()) {
+        if (!refs.containsKey(dependent.getName()))
+          refs.put(dependent.getName(), findGroupReference(null, map, dependent.getName()));
+      }
+      compileRules(map, rule.getRule(), refs, sources, targets);
+    }
+  }
+
+  private TargetPlan compileTarget(StructureMap map, StructureMapGroupRuleTargetComponent tgt) throws FHIRException {
+    FHIRPathExecutionPlan expression = null;
+    String type = null;
+    if (tgt.getTransform() == StructureMapTransform.EVALUATE && tgt.hasParameter()) {
+      // the expression is the last parameter (see parseTarget)
+      DataType p = tgt.getParameter().get(tgt.getParameter().size() - 1).getValue();
+      if (!(p instanceof IdType) && p.hasPrimitiveValue())
+        expression = compileExpression(p.primitiveValue());
+    } else if (tgt.getTransform() == StructureMapTransform.CREATE && tgt.hasParameter()) {
+      DataType p = tgt.getParameter().get(0).getValue();
+      if (!(p instanceof IdType) && p.hasPrimitiveValue()) {
+        type = p.primitiveValue();
+        for (StructureMapStructureComponent uses : map.getStructure()) {
+          if (uses.getMode() == StructureMapModelMode.TARGET && uses.hasAlias() && type.equals(uses.getAlias())) {
+            type = uses.getUrl();
+            break;
+          }
+        }
+      }
+    }
+    return new TargetPlan(expression, type);
+  }
+
+  private FHIRPathExecutionPlan compileExpression(String expression) throws FHIRException {
+    return fpe.compile(fpe.parseCached(expression));
+  }
+
+  private void transform(TransformContext context, Base source, StructureMap map, Base target) throws FHIRException {
     log("Start Transform " + map.getUrl());
     StructureMapGroupComponent g = map.getGroup().get(0);
 
@@ -1188,7 +1293,7 @@ public class StructureMapUtilities {
     log(indent + "Group : " + group.getName() + "; vars = " + vars.summary());
     // todo: check inputs
     if (group.hasExtends()) {
-      ResolvedGroup rg = resolveGroupReference(map, group, group.getExtends());
+      ResolvedGroup rg = resolveGroupReference(context, map, group, group.getExtends());
       executeGroup(indent + " ", context, rg.targetMap, vars, rg.target, false);
     }
 
@@ -1223,7 +1328,7 @@ public class StructureMapUtilities {
           Base tgt = v.get(VariableMode.OUTPUT, rule.getTargetFirstRep().getVariable());
           String srcType = src.fhirType();
           String tgtType = tgt.fhirType();
-          ResolvedGroup defGroup = resolveGroupByTypes(map, rule.getName(), group, srcType, tgtType);
+          ResolvedGroup defGroup = resolveGroupByTypes(context, map, rule.getName(), group, srcType, tgtType);
           Variables vdef = new Variables();
           vdef.add(VariableMode.INPUT, defGroup.target.getInput().get(0).getName(), src);
           vdef.add(VariableMode.OUTPUT, defGroup.target.getInput().get(1).getName(), tgt);
@@ -1234,7 +1339,7 @@ public class StructureMapUtilities {
   }
 
   private void executeDependency(String indent, TransformContext context, StructureMap map, Variables vin, StructureMapGroupComponent group, StructureMapGroupRuleDependentComponent dependent) throws FHIRException {
-    ResolvedGroup rg = resolveGroupReference(map, group, dependent.getName());
+    ResolvedGroup rg = resolveGroupReference(context, map, group, dependent.getName());
 
     if (rg.target.getInput().size() != dependent.getVariable().size()) {
       throw new FHIRException("Rule '" + dependent.getName() + "' has " + rg.target.getInput().size() + " but the invocation has " + dependent.getVariable().size() + " variables");
@@ -1255,12 +1360,27 @@ public class StructureMapUtilities {
     executeGroup(indent + "  ", context, rg.targetMap, v, rg.target, false);
   }
 
-  private String determineTypeFromSourceType(StructureMap map, StructureMapGroupComponent source, Base base, String[] types) throws FHIRException {
+  private String determineTypeFromSourceType(TransformContext context, StructureMap map, StructureMapGroupComponent source, Base base, String[] types) throws FHIRException {
     String type = base.fhirType();
+    if (context.getPlan() != null) {
+      Map<String, String> cache = context.getPlan().getTargetTypes(source);
+      String result = cache.get(type);
+      if (result == null) {
+        result = findTypeFromSourceType(context, map, type);
+        cache.put(type, result);
+      }
+      return result;
+    }
     String kn = "type^" + type;
     if (source.hasUserData(kn))
       return source.getUserString(kn);
 
+    String result = findTypeFromSourceType(context, map, type);
+    source.setUserData(kn, result);
+    return result;
+  }
+
+  private String findTypeFromSourceType(TransformContext context, StructureMap map, String type) throws FHIRException {
     ResolvedGroup res = new ResolvedGroup();
     res.targetMap = null;
     res.target = null;
@@ -1274,34 +1394,43 @@ public class StructureMapUtilities {
       }
     }
     if (res.targetMap != null) {
-      String result = getActualType(res.targetMap, res.target.getInput().get(1).getType());
-      source.setUserData(kn, result);
-      return result;
+      return getActualType(res.targetMap, res.target.getInput().get(1).getType());
+    }
+
+    for (StructureMap impMap : getImports(context, map)) {
+      for (StructureMapGroupComponent grp : impMap.getGroup()) {
+        if (matchesByType(impMap, grp, type)) {
+          if (res.targetMap == null) {
+            res.targetMap = impMap;
+            res.target = grp;
+          } else
+            throw new FHIRException("Multiple possible matches for default rule for '" + type + "' in " + res.targetMap.getUrl() + " (" + res.target.getName() + ") and " + impMap.getUrl() + " (" + grp.getName() + ")");
+        }
+      }
     }
+    if (res.target == null)
+      throw new FHIRException("No matches found for default rule for '" + type + "' from " + map.getUrl());
+    return getActualType(res.targetMap, res.target.getInput().get(1).getType()); // should be .getType, but R2...
+  }
+
+  private List<StructureMap> getImports(TransformContext context, StructureMap map) throws FHIRException {
+    if (context != null && context.getPlan() != null && context.getPlan().getImports(map) != null)
+      return context.getPlan().getImports(map);
+    return findImports(map);
+  }
 
+  private List<StructureMap> findImports(StructureMap map) throws FHIRException {
+    List<StructureMap> res = new ArrayList<StructureMap>();
     for (UriType imp : map.getImport()) {
       List<StructureMap> impMapList = findMatchingMaps(imp.getValue());
       if (impMapList.size() == 0)
         throw new FHIRException("Unable to find map(s) for " + imp.getValue());
       for (StructureMap impMap : impMapList) {
-        if (!impMap.getUrl().equals(map.getUrl())) {
-          for (StructureMapGroupComponent grp : impMap.getGroup()) {
-            if (matchesByType(impMap, grp, type)) {
-              if (res.targetMap == null) {
-                res.targetMap = impMap;
-                res.target = grp;
-              } else
-                throw new FHIRException("Multiple possible matches for default rule for '" + type + "' in " + res.targetMap.getUrl() + " (" + res.target.getName() + ") and " + impMap.getUrl() + " (" + grp.getName() + ")");
-            }
-          }
-        }
+        if (!impMap.getUrl().equals(map.getUrl()))
+          res.add(impMap);
       }
     }
-    if (res.target == null)
-      throw new FHIRException("No matches found for default rule for '" + type + "' from " + map.getUrl());
-    String result = getActualType(res.targetMap, res.target.getInput().get(1).getType()); // should be .getType, but R2...
-    source.setUserData(kn, result);
-    return result;
+    return res;
   }
 
   private List<StructureMap> findMatchingMaps(String value) {
@@ -1331,11 +1460,26 @@ public class StructureMapUtilities {
     return url.length() > mask.length() && url.startsWith(mask.substring(0, mask.indexOf("*"))) && url.endsWith(mask.substring(mask.indexOf("*") + 1));
   }
 
-  private ResolvedGroup resolveGroupByTypes(StructureMap map, String ruleid, StructureMapGroupComponent source, String srcType, String tgtType) throws FHIRException {
+  private ResolvedGroup resolveGroupByTypes(TransformContext context, StructureMap map, String ruleid, StructureMapGroupComponent source, String srcType, String tgtType) throws FHIRException {
+    if (context.getPlan() != null) {
+      Map<String, ResolvedGroup> cache = context.getPlan().getGroupsForTypes(source);
+      ResolvedGroup res = cache.get(srcType + ":" + tgtType);
+      if (res == null) {
+        res = findGroupByTypes(context, map, ruleid, srcType, tgtType);
+        cache.put(srcType + ":" + tgtType, res);
+      }
+      return res;
+    }
     String kn = "types^" + srcType + ":" + tgtType;
     if (source.hasUserData(kn))
       return (ResolvedGroup) source.getUserData(kn);
 
+    ResolvedGroup res = findGroupByTypes(context, map, ruleid, srcType, tgtType);
+    source.setUserData(kn, res);
+    return res;
+  }
+
+  private ResolvedGroup findGroupByTypes(TransformContext context, StructureMap map, String ruleid, String srcType, String tgtType) throws FHIRException {
     ResolvedGroup res = new ResolvedGroup();
     res.targetMap = null;
     res.target = null;
@@ -1349,31 +1493,22 @@ public class StructureMapUtilities {
       }
     }
     if (res.targetMap != null) {
-      source.setUserData(kn, res);
       return res;
     }
 
-    for (UriType imp : map.getImport()) {
-      List<StructureMap> impMapList = findMatchingMaps(imp.getValue());
-      if (impMapList.size() == 0)
-        throw new FHIRException("Unable to find map(s) for " + imp.getValue());
-      for (StructureMap impMap : impMapList) {
-        if (!impMap.getUrl().equals(map.getUrl())) {
-          for (StructureMapGroupComponent grp : impMap.getGroup()) {
-            if (matchesByType(impMap, grp, srcType, tgtType)) {
-              if (res.targetMap == null) {
-                res.targetMap = impMap;
-                res.target = grp;
-              } else
-                throw new FHIRException("Multiple possible matches for rule for '" + srcType + "/" + tgtType + "' in " + res.targetMap.getUrl() + " and " + impMap.getUrl() + ", from rule '" + ruleid + "'");
-            }
-          }
+    for (StructureMap impMap : getImports(context, map)) {
+      for (StructureMapGroupComponent grp : impMap.getGroup()) {
+        if (matchesByType(impMap, grp, srcType, tgtType)) {
+          if (res.targetMap == null) {
+            res.targetMap = impMap;
+            res.target = grp;
+          } else
+            throw new FHIRException("Multiple possible matches for rule for '" + srcType + "/" + tgtType + "' in " + res.targetMap.getUrl() + " and " + impMap.getUrl() + ", from rule '" + ruleid + "'");
         }
       }
     }
     if (res.target == null)
       throw new FHIRException("No matches found for rule for '" + srcType + " to " + tgtType + "' from " + map.getUrl() + ", from rule '" + ruleid + "'");
-    source.setUserData(kn, res);
     return res;
   }
 
@@ -1434,11 +1569,22 @@ public class StructureMapUtilities {
   }
 
 
-  private ResolvedGroup resolveGroupReference(StructureMap map, StructureMapGroupComponent source, String name) throws FHIRException {
+  private ResolvedGroup resolveGroupReference(TransformContext context, StructureMap map, StructureMapGroupComponent source, String name) throws FHIRException {
+    if (context.getPlan() != null) {
+      // these are all resolved when the map is compiled, so this should always be found
+      ResolvedGroup res = context.getPlan().getReference(source, name);
+      return res != null ? res : findGroupReference(context, map, name);
+    }
     String kn = "ref^" + name;
     if (source.hasUserData(kn))
       return (ResolvedGroup) source.getUserData(kn);
 
+    ResolvedGroup res = findGroupReference(context, map, name);
+    source.setUserData(kn, res);
+    return res;
+  }
+
+  private ResolvedGroup findGroupReference(TransformContext context, StructureMap map, String name) throws FHIRException {
     ResolvedGroup res = new ResolvedGroup();
     res.targetMap = null;
     res.target = null;
@@ -1452,45 +1598,41 @@ public class StructureMapUtilities {
       }
     }
     if (res.targetMap != null) {
-      source.setUserData(kn, res);
       return res;
     }
 
-    for (UriType imp : map.getImport()) {
-      List<StructureMap> impMapList = findMatchingMaps(imp.getValue());
-      if (impMapList.size() == 0)
-        throw new FHIRException("Unable to find map(s) for " + imp.getValue());
-      for (StructureMap impMap : impMapList) {
-        if (!impMap.getUrl().equals(map.getUrl())) {
-          for (StructureMapGroupComponent grp : impMap.getGroup()) {
-            if (grp.getName().equals(name)) {
-              if (res.targetMap == null) {
-                res.targetMap = impMap;
-                res.target = grp;
-              } else
-                throw new FHIRException("Multiple possible matches for rule group '" + name + "' in " +
-                  res.targetMap.getUrl() + "#" + res.target.getName() + " and " +
-                  impMap.getUrl() + "#" + grp.getName());
-            }
-          }
+    for (StructureMap impMap : getImports(context, map)) {
+      for (StructureMapGroupComponent grp : impMap.getGroup()) {
+        if (grp.getName().equals(name)) {
+          if (res.targetMap == null) {
+            res.targetMap = impMap;
+            res.target = grp;
+          } else
+            throw new FHIRException("Multiple possible matches for rule group '" + name + "' in " +
+              res.targetMap.getUrl() + "#" + res.target.getName() + " and " +
+              impMap.getUrl() + "#" + grp.getName());
         }
       }
     }
     if (res.target == null)
       throw new FHIRException("No matches found for rule '" + name + "'. Reference found in " + map.getUrl());
-    source.setUserData(kn, res);
     return res;
   }
 
   private List<Variables> processSource(String ruleId, TransformContext context, Variables vars, StructureMapGroupRuleSourceComponent src, String pathForErrors, String indent) throws FHIRException {
+    SourcePlan sp = context.getPlan() == null ? null : context.getPlan().getSource(src);
     List<Base> items;
     if (src.getContext().equals("@search")) {
-      ExpressionNode expr = (ExpressionNode) src.getUserData(MAP_SEARCH_EXPRESSION);
-      if (expr == null) {
-        expr = fpe.parse(src.getElement());
-        src.setUserData(MAP_SEARCH_EXPRESSION, expr);
+      String search;
+      if (sp != null && sp.getSearch() != null) {
+        search = fpe.convertToString(fpe.evaluate(vars, null, null, new StringType(), sp.getSearch()));
+      } else {
+        ExpressionNode expr = (ExpressionNode) src.getUserData(MAP_SEARCH_EXPRESSION);
+        if (expr == null) {
+          expr = fpe.parseCached(src.getElement());
+        }
+        search = fpe.evaluateToString(vars, null, null, new StringType(), expr); // string is a holder of nothing to ensure that variables are processed correctly 
       }
-      String search = fpe.evaluateToString(vars, null, null, new StringType(), expr); // string is a holder of nothing to ensure that variables are processed correctly 
       items = services.performSearch(context.getAppInfo(), search);
     } else {
       items = new ArrayList<Base>();
@@ -1518,15 +1660,17 @@ public class StructureMapUtilities {
     }
 
     if (src.hasCondition()) {
-      ExpressionNode expr = (ExpressionNode) src.getUserData(MAP_WHERE_EXPRESSION);
-      if (expr == null) {
-        expr = fpe.parse(src.getCondition());
-        //        fpe.check(context.appInfo, ??, ??, expr)
-        src.setUserData(MAP_WHERE_EXPRESSION, expr);
+      ExpressionNode expr = null;
+      if (sp == null || sp.getCondition() == null) {
+        expr = (ExpressionNode) src.getUserData(MAP_WHERE_EXPRESSION);
+        if (expr == null) {
+          expr = fpe.parseCached(src.getCondition());
+          //        fpe.check(context.appInfo, ??, ??, expr)
+        }
       }
       List<Base> remove = new ArrayList<Base>();
       for (Base item : items) {
-        if (!fpe.evaluateToBoolean(vars, null, null, item, expr)) {
+        if (!(expr == null ? fpe.evaluateToBoolean(vars, null, null, item, sp.getCondition()) : fpe.evaluateToBoolean(vars, null, null, item, expr))) {
           log(indent + "  condition [" + src.getCondition() + "] for " + item.toString() + " : false");
           remove.add(item);
         } else
@@ -1536,29 +1680,32 @@ public class StructureMapUtilities {
     }
 
     if (src.hasCheck()) {
-      ExpressionNode expr = (ExpressionNode) src.getUserData(MAP_WHERE_CHECK);
-      if (expr == null) {
-        expr = fpe.parse(src.getCheck());
-        //        fpe.check(context.appInfo, ??, ??, expr)
-        src.setUserData(MAP_WHERE_CHECK, expr);
+      ExpressionNode expr = null;
+      if (sp == null || sp.getCheck() == null) {
+        expr = (ExpressionNode) src.getUserData(MAP_WHERE_CHECK);
+        if (expr == null) {
+          expr = fpe.parseCached(src.getCheck());
+          //        fpe.check(context.appInfo, ??, ??, expr)
+        }
       }
-      List<Base> remove = new ArrayList<Base>();
       for (Base item : items) {
-        if (!fpe.evaluateToBoolean(vars, null, null, item, expr))
+        if (!(expr == null ? fpe.evaluateToBoolean(vars, null, null, item, sp.getCheck()) : fpe.evaluateToBoolean(vars, null, null, item, expr)))
           throw new FHIRException("Rule \"" + ruleId + "\": Check condition failed");
       }
     }
 
     if (src.hasLogMessage()) {
-      ExpressionNode expr = (ExpressionNode) src.getUserData(MAP_WHERE_LOG);
-      if (expr == null) {
-        expr = fpe.parse(src.getLogMessage());
-        //        fpe.check(context.appInfo, ??, ??, expr)
-        src.setUserData(MAP_WHERE_LOG, expr);
+      ExpressionNode expr = null;
+      if (sp == null || sp.getLogMessage() == null) {
+        expr = (ExpressionNode) src.getUserData(MAP_WHERE_LOG);
+        if (expr == null) {
+          expr = fpe.parseCached(src.getLogMessage());
+          //        fpe.check(context.appInfo, ??, ??, expr)
+        }
       }
       CommaSeparatedStringBuilder b = new CommaSeparatedStringBuilder();
       for (Base item : items)
-        b.appendIfNotNull(fpe.evaluateToString(vars, null, null, item, expr));
+        b.appendIfNotNull(expr == null ? fpe.convertToString(fpe.evaluate(vars, null, null, item, sp.getLogMessage())) : fpe.evaluateToString(vars, null, null, item, expr));
       if (b.length() > 0)
         services.log(b.toString());
     }
@@ -1636,6 +1783,7 @@ public class StructureMapUtilities {
   }
 
   private Base runTransform(String ruleId, TransformContext context, StructureMap map, StructureMapGroupComponent group, StructureMapGroupRuleTargetComponent tgt, Variables vars, Base dest, String element, String srcVar, boolean root) throws FHIRException {
+    TargetPlan tp = context.getPlan() == null ? null : context.getPlan().getTarget(tgt);
     try {
       switch (tgt.getTransform()) {
         case CREATE:
@@ -1646,9 +1794,11 @@ public class StructureMapUtilities {
             if (types.length == 1 && !"*".equals(types[0]) && !types[0].equals("Resource"))
               tn = types[0];
             else if (srcVar != null) {
-              tn = determineTypeFromSourceType(map, group, vars.get(VariableMode.INPUT, srcVar), types);
+              tn = determineTypeFromSourceType(context, map, group, vars.get(VariableMode.INPUT, srcVar), types);
             } else
               throw new Error("Cannot determine type implicitly because there is no single input variable");
+          } else if (tp != null && tp.getType() != null) {
+            tn = tp.getType();
           } else {
             tn = getParamStringNoNull(vars, tgt.getParameter().get(0), tgt.toString());
             // ok, now we resolve the type name against the import statements
@@ -1671,16 +1821,24 @@ public class StructureMapUtilities {
         case COPY:
           return getParam(vars, tgt.getParameter().get(0));
         case EVALUATE:
-          ExpressionNode expr = (ExpressionNode) tgt.getUserData(MAP_EXPRESSION);
-          if (expr == null) {
-            expr = fpe.parse(getParamStringNoNull(vars, tgt.getParameter().get(0), tgt.toString()));
-            tgt.setUserData(MAP_WHERE_EXPRESSION, expr);
+          Base focus = tgt.getParameter().size() == 2 ? getParam(vars, tgt.getParameter().get(0)) : new BooleanType(false);
+          List<Base> v;
+          String exprText;
+          if (tp != null && tp.getExpression() != null) {
+            v = fpe.evaluate(vars, null, null, focus, tp.getExpression());
+            exprText = tp.getExpression().toString();
+          } else {
+            ExpressionNode expr = (ExpressionNode) tgt.getUserData(MAP_EXPRESSION);
+            if (expr == null) {
+              expr = fpe.parseCached(getParamStringNoNull(vars, tgt.getParameter().get(0), tgt.toString()));
+            }
+            v = fpe.evaluate(vars, null, null, focus, expr);
+            exprText = expr.toString();
           }
-          List<Base> v = fpe.evaluate(vars, null, null, tgt.getParameter().size() == 2 ? getParam(vars, tgt.getParameter().get(0)) : new BooleanType(false), expr);
           if (v.size() == 0)
             return null;
           else if (v.size() != 1)
-            throw new FHIRException("Rule \"" + ruleId + "\": Evaluation of " + expr.toString() + " returned " + v.size() + " objects");
+            throw new FHIRException("Rule \"" + ruleId + "\": Evaluation of " + exprText + " returned " + v.size() + " objects");
           else
             return v.get(0);
 
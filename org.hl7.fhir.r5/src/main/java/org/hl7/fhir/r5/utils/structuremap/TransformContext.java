@@ -2,14 +2,28 @@ package org.hl7.fhir.r5.utils.structuremap;
 
 public class TransformContext {
   private Object appInfo;
+  private StructureMapExecutionPlan plan;
 
   public TransformContext(Object appInfo) {
     super();
     this.appInfo = appInfo;
   }
 
+  public TransformContext(Object appInfo, StructureMapExecutionPlan plan) {
+    super();
+    this.appInfo = appInfo;
+    this.plan = plan;
+  }
+
   public Object getAppInfo() {
     return appInfo;
   }
 
+  /**
+   * @return the compiled map being executed, or null if the map is being interpreted
+   */
+  public StructureMapExecutionPlan getPlan() {
+    return plan;
+  }
+
 }
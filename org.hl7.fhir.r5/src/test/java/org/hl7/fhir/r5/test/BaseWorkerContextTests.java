@@ -0,0 +1,85 @@
+package org.hl7.fhir.r5.test;
+
+import org.hl7.fhir.r5.context.SimpleWorkerContext;
+import org.hl7.fhir.r5.elementmodel.Property;
+import org.hl7.fhir.r5.model.ActivityDefinition;
+import org.hl7.fhir.r5.model.CodeSystem;
+import org.hl7.fhir.r5.model.Resource;
+import org.hl7.fhir.r5.model.StructureDefinition;
+import org.hl7.fhir.r5.model.StructureDefinition.StructureDefinitionKind;
+import org.hl7.fhir.r5.model.ValueSet;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class BaseWorkerContextTests {
+
+  @Test
+  public void testUntypedCanonicalFetch() throws Exception {
+    SimpleWorkerContext ctxt = SimpleWorkerContext.fromNothing();
+    ValueSet vs = new ValueSet();
+    vs.setId("vs1");
+    vs.setUrl("http://url/ValueSet/1");
+    vs.setVersion("1.0.0");
+    ctxt.cacheResource(vs);
+    CodeSystem cs = new CodeSystem();
+    cs.setId("cs1");
+    cs.setUrl("http://url/CodeSystem/1");
+    ctxt.cacheResource(cs);
+    ActivityDefinition ad = new ActivityDefinition();
+    ad.setId("ad1");
+    ad.setUrl("http://url/ActivityDefinition/1");
+    ctxt.cacheResource(ad);
+
+    Assertions.assertSame(vs, ctxt.fetchResource(Resource.class, "http://url/ValueSet/1"));
+    Assertions.assertSame(vs, ctxt.fetchResource(Resource.class, "http://url/ValueSet/1|1.0"));
+    Assertions.assertNull(ctxt.fetchResource(Resource.class, "http://url/ValueSet/1|2.0"));
+    Assertions.assertSame(vs, ctxt.fetchResource(Resource.class, "vs1"));
+    Assertions.assertSame(cs, ctxt.fetchResource(Resource.class, "http://url/CodeSystem/1"));
+    // not kept in any of the canonical managers
+    Assertions.assertSame(ad, ctxt.fetchResource(Resource.class, "http://url/ActivityDefinition/1"));
+    Assertions.assertNull(ctxt.fetchResource(Resource.class, "http://url/ValueSet/2"));
+
+    // a resource with the same url in a manager that is earlier in the search order wins
+    CodeSystem cs2 = new CodeSystem();
+    cs2.setId("cs2");
+    cs2.setUrl("http://url/ValueSet/1");
+    ctxt.cacheResource(cs2);
+    Assertions.assertSame(vs, ctxt.fetchResource(Resource.class, "http://url/ValueSet/1"));
+    ctxt.dropResource("ValueSet", "vs1");
+    Assertions.assertSame(cs2, ctxt.fetchResource(Resource.class, "http://url/ValueSet/1"));
+    ctxt.dropResource("CodeSystem", "cs2");
+    Assertions.assertNull(ctxt.fetchResource(Resource.class, "http://url/ValueSet/1"));
+
+    ctxt.dropResource("ActivityDefinition", "ad1");
+    Assertions.assertNull(ctxt.fetchResource(Resource.class, "http://url/ActivityDefinition/1"));
+  }
+
+  @Test
+  public void testPropertyCache() throws Exception {
+    SimpleWorkerContext ctxt = SimpleWorkerContext.fromNothing();
+    StructureDefinition sd = new StructureDefinition();
+    sd.setId("Test");
+    sd.setUrl("http://url/StructureDefinition/Test");
+    sd.setKind(StructureDefinitionKind.LOGICAL);
+    sd.getSnapshot().addElement().setPath("Test").setId("Test");
+    sd.getSnapshot().addElement().setPath("Test.a").setId("Test.a");
+    ctxt.cacheResource(sd);
+
+    Property root = new Property(ctxt, sd.getSnapshot().getElementFirstRep(), sd);
+    Property a = root.getChild("Test", "a");
+    Assertions.assertNotNull(a);
+    // another parse gets the same properties
+    Assertions.assertSame(a, new Property(ctxt, sd.getSnapshot().getElementFirstRep(), sd).getChild("Test", "a"));
+    Assertions.assertEquals(1, ctxt.getPropertyCache().size());
+
+    StructureDefinition other = new StructureDefinition();
+    other.setId("Other");
+    other.setUrl("http://url/StructureDefinition/Other");
+    ctxt.cacheResource(other);
+    Assertions.assertEquals(0, ctxt.getPropertyCache().size());
+    Property a2 = root.getChild("Test", "a");
+    Assertions.assertNotSame(a, a2);
+    Assertions.assertSame(a2, root.getChild("Test", "a"));
+  }
+
+}
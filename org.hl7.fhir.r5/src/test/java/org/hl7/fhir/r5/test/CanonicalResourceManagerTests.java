@@ -1,5 +1,13 @@
 package org.hl7.fhir.r5.test;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.hl7.fhir.r5.context.CanonicalResourceManager;
 import org.hl7.fhir.r5.context.CanonicalResourceManager.CanonicalResourceProxy;
 import org.hl7.fhir.r5.context.IWorkerContext.PackageVersion;
@@ -808,5 +816,53 @@ public class CanonicalResourceManagerTests {
     Assertions.assertNull(mrm.get("http://url/ValueSet/234", "4.1"));
   }
 
+  @Test
+  public void testConcurrentDeferredLoad() throws Exception {
+    CanonicalResourceManager<ValueSet> mrm = new CanonicalResourceManager<>(true);
+    final AtomicInteger loads = new AtomicInteger();
+    for (int i = 0; i < 100; i++) {
+      final ValueSet vs = new ValueSet();
+      vs.setId("vs"+i);
+      vs.setUrl("http://url/ValueSet/"+i);
+      vs.setVersion("4.0.1");
+      mrm.register(new CanonicalResourceProxy(vs.fhirType(), vs.getId(), vs.getUrl(), vs.getVersion()) {
+        @Override
+        public CanonicalResource loadResource() {
+          loads.incrementAndGet();
+          return vs;
+        }
+      }, null);
+    }
+
+    int threads = 8;
+    ExecutorService exec = Executors.newFixedThreadPool(threads);
+    try {
+      final CountDownLatch start = new CountDownLatch(1);
+      List<Future<Integer>> results = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        results.add(exec.submit(() -> {
+          start.await();
+          int found = 0;
+          for (int i = 0; i < 100; i++) {
+            if (mrm.get("http://url/ValueSet/"+i, "4.0") != null && mrm.has("http://url/ValueSet/"+i) && mrm.get("vs"+i) != null) {
+              found++;
+            }
+          }
+          return found;
+        }));
+      }
+      start.countDown();
+      for (Future<Integer> f : results) {
+        Assertions.assertEquals(100, f.get().intValue());
+      }
+    } finally {
+      exec.shutdown();
+    }
+    // every deferred resource is parsed once, no matter how many threads asked for it
+    Assertions.assertEquals(100, loads.get());
+    Assertions.assertEquals(100, mrm.getList().size());
+  }
+
+
 
 }
\ No newline at end of file
@@ -0,0 +1,93 @@
+package org.hl7.fhir.r5.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.hl7.fhir.r5.context.ContextImage;
+import org.hl7.fhir.r5.context.IWorkerContext.PackageVersion;
+import org.hl7.fhir.r5.context.SimpleWorkerContext;
+import org.hl7.fhir.r5.model.CodeSystem;
+import org.hl7.fhir.r5.model.StructureDefinition;
+import org.hl7.fhir.r5.model.ValueSet;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ContextImageTests {
+
+  @Test
+  public void testRoundTrip() throws IOException {
+    SimpleWorkerContext context = SimpleWorkerContext.fromNothing();
+    context.setAllowLoadingDuplicates(true);
+    StructureDefinition sd = new StructureDefinition();
+    sd.setId("test");
+    sd.setUrl("http://example.org/fhir/StructureDefinition/test");
+    sd.setVersion("1.0.0");
+    sd.getSnapshot().addElement().setPath("Patient");
+    sd.setUserData("path", "http://example.org/fhir/StructureDefinition-test.html");
+    context.cacheResourceFromPackage(sd, new PackageVersion("example.fhir", "1.0.0"));
+    ValueSet vs1 = new ValueSet();
+    vs1.setId("vs1");
+    vs1.setUrl("http://example.org/fhir/ValueSet/test");
+    vs1.setVersion("1.0.0");
+    context.cacheResource(vs1);
+    ValueSet vs2 = vs1.copy();
+    vs2.setId("vs2");
+    vs2.setVersion("2.0.0");
+    context.cacheResource(vs2);
+    CodeSystem cs = new CodeSystem();
+    cs.setId("cs");
+    cs.setUrl("http://example.org/fhir/CodeSystem/test");
+    cs.addConcept().setCode("a");
+    context.cacheResource(cs);
+    context.getBinaries().put("spec.internals", new byte[] { 1, 2, 3 });
+    context.getLoadedPackages().add("example.fhir#1.0.0");
+
+    File file = File.createTempFile("context", ".image");
+    try {
+      ContextImage.save(context, file.getAbsolutePath());
+      SimpleWorkerContext loaded = SimpleWorkerContext.fromImage(file.getAbsolutePath());
+
+      Assertions.assertEquals(context.countAllCaches(), loaded.countAllCaches());
+      Assertions.assertTrue(loaded.hasPackage("example.fhir", "1.0.0"));
+      Assertions.assertArrayEquals(new byte[] { 1, 2, 3 }, loaded.getBinaries().get("spec.internals"));
+
+      StructureDefinition lsd = loaded.fetchResource(StructureDefinition.class, "http://example.org/fhir/StructureDefinition/test");
+      Assertions.assertTrue(lsd.equalsDeep(sd));
+      Assertions.assertEquals("http://example.org/fhir/StructureDefinition-test.html", lsd.getUserString("path"));
+      // the latest version is still the default
+      Assertions.assertEquals("2.0.0", loaded.fetchResource(ValueSet.class, "http://example.org/fhir/ValueSet/test").getVersion());
+      Assertions.assertEquals("1.0.0", loaded.fetchResource(ValueSet.class, "http://example.org/fhir/ValueSet/test|1.0.0").getVersion());
+      Assertions.assertNotNull(loaded.fetchCodeSystem("http://example.org/fhir/CodeSystem/test"));
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testSources() throws IOException {
+    SimpleWorkerContext context = SimpleWorkerContext.fromNothing();
+    File file = File.createTempFile("context", ".image");
+    try {
+      ContextImage.save(context, file.getAbsolutePath(), Arrays.asList("ig=example.fhir#1.0.0", "definitions=hl7.fhir.r4.core#4.0.1"));
+      // the order doesn't matter
+      Assertions.assertNotNull(SimpleWorkerContext.fromImage(file.getAbsolutePath(), Arrays.asList("definitions=hl7.fhir.r4.core#4.0.1", "ig=example.fhir#1.0.0")));
+      Assertions.assertNotNull(SimpleWorkerContext.fromImage(file.getAbsolutePath()));
+      Assertions.assertThrows(IOException.class, () -> SimpleWorkerContext.fromImage(file.getAbsolutePath(), Arrays.asList("definitions=hl7.fhir.r4.core#4.0.1")));
+      Assertions.assertThrows(IOException.class, () -> SimpleWorkerContext.fromImage(file.getAbsolutePath(), Arrays.asList("definitions=hl7.fhir.r4.core#4.0.1", "ig=example.fhir#1.0.1")));
+    } finally {
+      file.delete();
+    }
+  }
+
+  @Test
+  public void testNotAnImage() throws IOException {
+    File file = File.createTempFile("context", ".image");
+    try {
+      Assertions.assertThrows(IOException.class, () -> SimpleWorkerContext.fromImage(file.getAbsolutePath()));
+    } finally {
+      file.delete();
+    }
+  }
+
+}
@@ -0,0 +1,82 @@
+package org.hl7.fhir.r5.test;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.hl7.fhir.r5.context.SimpleWorkerContext;
+import org.hl7.fhir.r5.model.Base;
+import org.hl7.fhir.r5.model.ContactPoint.ContactPointSystem;
+import org.hl7.fhir.r5.model.Enumerations.AdministrativeGender;
+import org.hl7.fhir.r5.model.HumanName.NameUse;
+import org.hl7.fhir.r5.model.Patient;
+import org.hl7.fhir.r5.utils.FHIRPathEngine;
+import org.hl7.fhir.r5.utils.FHIRPathExecutionPlan;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+public class FHIRPathExecutionPlanTests {
+
+  private static FHIRPathEngine fp;
+  private static Patient patient;
+
+  @BeforeAll
+  public static void setUp() throws IOException {
+    fp = new FHIRPathEngine(SimpleWorkerContext.fromNothing());
+    patient = new Patient();
+    patient.setActive(true);
+    patient.setGender(AdministrativeGender.FEMALE);
+    patient.addName().setUse(NameUse.OFFICIAL).setFamily("Chalmers").addGiven("Peter").addGiven("James");
+    patient.addName().setUse(NameUse.USUAL).addGiven("Jim");
+    patient.addTelecom().setSystem(ContactPointSystem.PHONE).setValue("555");
+    patient.addTelecom().setValue("556");
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {
+    "name.given",
+    "name.where(use = 'official').given.first()",
+    "name.exists() and gender.exists()",
+    "telecom.all(system.exists())",
+    "name.select(given).count()",
+    "(name.given | name.family).count() > 3",
+    "identifier.empty()",
+    "active implies gender.exists()",
+    "name.given.exists($this = 'Jim')",
+    "name.given.where($this.startsWith('J')).count() = 2",
+    "telecom.value.exists() and (telecom.system.count() = 1 or birthDate.exists())",
+    "-1 + 2",
+    "name.family.is(string)",
+    "name.given[1]",
+    "name.family.matches('C[a-z]+')",
+    "name.given.where(matches('^J.*')).count()",
+    "name.family.replaceMatches('[aeiou]', '_')"
+  })
+  public void testSameAsInterpreter(String expression) {
+    FHIRPathExecutionPlan plan = fp.compile(fp.parse(expression));
+    List<Base> expected = fp.evaluate(null, patient, patient, patient, fp.parse(expression));
+    List<Base> actual = fp.evaluate(null, patient, patient, patient, plan);
+    Assertions.assertEquals(fp.convertToString(expected), fp.convertToString(actual), expression);
+    Assertions.assertEquals(expected.size(), actual.size(), expression);
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = {
+    "name.where(use = 'official').given.first()",
+    "telecom.all(system.exists())",
+    "active implies gender.exists()"
+  })
+  public void testNotInterpreted(String expression) {
+    Assertions.assertEquals(0, fp.compile(fp.parse(expression)).getInterpretedSteps(), expression);
+  }
+
+  @Test
+  public void testPlansShared() {
+    // one plan for an expression, wherever it's used
+    FHIRPathExecutionPlan plan = fp.compile("hasValue() or (children().count() > id.count())");
+    Assertions.assertSame(plan, fp.compile("hasValue() or (children().count() > id.count())"));
+    Assertions.assertNotSame(plan, fp.compile("hasValue()"));
+  }
+}
@@ -0,0 +1,54 @@
+package org.hl7.fhir.r5.test;
+
+import java.io.IOException;
+
+import org.hl7.fhir.r5.context.SimpleWorkerContext;
+import org.hl7.fhir.r5.model.ExpressionNode;
+import org.hl7.fhir.r5.model.StringType;
+import org.hl7.fhir.r5.utils.FHIRPathEngine;
+import org.hl7.fhir.r5.utils.FHIRPathExpressionCache;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class FHIRPathExpressionCacheTests {
+
+  @Test
+  public void testSharedBetweenEngines() throws IOException {
+    SimpleWorkerContext context = SimpleWorkerContext.fromNothing();
+    FHIRPathExpressionCache cache = new FHIRPathExpressionCache(10);
+    FHIRPathEngine fp1 = new FHIRPathEngine(context);
+    fp1.setExpressionCache(cache);
+    FHIRPathEngine fp2 = new FHIRPathEngine(context);
+    fp2.setExpressionCache(cache);
+
+    ExpressionNode n = fp1.parseCached("length() > 2");
+    Assertions.assertSame(n, fp2.parseCached("length() > 2"));
+    Assertions.assertNotSame(n, fp2.parse("length() > 2"));
+    Assertions.assertEquals("true", fp2.evaluateToString(new StringType("abc"), "length() > 2"));
+    Assertions.assertEquals(2, cache.getHits());
+    Assertions.assertEquals(1, cache.getMisses());
+    Assertions.assertEquals(1, cache.size());
+
+    fp1.setExpressionCache(null);
+    Assertions.assertNotSame(n, fp1.parseCached("length() > 2"));
+  }
+
+  @Test
+  public void testEviction() throws IOException {
+    FHIRPathEngine fp = new FHIRPathEngine(SimpleWorkerContext.fromNothing());
+    FHIRPathExpressionCache cache = new FHIRPathExpressionCache(10);
+    fp.setExpressionCache(cache);
+    ExpressionNode first = fp.parseCached("0");
+    for (int i = 1; i < 20; i++) {
+      fp.parseCached(Integer.toString(i));
+      // keep using the first one
+      Assertions.assertSame(first, fp.parseCached("0"));
+    }
+    Assertions.assertTrue(cache.size() <= 10);
+    Assertions.assertEquals(20 - cache.size(), cache.getEvictions());
+    long misses = cache.getMisses();
+    fp.parseCached("19");
+    fp.parseCached("1");
+    Assertions.assertEquals(misses + 1, cache.getMisses());
+  }
+}
@@ -0,0 +1,69 @@
+package org.hl7.fhir.r5.test;
+
+import java.io.IOException;
+
+import org.hl7.fhir.r5.context.SimpleWorkerContext;
+import org.hl7.fhir.r5.model.StringType;
+import org.hl7.fhir.r5.utils.FHIRPathEngine;
+import org.hl7.fhir.utilities.metrics.IMetrics;
+import org.hl7.fhir.utilities.metrics.InMemoryMetrics;
+import org.hl7.fhir.utilities.metrics.InMemoryMetrics.Stat;
+import org.hl7.fhir.utilities.metrics.NoOpMetrics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class MetricsTests {
+
+  @Test
+  public void testFHIRPathEvaluations() throws IOException {
+    SimpleWorkerContext context = SimpleWorkerContext.fromNothing();
+    FHIRPathEngine fp = new FHIRPathEngine(context);
+    Assertions.assertSame(NoOpMetrics.INSTANCE, context.getMetrics());
+    fp.evaluateToString(new StringType("abc"), "length() > 2");
+
+    InMemoryMetrics metrics = new InMemoryMetrics();
+    context.setMetrics(metrics);
+    fp.evaluateToString(new StringType("abc"), "length() > 2");
+    fp.evaluateToString(new StringType("abcd"), "length() > 2");
+    fp.evaluate(null, new StringType("abc"), new StringType("abc"), new StringType("abc"), fp.compile(fp.parse("length()")));
+
+    Stat s = metrics.getStat(IMetrics.FHIRPATH_EVALUATION, "length() > 2");
+    Assertions.assertNotNull(s);
+    Assertions.assertTrue(s.isTimer());
+    Assertions.assertEquals(2, s.getCount());
+    Assertions.assertEquals(1, metrics.getStat(IMetrics.FHIRPATH_EVALUATION, "length()").getCount());
+    Assertions.assertEquals(2, metrics.getTable(IMetrics.FHIRPATH_EVALUATION).size());
+
+    context.setMetrics(null);
+    Assertions.assertSame(NoOpMetrics.INSTANCE, context.getMetrics());
+  }
+
+  @Test
+  public void testTable() {
+    InMemoryMetrics metrics = new InMemoryMetrics();
+    for (int i = 1; i <= 100; i++) {
+      metrics.record("size", "a", i);
+    }
+    metrics.record("size", "b", 10000);
+    metrics.count("hits", "a");
+    metrics.count("hits", "a");
+
+    Stat a = metrics.getStat("size", "a");
+    Assertions.assertEquals(100, a.getCount());
+    Assertions.assertEquals(5050, a.getTotal());
+    Assertions.assertEquals(1, a.getMin());
+    Assertions.assertEquals(100, a.getMax());
+    Assertions.assertEquals(50.5, a.getMean(), 0.001);
+    // the percentiles are an upper bound from the power of 2 buckets
+    Assertions.assertTrue(a.getPercentile(50) >= 50 && a.getPercentile(50) <= 100);
+    Assertions.assertEquals(100, a.getPercentile(95));
+
+    Assertions.assertEquals("b", metrics.getTable("size").get(0).getKey());
+    Assertions.assertEquals(2, metrics.getStat("hits", "a").getCount());
+    Assertions.assertNull(metrics.getStat("hits", "b"));
+    Assertions.assertTrue(metrics.report("size", 1).startsWith("size (top 1 of 2)"));
+
+    metrics.reset();
+    Assertions.assertTrue(metrics.getNames().isEmpty());
+  }
+}
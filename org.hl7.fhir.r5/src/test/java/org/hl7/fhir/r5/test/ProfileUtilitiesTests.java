@@ -4,15 +4,18 @@ import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.fhir.ucum.UcumException;
 import org.hl7.fhir.exceptions.FHIRException;
 import org.hl7.fhir.r5.conformance.ProfileUtilities;
+import org.hl7.fhir.r5.context.SimpleWorkerContext;
 import org.hl7.fhir.r5.formats.IParser.OutputStyle;
 import org.hl7.fhir.r5.formats.XmlParser;
 import org.hl7.fhir.r5.model.Base;
 import org.hl7.fhir.r5.model.ElementDefinition;
+import org.hl7.fhir.r5.model.ElementDefinition.DiscriminatorType;
 import org.hl7.fhir.r5.model.StructureDefinition;
 import org.hl7.fhir.r5.model.StructureDefinition.TypeDerivationRule;
 import org.hl7.fhir.r5.test.utils.TestingUtilities;
@@ -20,6 +23,7 @@ import org.hl7.fhir.r5.utils.EOperationOutcome;
 import org.hl7.fhir.utilities.CSFile;
 import org.hl7.fhir.utilities.Utilities;
 import org.hl7.fhir.utilities.validation.ValidationMessage;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 public class ProfileUtilitiesTests {
@@ -794,6 +798,69 @@ public class ProfileUtilitiesTests {
 //  }
 //
 
+  @Test
+  public void testChildMapAndSliceList() throws FHIRException, IOException {
+    StructureDefinition sd = new StructureDefinition();
+    sd.setUrl("http://test.org/fhir/StructureDefinition/test");
+    addElement(sd, "Test", "Test");
+    addElement(sd, "Test.identifier", "Test.identifier").getSlicing().addDiscriminator().setType(DiscriminatorType.VALUE).setPath("system");
+    addElement(sd, "Test.identifier", "Test.identifier:a");
+    addElement(sd, "Test.identifier.system", "Test.identifier:a.system");
+    addElement(sd, "Test.identifier", "Test.identifier:b");
+    addElement(sd, "Test.identifier.system", "Test.identifier:b.system");
+    addElement(sd, "Test.identifier.value", "Test.identifier:b.value");
+    addElement(sd, "Test.name", "Test.name");
+    addElement(sd, "Test.name.family", "Test.name.family");
+    addElement(sd, "Test.part", "Test.part");
+    addElement(sd, "Test.part.name", "Test.part.name");
+    addElement(sd, "Test.part.part", "Test.part.part").setContentReference("#Test.part");
+
+    ProfileUtilities pu = new ProfileUtilities(SimpleWorkerContext.fromNothing(), new ArrayList<>(), null);
+    List<ElementDefinition> list = sd.getSnapshot().getElement();
+    Assertions.assertEquals(ids(list.get(1), list.get(2), list.get(4), list.get(7), list.get(9)), ids(pu.getChildMap(sd, list.get(0))));
+    Assertions.assertEquals(ids(), ids(pu.getChildMap(sd, list.get(1))));
+    Assertions.assertEquals(ids(list.get(3)), ids(pu.getChildMap(sd, list.get(2))));
+    Assertions.assertEquals(ids(list.get(5), list.get(6)), ids(pu.getChildMap(sd, list.get(4))));
+    Assertions.assertEquals(ids(list.get(2), list.get(4)), ids(pu.getSliceList(sd, list.get(1))));
+    Assertions.assertEquals(ids(list.get(10), list.get(11)), ids(pu.getChildMap(sd, list.get(11))));
+
+    // the caller owns the list it gets back
+    pu.getChildMap(sd, list.get(0)).clear();
+    Assertions.assertEquals(5, pu.getChildMap(sd, list.get(0)).size());
+
+    // changes to the snapshot are seen
+    ElementDefinition given = new ElementDefinition().setPath("Test.name.given");
+    given.setId("Test.name.given");
+    list.add(8, given);
+    Assertions.assertEquals(ids(list.get(8), list.get(9)), ids(pu.getChildMap(sd, list.get(7))));
+
+    // so are elements replaced in place, once the index is cleared
+    ElementDefinition suffix = new ElementDefinition().setPath("Test.name.suffix");
+    suffix.setId("Test.name.suffix");
+    list.set(8, suffix);
+    ProfileUtilities.clearSnapshotIndex(sd);
+    Assertions.assertEquals(ids(suffix, list.get(9)), ids(pu.getChildMap(sd, list.get(7))));
+  }
+
+  private ElementDefinition addElement(StructureDefinition sd, String path, String id) {
+    ElementDefinition ed = sd.getSnapshot().addElement();
+    ed.setPath(path);
+    ed.setId(id);
+    return ed;
+  }
+
+  private List<String> ids(ElementDefinition... list) {
+    return ids(Arrays.asList(list));
+  }
+
+  private List<String> ids(List<ElementDefinition> list) {
+    List<String> res = new ArrayList<>();
+    for (ElementDefinition ed : list) {
+      res.add(ed.getId());
+    }
+    return res;
+  }
+
   private void compareXml(StructureDefinition base, StructureDefinition focus) throws FileNotFoundException, IOException {
     base.setText(null);
     focus.setText(null);
@@ -0,0 +1,163 @@
+package org.hl7.fhir.r5.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import org.hl7.fhir.r5.context.SnapshotCache;
+import org.hl7.fhir.r5.model.StructureDefinition;
+import org.hl7.fhir.utilities.Utilities;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class SnapshotCacheTests {
+
+  private StructureDefinition base(String short_) {
+    StructureDefinition sd = new StructureDefinition();
+    sd.setUrl("http://example.org/fhir/StructureDefinition/base");
+    sd.setType("Patient");
+    sd.getSnapshot().addElement().setPath("Patient").setShort(short_);
+    return sd;
+  }
+
+  private StructureDefinition profile(String folder) {
+    StructureDefinition sd = new StructureDefinition();
+    sd.setUrl("http://example.org/fhir/StructureDefinition/profile");
+    sd.setType("Patient");
+    sd.setBaseDefinition("http://example.org/fhir/StructureDefinition/base");
+    sd.getDifferential().addElement().setPath("Patient.active").setMin(1);
+    sd.setUserData(SnapshotCache.UD_PACKAGE_FOLDER, folder);
+    return sd;
+  }
+
+  private String key(SnapshotCache cache, StructureDefinition profile, StructureDefinition base) throws IOException {
+    return cache.key(profile, base, new ArrayList<>(), false);
+  }
+
+  @Test
+  public void testKeyIncludesBase() throws IOException {
+    SnapshotCache cache = new SnapshotCache("cache", "1.0.0");
+    String k1 = key(cache, profile(null), base("A"));
+    Assertions.assertEquals(k1, key(cache, profile(null), base("A")));
+    Assertions.assertNotEquals(k1, key(cache, profile(null), base("B")));
+
+    // a base with a generated snapshot is known by its key from before the snapshot was generated
+    StructureDefinition generated = profile(null);
+    key(cache, generated, base("A"));
+    String k2 = key(cache, profile(null), generated);
+    generated.getSnapshot().addElement().setPath("Patient");
+    Assertions.assertEquals(k2, key(cache, profile(null), generated));
+  }
+
+  @Test
+  public void testKeyIncludesDependenciesAndSettings() throws IOException {
+    SnapshotCache cache = new SnapshotCache("cache", "1.0.0");
+    String k1 = key(cache, profile(null), base("A"));
+    Assertions.assertNotEquals(k1, cache.key(profile(null), base("A"), new ArrayList<>(), true));
+    Assertions.assertNotEquals(k1, cache.key(profile(null), base("A"), Arrays.asList(base("C")), false));
+    String k2 = cache.key(profile(null), base("A"), Arrays.asList(base("C")), false);
+    Assertions.assertEquals(k2, cache.key(profile(null), base("A"), Arrays.asList(base("C")), false));
+    Assertions.assertNotEquals(k2, cache.key(profile(null), base("A"), Arrays.asList(base("D")), false));
+
+    // a dependency is known by its content as it was loaded, whether or not its snapshot has been generated since
+    StructureDefinition dependency = profile(null);
+    String k3 = cache.key(profile(null), base("A"), Arrays.asList(dependency), false);
+    key(cache, dependency, base("B"));
+    dependency.getSnapshot().addElement().setPath("Patient");
+    Assertions.assertEquals(k3, cache.key(profile(null), base("A"), Arrays.asList(dependency), false));
+  }
+
+  @Test
+  public void testOtherVersion() throws IOException {
+    File root = Files.createTempDirectory("snapshots").toFile();
+    try {
+      String pkg = Utilities.path(root.getAbsolutePath(), "example.fhir#1.0.0");
+      SnapshotCache cache = new SnapshotCache(root.getAbsolutePath(), "1.0.0");
+      StructureDefinition p = profile(pkg);
+      String key = key(cache, p, base("A"));
+      p.getSnapshot().addElement().setPath("Patient");
+      cache.save(p, key);
+
+      // snapshots made by another version of the tools aren't used
+      SnapshotCache other = new SnapshotCache(root.getAbsolutePath(), "2.0.0");
+      StructureDefinition again = profile(pkg);
+      Assertions.assertEquals(key, key(other, again, base("A")));
+      Assertions.assertFalse(other.load(again, key));
+      Assertions.assertTrue(cache.load(again, key));
+    } finally {
+      Utilities.clearDirectory(root.getAbsolutePath());
+      root.delete();
+    }
+  }
+
+  @Test
+  public void testSaveAndLoad() throws IOException {
+    File root = Files.createTempDirectory("snapshots").toFile();
+    try {
+      String pkg = Utilities.path(root.getAbsolutePath(), "example.fhir#1.0.0");
+      SnapshotCache cache = new SnapshotCache(root.getAbsolutePath(), "1.0.0");
+
+      StructureDefinition p = profile(pkg);
+      String key = key(cache, p, base("A"));
+      Assertions.assertFalse(cache.load(p, key));
+      p.getSnapshot().addElement().setPath("Patient");
+      p.getSnapshot().addElement().setPath("Patient.active").setMin(1);
+      cache.save(p, key);
+      Assertions.assertTrue(new File(Utilities.path(pkg, SnapshotCache.FOLDER, "1.0.0", key + ".json")).exists());
+
+      StructureDefinition again = profile(pkg);
+      Assertions.assertEquals(key, key(cache, again, base("A")));
+      Assertions.assertTrue(cache.load(again, key));
+      Assertions.assertTrue(again.getSnapshot().equalsDeep(p.getSnapshot()));
+
+      StructureDefinition changed = profile(pkg);
+      Assertions.assertFalse(cache.load(changed, key(cache, changed, base("B"))));
+    } finally {
+      Utilities.clearDirectory(root.getAbsolutePath());
+      root.delete();
+    }
+  }
+
+  @Test
+  public void testFailedSave() throws IOException {
+    File root = Files.createTempDirectory("snapshots").toFile();
+    try {
+      String pkg = Utilities.path(root.getAbsolutePath(), "example.fhir#1.0.0");
+      SnapshotCache cache = new SnapshotCache(root.getAbsolutePath(), "1.0.0");
+      StructureDefinition p = profile(pkg);
+      String key = key(cache, p, base("A"));
+      p.getSnapshot().addElement().setPath("Patient");
+      // something in the way, so the file can't be moved into place
+      File target = new File(Utilities.path(pkg, SnapshotCache.FOLDER, "1.0.0", key + ".json"));
+      new File(target, "other").mkdirs();
+      cache.save(p, key);
+
+      Assertions.assertTrue(target.isDirectory());
+      Assertions.assertEquals(Arrays.asList(target.getName()), Arrays.asList(target.getParentFile().list()));
+    } finally {
+      Utilities.clearDirectory(root.getAbsolutePath());
+      root.delete();
+    }
+  }
+
+  @Test
+  public void testOnlyPackagesInCache() throws IOException {
+    File root = Files.createTempDirectory("snapshots").toFile();
+    File other = Files.createTempDirectory("ig").toFile();
+    try {
+      SnapshotCache cache = new SnapshotCache(root.getAbsolutePath(), "1.0.0");
+      StructureDefinition p = profile(other.getAbsolutePath());
+      String key = key(cache, p, base("A"));
+      p.getSnapshot().addElement().setPath("Patient");
+      cache.save(p, key);
+      Assertions.assertFalse(new File(other, SnapshotCache.FOLDER).exists());
+    } finally {
+      Utilities.clearDirectory(other.getAbsolutePath());
+      other.delete();
+      root.delete();
+    }
+  }
+
+}
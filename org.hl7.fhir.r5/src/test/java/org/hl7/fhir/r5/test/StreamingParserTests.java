@@ -0,0 +1,138 @@
+package org.hl7.fhir.r5.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hl7.fhir.r5.context.SimpleWorkerContext;
+import org.hl7.fhir.r5.elementmodel.Element;
+import org.hl7.fhir.r5.elementmodel.JsonParser;
+import org.hl7.fhir.r5.elementmodel.ParserBase.ValidationPolicy;
+import org.hl7.fhir.r5.elementmodel.XmlParser;
+import org.hl7.fhir.r5.model.ElementDefinition;
+import org.hl7.fhir.r5.model.ElementDefinition.PropertyRepresentation;
+import org.hl7.fhir.r5.model.StructureDefinition;
+import org.hl7.fhir.r5.model.StructureDefinition.StructureDefinitionKind;
+import org.hl7.fhir.r5.model.StructureDefinition.TypeDerivationRule;
+import org.hl7.fhir.utilities.validation.ValidationMessage;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class StreamingParserTests {
+
+  private static SimpleWorkerContext context;
+
+  @BeforeAll
+  public static void setUp() throws Exception {
+    context = SimpleWorkerContext.fromNothing();
+    StructureDefinition bundle = makeResource("Bundle");
+    addElement(bundle, "Bundle.type", "code", "1");
+    addElement(bundle, "Bundle.entry", "BackboneElement", "*");
+    addElement(bundle, "Bundle.entry.fullUrl", "uri", "1");
+    addElement(bundle, "Bundle.entry.resource", "Resource", "1");
+    context.cacheResource(bundle);
+    StructureDefinition patient = makeResource("Patient");
+    addElement(patient, "Patient.active", "boolean", "1");
+    context.cacheResource(patient);
+    for (String t : new String[] {"code", "uri", "boolean"}) {
+      context.cacheResource(makePrimitive(t));
+    }
+  }
+
+  private static StructureDefinition makePrimitive(String name) {
+    StructureDefinition sd = makeResource(name);
+    sd.setKind(StructureDefinitionKind.PRIMITIVETYPE);
+    addElement(sd, name+".value", "http://hl7.org/fhirpath/System.String", "1");
+    sd.getSnapshot().getElement().get(1).addRepresentation(PropertyRepresentation.XMLATTR);
+    return sd;
+  }
+
+  private static StructureDefinition makeResource(String name) {
+    StructureDefinition sd = new StructureDefinition();
+    sd.setId(name);
+    sd.setUrl("http://hl7.org/fhir/StructureDefinition/"+name);
+    sd.setName(name);
+    sd.setType(name);
+    sd.setKind(StructureDefinitionKind.RESOURCE);
+    sd.setDerivation(TypeDerivationRule.SPECIALIZATION);
+    sd.getSnapshot().addElement().setPath(name).setId(name);
+    return sd;
+  }
+
+  private static void addElement(StructureDefinition sd, String path, String type, String max) {
+    ElementDefinition ed = sd.getSnapshot().addElement();
+    ed.setPath(path);
+    ed.setId(path);
+    ed.setMin(0);
+    ed.setMax(max);
+    ed.addType().setCode(type);
+  }
+
+  @Test
+  public void testJsonBundle() throws IOException {
+    String src = "{\n  \"resourceType\" : \"Bundle\",\n  \"entry\" : [{\n    \"fullUrl\" : \"http://a/Patient/1\",\n    \"resource\" : {\n      \"resourceType\" : \"Patient\",\n      \"active\" : true\n    }\n  }, {\n    \"fullUrl\" : \"http://a/Patient/2\",\n    \"resource\" : {\n      \"resourceType\" : \"Patient\",\n      \"active\" : false\n    }\n  }],\n  \"type\" : \"collection\"\n}";
+    List<ValidationMessage> errors = new ArrayList<>();
+    JsonParser parser = new JsonParser(context);
+    parser.setupValidation(ValidationPolicy.EVERYTHING, errors);
+    List<String> seen = new ArrayList<>();
+    Element bundle = parser.parseBundle(stream(src), (index, entry, resource) -> {
+      seen.add(index+":"+entry.getNamedChildValue("fullUrl")+":"+resource.fhirType()+":"+resource.getNamedChildValue("active")+"@"+resource.line());
+    });
+    Assertions.assertEquals(0, errors.size(), errors.toString());
+    Assertions.assertEquals("collection", bundle.getNamedChildValue("type"));
+    Assertions.assertNull(bundle.getNamedChild("entry"));
+    Assertions.assertEquals(describe(parser.parse(stream(src))), seen.toString());
+  }
+
+  @Test
+  public void testNDJson() throws IOException {
+    String src = "{\"resourceType\" : \"Patient\", \"active\" : true}\n\n{\"resourceType\" : \"Patient\", \"active\" : false}\n{\"resourceType\" : \"Patient\", \"active\" : \n";
+    List<ValidationMessage> errors = new ArrayList<>();
+    JsonParser parser = new JsonParser(context);
+    parser.setupValidation(ValidationPolicy.EVERYTHING, errors);
+    List<String> seen = new ArrayList<>();
+    parser.parseNDJson(stream(src), (index, entry, resource) -> {
+      Assertions.assertNull(entry);
+      seen.add(index+":"+(resource == null ? null : resource.getNamedChildValue("active")+"@"+resource.line()));
+    });
+    Assertions.assertEquals("[0:true@1, 1:false@3, 2:null]", seen.toString());
+    Assertions.assertEquals(1, errors.size());
+    Assertions.assertEquals(4, errors.get(0).getLine());
+  }
+
+  @Test
+  public void testXmlBundle() throws IOException {
+    String src = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<Bundle xmlns=\"http://hl7.org/fhir\">\n  <entry>\n    <fullUrl value=\"http://a/Patient/1\"/>\n    <resource>\n      <Patient>\n        <active value=\"true\"/>\n      </Patient>\n    </resource>\n  </entry>\n  <entry>\n    <fullUrl value=\"http://a/Patient/2\"/>\n    <resource>\n      <Patient>\n        <active value=\"false\"/>\n      </Patient>\n    </resource>\n  </entry>\n  <type value=\"collection\"/>\n</Bundle>";
+    List<ValidationMessage> errors = new ArrayList<>();
+    XmlParser parser = new XmlParser(context);
+    parser.setupValidation(ValidationPolicy.EVERYTHING, errors);
+    List<String> seen = new ArrayList<>();
+    Element bundle = parser.parseBundle(stream(src), (index, entry, resource) -> {
+      seen.add(index+":"+entry.getNamedChildValue("fullUrl")+":"+resource.fhirType()+":"+resource.getNamedChildValue("active")+"@"+resource.line());
+    });
+    Assertions.assertEquals(0, errors.size(), errors.toString());
+    Assertions.assertEquals("collection", bundle.getNamedChildValue("type"));
+    Assertions.assertNull(bundle.getNamedChild("entry"));
+    Assertions.assertEquals(describe(parser.parse(stream(src))), seen.toString());
+  }
+
+  // what the handler sees, from a bundle parsed the normal way
+  private String describe(Element bundle) {
+    List<String> res = new ArrayList<>();
+    int index = 0;
+    for (Element entry : bundle.getChildrenByName("entry")) {
+      Element resource = entry.getNamedChild("resource");
+      res.add(index+":"+entry.getNamedChildValue("fullUrl")+":"+resource.fhirType()+":"+resource.getNamedChildValue("active")+"@"+resource.line());
+      index++;
+    }
+    return res.toString();
+  }
+
+  private ByteArrayInputStream stream(String src) {
+    return new ByteArrayInputStream(src.getBytes(StandardCharsets.UTF_8));
+  }
+
+}
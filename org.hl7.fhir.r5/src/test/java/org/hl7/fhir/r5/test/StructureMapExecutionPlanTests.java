@@ -0,0 +1,98 @@
+package org.hl7.fhir.r5.test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.hl7.fhir.r5.context.SimpleWorkerContext;
+import org.hl7.fhir.r5.model.Enumerations.AdministrativeGender;
+import org.hl7.fhir.r5.model.HumanName.NameUse;
+import org.hl7.fhir.r5.model.Patient;
+import org.hl7.fhir.r5.model.StructureMap;
+import org.hl7.fhir.r5.utils.structuremap.StructureMapExecutionPlan;
+import org.hl7.fhir.r5.utils.structuremap.StructureMapUtilities;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+public class StructureMapExecutionPlanTests {
+
+  private static final String MAP =
+    "map \"http://example.org/fhir/StructureMap/test\" = \"Test\"\r\n" +
+    "\r\n" +
+    "group main(source src : Patient, target tgt : Patient) {\r\n" +
+    "  src.name as n where use = 'official' -> tgt.name as tn then name(n, tn);\r\n" +
+    "  src.active as a -> tgt.active = a;\r\n" +
+    "  src.gender as g -> tgt.gender = g;\r\n" +
+    "}\r\n" +
+    "\r\n" +
+    "group name(source n : HumanName, target tn : HumanName) {\r\n" +
+    "  n.family as f -> tn.family = evaluate(f, upper());\r\n" +
+    "  n.given as g -> tn.given = g;\r\n" +
+    "}\r\n";
+
+  private static SimpleWorkerContext context;
+
+  @BeforeAll
+  public static void setUp() throws IOException {
+    context = SimpleWorkerContext.fromNothing();
+  }
+
+  private Patient patient(String family) {
+    Patient patient = new Patient();
+    patient.setActive(true);
+    patient.setGender(AdministrativeGender.FEMALE);
+    patient.addName().setUse(NameUse.OFFICIAL).setFamily(family).addGiven("Peter").addGiven("James");
+    patient.addName().setUse(NameUse.USUAL).addGiven("Jim");
+    return patient;
+  }
+
+  @Test
+  public void testSameAsInterpreter() {
+    StructureMapUtilities smu = new StructureMapUtilities(context);
+    StructureMap map = smu.parse(MAP, "test");
+    StructureMapExecutionPlan plan = smu.compile(map);
+
+    Patient compiled = new Patient();
+    smu.transform(null, patient("Chalmers"), plan, compiled);
+    // the plan doesn't use the user data of the map
+    Assertions.assertFalse(map.getGroup().get(0).hasUserData("ref^name"));
+
+    Patient interpreted = new Patient();
+    smu.transform(null, patient("Chalmers"), map, interpreted);
+    Assertions.assertTrue(map.getGroup().get(0).hasUserData("ref^name"));
+
+    Assertions.assertTrue(compiled.equalsDeep(interpreted));
+    Assertions.assertEquals(1, compiled.getName().size());
+    Assertions.assertEquals("CHALMERS", compiled.getNameFirstRep().getFamily());
+    Assertions.assertEquals(2, compiled.getNameFirstRep().getGiven().size());
+  }
+
+  @Test
+  public void testConcurrentTransforms() throws Exception {
+    StructureMap map = new StructureMapUtilities(context).parse(MAP, "test");
+    StructureMapExecutionPlan plan = new StructureMapUtilities(context).compile(map);
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Patient>> results = new ArrayList<>();
+      for (int i = 0; i < 100; i++) {
+        String family = "Family" + i;
+        results.add(executor.submit(() -> {
+          Patient target = new Patient();
+          new StructureMapUtilities(context).transform(null, patient(family), plan, target);
+          return target;
+        }));
+      }
+      for (int i = 0; i < results.size(); i++) {
+        Assertions.assertEquals("FAMILY" + i, results.get(i).get().getNameFirstRep().getFamily());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+}
@@ -0,0 +1,133 @@
+package org.hl7.fhir.r5.test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.hl7.fhir.r5.context.IWorkerContext.ValidationResult;
+import org.hl7.fhir.r5.context.TerminologyCache;
+import org.hl7.fhir.r5.context.TerminologyCache.CacheStatistics;
+import org.hl7.fhir.r5.context.TerminologyCache.CacheToken;
+import org.hl7.fhir.r5.model.CodeSystem.ConceptDefinitionComponent;
+import org.hl7.fhir.r5.model.Coding;
+import org.hl7.fhir.utilities.TextFile;
+import org.hl7.fhir.utilities.Utilities;
+import org.hl7.fhir.utilities.validation.ValidationMessage.IssueSeverity;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TerminologyCacheTests {
+
+  private static final String MARKER = "-------------------------------------------------------------------------------------";
+
+  @Test
+  public void testAppendAndCompact() throws IOException {
+    String folder = Utilities.path("[tmp]", "tx-cache-test");
+    Utilities.createDirectory(folder);
+    Utilities.clearDirectory(folder);
+    String file = Utilities.path(folder, "loinc.cache");
+
+    TerminologyCache cache = new TerminologyCache(new Object(), folder);
+    CacheToken t1 = cache.generateValidationToken(null, new Coding("http://loinc.org", "1-8", null), null);
+    CacheToken t2 = cache.generateValidationToken(null, new Coding("http://loinc.org", "2-6", null), null);
+    CacheToken t3 = cache.generateValidationToken(null, new Coding("http://loinc.org", "3-4", null), null);
+    cache.cacheValidation(t1, result("One"), TerminologyCache.PERMANENT);
+    cache.cacheValidation(t2, result("Two"), TerminologyCache.PERMANENT);
+    String src = TextFile.fileToString(file);
+    cache.cacheValidation(t3, result("Three"), TerminologyCache.PERMANENT);
+    // a new entry is added to the end of the file
+    String appended = TextFile.fileToString(file);
+    Assertions.assertTrue(appended.startsWith(src));
+    Assertions.assertEquals(4, count(appended));
+
+    // the responses come back from the file
+    cache = new TerminologyCache(new Object(), folder);
+    Assertions.assertEquals("Two", cache.getValidation(t2).getDisplay());
+    Assertions.assertEquals(IssueSeverity.WARNING, cache.getValidation(t2).getSeverity());
+    Assertions.assertNull(cache.getValidation(cache.generateValidationToken(null, new Coding("http://loinc.org", "4-2", null), null)));
+
+    // replacing an entry rewrites the file, in order, without the old entry
+    cache.cacheValidation(t1, result("Uno"), TerminologyCache.PERMANENT);
+    String compacted = TextFile.fileToString(file);
+    Assertions.assertEquals(4, count(compacted));
+    Assertions.assertTrue(compacted.indexOf("\"Two\"") < compacted.indexOf("\"Three\""));
+    Assertions.assertTrue(compacted.indexOf("\"Three\"") < compacted.indexOf("\"Uno\""));
+    Assertions.assertFalse(compacted.contains("\"One\""));
+    cache = new TerminologyCache(new Object(), folder);
+    Assertions.assertEquals("Uno", cache.getValidation(t1).getDisplay());
+    Assertions.assertEquals("Three", cache.getValidation(t3).getDisplay());
+  }
+
+  @Test
+  public void testEviction() throws Exception {
+    TerminologyCache cache = new TerminologyCache(new Object(), null);
+    cache.setMaxTransientWeight(10);
+    List<CacheToken> tokens = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      CacheToken t = cache.generateValidationToken(null, new Coding("http://loinc.org", i+"-0", null), null);
+      tokens.add(t);
+      cache.cacheValidation(t, result(Integer.toString(i)), TerminologyCache.TRANSIENT);
+      // keep using the first one
+      Assertions.assertNotNull(cache.getValidation(tokens.get(0)));
+    }
+    CacheStatistics stats = cache.getStatistics().get(0);
+    Assertions.assertEquals("loinc", stats.getName());
+    Assertions.assertTrue(stats.getSize() <= 10);
+    Assertions.assertEquals(stats.getSize(), stats.getWeight());
+    Assertions.assertEquals(20 - stats.getSize(), stats.getEvictions());
+    Assertions.assertEquals(20, stats.getHits());
+    Assertions.assertEquals(0, stats.getMisses());
+    // the least recently used ones go first
+    Assertions.assertNotNull(cache.getValidation(tokens.get(0)));
+    Assertions.assertNotNull(cache.getValidation(tokens.get(19)));
+    Assertions.assertNull(cache.getValidation(tokens.get(1)));
+    Assertions.assertEquals(1, cache.getStatistics().get(0).getMisses());
+
+    cache.setTransientTimeToLive(1);
+    Thread.sleep(10);
+    Assertions.assertNull(cache.getValidation(tokens.get(19)));
+    Assertions.assertEquals(stats.getSize() - 1, cache.getStatistics().get(0).getSize());
+  }
+
+  @Test
+  public void testPersistentExpiry() throws Exception {
+    String folder = Utilities.path("[tmp]", "tx-cache-test");
+    Utilities.createDirectory(folder);
+    Utilities.clearDirectory(folder);
+    String file = Utilities.path(folder, "loinc.cache");
+
+    TerminologyCache cache = new TerminologyCache(new Object(), folder);
+    CacheToken t1 = cache.generateValidationToken(null, new Coding("http://loinc.org", "1-8", null), null);
+    CacheToken t2 = cache.generateValidationToken(null, new Coding("http://loinc.org", "2-6", null), null);
+    cache.cacheValidation(t1, result("One"), TerminologyCache.PERMANENT);
+    cache.cacheValidation(t2, result("Two"), TerminologyCache.PERMANENT);
+    cache.setPersistentTimeToLive(1);
+    Thread.sleep(10);
+    Assertions.assertNull(cache.getValidation(t1));
+    cache.setPersistentTimeToLive(0);
+
+    // storing the expired entry again replaces it in the file, instead of adding a second copy
+    cache.cacheValidation(t1, result("Uno"), TerminologyCache.PERMANENT);
+    cache.save();
+    String src = TextFile.fileToString(file);
+    Assertions.assertEquals(3, count(src));
+    Assertions.assertFalse(src.contains("\"One\""));
+    cache = new TerminologyCache(new Object(), folder);
+    Assertions.assertEquals("Uno", cache.getValidation(t1).getDisplay());
+    Assertions.assertEquals("Two", cache.getValidation(t2).getDisplay());
+  }
+
+  private ValidationResult result(String display) {
+    return new ValidationResult(IssueSeverity.WARNING, "message", new ConceptDefinitionComponent().setDisplay(display));
+  }
+
+  private int count(String src) {
+    int c = 0;
+    int i = src.indexOf(MARKER);
+    while (i > -1) {
+      c++;
+      i = src.indexOf(MARKER, i + 1);
+    }
+    return c;
+  }
+}
@@ -0,0 +1,73 @@
+package org.hl7.fhir.utilities;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * A shared cache of compiled regular expressions, for code that matches the same (but not
+ * fixed) regexes over and over - e.g. FHIRPath matches() and the regex extensions on
+ * element definitions. Fixed regexes should just be static final Patterns.
+ *
+ * The cache can be used by any number of threads. To keep it bounded, it is emptied when
+ * it reaches MAX_SIZE entries; in practice, the set of regexes in use is small.
+ */
+public class PatternCache {
+
+  public static final int MAX_SIZE = 2000;
+
+  private static final Map<String, Pattern> patterns = new ConcurrentHashMap<>();
+  private static final AtomicLong hits = new AtomicLong();
+  private static final AtomicLong misses = new AtomicLong();
+
+  /**
+   * @return the compiled regex
+   * @throws PatternSyntaxException if the regex isn't valid (these aren't cached)
+   */
+  public static Pattern get(String regex) throws PatternSyntaxException {
+    Pattern p = patterns.get(regex);
+    if (p != null) {
+      hits.incrementAndGet();
+      return p;
+    }
+    misses.incrementAndGet();
+    p = Pattern.compile(regex);
+    if (patterns.size() >= MAX_SIZE) {
+      patterns.clear();
+    }
+    patterns.put(regex, p);
+    return p;
+  }
+
+  /**
+   * The same as value.matches(regex), but the regex is only compiled once
+   */
+  public static boolean matches(String value, String regex) throws PatternSyntaxException {
+    return get(regex).matcher(value).matches();
+  }
+
+  /**
+   * The same as value.replaceAll(regex, replacement), but the regex is only compiled once
+   */
+  public static String replaceAll(String value, String regex, String replacement) throws PatternSyntaxException {
+    return get(regex).matcher(value).replaceAll(replacement);
+  }
+
+  public static int size() {
+    return patterns.size();
+  }
+
+  public static long getHits() {
+    return hits.get();
+  }
+
+  public static long getMisses() {
+    return misses.get();
+  }
+
+  public static void clear() {
+    patterns.clear();
+  }
+}
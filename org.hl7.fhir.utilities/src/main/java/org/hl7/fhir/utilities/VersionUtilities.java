@@ -1,5 +1,6 @@
 package org.hl7.fhir.utilities;
 
+import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -292,6 +293,56 @@ public class VersionUtilities {
     return false;
   }
 
+  /**
+   * compare two versions in SemVer order: the dot separated parts are compared numerically where they
+   * are both numbers (so <code>10.0.0</code> is after <code>9.0.0</code>), and a pre-release version 
+   * is before the release (so <code>1.0.0-ballot</code> is before <code>1.0.0</code>). Build metadata 
+   * (after a '+') is ignored. Versions that aren't SemVer still get a consistent order
+   * 
+   * @return a negative number, zero, or a positive number as v1 is before, the same as, or after v2. null is before any version
+   */
+  public static int compareVersions(String v1, String v2) {
+    if (v1 == null || v2 == null) {
+      return v1 == null ? (v2 == null ? 0 : -1) : 1;
+    }
+    String[] p1 = splitPreRelease(v1);
+    String[] p2 = splitPreRelease(v2);
+    int res = compareParts(p1[0], p2[0]);
+    if (res != 0) {
+      return res;
+    }
+    if (p1[1] == null || p2[1] == null) {
+      // no label is the release, after any of its pre-releases
+      return p1[1] == null ? (p2[1] == null ? 0 : 1) : -1;
+    }
+    return compareParts(p1[1], p2[1]);
+  }
+
+  private static String[] splitPreRelease(String version) {
+    if (version.contains("+")) {
+      version = version.substring(0, version.indexOf("+"));
+    }
+    int i = version.indexOf("-");
+    return i == -1 ? new String[] { version, null } : new String[] { version.substring(0, i), version.substring(i + 1) };
+  }
+
+  private static int compareParts(String v1, String v2) {
+    String[] p1 = v1.split("\\.");
+    String[] p2 = v2.split("\\.");
+    for (int i = 0; i < Math.min(p1.length, p2.length); i++) {
+      int res;
+      if (StringUtils.isNumeric(p1[i]) && StringUtils.isNumeric(p2[i])) {
+        res = new BigInteger(p1[i]).compareTo(new BigInteger(p2[i]));
+      } else {
+        res = p1[i].compareTo(p2[i]);
+      }
+      if (res != 0) {
+        return res;
+      }
+    }
+    return Integer.compare(p1.length, p2.length);
+  }
+
   public static String incMajorVersion(String v) {
     assert isSemVer(v);
     int[] parts = splitParts(v);
@@ -35,9 +35,12 @@ import java.io.File;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
+import java.io.StringReader;
 import java.math.BigDecimal;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.util.IdentityHashMap;
 import java.util.Map;
 import java.util.Stack;
 
@@ -125,8 +128,11 @@ public class JsonTrackingParser {
 	}
 	
 	private class Lexer {
-		private String source;
+		private Reader source;
+		private char[] buffer = new char[8192];
+		private int available;
 		private int cursor;
+		private boolean eof;
 		private String peek;
 		private String value;
 		private TokenType type;
@@ -136,15 +142,31 @@ public class JsonTrackingParser {
 		private LocationData location;
 		private StringBuilder b = new StringBuilder();
 		
-    public Lexer(String source) throws IOException {
+    public Lexer(Reader source, int line) throws IOException {
     	this.source = source;
-    	cursor = -1;
-    	location = new LocationData(1, 1);  
+    	location = new LocationData(line, 1);  
+    	if (read() != '\uFEFF' && !eof) {
+    	  cursor--; // not a BOM 
+    	}
     	start();
     }
     
     private boolean more() {
-    	return peek != null || cursor < source.length(); 
+    	return peek != null || !eof; 
+    }
+    
+    // the source is read in blocks, since it may be a stream. returns -1 at the end 
+    private int read() throws IOException {
+      if (cursor == available) {
+        available = source.read(buffer, 0, buffer.length);
+        cursor = 0;
+        if (available <= 0) {
+          available = 0;
+          eof = true;
+          return -1;
+        }
+      }
+      return buffer[cursor++];
     }
     
     private String getNext(int length) throws IOException {
@@ -159,11 +181,14 @@ public class JsonTrackingParser {
       	}
       }
       if (result.length() < length) {
-      	int len = length - result.length(); 
-      	if (cursor > source.length() - len) 
-      		throw error("Attempt to read past end of source");
-      	result = result + source.substring(cursor+1, cursor+len+1);
-      	cursor = cursor + len;
+        StringBuilder r = new StringBuilder(result);
+        while (r.length() < length) {
+          int c = read();
+          if (c == -1) 
+            throw error("Attempt to read past end of source");
+          r.append((char) c);
+        }
+        result = r.toString();
       }
        for (char ch : result.toCharArray())
         if (ch == '\n')
@@ -179,10 +204,10 @@ public class JsonTrackingParser {
       	peek = peek.length() == 1 ? null : peek.substring(1);
       	return ch;
       } else {
-        cursor++;
-        if (cursor >= source.length())
+        int c = read();
+        if (c == -1)
           return (char) 0;
-        char ch = source.charAt(cursor);
+        char ch = (char) c;
         if (ch == '\n') {
           location.newLine();
         } else {
@@ -351,6 +376,15 @@ public class JsonTrackingParser {
 
 	}
 
+  public interface IJsonArrayItemHandler {
+    /**
+     * @param item - an item from the array
+     * @param map - the locations of the item and its content (null if the parse isn't tracking locations)
+     * @param index - the position of the item in the array
+     */
+    void handleItem(JsonObject item, Map<JsonElement, LocationData> map, int index) throws IOException;
+  }
+
 	enum ItemType {
 	  Object, String, Number, Boolean, Array, End, Eof, Null;
 	}
@@ -361,6 +395,8 @@ public class JsonTrackingParser {
   private String itemValue;
   private boolean errorOnDuplicates = true;
   private boolean allowComments = false;
+  private String streamArrayName;
+  private IJsonArrayItemHandler streamHandler;
 
   public static JsonObject parseJson(String source) throws IOException {
     return parse(source, null);
@@ -399,11 +435,39 @@ public class JsonTrackingParser {
 		self.map = map;
 		self.setErrorOnDuplicates(!allowDuplicates);
 		self.setAllowComments(allowComments);
-    return self.parse(Utilities.stripBOM(source));
+    return self.parse(new StringReader(Utilities.stripBOM(source)), 1);
 	}
 
-	private JsonObject parse(String source) throws IOException {
-		lexer = new Lexer(source);
+  /**
+   * Parse a JSON object that starts on the given line of a larger source (e.g. one line of an NDJSON file), 
+   * so that the locations in the map are the locations in the larger source
+   */
+  public static JsonObject parse(String source, Map<JsonElement, LocationData> map, boolean allowDuplicates, boolean allowComments, int line) throws IOException {
+    JsonTrackingParser self = new JsonTrackingParser();
+    self.map = map;
+    self.setErrorOnDuplicates(!allowDuplicates);
+    self.setAllowComments(allowComments);
+    return self.parse(new StringReader(Utilities.stripBOM(source)), line);
+  }
+
+  /**
+   * Parse a JSON object without holding all of it in memory. The items in the named array property of the 
+   * root object are passed to the handler as they are read (each with its own location map, if a map is 
+   * provided), and they are not added to the object that is returned. The other properties of the root 
+   * object are returned once the source is finished - note that they may come after the array
+   */
+  public static JsonObject parseStreaming(Reader source, String arrayName, IJsonArrayItemHandler handler, Map<JsonElement, LocationData> map, boolean allowDuplicates, boolean allowComments) throws IOException {
+    JsonTrackingParser self = new JsonTrackingParser();
+    self.map = map;
+    self.setErrorOnDuplicates(!allowDuplicates);
+    self.setAllowComments(allowComments);
+    self.streamArrayName = arrayName;
+    self.streamHandler = handler;
+    return self.parse(source, 1);
+  }
+
+	private JsonObject parse(Reader source, int line) throws IOException {
+		lexer = new Lexer(source, line);
 		JsonObject result = new JsonObject();
 		LocationData loc = lexer.location.copy();
     if (lexer.getType() == TokenType.Open) {
@@ -475,6 +539,19 @@ public class JsonTrackingParser {
 		      map.put(n, lexer.location.copy());
 				break;
 			case Array:
+			  if (root && streamHandler != null && itemName.equals(streamArrayName)) {
+			    loc = lexer.location.copy();
+			    next();
+			    if (!readStreamedArray()) {
+			      // keep an empty array, so that the reader can tell it was there
+			      JsonArray empty = new JsonArray();
+			      obj.add(itemName, empty);
+			      if (map != null)
+			        map.put(empty, loc);
+			      next(true);
+			    }
+			    break;
+			  }
 				JsonArray arr = new JsonArray(); // (obj.path+'.'+ItemName);
 				loc = lexer.location.copy();
         if (!obj.has(itemName))
@@ -550,6 +627,34 @@ public class JsonTrackingParser {
 	  return res;
 	}
 
+  private boolean readStreamedArray() throws IOException {
+    boolean res = false;
+    int index = 0;
+    Map<JsonElement, LocationData> rootMap = map;
+    while (itemType != ItemType.End) {
+      res = true;
+      if (itemType == ItemType.Object) {
+        JsonObject obj = new JsonObject();
+        LocationData loc = lexer.location.copy();
+        map = rootMap == null ? null : new IdentityHashMap<JsonElement, LocationData>();
+        next();
+        readObject(obj, false);
+        if (map != null)
+          map.put(obj, loc);
+        Map<JsonElement, LocationData> itemMap = map;
+        map = rootMap;
+        streamHandler.handleItem(obj, itemMap, index);
+      } else if (itemType == ItemType.Eof) {
+        throw lexer.error("Unexpected End of File");
+      } else {
+        throw lexer.error("The items in the array '"+streamArrayName+"' must be objects");
+      }
+      index++;
+      next();
+    }
+    return res;
+  }
+
   private void next() throws IOException {
     next(false);
   }
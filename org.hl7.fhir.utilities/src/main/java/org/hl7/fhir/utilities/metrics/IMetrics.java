@@ -0,0 +1,64 @@
+package org.hl7.fhir.utilities.metrics;
+
+/**
+ * Where the validator, the worker context and the FHIRPath engine report what they are
+ * spending their time on, so that it's possible to find out which profile, invariant or
+ * terminology operation is costing the most.
+ *
+ * Each measurement has a name (what is being measured - see the constants below) and a
+ * key (which one - e.g. the profile url). There are three kinds of measurement:
+ *
+ *  - counters: just a count (e.g. cache hits)
+ *  - timers: a duration in nanoseconds (e.g. a call to the terminology server)
+ *  - histograms: any other value where the distribution matters (e.g. batch sizes)
+ *
+ * Implementations must be safe to use from any number of threads. The default is
+ * NoOpMetrics; use InMemoryMetrics to collect the measurements and report on them.
+ *
+ * Callers should check isEnabled() before doing any work just to make a measurement
+ * (calling System.nanoTime(), building the key...)
+ */
+public interface IMetrics {
+
+  /** the validation of a whole resource (by InstanceValidator.validate). key = resource type */
+  public static final String VALIDATION_RESOURCE = "validation.resource";
+  /** the validation of an element against a profile, including any profiles it refers to. key = profile url */
+  public static final String VALIDATION_PROFILE = "validation.profile";
+  /** the evaluation of an invariant. key = profile url#constraint key */
+  public static final String VALIDATION_INVARIANT = "validation.invariant";
+  /** the evaluation of a FHIRPath expression. key = the expression */
+  public static final String FHIRPATH_EVALUATION = "fhirpath.evaluation";
+  /** a call to the terminology server. key = the operation */
+  public static final String TX_CALL = "tx.call";
+  /** a terminology operation answered from the cache. key = the operation */
+  public static final String TX_CACHE_HIT = "tx.cache.hit";
+  /** a terminology operation that wasn't in the cache. key = the operation */
+  public static final String TX_CACHE_MISS = "tx.cache.miss";
+  /** the number of codes sent to the terminology server in a batch. key = the operation */
+  public static final String TX_BATCH_SIZE = "tx.batch.size";
+  /** generating a snapshot. key = profile url */
+  public static final String SNAPSHOT_GENERATION = "snapshot.generation";
+
+  /**
+   * @return false if the measurements are just going to be thrown away
+   */
+  public boolean isEnabled();
+
+  /**
+   * add one to a counter
+   */
+  public void count(String name, String key);
+
+  /**
+   * record how long something took
+   *
+   * @param nanos - the duration, in nanoseconds (e.g. System.nanoTime() - start)
+   */
+  public void time(String name, String key, long nanos);
+
+  /**
+   * record a value in a histogram
+   */
+  public void record(String name, String key, long value);
+
+}
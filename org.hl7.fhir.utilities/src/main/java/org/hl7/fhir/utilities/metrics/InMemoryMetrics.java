@@ -0,0 +1,230 @@
+package org.hl7.fhir.utilities.metrics;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps all the measurements in memory, so they can be reported on - e.g. a table of the
+ * invariants that took the most time.
+ *
+ * For each name and key, this keeps the count, total, min and max, and a rough histogram
+ * (powers of 2) that the percentiles are worked out from.
+ */
+public class InMemoryMetrics implements IMetrics {
+
+  private static final int BUCKET_COUNT = 64;
+
+  public static class Stat {
+    private final boolean timer;
+    private final LongAdder count = new LongAdder();
+    private final LongAdder total = new LongAdder();
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+    private Stat(boolean timer) {
+      this.timer = timer;
+    }
+
+    private void increment() {
+      count.increment();
+      total.increment();
+    }
+
+    private void add(long value) {
+      count.increment();
+      total.add(value);
+      min.accumulateAndGet(value, Math::min);
+      max.accumulateAndGet(value, Math::max);
+      buckets.incrementAndGet(bucket(value));
+    }
+
+    private static int bucket(long value) {
+      return value <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(value);
+    }
+
+    /**
+     * @return true if the values are durations in nanoseconds
+     */
+    public boolean isTimer() {
+      return timer;
+    }
+
+    public long getCount() {
+      return count.sum();
+    }
+
+    public long getTotal() {
+      return total.sum();
+    }
+
+    public long getMin() {
+      return getCount() == 0 || min.get() == Long.MAX_VALUE ? 0 : min.get();
+    }
+
+    public long getMax() {
+      return getCount() == 0 || max.get() == Long.MIN_VALUE ? 0 : max.get();
+    }
+
+    public double getMean() {
+      long c = getCount();
+      return c == 0 ? 0 : (double) getTotal() / c;
+    }
+
+    /**
+     * @param percentile - e.g. 95
+     * @return an upper bound for the percentile: the value is no more than twice the real value (and no more than the max)
+     */
+    public long getPercentile(double percentile) {
+      long c = 0;
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+        c = c + buckets.get(i);
+      }
+      if (c == 0) {
+        return 0;
+      }
+      long target = (long) Math.ceil(c * percentile / 100);
+      long seen = 0;
+      for (int i = 0; i < BUCKET_COUNT; i++) {
+        seen = seen + buckets.get(i);
+        if (seen >= target && seen > 0) {
+          long upper = i == 0 ? 0 : i >= 63 ? Long.MAX_VALUE : (1L << i) - 1;
+          return Math.min(upper, getMax());
+        }
+      }
+      return getMax();
+    }
+  }
+
+  public static class Row {
+    private final String key;
+    private final Stat stat;
+
+    private Row(String key, Stat stat) {
+      this.key = key;
+      this.stat = stat;
+    }
+
+    public String getKey() {
+      return key;
+    }
+
+    public Stat getStat() {
+      return stat;
+    }
+  }
+
+  private final Map<String, Map<String, Stat>> stats = new ConcurrentHashMap<>();
+
+  @Override
+  public boolean isEnabled() {
+    return true;
+  }
+
+  @Override
+  public void count(String name, String key) {
+    getOrMake(name, key, false).increment();
+  }
+
+  @Override
+  public void time(String name, String key, long nanos) {
+    getOrMake(name, key, true).add(nanos);
+  }
+
+  @Override
+  public void record(String name, String key, long value) {
+    getOrMake(name, key, false).add(value);
+  }
+
+  private Stat getOrMake(String name, String key, boolean timer) {
+    return stats.computeIfAbsent(name, n -> new ConcurrentHashMap<>()).computeIfAbsent(key == null ? "" : key, k -> new Stat(timer));
+  }
+
+  /**
+   * @return the names that something has been recorded against, in alphabetical order
+   */
+  public Set<String> getNames() {
+    return new TreeSet<>(stats.keySet());
+  }
+
+  /**
+   * @return the stat for the name and key, or null if nothing has been recorded for it
+   */
+  public Stat getStat(String name, String key) {
+    Map<String, Stat> map = stats.get(name);
+    return map == null ? null : map.get(key == null ? "" : key);
+  }
+
+  /**
+   * @return the keys recorded against the name, and their stats, most expensive (largest total) first
+   */
+  public List<Row> getTable(String name) {
+    List<Row> res = new ArrayList<>();
+    Map<String, Stat> map = stats.get(name);
+    if (map != null) {
+      for (Map.Entry<String, Stat> e : map.entrySet()) {
+        res.add(new Row(e.getKey(), e.getValue()));
+      }
+    }
+    Collections.sort(res, (r1, r2) -> Long.compare(r2.stat.getTotal(), r1.stat.getTotal()));
+    return res;
+  }
+
+  /**
+   * @param limit - the most rows to show for the name (the most expensive ones)
+   * @return a text table for the name. Times are in milliseconds
+   */
+  public String report(String name, int limit) {
+    List<Row> table = getTable(name);
+    StringBuilder b = new StringBuilder();
+    b.append(name);
+    if (table.size() > limit) {
+      b.append(" (top "+limit+" of "+table.size()+")");
+    }
+    b.append("\r\n");
+    b.append(String.format("%12s %10s %10s %10s %10s  %s\r\n", "total", "count", "mean", "p95", "max", "key"));
+    int i = 0;
+    for (Row row : table) {
+      if (i == limit) {
+        break;
+      }
+      Stat s = row.stat;
+      if (s.timer) {
+        b.append(String.format("%12.1f %10d %10.3f %10.3f %10.3f  %s\r\n", ms(s.getTotal()), s.getCount(), ms(s.getMean()), ms(s.getPercentile(95)), ms(s.getMax()), row.key));
+      } else {
+        b.append(String.format("%12d %10d %10.1f %10d %10d  %s\r\n", s.getTotal(), s.getCount(), s.getMean(), s.getPercentile(95), s.getMax(), row.key));
+      }
+      i++;
+    }
+    return b.toString();
+  }
+
+  /**
+   * @return a report on everything that has been recorded
+   */
+  public String report(int limit) {
+    StringBuilder b = new StringBuilder();
+    for (String name : getNames()) {
+      b.append(report(name, limit));
+      b.append("\r\n");
+    }
+    return b.toString();
+  }
+
+  private double ms(double nanos) {
+    return nanos / 1000000;
+  }
+
+  public void reset() {
+    stats.clear();
+  }
+
+}
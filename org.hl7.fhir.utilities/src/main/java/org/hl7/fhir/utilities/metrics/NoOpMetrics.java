@@ -0,0 +1,27 @@
+package org.hl7.fhir.utilities.metrics;
+
+/**
+ * The default metrics: throws everything away
+ */
+public class NoOpMetrics implements IMetrics {
+
+  public static final NoOpMetrics INSTANCE = new NoOpMetrics();
+
+  @Override
+  public boolean isEnabled() {
+    return false;
+  }
+
+  @Override
+  public void count(String name, String key) {
+  }
+
+  @Override
+  public void time(String name, String key, long nanos) {
+  }
+
+  @Override
+  public void record(String name, String key, long value) {
+  }
+
+}
@@ -42,7 +42,6 @@ import org.hl7.fhir.utilities.Utilities;
 import org.hl7.fhir.utilities.VersionUtilities;
 import org.hl7.fhir.utilities.json.JSONUtil;
 import org.hl7.fhir.utilities.json.JsonTrackingParser;
-import org.hl7.fhir.utilities.npm.NpmPackage.NpmPackageFolder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -57,6 +56,7 @@ import java.net.URL;
 import java.net.URLConnection;
 import java.nio.channels.FileChannel;
 import java.nio.channels.FileLock;
+import java.nio.file.Files;
 import java.sql.Timestamp;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
@@ -69,7 +69,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.UUID;
 
 /**
  * This is a package cache manager implementation that uses a local disk cache
@@ -351,97 +351,89 @@ public class FilesystemPackageCacheManager extends BasePackageCacheManager imple
       System.out.print("  Fetching:");
     }
 
-    NpmPackage npm = NpmPackage.fromPackage(packageTgzInputStream, sourceDesc, true);
+    // the package is extracted straight to disk (not into memory), in a folder that isn't
+    // taken for a package (no #), and then moved into place once it has been checked
+    String extractRoot = Utilities.path(cacheFolder, ".install-" + UUID.randomUUID().toString());
+    try {
+      long size = NpmPackage.extract(packageTgzInputStream, sourceDesc, progress, extractRoot);
+      NpmPackage npm = NpmPackage.fromFolder(extractRoot);
 
-    if (progress) {
-      System.out.println();
-      System.out.print("  Installing: ");
-    }
-    
-    if (npm.name() == null || id == null || !id.equalsIgnoreCase(npm.name())) {
-      if (!id.equals("hl7.fhir.r5.core")) {// temporary work around
-        throw new IOException("Attempt to import a mis-identified package. Expected " + id + ", got " + npm.name());
+      if (progress) {
+        System.out.println();
+        System.out.print("  Installing: ");
+      }
+
+      if (npm.name() == null || id == null || !id.equalsIgnoreCase(npm.name())) {
+        if (!id.equals("hl7.fhir.r5.core")) {// temporary work around
+          throw new IOException("Attempt to import a mis-identified package. Expected " + id + ", got " + npm.name());
+        }
+      }
+      if (version == null)
+        version = npm.version();
+
+      String v = version;
+      return new CacheLock(id + "#" + version).doWithLock(() -> {
+        return installPackage(id, v, npm, extractRoot, size);
+      });
+    } finally {
+      if (new File(extractRoot).exists()) {
+        Utilities.clearDirectory(extractRoot);
+        new File(extractRoot).delete();
       }
     }
-    if (version == null)
-      version = npm.version();
+  }
 
-    String v = version;
-    return new CacheLock(id + "#" + version).doWithLock(() -> {
-      NpmPackage pck = null;
-      String packRoot = Utilities.path(cacheFolder, id + "#" + v);
-      try {
-        // ok, now we have a lock on it... check if something created it while we were waiting
-        if (!new File(packRoot).exists() || Utilities.existsInList(v, "current", "dev")) {
-          Utilities.createDirectory(packRoot);
+  private NpmPackage installPackage(String id, String v, NpmPackage npm, String extractRoot, long size) throws IOException {
+    NpmPackage pck = null;
+    String packRoot = Utilities.path(cacheFolder, id + "#" + v);
+    try {
+      // ok, now we have a lock on it... check if something created it while we were waiting
+      if (!new File(packRoot).exists() || Utilities.existsInList(v, "current", "dev")) {
+        if (new File(packRoot).exists()) {
           try {
             Utilities.clearDirectory(packRoot);
+            new File(packRoot).delete();
           } catch (Throwable t) {
             System.out.println("Unable to clear directory: "+packRoot+": "+t.getMessage()+" - this may cause problems later");
           }
-
-          int i = 0;
-          int c = 0;
-          int size = 0;
-          for (Entry<String, NpmPackageFolder> e : npm.getFolders().entrySet()) {
-            String dir = e.getKey().equals("package") ? Utilities.path(packRoot, "package") : Utilities.path(packRoot, "package", e.getKey());
-            if (!(new File(dir).exists()))
-              Utilities.createDirectory(dir);
-            for (Entry<String, byte[]> fe : e.getValue().getContent().entrySet()) {
-              String fn = Utilities.path(dir, fe.getKey());
-              byte[] cnt = fe.getValue();
-              TextFile.bytesToFile(cnt, fn);
-              size = size + cnt.length;
-              i++;
-              if (progress && i % 50 == 0) {
-                c++;
-                System.out.print(".");
-                if (c == 120) {
-                  System.out.println("");
-                  System.out.print("  ");
-                  c = 2;
-                }
-              }
-            }
-          }
-
-
-          IniFile ini = new IniFile(Utilities.path(cacheFolder, "packages.ini"));
-          ini.setTimeStampFormat("yyyyMMddhhmmss");
-          ini.setTimestampProperty("packages", id + "#" + v, Timestamp.from(Instant.now()), null);
-          ini.setIntegerProperty("package-sizes", id + "#" + v, size, null);
-          ini.save();
-          if (progress)
-            System.out.println(" done.");
         }
-        pck = loadPackageInfo(packRoot);
-        if (!id.equals(JSONUtil.str(npm.getNpm(), "name")) || !v.equals(JSONUtil.str(npm.getNpm(), "version"))) {
-          if (!id.equals(JSONUtil.str(npm.getNpm(), "name"))) {
-            npm.getNpm().addProperty("original-name", JSONUtil.str(npm.getNpm(), "name"));
-            npm.getNpm().remove("name");
-            npm.getNpm().addProperty("name", id);
-          }
-          if (!v.equals(JSONUtil.str(npm.getNpm(), "version"))) {
-            npm.getNpm().addProperty("original-version", JSONUtil.str(npm.getNpm(), "version"));
-            npm.getNpm().remove("version");
-            npm.getNpm().addProperty("version", v);
-          }
-          TextFile.stringToFile(new GsonBuilder().setPrettyPrinting().create().toJson(npm.getNpm()), Utilities.path(cacheFolder, id + "#" + v, "package", "package.json"), false);
+        Files.move(new File(extractRoot).toPath(), new File(packRoot).toPath());
+
+        IniFile ini = new IniFile(Utilities.path(cacheFolder, "packages.ini"));
+        ini.setTimeStampFormat("yyyyMMddhhmmss");
+        ini.setTimestampProperty("packages", id + "#" + v, Timestamp.from(Instant.now()), null);
+        ini.setIntegerProperty("package-sizes", id + "#" + v, (int) size, null);
+        ini.save();
+        if (progress)
+          System.out.println(" done.");
+      }
+      pck = loadPackageInfo(packRoot);
+      if (!id.equals(JSONUtil.str(npm.getNpm(), "name")) || !v.equals(JSONUtil.str(npm.getNpm(), "version"))) {
+        if (!id.equals(JSONUtil.str(npm.getNpm(), "name"))) {
+          npm.getNpm().addProperty("original-name", JSONUtil.str(npm.getNpm(), "name"));
+          npm.getNpm().remove("name");
+          npm.getNpm().addProperty("name", id);
         }
-      } catch (Exception e) {
-        try {
-          // don't leave a half extracted package behind
-          System.out.println("Clean up package " + packRoot + " because installation failed: " + e.getMessage());
-          e.printStackTrace();
-          Utilities.clearDirectory(packRoot);
-          new File(packRoot).delete();
-        } catch (Exception ei) {
-          // nothing
+        if (!v.equals(JSONUtil.str(npm.getNpm(), "version"))) {
+          npm.getNpm().addProperty("original-version", JSONUtil.str(npm.getNpm(), "version"));
+          npm.getNpm().remove("version");
+          npm.getNpm().addProperty("version", v);
         }
-        throw e;
+        TextFile.stringToFile(new GsonBuilder().setPrettyPrinting().create().toJson(npm.getNpm()), Utilities.path(cacheFolder, id + "#" + v, "package", "package.json"), false);
       }
-      return pck;
-    });
+    } catch (Exception e) {
+      try {
+        // don't leave a half extracted package behind
+        System.out.println("Clean up package " + packRoot + " because installation failed: " + e.getMessage());
+        e.printStackTrace();
+        Utilities.clearDirectory(packRoot);
+        new File(packRoot).delete();
+      } catch (Exception ei) {
+        // nothing
+      }
+      throw e;
+    }
+    return pck;
   }
 
   @Override
@@ -42,6 +42,8 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -50,6 +52,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeSet;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -58,17 +61,18 @@ import org.apache.commons.compress.archivers.tar.TarArchiveInputStream;
 import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorInputStream;
 import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.apache.commons.io.IOUtils;
 import org.hl7.fhir.exceptions.FHIRException;
 import org.hl7.fhir.utilities.CommaSeparatedStringBuilder;
 import org.hl7.fhir.utilities.TextFile;
 import org.hl7.fhir.utilities.Utilities;
+import org.hl7.fhir.utilities.VersionUtilities;
 import org.hl7.fhir.utilities.json.JSONUtil;
 import org.hl7.fhir.utilities.json.JsonTrackingParser;
 import org.hl7.fhir.utilities.npm.NpmPackage.PackageResourceInformationSorter;
 import org.hl7.fhir.utilities.npm.PackageGenerator.PackageType;
 
 import com.google.gson.GsonBuilder;
-import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 
@@ -134,7 +138,7 @@ public class NpmPackage {
     public int compare(JsonObject o0, JsonObject o1) {
       String v0 = JSONUtil.str(o0, "version"); 
       String v1 = JSONUtil.str(o1, "version"); 
-      return v0.compareTo(v1);
+      return VersionUtilities.compareVersions(v0, v1);
     }
   }
 
@@ -152,6 +156,11 @@ public class NpmPackage {
     private Map<String, byte[]> content = new HashMap<>();
     private JsonObject index;
     private File folder;
+    // built from the index when it's read, so lookups don't walk the index
+    private List<JsonObject> files = new ArrayList<>();
+    private Map<String, List<Integer>> filesByType = new HashMap<>(); // positions in files, in order
+    private Map<String, List<JsonObject>> filesByUrl = new HashMap<>();
+    private Map<String, JsonObject> filesById = new HashMap<>(); // by type/id
 
     public NpmPackageFolder(String name) {
       super();
@@ -171,6 +180,11 @@ public class NpmPackage {
         return false;
       }
       this.index = index;
+      types.clear();
+      files.clear();
+      filesByType.clear();
+      filesByUrl.clear();
+      filesById.clear();
       for (JsonElement e : index.getAsJsonArray("files")) {
         JsonObject file = (JsonObject) e;
         String type = JSONUtil.str(file, "resourceType");
@@ -178,10 +192,34 @@ public class NpmPackage {
         if (!types.containsKey(type))
           types.put(type, new ArrayList<>());
         types.get(type).add(name);
+        filesByType.computeIfAbsent(type, t -> new ArrayList<>()).add(files.size());
+        files.add(file);
+        String url = JSONUtil.str(file, "url");
+        if (url != null) {
+          filesByUrl.computeIfAbsent(url, u -> new ArrayList<>()).add(file);
+        }
+        String id = JSONUtil.str(file, "id");
+        if (id != null) {
+          filesById.putIfAbsent(type+"/"+id, file);
+        }
       }
       return true;
     }
 
+    /**
+     * @return the entries in the index for resources with the url (in the order they are in the index), or null if there aren't any
+     */
+    public List<JsonObject> getFilesByUrl(String url) {
+      return filesByUrl.get(url);
+    }
+
+    /**
+     * @return the entry in the index for the resource of the type with the id, or null if there isn't one
+     */
+    public JsonObject getFileById(String type, String id) {
+      return filesById.get(type+"/"+id);
+    }
+
     public List<String> listFiles() {
       List<String> res = new ArrayList<>();
       if (folder != null) {
@@ -314,7 +352,8 @@ public class NpmPackage {
   }
 
   public static boolean isInternalExemptFile(File f) {
-    return Utilities.existsInList(f.getName(), ".git", ".svn") || Utilities.existsInList(f.getName(), "package-list.json");
+    // .snapshots is where the validator keeps the snapshots it generated for the profiles in the package
+    return Utilities.existsInList(f.getName(), ".git", ".svn", ".snapshots") || Utilities.existsInList(f.getName(), "package-list.json");
   }
 
   private void loadSubFolders(String rootPath, File dir) throws IOException {
@@ -355,8 +394,6 @@ public class NpmPackage {
     return res;
   }
 
-  private static final int BUFFER_SIZE = 1024;
-
   public static NpmPackage fromPackage(InputStream tgz) throws IOException {
     return fromPackage(tgz, null, false);
   }
@@ -393,16 +430,10 @@ public class NpmPackage {
           }
           folders.put(dir, new NpmPackageFolder(dir));
         } else {
-          int count;
-          byte data[] = new byte[BUFFER_SIZE];
-          ByteArrayOutputStream fos = new ByteArrayOutputStream();
-          try (BufferedOutputStream dest = new BufferedOutputStream(fos, BUFFER_SIZE)) {
-            while ((count = tarIn.read(data, 0, BUFFER_SIZE)) != -1) {
-              dest.write(data, 0, count);
-            }
-          }
-          fos.close();
-          loadFile(n, fos.toByteArray());
+          // the tar entry has the size, so the content is read straight into an array of the right size
+          byte[] data = new byte[(int) entry.getSize()];
+          IOUtils.readFully(tarIn, data);
+          loadFile(n, data);
         }
         if (progress && i % 50 == 0) {
           c++;
@@ -423,6 +454,66 @@ public class NpmPackage {
     checkIndexed(desc);
   }
 
+  /**
+   * Factory method that extracts a package to a folder, and then reads it from there (see fromFolder).
+   * 
+   * Unlike fromPackage, the content of the files isn't kept in memory: only the indexes are read, and
+   * each file is read from the folder when it is loaded, so the memory used depends on what is used
+   * from the package, not on the size of the package.
+   * 
+   * @param folder - where to put the package. It must be empty (or not exist), and is not removed afterwards
+   */
+  public static NpmPackage fromPackage(InputStream tgz, String desc, boolean progress, String folder) throws IOException {
+    extract(tgz, desc, progress, folder);
+    return fromFolder(folder);
+  }
+
+  /**
+   * Extracts the files in a package to a folder, as they are in the package (so the package.json is in
+   * [folder]/package/package.json)
+   * 
+   * @return the total size of the files
+   */
+  public static long extract(InputStream tgz, String desc, boolean progress, String folder) throws IOException {
+    GzipCompressorInputStream gzipIn;
+    try {
+      gzipIn = new GzipCompressorInputStream(tgz);
+    } catch (Exception e) {
+      throw new IOException("Error reading "+(desc == null ? "package" : desc)+": "+e.getMessage(), e);      
+    }
+    File root = Utilities.createDirectory(folder).getCanonicalFile();
+    long size = 0;
+    try (TarArchiveInputStream tarIn = new TarArchiveInputStream(gzipIn)) {
+      TarArchiveEntry entry;
+
+      int i = 0;
+      int c = 12;
+      while ((entry = (TarArchiveEntry) tarIn.getNextEntry()) != null) {
+        i++;
+        File f = new File(root, entry.getName()).getCanonicalFile();
+        if (!f.getPath().startsWith(root.getPath() + File.separator)) {
+          throw new IOException("Error reading "+(desc == null ? "package" : desc)+": the entry "+entry.getName()+" is outside the package");
+        }
+        if (entry.isDirectory()) {
+          Utilities.createDirectory(f.getAbsolutePath());
+        } else {
+          Utilities.createDirectory(f.getParent());
+          size = size + Files.copy(tarIn, f.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        if (progress && i % 50 == 0) {
+          c++;
+          System.out.print(".");
+          if (c == 120) {
+            System.out.println("");
+            System.out.print("  ");
+            c = 2;
+          }
+        }
+      }
+    }
+    return size;
+  }
+
   public void loadFile(String n, byte[] data) throws IOException {
     String dir = n.contains("/") ? n.substring(0, n.lastIndexOf("/")) : "$root";
     if (dir.startsWith("package/")) {
@@ -538,12 +629,17 @@ public class NpmPackage {
     List<PackageResourceInformation> res = new ArrayList<PackageResourceInformation>();
     for (NpmPackageFolder folder : folders.values()) {
       if (folder.index != null) {
-        for (JsonElement e : folder.index.getAsJsonArray("files")) {
-          JsonObject fi = e.getAsJsonObject();
-          if (Utilities.existsInList(JSONUtil.str(fi, "resourceType"), types)) {
-            res.add(new PackageResourceInformation(folder.folder.getAbsolutePath(), fi));
+        // sorted, so the resources are in the same order as the index, whatever order the types are in
+        Set<Integer> positions = new TreeSet<>();
+        for (String type : types) {
+          List<Integer> p = folder.filesByType.get(type);
+          if (p != null) {
+            positions.addAll(p);
           }
         }
+        for (int i : positions) {
+          res.add(new PackageResourceInformation(folder.folder.getAbsolutePath(), folder.files.get(i)));
+        }
       }
     } 
     //    Collections.sort(res, new PackageResourceInformationSorter());
@@ -610,26 +706,28 @@ public class NpmPackage {
    */
   public InputStream loadByCanonicalVersion(String folder, String canonical, String version) throws IOException {
     NpmPackageFolder f = folders.get(folder);
-    List<JsonObject> matches = new ArrayList<>();
-    for (JsonElement e : f.index.getAsJsonArray("files")) {
-      JsonObject file = (JsonObject) e;
-      if (canonical.equals(JSONUtil.str(file, "url"))) {
-        if (version != null && version.equals(JSONUtil.str(file, "version"))) {
-          return load("package", JSONUtil.str(file, "filename"));
-        } else if (version == null) {
-          matches.add(file);
+    List<JsonObject> matches = f.getFilesByUrl(canonical);
+    if (matches == null) {
+      return null;
+    }
+    if (version != null) {
+      for (JsonObject file : matches) {
+        if (version.equals(JSONUtil.str(file, "version"))) {
+          return load(folder, JSONUtil.str(file, "filename"));
         }
       }
-      if (matches.size() > 0) {
-        if (matches.size() == 1) {
-          return load("package", JSONUtil.str(matches.get(0), "filename"));          
-        } else {
-          Collections.sort(matches, new IndexVersionSorter());
-          return load("package", JSONUtil.str(matches.get(matches.size()-1), "filename"));          
+      return null;
+    } else {
+      // the most recent version (the last one in the index, if there's more than one with the same version)
+      JsonObject latest = matches.get(0);
+      IndexVersionSorter sorter = new IndexVersionSorter();
+      for (JsonObject file : matches) {
+        if (sorter.compare(file, latest) >= 0) {
+          latest = file;
         }
       }
+      return load(folder, JSONUtil.str(latest, "filename"));          
     }
-    return null;        
   }
     
   /**
@@ -823,25 +921,16 @@ public class NpmPackage {
 
   public InputStream loadResource(String type, String id) throws IOException {
     NpmPackageFolder f = folders.get("package");
-    JsonArray files = f.index.getAsJsonArray("files");
-    for (JsonElement e : files) {
-      JsonObject i = (JsonObject) e;
-      if (type.equals(JSONUtil.str(i, "resourceType")) && id.equals(JSONUtil.str(i, "id"))) {
-        return load("package", JSONUtil.str(i, "filename"));
-      }
-    }
-    return null;
+    JsonObject i = f.getFileById(type, id);
+    return i == null ? null : load("package", JSONUtil.str(i, "filename"));
   }
 
   public InputStream loadExampleResource(String type, String id) throws IOException {
     NpmPackageFolder f = folders.get("example");
     if (f != null) {
-      JsonArray files = f.index.getAsJsonArray("files");
-      for (JsonElement e : files) {
-        JsonObject i = (JsonObject) e;
-        if (type.equals(JSONUtil.str(i, "resourceType")) && id.equals(JSONUtil.str(i, "id"))) {
-          return load("example", JSONUtil.str(i, "filename"));
-        }
+      JsonObject i = f.getFileById(type, id);
+      if (i != null) {
+        return load("example", JSONUtil.str(i, "filename"));
       }
     }
     return null;
@@ -1068,13 +1157,10 @@ public class NpmPackage {
     String u = url.contains("|") ?  url.substring(0, url.indexOf("|")) : url;
     String v = url.contains("|") ?  url.substring(url.indexOf("|")+1) : null;
     NpmPackageFolder folder = folders.get("package");
-    if (folder != null) {
-      for (JsonElement e : folder.index.getAsJsonArray("files")) {
-        JsonObject o = (JsonObject) e;
-        if (u.equals(JSONUtil.str(o, "url"))) {
-          if (v == null || v.equals(JSONUtil.str(o, "version"))) {
-            return true;
-          }
+    if (folder != null && folder.getFilesByUrl(u) != null) {
+      for (JsonObject o : folder.getFilesByUrl(u)) {
+        if (v == null || v.equals(JSONUtil.str(o, "version"))) {
+          return true;
         }
       }
     }
@@ -1,5 +1,8 @@
 package org.hl7.fhir.utilities.npm;
 
+import java.io.InputStream;
+import java.util.Properties;
+
 /*
   Copyright (c) 2011+, HL7, Inc.
   All rights reserved.
@@ -47,6 +50,41 @@ public class ToolsVersion {
    */
   public final static int TOOLS_VERSION = 3;
   public final static String TOOLS_VERSION_STR = "3";
+
+  private static String buildVersion;
+
+  /**
+   * The version of this build of the tools (the maven version, and the git commit it was built from), 
+   * from the fhir-build.properties made by the build. Unlike TOOLS_VERSION, this changes with every 
+   * release, so it's used to mark things the tools keep on disk that were worked out by the code 
+   * (e.g. generated snapshots), and that must be worked out again when the code changes
+   * 
+   * @return the version, or "unknown" if the build properties aren't available
+   */
+  public static synchronized String getBuildVersion() {
+    if (buildVersion == null) {
+      String version = null;
+      String build = null;
+      try (InputStream is = ToolsVersion.class.getResourceAsStream("/fhir-build.properties")) {
+        if (is != null) {
+          Properties p = new Properties();
+          p.load(is);
+          version = p.getProperty("orgfhir.version");
+          build = p.getProperty("orgfhir.buildnumber");
+        }
+      } catch (Exception e) {
+        // nothing - the version is unknown
+      }
+      if (version == null || version.trim().isEmpty()) {
+        version = "unknown";
+      }
+      if (build != null && !build.trim().isEmpty()) {
+        version = version + "-" + build.substring(0, Math.min(build.length(), 12));
+      }
+      buildVersion = version;
+    }
+    return buildVersion;
+  }
   
   // version history:
   // 3: invalidate the current packages because of an error in the version value in the package.json
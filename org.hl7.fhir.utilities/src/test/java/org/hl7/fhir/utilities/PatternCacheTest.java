@@ -0,0 +1,64 @@
+package org.hl7.fhir.utilities;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PatternCacheTest {
+
+  @BeforeEach
+  public void setUp() {
+    PatternCache.clear();
+  }
+
+  @Test
+  public void get_ReturnsCachedPattern() {
+    long hits = PatternCache.getHits();
+    long misses = PatternCache.getMisses();
+    Pattern p = PatternCache.get("[a-z]+");
+    assertSame(p, PatternCache.get("[a-z]+"));
+    assertNotSame(p, PatternCache.get("[a-z]*"));
+    assertEquals(hits + 1, PatternCache.getHits());
+    assertEquals(misses + 2, PatternCache.getMisses());
+    assertEquals(2, PatternCache.size());
+  }
+
+  @Test
+  public void get_InvalidRegexIsNotCached() {
+    assertThrows(PatternSyntaxException.class, () -> PatternCache.get("[a-z"));
+    assertEquals(0, PatternCache.size());
+  }
+
+  @Test
+  public void get_SizeIsBounded() {
+    for (int i = 0; i < PatternCache.MAX_SIZE; i++) {
+      PatternCache.get("a{" + i + "}");
+    }
+    assertEquals(PatternCache.MAX_SIZE, PatternCache.size());
+    // the next new one empties the cache first
+    PatternCache.get("b");
+    assertEquals(1, PatternCache.size());
+    long hits = PatternCache.getHits();
+    PatternCache.get("b");
+    assertEquals(hits + 1, PatternCache.getHits());
+  }
+
+  @Test
+  public void matches_SameAsCompiledPattern() {
+    String[] regexes = { "[a-z]+", "\\d{3}-\\d{4}", "(a|b)*c", "^$", "[^\\s]+" };
+    String[] values = { "abc", "ABC", "555-1234", "55-1234", "ababc", "abab", "", "no spaces", "nospaces" };
+    for (String regex : regexes) {
+      for (String value : values) {
+        assertEquals(Pattern.compile(regex).matcher(value).matches(), PatternCache.matches(value, regex), regex + " / " + value);
+        // twice, so the second one comes from the cache
+        assertEquals(value.matches(regex), PatternCache.matches(value, regex), regex + " / " + value);
+      }
+    }
+    assertEquals("a-b-c", PatternCache.replaceAll("a b  c", "\\s+", "-"));
+  }
+
+}
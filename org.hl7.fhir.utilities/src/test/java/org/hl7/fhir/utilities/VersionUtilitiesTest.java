@@ -45,4 +45,16 @@ public class VersionUtilitiesTest {
     assertFalse(VersionUtilities.isThisOrLater("0.9.x", "0.8.1"));
   }
 
+  @Test
+  public void compareVersions() {
+    assertTrue(VersionUtilities.compareVersions("10.0.0", "9.0.0") > 0);
+    assertTrue(VersionUtilities.compareVersions("1.0.10", "1.0.9") > 0);
+    assertTrue(VersionUtilities.compareVersions("1.0.0-ballot", "1.0.0") < 0);
+    assertTrue(VersionUtilities.compareVersions("1.0.0-ballot", "0.9.0") > 0);
+    assertTrue(VersionUtilities.compareVersions("1.0.0-ballot2", "1.0.0-ballot1") > 0);
+    assertTrue(VersionUtilities.compareVersions("1.0", "1.0.0") < 0);
+    assertTrue(VersionUtilities.compareVersions(null, "1.0.0") < 0);
+    assertEquals(0, VersionUtilities.compareVersions("1.0.0+20200101", "1.0.0"));
+  }
+
 }
\ No newline at end of file
@@ -1,15 +1,56 @@
 package org.hl7.fhir.utilities.tests;
 
 import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 
 import org.hl7.fhir.utilities.json.JsonTrackingParser;
+import org.hl7.fhir.utilities.json.JsonTrackingParser.LocationData;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+
 public class JsonParserTests {
 
   @Test
   public void test() throws IOException {
     JsonTrackingParser.parseJson("{\r\n  \"index-version\": 1,\r\n  \"files\": []\r\n}");
   }
-  
+
+  @Test
+  public void testStreaming() throws IOException {
+    String src = "{\n  \"resourceType\": \"Bundle\",\n  \"entry\": [{\n    \"id\": \"1\"\n  }, {\n    \"id\": \"2\"\n  }],\n  \"type\": \"batch\"\n}";
+    List<String> ids = new ArrayList<>();
+    List<Integer> lines = new ArrayList<>();
+    Map<JsonElement, LocationData> map = new IdentityHashMap<>();
+    JsonObject root = JsonTrackingParser.parseStreaming(new StringReader(src), "entry", (item, itemMap, index) -> {
+      Assertions.assertEquals(ids.size(), index);
+      ids.add(item.get("id").getAsString());
+      lines.add(itemMap.get(item.get("id")).getLine());
+    }, map, false, false);
+    Assertions.assertEquals("[1, 2]", ids.toString());
+    Assertions.assertFalse(root.has("entry"));
+    Assertions.assertEquals("batch", root.get("type").getAsString());
+
+    // same locations as when the whole thing is parsed
+    Map<JsonElement, LocationData> fullMap = new IdentityHashMap<>();
+    JsonObject full = JsonTrackingParser.parse(src, fullMap);
+    for (int i = 0; i < 2; i++) {
+      Assertions.assertEquals(fullMap.get(full.getAsJsonArray("entry").get(i).getAsJsonObject().get("id")).getLine(), lines.get(i).intValue());
+    }
+    Assertions.assertEquals(fullMap.get(full.get("type")).getLine(), map.get(root.get("type")).getLine());
+  }
+
+  @Test
+  public void testStartLine() throws IOException {
+    Map<JsonElement, LocationData> map = new IdentityHashMap<>();
+    JsonObject obj = JsonTrackingParser.parse("\uFEFF{\"id\": \"1\"}", map, false, false, 10);
+    Assertions.assertEquals(10, map.get(obj.get("id")).getLine());
+  }
+
 }
\ No newline at end of file
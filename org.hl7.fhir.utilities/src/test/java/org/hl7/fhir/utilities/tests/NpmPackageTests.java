@@ -0,0 +1,129 @@
+package org.hl7.fhir.utilities.tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.compress.archivers.tar.TarArchiveEntry;
+import org.apache.commons.compress.archivers.tar.TarArchiveOutputStream;
+import org.apache.commons.compress.compressors.gzip.GzipCompressorOutputStream;
+import org.hl7.fhir.utilities.TextFile;
+import org.hl7.fhir.utilities.Utilities;
+import org.hl7.fhir.utilities.npm.NpmPackage;
+import org.hl7.fhir.utilities.npm.NpmPackage.PackageResourceInformation;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class NpmPackageTests {
+
+  private static final String PATIENT = "{\"resourceType\":\"StructureDefinition\",\"id\":\"patient\",\"url\":\"http://example.org/fhir/StructureDefinition/patient\",\"version\":\"1.0.0\"}";
+
+  private byte[] makePackage(String... files) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (TarArchiveOutputStream tar = new TarArchiveOutputStream(new GzipCompressorOutputStream(bytes))) {
+      for (int i = 0; i < files.length; i = i + 2) {
+        byte[] content = files[i + 1].getBytes(StandardCharsets.UTF_8);
+        TarArchiveEntry entry = new TarArchiveEntry(files[i]);
+        entry.setSize(content.length);
+        tar.putArchiveEntry(entry);
+        tar.write(content);
+        tar.closeArchiveEntry();
+      }
+    }
+    return bytes.toByteArray();
+  }
+
+  @Test
+  public void testExtractedPackage() throws IOException {
+    byte[] tgz = makePackage(
+      "package/package.json", "{\"name\":\"example.fhir\",\"version\":\"1.0.0\",\"fhirVersions\":[\"4.0.1\"]}",
+      "package/StructureDefinition-patient.json", PATIENT,
+      "package/other/spec.internals", "internals");
+    File folder = Files.createTempDirectory("npm").toFile();
+    try {
+      NpmPackage npm = NpmPackage.fromPackage(new ByteArrayInputStream(tgz), "test", false, Utilities.path(folder.getAbsolutePath(), "example.fhir#1.0.0"));
+      NpmPackage mem = NpmPackage.fromPackage(new ByteArrayInputStream(tgz), "test");
+
+      Assertions.assertEquals("example.fhir", npm.name());
+      Assertions.assertTrue(new File(Utilities.path(folder.getAbsolutePath(), "example.fhir#1.0.0", "package", "StructureDefinition-patient.json")).exists());
+      // the content is read from the folder, and is the same as when the package is read into memory
+      Assertions.assertTrue(npm.getFolders().get("package").getContent().isEmpty());
+      Assertions.assertEquals(mem.listResources("StructureDefinition"), npm.listResources("StructureDefinition"));
+      Assertions.assertEquals(PATIENT, TextFile.streamToString(npm.load("package", "StructureDefinition-patient.json")));
+      Assertions.assertEquals(PATIENT, TextFile.streamToString(mem.load("package", "StructureDefinition-patient.json")));
+      Assertions.assertEquals(PATIENT, TextFile.streamToString(npm.loadByCanonical("http://example.org/fhir/StructureDefinition/patient")));
+      Assertions.assertEquals("internals", TextFile.streamToString(npm.load("other", "spec.internals")));
+    } finally {
+      Utilities.clearDirectory(folder.getAbsolutePath());
+      folder.delete();
+    }
+  }
+
+  private String resource(String type, String id, String version) {
+    return "{\"resourceType\":\""+type+"\",\"id\":\""+id+"\",\"url\":\"http://example.org/fhir/"+type+"/test\",\"version\":\""+version+"\"}";
+  }
+
+  private String ids(List<PackageResourceInformation> list) {
+    List<String> ids = new ArrayList<>();
+    for (PackageResourceInformation pri : list) {
+      ids.add(pri.getId());
+    }
+    return String.join(",", ids);
+  }
+
+  @Test
+  public void testIndexLookups() throws IOException {
+    byte[] tgz = makePackage(
+      "package/package.json", "{\"name\":\"example.fhir\",\"version\":\"1.0.0\"}",
+      "package/ValueSet-a.json", resource("ValueSet", "a", "1.0.0"),
+      "package/CodeSystem-b.json", resource("CodeSystem", "b", "1.0.0"),
+      "package/ValueSet-c.json", resource("ValueSet", "c", "2.0.0"),
+      "package/ValueSet-d.json", resource("ValueSet", "d", "1.5.0"),
+      "package/ValueSet-e.json", resource("ValueSet", "e", "10.0.0"),
+      "package/ValueSet-f.json", resource("ValueSet", "f", "10.0.0-ballot"),
+      "package/ValueSet-g.json", resource("ValueSet", "g", "9.0.0"));
+    File folder = Files.createTempDirectory("npm").toFile();
+    try {
+      NpmPackage npm = NpmPackage.fromPackage(new ByteArrayInputStream(tgz), "test", false, Utilities.path(folder.getAbsolutePath(), "example.fhir#1.0.0"));
+
+      // versions are compared as versions, not as strings
+      Assertions.assertEquals(resource("ValueSet", "e", "10.0.0"), TextFile.streamToString(npm.loadByCanonical("http://example.org/fhir/ValueSet/test")));
+      Assertions.assertEquals(resource("ValueSet", "d", "1.5.0"), TextFile.streamToString(npm.loadByCanonicalVersion("http://example.org/fhir/ValueSet/test", "1.5.0")));
+      Assertions.assertNull(npm.loadByCanonicalVersion("http://example.org/fhir/ValueSet/test", "3.0.0"));
+      Assertions.assertNull(npm.loadByCanonical("http://example.org/fhir/ValueSet/other"));
+      Assertions.assertTrue(npm.hasCanonical("http://example.org/fhir/CodeSystem/test|1.0.0"));
+      Assertions.assertFalse(npm.hasCanonical("http://example.org/fhir/CodeSystem/test|2.0.0"));
+      Assertions.assertEquals(resource("CodeSystem", "b", "1.0.0"), TextFile.streamToString(npm.loadResource("CodeSystem", "b")));
+      Assertions.assertNull(npm.loadResource("ValueSet", "b"));
+
+      // in the order of the index (the files are indexed in name order), whatever the order of the types
+      Assertions.assertEquals("b,a,c,d,e,f,g", ids(npm.listIndexedResources("ValueSet", "CodeSystem")));
+      Assertions.assertEquals("b,a,c,d,e,f,g", ids(npm.listIndexedResources("CodeSystem", "ValueSet", "CodeSystem")));
+      Assertions.assertEquals("b", ids(npm.listIndexedResources("CodeSystem")));
+    } finally {
+      Utilities.clearDirectory(folder.getAbsolutePath());
+      folder.delete();
+    }
+  }
+
+  @Test
+  public void testEntryOutsidePackage() throws IOException {
+    byte[] tgz = makePackage(
+      "package/package.json", "{\"name\":\"example.fhir\",\"version\":\"1.0.0\"}",
+      "../outside.json", "{}");
+    File folder = Files.createTempDirectory("npm").toFile();
+    try {
+      Assertions.assertThrows(IOException.class, () -> NpmPackage.fromPackage(new ByteArrayInputStream(tgz), "test", false, Utilities.path(folder.getAbsolutePath(), "example.fhir#1.0.0")));
+      Assertions.assertFalse(new File(folder, "outside.json").exists());
+    } finally {
+      Utilities.clearDirectory(folder.getAbsolutePath());
+      folder.delete();
+    }
+  }
+
+}
@@ -85,6 +85,7 @@ import org.hl7.fhir.utilities.validation.ValidationMessage.IssueSeverity;
 import org.hl7.fhir.utilities.validation.ValidationMessage.IssueType;
 import org.hl7.fhir.utilities.validation.ValidationMessage.Source;
 import org.hl7.fhir.validation.BaseValidator.TrackedLocationRelatedMessage;
+import org.hl7.fhir.validation.instance.utils.BundleIndex;
 import org.hl7.fhir.validation.instance.utils.IndexedElement;
 
 public class BaseValidator {
@@ -771,59 +772,13 @@ public class BaseValidator {
     if (bnd == null)
       return null;
     if (bnd.fhirType().equals(BUNDLE)) {
-      for (Element be : bnd.getChildrenByName(ENTRY)) {
-        Element res = be.getNamedChild(RESOURCE);
-        if (res != null) {
-          String fullUrl = be.getChildValue(FULL_URL);
-          String rt = res.fhirType();
-          String id = res.getChildValue(ID);
-          if (url.equals(fullUrl))
-            return res;
-          if (url.equals(rt + "/" + id))
-            return res;
-        }
-      }
+      return BundleIndex.forBundle(bnd).resolveResource(url);
     }
     return null;
   }
 
-  protected Element resolveInBundle(List<Element> entries, String ref, String fullUrl, String type, String id) {
-    if (Utilities.isAbsoluteUrl(ref)) {
-      // if the reference is absolute, then you resolve by fullUrl. No other thinking is required.
-      for (Element entry : entries) {
-        String fu = entry.getNamedChildValue(FULL_URL);
-        if (ref.equals(fu))
-          return entry;
-      }
-      return null;
-    } else {
-      // split into base, type, and id
-      String u = null;
-      if (fullUrl != null && fullUrl.endsWith(type + "/" + id))
-        // fullUrl = complex
-        u = fullUrl.substring(0, fullUrl.length() - (type + "/" + id).length()) + ref;
-//        u = fullUrl.substring((type+"/"+id).length())+ref;
-      String[] parts = ref.split("\\/");
-      if (parts.length >= 2) {
-        String t = parts[0];
-        String i = parts[1];
-        for (Element entry : entries) {
-          String fu = entry.getNamedChildValue(FULL_URL);
-          if (fu != null && fu.equals(u))
-            return entry;
-          if (u == null) {
-            Element resource = entry.getNamedChild(RESOURCE);
-            if (resource != null) {
-              String et = resource.getType();
-              String eid = resource.getNamedChildValue(ID);
-              if (t.equals(et) && i.equals(eid))
-                return entry;
-            }
-          }
-        }
-      }
-      return null;
-    }
+  protected Element resolveInBundle(BundleIndex index, String ref, String fullUrl, String type, String id) {
+    return index.resolve(ref, fullUrl, type, id);
   }
 
 
@@ -883,29 +838,27 @@ public class BaseValidator {
       targetUrl = base + id;
     }
 
-    List<Element> entries = new ArrayList<Element>();
-    bundle.getNamedChildren(ENTRY, entries);
+    BundleIndex index = BundleIndex.forBundle(bundle);
+    List<Element> entries = index.getEntries();
     Element match = null;
     int matchIndex = -1;
-    for (int i = 0; i < entries.size(); i++) {
+    for (int i : index.findByFullUrl(targetUrl)) {
       Element we = entries.get(i);
-      if (targetUrl.equals(we.getChildValue(FULL_URL))) {
-        Element r = we.getNamedChild(RESOURCE);
-        if (version.isEmpty()) {
-          rule(errors, IssueType.FORBIDDEN, -1, -1, path, match == null, I18nConstants.BUNDLE_BUNDLE_MULTIPLEMATCHES, ref);
-          match = r;
-          matchIndex = i;
-        } else {
-          try {
-            if (version.equals(r.getChildren(META).get(0).getChildValue("versionId"))) {
-              rule(errors, IssueType.FORBIDDEN, -1, -1, path, match == null, I18nConstants.BUNDLE_BUNDLE_MULTIPLEMATCHES, ref);
-              match = r;
-              matchIndex = i;
-            }
-          } catch (Exception e) {
-            warning(errors, IssueType.REQUIRED, -1, -1, path, r.getChildren(META).size() == 1 && r.getChildren(META).get(0).getChildValue("versionId") != null, I18nConstants.BUNDLE_BUNDLE_FULLURL_NEEDVERSION, targetUrl);
-            // If one of these things is null
+      Element r = we.getNamedChild(RESOURCE);
+      if (version.isEmpty()) {
+        rule(errors, IssueType.FORBIDDEN, -1, -1, path, match == null, I18nConstants.BUNDLE_BUNDLE_MULTIPLEMATCHES, ref);
+        match = r;
+        matchIndex = i;
+      } else {
+        try {
+          if (version.equals(r.getChildren(META).get(0).getChildValue("versionId"))) {
+            rule(errors, IssueType.FORBIDDEN, -1, -1, path, match == null, I18nConstants.BUNDLE_BUNDLE_MULTIPLEMATCHES, ref);
+            match = r;
+            matchIndex = i;
           }
+        } catch (Exception e) {
+          warning(errors, IssueType.REQUIRED, -1, -1, path, r.getChildren(META).size() == 1 && r.getChildren(META).get(0).getChildValue("versionId") != null, I18nConstants.BUNDLE_BUNDLE_FULLURL_NEEDVERSION, targetUrl);
+          // If one of these things is null
         }
       }
     }
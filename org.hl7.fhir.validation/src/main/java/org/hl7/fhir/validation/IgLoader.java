@@ -67,6 +67,10 @@ public class IgLoader {
                      Map<String, byte[]> binaries,
                      String src,
                      boolean recursive) throws IOException, FHIRException {
+    if (isLoadedPackage(src)) {
+      // e.g. it's in the context image the context was loaded from
+      return;
+    }
     NpmPackage npm = src.matches(FilesystemPackageCacheManager.PACKAGE_VERSION_REGEX_OPT) && !new File(src).exists() ? getPackageCacheManager().loadPackage(src, null) : null;
     if (npm != null) {
       for (String s : npm.dependencies()) {
@@ -120,6 +124,24 @@ public class IgLoader {
     }
   }
 
+  /**
+   * @return true if src is a package that is already in the context. If it doesn't have a version, any version
+   * of the package will do, since the source only asks for the package
+   */
+  private boolean isLoadedPackage(String src) {
+    if (src.contains("#")) {
+      return getContext().getLoadedPackages().contains(src);
+    }
+    if (src.matches(FilesystemPackageCacheManager.PACKAGE_REGEX) && !new File(src).exists()) {
+      for (String p : getContext().getLoadedPackages()) {
+        if (p.startsWith(src + "#")) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
   public Content loadContent(String source, String opName, boolean asIg) throws FHIRException, IOException {
     Map<String, byte[]> s = loadIgSource(source, false, asIg);
     Content res = new Content();
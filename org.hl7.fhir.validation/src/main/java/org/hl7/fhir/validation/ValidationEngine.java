@@ -9,8 +9,10 @@ import org.hl7.fhir.convertors.txClient.TerminologyClientFactory;
 import org.hl7.fhir.exceptions.DefinitionException;
 import org.hl7.fhir.exceptions.FHIRException;
 import org.hl7.fhir.r5.conformance.ProfileUtilities;
+import org.hl7.fhir.r5.context.ContextImage;
 import org.hl7.fhir.r5.context.IWorkerContext.PackageVersion;
 import org.hl7.fhir.r5.context.SimpleWorkerContext;
+import org.hl7.fhir.r5.context.SnapshotCache;
 import org.hl7.fhir.r5.elementmodel.Element;
 import org.hl7.fhir.r5.elementmodel.Manager;
 import org.hl7.fhir.r5.elementmodel.Manager.FhirFormat;
@@ -32,6 +34,7 @@ import org.hl7.fhir.utilities.TimeTracker;
 import org.hl7.fhir.utilities.*;
 import org.hl7.fhir.utilities.json.JSONUtil;
 import org.hl7.fhir.utilities.json.JsonTrackingParser;
+import org.hl7.fhir.utilities.metrics.IMetrics;
 import org.hl7.fhir.utilities.npm.FilesystemPackageCacheManager;
 import org.hl7.fhir.utilities.npm.NpmPackage;
 import org.hl7.fhir.utilities.npm.ToolsVersion;
@@ -52,6 +55,11 @@ import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLConnection;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 /*
 Copyright (c) 2011+, HL7, Inc
@@ -145,6 +153,9 @@ public class ValidationEngine implements IValidatorResourceFetcher, IPackageInst
   @Getter @Setter private Locale locale;
   @Getter @Setter private List<ImplementationGuide> igs = new ArrayList<>();
   @Getter @Setter private boolean showTimes;
+  @Getter @Setter private int threads = 1;
+  @Getter @Setter private boolean deferSnapshots;
+  @Getter @Setter private boolean batchTerminology;
   @Getter @Setter private List<BundleValidationRule> bundleValidationRules = new ArrayList<>();
   @Getter @Setter private QuestionnaireMode questionnaireMode;
   @Getter @Setter private FHIRPathEngine fhirPathEngine;
@@ -199,6 +210,17 @@ public class ValidationEngine implements IValidatorResourceFetcher, IPackageInst
     igLoader = new IgLoader(getPcm(), getContext(), getVersion(), isDebug());
   }
 
+  /**
+   * Starts from a context that is already loaded (e.g. from a context image - see ContextImage)
+   */
+  public ValidationEngine(SimpleWorkerContext context, String vString, TimeTracker tt) throws FHIRException, IOException {
+    this.context = context;
+    version = context.getVersion();
+    initContext(tt);
+    setVersion(vString);
+    igLoader = new IgLoader(getPcm(), getContext(), getVersion(), isDebug());
+  }
+
   private void loadCoreDefinitions(String src, boolean recursive, TimeTracker tt) throws FHIRException, IOException {
     NpmPackage npm = getPcm().loadPackage(src, null);
     if (npm != null) {
@@ -220,11 +242,14 @@ public class ValidationEngine implements IValidatorResourceFetcher, IPackageInst
     context.setCacheId(UUID.randomUUID().toString());
     context.setAllowLoadingDuplicates(true); // because of Forge
     context.setExpansionProfile(makeExpProfile());
+    context.setSnapshotCache(new SnapshotCache(getPcm().getFolder()));
     if (tt != null) {
       context.setClock(tt);
     }
-    NpmPackage npmX = getPcm().loadPackage("hl7.fhir.xver-extensions", "0.0.4");
-    context.loadFromPackage(npmX, null);
+    if (!context.hasPackage("hl7.fhir.xver-extensions", "0.0.4")) {
+      NpmPackage npmX = getPcm().loadPackage("hl7.fhir.xver-extensions", "0.0.4");
+      context.loadFromPackage(npmX, null);
+    }
 
     this.fhirPathEngine = new FHIRPathEngine(context);
   }
@@ -318,21 +343,30 @@ public class ValidationEngine implements IValidatorResourceFetcher, IPackageInst
     boolean asBundle = ValidatorUtils.parseSources(sources, refs, context);
     Bundle results = new Bundle();
     results.setType(Bundle.BundleType.COLLECTION);
-    for (String ref : refs) {
+    if (threads > 1 && refs.size() > 1) {
       TimeTracker.Session tts = context.clock().start("validation");
-      context.clock().milestone();
-      System.out.print("  Validate " + ref);
-      Content cnt = igLoader.loadContent(ref, "validate", false);
       try {
-        OperationOutcome outcome = validate(ref, cnt.focus, cnt.cntType, profiles, record);
-        ToolingExtensions.addStringExtension(outcome, ToolingExtensions.EXT_OO_FILE, ref);
-        System.out.println(" " + context.clock().milestone());
-        results.addEntry().setResource(outcome);
-        tts.end();
-      } catch (Exception e) {
-        System.out.println("Validation Infrastructure fail validating " + ref + ": " + e.getMessage());
+        validateInParallel(refs, profiles, record, results);
+      } finally {
         tts.end();
-        throw new FHIRException(e);
+      }
+    } else {
+      for (String ref : refs) {
+        TimeTracker.Session tts = context.clock().start("validation");
+        context.clock().milestone();
+        System.out.print("  Validate " + ref);
+        Content cnt = igLoader.loadContent(ref, "validate", false);
+        try {
+          OperationOutcome outcome = validate(ref, cnt.focus, cnt.cntType, profiles, record);
+          ToolingExtensions.addStringExtension(outcome, ToolingExtensions.EXT_OO_FILE, ref);
+          System.out.println(" " + context.clock().milestone());
+          results.addEntry().setResource(outcome);
+          tts.end();
+        } catch (Exception e) {
+          System.out.println("Validation Infrastructure fail validating " + ref + ": " + e.getMessage());
+          tts.end();
+          throw new FHIRException(e);
+        }
       }
     }
     if (asBundle)
@@ -341,6 +375,61 @@ public class ValidationEngine implements IValidatorResourceFetcher, IPackageInst
       return results.getEntryFirstRep().getResource();
   }
 
+  /**
+   * Validates the refs concurrently, using up to {@link #threads} workers. Each worker uses its own
+   * InstanceValidator against the shared context, which is only read once the engine is loaded.
+   * Outcomes and records are added in the same order as refs, so the result doesn't depend on
+   * which file finishes first
+   */
+  private void validateInParallel(List<String> refs, List<String> profiles, List<ValidationRecord> record, Bundle results) throws FHIRException {
+    ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, refs.size()));
+    try {
+      List<Future<ParallelValidationResult>> futures = new ArrayList<>();
+      for (String ref : refs) {
+        futures.add(executor.submit(() -> {
+          long start = System.nanoTime();
+          Content cnt = igLoader.loadContent(ref, "validate", false);
+          List<ValidationRecord> records = record == null ? null : new ArrayList<>();
+          OperationOutcome outcome = validate(ref, cnt.focus, cnt.cntType, profiles, records);
+          ToolingExtensions.addStringExtension(outcome, ToolingExtensions.EXT_OO_FILE, ref);
+          return new ParallelValidationResult(outcome, records, (System.nanoTime() - start) / 1000000);
+        }));
+      }
+      for (int i = 0; i < refs.size(); i++) {
+        String ref = refs.get(i);
+        try {
+          ParallelValidationResult res = futures.get(i).get();
+          System.out.println("  Validate " + ref + " " + res.millis + "ms");
+          results.addEntry().setResource(res.outcome);
+          if (record != null) {
+            record.addAll(res.records);
+          }
+        } catch (ExecutionException e) {
+          Throwable cause = e.getCause() == null ? e : e.getCause();
+          System.out.println("Validation Infrastructure fail validating " + ref + ": " + cause.getMessage());
+          throw new FHIRException(cause);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new FHIRException(e);
+        }
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static class ParallelValidationResult {
+    private final OperationOutcome outcome;
+    private final List<ValidationRecord> records;
+    private final long millis;
+
+    private ParallelValidationResult(OperationOutcome outcome, List<ValidationRecord> records, long millis) {
+      this.outcome = outcome;
+      this.records = records;
+      this.millis = millis;
+    }
+  }
+
   public OperationOutcome validate(byte[] source, FhirFormat cntType, List<String> profiles, List<ValidationMessage> messages) throws FHIRException, IOException, EOperationOutcome {
     InstanceValidator validator = getValidator();
 
@@ -435,7 +524,7 @@ public class ValidationEngine implements IValidatorResourceFetcher, IPackageInst
     Content cnt = igLoader.loadContent(source, "validate", false);
     FHIRPathEngine fpe = this.getValidator().getFHIRPathEngine();
     Element e = Manager.parse(context, new ByteArrayInputStream(cnt.focus), cnt.cntType);
-    ExpressionNode exp = fpe.parse(expression);
+    ExpressionNode exp = fpe.parseCached(expression);
     return fpe.evaluateToString(new ValidatorHostContext(context, e), e, e, e, exp);
   }
 
@@ -470,6 +559,7 @@ public class ValidationEngine implements IValidatorResourceFetcher, IPackageInst
     validator.setNoExtensibleWarnings(noExtensibleBindingMessages);
     validator.setSecurityChecks(securityChecks);
     validator.setCrumbTrails(crumbTrails);
+    validator.setBatchTerminology(batchTerminology);
     validator.getContext().setLocale(locale);
     validator.setFetcher(this);
     validator.getImplementationGuides().addAll(igs);
@@ -479,7 +569,34 @@ public class ValidationEngine implements IValidatorResourceFetcher, IPackageInst
     return validator;
   }
 
+  public IMetrics getMetrics() {
+    return context.getMetrics();
+  }
+
+  /**
+   * @param metrics where the context, and the validators from getValidator, report what they are spending their time on
+   */
+  public void setMetrics(IMetrics metrics) {
+    context.setMetrics(metrics);
+  }
+
+  /**
+   * Generates the snapshots of the profiles in the context that don't have one.
+   * <p>
+   * If {@link #threads} is more than 1, the snapshots are generated concurrently: each profile's snapshot is
+   * generated as soon as its base's is, so profiles that don't depend on each other are done at the same time.
+   * <p>
+   * If {@link #deferSnapshots} is set, this does nothing, and each snapshot is generated when the profile is
+   * first fetched from the context instead (so profiles that aren't used are never loaded)
+   */
   public void prepare() {
+    if (deferSnapshots) {
+      return;
+    }
+    if (threads > 1) {
+      prepareInParallel();
+      return;
+    }
     for (StructureDefinition sd : context.allStructures()) {
       try {
         makeSnapshot(sd);
@@ -492,6 +609,61 @@ public class ValidationEngine implements IValidatorResourceFetcher, IPackageInst
     }
   }
 
+  private void prepareInParallel() {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      Map<StructureDefinition, CompletableFuture<Void>> tasks = new IdentityHashMap<>();
+      for (StructureDefinition sd : context.listStructures()) {
+        scheduleSnapshot(sd, tasks, executor);
+      }
+      CompletableFuture.allOf(tasks.values().toArray(new CompletableFuture[0])).join();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  // the snapshot is generated after the base's, whether or not that worked (if it didn't, this one will fail too, and say why).
+  // Profiles that have a snapshot are scheduled too, since another task may still be filling it in: generateSnapshot
+  // waits for that, and returns straight away once the snapshot is complete
+  private CompletableFuture<Void> scheduleSnapshot(StructureDefinition sd, Map<StructureDefinition, CompletableFuture<Void>> tasks, ExecutorService executor) {
+    CompletableFuture<Void> task = tasks.get(sd);
+    if (task == null) {
+      // in case the profiles go round in a circle
+      tasks.put(sd, CompletableFuture.completedFuture(null));
+      StructureDefinition base = sd.hasBaseDefinition() ? context.fetchRawProfile(sd.getBaseDefinition()) : null;
+      CompletableFuture<Void> after = base == null ? CompletableFuture.completedFuture(null) : scheduleSnapshot(base, tasks, executor);
+      task = after.handleAsync((v, e) -> {
+        try {
+          context.generateSnapshot(sd);
+        } catch (Exception ex) {
+          System.out.println("Process Note: Unable to generate snapshot for " + sd.present() + ": " + ex.getMessage());
+          if (debug) {
+            ex.printStackTrace();
+          }
+        }
+        return null;
+      }, executor);
+      tasks.put(sd, task);
+    }
+    return task;
+  }
+
+  /**
+   * Saves the context as it is now, with everything that has been loaded and the snapshots that have been
+   * generated, so that the next run can start from it (see SimpleWorkerContext.fromImage)
+   */
+  public void saveContextImage(String filename) throws IOException {
+    ContextImage.save(context, filename);
+  }
+
+  /**
+   * Saves the context as for saveContextImage(filename), recording the sources it was loaded from, so that
+   * the image isn't used if they change (see SimpleWorkerContext.fromImage(filename, sources))
+   */
+  public void saveContextImage(String filename, List<String> sources) throws IOException {
+    ContextImage.save(context, filename, sources);
+  }
+
   private void makeSnapshot(StructureDefinition sd) throws DefinitionException, FHIRException {
     if (sd.hasSnapshot())
       return;
@@ -82,6 +82,18 @@ public class CliContext {
   @JsonProperty("showTimes")
   private boolean showTimes = false;
   
+  @JsonProperty("threads")
+  private int threads = 1;
+  
+  @JsonProperty("txBatch")
+  private boolean txBatch = false;
+  
+  @JsonProperty("deferSnapshots")
+  private boolean deferSnapshots = false;
+  
+  @JsonProperty("contextImage")
+  private String contextImage = null;
+  
   @JsonProperty("locale")
   private String locale = Locale.ENGLISH.getDisplayLanguage();
 
@@ -469,6 +481,38 @@ public class CliContext {
     this.showTimes = showTimes;
   }
 
+  public int getThreads() {
+    return threads;
+  }
+
+  public void setThreads(int threads) {
+    this.threads = threads;
+  }
+
+  public boolean isTxBatch() {
+    return txBatch;
+  }
+
+  public void setTxBatch(boolean txBatch) {
+    this.txBatch = txBatch;
+  }
+
+  public boolean isDeferSnapshots() {
+    return deferSnapshots;
+  }
+
+  public void setDeferSnapshots(boolean deferSnapshots) {
+    this.deferSnapshots = deferSnapshots;
+  }
+
+  public String getContextImage() {
+    return contextImage;
+  }
+
+  public void setContextImage(String contextImage) {
+    this.contextImage = contextImage;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) return true;
@@ -500,6 +544,10 @@ public class CliContext {
       Objects.equals(sources, that.sources) &&
       Objects.equals(crumbTrails, that.crumbTrails) &&
       Objects.equals(showTimes, that.showTimes) &&
+      threads == that.threads &&
+      txBatch == that.txBatch &&
+      deferSnapshots == that.deferSnapshots &&
+      Objects.equals(contextImage, that.contextImage) &&
       mode == that.mode &&
       Objects.equals(locale, that.locale) &&
       Objects.equals(locations, that.locations);
@@ -507,7 +555,7 @@ public class CliContext {
 
   @Override
   public int hashCode() {
-    return Objects.hash(doNative, anyExtensionsAllowed, hintAboutNonMustSupport, recursive, doDebug, assumeValidRestReferences, canDoNative, noInternalCaching, noExtensibleBindingMessages, map, output, htmlOutput, txServer, sv, txLog, mapLog, lang, fhirpath, snomedCT, targetVer, igs, questionnaireMode, profiles, sources, mode, locale, locations, crumbTrails, showTimes);
+    return Objects.hash(doNative, anyExtensionsAllowed, hintAboutNonMustSupport, recursive, doDebug, assumeValidRestReferences, canDoNative, noInternalCaching, noExtensibleBindingMessages, map, output, htmlOutput, txServer, sv, txLog, mapLog, lang, fhirpath, snomedCT, targetVer, igs, questionnaireMode, profiles, sources, mode, locale, locations, crumbTrails, showTimes, threads, txBatch, deferSnapshots, contextImage);
   }
 
   @Override
@@ -541,6 +589,10 @@ public class CliContext {
       ", securityChecks=" + securityChecks +
       ", crumbTrails=" + crumbTrails +
       ", showTimes=" + showTimes +
+      ", threads=" + threads +
+      ", txBatch=" + txBatch +
+      ", deferSnapshots=" + deferSnapshots +
+      ", contextImage='" + contextImage + '\'' +
       ", locale='" + locale + '\'' +
       ", locations=" + locations +
       ", bundleValidationRules=" + bundleValidationRules +
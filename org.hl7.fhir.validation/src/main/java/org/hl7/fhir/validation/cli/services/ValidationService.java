@@ -13,6 +13,7 @@ import org.hl7.fhir.utilities.TextFile;
 import org.hl7.fhir.utilities.TimeTracker;
 import org.hl7.fhir.utilities.Utilities;
 import org.hl7.fhir.utilities.VersionUtilities;
+import org.hl7.fhir.utilities.metrics.InMemoryMetrics;
 import org.hl7.fhir.utilities.npm.FilesystemPackageCacheManager;
 import org.hl7.fhir.utilities.npm.ToolsVersion;
 import org.hl7.fhir.utilities.validation.ValidationMessage;
@@ -23,9 +24,18 @@ import org.hl7.fhir.validation.cli.model.*;
 import org.hl7.fhir.validation.cli.utils.EngineMode;
 import org.hl7.fhir.validation.cli.utils.VersionSourceInformation;
 
+import java.io.File;
 import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
 
 public class ValidationService {
 
@@ -58,17 +68,42 @@ public class ValidationService {
 
     ValidationResponse response = new ValidationResponse().setSessionId(sessionId);
 
-    for (FileInfo fp : request.getFilesToValidate()) {
-      List<ValidationMessage> messages = new ArrayList<>();
-      validator.validate(fp.getFileContent().getBytes(), Manager.FhirFormat.getFhirFormat(fp.getFileType()),
-        request.getCliContext().getProfiles(), messages);
-      ValidationOutcome outcome = new ValidationOutcome().setFileInfo(fp);
-      messages.forEach(outcome::addMessage);
-      response.addOutcome(outcome);
+    int threads = Math.min(request.getCliContext().getThreads(), request.getFilesToValidate().size());
+    if (threads > 1) {
+      // the outcomes are added in request order, whichever file finishes first
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+      try {
+        List<Future<ValidationOutcome>> futures = new ArrayList<>();
+        for (FileInfo fp : request.getFilesToValidate()) {
+          futures.add(executor.submit(() -> validateFile(validator, fp, request.getCliContext())));
+        }
+        for (Future<ValidationOutcome> future : futures) {
+          try {
+            response.addOutcome(future.get());
+          } catch (ExecutionException e) {
+            throw e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+          }
+        }
+      } finally {
+        executor.shutdownNow();
+      }
+    } else {
+      for (FileInfo fp : request.getFilesToValidate()) {
+        response.addOutcome(validateFile(validator, fp, request.getCliContext()));
+      }
     }
     return response;
   }
 
+  private ValidationOutcome validateFile(ValidationEngine validator, FileInfo fp, CliContext cliContext) throws Exception {
+    List<ValidationMessage> messages = new ArrayList<>();
+    validator.validate(fp.getFileContent().getBytes(), Manager.FhirFormat.getFhirFormat(fp.getFileType()),
+      cliContext.getProfiles(), messages);
+    ValidationOutcome outcome = new ValidationOutcome().setFileInfo(fp);
+    messages.forEach(outcome::addMessage);
+    return outcome;
+  }
+
   public VersionSourceInformation scanForVersions(CliContext cliContext) throws Exception {
     VersionSourceInformation versions = new VersionSourceInformation();
     IgLoader igLoader = new IgLoader(
@@ -89,6 +124,9 @@ public class ValidationService {
     int ec = 0;
     System.out.println("Done. " + validator.getContext().clock().report());
     System.out.println();
+    if (validator.getMetrics() instanceof InMemoryMetrics) {
+      System.out.println(((InMemoryMetrics) validator.getMetrics()).report(20));
+    }
 
     if (cliContext.getOutput() == null) {
       if (r instanceof Bundle)
@@ -212,8 +250,15 @@ public class ValidationService {
     tt.milestone();
     if (!sessionCache.sessionExists(sessionId)) {
       System.out.println("No such cached session exists for session id " + sessionId + ", re-instantiating validator.");
-      System.out.print("  Load FHIR v" + cliContext.getSv() + " from " + definitions);
-      ValidationEngine validator = new ValidationEngine(definitions, cliContext.getSv(), tt);
+      List<String> imageSources = contextImageSources(cliContext, definitions);
+      SimpleWorkerContext image = loadContextImage(cliContext, imageSources);
+      ValidationEngine validator;
+      if (image != null) {
+        validator = new ValidationEngine(image, cliContext.getSv(), tt);
+      } else {
+        System.out.print("  Load FHIR v" + cliContext.getSv() + " from " + definitions);
+        validator = new ValidationEngine(definitions, cliContext.getSv(), tt);
+      }
       sessionId = sessionCache.cacheSession(validator);
 
       FhirPublication ver = FhirPublication.fromCode(cliContext.getSv());
@@ -240,10 +285,19 @@ public class ValidationService {
       validator.setSecurityChecks(cliContext.isSecurityChecks());
       validator.setCrumbTrails(cliContext.isCrumbTrails());
       validator.setShowTimes(cliContext.isShowTimes());
+      if (cliContext.isShowTimes()) {
+        validator.setMetrics(new InMemoryMetrics());
+      }
+      validator.setThreads(cliContext.getThreads());
+      validator.setBatchTerminology(cliContext.isTxBatch());
+      validator.setDeferSnapshots(cliContext.isDeferSnapshots());
       validator.setFetcher(new StandAloneValidatorFetcher(validator.getPcm(), validator.getContext(), validator));
       validator.getBundleValidationRules().addAll(cliContext.getBundleValidationRules());
       TerminologyCache.setNoCaching(cliContext.isNoInternalCaching());
       validator.prepare(); // generate any missing snapshots
+      if (cliContext.getContextImage() != null && image == null) {
+        validator.saveContextImage(cliContext.getContextImage(), imageSources);
+      }
       System.out.println(" go (" + tt.milestone() + ")");
     } else {
       System.out.println("Cached session exists for session id " + sessionId + ", returning stored validator session id.");
@@ -251,6 +305,59 @@ public class ValidationService {
     return sessionId;
   }
 
+  /**
+   * What the content of a context image depends on: the definitions, the IGs, and for IGs that are local files
+   * or folders, when they were last changed. If any of these are different, the image is made again
+   */
+  private List<String> contextImageSources(CliContext cliContext, String definitions) throws IOException {
+    List<String> res = new ArrayList<>();
+    res.add("sv=" + cliContext.getSv());
+    res.add("definitions=" + describeSource(definitions));
+    res.add("recursive=" + cliContext.isRecursive());
+    for (String src : cliContext.getIgs()) {
+      res.add("ig=" + describeSource(src));
+    }
+    return res;
+  }
+
+  private String describeSource(String src) throws IOException {
+    File f = src == null ? null : new File(src);
+    if (f == null || !f.exists()) {
+      // a package, or a url
+      return src;
+    }
+    if (f.isFile()) {
+      return f.getAbsolutePath() + "@" + f.lastModified() + ":" + f.length();
+    }
+    long latest = f.lastModified();
+    int count = 0;
+    try (Stream<Path> files = Files.walk(f.toPath())) {
+      for (Path file : (Iterable<Path>) files::iterator) {
+        latest = Math.max(latest, file.toFile().lastModified());
+        count++;
+      }
+    }
+    return f.getAbsolutePath() + "@" + latest + ":" + count;
+  }
+
+  private SimpleWorkerContext loadContextImage(CliContext cliContext, List<String> sources) {
+    if (cliContext.getContextImage() == null || !new File(cliContext.getContextImage()).exists()) {
+      return null;
+    }
+    System.out.print("  Load context image " + cliContext.getContextImage());
+    try {
+      SimpleWorkerContext context = SimpleWorkerContext.fromImage(cliContext.getContextImage(), sources);
+      if (!VersionUtilities.versionsCompatible(cliContext.getSv(), context.getVersion())) {
+        System.out.println(" - it is for FHIR v" + context.getVersion() + ", so it will be made again");
+        return null;
+      }
+      return context;
+    } catch (Exception e) {
+      System.out.println(" - " + e.getMessage() + ", so it will be made again");
+      return null;
+    }
+  }
+
   public int displayOperationOutcome(OperationOutcome oo, boolean hasMultiples) {
     int error = 0;
     int warn = 0;
@@ -2,6 +2,7 @@ package org.hl7.fhir.validation.cli.utils;
 
 import org.apache.http.auth.AUTH;
 import org.hl7.fhir.r5.utils.IResourceValidator.BundleValidationRule;
+import org.hl7.fhir.utilities.Utilities;
 import org.hl7.fhir.utilities.VersionUtilities;
 import org.hl7.fhir.validation.cli.model.CliContext;
 
@@ -55,6 +56,10 @@ public class Params {
   public static final String SECURITY_CHECKS = "-security-checks";
   public static final String CRUMB_TRAIL = "-crumb-trails";
   public static final String SHOW_TIMES = "-show-times";
+  public static final String THREADS = "-threads";
+  public static final String TX_BATCH = "-tx-batch";
+  public static final String DEFER_SNAPSHOTS = "-defer-snapshots";
+  public static final String CONTEXT_IMAGE = "-context-image";
 
   /**
    * Checks the list of passed in params to see if it contains the passed in param.
@@ -178,6 +183,21 @@ public class Params {
         cliContext.setCrumbTrails(true);
       } else if (args[i].equals(SHOW_TIMES)) {
         cliContext.setShowTimes(true);
+      } else if (args[i].equals(THREADS)) {
+        if (i + 1 == args.length)
+          throw new Error("Specified -threads without indicating the number of threads");
+        String n = args[++i];
+        if (!Utilities.isInteger(n) || Integer.parseInt(n) < 1)
+          throw new Error("The number of threads must be a positive integer, not '" + n + "'");
+        cliContext.setThreads(Integer.parseInt(n));
+      } else if (args[i].equals(TX_BATCH)) {
+        cliContext.setTxBatch(true);
+      } else if (args[i].equals(DEFER_SNAPSHOTS)) {
+        cliContext.setDeferSnapshots(true);
+      } else if (args[i].equals(CONTEXT_IMAGE)) {
+        if (i + 1 == args.length)
+          throw new Error("Specified -context-image without indicating the file");
+        cliContext.setContextImage(args[++i]);
       } else if (args[i].equals(SCAN)) {
         cliContext.setMode(EngineMode.SCAN);
       } else if (args[i].equals(TERMINOLOGY)) {
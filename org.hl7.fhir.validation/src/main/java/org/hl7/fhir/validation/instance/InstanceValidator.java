@@ -33,6 +33,7 @@ package org.hl7.fhir.validation.instance;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
+import java.io.BufferedInputStream;
 import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
@@ -41,12 +42,16 @@ import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
 
 import org.apache.commons.codec.binary.Base64InputStream;
 import org.apache.commons.lang3.NotImplementedException;
@@ -57,6 +62,7 @@ import org.hl7.fhir.exceptions.PathEngineException;
 import org.hl7.fhir.exceptions.TerminologyServiceException;
 import org.hl7.fhir.r5.conformance.ProfileUtilities;
 import org.hl7.fhir.r5.context.IWorkerContext;
+import org.hl7.fhir.r5.context.IWorkerContext.CodingValidationRequest;
 import org.hl7.fhir.r5.context.IWorkerContext.ValidationResult;
 import org.hl7.fhir.r5.elementmodel.Element;
 import org.hl7.fhir.r5.elementmodel.Element.SpecialElement;
@@ -126,19 +132,23 @@ import org.hl7.fhir.r5.model.TypeDetails;
 import org.hl7.fhir.r5.model.UriType;
 import org.hl7.fhir.r5.model.ValueSet;
 import org.hl7.fhir.r5.model.ValueSet.ValueSetExpansionContainsComponent;
+import org.hl7.fhir.r5.terminologies.ValueSetCheckerSimple;
 import org.hl7.fhir.r5.terminologies.ValueSetExpander.TerminologyServiceErrorClass;
 import org.hl7.fhir.r5.utils.FHIRLexer.FHIRLexerException;
 import org.hl7.fhir.r5.utils.FHIRPathEngine;
+import org.hl7.fhir.r5.utils.FHIRPathExecutionPlan;
 import org.hl7.fhir.r5.utils.FHIRPathEngine.IEvaluationContext;
 import org.hl7.fhir.r5.utils.IResourceValidator;
 import org.hl7.fhir.r5.utils.ToolingExtensions;
 import org.hl7.fhir.r5.utils.XVerExtensionManager;
 import org.hl7.fhir.utilities.CommaSeparatedStringBuilder;
+import org.hl7.fhir.utilities.PatternCache;
 import org.hl7.fhir.utilities.Utilities;
 import org.hl7.fhir.utilities.Utilities.DecimalStatus;
 import org.hl7.fhir.utilities.VersionUtilities;
 import org.hl7.fhir.utilities.VersionUtilities.VersionURLInfo;
 import org.hl7.fhir.utilities.i18n.I18nConstants;
+import org.hl7.fhir.utilities.metrics.IMetrics;
 import org.hl7.fhir.utilities.validation.ValidationMessage;
 import org.hl7.fhir.utilities.validation.ValidationMessage.IssueSeverity;
 import org.hl7.fhir.utilities.validation.ValidationMessage.IssueType;
@@ -155,12 +165,17 @@ import org.hl7.fhir.validation.instance.type.QuestionnaireValidator;
 import org.hl7.fhir.validation.instance.type.SearchParameterValidator;
 import org.hl7.fhir.validation.instance.type.StructureDefinitionValidator;
 import org.hl7.fhir.validation.instance.type.ValueSetValidator;
+import org.hl7.fhir.validation.instance.utils.BundleIndex;
 import org.hl7.fhir.validation.instance.utils.ChildIterator;
 import org.hl7.fhir.validation.instance.utils.ElementInfo;
+import org.hl7.fhir.validation.instance.utils.ElementPlan;
+import org.hl7.fhir.validation.instance.utils.ElementPlan.ChildPlan;
+import org.hl7.fhir.validation.instance.utils.ElementPlan.InvariantPlan;
 import org.hl7.fhir.validation.instance.utils.IndexedElement;
 import org.hl7.fhir.validation.instance.utils.NodeStack;
 import org.hl7.fhir.validation.instance.utils.ResolvedReference;
 import org.hl7.fhir.validation.instance.utils.ResourceValidationTracker;
+import org.hl7.fhir.validation.instance.utils.SliceIndex;
 import org.hl7.fhir.validation.instance.utils.ValidatorHostContext;
 import org.w3c.dom.Document;
 
@@ -186,7 +201,15 @@ import com.google.gson.JsonObject;
 public class InstanceValidator extends BaseValidator implements IResourceValidator {
   private static final String EXECUTED_CONSTRAINT_LIST = "validator.executed.invariant.list";
   private static final String EXECUTION_ID = "validator.execution.id";
-  private static final String HTML_FRAGMENT_REGEX = "[a-zA-Z]\\w*(((\\s+)(\\S)*)*)";
+  private static final String SLICE_INDEX = "validator.slice.index";
+  private static final Pattern HTML_FRAGMENT_REGEX = Pattern.compile("[a-zA-Z]\\w*(((\\s+)(\\S)*)*)");
+  private static final Pattern DATETIME_REGEX = Pattern.compile("([0-9]([0-9]([0-9][1-9]|[1-9]0)|[1-9]00)|[1-9]000)(-(0[1-9]|1[0-2])(-(0[1-9]|[1-2][0-9]|3[0-1])(T([01][0-9]|2[0-3]):[0-5][0-9]:([0-5][0-9]|60)(\\.[0-9]+)?(Z|(\\+|-)((0[0-9]|1[0-3]):[0-5][0-9]|14:00))?)?)?)?");
+  private static final Pattern TIME_REGEX = Pattern.compile("([01][0-9]|2[0-3]):[0-5][0-9]:([0-5][0-9]|60)");
+  private static final Pattern DATE_REGEX = Pattern.compile("([0-9]([0-9]([0-9][1-9]|[1-9]0)|[1-9]00)|[1-9]000)(-(0[1-9]|1[0-2])(-(0[1-9]|[1-2][0-9]|3[0-1]))?)?");
+  private static final Pattern INSTANT_REGEX = Pattern.compile("-?[0-9]{4}-(0[1-9]|1[0-2])-(0[1-9]|[1-2][0-9]|3[0-1])T([01][0-9]|2[0-3]):[0-5][0-9]:([0-5][0-9]|60)(\\.[0-9]+)?(Z|(\\+|-)((0[0-9]|1[0-3]):[0-5][0-9]|14:00))");
+  private static final Pattern JSON_BUNDLE = Pattern.compile("^\\s*\\{\\s*\"resourceType\"\\s*:\\s*\"Bundle\"");
+  private static final int JSON_HEADER_SIZE = 256;
+  private static final Pattern MIME_TYPE_REGEX = Pattern.compile("^(\\w+|\\*)\\/(\\w+|\\*)((;\\s*(\\w+)=\\s*(\\S+))?)$");
   
   private class ValidatorHostServices implements IEvaluationContext {
 
@@ -364,6 +387,11 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
   private boolean debug;
   private Map<String, Element> fetchCache = new HashMap<>();
   private HashMap<Element, ResourceValidationTracker> resourceTracker = new HashMap<>();
+  // the plans and slice indexes for the definitions, shared by all the validators that use the context (see getDefinitionCache)
+  private Map<ElementDefinition, ElementPlan> elementPlans;
+  private Map<ElementDefinition, SliceIndex> sliceIndexes;
+  // the indexed slices that each element of the instance is in
+  private Map<Element, Map<SliceIndex, Set<ElementDefinition>>> sliceMatches = new IdentityHashMap<>();
   private IValidatorResourceFetcher fetcher;
   long time = 0;
   private IEvaluationContext externalHostServices;
@@ -381,6 +409,7 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
   private boolean crumbTrails;
   private List<BundleValidationRule> bundleValidationRules = new ArrayList<>();
   private boolean validateValueSetCodesOnTxServer = true;
+  private boolean batchTerminology;
   private QuestionnaireMode questionnaireMode;
 
   public InstanceValidator(IWorkerContext theContext, IEvaluationContext hostServices, XVerExtensionManager xverManager) {
@@ -393,6 +422,14 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
     if (theContext.getVersion().startsWith("3.0") || theContext.getVersion().startsWith("1.0"))
       fpe.setLegacyMode(true);
     source = Source.InstanceValidator;
+    elementPlans = definitionCache(ElementPlan.CACHE);
+    sliceIndexes = definitionCache(SLICE_INDEX);
+  }
+
+  private <V> Map<ElementDefinition, V> definitionCache(String name) {
+    Map<ElementDefinition, V> cache = context.getDefinitionCache(name);
+    // if the context doesn't keep them, this validator does
+    return cache != null ? cache : new ConcurrentHashMap<>();
   }
 
   @Override
@@ -478,6 +515,18 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
     this.crumbTrails = crumbTrails;
   }
 
+  public boolean isBatchTerminology() {
+    return batchTerminology;
+  }
+
+  /**
+   * @param batchTerminology if true, the codes in the resource are collected and checked in batches before
+   * the resource is validated, so that the checks made during validation are found in the terminology cache
+   */
+  public void setBatchTerminology(boolean batchTerminology) {
+    this.batchTerminology = batchTerminology;
+  }
+
   private boolean allowUnknownExtension(String url) {
     if ((allowExamples && (url.contains("example.org") || url.contains("acme.com"))) || url.contains("nema.org") || url.startsWith("http://hl7.org/fhir/tools/StructureDefinition/") || url.equals("http://hl7.org/fhir/StructureDefinition/structuredefinition-expression"))
       // Added structuredefinition-expression explicitly because it wasn't defined in the version of the spec it needs to be used with
@@ -547,7 +596,7 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
     long t = System.nanoTime();
     Element e;
     try {
-      e = parser.parse(stream);
+      e = parser instanceof JsonParser ? parseJson((JsonParser) parser, stream) : parser.parse(stream);
     } catch (IOException e1) {
       throw new FHIRException(e1);
     }
@@ -557,6 +606,62 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
     return e;
   }
 
+  /**
+   * Bundles are read an entry at a time, so that the source text and the JSON for the whole bundle are never 
+   * held at once. The entries are put back into the bundle afterwards, since the bundle rules need all of them.
+   * 
+   * (XML bundles are still read in one go: the element order is checked against the document, and the 
+   * streamed entries don't keep their place amongst the other children)
+   */
+  private Element parseJson(JsonParser parser, InputStream stream) throws IOException, FHIRException {
+    if (!stream.markSupported()) {
+      stream = new BufferedInputStream(stream);
+    }
+    stream.mark(JSON_HEADER_SIZE);
+    byte[] header = new byte[JSON_HEADER_SIZE];
+    int length = 0;
+    int n;
+    while (length < header.length && (n = stream.read(header, length, header.length - length)) > 0) {
+      length = length + n;
+    }
+    stream.reset();
+    // only when resourceType comes first - otherwise we can't tell without reading it all anyway
+    if (!JSON_BUNDLE.matcher(new String(header, 0, length, StandardCharsets.UTF_8)).find()) {
+      return parser.parse(stream);
+    }
+    List<Element> entries = new ArrayList<>();
+    Element bundle = parser.parseBundle(stream, (index, entry, resource) -> entries.add(entry));
+    if (bundle != null && !entries.isEmpty()) {
+      bundle.getChildren().addAll(entryInsertionPoint(bundle), entries);
+      bundle.numberChildren();
+    }
+    return bundle;
+  }
+
+  /**
+   * The entries go where the JSON parser would have put them: in definition order, before the first 
+   * child that is defined after them
+   */
+  private int entryInsertionPoint(Element bundle) {
+    Set<String> after = new HashSet<>();
+    boolean found = false;
+    for (ElementDefinition ed : bundle.getProperty().getStructure().getSnapshot().getElement()) {
+      String tail = ed.getPath().substring(ed.getPath().indexOf(".") + 1);
+      if (ed.getPath().contains(".") && !tail.contains(".")) {
+        if (found) {
+          after.add(tail);
+        }
+        found = found || "entry".equals(tail);
+      }
+    }
+    for (int i = 0; i < bundle.getChildren().size(); i++) {
+      if (after.contains(bundle.getChildren().get(i).getName())) {
+        return i;
+      }
+    }
+    return bundle.getChildren().size();
+  }
+
   @Override
   public org.hl7.fhir.r5.elementmodel.Element validate(Object appContext, List<ValidationMessage> errors, Resource resource) throws FHIRException {
     return validate(appContext, errors, resource, new ArrayList<>());
@@ -695,11 +800,15 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
     fetchCache.clear();
     fetchCache.put(element.fhirType() + "/" + element.getIdBase(), element);
     resourceTracker.clear();
+    sliceMatches.clear();
     trackedMessages.clear();
     messagesToRemove.clear();
     executionId = UUID.randomUUID().toString();
     baseOnly = profiles.isEmpty();
     setParents(element);
+    if (batchTerminology && !noTerminologyChecks) {
+      prefetchCodes(element);
+    }
 
     long t = System.nanoTime();
     if (profiles == null || profiles.isEmpty()) {
@@ -714,9 +823,79 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
     }
     errors.removeAll(messagesToRemove);
     timeTracker.overall(t);
+    if (context.getMetrics().isEnabled()) {
+      context.getMetrics().time(IMetrics.VALIDATION_RESOURCE, element.fhirType(), System.nanoTime() - t);
+    }
   }
 
 
+  /**
+   * Collects the codings in the resource and checks them with context.validateCodeBatch, so that the 
+   * terminology server is asked about them in a $batch call instead of one call per code. Each code has
+   * its own options and value set. The results end up in the terminology cache, where the validation 
+   * finds them later. 
+   * 
+   * The codes are asked about the same way that checkCodeOnServer will ask about them, or the validation 
+   * won't find them in the cache (which includes the checks that ValueSetCheckerSimple makes against the 
+   * server when a CodeableConcept is checked against its value set). The display of a coding in a CodeableConcept is only checked if the 
+   * CodeableConcept wasn't validated against its value set (see checkCodeableConcept); here, it's assumed 
+   * that it will be. Only the bindings on the base definitions are known at this point; codes bound 
+   * differently in the profiles are still checked one at a time. Any problems here are ignored, since the 
+   * validation will run into them again and report them properly
+   */
+  private void prefetchCodes(Element element) {
+    long t = System.nanoTime();
+    try {
+      List<CodingValidationRequest> codes = new ArrayList<>();
+      collectCodes(codes, element, validationLanguage, true);
+      if (!codes.isEmpty()) {
+        context.validateCodeBatch(null, codes, null);
+      }
+    } catch (Exception e) {
+      // nothing - see above
+    }
+    timeTracker.tx(t);
+  }
+
+  private void collectCodes(List<CodingValidationRequest> codes, Element element, String lang, boolean checkDisplay) {
+    if (element.getProperty() != null && element.isResource() && element.hasChild("language")) {
+      lang = element.getNamedChildValue("language");
+    }
+    ElementDefinition ed = element.getProperty() == null ? null : element.getProperty().getDefinition();
+    ElementDefinitionBindingComponent binding = ed == null || !ed.hasBinding() || !ed.getBinding().hasValueSet() || ed.getBinding().getStrength() == BindingStrength.EXAMPLE ? null : ed.getBinding();
+    if (element.fhirType().equals("Coding")) {
+      Coding c = ObjectConverter.readAsCoding(element);
+      if (isNotBlank(c.getCode()) && isNotBlank(c.getSystem()) && context.supportsSystem(c.getSystem())) {
+        codes.add(new CodingValidationRequest(new Coding(c.getSystem(), c.getCode(), checkDisplay ? c.getDisplay() : null), new ValidationOptions(lang), null));
+        if (binding != null) {
+          StructureDefinition structure = element.getProperty().getStructure();
+          ValueSet vs = resolveBindingReference(structure, binding.getValueSet(), structure.getUrl());
+          if (vs != null) {
+            codes.add(new CodingValidationRequest(c, new ValidationOptions(lang), vs));
+          }
+        }
+      }
+    }
+    boolean childCheckDisplay = true;
+    if (element.fhirType().equals("CodeableConcept") && binding != null) {
+      StructureDefinition structure = element.getProperty().getStructure();
+      ValueSet vs = resolveBindingReference(structure, binding.getValueSet(), structure.getUrl());
+      if (vs != null) {
+        childCheckDisplay = false;
+        for (Coding c : ObjectConverter.readAsCodeableConcept(element).getCoding()) {
+          if (isNotBlank(c.getCode()) && isNotBlank(c.getSystem()) && context.supportsSystem(c.getSystem())) {
+            codes.add(new CodingValidationRequest(c, new ValidationOptions(lang).noCheckValueSetMembership(), vs));
+            // and the checks that the value set check of the whole CodeableConcept makes for each code
+            codes.addAll(new ValueSetCheckerSimple(new ValidationOptions(lang).checkValueSetOnly(), vs, context).getServerMembershipChecks(c.getSystem(), c.getCode()));
+          }
+        }
+      }
+    }
+    for (Element child : element.getChildren()) {
+      collectCodes(codes, child, lang, childCheckDisplay);
+    }
+  }
+
   private void checkElementUsage(List<ValidationMessage> errors, Element element, NodeStack stack) {
     String elementUsage = element.getUserString("elementSupported");
     hint(errors, IssueType.INFORMATIONAL, element.line(), element.col(), stack.getLiteralPath(), elementUsage == null || elementUsage.equals("Y"), I18nConstants.MUSTSUPPORT_VAL_MUSTSUPPORT, element.getName(), element.getProperty().getStructure().getUrl());
@@ -978,7 +1157,7 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
       ElementDefinitionBindingComponent binding = theElementCntext.getBinding();
       if (warning(errors, IssueType.CODEINVALID, element.line(), element.col(), path, binding != null, I18nConstants.TERMINOLOGY_TX_BINDING_MISSING, path)) {
         if (binding.hasValueSet()) {
-          ValueSet valueset = resolveBindingReference(profile, binding.getValueSet(), profile.getUrl());
+          ValueSet valueset = resolveBindingReference(profile, theElementCntext);
           if (warning(errors, IssueType.CODEINVALID, element.line(), element.col(), path, valueset != null, I18nConstants.TERMINOLOGY_TX_VALUESET_NOTFOUND, describeReference(binding.getValueSet()))) {
             try {
               CodeableConcept cc = ObjectConverter.readAsCodeableConcept(element);
@@ -1101,7 +1280,7 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
       ElementDefinitionBindingComponent binding = theElementCntext.getBinding();
       if (warning(errors, IssueType.CODEINVALID, element.line(), element.col(), path, binding != null, I18nConstants.TERMINOLOGY_TX_BINDING_MISSING, path)) {
         if (binding.hasValueSet()) {
-          ValueSet valueset = resolveBindingReference(profile, binding.getValueSet(), profile.getUrl());
+          ValueSet valueset = resolveBindingReference(profile, theElementCntext);
           if (warning(errors, IssueType.CODEINVALID, element.line(), element.col(), path, valueset != null, I18nConstants.TERMINOLOGY_TX_VALUESET_NOTFOUND, describeReference(binding.getValueSet()))) {
             try {
               CodeableConcept cc = convertToCodeableConcept(element, logical);
@@ -1223,7 +1402,7 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
             ElementDefinitionBindingComponent binding = theElementCntext.getBinding();
             if (warning(errors, IssueType.CODEINVALID, element.line(), element.col(), path, binding != null, I18nConstants.TERMINOLOGY_TX_BINDING_MISSING2, path)) {
               if (binding.hasValueSet()) {
-                ValueSet valueset = resolveBindingReference(profile, binding.getValueSet(), profile.getUrl());
+                ValueSet valueset = resolveBindingReference(profile, theElementCntext);
                 if (warning(errors, IssueType.CODEINVALID, element.line(), element.col(), path, valueset != null, I18nConstants.TERMINOLOGY_TX_VALUESET_NOTFOUND, describeReference(binding.getValueSet()))) {
                   try {
                     long t = System.nanoTime();
@@ -1445,7 +1624,7 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
             ElementDefinitionBindingComponent binding = theElementCntext.getBinding();
             if (warning(errors, IssueType.CODEINVALID, element.line(), element.col(), path, binding != null, I18nConstants.TERMINOLOGY_TX_BINDING_MISSING2, path)) {
               if (binding.hasValueSet()) {
-                ValueSet valueset = resolveBindingReference(profile, binding.getValueSet(), profile.getUrl());
+                ValueSet valueset = resolveBindingReference(profile, theElementCntext);
                 if (warning(errors, IssueType.CODEINVALID, element.line(), element.col(), path, valueset != null, I18nConstants.TERMINOLOGY_TX_VALUESET_NOTFOUND, describeReference(binding.getValueSet()))) {
                   try {
                     Coding c = ObjectConverter.readAsCoding(element);
@@ -1684,7 +1863,7 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
       } else if (ctxt.getType() == ExtensionContextType.FHIRPATH) {
         contexts.append("p:" + ctxt.getExpression());
         // The context is all elements that match the FHIRPath query found in the expression.
-        List<Base> res = fpe.evaluate(hostContext, resource, hostContext.getRootResource(), resource, fpe.parse(ctxt.getExpression()));
+        List<Base> res = fpe.evaluate(hostContext, resource, hostContext.getRootResource(), resource, fpe.parseCached(ctxt.getExpression()));
         if (res.contains(container)) {
           ok = true;
         }
@@ -1702,7 +1881,7 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
     } else {
       if (definition.hasContextInvariant()) {
         for (StringType s : definition.getContextInvariant()) {
-          if (!fpe.evaluateToBoolean(hostContext, resource, hostContext.getRootResource(), container, fpe.parse(s.getValue()))) {
+          if (!fpe.evaluateToBoolean(hostContext, resource, hostContext.getRootResource(), container, fpe.parseCached(s.getValue()))) {
             if (definition.hasUserData(XVerExtensionManager.XVER_EXT_MARKER)) {
               warning(errors, IssueType.STRUCTURE, container.line(), container.col(), stack.getLiteralPath(), false, I18nConstants.PROFILE_EXT_NOT_HERE, extUrl, s.getValue());              
               return true;
@@ -1911,7 +2090,7 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
     }
     String regex = context.getExtensionString(ToolingExtensions.EXT_REGEX);
     if (regex != null) {
-      rule(errors, IssueType.INVALID, e.line(), e.col(), path, e.primitiveValue().matches(regex), I18nConstants.TYPE_SPECIFIC_CHECKS_DT_PRIMITIVE_REGEX, e.primitiveValue(), regex);
+      rule(errors, IssueType.INVALID, e.line(), e.col(), path, PatternCache.matches(e.primitiveValue(), regex), I18nConstants.TYPE_SPECIFIC_CHECKS_DT_PRIMITIVE_REGEX, e.primitiveValue(), regex);
     }
     if (!"xhtml".equals(type)) {
       if (securityChecks) {
@@ -2017,8 +2196,7 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
     if (type.equals("dateTime")) {
       warning(errors, IssueType.INVALID, e.line(), e.col(), path, yearIsValid(e.primitiveValue()), I18nConstants.TYPE_SPECIFIC_CHECKS_DT_DATETIME_REASONABLE, e.primitiveValue());
       rule(errors, IssueType.INVALID, e.line(), e.col(), path,
-        e.primitiveValue()
-          .matches("([0-9]([0-9]([0-9][1-9]|[1-9]0)|[1-9]00)|[1-9]000)(-(0[1-9]|1[0-2])(-(0[1-9]|[1-2][0-9]|3[0-1])(T([01][0-9]|2[0-3]):[0-5][0-9]:([0-5][0-9]|60)(\\.[0-9]+)?(Z|(\\+|-)((0[0-9]|1[0-3]):[0-5][0-9]|14:00))?)?)?)?"), I18nConstants.TYPE_SPECIFIC_CHECKS_DT_DATETIME_VALID, e.primitiveValue());
+        DATETIME_REGEX.matcher(e.primitiveValue()).matches(), I18nConstants.TYPE_SPECIFIC_CHECKS_DT_DATETIME_VALID, e.primitiveValue());
       rule(errors, IssueType.INVALID, e.line(), e.col(), path, !hasTime(e.primitiveValue()) || hasTimeZone(e.primitiveValue()), I18nConstants.TYPE_SPECIFIC_CHECKS_DT_DATETIME_TZ);
       rule(errors, IssueType.INVALID, e.line(), e.col(), path, !context.hasMaxLength() || context.getMaxLength() == 0 || e.primitiveValue().length() <= context.getMaxLength(), I18nConstants.TYPE_SPECIFIC_CHECKS_DT_PRIMITIVE_LENGTH, context.getMaxLength());
       try {
@@ -2029,8 +2207,7 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
     }
     if (type.equals("time")) {
       rule(errors, IssueType.INVALID, e.line(), e.col(), path,
-        e.primitiveValue()
-          .matches("([01][0-9]|2[0-3]):[0-5][0-9]:([0-5][0-9]|60)"), I18nConstants.TYPE_SPECIFIC_CHECKS_DT_TIME_VALID);
+        TIME_REGEX.matcher(e.primitiveValue()).matches(), I18nConstants.TYPE_SPECIFIC_CHECKS_DT_TIME_VALID);
       try {
         TimeType dt = new TimeType(e.primitiveValue());
       } catch (Exception ex) {
@@ -2039,7 +2216,7 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
     }
     if (type.equals("date")) {
       warning(errors, IssueType.INVALID, e.line(), e.col(), path, yearIsValid(e.primitiveValue()), I18nConstants.TYPE_SPECIFIC_CHECKS_DT_DATETIME_REASONABLE, e.primitiveValue());
-      rule(errors, IssueType.INVALID, e.line(), e.col(), path, e.primitiveValue().matches("([0-9]([0-9]([0-9][1-9]|[1-9]0)|[1-9]00)|[1-9]000)(-(0[1-9]|1[0-2])(-(0[1-9]|[1-2][0-9]|3[0-1]))?)?"), I18nConstants.TYPE_SPECIFIC_CHECKS_DT_DATE_VALID);
+      rule(errors, IssueType.INVALID, e.line(), e.col(), path, DATE_REGEX.matcher(e.primitiveValue()).matches(), I18nConstants.TYPE_SPECIFIC_CHECKS_DT_DATE_VALID);
       rule(errors, IssueType.INVALID, e.line(), e.col(), path, !context.hasMaxLength() || context.getMaxLength() == 0 || e.primitiveValue().length() <= context.getMaxLength(), I18nConstants.TYPE_SPECIFIC_CHECKS_DT_PRIMITIVE_LENGTH, context.getMaxLength());
       try {
         DateType dt = new DateType(e.primitiveValue());
@@ -2099,7 +2276,7 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
     }
     if (type.equals("instant")) {
       rule(errors, IssueType.INVALID, e.line(), e.col(), path,
-        e.primitiveValue().matches("-?[0-9]{4}-(0[1-9]|1[0-2])-(0[1-9]|[1-2][0-9]|3[0-1])T([01][0-9]|2[0-3]):[0-5][0-9]:([0-5][0-9]|60)(\\.[0-9]+)?(Z|(\\+|-)((0[0-9]|1[0-3]):[0-5][0-9]|14:00))"), I18nConstants.TYPE_SPECIFIC_CHECKS_DT_DATETIME_REGEX, e.primitiveValue());
+        INSTANT_REGEX.matcher(e.primitiveValue()).matches(), I18nConstants.TYPE_SPECIFIC_CHECKS_DT_DATETIME_REGEX, e.primitiveValue());
       warning(errors, IssueType.INVALID, e.line(), e.col(), path, yearIsValid(e.primitiveValue()), I18nConstants.TYPE_SPECIFIC_CHECKS_DT_DATETIME_REASONABLE, e.primitiveValue());
       try {
         InstantType dt = new InstantType(e.primitiveValue());
@@ -2208,7 +2385,7 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
       int e = cnt.indexOf(">");
       if (e > -1 && e < i) {
         String s = cnt.substring(0, e);
-        if (s.matches(HTML_FRAGMENT_REGEX)) {
+        if (HTML_FRAGMENT_REGEX.matcher(s).matches()) {
           return true;
         }
       }
@@ -2364,7 +2541,7 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
   }
 
   private String checkValidMimeType(String mt) {
-    if (!mt.matches("^(\\w+|\\*)\\/(\\w+|\\*)((;\\s*(\\w+)=\\s*(\\S+))?)$")) {
+    if (!MIME_TYPE_REGEX.matcher(mt).matches()) {
       return "Mime type invalid";
     }
     return null;
@@ -2394,7 +2571,7 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
     // firstly, resolve the value set
     ElementDefinitionBindingComponent binding = elementContext.getBinding();
     if (binding.hasValueSet()) {
-      ValueSet vs = resolveBindingReference(profile, binding.getValueSet(), profile.getUrl());
+      ValueSet vs = resolveBindingReference(profile, elementContext);
       if (warning(errors, IssueType.CODEINVALID, element.line(), element.col(), path, vs != null, I18nConstants.TERMINOLOGY_TX_VALUESET_NOTFOUND2, describeReference(binding.getValueSet()))) {
         long t = System.nanoTime();
         ValidationResult vr = null;
@@ -2980,7 +3157,7 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
     String fp = fixExpr(discriminator, null);
     ExpressionNode expr = null;
     try {
-      expr = fpe.parse(fp);
+      expr = fpe.parseCached(fp);
     } catch (Exception e) {
       throw new FHIRException(context.formatMessage(I18nConstants.DISCRIMINATOR_BAD_PATH, e.getMessage(), fp), e);
     }
@@ -3008,7 +3185,7 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
           if (element == null)
             throw new DefinitionException(context.formatMessage(I18nConstants.UNABLE_TO_RESOLVE_ELEMENT__IN_PROFILE_, id, p));
         }
-        expr = fpe.parse(fp);
+        expr = fpe.parseCached(fp);
         t2 = System.nanoTime();
         ed = fpe.evaluateDefinition(expr, profile, element);
         timeTracker.sd(t2);
@@ -3472,93 +3649,9 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
     ExpressionNode n = (ExpressionNode) ed.getUserData("slice.expression.cache");
     if (n == null) {
       long t = System.nanoTime();
-      // GG: this approach is flawed because it treats discriminators individually rather than collectively
-      StringBuilder expression = new StringBuilder("true");
-      boolean anyFound = false;
-      Set<String> discriminators = new HashSet<>();
-      for (ElementDefinitionSlicingDiscriminatorComponent s : slicer.getSlicing().getDiscriminator()) {
-        String discriminator = s.getPath();
-        discriminators.add(discriminator);
-
-        List<ElementDefinition> criteriaElements = getCriteriaForDiscriminator(path, ed, discriminator, profile, s.getType() == DiscriminatorType.PROFILE);
-        boolean found = false;
-        for (ElementDefinition criteriaElement : criteriaElements) {
-          found = true;
-          if (s.getType() == DiscriminatorType.TYPE) {
-            String type = null;
-            if (!criteriaElement.getPath().contains("[") && discriminator.contains("[")) {
-              discriminator = discriminator.substring(0, discriminator.indexOf('['));
-              String lastNode = tail(discriminator);
-              type = tail(criteriaElement.getPath()).substring(lastNode.length());
-              type = type.substring(0, 1).toLowerCase() + type.substring(1);
-            } else if (!criteriaElement.hasType() || criteriaElement.getType().size() == 1) {
-              if (discriminator.contains("["))
-                discriminator = discriminator.substring(0, discriminator.indexOf('['));
-              if (criteriaElement.hasType()) {
-                type = criteriaElement.getType().get(0).getWorkingCode();
-              } else if (!criteriaElement.getPath().contains(".")) {
-                type = criteriaElement.getPath();
-              } else {
-                throw new DefinitionException(context.formatMessage(I18nConstants.DISCRIMINATOR__IS_BASED_ON_TYPE_BUT_SLICE__IN__HAS_NO_TYPES, discriminator, ed.getId(), profile.getUrl()));
-              }
-            } else if (criteriaElement.getType().size() > 1) {
-              throw new DefinitionException(context.formatMessage(I18nConstants.DISCRIMINATOR__IS_BASED_ON_TYPE_BUT_SLICE__IN__HAS_MULTIPLE_TYPES_, discriminator, ed.getId(), profile.getUrl(), criteriaElement.typeSummary()));
-            } else
-              throw new DefinitionException(context.formatMessage(I18nConstants.DISCRIMINATOR__IS_BASED_ON_TYPE_BUT_SLICE__IN__HAS_NO_TYPES, discriminator, ed.getId(), profile.getUrl()));
-            if (discriminator.isEmpty())
-              expression.append(" and $this is " + type);
-            else
-              expression.append(" and " + discriminator + " is " + type);
-          } else if (s.getType() == DiscriminatorType.PROFILE) {
-            if (criteriaElement.getType().size() == 0) {
-              throw new DefinitionException(context.formatMessage(I18nConstants.PROFILE_BASED_DISCRIMINATORS_MUST_HAVE_A_TYPE__IN_PROFILE_, criteriaElement.getId(), profile.getUrl()));
-            }
-            if (criteriaElement.getType().size() != 1) {
-              throw new DefinitionException(context.formatMessage(I18nConstants.PROFILE_BASED_DISCRIMINATORS_MUST_HAVE_ONLY_ONE_TYPE__IN_PROFILE_, criteriaElement.getId(), profile.getUrl()));
-            }
-            List<CanonicalType> list = discriminator.endsWith(".resolve()") || discriminator.equals("resolve()") ? criteriaElement.getType().get(0).getTargetProfile() : criteriaElement.getType().get(0).getProfile();
-            if (list.size() == 0) {
-              throw new DefinitionException(context.formatMessage(I18nConstants.PROFILE_BASED_DISCRIMINATORS_MUST_HAVE_A_TYPE_WITH_A_PROFILE__IN_PROFILE_, criteriaElement.getId(), profile.getUrl()));
-            } else if (list.size() > 1) {
-              CommaSeparatedStringBuilder b = new CommaSeparatedStringBuilder(" or ");
-              for (CanonicalType c : list) {
-                b.append(discriminator + ".conformsTo('" + c.getValue() + "')");
-              }
-              expression.append(" and (" + b + ")");
-            } else {
-              expression.append(" and " + discriminator + ".conformsTo('" + list.get(0).getValue() + "')");
-            }
-          } else if (s.getType() == DiscriminatorType.EXISTS) {
-            if (criteriaElement.hasMin() && criteriaElement.getMin() >= 1)
-              expression.append(" and (" + discriminator + ".exists())");
-            else if (criteriaElement.hasMax() && criteriaElement.getMax().equals("0"))
-              expression.append(" and (" + discriminator + ".exists().not())");
-            else
-              throw new FHIRException(context.formatMessage(I18nConstants.DISCRIMINATOR__IS_BASED_ON_ELEMENT_EXISTENCE_BUT_SLICE__NEITHER_SETS_MIN1_OR_MAX0, discriminator, ed.getId()));
-          } else if (criteriaElement.hasFixed()) {
-            buildFixedExpression(ed, expression, discriminator, criteriaElement);
-          } else if (criteriaElement.hasPattern()) {
-            buildPattternExpression(ed, expression, discriminator, criteriaElement);
-          } else if (criteriaElement.hasBinding() && criteriaElement.getBinding().hasStrength() && criteriaElement.getBinding().getStrength().equals(BindingStrength.REQUIRED) && criteriaElement.getBinding().hasValueSet()) {
-            expression.append(" and (" + discriminator + " memberOf '" + criteriaElement.getBinding().getValueSet() + "')");
-          } else {
-            found = false;
-          }
-          if (found)
-            break;
-        }
-        if (found)
-          anyFound = true;
-      }
-      if (!anyFound) {
-        if (slicer.getSlicing().getDiscriminator().size() > 1)
-          throw new DefinitionException(context.formatMessage(I18nConstants.COULD_NOT_MATCH_ANY_DISCRIMINATORS__FOR_SLICE__IN_PROFILE___NONE_OF_THE_DISCRIMINATOR__HAVE_FIXED_VALUE_BINDING_OR_EXISTENCE_ASSERTIONS, discriminators, ed.getId(), profile.getUrl(), discriminators));
-        else
-          throw new DefinitionException(context.formatMessage(I18nConstants.COULD_NOT_MATCH_DISCRIMINATOR__FOR_SLICE__IN_PROFILE___THE_DISCRIMINATOR__DOES_NOT_HAVE_FIXED_VALUE_BINDING_OR_EXISTENCE_ASSERTIONS, discriminators, ed.getId(), profile.getUrl(), discriminators));
-      }
-
+      String expression = buildSliceExpression(slicer, ed, profile, null);
       try {
-        n = fpe.parse(fixExpr(expression.toString(), null));
+        n = fpe.parseCached(fixExpr(expression, null));
       } catch (FHIRLexerException e) {
         throw new FHIRException(context.formatMessage(I18nConstants.PROBLEM_PROCESSING_EXPRESSION__IN_PROFILE__PATH__, expression, profile.getUrl(), path, e.getMessage()));
       }
@@ -3567,7 +3660,14 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
     }
 
     ValidatorHostContext shc = hostContext.forSlicing();
-    boolean pass = evaluateSlicingExpression(shc, element, path, profile, n);
+    boolean pass;
+    SliceIndex index = getSliceIndex(slicer, profile);
+    Set<ElementDefinition> matches = index.isIndexed(ed) ? getIndexedSlices(shc, element, profile, index) : null;
+    if (matches != null) {
+      pass = matches.contains(ed);
+    } else {
+      pass = evaluateSlicingExpression(shc, element, path, profile, n);
+    }
     if (!pass) {
       slicingHint(sliceInfo, IssueType.STRUCTURE, element.line(), element.col(), path, false, (context.formatMessage(I18nConstants.DOES_NOT_MATCH_SLICE_, ed.getSliceName())), "discriminator = " + Utilities.escapeXml(n.toString()));
       for (String url : shc.getSliceRecords().keySet()) {
@@ -3581,6 +3681,171 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
     return pass;
   }
 
+  /**
+   * The slice index for a slicing group is built the first time one of its slices is checked, and
+   * kept in the context's definition cache, by slicer. Slices whose expressions can't be built aren't 
+   * indexed, so they fail when they are checked, as before
+   */
+  private SliceIndex getSliceIndex(ElementDefinition slicer, StructureDefinition profile) {
+    SliceIndex index = sliceIndexes.get(slicer);
+    if (index == null) {
+      synchronized (slicer) {
+        index = sliceIndexes.get(slicer);
+        if (index == null) {
+          index = new SliceIndex();
+          for (ElementDefinition slice : profileUtilities.getSliceList(profile, slicer)) {
+            try {
+              SliceIndex.Criteria criteria = new SliceIndex.Criteria();
+              buildSliceExpression(slicer, slice, profile, criteria);
+              if (criteria.isSupported()) {
+                Map<String, ExpressionNode> nodes = new HashMap<>();
+                for (String p : criteria.getPaths()) {
+                  nodes.put(p, fpe.parse(p));
+                }
+                index.add(slice, criteria, nodes);
+              }
+            } catch (Exception e) {
+              // it'll be reported when the slice is checked
+            }
+          }
+          sliceIndexes.put(slicer, index);
+        }
+      }
+    }
+    return index;
+  }
+
+  /**
+   * @return the indexed slices the element is in, or null if the index can't tell
+   */
+  private Set<ElementDefinition> getIndexedSlices(ValidatorHostContext hostContext, Element element, StructureDefinition profile, SliceIndex index) {
+    Map<SliceIndex, Set<ElementDefinition>> cache = sliceMatches.get(element);
+    if (cache == null) {
+      cache = new IdentityHashMap<>();
+      sliceMatches.put(element, cache);
+    } else if (cache.containsKey(index)) {
+      return cache.get(index);
+    }
+    Set<ElementDefinition> res;
+    long t = System.nanoTime();
+    try {
+      Map<String, List<Base>> values = new HashMap<>();
+      for (String p : index.getPaths().keySet()) {
+        values.put(p, fpe.evaluate(hostContext.forProfile(profile), hostContext.getResource(), hostContext.getRootResource(), element, index.getPaths().get(p)));
+      }
+      res = index.match(values);
+    } catch (Exception e) {
+      // the slice expressions will report the problem
+      res = null;
+    }
+    timeTracker.fpe(t);
+    cache.put(index, res);
+    return res;
+  }
+
+  /**
+   * @param criteria - if not null, records what the expression asks for, for the slice index
+   */
+  private String buildSliceExpression(ElementDefinition slicer, ElementDefinition ed, StructureDefinition profile, SliceIndex.Criteria criteria) throws DefinitionException, FHIRException {
+    // GG: this approach is flawed because it treats discriminators individually rather than collectively
+    StringBuilder expression = new StringBuilder("true");
+    boolean anyFound = false;
+    Set<String> discriminators = new HashSet<>();
+    for (ElementDefinitionSlicingDiscriminatorComponent s : slicer.getSlicing().getDiscriminator()) {
+      String discriminator = s.getPath();
+      discriminators.add(discriminator);
+
+      List<ElementDefinition> criteriaElements = getCriteriaForDiscriminator(null, ed, discriminator, profile, s.getType() == DiscriminatorType.PROFILE);
+      boolean found = false;
+      for (ElementDefinition criteriaElement : criteriaElements) {
+        found = true;
+        if (s.getType() == DiscriminatorType.TYPE) {
+          String type = null;
+          if (!criteriaElement.getPath().contains("[") && discriminator.contains("[")) {
+            discriminator = discriminator.substring(0, discriminator.indexOf('['));
+            String lastNode = tail(discriminator);
+            type = tail(criteriaElement.getPath()).substring(lastNode.length());
+            type = type.substring(0, 1).toLowerCase() + type.substring(1);
+          } else if (!criteriaElement.hasType() || criteriaElement.getType().size() == 1) {
+            if (discriminator.contains("["))
+              discriminator = discriminator.substring(0, discriminator.indexOf('['));
+            if (criteriaElement.hasType()) {
+              type = criteriaElement.getType().get(0).getWorkingCode();
+            } else if (!criteriaElement.getPath().contains(".")) {
+              type = criteriaElement.getPath();
+            } else {
+              throw new DefinitionException(context.formatMessage(I18nConstants.DISCRIMINATOR__IS_BASED_ON_TYPE_BUT_SLICE__IN__HAS_NO_TYPES, discriminator, ed.getId(), profile.getUrl()));
+            }
+          } else if (criteriaElement.getType().size() > 1) {
+            throw new DefinitionException(context.formatMessage(I18nConstants.DISCRIMINATOR__IS_BASED_ON_TYPE_BUT_SLICE__IN__HAS_MULTIPLE_TYPES_, discriminator, ed.getId(), profile.getUrl(), criteriaElement.typeSummary()));
+          } else
+            throw new DefinitionException(context.formatMessage(I18nConstants.DISCRIMINATOR__IS_BASED_ON_TYPE_BUT_SLICE__IN__HAS_NO_TYPES, discriminator, ed.getId(), profile.getUrl()));
+          if (discriminator.isEmpty())
+            expression.append(" and $this is " + type);
+          else
+            expression.append(" and " + discriminator + " is " + type);
+          if (criteria != null)
+            criteria.type(discriminator.isEmpty() ? "$this" : discriminator, type);
+        } else if (s.getType() == DiscriminatorType.PROFILE) {
+          if (criteriaElement.getType().size() == 0) {
+            throw new DefinitionException(context.formatMessage(I18nConstants.PROFILE_BASED_DISCRIMINATORS_MUST_HAVE_A_TYPE__IN_PROFILE_, criteriaElement.getId(), profile.getUrl()));
+          }
+          if (criteriaElement.getType().size() != 1) {
+            throw new DefinitionException(context.formatMessage(I18nConstants.PROFILE_BASED_DISCRIMINATORS_MUST_HAVE_ONLY_ONE_TYPE__IN_PROFILE_, criteriaElement.getId(), profile.getUrl()));
+          }
+          List<CanonicalType> list = discriminator.endsWith(".resolve()") || discriminator.equals("resolve()") ? criteriaElement.getType().get(0).getTargetProfile() : criteriaElement.getType().get(0).getProfile();
+          if (list.size() == 0) {
+            throw new DefinitionException(context.formatMessage(I18nConstants.PROFILE_BASED_DISCRIMINATORS_MUST_HAVE_A_TYPE_WITH_A_PROFILE__IN_PROFILE_, criteriaElement.getId(), profile.getUrl()));
+          } else if (list.size() > 1) {
+            CommaSeparatedStringBuilder b = new CommaSeparatedStringBuilder(" or ");
+            for (CanonicalType c : list) {
+              b.append(discriminator + ".conformsTo('" + c.getValue() + "')");
+            }
+            expression.append(" and (" + b + ")");
+          } else {
+            expression.append(" and " + discriminator + ".conformsTo('" + list.get(0).getValue() + "')");
+          }
+          if (criteria != null)
+            criteria.unsupported();
+        } else if (s.getType() == DiscriminatorType.EXISTS) {
+          if (criteriaElement.hasMin() && criteriaElement.getMin() >= 1)
+            expression.append(" and (" + discriminator + ".exists())");
+          else if (criteriaElement.hasMax() && criteriaElement.getMax().equals("0"))
+            expression.append(" and (" + discriminator + ".exists().not())");
+          else
+            throw new FHIRException(context.formatMessage(I18nConstants.DISCRIMINATOR__IS_BASED_ON_ELEMENT_EXISTENCE_BUT_SLICE__NEITHER_SETS_MIN1_OR_MAX0, discriminator, ed.getId()));
+          if (criteria != null)
+            criteria.exists(discriminator, criteriaElement.hasMin() && criteriaElement.getMin() >= 1);
+        } else if (criteriaElement.hasFixed()) {
+          buildFixedExpression(ed, expression, discriminator, criteriaElement);
+          if (criteria != null)
+            criteria.value(discriminator, criteriaElement.getFixed(), true);
+        } else if (criteriaElement.hasPattern()) {
+          buildPattternExpression(ed, expression, discriminator, criteriaElement);
+          if (criteria != null)
+            criteria.value(discriminator, criteriaElement.getPattern(), false);
+        } else if (criteriaElement.hasBinding() && criteriaElement.getBinding().hasStrength() && criteriaElement.getBinding().getStrength().equals(BindingStrength.REQUIRED) && criteriaElement.getBinding().hasValueSet()) {
+          expression.append(" and (" + discriminator + " memberOf '" + criteriaElement.getBinding().getValueSet() + "')");
+          if (criteria != null)
+            criteria.unsupported();
+        } else {
+          found = false;
+        }
+        if (found)
+          break;
+      }
+      if (found)
+        anyFound = true;
+    }
+    if (!anyFound) {
+      if (slicer.getSlicing().getDiscriminator().size() > 1)
+        throw new DefinitionException(context.formatMessage(I18nConstants.COULD_NOT_MATCH_ANY_DISCRIMINATORS__FOR_SLICE__IN_PROFILE___NONE_OF_THE_DISCRIMINATOR__HAVE_FIXED_VALUE_BINDING_OR_EXISTENCE_ASSERTIONS, discriminators, ed.getId(), profile.getUrl(), discriminators));
+      else
+        throw new DefinitionException(context.formatMessage(I18nConstants.COULD_NOT_MATCH_DISCRIMINATOR__FOR_SLICE__IN_PROFILE___THE_DISCRIMINATOR__DOES_NOT_HAVE_FIXED_VALUE_BINDING_OR_EXISTENCE_ASSERTIONS, discriminators, ed.getId(), profile.getUrl(), discriminators));
+    }
+    return expression.toString();
+  }
+
   public boolean evaluateSlicingExpression(ValidatorHostContext hostContext, Element element, String path, StructureDefinition profile, ExpressionNode n) throws FHIRException {
     String msg;
     boolean ok;
@@ -3983,8 +4248,7 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
       String ref = element.getChildValue("reference");
       if (!Utilities.noString(ref)) {
         for (Element bundle : bundles) {
-          List<Element> entries = bundle.getChildren(ENTRY);
-          Element tgt = resolveInBundle(entries, ref, fu, resource.fhirType(), resource.getIdBase());
+          Element tgt = resolveInBundle(BundleIndex.forBundle(bundle), ref, fu, resource.fhirType(), resource.getIdBase());
           if (tgt != null) {
             element.setUserData("validator.bundle.resolution", tgt.getNamedChild(RESOURCE));
             return;
@@ -4018,7 +4282,11 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
       List<ValidationMessage> localErrors = new ArrayList<ValidationMessage>();
       resTracker.startValidating(defn);
       trackUsage(defn, hostContext, element);
+      long t = System.nanoTime();
       validateElement(hostContext, localErrors, defn, defn.getSnapshot().getElement().get(0), null, null, resource, element, element.getName(), stack, false, true, null);
+      if (context.getMetrics().isEnabled()) {
+        context.getMetrics().time(IMetrics.VALIDATION_PROFILE, defn.getUrl(), System.nanoTime() - t);
+      }
       resTracker.storeOutcomes(defn, localErrors);
       for (ValidationMessage vm : localErrors) {
         if (!errors.contains(vm)) {
@@ -4262,24 +4530,18 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
     } 
 
     // get the list of direct defined children, including slices
-    List<ElementDefinition> childDefinitions = profileUtilities.getChildMap(profile, definition);
-    if (childDefinitions.isEmpty()) {
-      if (actualType == null)
-        return; // there'll be an error elsewhere in this case, and we're going to stop.
-      childDefinitions = getActualTypeChildren(hostContext, element, actualType);
-    } else if (definition.getType().size() > 1) {
-      // this only happens when the profile constrains the abstract children but leaves th choice open.
-      if (actualType == null)
-        return; // there'll be an error elsewhere in this case, and we're going to stop.
-      List<ElementDefinition> typeChildDefinitions = getActualTypeChildren(hostContext, element, actualType);
-      // what were going to do is merge them - the type is not allowed to constrain things that the child definitions already do (well, if it does, it'll be ignored)
-      mergeChildLists(childDefinitions, typeChildDefinitions, definition.getPath(), actualType);
+    ChildPlan childPlan = getChildPlan(profile, definition, actualType);
+    if (childPlan.getDefinitions() == null) {
+      return; // there'll be an error elsewhere in this case, and we're going to stop.
+    }
+    if (childPlan.getTypeDefinition() != null) {
+      trackUsage(childPlan.getTypeDefinition(), hostContext, element);
     }
 
     List<ElementInfo> children = listChildren(element, stack);
-    List<String> problematicPaths = assignChildren(hostContext, errors, profile, resource, stack, childDefinitions, children);
+    List<String> problematicPaths = assignChildren(hostContext, errors, profile, resource, stack, childPlan, children);
 
-    checkCardinalities(errors, profile, element, stack, childDefinitions, children, problematicPaths);
+    checkCardinalities(errors, profile, element, stack, childPlan, children, problematicPaths);
     // 4. check order if any slices are ordered. (todo)
 
     // 5. inspect each child for validity
@@ -4307,7 +4569,12 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
 
   // todo: the element definition in context might assign a constrained profile for the type?
   public List<ElementDefinition> getActualTypeChildren(ValidatorHostContext hostContext, Element element, String actualType) {
-    List<ElementDefinition> childDefinitions;
+    StructureDefinition dt = getActualType(actualType);
+    trackUsage(dt, hostContext, element);
+    return profileUtilities.getChildMap(dt, dt.getSnapshot().getElement().get(0));
+  }
+
+  private StructureDefinition getActualType(String actualType) {
     StructureDefinition dt = null;
     if (isAbsolute(actualType))
       dt = this.context.fetchResource(StructureDefinition.class, actualType);
@@ -4315,10 +4582,82 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
       dt = this.context.fetchResource(StructureDefinition.class, "http://hl7.org/fhir/StructureDefinition/" + actualType);
     if (dt == null)
       throw new DefinitionException(context.formatMessage(I18nConstants.UNABLE_TO_RESOLVE_ACTUAL_TYPE_, actualType));
-    trackUsage(dt, hostContext, element);
+    return dt;
+  }
+
+  /**
+   * The plan for an element definition is worked out the first time it's used, and then kept in the context's definition cache
+   */
+  private ElementPlan getElementPlan(ElementDefinition definition) {
+    ElementPlan plan = elementPlans.get(definition);
+    if (plan == null || !plan.isCurrent(definition)) {
+      synchronized (definition) {
+        plan = elementPlans.get(definition);
+        if (plan == null || !plan.isCurrent(definition)) {
+          List<InvariantPlan> invariants = new ArrayList<>();
+          for (ElementDefinitionConstraintComponent inv : definition.getConstraint()) {
+            if (inv.hasExpression()) {
+              invariants.add(new InvariantPlan(inv, fixExpr(inv.getExpression(), inv.getKey())));
+            }
+          }
+          plan = new ElementPlan(definition, invariants);
+          elementPlans.put(definition, plan);
+        }
+      }
+    }
+    return plan;
+  }
 
-    childDefinitions = profileUtilities.getChildMap(dt, dt.getSnapshot().getElement().get(0));
-    return childDefinitions;
+  /**
+   * The child definitions of the element in the profile, including the children of the actual type, if
+   * the profile doesn't say what they are
+   */
+  private ChildPlan getChildPlan(StructureDefinition profile, ElementDefinition definition, String actualType) {
+    ElementPlan plan = getElementPlan(definition);
+    ChildPlan childPlan = plan.getChildren(profile, actualType);
+    if (childPlan == null) {
+      List<ElementDefinition> childDefinitions = profileUtilities.getChildMap(profile, definition);
+      StructureDefinition dt = null;
+      if (childDefinitions.isEmpty()) {
+        if (actualType == null) {
+          childDefinitions = null;
+        } else {
+          dt = getActualType(actualType);
+          childDefinitions = profileUtilities.getChildMap(dt, dt.getSnapshot().getElement().get(0));
+        }
+      } else if (definition.getType().size() > 1) {
+        // this only happens when the profile constrains the abstract children but leaves th choice open.
+        if (actualType == null) {
+          childDefinitions = null;
+        } else {
+          dt = getActualType(actualType);
+          List<ElementDefinition> typeChildDefinitions = profileUtilities.getChildMap(dt, dt.getSnapshot().getElement().get(0));
+          // what were going to do is merge them - the type is not allowed to constrain things that the child definitions already do (well, if it does, it'll be ignored)
+          mergeChildLists(childDefinitions, typeChildDefinitions, definition.getPath(), actualType);
+        }
+      }
+      List<List<ElementDefinition>> slices = new ArrayList<>();
+      if (childDefinitions != null) {
+        for (ElementDefinition ed : childDefinitions) {
+          slices.add(ed.getRepresentation().isEmpty() && ed.hasSlicing() ? profileUtilities.getSliceList(profile, ed) : null);
+        }
+      }
+      childPlan = new ChildPlan(profile.getSnapshot().getElement(), childDefinitions, dt, slices);
+      plan.setChildren(profile, actualType, childPlan);
+    }
+    return childPlan;
+  }
+
+  private ValueSet resolveBindingReference(StructureDefinition profile, ElementDefinition definition) {
+    ElementPlan plan = getElementPlan(definition);
+    ValueSet vs = plan.getValueSet(profile, context);
+    if (vs == null) {
+      vs = resolveBindingReference(profile, definition.getBinding().getValueSet(), profile.getUrl());
+      if (vs != null) {
+        plan.setValueSet(profile, context, vs);
+      }
+    }
+    return vs;
   }
 
   public void checkChild(ValidatorHostContext hostContext, List<ValidationMessage> errors, StructureDefinition profile, ElementDefinition definition,
@@ -4575,7 +4914,7 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
         else
           validateElement(hostContext, errors, p, getElementByTail(p, tail), profile, checkDefn, resource, ei.getElement(), type, localStack, thisIsCodeableConcept, checkDisplay, thisExtension);
       }
-      int index = profile.getSnapshot().getElement().indexOf(checkDefn);
+      int index = profileUtilities.indexOfElement(profile, checkDefn);
       if (index < profile.getSnapshot().getElement().size() - 1) {
         String nextPath = profile.getSnapshot().getElement().get(index + 1).getPath();
         if (!nextPath.equals(checkDefn.getPath()) && nextPath.startsWith(checkDefn.getPath()))
@@ -4667,14 +5006,14 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
   }
 
   public void checkCardinalities(List<ValidationMessage> errors, StructureDefinition profile, Element element, NodeStack stack,
-    List<ElementDefinition> childDefinitions, List<ElementInfo> children, List<String> problematicPaths) throws DefinitionException {
+    ChildPlan childPlan, List<ElementInfo> children, List<String> problematicPaths) throws DefinitionException {
     // 3. report any definitions that have a cardinality problem
-    for (ElementDefinition ed : childDefinitions) {
+    List<ElementDefinition> childDefinitions = childPlan.getDefinitions();
+    for (int i = 0; i < childDefinitions.size(); i++) {
+      ElementDefinition ed = childDefinitions.get(i);
       if (ed.getRepresentation().isEmpty()) { // ignore xml attributes
         int count = 0;
-        List<ElementDefinition> slices = null;
-        if (ed.hasSlicing())
-          slices = profileUtilities.getSliceList(profile, ed);
+        List<ElementDefinition> slices = childPlan.getSlices(i);
         for (ElementInfo ei : children)
           if (ei.definition == ed)
             count++;
@@ -4707,47 +5046,45 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
   }
 
   public List<String> assignChildren(ValidatorHostContext hostContext, List<ValidationMessage> errors, StructureDefinition profile, Element resource,
-    NodeStack stack, List<ElementDefinition> childDefinitions, List<ElementInfo> children) throws DefinitionException {
+    NodeStack stack, ChildPlan childPlan, List<ElementInfo> children) throws DefinitionException {
     // 2. assign children to a definition
     // for each definition, for each child, check whether it belongs in the slice
-    ElementDefinition slicer = null;
+    // (a child can only belong to the definitions that match its name, and the plan knows which they are)
+    List<ElementDefinition> childDefinitions = childPlan.getDefinitions();
     boolean unsupportedSlicing = false;
     List<String> problematicPaths = new ArrayList<String>();
-    String slicingPath = null;
-    int sliceOffset = 0;
+    List<List<ElementInfo>> candidates = new ArrayList<>(Collections.nCopies(childDefinitions.size(), null));
+    if (!childDefinitions.isEmpty()) {
+      for (ElementInfo ei : children) {
+        if (ei.sliceInfo == null) {
+          ei.sliceInfo = new ArrayList<>();
+        }
+        for (int i : childPlan.getCandidates(ei.getName())) {
+          if (candidates.get(i) == null) {
+            candidates.set(i, new ArrayList<>());
+          }
+          candidates.get(i).add(ei);
+        }
+      }
+    }
     for (int i = 0; i < childDefinitions.size(); i++) {
       ElementDefinition ed = childDefinitions.get(i);
-      boolean childUnsupportedSlicing = false;
-      boolean process = true;
-      if (ed.hasSlicing() && !ed.getSlicing().getOrdered()) {
-        slicingPath = ed.getPath();
-      } else if (slicingPath != null && ed.getPath().equals(slicingPath)) {
-        ; // nothing
-      } else if (slicingPath != null && !ed.getPath().startsWith(slicingPath)) {
-        slicingPath = null;
-      }
       // where are we with slicing
-      if (ed.hasSlicing()) {
-        if (slicer != null && slicer.getPath().equals(ed.getPath())) {
-          String errorContext = "profile " + profile.getUrl();
-          if (!resource.getChildValue(ID).isEmpty()) {
-            errorContext += "; instance " + resource.getChildValue("id");
-          }
-          throw new DefinitionException(context.formatMessage(I18nConstants.SLICE_ENCOUNTERED_MIDWAY_THROUGH_SET_PATH___ID___, slicer.getPath(), slicer.getId(), errorContext));
+      if (i == childPlan.getSliceError()) {
+        ElementDefinition slicer = childPlan.getSlicer(i - 1);
+        String errorContext = "profile " + profile.getUrl();
+        if (!resource.getChildValue(ID).isEmpty()) {
+          errorContext += "; instance " + resource.getChildValue("id");
         }
-        slicer = ed;
-        process = false;
-        sliceOffset = i;
-      } else if (slicer != null && !slicer.getPath().equals(ed.getPath()))
-        slicer = null;
-
-      for (ElementInfo ei : children) {
-        if (ei.sliceInfo == null) {
-          ei.sliceInfo = new ArrayList<>();
+        throw new DefinitionException(context.formatMessage(I18nConstants.SLICE_ENCOUNTERED_MIDWAY_THROUGH_SET_PATH___ID___, slicer.getPath(), slicer.getId(), errorContext));
+      }
+      if (candidates.get(i) != null) {
+        for (ElementInfo ei : candidates.get(i)) {
+          unsupportedSlicing = matchSlice(hostContext, errors, ei.sliceInfo, profile, stack, childPlan.getSlicer(i), unsupportedSlicing, problematicPaths, childPlan.getSliceOffset(i), i, ed, false, ei);
         }
-        unsupportedSlicing = matchSlice(hostContext, errors, ei.sliceInfo, profile, stack, slicer, unsupportedSlicing, problematicPaths, sliceOffset, i, ed, childUnsupportedSlicing, ei);
       }
     }
+    ElementDefinition slicer = childDefinitions.isEmpty() ? null : childPlan.getSlicer(childDefinitions.size() - 1);
     int last = -1;
     int lastSlice = -1;
     for (ElementInfo ei : children) {
@@ -4861,10 +5198,9 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
   private ElementDefinition getElementByTail(StructureDefinition p, String tail) throws DefinitionException {
     if (tail == null)
       return p.getSnapshot().getElement().get(0);
-    for (ElementDefinition t : p.getSnapshot().getElement()) {
-      if (tail.equals(t.getId()))
-        return t;
-    }
+    ElementDefinition t = profileUtilities.getElementById(p, tail);
+    if (t != null)
+      return t;
     throw new DefinitionException(context.formatMessage(I18nConstants.UNABLE_TO_FIND_ELEMENT_WITH_ID_, tail));
   }
 
@@ -4911,8 +5247,9 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
     if (noInvariantChecks)
       return;
 
-    for (ElementDefinitionConstraintComponent inv : ed.getConstraint()) {
-      if (inv.hasExpression() && (!onlyNonInherited || !inv.hasSource() || (!isInheritedProfile(profile, inv.getSource()) && !isInheritedProfile(ed.getType(), inv.getSource())) )) {
+    for (InvariantPlan plan : getElementPlan(ed).getInvariants()) {
+      ElementDefinitionConstraintComponent inv = plan.getConstraint();
+      if (!onlyNonInherited || !inv.hasSource() || !isInherited(plan, profile, ed)) {
         @SuppressWarnings("unchecked")
         Set<String> invList = executionId.equals(element.getUserString(EXECUTION_ID)) ? (Set<String>) element.getUserData(EXECUTED_CONSTRAINT_LIST) : null;
         if (invList == null) {
@@ -4922,7 +5259,7 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
         }
         if (!invList.contains(inv.getKey())) {
           invList.add(inv.getKey());
-          checkInvariant(hostContext, errors, path, profile, resource, element, inv);
+          checkInvariant(hostContext, errors, path, profile, resource, element, plan);
         } else {
           //System.out.println("Skip "+inv.getKey()+" on "+path);
         }
@@ -4930,6 +5267,16 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
     }
   }
 
+  private boolean isInherited(InvariantPlan plan, StructureDefinition profile, ElementDefinition ed) {
+    Boolean inherited = plan.getInherited(profile);
+    if (inherited == null) {
+      String source = plan.getConstraint().getSource();
+      inherited = isInheritedProfile(profile, source) || isInheritedProfile(ed.getType(), source);
+      plan.setInherited(profile, inherited);
+    }
+    return inherited;
+  }
+
   private boolean isInheritedProfile(List<TypeRefComponent> types, String source) {
     for (TypeRefComponent type : types) {
       for (CanonicalType c : type.getProfile()) {
@@ -4963,25 +5310,30 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
   }
 
   public void checkInvariant(ValidatorHostContext hostContext, List<ValidationMessage> errors, String path, StructureDefinition profile, Element resource, Element element, ElementDefinitionConstraintComponent inv) throws FHIRException {
+    checkInvariant(hostContext, errors, path, profile, resource, element, new InvariantPlan(inv, fixExpr(inv.getExpression(), inv.getKey())));
+  }
+
+  private void checkInvariant(ValidatorHostContext hostContext, List<ValidationMessage> errors, String path, StructureDefinition profile, Element resource, Element element, InvariantPlan plan) throws FHIRException {
+    ElementDefinitionConstraintComponent inv = plan.getConstraint();
 //    if (debug) {
 //      System.out.println("inv "+inv.getKey()+" on "+path+" in "+resource.fhirType()+" {{ "+inv.getExpression()+" }}");
 //    }
-    ExpressionNode n = (ExpressionNode) inv.getUserData("validator.expression.cache");
+    FHIRPathExecutionPlan n = plan.getCompiled();
+    long t = System.nanoTime();
     if (n == null) {
-      long t = System.nanoTime();
       try {
-        n = fpe.parse(fixExpr(inv.getExpression(), inv.getKey()));
+        n = fpe.compile(plan.getExpression());
       } catch (FHIRLexerException e) {
         throw new FHIRException(context.formatMessage(I18nConstants.PROBLEM_PROCESSING_EXPRESSION__IN_PROFILE__PATH__, inv.getExpression(), profile.getUrl(), path, e.getMessage()));
       }
-      timeTracker.fpe(t);
-      inv.setUserData("validator.expression.cache", n);
+      plan.setCompiled(n);
     }
+    timeTracker.fpe(t);
 
     String msg;
     boolean ok;
+    t = System.nanoTime();
     try {
-      long t = System.nanoTime();
       ok = fpe.evaluateToBoolean(hostContext, resource, hostContext.getRootResource(), element, n);
       timeTracker.fpe(t);
       msg = fpe.forLog();
@@ -4989,6 +5341,9 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
       ok = false;
       msg = ex.getMessage();
     }
+    if (context.getMetrics().isEnabled()) {
+      context.getMetrics().time(IMetrics.VALIDATION_INVARIANT, profile.getUrl()+"#"+inv.getKey(), System.nanoTime() - t);
+    }
     if (!ok) {
       if (!Utilities.noString(msg)) {
         msg = " (" + msg + ")";
@@ -5134,11 +5489,8 @@ public class InstanceValidator extends BaseValidator implements IResourceValidat
           for (ElementDefinitionConstraintComponent inv : ed.getConstraint()) {
             if (inv.hasExpression()) {
               try {
-                ExpressionNode n = (ExpressionNode) inv.getUserData("validator.expression.cache");
-                if (n == null) {
-                  n = fpe.parse(fixExpr(inv.getExpression(), inv.getKey()));
-                  inv.setUserData("validator.expression.cache", n);
-                }
+                // check() records the types on the nodes, so this can't use a node from the expression cache
+                ExpressionNode n = fpe.parse(fixExpr(inv.getExpression(), inv.getKey()));
                 fpe.check(null, sd.getKind() == StructureDefinitionKind.RESOURCE ? sd.getType() : "DomainResource", ed.getPath(), n);
               } catch (Exception e) {
                 System.out.println("Error processing structure [" + sd.getId() + "] path " + ed.getPath() + ":" + inv.getKey() + " ('" + inv.getExpression() + "'): " + e.getMessage());
@@ -0,0 +1,144 @@
+package org.hl7.fhir.validation.instance.utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hl7.fhir.r5.elementmodel.Element;
+import org.hl7.fhir.utilities.Utilities;
+
+/**
+ * Lookup tables for the entries of a bundle, so that references can be resolved without
+ * scanning all the entries each time.
+ *
+ * The index is built once per bundle (see {@link #forBundle(Element)}) and kept in the bundle's
+ * user data. It is rebuilt if the children of the bundle have changed since.
+ */
+public class BundleIndex {
+
+  private static final String USER_DATA = "validator.bundle.index";
+  private static final String FULL_URL = "fullUrl";
+  private static final String RESOURCE = "resource";
+  private static final String ID = "id";
+
+  private final List<Element> entries;
+  private final List<Element> source;
+  private final int sourceSize;
+  private final Map<String, List<Integer>> fullUrls = new HashMap<>();
+  private final Map<String, Integer> typedIds = new HashMap<>();
+  private final Map<Element, Integer> positions = new IdentityHashMap<>();
+
+  public BundleIndex(List<Element> entries) {
+    this(entries, null);
+  }
+
+  private BundleIndex(List<Element> entries, List<Element> source) {
+    this.entries = entries;
+    this.source = source;
+    this.sourceSize = source == null ? 0 : source.size();
+    for (int i = 0; i < entries.size(); i++) {
+      Element entry = entries.get(i);
+      positions.put(entry, i);
+      String fu = entry.getChildValue(FULL_URL);
+      if (fu != null) {
+        fullUrls.computeIfAbsent(fu, k -> new ArrayList<>()).add(i);
+      }
+      Element resource = entry.getNamedChild(RESOURCE);
+      if (resource != null) {
+        positions.putIfAbsent(resource, i);
+        String id = resource.getChildValue(ID);
+        typedIds.putIfAbsent(resource.getType() + "/" + id, i);
+      }
+    }
+  }
+
+  /**
+   * @return the index for the entries of the bundle, building it if it doesn't exist yet
+   */
+  public static BundleIndex forBundle(Element bundle) {
+    BundleIndex index = (BundleIndex) bundle.getUserData(USER_DATA);
+    if (index == null || !index.isCurrent(bundle.getChildren())) {
+      List<Element> entries = new ArrayList<>();
+      bundle.getNamedChildren("entry", entries);
+      index = new BundleIndex(entries, bundle.getChildren());
+      bundle.setUserData(USER_DATA, index);
+    }
+    return index;
+  }
+
+  private boolean isCurrent(List<Element> children) {
+    return source == children && sourceSize == children.size();
+  }
+
+  public List<Element> getEntries() {
+    return entries;
+  }
+
+  /**
+   * @return the position of an entry, or of the resource in an entry, or -1 if it's not in the bundle
+   */
+  public int indexOf(Element entryOrResource) {
+    Integer i = positions.get(entryOrResource);
+    return i == null ? -1 : i;
+  }
+
+  /**
+   * @return the positions of all the entries with the given fullUrl, in bundle order
+   */
+  public List<Integer> findByFullUrl(String fullUrl) {
+    List<Integer> res = fullUrl == null ? null : fullUrls.get(fullUrl);
+    return res == null ? Collections.emptyList() : res;
+  }
+
+  /**
+   * Resolves a reference made by a resource in the bundle (with the given fullUrl, type and id)
+   * to the entry it points to.
+   *
+   * Absolute references are resolved by fullUrl. Relative references are resolved against the
+   * base of the referring resource's fullUrl when that has the RESTful form, otherwise by
+   * the type and id of the entry resources.
+   */
+  public Element resolve(String ref, String fullUrl, String type, String id) {
+    if (Utilities.isAbsoluteUrl(ref)) {
+      return first(findByFullUrl(ref));
+    } else {
+      String u = null;
+      if (fullUrl != null && fullUrl.endsWith(type + "/" + id))
+        u = fullUrl.substring(0, fullUrl.length() - (type + "/" + id).length()) + ref;
+      String[] parts = ref.split("\\/");
+      if (parts.length >= 2) {
+        if (u != null) {
+          return first(findByFullUrl(u));
+        }
+        Integer i = typedIds.get(parts[0] + "/" + parts[1]);
+        return i == null ? null : entries.get(i);
+      }
+      return null;
+    }
+  }
+
+  /**
+   * @return the first entry resource that has the url as its fullUrl, or as its type/id
+   */
+  public Element resolveResource(String url) {
+    int best = -1;
+    for (int i : findByFullUrl(url)) {
+      if (entries.get(i).getNamedChild(RESOURCE) != null) {
+        best = i;
+        break;
+      }
+    }
+    Integer i = typedIds.get(url);
+    if (i != null && (best == -1 || i < best)) {
+      best = i;
+    }
+    return best == -1 ? null : entries.get(best).getNamedChild(RESOURCE);
+  }
+
+  private Element first(List<Integer> list) {
+    return list.isEmpty() ? null : entries.get(list.get(0));
+  }
+}
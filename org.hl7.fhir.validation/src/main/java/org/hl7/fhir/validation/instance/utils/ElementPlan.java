@@ -0,0 +1,269 @@
+package org.hl7.fhir.validation.instance.utils;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.hl7.fhir.r5.context.IWorkerContext;
+import org.hl7.fhir.r5.model.ElementDefinition;
+import org.hl7.fhir.r5.model.ElementDefinition.ElementDefinitionConstraintComponent;
+import org.hl7.fhir.r5.model.StructureDefinition;
+import org.hl7.fhir.r5.model.ValueSet;
+import org.hl7.fhir.r5.utils.FHIRPathExecutionPlan;
+
+/**
+ * What the validator works out from an element definition before it can check an instance against it:
+ * the invariants, ready to run, the value set it is bound to, and - for each profile and actual type
+ * it's used with - the child definitions, which of them a child of a given name could match, and where
+ * the slicing is.
+ *
+ * None of this depends on the instance, so it is worked out the first time the definition is used, and
+ * kept in the worker context's definition cache (see IWorkerContext.getDefinitionCache), where it's shared
+ * by all the validators using the context until resources are added to or dropped from it. It's replaced if the constraints or the binding of the definition change. The value set
+ * the binding resolves to depends on the context as well, so it's worked out again when that changes
+ */
+public class ElementPlan {
+
+  public static final String CACHE = "validator.element.plan";
+
+  /**
+   * The child definitions of an element in a profile, when the instance has a given type
+   */
+  public static class ChildPlan {
+    private final List<ElementDefinition> elements; // the snapshot of the profile these were worked out from
+    private final int size;
+    private final List<ElementDefinition> definitions;
+    private final StructureDefinition typeDefinition;
+    private final String[] names; // the name of each definition, or the prefix, if it's a choice
+    private final boolean[] choices;
+    private final ElementDefinition[] slicers; // the slicing in force at each definition
+    private final int[] sliceOffsets;
+    private final List<List<ElementDefinition>> slices;
+    private final int sliceError; // where a slice starts midway through another one
+    private final Map<String, int[]> candidates = new ConcurrentHashMap<>();
+
+    /**
+     * @param elements - the snapshot of the profile the definitions come from
+     * @param definitions - the child definitions, or null if the children can't be validated (the type is unknown)
+     * @param typeDefinition - the type the definitions come from, if they aren't in the profile
+     * @param slices - the slices of each definition that has them (or null)
+     */
+    public ChildPlan(List<ElementDefinition> elements, List<ElementDefinition> definitions, StructureDefinition typeDefinition, List<List<ElementDefinition>> slices) {
+      this.elements = elements;
+      this.size = elements.size();
+      this.definitions = definitions;
+      this.typeDefinition = typeDefinition;
+      this.slices = slices;
+      int count = definitions == null ? 0 : definitions.size();
+      names = new String[count];
+      choices = new boolean[count];
+      slicers = new ElementDefinition[count];
+      sliceOffsets = new int[count];
+      ElementDefinition slicer = null;
+      int sliceOffset = 0;
+      int error = -1;
+      for (int i = 0; i < count; i++) {
+        ElementDefinition ed = definitions.get(i);
+        String name = ed.getPath().substring(ed.getPath().lastIndexOf(".") + 1);
+        choices[i] = name.endsWith("[x]");
+        names[i] = choices[i] ? name.substring(0, name.length() - 3) : name;
+        if (ed.hasSlicing()) {
+          if (slicer != null && slicer.getPath().equals(ed.getPath()) && error == -1) {
+            error = i;
+          }
+          slicer = ed;
+          sliceOffset = i;
+        } else if (slicer != null && !slicer.getPath().equals(ed.getPath())) {
+          slicer = null;
+        }
+        slicers[i] = slicer;
+        sliceOffsets[i] = sliceOffset;
+      }
+      sliceError = error;
+    }
+
+    public boolean isCurrent(StructureDefinition profile) {
+      List<ElementDefinition> list = profile.getSnapshot().getElement();
+      return list == elements && list.size() == size;
+    }
+
+    /**
+     * @return the child definitions, or null if the children can't be validated
+     */
+    public List<ElementDefinition> getDefinitions() {
+      return definitions;
+    }
+
+    /**
+     * @return the type the child definitions came from, if they didn't come from the profile
+     */
+    public StructureDefinition getTypeDefinition() {
+      return typeDefinition;
+    }
+
+    /**
+     * @return the definition that is slicing the definition at index, if there is one
+     */
+    public ElementDefinition getSlicer(int index) {
+      return slicers[index];
+    }
+
+    public int getSliceOffset(int index) {
+      return sliceOffsets[index];
+    }
+
+    /**
+     * @return the index of the first definition that starts slicing midway through another set of slices, or -1
+     */
+    public int getSliceError() {
+      return sliceError;
+    }
+
+    /**
+     * @return the slices of the definition at index (only if it has slicing)
+     */
+    public List<ElementDefinition> getSlices(int index) {
+      return slices.get(index);
+    }
+
+    /**
+     * @return the indexes of the definitions that a child with this name could match, in order
+     */
+    public int[] getCandidates(String name) {
+      int[] res = candidates.get(name);
+      if (res == null) {
+        List<Integer> list = new ArrayList<>();
+        for (int i = 0; i < names.length; i++) {
+          if (choices[i] ? name.startsWith(names[i]) : name.equals(names[i])) {
+            list.add(i);
+          }
+        }
+        res = new int[list.size()];
+        for (int i = 0; i < res.length; i++) {
+          res[i] = list.get(i);
+        }
+        // the names come from the instance, so don't let nonsense ones fill this up
+        if (candidates.size() < 1000) {
+          candidates.put(name, res);
+        }
+      }
+      return res;
+    }
+  }
+
+  /**
+   * An invariant, with the expression fixed and compiled
+   */
+  public static class InvariantPlan {
+    private final ElementDefinitionConstraintComponent constraint;
+    private final String expression;
+    private volatile FHIRPathExecutionPlan compiled;
+    private final Map<StructureDefinition, Boolean> inherited = new ConcurrentHashMap<>();
+
+    public InvariantPlan(ElementDefinitionConstraintComponent constraint, String expression) {
+      this.constraint = constraint;
+      this.expression = expression;
+    }
+
+    public ElementDefinitionConstraintComponent getConstraint() {
+      return constraint;
+    }
+
+    /**
+     * @return the expression to evaluate (not always the one in the definition - see fixExpr)
+     */
+    public String getExpression() {
+      return expression;
+    }
+
+    public FHIRPathExecutionPlan getCompiled() {
+      return compiled;
+    }
+
+    public void setCompiled(FHIRPathExecutionPlan plan) {
+      this.compiled = plan;
+    }
+
+    /**
+     * @return whether the invariant is inherited by the profile from the source, if that's been worked out
+     */
+    public Boolean getInherited(StructureDefinition profile) {
+      return inherited.get(profile);
+    }
+
+    public void setInherited(StructureDefinition profile, boolean value) {
+      inherited.put(profile, value);
+    }
+  }
+
+  private final List<ElementDefinitionConstraintComponent> constraints;
+  private final int constraintCount;
+  private final String valueSetReference;
+  private final List<InvariantPlan> invariants;
+  private final Map<StructureDefinition, ResolvedValueSet> valueSets = new ConcurrentHashMap<>();
+  private final Map<StructureDefinition, Map<String, ChildPlan>> children = new ConcurrentHashMap<>();
+
+  public ElementPlan(ElementDefinition definition, List<InvariantPlan> invariants) {
+    this.constraints = definition.getConstraint();
+    this.constraintCount = constraints.size();
+    this.valueSetReference = definition.hasBinding() ? definition.getBinding().getValueSet() : null;
+    this.invariants = invariants;
+  }
+
+  public boolean isCurrent(ElementDefinition definition) {
+    String vs = definition.hasBinding() ? definition.getBinding().getValueSet() : null;
+    return definition.getConstraint() == constraints && constraints.size() == constraintCount && (vs == null ? valueSetReference == null : vs.equals(valueSetReference));
+  }
+
+  /**
+   * @return the invariants that have expressions
+   */
+  public List<InvariantPlan> getInvariants() {
+    return invariants;
+  }
+
+  /**
+   * A value set, as resolved by a worker context, when it had the given resources
+   */
+  private static class ResolvedValueSet {
+    private final WeakReference<IWorkerContext> context; // the definitions may outlive it
+    private final int generation;
+    private final ValueSet valueSet;
+
+    private ResolvedValueSet(IWorkerContext context, ValueSet valueSet) {
+      this.context = new WeakReference<>(context);
+      this.generation = context.getResourceGeneration();
+      this.valueSet = valueSet;
+    }
+  }
+
+  /**
+   * @return the value set the element is bound to, as resolved in the context of the profile, if that's been done 
+   * by this worker context, and its resources haven't changed since (the definitions may be shared by several contexts)
+   */
+  public ValueSet getValueSet(StructureDefinition profile, IWorkerContext context) {
+    ResolvedValueSet rvs = valueSets.get(profile);
+    int generation = context.getResourceGeneration();
+    return rvs != null && rvs.context.get() == context && generation != -1 && rvs.generation == generation ? rvs.valueSet : null;
+  }
+
+  public void setValueSet(StructureDefinition profile, IWorkerContext context, ValueSet valueSet) {
+    valueSets.put(profile, new ResolvedValueSet(context, valueSet));
+  }
+
+  /**
+   * @return the child definitions when the element is used in the profile with the actual type (which may be null), if they've been worked out
+   */
+  public ChildPlan getChildren(StructureDefinition profile, String actualType) {
+    Map<String, ChildPlan> map = children.get(profile);
+    ChildPlan plan = map == null ? null : map.get(actualType == null ? "" : actualType);
+    return plan != null && plan.isCurrent(profile) ? plan : null;
+  }
+
+  public void setChildren(StructureDefinition profile, String actualType, ChildPlan plan) {
+    children.computeIfAbsent(profile, p -> new ConcurrentHashMap<>()).put(actualType == null ? "" : actualType, plan);
+  }
+
+}
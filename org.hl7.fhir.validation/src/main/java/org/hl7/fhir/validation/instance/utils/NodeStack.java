@@ -12,6 +12,13 @@ import org.hl7.fhir.r5.model.StructureDefinition;
 import org.hl7.fhir.r5.model.StructureDefinition.StructureDefinitionKind;
 import org.hl7.fhir.utilities.Utilities;
 
+/**
+ * The stack of elements being validated. 
+ * 
+ * Most of the nodes on the stack never have their paths asked for (only when there's a message 
+ * to report, or a check that uses them), so the literal and logical paths are worked out from the 
+ * parent when they are first asked for, rather than when the node is pushed
+ */
 public class NodeStack {
 
   protected IWorkerContext context;
@@ -20,6 +27,11 @@ public class NodeStack {
   private ElementDefinition extension;
   private String literalPath; // xpath format
   private List<String> logicalPaths; // dotted format, various entry points
+  private boolean pathsPending; // if the paths haven't been worked out yet
+  private String sep; // how this was pushed (. or ->)
+  private int count; // the index of this node in its parent, if known 
+  private String qualifiers = ""; // what qualifyPath has added to the literal path
+  private String parentQualifiers; // the parent's qualifiers when this was pushed
   private NodeStack parent;
   private ElementDefinition type;
   private String workingLang;
@@ -75,10 +87,12 @@ public class NodeStack {
   }
 
   public String getLiteralPath() {
+    makePaths();
     return literalPath == null ? "" : literalPath;
   }
 
   public List<String> getLogicalPaths() {
+    makePaths();
     return logicalPaths == null ? new ArrayList<String>() : logicalPaths;
   }
 
@@ -101,43 +115,57 @@ public class NodeStack {
     res.workingLang = this.workingLang;
     res.element = element;
     res.definition = definition;
-    res.literalPath = getLiteralPath() + sep + element.getName();
+    // type will be null if we on a stitching point of a contained resource, or if....
+    res.type = type;
+    res.sep = sep;
+    res.count = count;
+    res.parentQualifiers = qualifiers;
+    res.pathsPending = true;
+    return res;
+  }
+
+  private void makePaths() {
+    if (!pathsPending) {
+      return;
+    }
+    pathsPending = false;
+    // the parent may have been qualified since this was pushed; that doesn't apply to this
+    String parentPath = parent.getLiteralPath();
+    parentPath = parentPath.substring(0, parentPath.length() - (parent.qualifiers.length() - parentQualifiers.length()));
+    literalPath = parentPath + sep + element.getName();
     if (count > -1)
-      res.literalPath = res.literalPath + "[" + Integer.toString(count) + "]";
+      literalPath = literalPath + "[" + Integer.toString(count) + "]";
     else if (element.getSpecial() == null && element.getProperty().isList())
-      res.literalPath = res.literalPath + "[0]";
+      literalPath = literalPath + "[0]";
     else if (element.getProperty().isChoice()) {
-      String n = res.literalPath.substring(res.literalPath.lastIndexOf(".") + 1);
+      String n = literalPath.substring(literalPath.lastIndexOf(".") + 1);
       String en = element.getProperty().getName();
       en = en.substring(0, en.length() - 3);
       String t = n.substring(en.length());
       if (isPrimitiveType(Utilities.uncapitalize(t)))
         t = Utilities.uncapitalize(t);
-      res.literalPath = res.literalPath.substring(0, res.literalPath.lastIndexOf(".")) + "." + en + ".ofType(" + t + ")";
+      literalPath = literalPath.substring(0, literalPath.lastIndexOf(".")) + "." + en + ".ofType(" + t + ")";
     }
-    res.logicalPaths = new ArrayList<String>();
+    logicalPaths = new ArrayList<String>();
     if (type != null) {
-      // type will be bull if we on a stitching point of a contained resource, or if....
-      res.type = type;
-      String tn = res.type.getPath();
+      String tn = type.getPath();
       String t = tail(definition.getPath());
       if ("Resource".equals(tn)) {
         tn = element.fhirType();
       }
-      for (String lp : getLogicalPaths()) {
-        res.logicalPaths.add(lp + "." + t);
+      for (String lp : parent.getLogicalPaths()) {
+        logicalPaths.add(lp + "." + t);
         if (t.endsWith("[x]"))
-          res.logicalPaths.add(lp + "." + t.substring(0, t.length() - 3) + type.getPath());
+          logicalPaths.add(lp + "." + t.substring(0, t.length() - 3) + type.getPath());
       }
-      res.logicalPaths.add(tn);
+      logicalPaths.add(tn);
     } else if (definition != null) {
-      for (String lp : getLogicalPaths()) {
-        res.logicalPaths.add(lp + "." + element.getName());
+      for (String lp : parent.getLogicalPaths()) {
+        logicalPaths.add(lp + "." + element.getName());
       }
-      res.logicalPaths.add(definition.typeSummary());
+      logicalPaths.add(definition.typeSummary());
     } else
-      res.logicalPaths.addAll(getLogicalPaths());
-    return res;
+      logicalPaths.addAll(parent.getLogicalPaths());
   }
 
   private void setType(ElementDefinition type) {
@@ -174,8 +202,9 @@ public class NodeStack {
   }
 
   public void qualifyPath(String qualifier) {
+    makePaths();
     literalPath = literalPath + qualifier;
-    
+    qualifiers = qualifiers + qualifier;
   }
 
   public boolean isResetPoint() {
@@ -184,6 +213,7 @@ public class NodeStack {
 
   @Override
   public String toString() {
+    makePaths();
     return literalPath;
   }
 
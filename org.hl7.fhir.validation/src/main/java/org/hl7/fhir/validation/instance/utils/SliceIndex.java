@@ -0,0 +1,224 @@
+package org.hl7.fhir.validation.instance.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.hl7.fhir.r5.elementmodel.Element;
+import org.hl7.fhir.r5.model.Base;
+import org.hl7.fhir.r5.model.CodeableConcept;
+import org.hl7.fhir.r5.model.Coding;
+import org.hl7.fhir.r5.model.DataType;
+import org.hl7.fhir.r5.model.ElementDefinition;
+import org.hl7.fhir.r5.model.ExpressionNode;
+import org.hl7.fhir.r5.model.StringType;
+import org.hl7.fhir.r5.model.UriType;
+
+/**
+ * An index of the slices of a slicing group by the values of their discriminators.
+ *
+ * Working out whether an element is in a slice means evaluating the slice's discriminator expression
+ * against the element, for every slice. But most discriminators just say that the element has a
+ * fixed value, code or type at some path, so for those slices, this keeps the values each slice needs,
+ * and which slices need each value. Then the discriminator paths are evaluated once against the
+ * element, and the slices it is in are the ones that need no values it doesn't have.
+ *
+ * Slices with other kinds of discriminators (profiles, bindings, and less common fixed values and
+ * patterns) aren't in the index, and have their expressions evaluated as usual
+ */
+public class SliceIndex {
+
+  private static final String TYPE = "type";
+  private static final String VALUE = "value";
+  private static final String CODING = "coding";
+  private static final String CONCEPT = "concept";
+  private static final String EXISTS = "exists";
+  private static final String ABSENT = "absent";
+
+  /**
+   * What a slice needs of an element, in terms of the values at the discriminator paths. This is
+   * recorded as the slice expression is built, one discriminator at a time
+   */
+  public static class Criteria {
+    private boolean supported = true;
+    private Set<String> paths = new HashSet<>();
+    private Set<List<String>> keys = new HashSet<>();
+
+    public void type(String path, String type) {
+      add(path, TYPE, type.toLowerCase());
+    }
+
+    public void exists(String path, boolean exists) {
+      add(path, exists ? EXISTS : ABSENT);
+    }
+
+    /**
+     * the discriminator has a fixed value or a pattern
+     */
+    public void value(String path, DataType value, boolean fixed) {
+      if (value instanceof CodeableConcept) {
+        CodeableConcept cc = (CodeableConcept) value;
+        for (Coding c : cc.getCoding()) {
+          if (!isSimple(c)) {
+            supported = false;
+          } else {
+            add(path, CONCEPT, c.getSystem(), c.getCode());
+          }
+        }
+      } else if (value instanceof Coding) {
+        if (isSimple((Coding) value)) {
+          add(path, CODING, ((Coding) value).getSystem(), ((Coding) value).getCode());
+        } else {
+          supported = false;
+        }
+      } else if (fixed && (value instanceof StringType || value instanceof UriType) && isPlain(value.primitiveValue())) {
+        add(path, VALUE, value.primitiveValue());
+      } else {
+        supported = false;
+      }
+    }
+
+    /**
+     * the discriminator can't be checked with the index
+     */
+    public void unsupported() {
+      supported = false;
+    }
+
+    private void add(String path, String... parts) {
+      if (path.contains("resolve()") || path.contains("%")) {
+        // depends on more than the element
+        supported = false;
+      } else {
+        paths.add(path);
+        keys.add(key(path, parts));
+      }
+    }
+
+    private boolean isSimple(Coding c) {
+      return c.hasSystem() && c.hasCode() && !c.hasVersion() && !c.hasDisplay() && !c.hasExtension();
+    }
+
+    // strings that need escaping in the expression are left to the expression
+    private boolean isPlain(String s) {
+      if (s == null) {
+        return false;
+      }
+      for (char ch : s.toCharArray()) {
+        if (ch < ' ' || ch == '\'' || ch == '"' || ch == '\\') {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    public boolean isSupported() {
+      return supported && !keys.isEmpty();
+    }
+
+    public Set<String> getPaths() {
+      return paths;
+    }
+  }
+
+  private final Map<String, ExpressionNode> paths = new HashMap<>();
+  private final Map<ElementDefinition, Integer> slices = new IdentityHashMap<>();
+  private final Map<List<String>, List<ElementDefinition>> slicesByKey = new HashMap<>();
+
+  /**
+   * @param slice - the slice
+   * @param criteria - what the slice needs (must be supported)
+   * @param nodes - the parsed discriminator paths
+   */
+  public void add(ElementDefinition slice, Criteria criteria, Map<String, ExpressionNode> nodes) {
+    paths.putAll(nodes);
+    slices.put(slice, criteria.keys.size());
+    for (List<String> key : criteria.keys) {
+      slicesByKey.computeIfAbsent(key, k -> new ArrayList<>()).add(slice);
+    }
+  }
+
+  public boolean isIndexed(ElementDefinition slice) {
+    return slices.containsKey(slice);
+  }
+
+  /**
+   * @return the discriminator paths to evaluate against an element
+   */
+  public Map<String, ExpressionNode> getPaths() {
+    return paths;
+  }
+
+  /**
+   * @param values - the result of evaluating each of the discriminator paths against an element
+   * @return the indexed slices the element is in, or null if the values can't be indexed
+   */
+  public Set<ElementDefinition> match(Map<String, List<Base>> values) {
+    Set<List<String>> keys = new HashSet<>();
+    for (String path : values.keySet()) {
+      if (!addKeys(keys, path, values.get(path))) {
+        return null;
+      }
+    }
+    Map<ElementDefinition, Integer> hits = new IdentityHashMap<>();
+    for (List<String> key : keys) {
+      List<ElementDefinition> list = slicesByKey.get(key);
+      if (list != null) {
+        for (ElementDefinition slice : list) {
+          hits.merge(slice, 1, Integer::sum);
+        }
+      }
+    }
+    Set<ElementDefinition> res = new HashSet<>();
+    for (ElementDefinition slice : hits.keySet()) {
+      if (hits.get(slice).equals(slices.get(slice))) {
+        res.add(slice);
+      }
+    }
+    return res;
+  }
+
+  // these follow what the slice expressions ask for: 'v' in path, path.where(system = 's' and code = 'c').exists(),
+  // path.coding.where(system = 's' and code = 'c').exists(), path is T, and path.exists()
+  private boolean addKeys(Set<List<String>> keys, String path, List<Base> list) {
+    keys.add(key(path, list.isEmpty() ? ABSENT : EXISTS));
+    if (list.size() == 1) {
+      keys.add(key(path, TYPE, list.get(0).fhirType().toLowerCase()));
+    }
+    for (Base b : list) {
+      if (!(b instanceof Element)) {
+        return false;
+      }
+      Element e = (Element) b;
+      if (e.getValue() != null && e.isPrimitive()) {
+        keys.add(key(path, VALUE, e.primitiveValue()));
+      }
+      addCoding(keys, path, CODING, e);
+      for (Element c : e.getChildren(CODING)) {
+        addCoding(keys, path, CONCEPT, c);
+      }
+    }
+    return true;
+  }
+
+  private void addCoding(Set<List<String>> keys, String path, String kind, Element e) {
+    String system = e.getNamedChildValue("system");
+    String code = e.getNamedChildValue("code");
+    if (system != null && code != null) {
+      keys.add(key(path, kind, system, code));
+    }
+  }
+
+  private static List<String> key(String path, String... parts) {
+    List<String> res = new ArrayList<>(parts.length + 1);
+    res.add(path);
+    res.addAll(Arrays.asList(parts));
+    return res;
+  }
+
+}
@@ -0,0 +1,61 @@
+package org.hl7.fhir.validation.tests;
+
+import org.hl7.fhir.r5.elementmodel.Element;
+import org.hl7.fhir.validation.instance.utils.BundleIndex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class BundleIndexTests {
+
+  private Element addEntry(Element bundle, String fullUrl, String type, String id) {
+    Element entry = new Element("entry", null, "BackboneElement", null);
+    if (fullUrl != null) {
+      entry.getChildren().add(new Element("fullUrl", null, "uri", fullUrl));
+    }
+    if (type != null) {
+      Element resource = new Element("resource", null, type, null);
+      resource.getChildren().add(new Element("id", null, "id", id));
+      entry.getChildren().add(resource);
+    }
+    bundle.getChildren().add(entry);
+    return entry;
+  }
+
+  @Test
+  public void testResolve() {
+    Element bundle = new Element("Bundle", null, "Bundle", null);
+    Element e1 = addEntry(bundle, "http://a/fhir/Patient/1", "Patient", "1");
+    Element e2 = addEntry(bundle, "urn:uuid:0c3151bd-1cbf-4d64-b04d-cd9187a4c6e0", "Observation", "2");
+    Element e3 = addEntry(bundle, "http://a/fhir/Patient/1", "Patient", "1");
+    Element e4 = addEntry(bundle, null, "Practitioner", "4");
+
+    BundleIndex index = BundleIndex.forBundle(bundle);
+    Assertions.assertSame(index, BundleIndex.forBundle(bundle));
+    Assertions.assertEquals(4, index.getEntries().size());
+
+    // absolute references go by fullUrl, first match wins
+    Assertions.assertSame(e1, index.resolve("http://a/fhir/Patient/1", null, "Observation", "2"));
+    Assertions.assertSame(e2, index.resolve("urn:uuid:0c3151bd-1cbf-4d64-b04d-cd9187a4c6e0", null, "Patient", "1"));
+    Assertions.assertNull(index.resolve("http://a/fhir/Patient/2", null, "Patient", "1"));
+    // relative references are resolved against the RESTful base of the source
+    Assertions.assertSame(e1, index.resolve("Patient/1", "http://a/fhir/Observation/2", "Observation", "2"));
+    Assertions.assertNull(index.resolve("Practitioner/4", "http://a/fhir/Observation/2", "Observation", "2"));
+    // or by type and id when there isn't one
+    Assertions.assertSame(e4, index.resolve("Practitioner/4", "urn:uuid:0c3151bd-1cbf-4d64-b04d-cd9187a4c6e0", "Observation", "2"));
+    Assertions.assertNull(index.resolve("Practitioner", null, "Observation", "2"));
+
+    Assertions.assertEquals("[0, 2]", index.findByFullUrl("http://a/fhir/Patient/1").toString());
+    Assertions.assertEquals(2, index.indexOf(e3));
+    Assertions.assertEquals(1, index.indexOf(e2.getNamedChild("resource")));
+    Assertions.assertEquals(-1, index.indexOf(bundle));
+
+    Assertions.assertSame(e4.getNamedChild("resource"), index.resolveResource("Practitioner/4"));
+    Assertions.assertSame(e1.getNamedChild("resource"), index.resolveResource("http://a/fhir/Patient/1"));
+
+    // the index is rebuilt when the bundle changes
+    Element e5 = addEntry(bundle, "http://a/fhir/Patient/5", "Patient", "5");
+    Assertions.assertNotSame(index, BundleIndex.forBundle(bundle));
+    Assertions.assertSame(e5, BundleIndex.forBundle(bundle).resolve("Patient/5", "http://a/fhir/Patient/1", "Patient", "1"));
+  }
+
+}
@@ -0,0 +1,254 @@
+package org.hl7.fhir.validation.tests;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hl7.fhir.r5.context.SimpleWorkerContext;
+import org.hl7.fhir.r5.elementmodel.Manager.FhirFormat;
+import org.hl7.fhir.r5.model.CodeSystem;
+import org.hl7.fhir.r5.model.CodeSystem.CodeSystemContentMode;
+import org.hl7.fhir.r5.model.ElementDefinition;
+import org.hl7.fhir.r5.model.ElementDefinition.ConstraintSeverity;
+import org.hl7.fhir.r5.model.ElementDefinition.DiscriminatorType;
+import org.hl7.fhir.r5.model.ElementDefinition.SlicingRules;
+import org.hl7.fhir.r5.model.Enumerations.BindingStrength;
+import org.hl7.fhir.r5.model.StructureDefinition;
+import org.hl7.fhir.r5.model.StructureDefinition.StructureDefinitionKind;
+import org.hl7.fhir.r5.model.StructureDefinition.TypeDerivationRule;
+import org.hl7.fhir.r5.model.ValueSet;
+import org.hl7.fhir.utilities.validation.ValidationMessage;
+import org.hl7.fhir.utilities.validation.ValidationMessage.IssueSeverity;
+import org.hl7.fhir.validation.instance.InstanceValidator;
+import org.hl7.fhir.validation.instance.utils.ElementPlan;
+import org.hl7.fhir.validation.instance.utils.ElementPlan.ChildPlan;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ElementPlanTests {
+
+  private static final String BASIC = "http://hl7.org/fhir/StructureDefinition/Basic";
+  private static final String PROFILE = "http://example.org/fhir/StructureDefinition/basic";
+  private static final String VS = "http://example.org/fhir/ValueSet/codes";
+  private static final String CS = "http://example.org/fhir/CodeSystem/codes";
+
+  private StructureDefinition type(String name, StructureDefinitionKind kind, String... elements) {
+    StructureDefinition sd = new StructureDefinition();
+    sd.setId(name);
+    sd.setUrl("http://hl7.org/fhir/StructureDefinition/"+name);
+    sd.setName(name);
+    sd.setType(name);
+    sd.setKind(kind);
+    sd.setDerivation(TypeDerivationRule.SPECIALIZATION);
+    element(sd, name, null);
+    for (int i = 0; i < elements.length; i = i + 2) {
+      element(sd, name+"."+elements[i], elements[i+1]);
+    }
+    return sd;
+  }
+
+  private ElementDefinition element(StructureDefinition sd, String path, String type) {
+    ElementDefinition ed = sd.getSnapshot().addElement();
+    ed.setPath(path);
+    ed.setId(path);
+    ed.setMin(0);
+    ed.setMax("1");
+    if (type != null) {
+      for (String t : type.split("\\|")) {
+        ed.addType().setCode(t);
+      }
+    }
+    return ed;
+  }
+
+  private ElementDefinition find(StructureDefinition sd, String path) {
+    for (ElementDefinition ed : sd.getSnapshot().getElement()) {
+      if (ed.getPath().equals(path)) {
+        return ed;
+      }
+    }
+    return null;
+  }
+
+  private ValueSet valueSet(String... codes) {
+    ValueSet vs = new ValueSet();
+    vs.setId("codes");
+    vs.setUrl(VS);
+    for (String c : codes) {
+      vs.getCompose().getIncludeFirstRep().setSystem(CS).addConcept().setCode(c);
+    }
+    return vs;
+  }
+
+  private SimpleWorkerContext context() throws Exception {
+    Map<String, byte[]> definitions = new HashMap<>();
+    definitions.put("version.info", "version=4.0.1".getBytes(StandardCharsets.UTF_8));
+    SimpleWorkerContext context = SimpleWorkerContext.fromDefinitions(definitions, null, null);
+    context.setCanRunWithoutTerminology(true);
+    for (String t : new String[] { "string", "uri", "code", "integer", "boolean" }) {
+      context.cacheResource(type(t, StructureDefinitionKind.PRIMITIVETYPE));
+    }
+    context.cacheResource(type("Coding", StructureDefinitionKind.COMPLEXTYPE, "system", "uri", "code", "code", "display", "string"));
+    StructureDefinition basic = type("Basic", StructureDefinitionKind.RESOURCE, "code", "code", "kind", "Coding", "value[x]", "string|integer");
+    find(basic, "Basic.code").getBinding().setStrength(BindingStrength.REQUIRED).setValueSet(VS);
+    find(basic, "Basic.kind").addConstraint().setKey("bas-1").setSeverity(ConstraintSeverity.ERROR).setHuman("kind has a code").setExpression("code.exists()").setSource(BASIC);
+    context.cacheResource(basic);
+
+    // a profile that inherits the invariant, adds another, and slices value[x] by type
+    StructureDefinition profile = basic.copy();
+    profile.setId("basic-profile");
+    profile.setUrl(PROFILE);
+    find(profile, "Basic.kind").addConstraint().setKey("bas-2").setSeverity(ConstraintSeverity.ERROR).setHuman("kind has a display").setExpression("display.exists()").setSource(PROFILE);
+    profile.setDerivation(TypeDerivationRule.CONSTRAINT);
+    profile.setBaseDefinition(BASIC);
+    ElementDefinition value = find(profile, "Basic.value[x]");
+    value.getSlicing().setRules(SlicingRules.CLOSED).addDiscriminator().setType(DiscriminatorType.TYPE).setPath("$this");
+    ElementDefinition slice = value.copy();
+    slice.setSlicing(null);
+    slice.setSliceName("valueString");
+    slice.setId("Basic.value[x]:valueString");
+    slice.getType().clear();
+    slice.addType().setCode("string");
+    profile.getSnapshot().getElement().add(profile.getSnapshot().getElement().indexOf(value) + 1, slice);
+    context.cacheResource(profile);
+
+    CodeSystem cs = new CodeSystem();
+    cs.setId("codes");
+    cs.setUrl(CS);
+    cs.setContent(CodeSystemContentMode.COMPLETE);
+    cs.addConcept().setCode("a");
+    cs.addConcept().setCode("b");
+    context.cacheResource(cs);
+    context.cacheResource(valueSet("a"));
+    return context;
+  }
+
+  private List<ValidationMessage> validate(InstanceValidator validator, String json, StructureDefinition... profiles) {
+    List<ValidationMessage> errors = new ArrayList<>();
+    validator.validate(null, errors, new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), FhirFormat.JSON, Arrays.asList(profiles));
+    List<ValidationMessage> res = new ArrayList<>();
+    for (ValidationMessage vm : errors) {
+      if (vm.getLevel() == IssueSeverity.ERROR || vm.getLevel() == IssueSeverity.FATAL) {
+        res.add(vm);
+      }
+    }
+    return res;
+  }
+
+  private int count(List<ValidationMessage> errors, String text) {
+    int res = 0;
+    for (ValidationMessage vm : errors) {
+      if (vm.getMessage().contains(text)) {
+        res++;
+      }
+    }
+    return res;
+  }
+
+  @Test
+  public void testCandidates() {
+    StructureDefinition sd = type("Test", StructureDefinitionKind.LOGICAL, "code", "code", "value[x]", "string|integer", "value[x]", "string", "value[x]", "integer", "other", "string");
+    List<ElementDefinition> elements = sd.getSnapshot().getElement();
+    elements.get(2).getSlicing().addDiscriminator().setType(DiscriminatorType.TYPE).setPath("$this");
+    elements.get(3).setSliceName("valueString");
+    elements.get(4).setSliceName("valueInteger");
+    List<ElementDefinition> definitions = elements.subList(1, elements.size());
+    ChildPlan plan = new ChildPlan(elements, definitions, null, Arrays.asList(null, elements.subList(3, 5), null, null, null));
+
+    // a choice matches all the type slices, whatever the type in the name
+    Assertions.assertArrayEquals(new int[] { 1, 2, 3 }, plan.getCandidates("valueString"));
+    Assertions.assertArrayEquals(new int[] { 1, 2, 3 }, plan.getCandidates("valueBoolean"));
+    Assertions.assertArrayEquals(new int[] { 0 }, plan.getCandidates("code"));
+    Assertions.assertArrayEquals(new int[] { }, plan.getCandidates("codes"));
+    Assertions.assertArrayEquals(new int[] { 4 }, plan.getCandidates("other"));
+    Assertions.assertSame(plan.getCandidates("valueString"), plan.getCandidates("valueString"));
+
+    Assertions.assertNull(plan.getSlicer(0));
+    Assertions.assertSame(definitions.get(1), plan.getSlicer(1));
+    Assertions.assertSame(definitions.get(1), plan.getSlicer(3));
+    Assertions.assertEquals(1, plan.getSliceOffset(3));
+    Assertions.assertNull(plan.getSlicer(4));
+    Assertions.assertEquals(-1, plan.getSliceError());
+    Assertions.assertEquals(2, plan.getSlices(1).size());
+
+    // the plan is only good for the snapshot it came from
+    Assertions.assertTrue(plan.isCurrent(sd));
+    element(sd, "Test.another", "string");
+    Assertions.assertFalse(plan.isCurrent(sd));
+  }
+
+  @Test
+  public void testTypeSlices() throws Exception {
+    SimpleWorkerContext context = context();
+    InstanceValidator validator = new InstanceValidator(context, null, null);
+    StructureDefinition profile = context.fetchResource(StructureDefinition.class, PROFILE);
+
+    Assertions.assertEquals(0, validate(validator, "{\"resourceType\":\"Basic\",\"valueString\":\"test\"}", profile).size());
+    // the slicing is closed, so the integer isn't allowed by the profile, though it is by the base
+    Assertions.assertEquals(0, validate(validator, "{\"resourceType\":\"Basic\",\"valueInteger\":1}").size());
+    Assertions.assertNotEquals(0, validate(validator, "{\"resourceType\":\"Basic\",\"valueInteger\":1}", profile).size());
+    // and again, now that the plans have been worked out
+    Assertions.assertEquals(0, validate(validator, "{\"resourceType\":\"Basic\",\"valueString\":\"test\"}", profile).size());
+    Assertions.assertNotEquals(0, validate(validator, "{\"resourceType\":\"Basic\",\"valueInteger\":1}", profile).size());
+  }
+
+  @Test
+  public void testInheritedInvariants() throws Exception {
+    SimpleWorkerContext context = context();
+    InstanceValidator validator = new InstanceValidator(context, null, null);
+    StructureDefinition base = context.fetchResource(StructureDefinition.class, BASIC);
+    StructureDefinition profile = context.fetchResource(StructureDefinition.class, PROFILE);
+    String json = "{\"resourceType\":\"Basic\",\"kind\":{\"system\":\"http://example.org/fhir/CodeSystem/codes\"}}";
+
+    // an invariant is checked against the definition it comes from, and not again against the profiles that inherit it
+    for (int i = 0; i < 2; i++) {
+      Assertions.assertEquals(1, count(validate(validator, json), "bas-1"));
+      List<ValidationMessage> errors = validate(validator, json, profile);
+      Assertions.assertEquals(0, count(errors, "bas-1"));
+      Assertions.assertEquals(1, count(errors, "bas-2"));
+    }
+
+    Map<ElementDefinition, ElementPlan> plans = context.getDefinitionCache(ElementPlan.CACHE);
+    ElementPlan basePlan = plans.get(find(base, "Basic.kind"));
+    ElementPlan profilePlan = plans.get(find(profile, "Basic.kind"));
+    Assertions.assertEquals(Boolean.FALSE, basePlan.getInvariants().get(0).getInherited(base));
+    Assertions.assertEquals(Boolean.TRUE, profilePlan.getInvariants().get(0).getInherited(profile));
+    Assertions.assertEquals(Boolean.FALSE, profilePlan.getInvariants().get(1).getInherited(profile));
+
+    // the plans are shared by the validators that use the context, until the resources in it change 
+    validate(new InstanceValidator(context, null, null), json, profile);
+    Assertions.assertSame(profilePlan, plans.get(find(profile, "Basic.kind")));
+    ValueSet other = new ValueSet();
+    other.setId("other");
+    other.setUrl("http://example.org/fhir/ValueSet/other");
+    context.cacheResource(other);
+    Assertions.assertTrue(plans.isEmpty());
+  }
+
+  @Test
+  public void testReregisteredValueSet() throws Exception {
+    SimpleWorkerContext context = context();
+    InstanceValidator validator = new InstanceValidator(context, null, null);
+    String json = "{\"resourceType\":\"Basic\",\"code\":\"b\"}";
+    Assertions.assertNotEquals(0, validate(validator, json).size());
+    Assertions.assertNotEquals(0, validate(validator, json).size());
+
+    // the binding is resolved again once the value set has changed
+    context.dropResource("ValueSet", "codes");
+    context.cacheResource(valueSet("a", "b"));
+    Assertions.assertEquals(0, validate(validator, json).size());
+
+    // and the definitions can be used by another context, which resolves it for itself
+    SimpleWorkerContext other = context();
+    StructureDefinition basic = other.fetchResource(StructureDefinition.class, BASIC);
+    other.dropResource("StructureDefinition", "Basic");
+    other.cacheResource(context.fetchResource(StructureDefinition.class, BASIC));
+    Assertions.assertNotSame(basic, other.fetchResource(StructureDefinition.class, BASIC));
+    Assertions.assertNotEquals(0, validate(new InstanceValidator(other, null, null), json).size());
+  }
+
+}
@@ -1,12 +1,19 @@
 package org.hl7.fhir.validation.tests;
 
 import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
+import org.hl7.fhir.r5.context.SimpleWorkerContext;
+import org.hl7.fhir.r5.model.ImplementationGuide;
 import org.hl7.fhir.r5.test.utils.TestingUtilities;
 import org.hl7.fhir.utilities.TextFile;
 import org.hl7.fhir.utilities.VersionUtilities;
 import org.hl7.fhir.validation.IgLoader;
 import org.hl7.fhir.validation.ValidationEngine;
+import org.junit.Assert;
 import org.junit.Test;
 
 public class LoadIgTests {
@@ -77,6 +84,28 @@ public class LoadIgTests {
     }
     // loadResourceByVersion
   }
+  @Test
+  public void testAlreadyLoaded() throws Exception {
+    SimpleWorkerContext context = SimpleWorkerContext.fromNothing();
+    context.getLoadedPackages().add("hl7.terminology#2.0.0");
+    // there's no package cache manager, so any package that isn't skipped fails to load
+    IgLoader igLoader = new IgLoader(null, context, "4.0.1");
+    List<ImplementationGuide> igs = new ArrayList<>();
+    Map<String, byte[]> binaries = new HashMap<>();
+
+    igLoader.loadIg(igs, binaries, "hl7.terminology#2.0.0", false);
+    // without a version, the one that's loaded will do
+    igLoader.loadIg(igs, binaries, "hl7.terminology", false);
+    for (String src : new String[] { "hl7.terminology#3.0.0", "hl7.terminology.other" }) {
+      try {
+        igLoader.loadIg(igs, binaries, src, false);
+        Assert.fail(src + " was skipped");
+      } catch (Exception e) {
+        // it tried to load it
+      }
+    }
+  }
+
   public static String getFreeMemoryAsMbs() {
     long MemoryFreeSize = Runtime.getRuntime().freeMemory();
     double MemoryFreeSizeInMb = (MemoryFreeSize / 1024.0 / 1024.0);
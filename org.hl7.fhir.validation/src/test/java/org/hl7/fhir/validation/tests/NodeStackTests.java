@@ -0,0 +1,149 @@
+package org.hl7.fhir.validation.tests;
+
+import java.util.List;
+
+import org.hl7.fhir.r5.context.SimpleWorkerContext;
+import org.hl7.fhir.r5.elementmodel.Element;
+import org.hl7.fhir.r5.elementmodel.Property;
+import org.hl7.fhir.r5.model.ElementDefinition;
+import org.hl7.fhir.r5.model.StructureDefinition;
+import org.hl7.fhir.r5.model.StructureDefinition.StructureDefinitionKind;
+import org.hl7.fhir.r5.model.StructureDefinition.TypeDerivationRule;
+import org.hl7.fhir.validation.instance.utils.NodeStack;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+/**
+ * The paths are worked out when they are first asked for; these are the paths that were built
+ * when the nodes were pushed
+ */
+public class NodeStackTests {
+
+  private static SimpleWorkerContext context;
+  private static StructureDefinition observation;
+
+  @BeforeAll
+  public static void setUp() throws Exception {
+    context = SimpleWorkerContext.fromNothing();
+    context.cacheResource(type("string", StructureDefinitionKind.PRIMITIVETYPE));
+    observation = type("Observation", StructureDefinitionKind.RESOURCE);
+    element(observation, "Observation.code", "1", "CodeableConcept");
+    element(observation, "Observation.value[x]", "1", "Quantity", "string");
+    element(observation, "Observation.component", "*", "BackboneElement");
+    element(observation, "Observation.component.code", "1", "CodeableConcept");
+    element(observation, "Observation.component.value[x]", "1", "Quantity", "string");
+    context.cacheResource(observation);
+  }
+
+  private static StructureDefinition type(String name, StructureDefinitionKind kind) {
+    StructureDefinition sd = new StructureDefinition();
+    sd.setId(name);
+    sd.setUrl("http://hl7.org/fhir/StructureDefinition/"+name);
+    sd.setName(name);
+    sd.setType(name);
+    sd.setKind(kind);
+    sd.setDerivation(TypeDerivationRule.SPECIALIZATION);
+    element(sd, name, "*");
+    return sd;
+  }
+
+  private static ElementDefinition element(StructureDefinition sd, String path, String max, String... types) {
+    ElementDefinition ed = sd.getSnapshot().addElement();
+    ed.setPath(path);
+    ed.setId(path);
+    ed.setMin(0);
+    ed.setMax(max);
+    for (String t : types) {
+      ed.addType().setCode(t);
+    }
+    return ed;
+  }
+
+  // the definition of a type, as the validator passes it when it has worked out the type of an element
+  private ElementDefinition typeDefinition(String name) {
+    return new ElementDefinition().setPath(name);
+  }
+
+  private ElementDefinition definition(String path) {
+    for (ElementDefinition ed : observation.getSnapshot().getElement()) {
+      if (ed.getPath().equals(path)) {
+        return ed;
+      }
+    }
+    throw new Error("no definition for "+path);
+  }
+
+  private Element element(String path, String name, String type) {
+    return new Element(name, new Property(context, definition(path), observation), type, null);
+  }
+
+  private NodeStack root() {
+    return new NodeStack(context, element("Observation", "Observation", "Observation"), "en");
+  }
+
+  @Test
+  public void testRepeatingElements() {
+    NodeStack root = root();
+    NodeStack c1 = root.push(element("Observation.component", "component", null), 1, definition("Observation.component"), null);
+    NodeStack c0 = root.push(element("Observation.component", "component", null), -1, definition("Observation.component"), null);
+    NodeStack code = c1.push(element("Observation.component.code", "code", null), -1, definition("Observation.component.code"), typeDefinition("CodeableConcept"));
+    NodeStack target = code.pushTarget(element("Observation", "Observation", "Observation"), -1, null, null);
+
+    // asked for from the bottom up, which is not the order they were pushed in
+    Assertions.assertEquals("Observation.component[1].code->Observation[0]", target.getLiteralPath());
+    Assertions.assertEquals("Observation.component[1].code", code.getLiteralPath());
+    Assertions.assertEquals("Observation.component[0]", c0.getLiteralPath());
+    Assertions.assertEquals("Observation.component[1]", c1.toString());
+    Assertions.assertEquals("Observation.component[1].code.text", code.addToLiteralPath("text"));
+    Assertions.assertEquals("Observation.component[1].code[2]", code.addToLiteralPath(":2"));
+    Assertions.assertEquals(3, target.depth());
+  }
+
+  @Test
+  public void testChoiceElements() {
+    NodeStack root = root();
+    NodeStack q = root.push(element("Observation.value[x]", "valueQuantity", "Quantity"), -1, definition("Observation.value[x]"), typeDefinition("Quantity"));
+    NodeStack s = root.push(element("Observation.value[x]", "valueString", "string"), -1, definition("Observation.value[x]"), typeDefinition("string"));
+    NodeStack c = root.push(element("Observation.component", "component", null), 0, definition("Observation.component"), null);
+    NodeStack cs = c.push(element("Observation.component.value[x]", "valueString", "string"), -1, definition("Observation.component.value[x]"), typeDefinition("string"));
+
+    // primitive types are named as the type is, the others are capitalised
+    Assertions.assertEquals("Observation.value.ofType(Quantity)", q.getLiteralPath());
+    Assertions.assertEquals("Observation.value.ofType(string)", s.getLiteralPath());
+    Assertions.assertEquals("Observation.component[0].value.ofType(string)", cs.getLiteralPath());
+  }
+
+  @Test
+  public void testLogicalPaths() {
+    NodeStack root = root();
+    NodeStack c = root.push(element("Observation.component", "component", null), 0, definition("Observation.component"), null);
+    NodeStack code = c.push(element("Observation.component.code", "code", null), -1, definition("Observation.component.code"), typeDefinition("CodeableConcept"));
+    NodeStack value = c.push(element("Observation.component.value[x]", "valueQuantity", "Quantity"), -1, definition("Observation.component.value[x]"), typeDefinition("Quantity"));
+    NodeStack stitched = value.push(element("Observation", "Observation", "Observation"), -1, null, null);
+
+    Assertions.assertEquals("[]", root.getLogicalPaths().toString());
+    Assertions.assertEquals("[BackboneElement.value[x], BackboneElement.valueQuantity, Quantity]", value.getLogicalPaths().toString());
+    Assertions.assertEquals("[BackboneElement.code, CodeableConcept]", code.getLogicalPaths().toString());
+    Assertions.assertEquals("[BackboneElement]", c.getLogicalPaths().toString());
+    // with no definition, the node has its parent's paths
+    List<String> paths = stitched.getLogicalPaths();
+    Assertions.assertEquals(value.getLogicalPaths(), paths);
+  }
+
+  @Test
+  public void testQualifyPath() {
+    NodeStack root = root();
+    NodeStack c = root.push(element("Observation.component", "component", null), 0, definition("Observation.component"), null);
+    NodeStack before = c.push(element("Observation.component.code", "code", null), -1, definition("Observation.component.code"), typeDefinition("CodeableConcept"));
+    c.qualifyPath(".ofType(BackboneElement)");
+    NodeStack after = c.push(element("Observation.component.code", "code", null), -1, definition("Observation.component.code"), typeDefinition("CodeableConcept"));
+    c.qualifyPath(".where(true)");
+
+    Assertions.assertEquals("Observation.component[0].ofType(BackboneElement).where(true)", c.getLiteralPath());
+    // a qualifier only applies to the nodes pushed after it
+    Assertions.assertEquals("Observation.component[0].code", before.getLiteralPath());
+    Assertions.assertEquals("Observation.component[0].ofType(BackboneElement).code", after.getLiteralPath());
+  }
+
+}
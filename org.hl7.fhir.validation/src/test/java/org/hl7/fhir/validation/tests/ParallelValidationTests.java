@@ -0,0 +1,120 @@
+package org.hl7.fhir.validation.tests;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hl7.fhir.r5.context.SimpleWorkerContext;
+import org.hl7.fhir.r5.model.Bundle;
+import org.hl7.fhir.r5.model.Bundle.BundleEntryComponent;
+import org.hl7.fhir.r5.model.ElementDefinition;
+import org.hl7.fhir.r5.model.OperationOutcome;
+import org.hl7.fhir.r5.model.StructureDefinition;
+import org.hl7.fhir.r5.model.StructureDefinition.StructureDefinitionKind;
+import org.hl7.fhir.r5.model.StructureDefinition.TypeDerivationRule;
+import org.hl7.fhir.r5.utils.ToolingExtensions;
+import org.hl7.fhir.utilities.Utilities;
+import org.hl7.fhir.validation.ValidationEngine;
+import org.hl7.fhir.validation.ValidationRecord;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ParallelValidationTests {
+
+  private StructureDefinition type(String name, StructureDefinitionKind kind, String... elements) {
+    StructureDefinition sd = new StructureDefinition();
+    sd.setId(name);
+    sd.setUrl("http://hl7.org/fhir/StructureDefinition/"+name);
+    sd.setName(name);
+    sd.setType(name);
+    sd.setKind(kind);
+    sd.setDerivation(TypeDerivationRule.SPECIALIZATION);
+    element(sd, name, null);
+    for (int i = 0; i < elements.length; i = i + 2) {
+      element(sd, name+"."+elements[i], elements[i+1]);
+    }
+    return sd;
+  }
+
+  private ElementDefinition element(StructureDefinition sd, String path, String type) {
+    ElementDefinition ed = sd.getSnapshot().addElement();
+    ed.setPath(path);
+    ed.setId(path);
+    ed.setMin(0);
+    ed.setMax(type == null ? "*" : "1");
+    if (type != null) {
+      ed.addType().setCode(type);
+    }
+    return ed;
+  }
+
+  private ValidationEngine engine(int threads) throws Exception {
+    Map<String, byte[]> definitions = new HashMap<>();
+    definitions.put("version.info", "version=4.0.1".getBytes(StandardCharsets.UTF_8));
+    SimpleWorkerContext context = SimpleWorkerContext.fromDefinitions(definitions, null, null);
+    context.getLoadedPackages().add("hl7.fhir.xver-extensions#0.0.4");
+    context.cacheResource(type("string", StructureDefinitionKind.PRIMITIVETYPE));
+    context.cacheResource(type("Basic", StructureDefinitionKind.RESOURCE, "code", "string", "author", "string"));
+    ValidationEngine engine = new ValidationEngine(context, "4.0.1", null);
+    engine.setThreads(threads);
+    return engine;
+  }
+
+  private List<String> files(Bundle bundle) {
+    List<String> res = new ArrayList<>();
+    for (BundleEntryComponent be : bundle.getEntry()) {
+      res.add(ToolingExtensions.readStringExtension((OperationOutcome) be.getResource(), ToolingExtensions.EXT_OO_FILE));
+    }
+    return res;
+  }
+
+  private List<String> locations(List<ValidationRecord> records) {
+    List<String> res = new ArrayList<>();
+    for (ValidationRecord r : records) {
+      res.add(r.getLocation());
+    }
+    return res;
+  }
+
+  @Test
+  public void testSameOrderAsSequential() throws Exception {
+    File folder = Files.createTempDirectory("sources").toFile();
+    try {
+      List<String> sources = new ArrayList<>();
+      for (int i = 0; i < 12; i++) {
+        File f = new File(folder, "basic-"+i+".json");
+        // some are bigger than others (and some have errors), so they don't all take as long
+        StringBuilder b = new StringBuilder();
+        b.append("{\"resourceType\":\"Basic\",\"code\":\"c"+i+"\"");
+        if (i % 3 == 0) {
+          b.append(",\"unknown\":\"x\"");
+        }
+        b.append(",\"author\":\""+Utilities.padLeft("", 'a', (12 - i) * 1000)+"\"}");
+        Files.write(f.toPath(), b.toString().getBytes(StandardCharsets.UTF_8));
+        sources.add(f.getAbsolutePath());
+      }
+
+      List<ValidationRecord> sequentialRecords = new ArrayList<>();
+      Bundle sequential = (Bundle) engine(1).validate(sources, new ArrayList<>(), sequentialRecords);
+      List<ValidationRecord> parallelRecords = new ArrayList<>();
+      Bundle parallel = (Bundle) engine(4).validate(sources, new ArrayList<>(), parallelRecords);
+
+      Assertions.assertEquals(sources, files(sequential));
+      Assertions.assertTrue(sequentialRecords.get(0).getErr() > 0);
+      Assertions.assertEquals(0, sequentialRecords.get(1).getErr());
+      Assertions.assertEquals(files(sequential), files(parallel));
+      Assertions.assertEquals(locations(sequentialRecords), locations(parallelRecords));
+      for (int i = 0; i < sources.size(); i++) {
+        Assertions.assertTrue(sequential.getEntry().get(i).getResource().equalsDeep(parallel.getEntry().get(i).getResource()), sources.get(i));
+      }
+    } finally {
+      Utilities.clearDirectory(folder.getAbsolutePath());
+      folder.delete();
+    }
+  }
+
+}
@@ -0,0 +1,130 @@
+package org.hl7.fhir.validation.tests;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.hl7.fhir.r5.elementmodel.Element;
+import org.hl7.fhir.r5.model.Base;
+import org.hl7.fhir.r5.model.CodeableConcept;
+import org.hl7.fhir.r5.model.Coding;
+import org.hl7.fhir.r5.model.ElementDefinition;
+import org.hl7.fhir.r5.model.ExpressionNode;
+import org.hl7.fhir.r5.model.IntegerType;
+import org.hl7.fhir.validation.instance.utils.SliceIndex;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class SliceIndexTests {
+
+  private Element coding(String name, String system, String code) {
+    Element c = new Element(name, null, "Coding", null);
+    c.getChildren().add(new Element("system", null, "uri", system));
+    c.getChildren().add(new Element("code", null, "code", code));
+    return c;
+  }
+
+  private Element concept(String... codes) {
+    Element cc = new Element("code", null, "CodeableConcept", null);
+    for (int i = 0; i < codes.length; i = i + 2) {
+      cc.getChildren().add(coding("coding", codes[i], codes[i+1]));
+    }
+    return cc;
+  }
+
+  private Map<String, List<Base>> values(String path, Base... values) {
+    Map<String, List<Base>> res = new HashMap<>();
+    List<Base> list = new ArrayList<>();
+    for (Base b : values) {
+      list.add(b);
+    }
+    res.put(path, list);
+    return res;
+  }
+
+  private Map<String, ExpressionNode> nodes(SliceIndex.Criteria criteria) {
+    Map<String, ExpressionNode> res = new HashMap<>();
+    for (String p : criteria.getPaths()) {
+      res.put(p, null);
+    }
+    return res;
+  }
+
+  @Test
+  public void testPatterns() {
+    SliceIndex index = new SliceIndex();
+
+    ElementDefinition bp = new ElementDefinition().setSliceName("bp");
+    SliceIndex.Criteria c = new SliceIndex.Criteria();
+    c.value("code", new CodeableConcept(new Coding("http://loinc.org", "85354-9", null)), false);
+    Assertions.assertTrue(c.isSupported());
+    index.add(bp, c, nodes(c));
+
+    ElementDefinition both = new ElementDefinition().setSliceName("both");
+    c = new SliceIndex.Criteria();
+    c.value("code", new CodeableConcept(new Coding("http://loinc.org", "85354-9", null)).addCoding(new Coding("http://snomed.info/sct", "75367002", null)), false);
+    index.add(both, c, nodes(c));
+
+    ElementDefinition displayed = new ElementDefinition().setSliceName("displayed");
+    c = new SliceIndex.Criteria();
+    c.value("code", new CodeableConcept(new Coding("http://loinc.org", "85354-9", "Blood pressure")), false);
+    // display is left to the expression
+    Assertions.assertFalse(c.isSupported());
+
+    Assertions.assertTrue(index.isIndexed(bp));
+    Assertions.assertFalse(index.isIndexed(displayed));
+
+    Set<ElementDefinition> matches = index.match(values("code", concept("http://loinc.org", "85354-9")));
+    Assertions.assertEquals(1, matches.size());
+    Assertions.assertTrue(matches.contains(bp));
+
+    matches = index.match(values("code", concept("http://snomed.info/sct", "75367002", "http://loinc.org", "85354-9")));
+    Assertions.assertEquals(2, matches.size());
+    Assertions.assertTrue(matches.contains(both));
+
+    Assertions.assertTrue(index.match(values("code", concept("http://loinc.org", "8867-4"))).isEmpty());
+    Assertions.assertTrue(index.match(values("code")).isEmpty());
+  }
+
+  @Test
+  public void testTypesAndExistence() {
+    SliceIndex index = new SliceIndex();
+
+    ElementDefinition quantity = new ElementDefinition().setSliceName("quantity");
+    SliceIndex.Criteria c = new SliceIndex.Criteria();
+    c.type("value", "Quantity");
+    index.add(quantity, c, nodes(c));
+
+    ElementDefinition coded = new ElementDefinition().setSliceName("coded");
+    c = new SliceIndex.Criteria();
+    c.type("value", "Coding");
+    c.exists("extension", false);
+    index.add(coded, c, nodes(c));
+
+    c = new SliceIndex.Criteria();
+    c.value("value", new IntegerType(1), true);
+    Assertions.assertFalse(c.isSupported());
+
+    Map<String, List<Base>> values = values("value", new Element("valueQuantity", null, "Quantity", null));
+    values.put("extension", new ArrayList<>());
+    Set<ElementDefinition> matches = index.match(values);
+    Assertions.assertEquals(1, matches.size());
+    Assertions.assertTrue(matches.contains(quantity));
+
+    values = values("value", coding("valueCoding", "http://loinc.org", "85354-9"));
+    values.put("extension", new ArrayList<>());
+    Assertions.assertTrue(index.match(values).contains(coded));
+    values.get("extension").add(new Element("extension", null, "Extension", null));
+    Assertions.assertTrue(index.match(values).isEmpty());
+
+    // 'is' only works on a single item
+    values = values("value", new Element("valueQuantity", null, "Quantity", null), new Element("valueQuantity", null, "Quantity", null));
+    Assertions.assertTrue(index.match(values).isEmpty());
+
+    // and things that aren't elements can't be indexed
+    Assertions.assertNull(index.match(values("value", new Coding())));
+  }
+
+}
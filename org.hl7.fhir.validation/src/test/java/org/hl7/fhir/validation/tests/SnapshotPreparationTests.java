@@ -0,0 +1,224 @@
+package org.hl7.fhir.validation.tests;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.hl7.fhir.exceptions.DefinitionException;
+import org.hl7.fhir.exceptions.FHIRException;
+import org.hl7.fhir.r5.context.SimpleWorkerContext;
+import org.hl7.fhir.r5.model.ElementDefinition;
+import org.hl7.fhir.r5.model.StructureDefinition;
+import org.hl7.fhir.r5.model.StructureDefinition.StructureDefinitionKind;
+import org.hl7.fhir.r5.model.StructureDefinition.TypeDerivationRule;
+import org.hl7.fhir.validation.ValidationEngine;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class SnapshotPreparationTests {
+
+  private static final String BASE = "http://hl7.org/fhir/StructureDefinition/";
+  private static final String PROFILE = "http://example.org/fhir/StructureDefinition/";
+
+  /**
+   * Notes each profile that it is asked to generate a snapshot for before its base's is finished
+   */
+  private static class CheckingContext extends SimpleWorkerContext {
+    private List<String> started = Collections.synchronizedList(new ArrayList<>());
+    private Set<String> finished = ConcurrentHashMap.newKeySet();
+    private List<String> outOfOrder = Collections.synchronizedList(new ArrayList<>());
+
+    public CheckingContext() throws Exception {
+      super();
+      getLoadedPackages().add("hl7.fhir.xver-extensions#0.0.4");
+    }
+
+    @Override
+    public void generateSnapshot(StructureDefinition p) throws DefinitionException, FHIRException {
+      if (!finished.contains(p.getUrl())) {
+        if (!p.hasSnapshot()) {
+          started.add(p.getUrl());
+        }
+        if (p.hasBaseDefinition() && fetchRawProfile(p.getBaseDefinition()) != null && !finished.contains(p.getBaseDefinition())) {
+          outOfOrder.add(p.getUrl());
+        }
+      }
+      super.generateSnapshot(p);
+      if (p.hasSnapshot()) {
+        finished.add(p.getUrl());
+      }
+    }
+  }
+
+  private StructureDefinition basic() {
+    StructureDefinition sd = new StructureDefinition();
+    sd.setId("Basic");
+    sd.setUrl(BASE+"Basic");
+    sd.setName("Basic");
+    sd.setType("Basic");
+    sd.setKind(StructureDefinitionKind.RESOURCE);
+    sd.setDerivation(TypeDerivationRule.SPECIALIZATION);
+    element(sd.getSnapshot().addElement(), "Basic").setMin(0).setMax("*");
+    element(sd.getSnapshot().addElement(), "Basic.code").setMin(0).setMax("1").addType().setCode("string");
+    element(sd.getSnapshot().addElement(), "Basic.author").setMin(0).setMax("1").addType().setCode("string");
+    return sd;
+  }
+
+  private StructureDefinition string() {
+    StructureDefinition sd = new StructureDefinition();
+    sd.setId("string");
+    sd.setUrl(BASE+"string");
+    sd.setName("string");
+    sd.setType("string");
+    sd.setKind(StructureDefinitionKind.PRIMITIVETYPE);
+    sd.setDerivation(TypeDerivationRule.SPECIALIZATION);
+    element(sd.getSnapshot().addElement(), "string").setMin(0).setMax("*");
+    return sd;
+  }
+
+  private ElementDefinition element(ElementDefinition ed, String path) {
+    ed.setPath(path);
+    ed.setId(path);
+    return ed;
+  }
+
+  private StructureDefinition profile(String name, String base) {
+    StructureDefinition sd = new StructureDefinition();
+    sd.setId(name);
+    sd.setUrl(PROFILE+name);
+    sd.setName(name);
+    sd.setType("Basic");
+    sd.setKind(StructureDefinitionKind.RESOURCE);
+    sd.setDerivation(TypeDerivationRule.CONSTRAINT);
+    sd.setBaseDefinition(base);
+    element(sd.getDifferential().addElement(), "Basic.code").setMin(1);
+    return sd;
+  }
+
+  private ValidationEngine engine(SimpleWorkerContext context, int threads) throws Exception {
+    ValidationEngine engine = new ValidationEngine(context, "4.0.1", null);
+    engine.setThreads(threads);
+    return engine;
+  }
+
+  private boolean hasSnapshot(SimpleWorkerContext context, String name) {
+    return context.fetchRawProfile(PROFILE+name).hasSnapshot();
+  }
+
+  @Test
+  public void testBaseBeforeDerived() throws Exception {
+    CheckingContext context = new CheckingContext();
+    // the most derived first, so that the profiles aren't listed in the order they have to be done
+    context.cacheResource(profile("p3", PROFILE+"p2"));
+    context.cacheResource(profile("p2", PROFILE+"p1"));
+    context.cacheResource(profile("p1", BASE+"Basic"));
+    context.cacheResource(profile("q1", BASE+"Basic"));
+    context.cacheResource(basic());
+    engine(context, 4).prepare();
+
+    for (String name : new String[] { "p1", "p2", "p3", "q1" }) {
+      Assertions.assertTrue(hasSnapshot(context, name), name);
+    }
+    Assertions.assertEquals(4, context.started.size());
+    Assertions.assertEquals(new ArrayList<>(), context.outOfOrder);
+  }
+
+  @Test
+  public void testCircularBases() throws Exception {
+    CheckingContext context = new CheckingContext();
+    context.cacheResource(profile("a", PROFILE+"b"));
+    context.cacheResource(profile("b", PROFILE+"a"));
+    context.cacheResource(profile("c", BASE+"Basic"));
+    context.cacheResource(basic());
+    Assertions.assertTimeoutPreemptively(Duration.ofSeconds(30), () -> engine(context, 4).prepare());
+
+    Assertions.assertFalse(hasSnapshot(context, "a"));
+    Assertions.assertFalse(hasSnapshot(context, "b"));
+    Assertions.assertTrue(hasSnapshot(context, "c"));
+  }
+
+  @Test
+  public void testFailedBase() throws Exception {
+    CheckingContext context = new CheckingContext();
+    context.cacheResource(profile("f1", PROFILE+"missing"));
+    context.cacheResource(profile("f2", PROFILE+"f1"));
+    context.cacheResource(profile("f3", PROFILE+"f2"));
+    context.cacheResource(basic());
+    ValidationEngine engine = engine(context, 4);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    PrintStream stdout = System.out;
+    System.setOut(new PrintStream(out, true, "UTF-8"));
+    try {
+      engine.prepare();
+    } finally {
+      System.setOut(stdout);
+    }
+
+    // each of them says why it failed
+    String notes = new String(out.toByteArray(), StandardCharsets.UTF_8);
+    for (String name : new String[] { "f1", "f2", "f3" }) {
+      Assertions.assertFalse(hasSnapshot(context, name), name);
+      Assertions.assertTrue(notes.contains("Unable to generate snapshot for "+context.fetchRawProfile(PROFILE+name).present()), notes);
+    }
+  }
+
+  @Test
+  public void testFetchWhileGenerating() throws Exception {
+    StructureDefinition p = profile("p1", BASE+"Basic");
+    element(p.getDifferential().addElement(), "Basic.author").setMin(1).addType().setCode("string");
+    int[] seen = new int[] { -1 };
+    Thread[] reader = new Thread[1];
+    SimpleWorkerContext context = new CheckingContext() {
+      @Override
+      public StructureDefinition fetchTypeDefinition(String typeName) {
+        // part way through the snapshot, another thread fetches the profile
+        if (reader[0] == null && p.hasSnapshot() && Thread.holdsLock(p)) {
+          reader[0] = new Thread(() -> seen[0] = fetchResource(StructureDefinition.class, p.getUrl()).getSnapshot().getElement().size());
+          reader[0].start();
+          try {
+            reader[0].join(500);
+          } catch (InterruptedException e) {
+            throw new FHIRException(e);
+          }
+        }
+        return super.fetchTypeDefinition(typeName);
+      }
+    };
+    context.cacheResource(p);
+    context.cacheResource(basic());
+    context.cacheResource(string());
+    context.generateSnapshot(p);
+    Assertions.assertNotNull(reader[0]);
+    reader[0].join(10000);
+
+    // it waited until the snapshot was finished
+    Assertions.assertEquals(p.getSnapshot().getElement().size(), seen[0]);
+  }
+
+  @Test
+  public void testDeferSnapshots() throws Exception {
+    CheckingContext context = new CheckingContext();
+    context.cacheResource(profile("p1", BASE+"Basic"));
+    context.cacheResource(profile("p2", PROFILE+"p1"));
+    context.cacheResource(profile("q1", BASE+"Basic"));
+    context.cacheResource(basic());
+    ValidationEngine engine = engine(context, 4);
+    engine.setDeferSnapshots(true);
+    engine.prepare();
+    Assertions.assertEquals(0, context.started.size());
+    Assertions.assertFalse(hasSnapshot(context, "p1"));
+    Assertions.assertFalse(hasSnapshot(context, "p2"));
+
+    // fetching a profile generates its snapshot, and its base's, but not any others
+    Assertions.assertTrue(context.fetchResource(StructureDefinition.class, PROFILE+"p2").hasSnapshot());
+    Assertions.assertTrue(hasSnapshot(context, "p1"));
+    Assertions.assertFalse(hasSnapshot(context, "q1"));
+  }
+
+}
@@ -0,0 +1,122 @@
+package org.hl7.fhir.validation.tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hl7.fhir.r5.context.SimpleWorkerContext;
+import org.hl7.fhir.r5.elementmodel.Element;
+import org.hl7.fhir.r5.elementmodel.JsonParser;
+import org.hl7.fhir.r5.elementmodel.Manager.FhirFormat;
+import org.hl7.fhir.r5.elementmodel.ParserBase.ValidationPolicy;
+import org.hl7.fhir.r5.model.ElementDefinition;
+import org.hl7.fhir.r5.model.StructureDefinition;
+import org.hl7.fhir.r5.model.StructureDefinition.StructureDefinitionKind;
+import org.hl7.fhir.r5.model.StructureDefinition.TypeDerivationRule;
+import org.hl7.fhir.utilities.validation.ValidationMessage;
+import org.hl7.fhir.validation.ValidationEngine;
+import org.hl7.fhir.validation.instance.InstanceValidator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class StreamedBundleTests {
+
+  private StructureDefinition type(String name, StructureDefinitionKind kind, String... elements) {
+    StructureDefinition sd = new StructureDefinition();
+    sd.setId(name);
+    sd.setUrl("http://hl7.org/fhir/StructureDefinition/"+name);
+    sd.setName(name);
+    sd.setType(name);
+    sd.setKind(kind);
+    sd.setDerivation(TypeDerivationRule.SPECIALIZATION);
+    element(sd, name, null, "*");
+    for (int i = 0; i < elements.length; i = i + 3) {
+      element(sd, name+"."+elements[i], elements[i+1], elements[i+2]);
+    }
+    return sd;
+  }
+
+  private ElementDefinition element(StructureDefinition sd, String path, String type, String max) {
+    ElementDefinition ed = sd.getSnapshot().addElement();
+    ed.setPath(path);
+    ed.setId(path);
+    ed.setMin(0);
+    ed.setMax(max);
+    if (type != null) {
+      ed.addType().setCode(type);
+    }
+    return ed;
+  }
+
+  private InstanceValidator validator(SimpleWorkerContext context) throws Exception {
+    return new ValidationEngine(context, "4.0.1", null).getValidator();
+  }
+
+  private SimpleWorkerContext context() throws Exception {
+    Map<String, byte[]> definitions = new HashMap<>();
+    definitions.put("version.info", "version=4.0.1".getBytes(StandardCharsets.UTF_8));
+    SimpleWorkerContext context = SimpleWorkerContext.fromDefinitions(definitions, null, null);
+    context.getLoadedPackages().add("hl7.fhir.xver-extensions#0.0.4");
+    context.cacheResource(type("string", StructureDefinitionKind.PRIMITIVETYPE));
+    context.cacheResource(type("Basic", StructureDefinitionKind.RESOURCE, "code", "string", "1"));
+    context.cacheResource(type("Bundle", StructureDefinitionKind.RESOURCE, "entry", "BackboneElement", "*", "entry.fullUrl", "string", "1",
+        "entry.resource", "Resource", "1", "signature", "string", "1"));
+    return context;
+  }
+
+  private InputStream stream(String src) {
+    return new ByteArrayInputStream(src.getBytes(StandardCharsets.UTF_8));
+  }
+
+  private List<String> names(Element element) {
+    List<String> res = new ArrayList<>();
+    for (Element child : element.getChildren()) {
+      res.add(child.getName()+(child.hasIndex() ? "["+child.getIndex()+"]" : ""));
+    }
+    return res;
+  }
+
+  private List<String> describe(List<ValidationMessage> messages) {
+    List<String> res = new ArrayList<>();
+    for (ValidationMessage vm : messages) {
+      res.add(vm.getLocation()+"@"+vm.getLine()+","+vm.getCol()+": "+vm.getMessage());
+    }
+    return res;
+  }
+
+  @Test
+  public void testSameAsWholeDocument() throws Exception {
+    // the entries aren't where the definition puts them, and one has an error
+    String src = "{\"resourceType\" : \"Bundle\", \"signature\" : \"s\", \"entry\" : [{\"fullUrl\" : \"http://a/Basic/1\", \"resource\" : {\"resourceType\" : \"Basic\", \"code\" : \"a\"}}, "+
+      "{\"fullUrl\" : \"http://a/Basic/2\", \"resource\" : {\"resourceType\" : \"Basic\", \"unknown\" : \"b\"}}]}";
+    SimpleWorkerContext context = context();
+
+    List<ValidationMessage> streamed = new ArrayList<>();
+    Element bundle = validator(context).validate(null, streamed, stream(src), FhirFormat.JSON);
+
+    List<ValidationMessage> whole = new ArrayList<>();
+    JsonParser parser = new JsonParser(context);
+    parser.setupValidation(ValidationPolicy.EVERYTHING, whole);
+    Element expected = parser.parse(stream(src));
+    validator(context).validate(null, whole, expected);
+
+    Assertions.assertEquals(names(expected), names(bundle));
+    Assertions.assertEquals("[entry[0], entry[1], signature]", names(bundle).toString());
+    Assertions.assertFalse(streamed.isEmpty());
+    Assertions.assertEquals(describe(whole), describe(streamed));
+  }
+
+  @Test
+  public void testEmptyEntries() throws Exception {
+    List<ValidationMessage> errors = new ArrayList<>();
+    Element bundle = validator(context()).validate(null, errors, stream("{\"resourceType\" : \"Bundle\", \"entry\" : []}"), FhirFormat.JSON);
+    Assertions.assertNotNull(bundle);
+    Assertions.assertEquals(1, errors.size(), errors.toString());
+    Assertions.assertEquals("Bundle.entry", errors.get(0).getLocation());
+  }
+
+}
@@ -0,0 +1,215 @@
+package org.hl7.fhir.validation.tests;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.hl7.fhir.exceptions.FHIRException;
+import org.hl7.fhir.r5.context.SimpleWorkerContext;
+import org.hl7.fhir.r5.elementmodel.Manager.FhirFormat;
+import org.hl7.fhir.r5.model.BooleanType;
+import org.hl7.fhir.r5.model.Bundle;
+import org.hl7.fhir.r5.model.Bundle.BundleEntryComponent;
+import org.hl7.fhir.r5.model.Bundle.BundleType;
+import org.hl7.fhir.r5.model.CanonicalResource;
+import org.hl7.fhir.r5.model.CapabilityStatement;
+import org.hl7.fhir.r5.model.ElementDefinition;
+import org.hl7.fhir.r5.model.Enumerations.BindingStrength;
+import org.hl7.fhir.r5.model.Parameters;
+import org.hl7.fhir.r5.model.StructureDefinition;
+import org.hl7.fhir.r5.model.StructureDefinition.StructureDefinitionKind;
+import org.hl7.fhir.r5.model.StructureDefinition.TypeDerivationRule;
+import org.hl7.fhir.r5.model.TerminologyCapabilities;
+import org.hl7.fhir.r5.model.ValueSet;
+import org.hl7.fhir.r5.terminologies.TerminologyClient;
+import org.hl7.fhir.utilities.ToolingClientLogger;
+import org.hl7.fhir.utilities.Utilities;
+import org.hl7.fhir.utilities.validation.ValidationMessage;
+import org.hl7.fhir.validation.instance.InstanceValidator;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TerminologyBatchTests {
+
+  private static final String LOINC = "http://loinc.org";
+  private static final String VS = "http://example.org/fhir/ValueSet/codes";
+
+  /**
+   * Counts the calls made to it, and says that every code is valid
+   */
+  private static class CountingClient implements TerminologyClient {
+    private int batches;
+    private int codes;
+
+    @Override
+    public String getAddress() {
+      return "http://tx.example.org/r4";
+    }
+
+    @Override
+    public TerminologyCapabilities getTerminologyCapabilities() throws FHIRException {
+      TerminologyCapabilities caps = new TerminologyCapabilities();
+      caps.addCodeSystem().setUri(LOINC);
+      return caps;
+    }
+
+    @Override
+    public ValueSet expandValueset(ValueSet vs, Parameters p, Map<String, String> params) throws FHIRException {
+      throw new FHIRException("not expected");
+    }
+
+    @Override
+    public Parameters validateCS(Parameters pin) throws FHIRException {
+      return validate(pin);
+    }
+
+    @Override
+    public Parameters validateVS(Parameters pin) throws FHIRException {
+      return validate(pin);
+    }
+
+    private synchronized Parameters validate(Parameters pin) {
+      if (pin.hasParameter("coding")) {
+        codes++;
+      }
+      return valid();
+    }
+
+    private Parameters valid() {
+      Parameters res = new Parameters();
+      res.addParameter().setName("result").setValue(new BooleanType(true));
+      return res;
+    }
+
+    @Override
+    public TerminologyClient setTimeout(int i) throws FHIRException {
+      return this;
+    }
+
+    @Override
+    public TerminologyClient setLogger(ToolingClientLogger txLog) throws FHIRException {
+      return this;
+    }
+
+    @Override
+    public int getRetryCount() throws FHIRException {
+      return 0;
+    }
+
+    @Override
+    public TerminologyClient setRetryCount(int retryCount) throws FHIRException {
+      return this;
+    }
+
+    @Override
+    public CapabilityStatement getCapabilitiesStatementQuick() throws FHIRException {
+      CapabilityStatement cs = new CapabilityStatement();
+      cs.getSoftware().setVersion("1.0.0");
+      return cs;
+    }
+
+    @Override
+    public Parameters lookupCode(Map<String, String> params) throws FHIRException {
+      throw new FHIRException("not expected");
+    }
+
+    @Override
+    public synchronized Bundle validateBatch(Bundle batch) {
+      batches++;
+      Bundle res = new Bundle();
+      res.setType(BundleType.BATCHRESPONSE);
+      for (BundleEntryComponent be : batch.getEntry()) {
+        res.addEntry().setResource(valid());
+      }
+      return res;
+    }
+
+    @Override
+    public CanonicalResource read(String type, String id) {
+      return null;
+    }
+  }
+
+  private StructureDefinition type(String name, StructureDefinitionKind kind, String... elements) {
+    StructureDefinition sd = new StructureDefinition();
+    sd.setId(name);
+    sd.setUrl("http://hl7.org/fhir/StructureDefinition/"+name);
+    sd.setName(name);
+    sd.setType(name);
+    sd.setKind(kind);
+    sd.setDerivation(TypeDerivationRule.SPECIALIZATION);
+    element(sd, name, null);
+    for (int i = 0; i < elements.length; i = i + 2) {
+      element(sd, name+"."+elements[i], elements[i+1]);
+    }
+    return sd;
+  }
+
+  private ElementDefinition element(StructureDefinition sd, String path, String type) {
+    ElementDefinition ed = sd.getSnapshot().addElement();
+    ed.setPath(path);
+    ed.setId(path);
+    ed.setMin(0);
+    // a type ending with * is a list
+    ed.setMax(type == null || type.endsWith("*") ? "*" : "1");
+    if (type != null) {
+      ed.addType().setCode(type.replace("*", ""));
+    }
+    return ed;
+  }
+
+  private SimpleWorkerContext context(CountingClient client, File cache) throws Exception {
+    Map<String, byte[]> definitions = new HashMap<>();
+    definitions.put("version.info", "version=4.0.1".getBytes(StandardCharsets.UTF_8));
+    SimpleWorkerContext context = SimpleWorkerContext.fromDefinitions(definitions, null, null);
+    context.cacheResource(type("string", StructureDefinitionKind.PRIMITIVETYPE));
+    context.cacheResource(type("uri", StructureDefinitionKind.PRIMITIVETYPE));
+    context.cacheResource(type("code", StructureDefinitionKind.PRIMITIVETYPE));
+    context.cacheResource(type("Coding", StructureDefinitionKind.COMPLEXTYPE, "system", "uri", "code", "code", "display", "string"));
+    context.cacheResource(type("CodeableConcept", StructureDefinitionKind.COMPLEXTYPE, "coding", "Coding*", "text", "string"));
+    StructureDefinition basic = type("Basic", StructureDefinitionKind.RESOURCE, "code", "CodeableConcept", "kind", "Coding", "other", "CodeableConcept*", "method", "Coding*");
+    basic.getSnapshot().getElement().get(1).getBinding().setStrength(BindingStrength.REQUIRED).setValueSet(VS);
+    basic.getSnapshot().getElement().get(2).getBinding().setStrength(BindingStrength.EXTENSIBLE).setValueSet(VS);
+    context.cacheResource(basic);
+    ValueSet vs = new ValueSet();
+    vs.setId("codes");
+    vs.setUrl(VS);
+    vs.getCompose().addInclude().setSystem(LOINC);
+    context.cacheResource(vs);
+    context.setExpansionProfile(new Parameters());
+    context.initTS(cache.getAbsolutePath());
+    context.connectToTSServer(client, null);
+    return context;
+  }
+
+  @Test
+  public void testOneBatchPerResource() throws Exception {
+    CountingClient client = new CountingClient();
+    File cache = Files.createTempDirectory("tx").toFile();
+    try {
+      InstanceValidator validator = new InstanceValidator(context(client, cache), null, null);
+      validator.setBatchTerminology(true);
+      // the codes are bound (in a CodeableConcept, and a Coding) and unbound, with and without displays
+      String json = "{\"resourceType\":\"Basic\","+
+        "\"code\":{\"coding\":[{\"system\":\"http://loinc.org\",\"code\":\"1-1\",\"display\":\"One\"},{\"system\":\"http://loinc.org\",\"code\":\"2-2\"}]},"+
+        "\"kind\":{\"system\":\"http://loinc.org\",\"code\":\"3-3\",\"display\":\"Three\"},"+
+        "\"other\":[{\"coding\":[{\"system\":\"http://loinc.org\",\"code\":\"4-4\",\"display\":\"Four\"}]}],"+
+        "\"method\":[{\"system\":\"http://loinc.org\",\"code\":\"1-1\",\"display\":\"Another One\"}]}";
+      List<ValidationMessage> errors = new ArrayList<>();
+      validator.validate(null, errors, new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)), FhirFormat.JSON);
+
+      // all the codes were asked about in the batch, so the validation found them all in the cache
+      Assertions.assertEquals(1, client.batches);
+      Assertions.assertEquals(0, client.codes);
+    } finally {
+      Utilities.clearDirectory(cache.getAbsolutePath());
+      cache.delete();
+    }
+  }
+
+}
@@ -1,7 +1,11 @@
 package org.hl7.fhir.validation.tests;
 
+import java.io.ByteArrayInputStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.hl7.fhir.r5.elementmodel.Manager.FhirFormat;
 import org.hl7.fhir.r5.model.FhirPublication;
@@ -9,6 +13,7 @@ import org.hl7.fhir.r5.model.OperationOutcome;
 import org.hl7.fhir.r5.model.OperationOutcome.IssueSeverity;
 import org.hl7.fhir.r5.model.OperationOutcome.OperationOutcomeIssueComponent;
 import org.hl7.fhir.r5.test.utils.TestingUtilities;
+import org.hl7.fhir.utilities.validation.ValidationMessage;
 import org.hl7.fhir.validation.IgLoader;
 import org.hl7.fhir.validation.ValidationEngine;
 import org.hl7.fhir.validation.tests.utilities.TestUtilities;
@@ -178,6 +183,49 @@ public class ValidationEngineTests {
       System.out.println("  .. done: " + Integer.toString(e) + " errors, " + Integer.toString(w) + " warnings, " + Integer.toString(h) + " information messages");
   }
 
+  /**
+   * validates the same corpus with 1..N threads against a single context, checking that 
+   * every thread gets the same answer as a single threaded run, and reporting the throughput 
+   */
+  @Test
+  public void testMultiThreadedThroughput() throws Exception {
+    if (!TestUtilities.silent)
+      System.out.println("TestMultiThreadedThroughput: Validate patient-example.xml/json on 1..N threads against one context");
+    ValidationEngine ve = new ValidationEngine("hl7.fhir.r4.core#4.0.1", null, null, FhirPublication.R4, true, "4.0.1");
+    final byte[] xml = TestingUtilities.loadTestResourceBytes("validator", "patient-example.xml");
+    final byte[] json = TestingUtilities.loadTestResourceBytes("validator", "patient-example.json");
+    int expectedXml = countMessages(ve, xml, FhirFormat.XML);
+    int expectedJson = countMessages(ve, json, FhirFormat.JSON);
+
+    int iterations = 20;
+    int maxThreads = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+    for (int threads = 1; threads <= maxThreads; threads = threads * 2) {
+      ExecutorService exec = Executors.newFixedThreadPool(threads);
+      try {
+        List<Future<Integer>> results = new ArrayList<>();
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations * threads; i++) {
+          final boolean isXml = i % 2 == 0;
+          results.add(exec.submit(() -> isXml ? countMessages(ve, xml, FhirFormat.XML) : countMessages(ve, json, FhirFormat.JSON)));
+        }
+        for (int i = 0; i < results.size(); i++) {
+          Assertions.assertEquals(i % 2 == 0 ? expectedXml : expectedJson, results.get(i).get().intValue());
+        }
+        long ms = (System.nanoTime() - start) / 1000000;
+        if (!TestUtilities.silent)
+          System.out.println("  .. " + threads + " threads: " + results.size() + " validations in " + ms + "ms (" + (results.size() * 1000 / Math.max(1, ms)) + "/sec)");
+      } finally {
+        exec.shutdown();
+      }
+    }
+  }
+
+  private int countMessages(ValidationEngine ve, byte[] source, FhirFormat fmt) throws Exception {
+    List<ValidationMessage> messages = new ArrayList<>();
+    ve.getValidator().validate(null, messages, new ByteArrayInputStream(source), fmt);
+    return messages.size();
+  }
+
   private int errors(OperationOutcome op) {
     int i = 0;
     for (OperationOutcomeIssueComponent vm : op.getIssue()) {